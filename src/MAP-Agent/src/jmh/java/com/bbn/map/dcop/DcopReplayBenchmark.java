@@ -0,0 +1,905 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.dcop;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.annotation.Nonnull;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bbn.map.AgentConfiguration;
+import com.bbn.map.AgentConfiguration.DcopAlgorithm;
+import com.bbn.map.ap.ImmutableDcopSharedInformation;
+import com.bbn.map.ap.TotalDemand;
+import com.bbn.map.appmgr.util.AppMgrUtils;
+import com.bbn.map.common.ApplicationManagerApi;
+import com.bbn.map.dcop.acdiff.ACdiffAlgorithm;
+import com.bbn.map.dcop.cdiff.CdiffAlgorithm;
+import com.bbn.map.dcop.defaults.DefaultAlgorithm;
+import com.bbn.map.dcop.final_rcdiff.FinalRCDiffAlgorithm;
+import com.bbn.map.dcop.modular_acdiff.ModularACdiffAlgorithm;
+import com.bbn.map.dcop.modular_rcdiff.ModularRCdiffAlgorithm;
+import com.bbn.map.dcop.rcdiff.RCdiffAlgorithm;
+import com.bbn.map.dcop.rdiff.RdiffAlgorithm;
+import com.bbn.map.simulator.Simulation;
+import com.bbn.map.simulator.SimulationRunner;
+import com.bbn.map.ta2.RegionalLink;
+import com.bbn.map.ta2.RegionalTopology;
+import com.bbn.map.utils.JsonUtils;
+import com.bbn.map.utils.LogExceptionHandler;
+import com.bbn.map.utils.MapLoggingConfigurationFactory;
+import com.bbn.map.utils.MapUtils;
+import com.bbn.protelis.networkresourcemanagement.NodeAttribute;
+import com.bbn.protelis.networkresourcemanagement.RegionIdentifier;
+import com.bbn.protelis.networkresourcemanagement.RegionPlan;
+import com.bbn.protelis.networkresourcemanagement.ResourceReport.EstimationWindow;
+import com.bbn.protelis.networkresourcemanagement.ResourceSummary;
+import com.bbn.protelis.networkresourcemanagement.ServiceIdentifier;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+
+import edu.uci.ics.jung.graph.Graph;
+import edu.uci.ics.jung.graph.SparseMultigraph;
+
+/**
+ * Replay the {@link ResourceSummary} objects that were dumped by the
+ * controllers during a simulation through each of the DCOP algorithms without
+ * running the rest of the simulation. All regions execute in parallel and
+ * communicate through an in-memory {@link DcopInfoProvider}, so the algorithms
+ * run as fast as the CPU allows instead of at the speed of AP.
+ *
+ * For each algorithm and round the following is reported:
+ * <ul>
+ * <li>wall time of the round</li>
+ * <li>iterations, the maximum number of distinct shared information updates
+ * by any region in the round</li>
+ * <li>total number of bytes of the distinct shared information updates</li>
+ * <li>demand, served load and overflow of the resulting plans</li>
+ * </ul>
+ *
+ * The plan quality is a first-hop approximation: the demand for a service at
+ * a region is split between regions according to that region's plan and
+ * compared against the {@link MapUtils#COMPUTE_ATTRIBUTE} capacity of the
+ * receiving region. Any load above capacity is overflow.
+ *
+ * When {@link AgentConfiguration#getDcopWarmStart()} is set the
+ * {@link DcopAlgorithm#FINAL_RCDIFF} objects are kept between rounds so that
+ * the warm start can be compared with the per round reset.
+ *
+ * {@link DcopAlgorithm#CDIFF_PLUS} is not supported as it is driven by a
+ * {@link DCOPService} rather than by a single call to compute a plan.
+ */
+public final class DcopReplayBenchmark {
+    // put this first to ensure that the correct logging configuration is used
+    static {
+        System.setProperty("log4j.configurationFactory", MapLoggingConfigurationFactory.class.getName());
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DcopReplayBenchmark.class);
+
+    private static final String SCENARIO_OPT = "scenario";
+    private static final String INPUT_OPT = "input";
+    private static final String OUTPUT_OPT = "output";
+    private static final String ALGORITHMS_OPT = "algorithms";
+    private static final String ROUNDS_OPT = "rounds";
+    private static final String AP_ROUND_DURATION_OPT = "apRoundDuration";
+    private static final String DCOP_ROUND_DURATION_OPT = "dcopRoundDuration";
+    private static final String AGENT_CONFIGURATION_OPT = "agentConfiguration";
+    private static final String WARM_START_OPT = "warmStart";
+    private static final String HELP_OPT = "help";
+
+    /**
+     * Default duration of an AP round during replay. This is used as the
+     * polling interval by the algorithms.
+     */
+    public static final Duration DEFAULT_AP_ROUND_DURATION = Duration.ofMillis(1);
+
+    /**
+     * Default duration of a DCOP round during replay. This bounds the
+     * algorithms that run until the end of the round.
+     */
+    public static final Duration DEFAULT_DCOP_ROUND_DURATION = Duration.ofSeconds(2);
+
+    /**
+     * The algorithms that can be replayed.
+     */
+    public static final Set<DcopAlgorithm> SUPPORTED_ALGORITHMS = Collections
+            .unmodifiableSet(EnumSet.complementOf(EnumSet.of(DcopAlgorithm.CDIFF_PLUS)));
+
+    private static final String SUMMARY_FILENAME = String.format("resourceSummary-%s.json", EstimationWindow.LONG);
+
+    private static void printUsage(final Options options) {
+        new HelpFormatter().printHelp(DcopReplayBenchmark.class.getSimpleName(), options);
+    }
+
+    /**
+     *
+     * @param args
+     *            run without arguments to see all options
+     */
+    public static void main(final String[] args) {
+        LogExceptionHandler.registerExceptionHandler();
+
+        final Options options = new Options();
+        options.addRequiredOption("s", SCENARIO_OPT, true,
+                "The directory where the scenario is stored, used to load the service configurations (required)");
+        options.addRequiredOption("i", INPUT_OPT, true, "The output directory of the simulation to replay (required)");
+        options.addOption("o", OUTPUT_OPT, true, "CSV file to write the per round results to");
+        options.addOption("a", ALGORITHMS_OPT, true,
+                "Comma separated list of algorithms to run (default: " + SUPPORTED_ALGORITHMS + ")");
+        options.addOption("n", ROUNDS_OPT, true, "Maximum number of rounds to replay (default: all)");
+        options.addOption(null, AP_ROUND_DURATION_OPT, true,
+                "AP round duration in milliseconds or a Duration string (default: " + DEFAULT_AP_ROUND_DURATION
+                        + ")");
+        options.addOption(null, DCOP_ROUND_DURATION_OPT, true,
+                "DCOP round duration in seconds or a Duration string (default: " + DEFAULT_DCOP_ROUND_DURATION
+                        + ")");
+        options.addOption(null, AGENT_CONFIGURATION_OPT, true,
+                "Read the agent configuration from the specified file, defaults to the agent configuration in the input directory if it exists");
+        options.addOption(null, WARM_START_OPT, false,
+                "Keep the DCOP algorithm state between rounds, see AgentConfiguration.getDcopWarmStart()");
+        options.addOption("h", HELP_OPT, false, "Show the help");
+
+        final CommandLineParser parser = new DefaultParser();
+        try {
+            final CommandLine cmd = parser.parse(options, args);
+
+            if (cmd.hasOption(HELP_OPT)) {
+                printUsage(options);
+                System.exit(0);
+            }
+
+            final Path scenarioPath = Paths.get(cmd.getOptionValue(SCENARIO_OPT));
+            final Path inputPath = Paths.get(cmd.getOptionValue(INPUT_OPT));
+
+            final Path agentConfiguration = cmd.hasOption(AGENT_CONFIGURATION_OPT)
+                    ? Paths.get(cmd.getOptionValue(AGENT_CONFIGURATION_OPT))
+                    : inputPath.resolve("agent-configuration.json");
+            if (Files.exists(agentConfiguration)) {
+                AgentConfiguration.readFromFile(agentConfiguration);
+            }
+
+            // the algorithms read some of these values into static
+            // variables, so they must be set before any algorithm class is
+            // loaded
+            final Duration apRoundDuration = cmd.hasOption(AP_ROUND_DURATION_OPT)
+                    ? parseMillis(cmd.getOptionValue(AP_ROUND_DURATION_OPT))
+                    : DEFAULT_AP_ROUND_DURATION;
+            final Duration dcopRoundDuration = cmd.hasOption(DCOP_ROUND_DURATION_OPT)
+                    ? SimulationRunner.parseDuration(cmd.getOptionValue(DCOP_ROUND_DURATION_OPT))
+                    : DEFAULT_DCOP_ROUND_DURATION;
+            if (null == apRoundDuration || null == dcopRoundDuration) {
+                LOGGER.error("Unable to parse the round durations");
+                printUsage(options);
+                System.exit(1);
+            }
+            AgentConfiguration.getInstance().setApRoundDuration(apRoundDuration);
+            if (cmd.hasOption(WARM_START_OPT)) {
+                AgentConfiguration.getInstance().setDcopWarmStart(true);
+            }
+            AgentConfiguration.getInstance().setDcopRoundDuration(dcopRoundDuration);
+
+            final List<DcopAlgorithm> algorithms = new LinkedList<>();
+            if (cmd.hasOption(ALGORITHMS_OPT)) {
+                for (final String str : cmd.getOptionValue(ALGORITHMS_OPT).split(",")) {
+                    try {
+                        algorithms.add(DcopAlgorithm.valueOf(str.trim()));
+                    } catch (final IllegalArgumentException e) {
+                        LOGGER.error("Unknown DCOP algorithm '{}', known algorithms are {}", str,
+                                Arrays.toString(DcopAlgorithm.values()));
+                        System.exit(1);
+                    }
+                }
+            } else {
+                algorithms.addAll(SUPPORTED_ALGORITHMS);
+            }
+
+            final int maxRounds;
+            if (cmd.hasOption(ROUNDS_OPT)) {
+                try {
+                    maxRounds = Integer.parseInt(cmd.getOptionValue(ROUNDS_OPT));
+                } catch (final NumberFormatException e) {
+                    LOGGER.error("'{}' could not be parsed as an integer", cmd.getOptionValue(ROUNDS_OPT));
+                    printUsage(options);
+                    System.exit(1);
+                    return;
+                }
+            } else {
+                maxRounds = Integer.MAX_VALUE;
+            }
+
+            AppMgrUtils.loadApplicationManager(scenarioPath.resolve(Simulation.SERVICE_CONFIGURATIONS_FILENAME),
+                    scenarioPath.resolve(Simulation.SERVICE_DEPENDENCIES_FILENAME));
+
+            final DcopReplayBenchmark benchmark = new DcopReplayBenchmark(loadSummaries(inputPath),
+                    AppMgrUtils.getApplicationManager());
+
+            final List<RoundResult> results = benchmark.replay(algorithms, maxRounds);
+
+            logResults(results);
+
+            if (cmd.hasOption(OUTPUT_OPT)) {
+                writeResults(Paths.get(cmd.getOptionValue(OUTPUT_OPT)), results);
+            }
+
+            System.exit(0);
+        } catch (final ParseException e) {
+            LOGGER.error("Error parsing the command line: {}", e.getMessage());
+            printUsage(options);
+            System.exit(1);
+        } catch (final IOException e) {
+            LOGGER.error("Error reading or writing data: {}", e.getMessage(), e);
+            System.exit(1);
+        }
+    }
+
+    private static Duration parseMillis(final String str) {
+        try {
+            return Duration.ofMillis(Long.parseLong(str));
+        } catch (final NumberFormatException e) {
+            return SimulationRunner.parseDuration(str);
+        }
+    }
+
+    /**
+     * Find all of the {@link EstimationWindow#LONG} summaries in the output
+     * of a simulation. If multiple nodes in a region wrote a summary for the
+     * same time, the last one read is used.
+     *
+     * @param simulationOutput
+     *            the output directory of a simulation, contains a directory
+     *            per node and under that a directory per time
+     * @return region -> time -> summary
+     * @throws IOException
+     *             if there is an error reading the files
+     */
+    @Nonnull
+    public static Map<RegionIdentifier, SortedMap<Long, ResourceSummary>> loadSummaries(
+            @Nonnull final Path simulationOutput) throws IOException {
+        final ObjectMapper mapper = JsonUtils.getStandardMapObjectMapper();
+        final Map<RegionIdentifier, SortedMap<Long, ResourceSummary>> summaries = new HashMap<>();
+
+        try (Stream<Path> nodeDirs = Files.list(simulationOutput)) {
+            for (final Path nodeDir : (Iterable<Path>) nodeDirs.filter(Files::isDirectory)::iterator) {
+                try (Stream<Path> timeDirs = Files.list(nodeDir)) {
+                    for (final Path timeDir : (Iterable<Path>) timeDirs.filter(Files::isDirectory)::iterator) {
+                        final Path summaryFile = timeDir.resolve(SUMMARY_FILENAME);
+                        if (!Files.exists(summaryFile)) {
+                            continue;
+                        }
+
+                        final long time;
+                        try {
+                            time = Long.parseLong(timeDir.getFileName().toString());
+                        } catch (final NumberFormatException e) {
+                            LOGGER.debug("Skipping {}, not a time directory", timeDir);
+                            continue;
+                        }
+
+                        try (BufferedReader reader = Files.newBufferedReader(summaryFile)) {
+                            final ResourceSummary summary = mapper.readValue(reader, ResourceSummary.class);
+                            summaries.computeIfAbsent(summary.getRegion(), k -> new TreeMap<>()).put(time, summary);
+                        }
+                    }
+                }
+            }
+        }
+
+        LOGGER.info("Loaded summaries for regions {}", summaries.keySet());
+        return summaries;
+    }
+
+    private final Map<RegionIdentifier, SortedMap<Long, ResourceSummary>> summaries;
+    private final ApplicationManagerApi applicationManager;
+    private final RegionalTopology topology;
+
+    /**
+     *
+     * @param summaries
+     *            region -> time -> summary, see
+     *            {@link #loadSummaries(Path)}
+     * @param applicationManager
+     *            source of information about the services
+     */
+    public DcopReplayBenchmark(@Nonnull final Map<RegionIdentifier, SortedMap<Long, ResourceSummary>> summaries,
+            @Nonnull final ApplicationManagerApi applicationManager) {
+        this.summaries = Objects.requireNonNull(summaries);
+        this.applicationManager = Objects.requireNonNull(applicationManager);
+        this.topology = computeTopology(summaries);
+    }
+
+    /**
+     * The regional topology isn't dumped, so infer it from the network
+     * capacity in the summaries. A region has capacity to each of its
+     * neighbors.
+     */
+    private static RegionalTopology computeTopology(
+            final Map<RegionIdentifier, SortedMap<Long, ResourceSummary>> summaries) {
+        final Graph<RegionIdentifier, RegionalLink> graph = new SparseMultigraph<>();
+        summaries.keySet().forEach(graph::addVertex);
+
+        summaries.forEach((region, regionSummaries) -> {
+            regionSummaries.values().forEach(summary -> {
+                summary.getNetworkCapacity().keySet().forEach(neighbor -> {
+                    if (!region.equals(neighbor) && summaries.containsKey(neighbor)) {
+                        final RegionalLink link = new RegionalLink(region, neighbor);
+                        if (!graph.containsEdge(link)) {
+                            graph.addEdge(link, region, neighbor);
+                        }
+                    }
+                });
+            });
+        });
+        return new RegionalTopology(graph);
+    }
+
+    /**
+     * The times to replay. Starts at the first time where all regions have a
+     * summary.
+     */
+    private SortedSet<Long> computeRoundTimes() {
+        final long start = summaries.values().stream().mapToLong(SortedMap::firstKey).max()
+                .orElse(Long.MAX_VALUE);
+
+        final SortedSet<Long> times = new TreeSet<>();
+        summaries.values().forEach(s -> times.addAll(s.tailMap(start).keySet()));
+        return times;
+    }
+
+    /**
+     * Replay the summaries through the specified algorithm.
+     *
+     * @param algorithm
+     *            the algorithm to run
+     * @param maxRounds
+     *            the maximum number of rounds to execute
+     * @return one result per round
+     * @throws IllegalArgumentException
+     *             if the algorithm is not in {@link #SUPPORTED_ALGORITHMS}
+     */
+    @Nonnull
+    public List<RoundResult> replay(@Nonnull final DcopAlgorithm algorithm, final int maxRounds) {
+        if (!SUPPORTED_ALGORITHMS.contains(algorithm)) {
+            throw new IllegalArgumentException("DCOP algorithm " + algorithm + " cannot be replayed");
+        }
+
+        // the copy of the shared information depends on the configured
+        // algorithm
+        AgentConfiguration.getInstance().setDcopAlgorithm(algorithm);
+
+        final Map<RegionIdentifier, ReplayDcopInfoProvider> providers = createProviders();
+
+        // algorithm objects kept between rounds for a warm start
+        final Map<RegionIdentifier, FinalRCDiffAlgorithm> warmAlgorithms = new ConcurrentHashMap<>();
+
+        final List<RoundResult> results = new LinkedList<>();
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, providers.size()));
+        try {
+            int round = 0;
+            for (final long time : computeRoundTimes()) {
+                if (round >= maxRounds) {
+                    break;
+                }
+
+                final Map<RegionIdentifier, ResourceSummary> roundSummaries = new HashMap<>();
+                summaries.forEach((region, regionSummaries) -> {
+                    roundSummaries.put(region, regionSummaries.get(regionSummaries.headMap(time + 1).lastKey()));
+                });
+
+                final RoundResult result = executeRound(algorithm, round, time, executor, providers, roundSummaries,
+                        warmAlgorithms);
+                LOGGER.info("{}", result);
+                results.add(result);
+
+                ++round;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return results;
+    }
+
+    private Map<RegionIdentifier, ReplayDcopInfoProvider> createProviders() {
+        final Map<RegionIdentifier, ImmutableDcopSharedInformation> allSharedInformation = new ConcurrentHashMap<>();
+        final Map<RegionIdentifier, ReplayDcopInfoProvider> providers = new HashMap<>();
+        summaries.forEach((region, regionSummaries) -> {
+            final RegionPlan initialPlan = new RegionPlan(region, ImmutableMap.of());
+            providers.put(region, new ReplayDcopInfoProvider(region, allSharedInformation, topology, initialPlan));
+
+            // match the controller, which shares empty information on
+            // startup
+            allSharedInformation.put(region, new ImmutableDcopSharedInformation(new DcopSharedInformation()));
+        });
+        return providers;
+    }
+
+    /**
+     * Create the providers and the thread pool for timing single rounds, see
+     * {@link FirstRound}.
+     *
+     * @param algorithm
+     *            the algorithm to run
+     * @return the first round of all regions, must be closed to stop the
+     *         threads
+     * @throws IllegalArgumentException
+     *             if the algorithm is not in {@link #SUPPORTED_ALGORITHMS}
+     */
+    @Nonnull
+    public FirstRound firstRound(@Nonnull final DcopAlgorithm algorithm) {
+        if (!SUPPORTED_ALGORITHMS.contains(algorithm)) {
+            throw new IllegalArgumentException("DCOP algorithm " + algorithm + " cannot be replayed");
+        }
+        AgentConfiguration.getInstance().setDcopAlgorithm(algorithm);
+        return new FirstRound(algorithm);
+    }
+
+    /**
+     * Runs the first round that all regions have a summary for each time that
+     * {@link #run()} is called. The providers, the thread pool and the warm
+     * start state are created once and kept between runs, like the rounds of
+     * {@link DcopReplayBenchmark#replay(DcopAlgorithm, int)}. Nothing is
+     * logged and the plans are not evaluated, so the time of {@link #run()}
+     * is the time that the algorithm takes.
+     */
+    public final class FirstRound implements AutoCloseable {
+        private final DcopAlgorithm algorithm;
+        private final Map<RegionIdentifier, ReplayDcopInfoProvider> providers = createProviders();
+        private final Map<RegionIdentifier, FinalRCDiffAlgorithm> warmAlgorithms = new ConcurrentHashMap<>();
+        private final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, providers.size()));
+        private final Map<RegionIdentifier, ResourceSummary> roundSummaries = new HashMap<>();
+        private final ImmutableMap<ServiceIdentifier<?>, TotalDemand> totalDemand;
+        private int round = 0;
+
+        private FirstRound(final DcopAlgorithm algorithm) {
+            this.algorithm = algorithm;
+
+            final SortedSet<Long> times = computeRoundTimes();
+            if (!times.isEmpty()) {
+                final long time = times.first();
+                summaries.forEach((region, regionSummaries) -> {
+                    roundSummaries.put(region, regionSummaries.get(regionSummaries.headMap(time + 1).lastKey()));
+                });
+            }
+            totalDemand = computeTotalDemand(roundSummaries.values());
+        }
+
+        /**
+         * Run the round in every region.
+         *
+         * @return region -> plan, regions without a plan are missing
+         */
+        @Nonnull
+        public Map<RegionIdentifier, RegionPlan> run() {
+            return computePlans(algorithm, round++, executor, providers, roundSummaries, totalDemand,
+                    warmAlgorithms);
+        }
+
+        @Override
+        public void close() {
+            executor.shutdownNow();
+        }
+    }
+
+    private RoundResult executeRound(final DcopAlgorithm algorithm,
+            final int round,
+            final long time,
+            final ExecutorService executor,
+            final Map<RegionIdentifier, ReplayDcopInfoProvider> providers,
+            final Map<RegionIdentifier, ResourceSummary> roundSummaries,
+            final Map<RegionIdentifier, FinalRCDiffAlgorithm> warmAlgorithms) {
+        final ImmutableMap<ServiceIdentifier<?>, TotalDemand> totalDemand = computeTotalDemand(
+                roundSummaries.values());
+
+        final long start = System.nanoTime();
+        final Map<RegionIdentifier, RegionPlan> plans = computePlans(algorithm, round, executor, providers,
+                roundSummaries, totalDemand, warmAlgorithms);
+        final long wallTime = System.nanoTime() - start;
+
+        final int iterations = providers.values().stream().mapToInt(ReplayDcopInfoProvider::getDistinctShareCount)
+                .max().orElse(0);
+        final long messageBytes = providers.values().stream().mapToLong(ReplayDcopInfoProvider::getMessageBytes)
+                .sum();
+
+        final double[] quality = evaluatePlans(roundSummaries, plans);
+
+        return new RoundResult(algorithm, round, time, Duration.ofNanos(wallTime), iterations, messageBytes,
+                quality[0], quality[1], quality[2]);
+    }
+
+    /**
+     * Run the algorithm in all regions in parallel and publish the plans.
+     *
+     * @return region -> plan, regions without a plan are missing
+     */
+    private Map<RegionIdentifier, RegionPlan> computePlans(final DcopAlgorithm algorithm,
+            final int round,
+            final ExecutorService executor,
+            final Map<RegionIdentifier, ReplayDcopInfoProvider> providers,
+            final Map<RegionIdentifier, ResourceSummary> roundSummaries,
+            final ImmutableMap<ServiceIdentifier<?>, TotalDemand> totalDemand,
+            final Map<RegionIdentifier, FinalRCDiffAlgorithm> warmAlgorithms) {
+        providers.forEach((region, provider) -> {
+            provider.startRound(roundSummaries.get(region), totalDemand);
+        });
+
+        final Map<RegionIdentifier, Future<RegionPlan>> futures = new HashMap<>();
+        providers.forEach((region, provider) -> {
+            futures.put(region, executor.submit(() -> computePlan(algorithm, region, provider, warmAlgorithms)));
+        });
+
+        final Map<RegionIdentifier, RegionPlan> plans = new HashMap<>();
+        futures.forEach((region, future) -> {
+            try {
+                final RegionPlan plan = future.get();
+                if (null != plan) {
+                    providers.get(region).publishDcopPlan(plan);
+                    plans.put(region, plan);
+                } else {
+                    LOGGER.warn("{} produced a null plan for region {} in round {}", algorithm, region, round);
+                }
+            } catch (final InterruptedException e) {
+                LOGGER.warn("Interrupted waiting for the plan for region {}", region, e);
+            } catch (final ExecutionException e) {
+                LOGGER.error("Error computing the plan for region {} in round {}", region, round, e.getCause());
+            }
+        });
+        return plans;
+    }
+
+    private RegionPlan computePlan(final DcopAlgorithm algorithm,
+            final RegionIdentifier region,
+            final ReplayDcopInfoProvider provider,
+            final Map<RegionIdentifier, FinalRCDiffAlgorithm> warmAlgorithms) {
+        final ResourceSummary summary = provider.getDcopResourceSummary();
+
+        switch (algorithm) {
+        case DISTRIBUTED_ROUTING_DIFFUSION:
+            return new RdiffAlgorithm(region, provider, applicationManager, summary, topology).run();
+        case DISTRIBUTED_CONSTRAINT_DIFFUSION:
+            return new CdiffAlgorithm(region, provider, applicationManager).run();
+        case ASYNCHRONOUS_CDIFF:
+            return new ACdiffAlgorithm(region, provider, applicationManager).run();
+        case RC_DIFF:
+            return new RCdiffAlgorithm(region, provider, applicationManager).run();
+        case MODULAR_RCDIFF:
+            return new ModularRCdiffAlgorithm(region, provider, applicationManager).run();
+        case MODULAR_ACDIFF:
+            return new ModularACdiffAlgorithm(region, provider, applicationManager).run();
+        case FINAL_RCDIFF:
+            if (AgentConfiguration.getInstance().getDcopWarmStart()) {
+                final FinalRCDiffAlgorithm warm = warmAlgorithms.get(region);
+                if (null != warm) {
+                    warm.prepareWarmStart(summary, topology);
+                    return warm.run();
+                } else {
+                    final FinalRCDiffAlgorithm cold = new FinalRCDiffAlgorithm(region, provider, applicationManager,
+                            summary, topology);
+                    warmAlgorithms.put(region, cold);
+                    return cold.run();
+                }
+            } else {
+                return new FinalRCDiffAlgorithm(region, provider, applicationManager, summary, topology).run();
+            }
+        case DEFAULT_PLAN:
+            return new DefaultAlgorithm(region, provider, applicationManager).run();
+        default:
+            throw new IllegalArgumentException("DCOP algorithm " + algorithm + " cannot be replayed");
+        }
+    }
+
+    private static ImmutableMap<ServiceIdentifier<?>, TotalDemand> computeTotalDemand(
+            final Iterable<ResourceSummary> summaries) {
+        final Map<ServiceIdentifier<?>, List<TotalDemand>> demands = new HashMap<>();
+        summaries.forEach(summary -> {
+            TotalDemand.fromSummary(summary).forEach((service, demand) -> {
+                demands.computeIfAbsent(service, k -> new LinkedList<>()).add(demand);
+            });
+        });
+
+        final ImmutableMap.Builder<ServiceIdentifier<?>, TotalDemand> total = ImmutableMap.builder();
+        demands.forEach((service, serviceDemands) -> {
+            total.put(service, TotalDemand.sumAllTotalDemand(serviceDemands));
+        });
+        return total.build();
+    }
+
+    /**
+     * Compute the first-hop plan quality.
+     *
+     * @return demand, served load, overflow
+     */
+    private static double[] evaluatePlans(final Map<RegionIdentifier, ResourceSummary> summaries,
+            final Map<RegionIdentifier, RegionPlan> plans) {
+        final Map<RegionIdentifier, Double> load = new HashMap<>();
+        double totalDemand = 0;
+
+        for (final Map.Entry<RegionIdentifier, ResourceSummary> entry : summaries.entrySet()) {
+            final RegionIdentifier region = entry.getKey();
+            final ResourceSummary summary = entry.getValue();
+            final RegionPlan plan = plans.get(region);
+
+            for (final Map.Entry<ServiceIdentifier<?>, ImmutableMap<RegionIdentifier, ImmutableMap<NodeAttribute, Double>>> serviceEntry : summary
+                    .getServerDemand().entrySet()) {
+                final double demand = serviceEntry.getValue().values().stream()
+                        .mapToDouble(m -> m.getOrDefault(MapUtils.COMPUTE_ATTRIBUTE, 0D)).sum();
+                totalDemand += demand;
+
+                final ImmutableMap<RegionIdentifier, Double> servicePlan = null == plan ? null
+                        : plan.getPlan().get(serviceEntry.getKey());
+                final double weightSum = null == servicePlan ? 0
+                        : servicePlan.values().stream().mapToDouble(Double::doubleValue).sum();
+                if (weightSum <= 0) {
+                    load.merge(region, demand, Double::sum);
+                } else {
+                    servicePlan.forEach((dest, weight) -> {
+                        load.merge(dest, demand * weight / weightSum, Double::sum);
+                    });
+                }
+            }
+        }
+
+        double overflow = 0;
+        for (final Map.Entry<RegionIdentifier, Double> entry : load.entrySet()) {
+            final ResourceSummary summary = summaries.get(entry.getKey());
+            final double capacity = null == summary ? 0
+                    : summary.getServerCapacity().getOrDefault(MapUtils.COMPUTE_ATTRIBUTE, 0D);
+            overflow += Math.max(0, entry.getValue() - capacity);
+        }
+
+        return new double[] { totalDemand, totalDemand - overflow, overflow };
+    }
+
+    private static void logResults(final List<RoundResult> results) {
+        final Map<DcopAlgorithm, List<RoundResult>> byAlgorithm = results.stream()
+                .collect(Collectors.groupingBy(RoundResult::getAlgorithm, TreeMap::new, Collectors.toList()));
+
+        byAlgorithm.forEach((algorithm, algorithmResults) -> {
+            final double meanWallMs = algorithmResults.stream().mapToLong(r -> r.getWallTime().toMillis()).average()
+                    .orElse(0);
+            final double meanIterations = algorithmResults.stream().mapToInt(RoundResult::getIterations).average()
+                    .orElse(0);
+            final long bytes = algorithmResults.stream().mapToLong(RoundResult::getMessageBytes).sum();
+            final double overflow = algorithmResults.stream().mapToDouble(RoundResult::getOverflow).sum();
+            final double served = algorithmResults.stream().mapToDouble(RoundResult::getServedLoad).sum();
+
+            LOGGER.info(
+                    "{}: rounds: {} mean wall time: {} ms mean iterations: {} message bytes: {} served load: {} overflow: {}",
+                    algorithm, algorithmResults.size(), meanWallMs, meanIterations, bytes, served, overflow);
+        });
+    }
+
+    /**
+     * Write the results as CSV.
+     *
+     * @param path
+     *            the file to write to
+     * @param results
+     *            the results to write
+     * @throws IOException
+     *             if there is an error writing the file
+     */
+    public static void writeResults(@Nonnull final Path path, @Nonnull final List<RoundResult> results)
+            throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write("algorithm,round,time,wall_time_ms,iterations,message_bytes,demand,served_load,overflow");
+            writer.newLine();
+            for (final RoundResult result : results) {
+                writer.write(String.format("%s,%d,%d,%d,%d,%d,%f,%f,%f", result.getAlgorithm(), result.getRound(),
+                        result.getTime(), result.getWallTime().toMillis(), result.getIterations(),
+                        result.getMessageBytes(), result.getDemand(), result.getServedLoad(), result.getOverflow()));
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Result of replaying a single DCOP round.
+     */
+    public static final class RoundResult {
+        private final DcopAlgorithm algorithm;
+        private final int round;
+        private final long time;
+        private final Duration wallTime;
+        private final int iterations;
+        private final long messageBytes;
+        private final double demand;
+        private final double servedLoad;
+        private final double overflow;
+
+        /**
+         * @param algorithm
+         *            see {@link #getAlgorithm()}
+         * @param round
+         *            see {@link #getRound()}
+         * @param time
+         *            see {@link #getTime()}
+         * @param wallTime
+         *            see {@link #getWallTime()}
+         * @param iterations
+         *            see {@link #getIterations()}
+         * @param messageBytes
+         *            see {@link #getMessageBytes()}
+         * @param demand
+         *            see {@link #getDemand()}
+         * @param servedLoad
+         *            see {@link #getServedLoad()}
+         * @param overflow
+         *            see {@link #getOverflow()}
+         */
+        public RoundResult(final DcopAlgorithm algorithm,
+                final int round,
+                final long time,
+                final Duration wallTime,
+                final int iterations,
+                final long messageBytes,
+                final double demand,
+                final double servedLoad,
+                final double overflow) {
+            this.algorithm = algorithm;
+            this.round = round;
+            this.time = time;
+            this.wallTime = wallTime;
+            this.iterations = iterations;
+            this.messageBytes = messageBytes;
+            this.demand = demand;
+            this.servedLoad = servedLoad;
+            this.overflow = overflow;
+        }
+
+        /**
+         * @return the algorithm that was run
+         */
+        public DcopAlgorithm getAlgorithm() {
+            return algorithm;
+        }
+
+        /**
+         * @return the round number, starting at 0
+         */
+        public int getRound() {
+            return round;
+        }
+
+        /**
+         * @return the simulation time of the summaries used in the round
+         */
+        public long getTime() {
+            return time;
+        }
+
+        /**
+         * @return how long it took all regions to compute a plan
+         */
+        public Duration getWallTime() {
+            return wallTime;
+        }
+
+        /**
+         * @return the maximum number of distinct shared information updates
+         *         made by a region in the round
+         */
+        public int getIterations() {
+            return iterations;
+        }
+
+        /**
+         * @return serialized size of all distinct shared information updates
+         *         in the round
+         */
+        public long getMessageBytes() {
+            return messageBytes;
+        }
+
+        /**
+         * @return the total demand across all regions
+         */
+        public double getDemand() {
+            return demand;
+        }
+
+        /**
+         * @return the demand that fits within capacity after applying the
+         *         plans
+         */
+        public double getServedLoad() {
+            return servedLoad;
+        }
+
+        /**
+         * @return the demand above capacity after applying the plans
+         */
+        public double getOverflow() {
+            return overflow;
+        }
+
+        @Override
+        public String toString() {
+            return algorithm + " round " + round + " time " + time + " wall time " + wallTime.toMillis()
+                    + " ms iterations " + iterations + " message bytes " + messageBytes + " demand " + demand
+                    + " served " + servedLoad + " overflow " + overflow;
+        }
+    }
+
+    /**
+     * Replay the summaries through each of the algorithms in turn.
+     *
+     * @param algorithms
+     *            the algorithms to run
+     * @param maxRounds
+     *            maximum number of rounds per algorithm
+     * @return the results for all algorithms
+     */
+    @Nonnull
+    public List<RoundResult> replay(@Nonnull final Iterable<DcopAlgorithm> algorithms, final int maxRounds) {
+        final List<RoundResult> results = new ArrayList<>();
+        algorithms.forEach(a -> results.addAll(replay(a, maxRounds)));
+        return results;
+    }
+
+}
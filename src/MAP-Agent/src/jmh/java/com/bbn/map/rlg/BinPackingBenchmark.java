@@ -0,0 +1,210 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.rlg;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bbn.map.utils.LogExceptionHandler;
+import com.bbn.protelis.networkresourcemanagement.DnsNameIdentifier;
+import com.bbn.protelis.networkresourcemanagement.LoadBalancerPlanBuilder;
+import com.bbn.protelis.networkresourcemanagement.ServiceIdentifier;
+import com.bbn.protelis.networkresourcemanagement.StringRegionIdentifier;
+import com.bbn.protelis.networkresourcemanagement.StringServiceIdentifier;
+
+/**
+ * Measure how {@link BinPacking} scales with the number of NCPs in a region.
+ * For each region size the same sequence of best fit additions, first fit
+ * additions, container shutdowns and plan construction that RLG performs is
+ * timed and the time per operation is logged.
+ */
+public final class BinPackingBenchmark {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BinPackingBenchmark.class);
+
+    private static final String SIZES_OPT = "sizes";
+    private static final String REPETITIONS_OPT = "repetitions";
+    private static final String SEED_OPT = "seed";
+    private static final String HELP_OPT = "help";
+
+    private static final String DEFAULT_SIZES = "50,500,5000";
+    private static final int DEFAULT_REPETITIONS = 5;
+    private static final long DEFAULT_SEED = 0;
+
+    private static final double[] CAPACITIES = { 4, 8, 16 };
+    private static final int BEST_FIT_PER_NODE = 2;
+    private static final int MAX_SERVICE_LOAD = 3;
+    private static final double NANOS_PER_MICRO = 1E3;
+
+    private BinPackingBenchmark() {
+    }
+
+    /**
+     * Timing for one region size.
+     */
+    private static final class Result {
+        private long bestFitNanos = 0;
+        private int bestFitCount = 0;
+        private long firstFitNanos = 0;
+        private int firstFitCount = 0;
+        private long shutdownNanos = 0;
+        private int shutdownCount = 0;
+        private long planNanos = 0;
+        private int planCount = 0;
+    }
+
+    /**
+     * @param args
+     *            see the help output
+     */
+    public static void main(final String[] args) {
+        LogExceptionHandler.registerExceptionHandler();
+
+        final Options options = new Options();
+        options.addOption("n", SIZES_OPT, true,
+                "Comma separated list of the number of NCPs in the region (default: " + DEFAULT_SIZES + ")");
+        options.addOption("r", REPETITIONS_OPT, true,
+                "Number of times to repeat each size, the first repetition is used to warm up (default: "
+                        + DEFAULT_REPETITIONS + ")");
+        options.addOption(null, SEED_OPT, true, "Random seed (default: " + DEFAULT_SEED + ")");
+        options.addOption("h", HELP_OPT, false, "Show the help");
+
+        final CommandLineParser parser = new DefaultParser();
+        try {
+            final CommandLine cmd = parser.parse(options, args);
+
+            if (cmd.hasOption(HELP_OPT)) {
+                printUsage(options);
+                System.exit(0);
+            }
+
+            final List<Integer> sizes = new ArrayList<>();
+            for (final String str : cmd.getOptionValue(SIZES_OPT, DEFAULT_SIZES).split(",")) {
+                sizes.add(Integer.parseInt(str.trim()));
+            }
+            final int repetitions = cmd.hasOption(REPETITIONS_OPT)
+                    ? Integer.parseInt(cmd.getOptionValue(REPETITIONS_OPT))
+                    : DEFAULT_REPETITIONS;
+            final long seed = cmd.hasOption(SEED_OPT) ? Long.parseLong(cmd.getOptionValue(SEED_OPT)) : DEFAULT_SEED;
+
+            for (final int size : sizes) {
+                final Result result = new Result();
+                for (int rep = 0; rep < repetitions; ++rep) {
+                    // the first repetition warms up the JIT
+                    run(size, new Random(seed + rep), rep == 0 ? new Result() : result);
+                }
+                logResult(size, result);
+            }
+
+            System.exit(0);
+        } catch (final ParseException e) {
+            LOGGER.error("An error occurred parsing the command line: " + e.getMessage());
+            printUsage(options);
+            System.exit(1);
+        } catch (final NumberFormatException e) {
+            LOGGER.error("Unable to parse a number on the command line: " + e.getMessage());
+            printUsage(options);
+            System.exit(1);
+        }
+    }
+
+    private static void printUsage(final Options options) {
+        new HelpFormatter().printHelp(BinPackingBenchmark.class.getSimpleName(), options);
+    }
+
+    private static void run(final int numNodes, final Random random, final Result result) {
+        final BinPacking bins = new BinPacking();
+        for (int i = 0; i < numNodes; ++i) {
+            bins.addServer(new Server(new DnsNameIdentifier("node" + i),
+                    CAPACITIES[random.nextInt(CAPACITIES.length)]));
+        }
+
+        final List<ServiceIdentifier<?>> services = new ArrayList<>();
+        final int numBestFit = numNodes * BEST_FIT_PER_NODE;
+        long start = System.nanoTime();
+        for (int i = 0; i < numBestFit; ++i) {
+            final ServiceIdentifier<?> service = new StringServiceIdentifier("service" + i);
+            bins.addBestFit(service, 1 + random.nextInt(MAX_SERVICE_LOAD));
+            services.add(service);
+        }
+        result.bestFitNanos += System.nanoTime() - start;
+        result.bestFitCount += numBestFit;
+
+        final int numFirstFit = numNodes / 2;
+        start = System.nanoTime();
+        for (int i = 0; i < numFirstFit; ++i) {
+            // add a second container for existing services
+            bins.addFirstFit(services.get(i), 1);
+        }
+        result.firstFitNanos += System.nanoTime() - start;
+        result.firstFitCount += numFirstFit;
+
+        final int numShutdown = numNodes / 4;
+        start = System.nanoTime();
+        for (int i = 0; i < numShutdown; ++i) {
+            bins.shutdownContainer(new DnsNameIdentifier("node" + random.nextInt(numNodes)),
+                    services.get(random.nextInt(numFirstFit)));
+        }
+        result.shutdownNanos += System.nanoTime() - start;
+        result.shutdownCount += numShutdown;
+
+        start = System.nanoTime();
+        bins.constructRLGPlan(new LoadBalancerPlanBuilder(new StringRegionIdentifier("A")));
+        bins.remainingCapacity();
+        result.planNanos += System.nanoTime() - start;
+        ++result.planCount;
+    }
+
+    private static double microsPerOperation(final long nanos, final int count) {
+        return count > 0 ? nanos / NANOS_PER_MICRO / count : 0;
+    }
+
+    private static void logResult(final int numNodes, final Result result) {
+        LOGGER.info(String.format(
+                "%d NCPs: best fit %.2f us/op, first fit %.2f us/op, shutdown %.2f us/op, plan construction %.2f us",
+                numNodes, microsPerOperation(result.bestFitNanos, result.bestFitCount),
+                microsPerOperation(result.firstFitNanos, result.firstFitCount),
+                microsPerOperation(result.shutdownNanos, result.shutdownCount),
+                microsPerOperation(result.planNanos, result.planCount)));
+    }
+
+}
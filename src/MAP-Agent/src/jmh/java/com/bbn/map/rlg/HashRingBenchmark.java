@@ -0,0 +1,184 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.rlg;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bbn.map.utils.LogExceptionHandler;
+import com.bbn.protelis.networkresourcemanagement.DnsNameIdentifier;
+import com.bbn.protelis.networkresourcemanagement.NodeIdentifier;
+
+/**
+ * Compare {@link HashRing} against {@link ConsistentHash}. For each
+ * implementation the spread of keys across the servers and the lookup
+ * throughput are logged. The skew is the number of keys on the most loaded
+ * server divided by the mean number of keys per server, 1 is a perfectly even
+ * spread.
+ */
+public final class HashRingBenchmark {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HashRingBenchmark.class);
+
+    private static final String SERVERS_OPT = "servers";
+    private static final String KEYS_OPT = "keys";
+    private static final String VIRTUAL_NODES_OPT = "virtualNodes";
+    private static final String HELP_OPT = "help";
+
+    private static final int DEFAULT_SERVERS = 50;
+    private static final int DEFAULT_KEYS = 100_000;
+    private static final String DEFAULT_VIRTUAL_NODES = "1,16,64,256";
+
+    private static final double SERVER_CAPACITY = 10;
+    private static final int LOOKUP_ROUNDS = 5;
+    private static final double NANOS_PER_SECOND = 1E9;
+
+    private HashRingBenchmark() {
+    }
+
+    /**
+     * @param args
+     *            see the help output
+     */
+    public static void main(final String[] args) {
+        LogExceptionHandler.registerExceptionHandler();
+
+        final Options options = new Options();
+        options.addOption("s", SERVERS_OPT, true, "Number of servers (default: " + DEFAULT_SERVERS + ")");
+        options.addOption("k", KEYS_OPT, true, "Number of keys to look up (default: " + DEFAULT_KEYS + ")");
+        options.addOption("v", VIRTUAL_NODES_OPT, true,
+                "Comma separated list of virtual nodes per server to measure for "
+                        + HashRing.class.getSimpleName() + " (default: " + DEFAULT_VIRTUAL_NODES + ")");
+        options.addOption("h", HELP_OPT, false, "Show the help");
+
+        final CommandLineParser parser = new DefaultParser();
+        try {
+            final CommandLine cmd = parser.parse(options, args);
+
+            if (cmd.hasOption(HELP_OPT)) {
+                printUsage(options);
+                System.exit(0);
+            }
+
+            final int numServers = cmd.hasOption(SERVERS_OPT) ? Integer.parseInt(cmd.getOptionValue(SERVERS_OPT))
+                    : DEFAULT_SERVERS;
+            final int numKeys = cmd.hasOption(KEYS_OPT) ? Integer.parseInt(cmd.getOptionValue(KEYS_OPT))
+                    : DEFAULT_KEYS;
+
+            final List<Server> servers = new ArrayList<>(numServers);
+            for (int i = 0; i < numServers; ++i) {
+                servers.add(new Server(new DnsNameIdentifier("node" + i), SERVER_CAPACITY));
+            }
+            final List<String> keys = new ArrayList<>(numKeys);
+            for (int i = 0; i < numKeys; ++i) {
+                keys.add("service" + i);
+            }
+
+            final ConsistentHash legacy = new ConsistentHash(MessageDigest.getInstance("MD5"), 1, servers);
+            measure(ConsistentHash.class.getSimpleName(), servers, keys, legacy::get);
+
+            for (final String str : cmd.getOptionValue(VIRTUAL_NODES_OPT, DEFAULT_VIRTUAL_NODES).split(",")) {
+                final int virtualNodes = Integer.parseInt(str.trim());
+                final HashRing ring = new HashRing(virtualNodes, servers);
+                measure(HashRing.class.getSimpleName() + " with " + virtualNodes + " virtual nodes", servers, keys,
+                        ring::get);
+            }
+
+            System.exit(0);
+        } catch (final ParseException e) {
+            LOGGER.error("An error occurred parsing the command line: " + e.getMessage());
+            printUsage(options);
+            System.exit(1);
+        } catch (final NumberFormatException e) {
+            LOGGER.error("Unable to parse a number on the command line: " + e.getMessage());
+            printUsage(options);
+            System.exit(1);
+        } catch (final NoSuchAlgorithmException e) {
+            LOGGER.error("MD5 is not available, unable to create " + ConsistentHash.class.getSimpleName(), e);
+            System.exit(1);
+        }
+    }
+
+    private static void printUsage(final Options options) {
+        new HelpFormatter().printHelp(HashRingBenchmark.class.getSimpleName(), options);
+    }
+
+    private static void measure(final String label,
+            final Collection<Server> servers,
+            final List<String> keys,
+            final Function<Object, Server> lookup) {
+        final Map<NodeIdentifier, Integer> counts = new HashMap<>();
+        servers.forEach(server -> counts.put(server.getName(), 0));
+        keys.forEach(key -> counts.merge(lookup.apply(key).getName(), 1, Integer::sum));
+
+        final double mean = (double) keys.size() / servers.size();
+        final int max = counts.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+        final int min = counts.values().stream().mapToInt(Integer::intValue).min().orElse(0);
+        final double variance = counts.values().stream().mapToDouble(c -> (c - mean) * (c - mean)).sum()
+                / servers.size();
+
+        // the first round warms up the JIT
+        long elapsed = 0;
+        int lookups = 0;
+        for (int round = 0; round < LOOKUP_ROUNDS; ++round) {
+            final long start = System.nanoTime();
+            for (final String key : keys) {
+                lookup.apply(key);
+            }
+            if (round > 0) {
+                elapsed += System.nanoTime() - start;
+                lookups += keys.size();
+            }
+        }
+        final double lookupsPerSecond = elapsed > 0 ? lookups * NANOS_PER_SECOND / elapsed : 0;
+
+        LOGGER.info(String.format(
+                "%s: skew (max/mean) %.3f, min %d, max %d, coefficient of variation %.3f, %.0f lookups/s", label,
+                max / mean, min, max, Math.sqrt(variance) / mean, lookupsPerSecond));
+    }
+
+}
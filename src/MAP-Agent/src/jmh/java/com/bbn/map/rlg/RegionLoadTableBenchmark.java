@@ -0,0 +1,296 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.rlg;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bbn.map.utils.LogExceptionHandler;
+import com.bbn.map.utils.MapUtils;
+import com.bbn.protelis.networkresourcemanagement.ContainerResourceReport;
+import com.bbn.protelis.networkresourcemanagement.DnsNameIdentifier;
+import com.bbn.protelis.networkresourcemanagement.NodeAttribute;
+import com.bbn.protelis.networkresourcemanagement.NodeIdentifier;
+import com.bbn.protelis.networkresourcemanagement.ResourceReport;
+import com.bbn.protelis.networkresourcemanagement.ResourceReport.EstimationWindow;
+import com.bbn.protelis.networkresourcemanagement.ServiceIdentifier;
+import com.bbn.protelis.networkresourcemanagement.ServiceStatus;
+import com.bbn.protelis.networkresourcemanagement.StringServiceIdentifier;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Compare computing the per-round RLG load inputs with {@link RegionLoadTable}
+ * against walking the nested maps in the reports. Each round computes the
+ * load percentages, the containers per service, the load of each running
+ * container, the containers of each service ordered by load, the total
+ * load of each service and the bin packing inputs. The map walk is the computation that RLG used before
+ * {@link RegionLoadTable}.
+ */
+public final class RegionLoadTableBenchmark {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RegionLoadTableBenchmark.class);
+
+    private static final String SERVICES_OPT = "services";
+    private static final String NODES_OPT = "nodes";
+    private static final String CONTAINERS_OPT = "containers";
+    private static final String CLIENTS_OPT = "clients";
+    private static final String ROUNDS_OPT = "rounds";
+    private static final String SEED_OPT = "seed";
+    private static final String HELP_OPT = "help";
+
+    private static final String DEFAULT_SERVICES = "10,100,500";
+    private static final int DEFAULT_NODES = 50;
+    private static final int DEFAULT_CONTAINERS = 4;
+    private static final int DEFAULT_CLIENTS = 5;
+    private static final int DEFAULT_ROUNDS = 50;
+    private static final long DEFAULT_SEED = 0;
+
+    private static final NodeAttribute[] ATTRIBUTES = { NodeAttribute.TASK_CONTAINERS, NodeAttribute.CPU,
+            NodeAttribute.MEMORY };
+    private static final double NANOS_PER_MICRO = 1E3;
+
+    private RegionLoadTableBenchmark() {
+    }
+
+    /**
+     * @param args
+     *            see the help output
+     */
+    public static void main(final String[] args) {
+        LogExceptionHandler.registerExceptionHandler();
+
+        final Options options = new Options();
+        options.addOption("s", SERVICES_OPT, true,
+                "Comma separated list of the number of services in the region (default: " + DEFAULT_SERVICES + ")");
+        options.addOption("n", NODES_OPT, true, "Number of NCPs in the region (default: " + DEFAULT_NODES + ")");
+        options.addOption("c", CONTAINERS_OPT, true,
+                "Number of containers for each service (default: " + DEFAULT_CONTAINERS + ")");
+        options.addOption(null, CLIENTS_OPT, true,
+                "Number of client nodes that load each container (default: " + DEFAULT_CLIENTS + ")");
+        options.addOption("r", ROUNDS_OPT, true,
+                "Number of rounds to time, the same number of rounds is run first to warm up (default: "
+                        + DEFAULT_ROUNDS + ")");
+        options.addOption(null, SEED_OPT, true, "Random seed (default: " + DEFAULT_SEED + ")");
+        options.addOption("h", HELP_OPT, false, "Show the help");
+
+        final CommandLineParser parser = new DefaultParser();
+        try {
+            final CommandLine cmd = parser.parse(options, args);
+
+            if (cmd.hasOption(HELP_OPT)) {
+                printUsage(options);
+                System.exit(0);
+            }
+
+            final int numNodes = cmd.hasOption(NODES_OPT) ? Integer.parseInt(cmd.getOptionValue(NODES_OPT))
+                    : DEFAULT_NODES;
+            final int numContainers = cmd.hasOption(CONTAINERS_OPT)
+                    ? Integer.parseInt(cmd.getOptionValue(CONTAINERS_OPT))
+                    : DEFAULT_CONTAINERS;
+            final int numClients = cmd.hasOption(CLIENTS_OPT) ? Integer.parseInt(cmd.getOptionValue(CLIENTS_OPT))
+                    : DEFAULT_CLIENTS;
+            final int rounds = cmd.hasOption(ROUNDS_OPT) ? Integer.parseInt(cmd.getOptionValue(ROUNDS_OPT))
+                    : DEFAULT_ROUNDS;
+            final long seed = cmd.hasOption(SEED_OPT) ? Long.parseLong(cmd.getOptionValue(SEED_OPT)) : DEFAULT_SEED;
+
+            for (final String str : cmd.getOptionValue(SERVICES_OPT, DEFAULT_SERVICES).split(",")) {
+                final int numServices = Integer.parseInt(str.trim());
+                final Map<NodeIdentifier, ResourceReport> reports = createReports(new Random(seed), numServices,
+                        numNodes, numContainers, numClients);
+
+                // warm up both implementations before timing either
+                runMaps(reports, rounds);
+                runTable(reports, rounds);
+
+                final long mapNanos = runMaps(reports, rounds);
+                final long tableNanos = runTable(reports, rounds);
+
+                LOGGER.info(String.format(
+                        "%d services, %d NCPs, %d containers: nested maps %.1f us/round, table %.1f us/round, speedup %.2fx",
+                        numServices, numNodes, numServices * numContainers, mapNanos / NANOS_PER_MICRO / rounds,
+                        tableNanos / NANOS_PER_MICRO / rounds, tableNanos > 0 ? (double) mapNanos / tableNanos : 0));
+            }
+
+            System.exit(0);
+        } catch (final ParseException e) {
+            LOGGER.error("An error occurred parsing the command line: " + e.getMessage());
+            printUsage(options);
+            System.exit(1);
+        } catch (final NumberFormatException e) {
+            LOGGER.error("Unable to parse a number on the command line: " + e.getMessage());
+            printUsage(options);
+            System.exit(1);
+        }
+    }
+
+    private static void printUsage(final Options options) {
+        new HelpFormatter().printHelp(RegionLoadTableBenchmark.class.getSimpleName(), options);
+    }
+
+    private static Map<NodeIdentifier, ResourceReport> createReports(final Random random,
+            final int numServices,
+            final int numNodes,
+            final int numContainers,
+            final int numClients) {
+        final List<Map<NodeIdentifier, ContainerResourceReport>> nodeContainers = new ArrayList<>(numNodes);
+        for (int n = 0; n < numNodes; ++n) {
+            nodeContainers.add(new HashMap<>());
+        }
+
+        final ImmutableMap.Builder<NodeAttribute, Double> capacityBuilder = ImmutableMap.builder();
+        for (final NodeAttribute attr : ATTRIBUTES) {
+            capacityBuilder.put(attr, 1D);
+        }
+        final ImmutableMap<NodeAttribute, Double> containerCapacity = capacityBuilder.build();
+
+        int containerNumber = 0;
+        for (int s = 0; s < numServices; ++s) {
+            final ServiceIdentifier<?> service = new StringServiceIdentifier("service" + s);
+            for (int c = 0; c < numContainers; ++c) {
+                final NodeIdentifier containerId = new DnsNameIdentifier("container" + containerNumber++);
+
+                final ImmutableMap.Builder<NodeIdentifier, ImmutableMap<NodeAttribute, Double>> load = ImmutableMap
+                        .builder();
+                for (int client = 0; client < numClients; ++client) {
+                    final ImmutableMap.Builder<NodeAttribute, Double> clientLoad = ImmutableMap.builder();
+                    for (final NodeAttribute attr : ATTRIBUTES) {
+                        clientLoad.put(attr, random.nextDouble() / numClients);
+                    }
+                    load.put(new DnsNameIdentifier("client" + client), clientLoad.build());
+                }
+                final ImmutableMap<NodeIdentifier, ImmutableMap<NodeAttribute, Double>> containerLoad = load.build();
+
+                final ContainerResourceReport creport = new ContainerResourceReport(containerId, 0, service,
+                        ServiceStatus.RUNNING, EstimationWindow.SHORT, containerCapacity, containerLoad,
+                        containerLoad, 0);
+                nodeContainers.get(random.nextInt(numNodes)).put(containerId, creport);
+            }
+        }
+
+        final Map<NodeIdentifier, ResourceReport> reports = new HashMap<>();
+        for (int n = 0; n < numNodes; ++n) {
+            final NodeIdentifier node = new DnsNameIdentifier("node" + n);
+            final Map<NodeIdentifier, ContainerResourceReport> containers = nodeContainers.get(n);
+            reports.put(node,
+                    new ResourceReport(node, 0, EstimationWindow.SHORT,
+                            ImmutableMap.of(MapUtils.COMPUTE_ATTRIBUTE, (double) containers.size()), ImmutableMap.of(),
+                            ImmutableMap.of(), ImmutableMap.of(), ImmutableMap.copyOf(containers), containers.size(),
+                            containers.size()));
+        }
+        return reports;
+    }
+
+    /**
+     * The RLG round inputs computed by walking the maps in the reports.
+     */
+    private static long runMaps(final Map<NodeIdentifier, ResourceReport> reports, final int rounds) {
+        final long start = System.nanoTime();
+        for (int round = 0; round < rounds; ++round) {
+            RlgUtils.computeServiceLoadPercentages(reports);
+
+            final Map<ServiceIdentifier<?>, Integer> containersPerService = new HashMap<>();
+            final Map<ServiceIdentifier<?>, Map<NodeIdentifier, Map<NodeAttribute, Double>>> containerLoads = new HashMap<>();
+            reports.forEach((node, report) -> {
+                report.getContainerReports().forEach((containerId, creport) -> {
+                    containersPerService.merge(creport.getService(), 1, Integer::sum);
+                    if (ServiceStatus.RUNNING.equals(creport.getServiceStatus())) {
+                        final Map<NodeAttribute, Double> totalLoad = containerLoads
+                                .computeIfAbsent(creport.getService(), k -> new HashMap<>())
+                                .computeIfAbsent(containerId, k -> new HashMap<>());
+                        RlgUtils.getConfiguredLoadInput(creport).forEach((client, clientLoad) -> {
+                            clientLoad.forEach((attr, value) -> totalLoad.merge(attr, value, Double::sum));
+                        });
+                    }
+                });
+            });
+
+            final List<Service> binPackingServices = new ArrayList<>();
+            final Map<ServiceIdentifier<?>, Double> serviceLoads = new HashMap<>();
+            reports.forEach((node, report) -> {
+                RlgUtils.getConfiguredLoadInput(report).forEach((service, serviceLoad) -> {
+                    double sum = 0;
+                    for (final Map<NodeAttribute, Double> sourceLoad : serviceLoad.values()) {
+                        sum += sourceLoad.getOrDefault(MapUtils.COMPUTE_ATTRIBUTE, 0D);
+                    }
+                    binPackingServices.add(new Service(service, sum, 1));
+                    serviceLoads.merge(service, sum, Double::sum);
+                });
+            });
+
+            containerLoads.forEach((service, loads) -> {
+                RlgUtils.sortContainersByAscendingLoad(loads, MapUtils.COMPUTE_ATTRIBUTE);
+
+                double total = 0;
+                for (final Map<NodeAttribute, Double> load : loads.values()) {
+                    total += load.getOrDefault(MapUtils.COMPUTE_ATTRIBUTE, 0D);
+                }
+                if (total < 0) {
+                    LOGGER.warn("Negative load for {}", service);
+                }
+            });
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long runTable(final Map<NodeIdentifier, ResourceReport> reports, final int rounds) {
+        final long start = System.nanoTime();
+        for (int round = 0; round < rounds; ++round) {
+            final RegionLoadTable table = new RegionLoadTable(reports);
+            table.computeLoadPercentages();
+            table.getContainersPerService();
+            table.getRunningContainerLoadByService();
+            table.getContainersByAscendingLoad(MapUtils.COMPUTE_ATTRIBUTE);
+            table.getBinPackingServices();
+            table.getBinPackingServiceLoads();
+
+            for (final ServiceIdentifier<?> service : table.getServices()) {
+                if (table.getRunningServiceLoad(service, MapUtils.COMPUTE_ATTRIBUTE) < 0) {
+                    LOGGER.warn("Negative load for {}", service);
+                }
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+}
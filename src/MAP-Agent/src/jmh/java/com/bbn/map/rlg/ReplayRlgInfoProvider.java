@@ -0,0 +1,165 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.rlg;
+
+import java.util.LinkedList;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+
+import com.bbn.map.Controller;
+import com.bbn.map.ta2.OverlayTopology;
+import com.bbn.protelis.networkresourcemanagement.LoadBalancerPlan;
+import com.bbn.protelis.networkresourcemanagement.RegionIdentifier;
+import com.bbn.protelis.networkresourcemanagement.RegionPlan;
+import com.bbn.protelis.networkresourcemanagement.ResourceReport;
+import com.bbn.protelis.networkresourcemanagement.ResourceSummary;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * In-memory {@link RlgInfoProvider} used by {@link RlgReplayBenchmark}. The
+ * inputs for each round are the values that were dumped by the controller at
+ * that time.
+ *
+ * When the provider is closed loop, {@link #getRlgPlan()} returns the last
+ * plan published through this provider instead of the recorded plan once a
+ * plan has been published. This lets RLG react to its own decisions rather
+ * than to the decisions made during the original run.
+ */
+/* package */ final class ReplayRlgInfoProvider implements RlgInfoProvider {
+
+    private final RegionIdentifier region;
+    private final boolean closedLoop;
+
+    private ImmutableSet<ResourceReport> reports = ImmutableSet.of();
+    private RegionPlan dcopPlan;
+    private LoadBalancerPlan recordedPlan;
+    private LoadBalancerPlan publishedPlan = null;
+    private ResourceSummary summary = null;
+
+    /**
+     * @param region
+     *            the region that this provider is for
+     * @param closedLoop
+     *            if true, {@link #getRlgPlan()} returns the plans published by
+     *            RLG rather than the recorded plans
+     */
+    /* package */ ReplayRlgInfoProvider(@Nonnull final RegionIdentifier region, final boolean closedLoop) {
+        this.region = Objects.requireNonNull(region);
+        this.closedLoop = closedLoop;
+        this.dcopPlan = new RegionPlan(region, ImmutableMap.of());
+        this.recordedPlan = LoadBalancerPlan.getNullLoadBalancerPlan(region);
+    }
+
+    /**
+     * Set the inputs for the next RLG round.
+     *
+     * @param reports
+     *            the resource reports for the nodes in the region
+     * @param dcopPlan
+     *            the DCOP plan that RLG saw
+     * @param recordedPlan
+     *            the RLG plan that was in effect
+     */
+    /* package */ void startRound(@Nonnull final ImmutableSet<ResourceReport> reports,
+            @Nonnull final RegionPlan dcopPlan,
+            @Nonnull final LoadBalancerPlan recordedPlan) {
+        this.reports = Objects.requireNonNull(reports);
+        this.dcopPlan = Objects.requireNonNull(dcopPlan);
+        this.recordedPlan = Objects.requireNonNull(recordedPlan);
+        this.summary = null;
+    }
+
+    /**
+     * @return the last plan passed to {@link #publishRlgPlan(LoadBalancerPlan)},
+     *         null if no plan has been published
+     */
+    /* package */ LoadBalancerPlan getPublishedPlan() {
+        return publishedPlan;
+    }
+
+    @Override
+    @Nonnull
+    public ResourceSummary getRlgResourceSummary() {
+        if (null == summary) {
+            summary = Controller.computeResourceSummary(region, node -> region, reports);
+        }
+        return summary;
+    }
+
+    @Override
+    @Nonnull
+    public RegionPlan getDcopPlan() {
+        return dcopPlan;
+    }
+
+    @Override
+    @Nonnull
+    public LoadBalancerPlan getRlgPlan() {
+        if (closedLoop && null != publishedPlan) {
+            return publishedPlan;
+        } else {
+            return recordedPlan;
+        }
+    }
+
+    @Override
+    public void publishRlgPlan(@Nonnull final LoadBalancerPlan plan) {
+        publishedPlan = plan;
+    }
+
+    @Override
+    @Nonnull
+    public ImmutableSet<ResourceReport> getRlgResourceReports() {
+        return reports;
+    }
+
+    @Override
+    @Nonnull
+    public RegionIdentifier getRegion() {
+        return region;
+    }
+
+    /**
+     * The regional overlay isn't dumped and RLG doesn't use it when computing
+     * a plan.
+     *
+     * @return an empty topology
+     */
+    @Override
+    @Nonnull
+    public OverlayTopology getCurrentRegionTopology() {
+        return new OverlayTopology(new LinkedList<>(), new LinkedList<>());
+    }
+
+}
@@ -0,0 +1,871 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.rlg;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.annotation.Nonnull;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bbn.map.AgentConfiguration;
+import com.bbn.map.AgentConfiguration.RlgAlgorithm;
+import com.bbn.map.appmgr.util.AppMgrUtils;
+import com.bbn.map.common.ApplicationManagerApi;
+import com.bbn.map.simulator.Simulation;
+import com.bbn.map.utils.JsonUtils;
+import com.bbn.map.utils.LogExceptionHandler;
+import com.bbn.map.utils.MapLoggingConfigurationFactory;
+import com.bbn.map.utils.MapUtils;
+import com.bbn.protelis.networkresourcemanagement.LoadBalancerPlan;
+import com.bbn.protelis.networkresourcemanagement.NodeIdentifier;
+import com.bbn.protelis.networkresourcemanagement.RegionIdentifier;
+import com.bbn.protelis.networkresourcemanagement.RegionPlan;
+import com.bbn.protelis.networkresourcemanagement.ResourceReport;
+import com.bbn.protelis.networkresourcemanagement.ResourceReport.EstimationWindow;
+import com.bbn.protelis.networkresourcemanagement.ServiceIdentifier;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Replay the inputs that were dumped by the RLG nodes during a simulation
+ * through {@link RLGService} with each of the {@link ServicePriorityManager}
+ * implementations without running the rest of the simulation. The plans are
+ * computed back to back, so RLG runs as fast as the CPU allows instead of
+ * once per RLG round.
+ *
+ * The inputs for each round are the {@link EstimationWindow#SHORT} region
+ * resource reports, the DCOP plan and the load balancer plan from a time
+ * directory of a node that was running RLG. Regions are replayed one at a
+ * time so that the latency of each plan is not affected by other regions.
+ *
+ * For each priority manager, region and round the following is reported:
+ * <ul>
+ * <li>time to compute the plan</li>
+ * <li>number of containers in the plan that are not stopped</li>
+ * <li>number of containers that the plan starts and stops</li>
+ * <li>stability, the change in the number of running containers per node and
+ * service and the number of services whose overflow plan changed compared
+ * with the previous round</li>
+ * </ul>
+ *
+ * RLG is given the time of each recorded round as the current time, so
+ * delayed container shutdowns happen in the same round that they would in
+ * the simulation even though the rounds are replayed faster than they were
+ * recorded.
+ */
+public final class RlgReplayBenchmark {
+    // put this first to ensure that the correct logging configuration is used
+    static {
+        System.setProperty("log4j.configurationFactory", MapLoggingConfigurationFactory.class.getName());
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RlgReplayBenchmark.class);
+
+    private static final String SCENARIO_OPT = "scenario";
+    private static final String INPUT_OPT = "input";
+    private static final String OUTPUT_OPT = "output";
+    private static final String PRIORITY_MANAGERS_OPT = "priorityManagers";
+    private static final String ROUNDS_OPT = "rounds";
+    private static final String AGENT_CONFIGURATION_OPT = "agentConfiguration";
+    private static final String CLOSED_LOOP_OPT = "closedLoop";
+    private static final String HELP_OPT = "help";
+
+    private static final String REPORTS_FILENAME = String.format("regionResourceReports-%s.json",
+            EstimationWindow.SHORT);
+    private static final String DCOP_PLAN_FILENAME = "regionPlan.json";
+    private static final String RLG_PLAN_FILENAME = "loadBalancerPlan.json";
+
+    /**
+     * The {@link ServicePriorityManager} implementations that can be replayed.
+     */
+    public enum PriorityManager {
+        /**
+         * {@link GreedyGroupServicePriorityManager}.
+         */
+        GREEDY_GROUP,
+        /**
+         * {@link FixedTargetServicePriorityManager}.
+         */
+        FIXED_TARGET,
+        /**
+         * {@link SimpleServicePriorityManager}.
+         */
+        SIMPLE,
+        /**
+         * {@link AbstractRandomAllocationOrderTargetSPM}.
+         */
+        RANDOM_ALLOCATION_ORDER,
+        /**
+         * {@link NullServicePriorityManager}.
+         */
+        NO_PRIORITY;
+
+        /**
+         * @param region
+         *            the region that the manager is used for
+         * @return a new manager of this type
+         */
+        @Nonnull
+        public ServicePriorityManager create(@Nonnull final RegionIdentifier region) {
+            switch (this) {
+            case GREEDY_GROUP:
+                return new GreedyGroupServicePriorityManager(MapUtils.COMPUTE_ATTRIBUTE);
+            case FIXED_TARGET:
+                return new FixedTargetServicePriorityManager(MapUtils.COMPUTE_ATTRIBUTE);
+            case SIMPLE:
+                return new SimpleServicePriorityManager(MapUtils.COMPUTE_ATTRIBUTE);
+            case RANDOM_ALLOCATION_ORDER:
+                return new RandomAllocationOrderSPM(region);
+            case NO_PRIORITY:
+                return new NullServicePriorityManager();
+            default:
+                throw new IllegalArgumentException("Unknown priority manager: " + this);
+            }
+        }
+    }
+
+    /**
+     * The random allocation order manager only exists as an abstract class.
+     */
+    private static final class RandomAllocationOrderSPM extends AbstractRandomAllocationOrderTargetSPM {
+        RandomAllocationOrderSPM(final RegionIdentifier region) {
+            super(MapUtils.COMPUTE_ATTRIBUTE, region);
+        }
+    }
+
+    /**
+     * The time of the round being replayed. The recorded times are
+     * milliseconds since the start of the simulation and are added to a fixed
+     * start time so that the replay does not depend on when it is run.
+     */
+    private static final class ReplayClock implements Supplier<LocalDateTime> {
+        private static final LocalDateTime START = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+        private long time = 0;
+
+        /**
+         * @param time
+         *            the recorded time of the round about to be replayed
+         */
+        public void setTime(final long time) {
+            this.time = time;
+        }
+
+        @Override
+        public LocalDateTime get() {
+            return START.plus(time, ChronoUnit.MILLIS);
+        }
+    }
+
+    /**
+     * The inputs to RLG recorded at one time.
+     */
+    public static final class RecordedRound {
+        private final ImmutableSet<ResourceReport> reports;
+        private final RegionPlan dcopPlan;
+        private final LoadBalancerPlan rlgPlan;
+
+        /**
+         * @param reports
+         *            see {@link #getReports()}
+         * @param dcopPlan
+         *            see {@link #getDcopPlan()}
+         * @param rlgPlan
+         *            see {@link #getRlgPlan()}
+         */
+        public RecordedRound(@Nonnull final ImmutableSet<ResourceReport> reports,
+                @Nonnull final RegionPlan dcopPlan,
+                @Nonnull final LoadBalancerPlan rlgPlan) {
+            this.reports = Objects.requireNonNull(reports);
+            this.dcopPlan = Objects.requireNonNull(dcopPlan);
+            this.rlgPlan = Objects.requireNonNull(rlgPlan);
+        }
+
+        /**
+         * @return the resource reports for the nodes in the region
+         */
+        @Nonnull
+        public ImmutableSet<ResourceReport> getReports() {
+            return reports;
+        }
+
+        /**
+         * @return the DCOP plan known to RLG
+         */
+        @Nonnull
+        public RegionPlan getDcopPlan() {
+            return dcopPlan;
+        }
+
+        /**
+         * @return the load balancer plan in effect
+         */
+        @Nonnull
+        public LoadBalancerPlan getRlgPlan() {
+            return rlgPlan;
+        }
+    }
+
+    private static void printUsage(final Options options) {
+        new HelpFormatter().printHelp(RlgReplayBenchmark.class.getSimpleName(), options);
+    }
+
+    /**
+     *
+     * @param args
+     *            run without arguments to see all options
+     */
+    public static void main(final String[] args) {
+        LogExceptionHandler.registerExceptionHandler();
+
+        final Options options = new Options();
+        options.addRequiredOption("s", SCENARIO_OPT, true,
+                "The directory where the scenario is stored, used to load the service configurations (required)");
+        options.addRequiredOption("i", INPUT_OPT, true, "The output directory of the simulation to replay (required)");
+        options.addOption("o", OUTPUT_OPT, true, "CSV file to write the per round results to");
+        options.addOption("p", PRIORITY_MANAGERS_OPT, true, "Comma separated list of priority managers to run (default: "
+                + Arrays.toString(PriorityManager.values()) + ")");
+        options.addOption("n", ROUNDS_OPT, true, "Maximum number of rounds to replay per region (default: all)");
+        options.addOption(null, AGENT_CONFIGURATION_OPT, true,
+                "Read the agent configuration from the specified file, defaults to the agent configuration in the input directory if it exists");
+        options.addOption(null, CLOSED_LOOP_OPT, false,
+                "Give RLG its own previous plan instead of the recorded load balancer plan");
+        options.addOption("h", HELP_OPT, false, "Show the help");
+
+        final CommandLineParser parser = new DefaultParser();
+        try {
+            final CommandLine cmd = parser.parse(options, args);
+
+            if (cmd.hasOption(HELP_OPT)) {
+                printUsage(options);
+                System.exit(0);
+            }
+
+            final Path scenarioPath = Paths.get(cmd.getOptionValue(SCENARIO_OPT));
+            final Path inputPath = Paths.get(cmd.getOptionValue(INPUT_OPT));
+
+            final Path agentConfiguration = cmd.hasOption(AGENT_CONFIGURATION_OPT)
+                    ? Paths.get(cmd.getOptionValue(AGENT_CONFIGURATION_OPT))
+                    : inputPath.resolve("agent-configuration.json");
+            if (Files.exists(agentConfiguration)) {
+                AgentConfiguration.readFromFile(agentConfiguration);
+            }
+
+            // the priority managers are only used by the bin packing
+            // algorithm
+            AgentConfiguration.getInstance().setRlgAlgorithm(RlgAlgorithm.BIN_PACKING);
+
+            final List<PriorityManager> priorityManagers = new LinkedList<>();
+            if (cmd.hasOption(PRIORITY_MANAGERS_OPT)) {
+                for (final String str : cmd.getOptionValue(PRIORITY_MANAGERS_OPT).split(",")) {
+                    try {
+                        priorityManagers.add(PriorityManager.valueOf(str.trim()));
+                    } catch (final IllegalArgumentException e) {
+                        LOGGER.error("Unknown priority manager '{}', known priority managers are {}", str,
+                                Arrays.toString(PriorityManager.values()));
+                        System.exit(1);
+                    }
+                }
+            } else {
+                priorityManagers.addAll(Arrays.asList(PriorityManager.values()));
+            }
+
+            final int maxRounds;
+            if (cmd.hasOption(ROUNDS_OPT)) {
+                try {
+                    maxRounds = Integer.parseInt(cmd.getOptionValue(ROUNDS_OPT));
+                } catch (final NumberFormatException e) {
+                    LOGGER.error("'{}' could not be parsed as an integer", cmd.getOptionValue(ROUNDS_OPT));
+                    printUsage(options);
+                    System.exit(1);
+                    return;
+                }
+            } else {
+                maxRounds = Integer.MAX_VALUE;
+            }
+
+            AppMgrUtils.loadApplicationManager(scenarioPath.resolve(Simulation.SERVICE_CONFIGURATIONS_FILENAME),
+                    scenarioPath.resolve(Simulation.SERVICE_DEPENDENCIES_FILENAME));
+
+            final RlgReplayBenchmark benchmark = new RlgReplayBenchmark(loadRounds(inputPath),
+                    AppMgrUtils.getApplicationManager());
+
+            final List<RoundResult> results = benchmark.replay(priorityManagers, maxRounds,
+                    cmd.hasOption(CLOSED_LOOP_OPT));
+
+            logResults(results);
+
+            if (cmd.hasOption(OUTPUT_OPT)) {
+                writeResults(Paths.get(cmd.getOptionValue(OUTPUT_OPT)), results);
+            }
+
+            System.exit(0);
+        } catch (final ParseException e) {
+            LOGGER.error("Error parsing the command line: {}", e.getMessage());
+            printUsage(options);
+            System.exit(1);
+        } catch (final IOException e) {
+            LOGGER.error("Error reading or writing data: {}", e.getMessage(), e);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Find all of the RLG inputs in the output of a simulation. Only time
+     * directories that contain {@link EstimationWindow#SHORT} region resource
+     * reports are used as these are only written by nodes running RLG. If
+     * multiple nodes in a region wrote inputs for the same time, the last one
+     * read is used.
+     *
+     * @param simulationOutput
+     *            the output directory of a simulation, contains a directory
+     *            per node and under that a directory per time
+     * @return region -> time -> inputs
+     * @throws IOException
+     *             if there is an error reading the files
+     */
+    @Nonnull
+    public static Map<RegionIdentifier, SortedMap<Long, RecordedRound>> loadRounds(
+            @Nonnull final Path simulationOutput) throws IOException {
+        final ObjectMapper mapper = JsonUtils.getStandardMapObjectMapper();
+        final Map<RegionIdentifier, SortedMap<Long, RecordedRound>> rounds = new HashMap<>();
+
+        try (Stream<Path> nodeDirs = Files.list(simulationOutput)) {
+            for (final Path nodeDir : (Iterable<Path>) nodeDirs.filter(Files::isDirectory)::iterator) {
+                try (Stream<Path> timeDirs = Files.list(nodeDir)) {
+                    for (final Path timeDir : (Iterable<Path>) timeDirs.filter(Files::isDirectory)::iterator) {
+                        final Path reportsFile = timeDir.resolve(REPORTS_FILENAME);
+                        final Path dcopPlanFile = timeDir.resolve(DCOP_PLAN_FILENAME);
+                        final Path rlgPlanFile = timeDir.resolve(RLG_PLAN_FILENAME);
+                        if (!Files.exists(reportsFile) || !Files.exists(dcopPlanFile)
+                                || !Files.exists(rlgPlanFile)) {
+                            continue;
+                        }
+
+                        final long time;
+                        try {
+                            time = Long.parseLong(timeDir.getFileName().toString());
+                        } catch (final NumberFormatException e) {
+                            LOGGER.debug("Skipping {}, not a time directory", timeDir);
+                            continue;
+                        }
+
+                        final Set<ResourceReport> reports;
+                        try (BufferedReader reader = Files.newBufferedReader(reportsFile)) {
+                            reports = mapper.readValue(reader, new TypeReference<Set<ResourceReport>>() {
+                            });
+                        }
+                        final RegionPlan dcopPlan;
+                        try (BufferedReader reader = Files.newBufferedReader(dcopPlanFile)) {
+                            dcopPlan = mapper.readValue(reader, RegionPlan.class);
+                        }
+                        final LoadBalancerPlan rlgPlan;
+                        try (BufferedReader reader = Files.newBufferedReader(rlgPlanFile)) {
+                            rlgPlan = mapper.readValue(reader, LoadBalancerPlan.class);
+                        }
+
+                        rounds.computeIfAbsent(rlgPlan.getRegion(), k -> new TreeMap<>()).put(time,
+                                new RecordedRound(ImmutableSet.copyOf(reports), dcopPlan, rlgPlan));
+                    }
+                }
+            }
+        }
+
+        LOGGER.info("Loaded RLG inputs for regions {}", rounds.keySet());
+        return rounds;
+    }
+
+    private final Map<RegionIdentifier, SortedMap<Long, RecordedRound>> rounds;
+    private final ApplicationManagerApi applicationManager;
+
+    /**
+     *
+     * @param rounds
+     *            region -> time -> inputs, see {@link #loadRounds(Path)}
+     * @param applicationManager
+     *            source of information about the services
+     */
+    public RlgReplayBenchmark(@Nonnull final Map<RegionIdentifier, SortedMap<Long, RecordedRound>> rounds,
+            @Nonnull final ApplicationManagerApi applicationManager) {
+        this.rounds = Objects.requireNonNull(rounds);
+        this.applicationManager = Objects.requireNonNull(applicationManager);
+    }
+
+    /**
+     * Replay the recorded inputs of all regions through RLG using the
+     * specified priority manager. Each region gets its own {@link RLGService}
+     * and priority manager that are kept for all of the rounds of that
+     * region. The current time seen by RLG is the time that the inputs of the
+     * round were recorded.
+     *
+     * @param priorityManager
+     *            the priority manager to use
+     * @param maxRounds
+     *            the maximum number of rounds to execute per region
+     * @param closedLoop
+     *            if true RLG is given the plan that it published in the
+     *            previous round rather than the recorded plan
+     * @return one result per region and round
+     */
+    @Nonnull
+    public List<RoundResult> replay(@Nonnull final PriorityManager priorityManager,
+            final int maxRounds,
+            final boolean closedLoop) {
+        final List<RoundResult> results = new LinkedList<>();
+
+        rounds.forEach((region, regionRounds) -> {
+            final ReplayRlgInfoProvider provider = new ReplayRlgInfoProvider(region, closedLoop);
+            final ReplayClock clock = new ReplayClock();
+            final RLGService rlg = new RLGService("replay-" + region.getName(), region, provider, applicationManager,
+                    priorityManager.create(region), clock);
+
+            LoadBalancerPlan previousPlan = null;
+            int round = 0;
+            for (final Map.Entry<Long, RecordedRound> entry : regionRounds.entrySet()) {
+                if (round >= maxRounds) {
+                    break;
+                }
+
+                final RecordedRound recorded = entry.getValue();
+                clock.setTime(entry.getKey());
+                provider.startRound(recorded.getReports(), recorded.getDcopPlan(), recorded.getRlgPlan());
+
+                final long start = System.nanoTime();
+                final LoadBalancerPlan plan = rlg.computePlan();
+                final long latency = System.nanoTime() - start;
+
+                if (null == plan) {
+                    LOGGER.warn("{} produced a null plan for region {} in round {}", priorityManager, region,
+                            round);
+                } else {
+                    provider.publishRlgPlan(plan);
+
+                    final RoundResult result = computeResult(priorityManager, region, round, entry.getKey(),
+                            Duration.ofNanos(latency), previousPlan, plan);
+                    LOGGER.info("{}", result);
+                    results.add(result);
+
+                    previousPlan = plan;
+                }
+
+                ++round;
+            }
+        });
+
+        return results;
+    }
+
+    /**
+     * Create the RLG services for timing single rounds, see
+     * {@link FirstRound}.
+     *
+     * @param priorityManager
+     *            the priority manager to use
+     * @return the first round of every region
+     */
+    @Nonnull
+    public FirstRound firstRound(@Nonnull final PriorityManager priorityManager) {
+        return new FirstRound(priorityManager);
+    }
+
+    /**
+     * Plans the first recorded round of every region each time that
+     * {@link #run()} is called. The {@link RLGService} of each region is
+     * created once and kept between runs. RLG is given the recorded plan
+     * rather than the plan from the previous run, so every run does the same
+     * work. Nothing is logged and no results are computed, so the time of
+     * {@link #run()} is the time that RLG takes to plan.
+     */
+    public final class FirstRound {
+        private final List<ReplayRlgInfoProvider> providers = new ArrayList<>();
+        private final List<RLGService> services = new ArrayList<>();
+        private final List<RecordedRound> inputs = new ArrayList<>();
+
+        private FirstRound(final PriorityManager priorityManager) {
+            rounds.forEach((region, regionRounds) -> {
+                if (regionRounds.isEmpty()) {
+                    return;
+                }
+
+                final ReplayRlgInfoProvider provider = new ReplayRlgInfoProvider(region, false);
+                final ReplayClock clock = new ReplayClock();
+                clock.setTime(regionRounds.firstKey());
+
+                providers.add(provider);
+                services.add(new RLGService("replay-" + region.getName(), region, provider, applicationManager,
+                        priorityManager.create(region), clock));
+                inputs.add(regionRounds.get(regionRounds.firstKey()));
+            });
+        }
+
+        /**
+         * Plan the round in every region.
+         *
+         * @return the plan of each region, an entry is null if RLG did not
+         *         produce a plan
+         */
+        @Nonnull
+        public List<LoadBalancerPlan> run() {
+            final List<LoadBalancerPlan> plans = new ArrayList<>(services.size());
+            for (int i = 0; i < services.size(); ++i) {
+                final RecordedRound recorded = inputs.get(i);
+                providers.get(i).startRound(recorded.getReports(), recorded.getDcopPlan(), recorded.getRlgPlan());
+                plans.add(services.get(i).computePlan());
+            }
+            return plans;
+        }
+    }
+
+    /**
+     * Replay the recorded inputs through each of the priority managers in
+     * turn.
+     *
+     * @param priorityManagers
+     *            the priority managers to run
+     * @param maxRounds
+     *            maximum number of rounds per priority manager and region
+     * @param closedLoop
+     *            see {@link #replay(PriorityManager, int, boolean)}
+     * @return the results for all priority managers
+     */
+    @Nonnull
+    public List<RoundResult> replay(@Nonnull final Iterable<PriorityManager> priorityManagers,
+            final int maxRounds,
+            final boolean closedLoop) {
+        final List<RoundResult> results = new ArrayList<>();
+        priorityManagers.forEach(p -> results.addAll(replay(p, maxRounds, closedLoop)));
+        return results;
+    }
+
+    private static RoundResult computeResult(final PriorityManager priorityManager,
+            final RegionIdentifier region,
+            final int round,
+            final long time,
+            final Duration latency,
+            final LoadBalancerPlan previousPlan,
+            final LoadBalancerPlan plan) {
+        int running = 0;
+        int started = 0;
+        int stopped = 0;
+        for (final Collection<LoadBalancerPlan.ContainerInfo> infos : plan.getServicePlan().values()) {
+            for (final LoadBalancerPlan.ContainerInfo info : infos) {
+                if (info.isStop()) {
+                    ++stopped;
+                } else {
+                    ++running;
+                    if (null == info.getId()) {
+                        ++started;
+                    }
+                }
+            }
+        }
+
+        final int containerChanges;
+        final int overflowChanges;
+        if (null == previousPlan) {
+            containerChanges = 0;
+            overflowChanges = 0;
+        } else {
+            final Map<NodeIdentifier, Map<ServiceIdentifier<?>, Integer>> current = countRunningContainers(plan);
+            final Map<NodeIdentifier, Map<ServiceIdentifier<?>, Integer>> previous = countRunningContainers(
+                    previousPlan);
+
+            final Set<NodeIdentifier> nodes = new HashSet<>(current.keySet());
+            nodes.addAll(previous.keySet());
+            int changes = 0;
+            for (final NodeIdentifier node : nodes) {
+                final Map<ServiceIdentifier<?>, Integer> currentCounts = current.getOrDefault(node,
+                        ImmutableMap.of());
+                final Map<ServiceIdentifier<?>, Integer> previousCounts = previous.getOrDefault(node,
+                        ImmutableMap.of());
+                final Set<ServiceIdentifier<?>> services = new HashSet<>(currentCounts.keySet());
+                services.addAll(previousCounts.keySet());
+                for (final ServiceIdentifier<?> service : services) {
+                    changes += Math
+                            .abs(currentCounts.getOrDefault(service, 0) - previousCounts.getOrDefault(service, 0));
+                }
+            }
+            containerChanges = changes;
+
+            final Set<ServiceIdentifier<?>> services = new HashSet<>(plan.getOverflowPlan().keySet());
+            services.addAll(previousPlan.getOverflowPlan().keySet());
+            overflowChanges = (int) services.stream().filter(
+                    s -> !Objects.equals(plan.getOverflowPlan().get(s), previousPlan.getOverflowPlan().get(s)))
+                    .count();
+        }
+
+        return new RoundResult(priorityManager, region, round, time, latency, running, started, stopped,
+                containerChanges, overflowChanges);
+    }
+
+    /**
+     * @return node -> service -> number of containers that are not stopped
+     */
+    private static Map<NodeIdentifier, Map<ServiceIdentifier<?>, Integer>> countRunningContainers(
+            final LoadBalancerPlan plan) {
+        final Map<NodeIdentifier, Map<ServiceIdentifier<?>, Integer>> counts = new HashMap<>();
+        plan.getServicePlan().forEach((node, infos) -> {
+            infos.forEach(info -> {
+                if (!info.isStop()) {
+                    counts.computeIfAbsent(node, k -> new HashMap<>()).merge(info.getService(), 1, Integer::sum);
+                }
+            });
+        });
+        return counts;
+    }
+
+    private static void logResults(final List<RoundResult> results) {
+        final Map<PriorityManager, List<RoundResult>> byPriorityManager = results.stream()
+                .collect(Collectors.groupingBy(RoundResult::getPriorityManager, TreeMap::new, Collectors.toList()));
+
+        byPriorityManager.forEach((priorityManager, managerResults) -> {
+            final double meanLatencyMs = managerResults.stream()
+                    .mapToDouble(r -> r.getLatency().toNanos() / 1E6).average().orElse(0);
+            final long maxLatencyMs = managerResults.stream().mapToLong(r -> r.getLatency().toMillis()).max()
+                    .orElse(0);
+            final double meanRunning = managerResults.stream().mapToInt(RoundResult::getRunningContainers)
+                    .average().orElse(0);
+            final int started = managerResults.stream().mapToInt(RoundResult::getContainersStarted).sum();
+            final int stopped = managerResults.stream().mapToInt(RoundResult::getContainersStopped).sum();
+            final int containerChanges = managerResults.stream().mapToInt(RoundResult::getContainerChanges).sum();
+            final int overflowChanges = managerResults.stream().mapToInt(RoundResult::getOverflowChanges).sum();
+
+            LOGGER.info(
+                    "{}: rounds: {} mean latency: {} ms max latency: {} ms mean running containers: {} started: {} stopped: {} container changes: {} overflow plan changes: {}",
+                    priorityManager, managerResults.size(), meanLatencyMs, maxLatencyMs, meanRunning, started,
+                    stopped, containerChanges, overflowChanges);
+        });
+    }
+
+    /**
+     * Write the results as CSV.
+     *
+     * @param path
+     *            the file to write to
+     * @param results
+     *            the results to write
+     * @throws IOException
+     *             if there is an error writing the file
+     */
+    public static void writeResults(@Nonnull final Path path, @Nonnull final List<RoundResult> results)
+            throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write(
+                    "priority_manager,region,round,time,latency_us,running_containers,containers_started,containers_stopped,container_changes,overflow_changes");
+            writer.newLine();
+            for (final RoundResult result : results) {
+                writer.write(String.format("%s,%s,%d,%d,%d,%d,%d,%d,%d,%d", result.getPriorityManager(),
+                        result.getRegion().getName(), result.getRound(), result.getTime(),
+                        result.getLatency().toNanos() / 1000, result.getRunningContainers(),
+                        result.getContainersStarted(), result.getContainersStopped(), result.getContainerChanges(),
+                        result.getOverflowChanges()));
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Result of replaying a single RLG round for a region.
+     */
+    public static final class RoundResult {
+        private final PriorityManager priorityManager;
+        private final RegionIdentifier region;
+        private final int round;
+        private final long time;
+        private final Duration latency;
+        private final int runningContainers;
+        private final int containersStarted;
+        private final int containersStopped;
+        private final int containerChanges;
+        private final int overflowChanges;
+
+        /**
+         * @param priorityManager
+         *            see {@link #getPriorityManager()}
+         * @param region
+         *            see {@link #getRegion()}
+         * @param round
+         *            see {@link #getRound()}
+         * @param time
+         *            see {@link #getTime()}
+         * @param latency
+         *            see {@link #getLatency()}
+         * @param runningContainers
+         *            see {@link #getRunningContainers()}
+         * @param containersStarted
+         *            see {@link #getContainersStarted()}
+         * @param containersStopped
+         *            see {@link #getContainersStopped()}
+         * @param containerChanges
+         *            see {@link #getContainerChanges()}
+         * @param overflowChanges
+         *            see {@link #getOverflowChanges()}
+         */
+        public RoundResult(final PriorityManager priorityManager,
+                final RegionIdentifier region,
+                final int round,
+                final long time,
+                final Duration latency,
+                final int runningContainers,
+                final int containersStarted,
+                final int containersStopped,
+                final int containerChanges,
+                final int overflowChanges) {
+            this.priorityManager = priorityManager;
+            this.region = region;
+            this.round = round;
+            this.time = time;
+            this.latency = latency;
+            this.runningContainers = runningContainers;
+            this.containersStarted = containersStarted;
+            this.containersStopped = containersStopped;
+            this.containerChanges = containerChanges;
+            this.overflowChanges = overflowChanges;
+        }
+
+        /**
+         * @return the priority manager that was used
+         */
+        public PriorityManager getPriorityManager() {
+            return priorityManager;
+        }
+
+        /**
+         * @return the region that the plan is for
+         */
+        public RegionIdentifier getRegion() {
+            return region;
+        }
+
+        /**
+         * @return the round number within the region, starting at 0
+         */
+        public int getRound() {
+            return round;
+        }
+
+        /**
+         * @return the simulation time of the inputs used in the round
+         */
+        public long getTime() {
+            return time;
+        }
+
+        /**
+         * @return how long it took RLG to compute the plan
+         */
+        public Duration getLatency() {
+            return latency;
+        }
+
+        /**
+         * @return the number of containers in the plan that are not stopped
+         */
+        public int getRunningContainers() {
+            return runningContainers;
+        }
+
+        /**
+         * @return the number of new containers in the plan
+         */
+        public int getContainersStarted() {
+            return containersStarted;
+        }
+
+        /**
+         * @return the number of containers the plan stops
+         */
+        public int getContainersStopped() {
+            return containersStopped;
+        }
+
+        /**
+         * @return the sum over nodes and services of the change in the number
+         *         of running containers from the previous round, 0 for the
+         *         first round
+         */
+        public int getContainerChanges() {
+            return containerChanges;
+        }
+
+        /**
+         * @return the number of services whose overflow plan is different from
+         *         the previous round, 0 for the first round
+         */
+        public int getOverflowChanges() {
+            return overflowChanges;
+        }
+
+        @Override
+        public String toString() {
+            return priorityManager + " region " + region.getName() + " round " + round + " time " + time
+                    + " latency " + latency.toNanos() / 1000 + " us running " + runningContainers + " started "
+                    + containersStarted + " stopped " + containersStopped + " container changes " + containerChanges
+                    + " overflow changes " + overflowChanges;
+        }
+    }
+
+}
@@ -0,0 +1,260 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.simulator;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.bbn.map.AgentConfiguration;
+import com.bbn.map.AgentConfiguration.DcopAlgorithm;
+import com.bbn.map.Controller;
+import com.bbn.map.appmgr.util.AppMgrUtils;
+import com.bbn.map.common.value.ApplicationCoordinates;
+import com.bbn.map.dcop.DcopReplayBenchmark;
+import com.bbn.map.dns.DnsRecord;
+import com.bbn.map.rlg.RlgReplayBenchmark;
+import com.bbn.map.rlg.RlgReplayBenchmark.PriorityManager;
+import com.bbn.map.rlg.RlgReplayBenchmark.RecordedRound;
+import com.bbn.map.utils.MapUtils;
+import com.bbn.protelis.networkresourcemanagement.LoadBalancerPlan;
+import com.bbn.protelis.networkresourcemanagement.NodeIdentifier;
+import com.bbn.protelis.networkresourcemanagement.RegionIdentifier;
+import com.bbn.protelis.networkresourcemanagement.RegionPlan;
+import com.bbn.protelis.networkresourcemanagement.RegionServiceState;
+import com.bbn.protelis.networkresourcemanagement.ResourceReport;
+import com.bbn.protelis.networkresourcemanagement.ResourceReport.EstimationWindow;
+import com.bbn.protelis.networkresourcemanagement.ResourceSummary;
+import com.bbn.protelis.networkresourcemanagement.ServiceReport;
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Micro benchmarks of the per round work done by the region leaders:
+ * summarizing resource reports, translating the RLG plan to DNS and a round
+ * of RLG and DCOP. Every container in the simulation is loaded above the RLG
+ * threshold by a client before the inputs are captured, so that RLG has
+ * containers to allocate and DCOP has demand to place. RLG and DCOP rounds
+ * are executed through {@link RlgReplayBenchmark.FirstRound} and
+ * {@link DcopReplayBenchmark.FirstRound}, which are created once per trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class AlgorithmBenchmarks {
+
+    /**
+     * Fraction of the capacity of each container that is loaded, above the
+     * default RLG load threshold.
+     */
+    private static final double CONTAINER_LOAD = 0.9;
+    /**
+     * Longer than any trial, so the load does not expire.
+     */
+    private static final long LOAD_DURATION = Duration.ofDays(1).toMillis();
+
+    private RegionIdentifier[] regions;
+    private ImmutableSet<ResourceReport>[] regionReports;
+    private LoadBalancerPlan[] regionPlans;
+    private RegionServiceState[] regionServiceStates;
+
+    private RlgReplayBenchmark.FirstRound rlgRound;
+    private DcopReplayBenchmark.FirstRound dcopRound;
+
+    private int index;
+
+    /**
+     * Load the containers and capture the inputs for each region from the
+     * region leaders.
+     *
+     * @param state
+     *            the simulation
+     */
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setup(final SimulationState state) {
+        loadContainers(state);
+
+        final int numRegions = state.regionLeaders.length;
+        regions = new RegionIdentifier[numRegions];
+        regionReports = new ImmutableSet[numRegions];
+        regionPlans = new LoadBalancerPlan[numRegions];
+        regionServiceStates = new RegionServiceState[numRegions];
+
+        final Map<RegionIdentifier, SortedMap<Long, RecordedRound>> rounds = new HashMap<>();
+        final Map<RegionIdentifier, SortedMap<Long, ResourceSummary>> summaries = new HashMap<>();
+        for (int i = 0; i < numRegions; ++i) {
+            final Controller leader = state.regionLeaders[i];
+            final RegionIdentifier region = leader.getRegionIdentifier();
+            regions[i] = region;
+
+            final ImmutableSet.Builder<ResourceReport> shortReports = ImmutableSet.builder();
+            final ImmutableSet.Builder<ResourceReport> longReports = ImmutableSet.builder();
+            final ImmutableSet.Builder<ServiceReport> serviceReports = ImmutableSet.builder();
+            for (final SimResourceManager manager : state.resourceManagers) {
+                if (region.equals(manager.getNode().getRegionIdentifier())) {
+                    shortReports.add(manager.getCurrentResourceReport(EstimationWindow.SHORT));
+                    longReports.add(manager.getCurrentResourceReport(EstimationWindow.LONG));
+                    serviceReports.add(manager.getServiceReport());
+                }
+            }
+            regionReports[i] = shortReports.build();
+            regionPlans[i] = leader.getRlgPlan();
+            regionServiceStates[i] = new RegionServiceState(region, serviceReports.build());
+
+            final SortedMap<Long, RecordedRound> regionRounds = new TreeMap<>();
+            regionRounds.put(0L, new RecordedRound(regionReports[i], leader.getDcopPlan(), regionPlans[i]));
+            rounds.put(region, regionRounds);
+
+            final SortedMap<Long, ResourceSummary> regionSummaries = new TreeMap<>();
+            regionSummaries.put(0L, Controller.computeResourceSummary(region, state.simulation, longReports.build()));
+            summaries.put(region, regionSummaries);
+        }
+
+        rlgRound = new RlgReplayBenchmark(rounds, AppMgrUtils.getApplicationManager())
+                .firstRound(PriorityManager.GREEDY_GROUP);
+
+        final DcopAlgorithm configured = AgentConfiguration.getInstance().getDcopAlgorithm();
+        final DcopAlgorithm dcopAlgorithm = DcopReplayBenchmark.SUPPORTED_ALGORITHMS.contains(configured)
+                ? configured
+                : DcopReplayBenchmark.SUPPORTED_ALGORITHMS.iterator().next();
+        dcopRound = new DcopReplayBenchmark(summaries, AppMgrUtils.getApplicationManager())
+                .firstRound(dcopAlgorithm);
+    }
+
+    /**
+     * Add {@link #CONTAINER_LOAD} to every running container from the
+     * clients in turn and update the resource reports.
+     */
+    private static void loadContainers(final SimulationState state) {
+        final List<ClientSim> clients = state.simulation.getClientSimulators();
+        final long now = state.simulation.getClock().getCurrentTime();
+        for (int i = 0; i < state.containers.length; ++i) {
+            final ContainerSim container = state.containers[i];
+            final NodeIdentifier client = clients.get(i % clients.size()).getClient().getNodeIdentifier();
+            final ClientLoad request = new ClientLoad(now, LOAD_DURATION, LOAD_DURATION, 1,
+                    (ApplicationCoordinates) container.getService(),
+                    ImmutableMap.of(MapUtils.COMPUTE_ATTRIBUTE, CONTAINER_LOAD), ImmutableMap.of(),
+                    ImmutableList.of());
+            container.addNodeLoad(client, now, LOAD_DURATION, state.simulation.getRegionForNode(client), request);
+        }
+
+        for (final SimResourceManager manager : state.resourceManagers) {
+            manager.updateResourceReports();
+        }
+    }
+
+    /**
+     * Stop the DCOP threads.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dcopRound.close();
+    }
+
+    private int next() {
+        index = (index + 1) % regions.length;
+        return index;
+    }
+
+    /**
+     * {@link Controller#computeResourceSummary(RegionIdentifier, com.bbn.protelis.networkresourcemanagement.RegionLookupService, ImmutableSet)}
+     * for one region.
+     *
+     * @param state
+     *            the simulation
+     * @return the summary
+     */
+    @Benchmark
+    public ResourceSummary computeResourceSummary(final SimulationState state) {
+        final int i = next();
+        return Controller.computeResourceSummary(regions[i], state.simulation, regionReports[i]);
+    }
+
+    /**
+     * {@link com.bbn.map.dns.PlanTranslator#convertToDns(LoadBalancerPlan, RegionServiceState)}
+     * for one region.
+     *
+     * @param state
+     *            the simulation
+     * @return the DNS records
+     */
+    @Benchmark
+    public ImmutableCollection<Pair<DnsRecord, Double>> convertToDns(final SimulationState state) {
+        final int i = next();
+        return state.simulation.getPlanTranslator().convertToDns(regionPlans[i], regionServiceStates[i]);
+    }
+
+    /**
+     * One RLG round in every region.
+     *
+     * @return the plan of each region
+     */
+    @Benchmark
+    public List<LoadBalancerPlan> rlgRound() {
+        return rlgRound.run();
+    }
+
+    /**
+     * One DCOP round across all regions.
+     *
+     * @return region -> plan
+     */
+    @Benchmark
+    public Map<RegionIdentifier, RegionPlan> dcopRound() {
+        return dcopRound.run();
+    }
+
+}
@@ -0,0 +1,354 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.simulator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bbn.map.AgentConfiguration;
+import com.bbn.map.appmgr.util.AppMgrUtils;
+import com.bbn.map.scenario.ScenarioGenerator;
+import com.bbn.map.scenario.ScenarioParameters;
+import com.bbn.map.utils.JsonUtils;
+import com.bbn.map.utils.LogExceptionHandler;
+import com.diffplug.common.base.Errors;
+
+/**
+ * Measure how many client requests the simulation processes per second of
+ * wall clock time. For each size a scenario is created with
+ * {@link ScenarioGenerator} and run to the end of its demand with a
+ * {@link DiscreteEventClock}, so AP, DCOP and RLG all run as they would in a
+ * normal simulation. The results are logged and optionally written as JSON so
+ * that runs from different commits can be compared.
+ */
+public final class SimulationBenchmark {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SimulationBenchmark.class);
+
+    private static final String REGIONS_OPT = "regions";
+    private static final String NCPS_OPT = "ncpsPerRegion";
+    private static final String CLIENTS_OPT = "clientsPerRegion";
+    private static final String SERVICES_OPT = "services";
+    private static final String DURATION_OPT = "duration";
+    private static final String SEED_OPT = "seed";
+    private static final String OUTPUT_OPT = "output";
+    private static final String HELP_OPT = "help";
+
+    private static final String DEFAULT_REGIONS = "2,4,8";
+    private static final int DEFAULT_NCPS = 5;
+    private static final int DEFAULT_CLIENTS = 2;
+    private static final int DEFAULT_SERVICES = 4;
+    private static final long DEFAULT_DURATION_SECONDS = 120;
+    private static final long DEFAULT_SEED = 0;
+
+    private static final int DNS_TTL = 60;
+    private static final double MILLIS_PER_SECOND = 1000;
+
+    private SimulationBenchmark() {
+    }
+
+    /**
+     * @param args
+     *            see the help output
+     */
+    public static void main(final String[] args) {
+        LogExceptionHandler.registerExceptionHandler();
+
+        final Options options = new Options();
+        options.addOption("r", REGIONS_OPT, true,
+                "Comma separated list of the number of regions to measure (default: " + DEFAULT_REGIONS + ")");
+        options.addOption("n", NCPS_OPT, true, "Number of NCPs per region (default: " + DEFAULT_NCPS + ")");
+        options.addOption("c", CLIENTS_OPT, true,
+                "Number of client pools per region (default: " + DEFAULT_CLIENTS + ")");
+        options.addOption(null, SERVICES_OPT, true, "Number of services (default: " + DEFAULT_SERVICES + ")");
+        options.addOption("d", DURATION_OPT, true,
+                "Seconds of client demand to simulate (default: " + DEFAULT_DURATION_SECONDS + ")");
+        options.addOption(null, SEED_OPT, true, "Seed for the generated scenarios (default: " + DEFAULT_SEED + ")");
+        options.addOption("o", OUTPUT_OPT, true, "JSON file to write the results to");
+        options.addOption("h", HELP_OPT, false, "Show the help");
+
+        final CommandLineParser parser = new DefaultParser();
+        try {
+            final CommandLine cmd = parser.parse(options, args);
+
+            if (cmd.hasOption(HELP_OPT)) {
+                printUsage(options);
+                System.exit(0);
+            }
+
+            final int ncpsPerRegion = cmd.hasOption(NCPS_OPT) ? Integer.parseInt(cmd.getOptionValue(NCPS_OPT))
+                    : DEFAULT_NCPS;
+            final int clientsPerRegion = cmd.hasOption(CLIENTS_OPT)
+                    ? Integer.parseInt(cmd.getOptionValue(CLIENTS_OPT))
+                    : DEFAULT_CLIENTS;
+            final int numServices = cmd.hasOption(SERVICES_OPT) ? Integer.parseInt(cmd.getOptionValue(SERVICES_OPT))
+                    : DEFAULT_SERVICES;
+            final long durationSeconds = cmd.hasOption(DURATION_OPT)
+                    ? Long.parseLong(cmd.getOptionValue(DURATION_OPT))
+                    : DEFAULT_DURATION_SECONDS;
+            final long seed = cmd.hasOption(SEED_OPT) ? Long.parseLong(cmd.getOptionValue(SEED_OPT)) : DEFAULT_SEED;
+
+            final List<Result> results = new ArrayList<>();
+            for (final String str : cmd.getOptionValue(REGIONS_OPT, DEFAULT_REGIONS).split(",")) {
+                final ScenarioParameters parameters = new ScenarioParameters();
+                parameters.setSeed(seed);
+                parameters.setNumRegions(Integer.parseInt(str.trim()));
+                parameters.setNcpsPerRegion(ncpsPerRegion);
+                parameters.setNumClients(clientsPerRegion * parameters.getNumRegions());
+                parameters.setNumServices(numServices);
+                parameters.setDemandDuration(Duration.ofSeconds(durationSeconds));
+
+                final Result result = measure(parameters);
+                results.add(result);
+
+                LOGGER.info(String.format(
+                        "%d regions, %d NCPs, %d clients: %d requests in %d ms (%.0f requests/s), simulated %d ms (%.1fx real time)",
+                        result.getNumRegions(), result.getNumNcps(), result.getNumClients(), result.getNumRequests(),
+                        result.getWallTime(), result.getRequestsPerSecond(), result.getSimulatedTime(),
+                        result.getSpeedup()));
+            }
+
+            if (cmd.hasOption(OUTPUT_OPT)) {
+                writeResults(Paths.get(cmd.getOptionValue(OUTPUT_OPT)), results);
+            }
+
+            System.exit(0);
+        } catch (final ParseException e) {
+            LOGGER.error("An error occurred parsing the command line: " + e.getMessage());
+            printUsage(options);
+            System.exit(1);
+        } catch (final NumberFormatException e) {
+            LOGGER.error("Unable to parse a number on the command line: " + e.getMessage());
+            printUsage(options);
+            System.exit(1);
+        } catch (final IllegalArgumentException e) {
+            LOGGER.error("Invalid value on the command line: " + e.getMessage());
+            printUsage(options);
+            System.exit(1);
+        } catch (final IOException e) {
+            LOGGER.error("Error writing the scenario or the results", e);
+            System.exit(1);
+        }
+    }
+
+    private static void printUsage(final Options options) {
+        new HelpFormatter().printHelp(SimulationBenchmark.class.getSimpleName(), options);
+    }
+
+    private static Result measure(final ScenarioParameters parameters) throws IOException {
+        final Path dir = Files.createTempDirectory("simulation-benchmark");
+        try {
+            ScenarioGenerator.generate(parameters, dir);
+
+            final DiscreteEventClock clock = new DiscreteEventClock(false);
+            final long wallStart = System.currentTimeMillis();
+            try (Simulation sim = new Simulation("Benchmark", dir.resolve(ScenarioGenerator.SCENARIO_DIRECTORY),
+                    dir.resolve(ScenarioGenerator.DEMAND_DIRECTORY), clock,
+                    AgentConfiguration.getInstance().getApRoundDuration().toMillis(), DNS_TTL,
+                    AppMgrUtils::getContainerParameters)) {
+                if (!AgentConfiguration.getInstance().isUseLeaderElection()) {
+                    sim.getAllControllers().stream().findFirst().get().setGlobalLeader(true);
+                }
+
+                final long setupEnd = System.currentTimeMillis();
+
+                SimulationRunner.startAgentsAndClients(sim);
+                final long clientStart = clock.getCurrentTime();
+                final long clientWallStart = System.currentTimeMillis();
+
+                sim.getClientSimulators().forEach(Errors.rethrow().wrap(client -> {
+                    client.join();
+                }));
+
+                final long wallEnd = System.currentTimeMillis();
+                final long simulatedTime = clock.getCurrentTime() - clientStart;
+                sim.stopSimulation();
+
+                final int numRequests = sim.getClientSimulators().stream()
+                        .mapToInt(ClientSim::getNumRequestsAttempted).sum();
+                final int numSucceeded = sim.getClientSimulators().stream()
+                        .mapToInt(ClientSim::getNumRequestsSucceeded).sum();
+
+                return new Result(parameters, numRequests, numSucceeded, setupEnd - wallStart,
+                        wallEnd - clientWallStart, simulatedTime, clock.getEventCount());
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    private static void writeResults(final Path path, final List<Result> results) throws IOException {
+        final Map<String, Object> output = new LinkedHashMap<>();
+        output.put("version", SimulationRunner.getGitVersionInformation());
+        output.put("date", LocalDateTime.now().toString());
+        output.put("javaVersion", System.getProperty("java.version"));
+        output.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        output.put("results", results);
+
+        JsonUtils.getStandardMapObjectMapper().writerWithDefaultPrettyPrinter().writeValue(path.toFile(), output);
+        LOGGER.info("Wrote results to {}", path);
+    }
+
+    /**
+     * The measurements for one scenario size.
+     */
+    public static final class Result {
+        private final int numRegions;
+        private final int numNcps;
+        private final int numClients;
+        private final int numRequests;
+        private final int numRequestsSucceeded;
+        private final long setupTime;
+        private final long wallTime;
+        private final long simulatedTime;
+        private final long eventCount;
+
+        private Result(final ScenarioParameters parameters,
+                final int numRequests,
+                final int numRequestsSucceeded,
+                final long setupTime,
+                final long wallTime,
+                final long simulatedTime,
+                final long eventCount) {
+            this.numRegions = parameters.getNumRegions();
+            this.numNcps = parameters.getNumRegions() * parameters.getNcpsPerRegion();
+            this.numClients = parameters.getNumClients();
+            this.numRequests = numRequests;
+            this.numRequestsSucceeded = numRequestsSucceeded;
+            this.setupTime = setupTime;
+            this.wallTime = wallTime;
+            this.simulatedTime = simulatedTime;
+            this.eventCount = eventCount;
+        }
+
+        /**
+         * @return the number of regions in the scenario
+         */
+        public int getNumRegions() {
+            return numRegions;
+        }
+
+        /**
+         * @return the number of NCPs in the scenario
+         */
+        public int getNumNcps() {
+            return numNcps;
+        }
+
+        /**
+         * @return the number of client pools in the scenario
+         */
+        public int getNumClients() {
+            return numClients;
+        }
+
+        /**
+         * @return the number of client requests that were simulated
+         */
+        public int getNumRequests() {
+            return numRequests;
+        }
+
+        /**
+         * @return the number of client requests that succeeded
+         */
+        public int getNumRequestsSucceeded() {
+            return numRequestsSucceeded;
+        }
+
+        /**
+         * @return milliseconds to create the simulation
+         */
+        public long getSetupTime() {
+            return setupTime;
+        }
+
+        /**
+         * @return wall clock milliseconds from starting the clients until all
+         *         clients finished
+         */
+        public long getWallTime() {
+            return wallTime;
+        }
+
+        /**
+         * @return simulated milliseconds from starting the clients until all
+         *         clients finished
+         */
+        public long getSimulatedTime() {
+            return simulatedTime;
+        }
+
+        /**
+         * @return the number of events processed by the clock
+         */
+        public long getEventCount() {
+            return eventCount;
+        }
+
+        /**
+         * @return client requests simulated per second of wall clock time
+         */
+        public double getRequestsPerSecond() {
+            return wallTime > 0 ? numRequests * MILLIS_PER_SECOND / wallTime : 0;
+        }
+
+        /**
+         * @return simulated time divided by wall clock time
+         */
+        public double getSpeedup() {
+            return wallTime > 0 ? (double) simulatedTime / wallTime : 0;
+        }
+    }
+
+}
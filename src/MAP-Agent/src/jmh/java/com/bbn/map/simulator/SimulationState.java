@@ -0,0 +1,174 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.simulator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.bbn.map.AgentConfiguration;
+import com.bbn.map.Controller;
+import com.bbn.map.appmgr.util.AppMgrUtils;
+import com.bbn.map.common.value.ApplicationCoordinates;
+import com.bbn.map.scenario.ScenarioGenerator;
+import com.bbn.map.scenario.ScenarioParameters;
+import com.bbn.protelis.networkresourcemanagement.NetworkLink;
+import com.bbn.protelis.networkresourcemanagement.NetworkNode;
+import com.bbn.protelis.networkresourcemanagement.NodeIdentifier;
+import com.bbn.protelis.utils.SimpleClock;
+
+/**
+ * A {@link Simulation} created from a generated scenario that is shared by
+ * the benchmarks. The simulation is not started, the benchmarks call into the
+ * simulator objects directly. Arrays are used so that the benchmarks can cycle
+ * through the objects without allocating. Logging is turned off so that the
+ * benchmarks do not measure the log appenders.
+ */
+@State(Scope.Benchmark)
+public class SimulationState {
+
+    private static final int DNS_TTL = 60;
+    private static final int CLIENTS_PER_REGION = 2;
+    private static final int SERVICES_PER_REGION = 2;
+
+    /**
+     * Number of regions in the generated scenario.
+     */
+    @Param({ "2", "8" })
+    public int numRegions;
+
+    private Path directory;
+
+    /* package */ Simulation simulation;
+    /* package */ NetworkNode[] nodes;
+    /* package */ LinkResourceManager[] links;
+    /* package */ SimResourceManager[] resourceManagers;
+    /* package */ ContainerSim[] containers;
+    /* package */ Controller[] regionLeaders;
+    /* package */ ApplicationCoordinates[] services;
+
+    /**
+     * Generate the scenario and create the simulation.
+     *
+     * @throws IOException
+     *             if there is an error writing or reading the scenario
+     */
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Configurator.setAllLevels(LogManager.ROOT_LOGGER_NAME, org.apache.logging.log4j.Level.OFF);
+
+        final ScenarioParameters parameters = new ScenarioParameters();
+        parameters.setNumRegions(numRegions);
+        parameters.setNumClients(CLIENTS_PER_REGION * numRegions);
+        parameters.setNumServices(SERVICES_PER_REGION * numRegions);
+        parameters.setDemandDuration(Duration.ofMinutes(1));
+
+        directory = Files.createTempDirectory("jmh");
+        ScenarioGenerator.generate(parameters, directory);
+
+        simulation = new Simulation("jmh", directory.resolve(ScenarioGenerator.SCENARIO_DIRECTORY),
+                directory.resolve(ScenarioGenerator.DEMAND_DIRECTORY), new SimpleClock(),
+                AgentConfiguration.getInstance().getApRoundDuration().toMillis(), DNS_TTL,
+                AppMgrUtils::getContainerParameters);
+
+        // sort so that every trial visits the objects in the same order
+        final List<NetworkNode> sortedNodes = new ArrayList<>(simulation.getGraph().getVertices());
+        sortedNodes.sort(Comparator.comparing(node -> node.getNodeIdentifier().getName()));
+        nodes = sortedNodes.toArray(new NetworkNode[0]);
+
+        final List<LinkResourceManager> linkManagers = new ArrayList<>();
+        final List<NetworkLink> sortedLinks = new ArrayList<>(simulation.getGraph().getEdges());
+        sortedLinks.sort(Comparator.comparing(link -> link.getLeft().getNodeIdentifier().getName() + "|"
+                + link.getRight().getNodeIdentifier().getName()));
+        for (final NetworkLink link : sortedLinks) {
+            final LinkResourceManager manager = simulation.getLinkResourceManager(link);
+            if (null != manager) {
+                linkManagers.add(manager);
+            }
+        }
+        links = linkManagers.toArray(new LinkResourceManager[0]);
+
+        final List<Controller> controllers = new ArrayList<>(simulation.getAllControllers());
+        controllers.sort(Comparator.comparing(controller -> controller.getNodeIdentifier().getName()));
+
+        final List<SimResourceManager> managers = new ArrayList<>();
+        final List<ContainerSim> runningContainers = new ArrayList<>();
+        final List<Controller> leaders = new ArrayList<>();
+        for (final Controller controller : controllers) {
+            final SimResourceManager manager = simulation.getResourceManager(controller);
+            managers.add(manager);
+            for (final NodeIdentifier id : manager.getRunningContainerServices().keySet()) {
+                runningContainers.add(simulation.getContainerById(id));
+            }
+            if (controller.isRunRLG()) {
+                leaders.add(controller);
+            }
+        }
+        resourceManagers = managers.toArray(new SimResourceManager[0]);
+        containers = runningContainers.toArray(new ContainerSim[0]);
+        regionLeaders = leaders.toArray(new Controller[0]);
+
+        services = new ApplicationCoordinates[parameters.getNumServices()];
+        for (int i = 0; i < services.length; ++i) {
+            services[i] = ScenarioGenerator.getService(i);
+        }
+    }
+
+    /**
+     * Close the simulation and remove the scenario.
+     *
+     * @throws IOException
+     *             if there is an error removing the scenario
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        simulation.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+}
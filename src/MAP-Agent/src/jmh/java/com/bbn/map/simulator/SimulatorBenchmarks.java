@@ -0,0 +1,199 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.simulator;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.tuple.ImmutableTriple;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.bbn.map.common.value.ApplicationCoordinates;
+import com.bbn.protelis.networkresourcemanagement.LinkAttribute;
+import com.bbn.protelis.networkresourcemanagement.NetworkLink;
+import com.bbn.protelis.networkresourcemanagement.NodeAttribute;
+import com.bbn.protelis.networkresourcemanagement.NodeIdentifier;
+import com.bbn.protelis.networkresourcemanagement.NodeNetworkFlow;
+import com.bbn.protelis.networkresourcemanagement.RegionIdentifier;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Micro benchmarks of the simulator operations that are executed for every
+ * client request and every AP round. Each benchmark cycles through the
+ * objects in {@link SimulationState} so that the results are not dominated by
+ * a single link or container.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SimulatorBenchmarks {
+
+    private static final double REQUEST_DATARATE = 1;
+    private static final double REQUEST_LOAD = 0.1;
+    private static final long REQUEST_DURATION = 1;
+
+    private ClientLoad[] containerRequests;
+    private ImmutableMap<LinkAttribute, Double> networkLoad;
+    private ImmutableMap<LinkAttribute, Double> networkLoadFlipped;
+    private NodeIdentifier requestClient;
+    private RegionIdentifier requestRegion;
+
+    /**
+     * Increases on each call so that load entries from previous calls expire.
+     */
+    private long time;
+    private int index;
+
+    /**
+     * Create the requests that are applied to the containers and links.
+     *
+     * @param state
+     *            the simulation
+     */
+    @Setup(Level.Trial)
+    public void setup(final SimulationState state) {
+        final ImmutableMap<NodeAttribute, Double> nodeLoad = ImmutableMap.of(NodeAttribute.TASK_CONTAINERS,
+                REQUEST_LOAD);
+        final ImmutableMap<LinkAttribute, Double> requestNetworkLoad = ImmutableMap.of(LinkAttribute.DATARATE_TX,
+                REQUEST_DATARATE, LinkAttribute.DATARATE_RX, REQUEST_DATARATE);
+
+        containerRequests = new ClientLoad[state.containers.length];
+        for (int i = 0; i < containerRequests.length; ++i) {
+            containerRequests[i] = new ClientLoad(0, REQUEST_DURATION, REQUEST_DURATION, 1,
+                    (ApplicationCoordinates) state.containers[i].getService(), nodeLoad, requestNetworkLoad,
+                    ImmutableList.of());
+        }
+        if (containerRequests.length > 0) {
+            networkLoad = containerRequests[0].getNetworkLoadAsAttribute();
+            networkLoadFlipped = containerRequests[0].getNetworkLoadAsAttributeFlipped();
+        }
+
+        requestClient = state.simulation.getClientSimulators().get(0).getClient().getNodeIdentifier();
+        requestRegion = state.simulation.getRegionForNode(requestClient);
+    }
+
+    private int next(final int length) {
+        index = (index + 1) % length;
+        return index;
+    }
+
+    /**
+     * {@link LinkResourceManager#addLinkLoad(long, ImmutableMap, ImmutableMap, ApplicationCoordinates, long, NodeNetworkFlow, NodeIdentifier)}
+     * followed by removing the load.
+     *
+     * @param state
+     *            the simulation
+     * @return the result of adding the load
+     */
+    @Benchmark
+    public RequestResult addLinkLoad(final SimulationState state) {
+        final LinkResourceManager link = state.links[next(state.links.length)];
+        final NodeNetworkFlow flow = new NodeNetworkFlow(link.getReceiver(), link.getTransmitter(),
+                link.getReceiver());
+        final ImmutableTriple<RequestResult, LinkLoadEntry, ?> result = link.addLinkLoad(++time, networkLoad,
+                networkLoadFlipped, state.services[0], REQUEST_DURATION, flow, link.getTransmitter());
+        if (RequestResult.FAIL != result.getLeft()) {
+            link.removeLinkLoad(result.getMiddle());
+        }
+        return result.getLeft();
+    }
+
+    /**
+     * {@link ContainerSim#addNodeLoad(NodeIdentifier, long, long, RegionIdentifier, ClientLoad)}.
+     * Each call expires the load from the previous call to the container.
+     *
+     * @param state
+     *            the simulation
+     * @return the result of adding the load
+     */
+    @Benchmark
+    public RequestResult addNodeLoad(final SimulationState state) {
+        final int i = next(state.containers.length);
+        return state.containers[i].addNodeLoad(requestClient, ++time, REQUEST_DURATION, requestRegion,
+                containerRequests[i]);
+    }
+
+    /**
+     * {@link Simulation#getPath(com.bbn.protelis.networkresourcemanagement.NetworkNode, com.bbn.protelis.networkresourcemanagement.NetworkNode)}
+     * between pairs of nodes.
+     *
+     * @param state
+     *            the simulation
+     * @return the path
+     */
+    @Benchmark
+    public List<NetworkLink> getPath(final SimulationState state) {
+        final int source = next(state.nodes.length);
+        final int dest = (source * 7 + 3) % state.nodes.length;
+        return state.simulation.getPath(state.nodes[source], state.nodes[dest]);
+    }
+
+    /**
+     * {@link DNSSim#resolveService(String, com.bbn.protelis.networkresourcemanagement.ServiceIdentifier)}
+     * from the client region.
+     *
+     * @param state
+     *            the simulation
+     * @return the node that the service resolved to
+     */
+    @Benchmark
+    public NodeIdentifier resolveService(final SimulationState state) {
+        final DNSSim dns = state.simulation.getRegionalDNS(requestRegion);
+        return dns.resolveService(requestClient.getName(), state.services[next(state.services.length)]);
+    }
+
+    /**
+     * {@link SimResourceManager#updateResourceReports()} for one node.
+     *
+     * @param state
+     *            the simulation
+     */
+    @Benchmark
+    public void updateResourceReports(final SimulationState state) {
+        state.resourceManagers[next(state.resourceManagers.length)].updateResourceReports();
+    }
+
+}
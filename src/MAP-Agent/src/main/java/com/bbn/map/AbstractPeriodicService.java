@@ -33,18 +33,26 @@ package com.bbn.map;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Objects;
 
 import javax.annotation.Nonnull;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.bbn.map.simulator.DiscreteEventClock;
+import com.bbn.protelis.utils.VirtualClock;
+
 /**
  * Execute a method at regular intervals. Call {@link #execute()} based on the
  * period passed into the constructor. If the {@link #execute()} method takes
  * longer than the period, then there is no sleep, otherwise the service sleeps
  * the remaining duration.
  * 
+ * When given a {@link DiscreteEventClock} with {@link #setClock(VirtualClock)}
+ * the service runs as an actor of the clock and the period is measured in
+ * simulated time.
+ * 
  * @author jschewe
  *
  */
@@ -54,6 +62,12 @@ public abstract class AbstractPeriodicService extends AbstractService {
 
     private final Duration period;
 
+    private DiscreteEventClock clock = null;
+
+    private TimeSource timeSource = TimeSource.WALL_CLOCK;
+
+    private RandomSource randomSource = RandomSource.UNSEEDED;
+
     /**
      * 
      * @param name
@@ -66,6 +80,67 @@ public abstract class AbstractPeriodicService extends AbstractService {
         this.period = executePeriod;
     }
 
+    /**
+     * Must be called before the service is started to have an effect.
+     * 
+     * @param clock
+     *            if this is a {@link DiscreteEventClock} the service is
+     *            scheduled on it, otherwise the service uses the wall clock
+     */
+    public final void setClock(final VirtualClock clock) {
+        if (DiscreteEventClock.isDiscreteEvent(clock)) {
+            final DiscreteEventClock eventClock = (DiscreteEventClock) clock;
+            this.clock = eventClock;
+            this.timeSource = new TimeSource() {
+                @Override
+                public LocalDateTime now() {
+                    return eventClock.getCurrentDateTime();
+                }
+
+                @Override
+                public void sleep(final long millis) {
+                    eventClock.waitForDuration(millis);
+                }
+            };
+        } else {
+            this.clock = null;
+            this.timeSource = TimeSource.WALL_CLOCK;
+        }
+    }
+
+    /**
+     * The algorithms run by the service get their time from here so that they
+     * don't depend on the simulator.
+     * 
+     * @return the time of the clock passed to {@link #setClock(VirtualClock)}
+     *         if it is a {@link DiscreteEventClock}, otherwise
+     *         {@link TimeSource#WALL_CLOCK}
+     */
+    @Nonnull
+    public final TimeSource getTimeSource() {
+        return timeSource;
+    }
+
+    /**
+     * Must be called before the service is started to have an effect.
+     * 
+     * @param randomSource
+     *            see {@link #getRandomSource()}
+     */
+    public final void setRandomSource(@Nonnull final RandomSource randomSource) {
+        this.randomSource = Objects.requireNonNull(randomSource);
+    }
+
+    /**
+     * 
+     * @return where the algorithms run by the service get their random number
+     *         generators from, defaults to {@link RandomSource#UNSEEDED}
+     */
+    @Nonnull
+    public final RandomSource getRandomSource() {
+        return randomSource;
+    }
+
     /**
      * This is the amount of time that should elapse between calls to
      * {@link #execute()}.
@@ -80,6 +155,11 @@ public abstract class AbstractPeriodicService extends AbstractService {
     protected final void executeService() {
         LOGGER.debug("Started service {}", getName());
 
+        if (null != clock) {
+            executeDiscreteEvent();
+            return;
+        }
+
         while (Status.RUNNING == getStatus()) {
             final LocalDateTime beforePlan = LocalDateTime.now();
 
@@ -109,6 +189,31 @@ public abstract class AbstractPeriodicService extends AbstractService {
         LOGGER.debug("Stopped service {}", getName());
     }
 
+    @Override
+    protected final Runnable wrapServiceTask(final Runnable task) {
+        if (null == clock) {
+            return task;
+        } else {
+            // register before the thread starts so that the clock can't pass
+            // the first execution while the thread is starting
+            return clock.actor(task);
+        }
+    }
+
+    private void executeDiscreteEvent() {
+        while (Status.RUNNING == getStatus()) {
+            final long beforePlan = clock.getCurrentTime();
+
+            execute();
+
+            if (Status.RUNNING == getStatus()) {
+                clock.waitUntilTime(beforePlan + period.toMillis());
+            }
+        }
+
+        LOGGER.debug("Stopped service {}", getName());
+    }
+
     /**
      * Called by {@link #executeService()} at regular intervals.
      */
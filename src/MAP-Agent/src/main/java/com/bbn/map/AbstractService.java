@@ -117,12 +117,26 @@ public abstract class AbstractService {
         } else {
             setStatus(Status.RUNNING);
             synchronized (serviceThreadLock) {
-                serviceThread = new Thread(() -> executeService(), name);
+                serviceThread = new Thread(wrapServiceTask(() -> executeService()), name);
                 serviceThread.start();
             }
         }
     }
 
+    /**
+     * Called from {@link #startService()} before the service thread is
+     * started. Subclasses can wrap the task, for instance to register it with
+     * a clock before the thread runs.
+     * 
+     * @param task
+     *            the task that runs {@link #executeService()}
+     * @return the task to run in the service thread, this implementation
+     *         returns the task
+     */
+    protected Runnable wrapServiceTask(final Runnable task) {
+        return task;
+    }
+
     /**
      * Stop the service by setting status to {@link Status#STOPPING},
      * interrupting the read and then waiting until the thread has exited.
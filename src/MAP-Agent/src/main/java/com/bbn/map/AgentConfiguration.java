@@ -366,6 +366,75 @@ public final class AgentConfiguration {
     private static final long DEFAULT_SERVICE_SHUTDOWN_WAIT_TIME_SECONDS = 30;
     private Duration serviceShutdownWaitTime = Duration.ofSeconds(DEFAULT_SERVICE_SHUTDOWN_WAIT_TIME_SECONDS);
 
+    private static final int DEFAULT_CONTAINER_LIFECYCLE_PARALLELISM = 1;
+    private int containerLifecycleParallelism = DEFAULT_CONTAINER_LIFECYCLE_PARALLELISM;
+
+    /**
+     * The maximum number of container starts and stops that a node executes
+     * at the same time when applying an RLG plan.
+     * 
+     * @return the number of transitions that can run at the same time, at
+     *         least 1
+     */
+    public int getContainerLifecycleParallelism() {
+        return containerLifecycleParallelism;
+    }
+
+    /**
+     * 
+     * @param v
+     *            see {@link #getContainerLifecycleParallelism()}
+     */
+    public void setContainerLifecycleParallelism(final int v) {
+        containerLifecycleParallelism = v;
+    }
+
+    private static final int DEFAULT_CONTAINER_LIFECYCLE_MAX_TRANSITIONS_PER_BATCH = 0;
+    private int containerLifecycleMaxTransitionsPerBatch = DEFAULT_CONTAINER_LIFECYCLE_MAX_TRANSITIONS_PER_BATCH;
+
+    /**
+     * The maximum number of container starts and stops that a node executes
+     * before waiting {@link #getContainerLifecycleBatchInterval()}. This
+     * spreads out the transitions from large changes in the RLG plan.
+     * 
+     * @return the number of transitions per group, 0 or less for no limit
+     */
+    public int getContainerLifecycleMaxTransitionsPerBatch() {
+        return containerLifecycleMaxTransitionsPerBatch;
+    }
+
+    /**
+     * 
+     * @param v
+     *            see {@link #getContainerLifecycleMaxTransitionsPerBatch()}
+     */
+    public void setContainerLifecycleMaxTransitionsPerBatch(final int v) {
+        containerLifecycleMaxTransitionsPerBatch = v;
+    }
+
+    private static final long DEFAULT_CONTAINER_LIFECYCLE_BATCH_INTERVAL_MS = 0;
+    private Duration containerLifecycleBatchInterval = Duration
+            .ofMillis(DEFAULT_CONTAINER_LIFECYCLE_BATCH_INTERVAL_MS);
+
+    /**
+     * 
+     * @return how long to wait between groups of container transitions, see
+     *         {@link #getContainerLifecycleMaxTransitionsPerBatch()}
+     */
+    @Nonnull
+    public Duration getContainerLifecycleBatchInterval() {
+        return containerLifecycleBatchInterval;
+    }
+
+    /**
+     * 
+     * @param v
+     *            see {@link #getContainerLifecycleBatchInterval()}
+     */
+    public void setContainerLifecycleBatchInterval(@Nonnull final Duration v) {
+        containerLifecycleBatchInterval = v;
+    }
+
     private static final int DEFAULT_DCOP_ITERATION_LIMIT = 10;
     private int dcopIterationLimit = DEFAULT_DCOP_ITERATION_LIMIT;
 
@@ -426,6 +495,32 @@ public final class AgentConfiguration {
         dcopAlgorithm = algorithm;
     }
 
+    private static final boolean DEFAULT_DCOP_WARM_START = false;
+    private boolean dcopWarmStart = DEFAULT_DCOP_WARM_START;
+
+    /**
+     * If true, the DCOP algorithm object is kept between DCOP rounds and the
+     * tree, plans and proposals from the previous round seed the next round.
+     * If false, a new algorithm object is created each round. This is only
+     * supported by {@link DcopAlgorithm#FINAL_RCDIFF}, other algorithms always
+     * start each round from scratch and DCOP logs a warning when this is true
+     * for one of them.
+     *
+     * @return true if DCOP should keep state between rounds
+     */
+    public boolean getDcopWarmStart() {
+        return dcopWarmStart;
+    }
+
+    /**
+     *
+     * @param v
+     *            see {@link #getDcopWarmStart()}
+     */
+    public void setDcopWarmStart(final boolean v) {
+        dcopWarmStart = v;
+    }
+
     /**
      * Available DCOP algorithms to be run.
      * 
@@ -770,7 +865,22 @@ public final class AgentConfiguration {
         /**
          * Pick the NCP with the lowest load percentage.
          */
-        LOWEST_LOAD_PERCENTAGE;
+        LOWEST_LOAD_PERCENTAGE,
+        /**
+         * Pick the NCP with the lowest combination of load percentage and
+         * network path cost from where the demand for the service enters the
+         * region. The path cost uses the hop count and the utilization of the
+         * links on the path.
+         */
+        LOWEST_PATH_COST,
+        /**
+         * Pick the first NCP with available capacity that follows the
+         * service on a consistent hash ring of the NCPs in the region. A
+         * service keeps going to the same NCPs as NCPs are added. The number
+         * of positions on the ring for each NCP is
+         * {@link AgentConfiguration#getRlgHashRingVirtualNodes()}.
+         */
+        CONSISTENT_HASH;
     }
 
     private static final RlgStubChooseNcp DEFAULT_RLG_STUB_CHOOSE = RlgStubChooseNcp.MOST_AVAILABLE_CONTAINERS;
@@ -1593,6 +1703,132 @@ public final class AgentConfiguration {
         rlgStopForDcop = v;
     }
 
+    private static final boolean DEFAULT_RLG_INCREMENTAL_PLANNING = false;
+    private boolean rlgIncrementalPlanning = DEFAULT_RLG_INCREMENTAL_PLANNING;
+
+    /**
+     * If true, the bin packing RLG algorithm reuses the per-report and
+     * per-service work from the previous round for reports that have not
+     * changed. The scale up, overload and shutdown decisions from the previous
+     * round are reused for services whose inputs have not changed. The plans
+     * are the same either way. This is read when RLG is created. Defaults to
+     * false.
+     *
+     * @return true if RLG should compute its inputs incrementally
+     */
+    public boolean getRlgIncrementalPlanning() {
+        return rlgIncrementalPlanning;
+    }
+
+    /**
+     *
+     * @param v
+     *            see {@link #getRlgIncrementalPlanning()}
+     */
+    public void setRlgIncrementalPlanning(final boolean v) {
+        rlgIncrementalPlanning = v;
+    }
+
+    private static final boolean DEFAULT_RLG_PREDICTIVE_ALLOCATION = false;
+    private boolean rlgPredictiveAllocation = DEFAULT_RLG_PREDICTIVE_ALLOCATION;
+
+    /**
+     * If true, the bin packing RLG algorithm uses the trend of the compute
+     * demand to start containers for a service before the demand is forecast
+     * to cross {@link #getRlgLoadThreshold()}. Services that are forecast to
+     * cross the threshold are not scheduled for shutdown. This is read when
+     * RLG is created.
+     *
+     * @return true if RLG should start containers ahead of forecast demand
+     * @see #getRlgPredictiveAllocationHorizon()
+     * @see #getRlgPredictiveAllocationWindow()
+     */
+    public boolean getRlgPredictiveAllocation() {
+        return rlgPredictiveAllocation;
+    }
+
+    /**
+     *
+     * @param v
+     *            see {@link #getRlgPredictiveAllocation()}
+     */
+    public void setRlgPredictiveAllocation(final boolean v) {
+        rlgPredictiveAllocation = v;
+    }
+
+    private static final long DEFAULT_RLG_PREDICTIVE_ALLOCATION_HORIZON_SECONDS = 60;
+    private Duration rlgPredictiveAllocationHorizon = Duration
+            .ofSeconds(DEFAULT_RLG_PREDICTIVE_ALLOCATION_HORIZON_SECONDS);
+
+    /**
+     * How far ahead RLG looks when {@link #getRlgPredictiveAllocation()} is
+     * true. This should cover the time for a new plan to be published and the
+     * containers to start.
+     *
+     * @return the forecast horizon
+     */
+    public Duration getRlgPredictiveAllocationHorizon() {
+        return rlgPredictiveAllocationHorizon;
+    }
+
+    /**
+     *
+     * @param v
+     *            see {@link #getRlgPredictiveAllocationHorizon()}
+     */
+    public void setRlgPredictiveAllocationHorizon(final Duration v) {
+        rlgPredictiveAllocationHorizon = v;
+    }
+
+    private static final int DEFAULT_RLG_PREDICTIVE_ALLOCATION_WINDOW = 3;
+    private int rlgPredictiveAllocationWindow = DEFAULT_RLG_PREDICTIVE_ALLOCATION_WINDOW;
+
+    /**
+     * The number of RLG rounds of compute demand that the trend is fitted over
+     * when {@link #getRlgPredictiveAllocation()} is true. A longer window is
+     * less sensitive to noise in the demand estimate, but is slower to follow
+     * a change in the trend. Must be at least 2. This is read when RLG is
+     * created.
+     *
+     * @return the number of rounds
+     */
+    public int getRlgPredictiveAllocationWindow() {
+        return rlgPredictiveAllocationWindow;
+    }
+
+    /**
+     *
+     * @param v
+     *            see {@link #getRlgPredictiveAllocationWindow()}
+     */
+    public void setRlgPredictiveAllocationWindow(final int v) {
+        rlgPredictiveAllocationWindow = v;
+    }
+
+    private static final int DEFAULT_RLG_HASH_RING_VIRTUAL_NODES = 64;
+    private int rlgHashRingVirtualNodes = DEFAULT_RLG_HASH_RING_VIRTUAL_NODES;
+
+    /**
+     * The number of positions that each NCP has on the consistent hash ring
+     * used when {@link #getRlgStubChooseNcp()} is
+     * {@link RlgStubChooseNcp#CONSISTENT_HASH}. More positions spread the
+     * services more evenly across the NCPs. This is read when RLG is created.
+     *
+     * @return the number of virtual nodes per NCP
+     */
+    public int getRlgHashRingVirtualNodes() {
+        return rlgHashRingVirtualNodes;
+    }
+
+    /**
+     *
+     * @param v
+     *            see {@link #getRlgHashRingVirtualNodes()}
+     */
+    public void setRlgHashRingVirtualNodes(final int v) {
+        rlgHashRingVirtualNodes = v;
+    }
+
     /**
      * Algorithm to use to compute link delay.
      * 
@@ -0,0 +1,484 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map;
+
+
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.GuardedBy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bbn.map.metrics.Counter;
+import com.bbn.map.metrics.MetricHistogram;
+import com.bbn.map.metrics.MetricsRegistry;
+import com.bbn.protelis.networkresourcemanagement.NodeIdentifier;
+import com.bbn.protelis.networkresourcemanagement.ServiceIdentifier;
+import com.bbn.protelis.utils.VirtualClock;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Applies the container starts and stops for a node. The changes from a plan
+ * are collected into a {@link Batch}. A start that is queued in the batch can
+ * be cancelled with {@link Batch#cancelStart(ServiceIdentifier)} before the
+ * batch is executed, for instance when a running container that is not in the
+ * plan will serve the service instead. A stop of a container running a
+ * service cancels a queued start of the same service, the plan is removing
+ * capacity for the service on the node so the start would be undone by a
+ * later plan. A stop of a container that already exists is never cancelled.
+ * The transitions are executed in groups of at most
+ * {@link AgentConfiguration#getContainerLifecycleMaxTransitionsPerBatch()}
+ * with up to {@link AgentConfiguration#getContainerLifecycleParallelism()}
+ * transitions running at the same time, waiting
+ * {@link AgentConfiguration#getContainerLifecycleBatchInterval()} between
+ * groups. The time taken by each transition is recorded in
+ * {@link TransitionStatistics} and in the {@link MetricsRegistry} as
+ * container.lifecycle.START and container.lifecycle.STOP, with the failures
+ * and cancelled starts as counters.
+ */
+/* package */ final class ContainerLifecycleExecutor implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ContainerLifecycleExecutor.class);
+
+    private static final double NANOS_PER_MILLI = 1E6;
+
+    private static final String METRIC_PREFIX = "container.lifecycle";
+
+    private static final Counter CANCELLED_STARTS = MetricsRegistry.getInstance()
+            .counter(METRIC_PREFIX + ".cancelledStarts");
+
+    /**
+     * The type of container lifecycle transition.
+     */
+    /* package */ enum Transition {
+        /**
+         * Start a container for a service.
+         */
+        START,
+        /**
+         * Stop a container.
+         */
+        STOP;
+    }
+
+    private static final Map<Transition, MetricHistogram> TRANSITION_DURATIONS = new EnumMap<>(Transition.class);
+    private static final Map<Transition, Counter> TRANSITION_FAILURES = new EnumMap<>(Transition.class);
+    static {
+        for (final Transition transition : Transition.values()) {
+            TRANSITION_DURATIONS.put(transition,
+                    MetricsRegistry.getInstance().histogram(METRIC_PREFIX + "." + transition.name()));
+            TRANSITION_FAILURES.put(transition,
+                    MetricsRegistry.getInstance().counter(METRIC_PREFIX + "." + transition.name() + ".failures"));
+        }
+    }
+
+    /**
+     * The container changes requested by one plan.
+     */
+    /* package */ static final class Batch {
+        private final List<ServiceIdentifier<?>> starts = new LinkedList<>();
+        private final List<NodeIdentifier> stops = new LinkedList<>();
+        private int cancelled = 0;
+
+        /**
+         * @param service
+         *            start a new container for this service
+         */
+        /* package */ void addStart(@Nonnull final ServiceIdentifier<?> service) {
+            starts.add(service);
+        }
+
+        /**
+         * Cancel a start that was queued in this batch.
+         * 
+         * @param service
+         *            the service of the start to cancel
+         * @return true if a start of the service was queued and has been
+         *         removed
+         */
+        /* package */ boolean cancelStart(@Nonnull final ServiceIdentifier<?> service) {
+            if (starts.remove(service)) {
+                ++cancelled;
+                return true;
+            } else {
+                return false;
+            }
+        }
+
+        /**
+         * Queue a stop. If a start of the same service is queued in this batch
+         * it is cancelled, the stop is always executed.
+         * 
+         * @param container
+         *            the container to stop
+         * @param service
+         *            the service running in the container, null if not known.
+         *            A stop with an unknown service does not cancel a start.
+         * @return true if a queued start was cancelled
+         */
+        /* package */ boolean addStop(@Nonnull final NodeIdentifier container, final ServiceIdentifier<?> service) {
+            stops.add(container);
+            return null != service && cancelStart(service);
+        }
+
+        /**
+         * @return true if there is nothing to do
+         */
+        /* package */ boolean isEmpty() {
+            return starts.isEmpty() && stops.isEmpty();
+        }
+    }
+
+    /**
+     * Timing information for one type of {@link Transition}.
+     */
+    /* package */ static final class TransitionStatistics {
+        private final long count;
+        private final long failures;
+        private final long totalNanos;
+        private final long maxNanos;
+
+        private TransitionStatistics(final long count, final long failures, final long totalNanos, final long maxNanos) {
+            this.count = count;
+            this.failures = failures;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        /**
+         * @return the number of transitions executed
+         */
+        /* package */ long getCount() {
+            return count;
+        }
+
+        /**
+         * @return the number of transitions that failed
+         */
+        /* package */ long getFailures() {
+            return failures;
+        }
+
+        /**
+         * @return the total time spent executing transitions
+         */
+        /* package */ Duration getTotalDuration() {
+            return Duration.ofNanos(totalNanos);
+        }
+
+        /**
+         * @return the longest time taken by a single transition
+         */
+        /* package */ Duration getMaxDuration() {
+            return Duration.ofNanos(maxNanos);
+        }
+
+        /**
+         * @return the mean time taken by a transition, zero if there have been
+         *         no transitions
+         */
+        /* package */ Duration getMeanDuration() {
+            return count > 0 ? Duration.ofNanos(totalNanos / count) : Duration.ZERO;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count: %d failures: %d mean: %.3f ms max: %.3f ms", count, failures,
+                    count > 0 ? totalNanos / NANOS_PER_MILLI / count : 0, maxNanos / NANOS_PER_MILLI);
+        }
+    }
+
+    private final String name;
+    private final int maxTransitionsPerBatch;
+    private final Duration batchInterval;
+    private final VirtualClock clock;
+    private final Function<ServiceIdentifier<?>, NodeIdentifier> startContainer;
+    private final Predicate<NodeIdentifier> stopContainer;
+
+    /**
+     * Null if the parallelism is 1, then the transitions are executed on the
+     * calling thread.
+     */
+    private final ExecutorService pool;
+
+    private final Object lock = new Object();
+
+    @GuardedBy("lock")
+    private final long[] counts = new long[Transition.values().length];
+    @GuardedBy("lock")
+    private final long[] failures = new long[Transition.values().length];
+    @GuardedBy("lock")
+    private final long[] totalNanos = new long[Transition.values().length];
+    @GuardedBy("lock")
+    private final long[] maxNanos = new long[Transition.values().length];
+    @GuardedBy("lock")
+    private long coalesced = 0;
+
+    /**
+     * @param name
+     *            used for logging and thread names
+     * @param parallelism
+     *            the maximum number of transitions to execute at the same
+     *            time
+     * @param maxTransitionsPerBatch
+     *            the maximum number of transitions to execute before waiting
+     *            for {@code batchInterval}, 0 or less for no limit
+     * @param batchInterval
+     *            how long to wait between groups of transitions
+     * @param clock
+     *            used to wait between groups of transitions
+     * @param startContainer
+     *            start a container for a service and return its identifier,
+     *            null if the container could not be started
+     * @param stopContainer
+     *            stop a container and return true on success
+     * @throws IllegalArgumentException
+     *             if {@code parallelism} is less than 1
+     */
+    /* package */ ContainerLifecycleExecutor(@Nonnull final String name,
+            final int parallelism,
+            final int maxTransitionsPerBatch,
+            @Nonnull final Duration batchInterval,
+            @Nonnull final VirtualClock clock,
+            @Nonnull final Function<ServiceIdentifier<?>, NodeIdentifier> startContainer,
+            @Nonnull final Predicate<NodeIdentifier> stopContainer) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Container lifecycle parallelism must be at least 1: " + parallelism);
+        }
+        this.name = name;
+        this.maxTransitionsPerBatch = maxTransitionsPerBatch;
+        this.batchInterval = batchInterval;
+        this.clock = clock;
+        this.startContainer = startContainer;
+        this.stopContainer = stopContainer;
+
+        if (parallelism > 1) {
+            final ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat(name + "-lifecycle-%d")
+                    .setDaemon(true).build();
+            this.pool = Executors.newFixedThreadPool(parallelism, threadFactory);
+        } else {
+            this.pool = null;
+        }
+    }
+
+    /**
+     * Execute the batch. Returns once all transitions have been executed.
+     * 
+     * @param batch
+     *            the changes to make
+     */
+    /* package */ void execute(@Nonnull final Batch batch) {
+        final List<ServiceIdentifier<?>> starts = new ArrayList<>(batch.starts);
+        final List<NodeIdentifier> stops = new ArrayList<>(batch.stops);
+        final int batchCoalesced = batch.cancelled;
+
+        // starts first, then stops, the same order as the plan was applied
+        // before there was an executor
+        final List<Callable<Void>> transitions = new ArrayList<>(starts.size() + stops.size());
+        starts.forEach(service -> transitions.add(() -> {
+            start(service);
+            return null;
+        }));
+        stops.forEach(container -> transitions.add(() -> {
+            stop(container);
+            return null;
+        }));
+
+        final long start = System.nanoTime();
+        final int groupSize = maxTransitionsPerBatch > 0 ? maxTransitionsPerBatch : Math.max(1, transitions.size());
+        for (int index = 0; index < transitions.size(); index += groupSize) {
+            if (index > 0 && !batchInterval.isZero() && !batchInterval.isNegative()) {
+                clock.waitForDuration(batchInterval.toMillis());
+            }
+
+            final List<Callable<Void>> group = transitions.subList(index,
+                    Math.min(transitions.size(), index + groupSize));
+            if (!executeGroup(group)) {
+                break;
+            }
+        }
+
+        synchronized (lock) {
+            coalesced += batchCoalesced;
+        }
+        CANCELLED_STARTS.add(batchCoalesced);
+
+        LOGGER.debug("{}: executed {} starts and {} stops, cancelled {} starts in {} ms", name,
+                starts.size(), stops.size(), batchCoalesced,
+                String.format("%.3f", (System.nanoTime() - start) / NANOS_PER_MILLI));
+    }
+
+    /**
+     * @return false if the group could not be completed and the rest of the
+     *         batch should be abandoned
+     */
+    private boolean executeGroup(final List<Callable<Void>> group) {
+        if (null == pool) {
+            for (final Callable<Void> transition : group) {
+                try {
+                    transition.call();
+                } catch (final Exception e) {
+                    LOGGER.error("{}: unexpected error executing a container transition", name, e);
+                }
+            }
+            return true;
+        } else {
+            try {
+                // exceptions are logged by start and stop
+                pool.invokeAll(group);
+                return true;
+            } catch (final InterruptedException e) {
+                LOGGER.warn("{}: interrupted waiting for container transitions, abandoning the rest of the batch", name,
+                        e);
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (final RejectedExecutionException e) {
+                LOGGER.warn("{}: executor has been shutdown, abandoning the rest of the batch", name, e);
+                return false;
+            }
+        }
+    }
+
+    private void start(final ServiceIdentifier<?> service) {
+        final long begin = System.nanoTime();
+        NodeIdentifier container = null;
+        try {
+            container = startContainer.apply(service);
+        } catch (final RuntimeException e) {
+            LOGGER.error("{}: error starting container for service {}", name, service, e);
+        }
+        record(Transition.START, null != container, System.nanoTime() - begin);
+
+        if (null == container) {
+            LOGGER.warn("Unable to allocate/start container for service {} on node {}", service, name);
+        } else {
+            LOGGER.trace("Started container {} for service {}", container, service);
+        }
+    }
+
+    private void stop(final NodeIdentifier container) {
+        LOGGER.trace("Stopping container {}", container);
+
+        final long begin = System.nanoTime();
+        boolean result = false;
+        try {
+            result = stopContainer.test(container);
+        } catch (final RuntimeException e) {
+            LOGGER.error("{}: error stopping container {}", name, container, e);
+        }
+        record(Transition.STOP, result, System.nanoTime() - begin);
+
+        if (!result) {
+            LOGGER.warn("Unable to stop service on container: {}", container);
+        }
+    }
+
+    private void record(final Transition transition, final boolean success, final long nanos) {
+        final int index = transition.ordinal();
+        synchronized (lock) {
+            ++counts[index];
+            if (!success) {
+                ++failures[index];
+            }
+            totalNanos[index] += nanos;
+            maxNanos[index] = Math.max(maxNanos[index], nanos);
+        }
+
+        TRANSITION_DURATIONS.get(transition).record(nanos);
+        if (!success) {
+            TRANSITION_FAILURES.get(transition).increment();
+        }
+    }
+
+    /**
+     * @param transition
+     *            the type of transition
+     * @return the timing information for the transition since this object was
+     *         created
+     */
+    /* package */ TransitionStatistics getStatistics(@Nonnull final Transition transition) {
+        final int index = transition.ordinal();
+        synchronized (lock) {
+            return new TransitionStatistics(counts[index], failures[index], totalNanos[index], maxNanos[index]);
+        }
+    }
+
+    /**
+     * @return the timing information for each type of transition
+     */
+    /* package */ Map<Transition, TransitionStatistics> getStatistics() {
+        final Map<Transition, TransitionStatistics> result = new LinkedHashMap<>();
+        for (final Transition transition : Transition.values()) {
+            result.put(transition, getStatistics(transition));
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * @return the number of queued starts that were cancelled before their
+     *         batch was executed
+     */
+    /* package */ long getCoalescedCount() {
+        synchronized (lock) {
+            return coalesced;
+        }
+    }
+
+    /**
+     * Stop the worker threads. Transitions that are executing are allowed to
+     * finish.
+     */
+    @Override
+    public void close() {
+        if (null != pool) {
+            pool.shutdown();
+        }
+    }
+
+}
@@ -40,8 +40,6 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.time.Duration;
-import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -64,7 +62,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.bbn.map.AbstractService.Status;
-import com.bbn.map.AgentConfiguration.LinkDelayAlgorithm;
 import com.bbn.map.ap.ApLogger;
 import com.bbn.map.ap.ImmutableDcopSharedInformation;
 import com.bbn.map.ap.TotalDemand;
@@ -79,16 +76,23 @@ import com.bbn.map.dcop.DcopSharedInformation;
 import com.bbn.map.dns.DnsRecord;
 import com.bbn.map.dns.NameRecord;
 import com.bbn.map.dns.PlanTranslator;
+import com.bbn.map.dump.CapturedStateDump;
+import com.bbn.map.dump.DirectoryStateDump;
+import com.bbn.map.dump.PeriodicDumper;
+import com.bbn.map.dump.StateDump;
+import com.bbn.map.dump.StateStore;
+import com.bbn.map.metrics.MetricHistogram;
+import com.bbn.map.metrics.MetricsRegistry;
 import com.bbn.map.rlg.RLGService;
 import com.bbn.map.rlg.RlgInfoProvider;
+import com.bbn.map.simulator.DiscreteEventClock;
 import com.bbn.map.simulator.Simulation;
+import com.bbn.map.simulator.SimulationConfiguration;
 import com.bbn.map.simulator.SimulationRunner;
 import com.bbn.map.ta2.OverlayTopology;
 import com.bbn.map.ta2.RegionalTopology;
 import com.bbn.map.utils.JsonUtils;
 import com.bbn.map.utils.MAPServices;
-import com.bbn.protelis.networkresourcemanagement.ContainerResourceReport;
-import com.bbn.protelis.networkresourcemanagement.InterfaceIdentifier;
 import com.bbn.protelis.networkresourcemanagement.LinkAttribute;
 import com.bbn.protelis.networkresourcemanagement.LoadBalancerPlan;
 import com.bbn.protelis.networkresourcemanagement.LoadBalancerPlan.ContainerInfo;
@@ -96,7 +100,6 @@ import com.bbn.protelis.networkresourcemanagement.NetworkServer;
 import com.bbn.protelis.networkresourcemanagement.NodeAttribute;
 import com.bbn.protelis.networkresourcemanagement.NodeIdentifier;
 import com.bbn.protelis.networkresourcemanagement.NodeLookupService;
-import com.bbn.protelis.networkresourcemanagement.NodeNetworkFlow;
 import com.bbn.protelis.networkresourcemanagement.RegionIdentifier;
 import com.bbn.protelis.networkresourcemanagement.RegionLookupService;
 import com.bbn.protelis.networkresourcemanagement.RegionNetworkFlow;
@@ -109,7 +112,6 @@ import com.bbn.protelis.networkresourcemanagement.ResourceReport.EstimationWindo
 import com.bbn.protelis.networkresourcemanagement.ResourceSummary;
 import com.bbn.protelis.networkresourcemanagement.ServiceIdentifier;
 import com.bbn.protelis.networkresourcemanagement.ServiceReport;
-import com.bbn.protelis.utils.ImmutableUtils;
 import com.bbn.protelis.utils.VirtualClock;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.ObjectWriter;
@@ -153,7 +155,6 @@ public class Controller extends NetworkServer implements DcopInfoProvider, RlgIn
 
     private final Logger logger;
     private final Logger apLogger;
-    private static final Logger LOGGER = LoggerFactory.getLogger(Controller.class);
 
     private final NetworkServices networkServices;
     private final boolean allowDnsChanges;
@@ -162,6 +163,7 @@ public class Controller extends NetworkServer implements DcopInfoProvider, RlgIn
 
     private final DnsManagementThread dnsManagementThread;
     private final ContainerManagementThread containerManagementThread;
+    private final ContainerLifecycleExecutor containerLifecycleExecutor;
 
     private final ApplicationManagerApi applicationManager;
 
@@ -215,12 +217,18 @@ public class Controller extends NetworkServer implements DcopInfoProvider, RlgIn
             final NodeLookupService dcopNodeLookup) {
         super(nodeLookupService, program, name, manager, extraData);
         this.regionLookupService = regionLookupService;
+        this.dcopSummaryAggregator = new ResourceSummaryAggregator(getRegionIdentifier(), regionLookupService);
+        this.rlgSummaryAggregator = new ResourceSummaryAggregator(getRegionIdentifier(), regionLookupService);
         this.logger = LoggerFactory.getLogger(Controller.class.getName() + "." + name);
         this.apLogger = LoggerFactory.getLogger("com.bbn.map.ap.program." + name);
         this.applicationManager = AppMgrUtils.getApplicationManager();
 
         this.dcop = new DCOPService(name.getName(), getRegionIdentifier(), this, this.applicationManager);
         this.rlg = new RLGService(name.getName(), getRegionIdentifier(), this, this.applicationManager);
+        this.dcop.setClock(manager.getClock());
+        this.rlg.setClock(manager.getClock());
+        this.dcop.setRandomSource(SimulationConfiguration.getInstance()::getRandom);
+        this.rlg.setRandomSource(SimulationConfiguration.getInstance()::getRandom);
         this.networkServices = networkServices;
         this.allowDnsChanges = allowDnsChanges;
         this.enableDcop = enableDcop
@@ -230,6 +238,13 @@ public class Controller extends NetworkServer implements DcopInfoProvider, RlgIn
         this.dnsPrevRegionServiceState = null;
         this.dcopNodeLookup = dcopNodeLookup;
 
+        this.containerLifecycleExecutor = new ContainerLifecycleExecutor(name.getName(),
+                AgentConfiguration.getInstance().getContainerLifecycleParallelism(),
+                AgentConfiguration.getInstance().getContainerLifecycleMaxTransitionsPerBatch(),
+                AgentConfiguration.getInstance().getContainerLifecycleBatchInterval(), manager.getClock(),
+                service -> manager.startService(service, AppMgrUtils.getContainerParameters(service)),
+                manager::stopService);
+
         this.containerManagementThread = new ContainerManagementThread(this);
         this.containerManagementThread.start();
 
@@ -240,11 +255,18 @@ public class Controller extends NetworkServer implements DcopInfoProvider, RlgIn
         setRunRLG(ControllerProperties.isRunningRlg(extraData));
         setHandleDnsChanges(ControllerProperties.isHandlingDnsChanges(extraData));
 
-        setSleepTime(AgentConfiguration.getInstance().getApRoundDuration().toMillis());
+        if (DiscreteEventClock.isDiscreteEvent(manager.getClock())) {
+            // AP rounds are paced by the clock in postRunCycle
+            setSleepTime(0);
+        } else {
+            setSleepTime(AgentConfiguration.getInstance().getApRoundDuration().toMillis());
+        }
 
-        final Thread dumperThread = new Thread(() -> dumperWorker(), String.format("%s dumper", getName()));
-        dumperThread.setDaemon(true);
-        dumperThread.start();
+        this.dumper = new PeriodicDumper(getName(), manager.getClock(), this::getDumpInterval, this::isDumpEnabled,
+                this::captureDump);
+        this.dumperThread = new Thread(dumper, String.format("%s dumper", getName()));
+        this.dumperThread.setDaemon(true);
+        this.dumperThread.start();
 
         logger.info("Running git version {}", SimulationRunner.getGitVersionInformation());
 
@@ -292,7 +314,7 @@ public class Controller extends NetworkServer implements DcopInfoProvider, RlgIn
     private final Object algorithmStartLock = new Object();
 
     private long algorithmStartTime = -1;
-    private boolean algorithmsRunning = false;
+    private volatile boolean algorithmsRunning = false;
 
     /**
      * Specify the time that the DCOP and RLG algorithms should start running.
@@ -316,8 +338,35 @@ public class Controller extends NetworkServer implements DcopInfoProvider, RlgIn
         }
     }
 
+    /**
+     * Time of the next AP round when using a {@link DiscreteEventClock}, only
+     * accessed from the AP thread.
+     */
+    private long nextApRoundTime = -1;
+
+    /**
+     * With a {@link DiscreteEventClock} the AP thread is an actor of the clock
+     * and each round waits on the clock until the start of the next round.
+     */
+    private void waitForNextApRound() {
+        final VirtualClock clock = getResourceManager().getClock();
+        if (!DiscreteEventClock.isDiscreteEvent(clock)) {
+            return;
+        }
+
+        final DiscreteEventClock eventClock = (DiscreteEventClock) clock;
+        if (nextApRoundTime < 0) {
+            eventClock.addActor();
+            nextApRoundTime = eventClock.getCurrentTime();
+        }
+        nextApRoundTime += AgentConfiguration.getInstance().getApRoundDuration().toMillis();
+        eventClock.waitUntilTime(nextApRoundTime);
+    }
+
     @Override
     protected void postRunCycle() {
+        waitForNextApRound();
+
         if (!isExecuting()) {
             // don't do anything if we're not executing
             return;
@@ -331,6 +380,7 @@ public class Controller extends NetworkServer implements DcopInfoProvider, RlgIn
                     // use this boolean to avoid needing to check the clock once
                     // the algorithms have started
                     algorithmsRunning = true;
+                    dumper.stateChanged();
                 }
             }
         }
@@ -579,16 +629,15 @@ public class Controller extends NetworkServer implements DcopInfoProvider, RlgIn
             logger.trace("Manging containers RLG service plan for this node: {}", nodeServicePlan);
 
             if (null != nodeServicePlan) {
-                final Map<ServiceIdentifier<?>, Collection<LoadBalancerPlan.ContainerInfo>> containersToStart = new HashMap<>();
+                final ContainerLifecycleExecutor.Batch batch = new ContainerLifecycleExecutor.Batch();
+
+                // start the needed containers
                 nodeServicePlan.forEach(containerInfo -> {
                     if (null == containerInfo.getId() && !containerInfo.isStop()) {
-                        containersToStart.computeIfAbsent(containerInfo.getService(), k -> new LinkedList<>())
-                                .add(containerInfo);
+                        batch.addStart(containerInfo.getService());
                     }
                 });
 
-                logger.trace("Containers to start: {}", containersToStart);
-
                 // check if need to start new instances of services
                 final ServiceReport serviceReport = resMgr.getServiceReport();
                 serviceReport.getServiceState().forEach((container, serviceState) -> {
@@ -597,14 +646,10 @@ public class Controller extends NetworkServer implements DcopInfoProvider, RlgIn
                     if (!inPlan.isPresent()) {
                         // container is not in the plan, remove from the list of
                         // containers to start for the same service
-                        final Collection<LoadBalancerPlan.ContainerInfo> toStart = containersToStart
-                                .getOrDefault(serviceState.getService(), Collections.emptySet());
-                        if (!toStart.isEmpty()) {
+                        if (batch.cancelStart(serviceState.getService())) {
                             logger.trace(
                                     "{} is not in the plan and is running service {}. Removing from containers to start",
                                     container, serviceState.getService());
-
-                            toStart.remove(toStart.stream().findAny().get());
                         }
                     } else {
                         // check that the service matches
@@ -615,36 +660,21 @@ public class Controller extends NetworkServer implements DcopInfoProvider, RlgIn
                         }
                     }
                 });
-                logger.trace("After filtering for running containers: {}", containersToStart);
 
-                // start the needed containers
-                containersToStart.forEach((service, containerInfos) -> {
-                    containerInfos.forEach(containerInfo -> {
-                        final NodeIdentifier cid = resMgr.startService(containerInfo.getService(),
-                                AppMgrUtils.getContainerParameters(containerInfo.getService()));
-                        if (null == cid) {
-                            logger.warn("Unable to allocate/start container for service {} on node {}",
-                                    containerInfo.getService(), getNodeIdentifier());
-                        } else {
-                            logger.trace("Started container {}", cid, containerInfo.getService());
-                        }
-                    });
-                });
-
-                // stop containers requested to stop
+                // stop containers requested to stop, a start of the same
+                // service in this plan is not needed
                 nodeServicePlan.forEach(containerInfo -> {
                     if (containerInfo.isStop()) {
-
-                        if (logger.isTraceEnabled()) {
-                            logger.trace("Stopping container {}", containerInfo.getId());
-                        }
-
-                        if (!resMgr.stopService(containerInfo.getId())) {
-                            logger.warn("Unable to stop service on container: {}", containerInfo.getId());
+                        if (batch.addStop(containerInfo.getId(), containerInfo.getService())) {
+                            logger.trace("Stopping {} for service {}. Removing from containers to start",
+                                    containerInfo.getId(), containerInfo.getService());
                         }
-
                     }
                 });
+
+                if (!batch.isEmpty()) {
+                    containerLifecycleExecutor.execute(batch);
+                }
             } // service plan exists for this node
 
             // record that this plan has been executed
@@ -658,6 +688,8 @@ public class Controller extends NetworkServer implements DcopInfoProvider, RlgIn
         stopRLG();
         this.dnsManagementThread.stopExecuting();
         this.containerManagementThread.stopExecuting();
+        this.containerLifecycleExecutor.close();
+        this.dumper.stop();
     }
 
     private final DCOPService dcop;
@@ -1028,6 +1060,8 @@ public class Controller extends NetworkServer implements DcopInfoProvider, RlgIn
 
     private ResourceSummary dcopResourceSummary = null;
 
+    private final ResourceSummaryAggregator dcopSummaryAggregator;
+
     @Override
     @Nonnull
     public ResourceSummary getDcopResourceSummary() {
@@ -1037,8 +1071,7 @@ public class Controller extends NetworkServer implements DcopInfoProvider, RlgIn
                 if (reports.isEmpty()) {
                     dcopResourceSummary = getNullSummary(getRegion(), EstimationWindow.LONG);
                 } else {
-                    dcopResourceSummary = computeResourceSummary(getRegion(), regionLookupService,
-                            getDcopResourceReports());
+                    dcopResourceSummary = dcopSummaryAggregator.computeSummary(reports);
                 }
             }
 
@@ -1124,6 +1157,8 @@ public class Controller extends NetworkServer implements DcopInfoProvider, RlgIn
     private final Object rlgDataLock = new Object();
     private ResourceSummary rlgResourceSummary = null;
 
+    private final ResourceSummaryAggregator rlgSummaryAggregator;
+
     @Override
     @Nonnull
     public ResourceSummary getRlgResourceSummary() {
@@ -1133,7 +1168,7 @@ public class Controller extends NetworkServer implements DcopInfoProvider, RlgIn
                 if (reports.isEmpty()) {
                     rlgResourceSummary = getNullSummary(getRegion(), EstimationWindow.SHORT);
                 } else {
-                    rlgResourceSummary = computeResourceSummary(getRegion(), regionLookupService, reports);
+                    rlgResourceSummary = rlgSummaryAggregator.computeSummary(reports);
                 }
             }
 
@@ -1270,138 +1305,7 @@ public class Controller extends NetworkServer implements DcopInfoProvider, RlgIn
     public static ResourceSummary computeResourceSummary(final RegionIdentifier thisRegion,
             final RegionLookupService regionLookupService,
             final ImmutableSet<ResourceReport> resourceReports) {
-
-        if (resourceReports.isEmpty()) {
-            throw new IllegalArgumentException("No reports to summarize");
-        }
-
-        final Set<EstimationWindow> windows = resourceReports.stream().map(ResourceReport::getDemandEstimationWindow)
-                .collect(Collectors.toSet());
-        if (windows.size() > 1) {
-            throw new IllegalArgumentException("All resource reports must have the same estimation window");
-        }
-        final EstimationWindow window = windows.iterator().next();
-
-        long minTimestamp = Long.MAX_VALUE;
-        long maxTimestamp = Long.MIN_VALUE;
-
-        final Map<NodeAttribute, Double> serverCapacity = new HashMap<>();
-        final Map<ServiceIdentifier<?>, Map<RegionIdentifier, Map<NodeAttribute, Double>>> serverLoad = new HashMap<>();
-        final Map<ServiceIdentifier<?>, Map<RegionIdentifier, Map<NodeAttribute, Double>>> serverDemand = new HashMap<>();
-        final Map<ServiceIdentifier<?>, Integer> serverAverageProcessingTimeCount = new HashMap<>();
-        final Map<ServiceIdentifier<?>, Double> serverAverageProcessingTimeSum = new HashMap<>();
-        final Map<RegionIdentifier, Map<RegionNetworkFlow, Map<ServiceIdentifier<?>, Map<LinkAttribute, Double>>>> networkLoad = new HashMap<>();
-        final Map<RegionIdentifier, Map<RegionNetworkFlow, Map<ServiceIdentifier<?>, Map<LinkAttribute, Double>>>> networkDemand = new HashMap<>();
-        int maximumServiceContainers = 0;
-        int allocatedServiceContainers = 0;
-
-        final Map<RegionIdentifier, Double> linkDelayAvgSum = new HashMap<>();
-        final Map<RegionIdentifier, Integer> linkDelayAvgCount = new HashMap<>();
-        final Map<RegionIdentifier, Double> linkDelayMin = new HashMap<>();
-        final Map<RegionIdentifier, Map<LinkAttribute, Double>> networkCapacity = new HashMap<>();
-
-        for (final ResourceReport report : resourceReports) {
-            minTimestamp = Math.min(minTimestamp, report.getTimestamp());
-            maxTimestamp = Math.max(maxTimestamp, report.getTimestamp());
-
-            // serverCapacity
-            report.getNodeComputeCapacity().forEach((attr, value) -> {
-                serverCapacity.merge(attr, value, Double::sum);
-            });
-
-            // serverLoad
-            report.getComputeLoad().forEach((service, serviceData) -> {
-                final Map<RegionIdentifier, Map<NodeAttribute, Double>> mergedServiceData = serverLoad
-                        .computeIfAbsent(service, k -> new HashMap<>());
-                serviceData.forEach((sourceNode, nodeData) -> {
-                    final RegionIdentifier sourceRegion = regionLookupService.getRegionForNode(sourceNode);
-
-                    final Map<NodeAttribute, Double> mergedNodeData = mergedServiceData.computeIfAbsent(sourceRegion,
-                            k -> new HashMap<>());
-                    nodeData.forEach((attr, value) -> {
-                        mergedNodeData.merge(attr, value, Double::sum);
-                    });
-                });
-            });
-
-            // serverDemand
-            report.getComputeDemand().forEach((service, serviceData) -> {
-                final Map<RegionIdentifier, Map<NodeAttribute, Double>> mergedServiceData = serverDemand
-                        .computeIfAbsent(service, k -> new HashMap<>());
-                serviceData.forEach((sourceNode, nodeData) -> {
-                    final RegionIdentifier sourceRegion = regionLookupService.getRegionForNode(sourceNode);
-
-                    final Map<NodeAttribute, Double> mergedNodeData = mergedServiceData.computeIfAbsent(sourceRegion,
-                            k -> new HashMap<>());
-                    nodeData.forEach((attr, value) -> {
-                        mergedNodeData.merge(attr, value, Double::sum);
-                    });
-                });
-            });
-
-            // average processing time
-            report.getAverageProcessingTime().forEach((service, avg) -> {
-                serverAverageProcessingTimeSum.merge(service, avg, Double::sum);
-                serverAverageProcessingTimeCount.merge(service, 1, Integer::sum);
-            });
-
-            // use node network capacity as the summaries don't care about the
-            // containers
-            convertInterfaceToRegion(thisRegion, regionLookupService, report.getNetworkCapacity(), networkCapacity,
-                    linkDelayAvgSum, linkDelayAvgCount, linkDelayMin);
-
-            final Set<NodeIdentifier> containersOnReportNode = getContainersRunningOnReportNode(report);
-
-            // network load
-            mergeNetworkLoadDemand(thisRegion, report.getNodeName(), containersOnReportNode, regionLookupService,
-                    report.getNetworkLoad(), networkLoad);
-
-            // network demand
-            mergeNetworkLoadDemand(thisRegion, report.getNodeName(), containersOnReportNode, regionLookupService,
-                    report.getNetworkDemand(), networkDemand);
-
-            maximumServiceContainers += report.getMaximumServiceContainers();
-            allocatedServiceContainers += report.getAllocatedServiceContainers();
-        }
-
-        // add in link delay attribute
-        final LinkDelayAlgorithm linkDelayAlgorithm = AgentConfiguration.getInstance().getLinkDelayAlgorithm();
-        networkCapacity.forEach((region, regionData) -> {
-            if (linkDelayAvgCount.containsKey(region)) {
-                final double linkDelay;
-                switch (linkDelayAlgorithm) {
-                case AVERAGE:
-                    linkDelay = linkDelayAvgSum.getOrDefault(region, 0D) / linkDelayAvgCount.getOrDefault(region, 0);
-                    break;
-                case MINIMUM:
-                    linkDelay = linkDelayMin.getOrDefault(region, 0D);
-                    break;
-                default:
-                    throw new RuntimeException("Unknown link delay algorithm " + linkDelayAlgorithm);
-                }
-
-                regionData.put(LinkAttribute.DELAY, linkDelay);
-            }
-        });
-
-        // compute after processing time
-        final ImmutableMap.Builder<ServiceIdentifier<?>, Double> serverAverageProcessingTime = ImmutableMap.builder();
-        serverAverageProcessingTimeCount.forEach((service, count) -> {
-            final double sum = serverAverageProcessingTimeSum.getOrDefault(service, 0D);
-            if (sum > 0 && count > 0) {
-                final double average = sum / count;
-                serverAverageProcessingTime.put(service, average);
-            }
-        });
-
-        final ResourceSummary summary = new ResourceSummary(thisRegion, minTimestamp, maxTimestamp, window, //
-                ImmutableMap.copyOf(serverCapacity), ImmutableUtils.makeImmutableMap3(serverLoad),
-                ImmutableUtils.makeImmutableMap3(serverDemand), serverAverageProcessingTime.build(), //
-                ImmutableUtils.makeImmutableMap2(networkCapacity), ImmutableUtils.makeImmutableMap4(networkLoad),
-                ImmutableUtils.makeImmutableMap4(networkDemand), //
-                maximumServiceContainers, allocatedServiceContainers);
-        return summary;
-
+        return new ResourceSummaryAggregator(thisRegion, regionLookupService).computeSummary(resourceReports);
     }
 
     /**
@@ -1429,122 +1333,6 @@ public class Controller extends NetworkServer implements DcopInfoProvider, RlgIn
                 networkLoad, networkLoad, 0, 0);
     }
 
-    private static Set<NodeIdentifier> getContainersRunningOnReportNode(final ResourceReport report) {
-        return report.getContainerReports().entrySet().stream() //
-                .map(Map.Entry::getValue) //
-                .map(ContainerResourceReport::getContainerName) //
-                .collect(Collectors.toSet());
-    }
-
-    private static void mergeNetworkLoadDemand(RegionIdentifier thisRegion,
-            final NodeIdentifier reportNode,
-            final Set<NodeIdentifier> containersOnReportNode,
-            final RegionLookupService nodeToRegion,
-            final ImmutableMap<InterfaceIdentifier, ImmutableMap<NodeNetworkFlow, ImmutableMap<ServiceIdentifier<?>, ImmutableMap<LinkAttribute, Double>>>> source,
-            final Map<RegionIdentifier, Map<RegionNetworkFlow, Map<ServiceIdentifier<?>, Map<LinkAttribute, Double>>>> dest) {
-
-        source.forEach((neighborInterface, neighborData) -> {
-
-            final Set<RegionIdentifier> regions = neighborInterface.getNeighbors().stream()
-                    .map(nodeToRegion::getRegionForNode).collect(Collectors.toSet());
-
-            regions.forEach(neighborRegion -> {
-                if (null != neighborRegion) {
-                    final Map<RegionNetworkFlow, Map<ServiceIdentifier<?>, Map<LinkAttribute, Double>>> destNeighborData = dest
-                            .computeIfAbsent(neighborRegion, k -> new HashMap<>());
-
-                    neighborData.forEach((nodeFlow, sourceData) -> {
-                        final NodeIdentifier nodeSource = nodeFlow.getSource();
-                        final NodeIdentifier nodeDest = nodeFlow.getDestination();
-                        final RegionIdentifier regionSource = nodeToRegion.getRegionForNode(nodeSource);
-                        final RegionIdentifier regionDest = nodeToRegion.getRegionForNode(nodeDest);
-                        final NodeIdentifier serverNode = nodeFlow.getServer();
-
-                        final RegionIdentifier serverRegion;
-                        if (serverNode.equals(NodeIdentifier.UNKNOWN)) {
-                            serverRegion = RegionIdentifier.UNKNOWN;
-                        } else {
-                            serverRegion = nodeToRegion.getRegionForNode(serverNode);
-                        }
-
-                        final RegionNetworkFlow regionFlow = new RegionNetworkFlow(regionSource, regionDest,
-                                serverRegion);
-                        final Map<ServiceIdentifier<?>, Map<LinkAttribute, Double>> destSourceData = destNeighborData
-                                .computeIfAbsent(regionFlow, k -> new HashMap<>());
-
-                        final boolean includeBandwidth;
-                        if (regionSource.equals(regionDest)) {
-                            // only include bandwidth if the node generating the
-                            // report is running the container that is the
-                            // server
-                            includeBandwidth = containersOnReportNode.contains(serverNode)
-                                    || reportNode.equals(serverNode);
-                        } else {
-                            includeBandwidth = true;
-                        }
-
-                        sourceData.forEach((service, serviceData) -> {
-                            final Map<LinkAttribute, Double> destServiceData = destSourceData.computeIfAbsent(service,
-                                    k -> new HashMap<>());
-
-                            serviceData.forEach((attr, value) -> {
-                                if (includeBandwidth || (!LinkAttribute.DATARATE_TX.equals(attr)
-                                        && !LinkAttribute.DATARATE_RX.equals(attr))) {
-                                    destServiceData.merge(attr, value, Double::sum);
-                                }
-                            }); // foreach attribute
-
-                        }); // foreach service
-                    }); // foreach source
-                } else {
-                    LOGGER.warn("Unable to find region for neighbor a node in {}, found {}",
-                            neighborInterface.getNeighbors(), regions);
-                }
-            });
-
-        }); // foreach neighbor
-    }
-
-    /**
-     * Convert the map of InterfaceIdentifiers to RegionIdentifiers.
-     */
-    private static <T> void convertInterfaceToRegion(final RegionIdentifier thisRegion,
-            final RegionLookupService nodeToRegion,
-            final ImmutableMap<InterfaceIdentifier, ImmutableMap<T, Double>> source,
-            final Map<RegionIdentifier, Map<T, Double>> dest,
-            final Map<RegionIdentifier, Double> linkDelayAvgSum,
-            final Map<RegionIdentifier, Integer> linkDelayAvgCount,
-            final Map<RegionIdentifier, Double> linkDelayMin) {
-
-        source.forEach((ifce, v) -> {
-            final Set<RegionIdentifier> regions = ifce.getNeighbors().stream().map(nodeToRegion::getRegionForNode)
-                    .collect(Collectors.toSet());
-
-            regions.forEach(region -> {
-                if (null != region) {
-                    final Map<T, Double> values = dest.computeIfAbsent(region, k -> new HashMap<>());
-                    v.forEach((attr, value) -> {
-
-                        if (LinkAttribute.DELAY.equals(attr)) {
-                            if (!thisRegion.equals(region)) {
-                                // consider link delay only when it's
-                                // with another region
-                                linkDelayAvgCount.merge(region, 1, Integer::sum);
-                                linkDelayAvgSum.merge(region, value, Double::sum);
-                                linkDelayMin.merge(region, value, Double::min);
-                            }
-                        } else {
-                            values.merge(attr, value, Double::sum);
-                        }
-                    });
-                } else {
-                    LOGGER.warn("Unable to find region for a node in {} found: {}", ifce.getNeighbors(), regions);
-                }
-            });
-
-        });
-    }
-
     /**
      * Write to the event log if output is enabled. The current time and ap
      * execution round will be prepended to the message.
@@ -1675,6 +1463,7 @@ public class Controller extends NetworkServer implements DcopInfoProvider, RlgIn
         synchronized (dumpPropertyLock) {
             this.dumpState = v;
         }
+        dumper.stateChanged();
     }
 
     /**
@@ -1689,6 +1478,30 @@ public class Controller extends NetworkServer implements DcopInfoProvider, RlgIn
         }
     }
 
+    private StateStore stateStore = null;
+
+    /**
+     * 
+     * @return where to write the dumps, null to write a directory per dump
+     *         under {@link #getNodeOutputDirectory()}
+     */
+    public StateStore getStateStore() {
+        synchronized (dumpPropertyLock) {
+            return stateStore;
+        }
+    }
+
+    /**
+     * 
+     * @param v
+     *            see {@link #getStateStore()}
+     */
+    public void setStateStore(final StateStore v) {
+        synchronized (dumpPropertyLock) {
+            stateStore = v;
+        }
+    }
+
     /**
      * 
      * @return an object writer that is configured for dumping state as JSON
@@ -1744,177 +1557,155 @@ public class Controller extends NetworkServer implements DcopInfoProvider, RlgIn
         }
     }
 
-    private void dumperWorker() {
-        try (CloseableThreadContext.Instance ctc = CloseableThreadContext.push(getName())) {
-            final VirtualClock clock = getResourceManager().getClock();
-            clock.waitForClockStart();
-
-            final ObjectWriter mapper = createDumpWriter();
-
-            boolean agentConfigWritten = false;
-
-            while (!clock.isShutdown()) {
-                if (isExecuting()) {
-                    final Duration lDumpInterval = getDumpInterval();
-
-                    if (isDumpState() && algorithmsRunning) {
-                        final Path nodeOutputDirectory = getNodeOutputDirectory();
-                        if (null != nodeOutputDirectory) {
-                            if (!agentConfigWritten) {
-                                dumpAgentConfiguration(mapper);
-                                agentConfigWritten = true;
-                            }
-
-                            final long now = clock.getCurrentTime();
-
-                            final String timeDir = String.format(Simulation.TIME_DIR_FORMAT, now);
-                            final Path outputDir = nodeOutputDirectory.resolve(timeDir);
-
-                            // create directory
-                            final File outputDirFile = outputDir.toFile();
-                            if (!outputDirFile.exists()) {
-                                if (!outputDir.toFile().mkdirs()) {
-                                    logger.error("Unable to create output directory {}, skipping output", outputDir);
-                                    continue;
-                                }
-                            }
-
-                            if (outputDirFile.exists()) {
-                                if (logger.isTraceEnabled()) {
-                                    logger.trace("Dumping state to {}", outputDir);
-                                }
-
-                                try {
-                                    dumpCurrentState(outputDir, mapper);
-                                } catch (final IOException e) {
-                                    logger.error("Error writing current state, may have partial output", e);
-                                }
-                            } else {
-                                logger.error("'{}' was not created and does not exist. Skipping output.", outputDir);
-                            }
-                        } else {
-                            logger.warn("Told to dump state and dump directory is null");
-                        }
+    private static final MetricHistogram DUMP_DURATION = MetricsRegistry.getInstance().histogram("dump.node");
 
-                        if (logger.isTraceEnabled()) {
-                            logger.trace("Waiting for {} ms", lDumpInterval.toMillis());
-                        }
-                        clock.waitForDuration(lDumpInterval.toMillis());
-                        if (logger.isTraceEnabled()) {
-                            logger.trace("Done waiting");
-                        }
-                    } // isDumpState
-                } // is executing
-            } // while running
+    private final PeriodicDumper dumper;
 
-            if (logger.isTraceEnabled()) {
-                logger.trace("Dumper thread for {} exiting", getName());
+    private final Thread dumperThread;
+
+    /**
+     * Wait for the dumper thread to exit after {@link #stopExecuting()} has
+     * been called. Once this returns the last dump of this node has been
+     * written and the {@link StateStore} can be closed.
+     * 
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    public void joinDumper() throws InterruptedException {
+        dumperThread.join();
+    }
+
+    private final ObjectWriter dumpMapper = createDumpWriter();
+
+    /**
+     * Only accessed from {@link #captureDump(long)}, which is only called by
+     * the dumper thread.
+     */
+    private boolean agentConfigWritten = false;
+
+    private boolean isDumpEnabled() {
+        return isExecuting() && algorithmsRunning && isDumpState();
+    }
+
+    private Runnable captureDump(final long now) {
+        final Path nodeOutputDirectory = getNodeOutputDirectory();
+        if (null == nodeOutputDirectory) {
+            logger.warn("Told to dump state and dump directory is null");
+            return null;
+        }
+
+        if (!agentConfigWritten) {
+            dumpAgentConfiguration(dumpMapper);
+            agentConfigWritten = true;
+        }
+
+        final CapturedStateDump state = new CapturedStateDump();
+        try {
+            dumpCurrentState(state);
+        } catch (final IOException e) {
+            logger.error("Error capturing current state, skipping output", e);
+            return null;
+        }
+
+        final StateStore store = getStateStore();
+        return () -> writeDump(now, nodeOutputDirectory, store, state);
+    }
+
+    private void writeDump(final long now,
+            final Path nodeOutputDirectory,
+            final StateStore store,
+            final CapturedStateDump state) {
+        if (null != store) {
+            final long dumpStart = DUMP_DURATION.start();
+            try {
+                final StateStore.Chunk chunk = store.startChunk(getName(), now);
+                state.writeTo(chunk);
+                chunk.commit();
+            } catch (final IOException e) {
+                logger.error("Error writing current state to the state store", e);
+            } finally {
+                DUMP_DURATION.stop(dumpStart);
             }
-        } // end logger context
+        } else {
+            final String timeDir = String.format(Simulation.TIME_DIR_FORMAT, now);
+            final Path outputDir = nodeOutputDirectory.resolve(timeDir);
+
+            // create directory
+            final File outputDirFile = outputDir.toFile();
+            if (!outputDirFile.exists()) {
+                if (!outputDir.toFile().mkdirs()) {
+                    logger.error("Unable to create output directory {}, skipping output", outputDir);
+                    return;
+                }
+            }
+
+            if (outputDirFile.exists()) {
+                if (logger.isTraceEnabled()) {
+                    logger.trace("Dumping state to {}", outputDir);
+                }
 
+                final long dumpStart = DUMP_DURATION.start();
+                try {
+                    state.writeTo(new DirectoryStateDump(outputDir, dumpMapper));
+                } catch (final IOException e) {
+                    logger.error("Error writing current state, may have partial output", e);
+                } finally {
+                    DUMP_DURATION.stop(dumpStart);
+                }
+            } else {
+                logger.error("'{}' was not created and does not exist. Skipping output.", outputDir);
+            }
+        }
     }
 
-    private void dumpCurrentState(@Nonnull final Path outputDir, @Nonnull final ObjectWriter mapper)
-            throws IOException {
+    private void dumpCurrentState(@Nonnull final StateDump dump) throws IOException {
 
         // node state
-        final Path nodeStateFilename = outputDir.resolve("state.json");
-        try (BufferedWriter writer = Files.newBufferedWriter(nodeStateFilename, Charset.defaultCharset())) {
-            final NodeState state = new NodeState(this);
-            mapper.writeValue(writer, state);
-        }
+        dump.write(StateDump.NODE_STATE, new NodeState(this));
 
         // available services for debugging issues looking up which services are
         // running where
-        final Path availableServicesPath = outputDir.resolve("availableServices.txt");
-        try (BufferedWriter writer = Files.newBufferedWriter(availableServicesPath)) {
-            synchronized (availableServicesLock) {
-                writer.write(String.valueOf(allNetworkAvailableServices));
-            }
+        synchronized (availableServicesLock) {
+            dump.writeText(StateDump.AVAILABLE_SERVICES, String.valueOf(allNetworkAvailableServices));
         }
 
         final ResourceManager<?> manager = getResourceManager();
         // resource report
         for (final EstimationWindow window : EstimationWindow.values()) {
-            final Path resourceReportFilename = outputDir.resolve(String.format("resourceReport-%s.json", window));
-            try (BufferedWriter writer = Files.newBufferedWriter(resourceReportFilename, Charset.defaultCharset())) {
-                final ResourceReport report = manager.getCurrentResourceReport(window);
-                mapper.writeValue(writer, report);
-            }
+            dump.write(StateDump.resourceReport(window), manager.getCurrentResourceReport(window));
         }
 
         if (isDCOPRunning()) {
             // ResourceSummary(LONG)
-            final Path resourceSummaryFilename = outputDir
-                    .resolve(String.format("resourceSummary-%s.json", EstimationWindow.LONG));
-            try (BufferedWriter writer = Files.newBufferedWriter(resourceSummaryFilename, Charset.defaultCharset())) {
-                final ResourceSummary summary = getDcopResourceSummary();
-                mapper.writeValue(writer, summary);
-            }
+            dump.write(StateDump.resourceSummary(EstimationWindow.LONG), getDcopResourceSummary());
 
-            try (BufferedWriter writer = Files.newBufferedWriter(
-                    outputDir.resolve(String.format("regionResourceReports-%s.json", EstimationWindow.LONG)),
-                    Charset.defaultCharset())) {
-                mapper.writeValue(writer, getDcopResourceReports());
-            }
+            dump.write(StateDump.regionResourceReports(EstimationWindow.LONG), getDcopResourceReports());
 
             // RegionPlan
-            final Path regionPlanFilename = outputDir.resolve("regionPlan.json");
-            try (BufferedWriter writer = Files.newBufferedWriter(regionPlanFilename, Charset.defaultCharset())) {
-                final RegionPlan plan = getNetworkState().getRegionPlan();
-                mapper.writeValue(writer, plan);
-            }
-
-            final Path totalDemandFilename = outputDir.resolve("totalDemand.json");
-            try (BufferedWriter writer = Files.newBufferedWriter(totalDemandFilename, Charset.defaultCharset())) {
-                mapper.writeValue(writer, globalTotalDemand);
-            }
+            dump.write(StateDump.REGION_PLAN, getNetworkState().getRegionPlan());
 
+            dump.write(StateDump.TOTAL_DEMAND, globalTotalDemand);
         }
 
         if (isRLGRunning()) {
             // ResourceSummary(SHORT)
-            final Path resourceSummaryFilename = outputDir
-                    .resolve(String.format("resourceSummary-%s.json", EstimationWindow.SHORT));
-            try (BufferedWriter writer = Files.newBufferedWriter(resourceSummaryFilename, Charset.defaultCharset())) {
-                final ResourceSummary summary = getRlgResourceSummary();
-                mapper.writeValue(writer, summary);
-            }
+            dump.write(StateDump.resourceSummary(EstimationWindow.SHORT), getRlgResourceSummary());
 
-            try (BufferedWriter writer = Files.newBufferedWriter(
-                    outputDir.resolve(String.format("regionResourceReports-%s.json", EstimationWindow.SHORT)),
-                    Charset.defaultCharset())) {
-                mapper.writeValue(writer, getRlgResourceReports());
-            }
+            dump.write(StateDump.regionResourceReports(EstimationWindow.SHORT), getRlgResourceReports());
 
             // RegionPlan
-            final Path regionPlanFilename = outputDir.resolve("regionPlan.json");
-            try (BufferedWriter writer = Files.newBufferedWriter(regionPlanFilename, Charset.defaultCharset())) {
-                final RegionPlan plan = getNetworkState().getRegionPlan();
-                mapper.writeValue(writer, plan);
-            }
+            dump.write(StateDump.REGION_PLAN, getNetworkState().getRegionPlan());
         }
 
         // LoadBalancerPlan
-        final Path loadBalancerPlanFilename = outputDir.resolve("loadBalancerPlan.json");
-        try (BufferedWriter writer = Files.newBufferedWriter(loadBalancerPlanFilename, Charset.defaultCharset())) {
-            final LoadBalancerPlan plan = getNetworkState().getLoadBalancerPlan();
-            mapper.writeValue(writer, plan);
-        }
+        dump.write(StateDump.LOAD_BALANCER_PLAN, getNetworkState().getLoadBalancerPlan());
 
         if (isHandleDnsChanges()) {
             synchronized (availableServicesLock) {
-                final Path filename = outputDir.resolve("dns-records.json");
-                try (BufferedWriter writer = Files.newBufferedWriter(filename, Charset.defaultCharset())) {
-                    mapper.writeValue(writer, dnsEntries);
-                }
-            }
-
-            final Path filename = outputDir.resolve("regionServiceState.json");
-            try (BufferedWriter writer = Files.newBufferedWriter(filename, Charset.defaultCharset())) {
-                mapper.writeValue(writer, getRegionServiceState());
+                dump.write(StateDump.DNS_RECORDS, dnsEntries);
             }
 
+            dump.write(StateDump.REGION_SERVICE_STATE, getRegionServiceState());
         }
     }
 
@@ -0,0 +1,501 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map;
+
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.GuardedBy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bbn.map.AgentConfiguration.LinkDelayAlgorithm;
+import com.bbn.protelis.networkresourcemanagement.ContainerResourceReport;
+import com.bbn.protelis.networkresourcemanagement.InterfaceIdentifier;
+import com.bbn.protelis.networkresourcemanagement.LinkAttribute;
+import com.bbn.protelis.networkresourcemanagement.NodeAttribute;
+import com.bbn.protelis.networkresourcemanagement.NodeIdentifier;
+import com.bbn.protelis.networkresourcemanagement.NodeNetworkFlow;
+import com.bbn.protelis.networkresourcemanagement.RegionIdentifier;
+import com.bbn.protelis.networkresourcemanagement.RegionLookupService;
+import com.bbn.protelis.networkresourcemanagement.RegionNetworkFlow;
+import com.bbn.protelis.networkresourcemanagement.ResourceReport;
+import com.bbn.protelis.networkresourcemanagement.ResourceReport.EstimationWindow;
+import com.bbn.protelis.networkresourcemanagement.ResourceSummary;
+import com.bbn.protelis.networkresourcemanagement.ServiceIdentifier;
+import com.bbn.protelis.utils.ImmutableUtils;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Computes the {@link ResourceSummary} for a region from the
+ * {@link ResourceReport}s of the nodes in the region.
+ * 
+ * The contribution of each report is converted from nodes to regions once and
+ * cached by node name and report timestamp. When the next summary is computed
+ * only the reports that have changed since the previous summary are
+ * converted again, in parallel. The contributions are then combined
+ * sequentially in the iteration order of the reports so that the floating
+ * point sums do not depend on the cache contents or the thread scheduling.
+ * 
+ * The region lookup is assumed to be stable for the life of the aggregator as
+ * the cached contributions are not recomputed when the region of a node
+ * changes.
+ * 
+ * This class is thread safe.
+ */
+public final class ResourceSummaryAggregator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResourceSummaryAggregator.class);
+
+    private final RegionIdentifier thisRegion;
+    private final RegionLookupService regionLookupService;
+
+    private final Object lock = new Object();
+
+    @GuardedBy("lock")
+    private Map<NodeIdentifier, CachedContribution> cache = new HashMap<>();
+
+    @GuardedBy("lock")
+    private int lastReusedCount = 0;
+
+    /**
+     * 
+     * @param thisRegion
+     *            the region for the summaries
+     * @param regionLookupService
+     *            how to convert nodes to regions
+     */
+    public ResourceSummaryAggregator(@Nonnull final RegionIdentifier thisRegion,
+            @Nonnull final RegionLookupService regionLookupService) {
+        this.thisRegion = Objects.requireNonNull(thisRegion);
+        this.regionLookupService = Objects.requireNonNull(regionLookupService);
+    }
+
+    /**
+     * Compute the summary for a set of reports. Reports that have the same
+     * node name and timestamp as a report in the previous call reuse the
+     * contribution computed in that call.
+     * 
+     * @param resourceReports
+     *            the reports to summarize
+     * @return the summary
+     * @throws IllegalArgumentException
+     *             if {@code resourceReports} is empty or contains reports with
+     *             different windows
+     */
+    @Nonnull
+    public ResourceSummary computeSummary(@Nonnull final ImmutableSet<ResourceReport> resourceReports) {
+        if (resourceReports.isEmpty()) {
+            throw new IllegalArgumentException("No reports to summarize");
+        }
+
+        final Set<EstimationWindow> windows = resourceReports.stream().map(ResourceReport::getDemandEstimationWindow)
+                .collect(Collectors.toSet());
+        if (windows.size() > 1) {
+            throw new IllegalArgumentException("All resource reports must have the same estimation window");
+        }
+        final EstimationWindow window = windows.iterator().next();
+
+        synchronized (lock) {
+            final List<ResourceReport> reports = resourceReports.asList();
+            final Contribution[] contributions = new Contribution[reports.size()];
+            final List<Integer> changed = new ArrayList<>();
+            final Map<NodeIdentifier, CachedContribution> newCache = new HashMap<>();
+            for (int i = 0; i < contributions.length; ++i) {
+                final ResourceReport report = reports.get(i);
+                final CachedContribution cached = cache.get(report.getNodeName());
+                if (null != cached && cached.matches(report)) {
+                    contributions[i] = cached.contribution;
+                    newCache.put(report.getNodeName(), cached);
+                } else {
+                    changed.add(i);
+                }
+            }
+            lastReusedCount = contributions.length - changed.size();
+
+            // convert the changed reports in parallel, each task writes to
+            // its own slot of the array
+            changed.parallelStream().forEach(i -> contributions[i] = Contribution.fromReport(thisRegion,
+                    regionLookupService, reports.get(i)));
+            for (final int i : changed) {
+                final ResourceReport report = reports.get(i);
+                newCache.put(report.getNodeName(), new CachedContribution(report, contributions[i]));
+            }
+
+            // nodes that no longer report are dropped from the cache
+            cache = newCache;
+
+            // floating point addition is not associative, so the
+            // contributions are combined sequentially in the order of the
+            // reports to get the same summary no matter which contributions
+            // came from the cache or how the work was split between threads
+            final Contribution total = new Contribution();
+            for (final Contribution contribution : contributions) {
+                total.merge(contribution);
+            }
+            return total.toSummary(thisRegion, window);
+        }
+    }
+
+    /**
+     * Package visibility for testing.
+     * 
+     * @return the number of report contributions that were reused from the
+     *         cache by the last call to {@link #computeSummary(ImmutableSet)}
+     */
+    /* package */ int getLastReusedCount() {
+        synchronized (lock) {
+            return lastReusedCount;
+        }
+    }
+
+    private static final class CachedContribution {
+        private final long timestamp;
+        private final EstimationWindow window;
+        private final Contribution contribution;
+
+        CachedContribution(final ResourceReport report, final Contribution contribution) {
+            this.timestamp = report.getTimestamp();
+            this.window = report.getDemandEstimationWindow();
+            this.contribution = contribution;
+        }
+
+        boolean matches(final ResourceReport report) {
+            return timestamp == report.getTimestamp() && window.equals(report.getDemandEstimationWindow());
+        }
+    }
+
+    /**
+     * Partial summary for some number of reports. The cached contributions are
+     * never modified after they are created, {@link #merge(Contribution)} only
+     * modifies the object that it is called on.
+     */
+    private static final class Contribution {
+        private long minTimestamp = Long.MAX_VALUE;
+        private long maxTimestamp = Long.MIN_VALUE;
+
+        private final Map<NodeAttribute, Double> serverCapacity = new HashMap<>();
+        private final Map<ServiceIdentifier<?>, Map<RegionIdentifier, Map<NodeAttribute, Double>>> serverLoad = new HashMap<>();
+        private final Map<ServiceIdentifier<?>, Map<RegionIdentifier, Map<NodeAttribute, Double>>> serverDemand = new HashMap<>();
+        private final Map<ServiceIdentifier<?>, Integer> serverAverageProcessingTimeCount = new HashMap<>();
+        private final Map<ServiceIdentifier<?>, Double> serverAverageProcessingTimeSum = new HashMap<>();
+        private final Map<RegionIdentifier, Map<RegionNetworkFlow, Map<ServiceIdentifier<?>, Map<LinkAttribute, Double>>>> networkLoad = new HashMap<>();
+        private final Map<RegionIdentifier, Map<RegionNetworkFlow, Map<ServiceIdentifier<?>, Map<LinkAttribute, Double>>>> networkDemand = new HashMap<>();
+        private int maximumServiceContainers = 0;
+        private int allocatedServiceContainers = 0;
+
+        private final Map<RegionIdentifier, Double> linkDelayAvgSum = new HashMap<>();
+        private final Map<RegionIdentifier, Integer> linkDelayAvgCount = new HashMap<>();
+        private final Map<RegionIdentifier, Double> linkDelayMin = new HashMap<>();
+        private final Map<RegionIdentifier, Map<LinkAttribute, Double>> networkCapacity = new HashMap<>();
+
+        static Contribution fromReport(final RegionIdentifier thisRegion,
+                final RegionLookupService regionLookupService,
+                final ResourceReport report) {
+            // the same nodes show up many times in a report, only look each
+            // of them up once
+            final Map<NodeIdentifier, RegionIdentifier> regionCache = new HashMap<>();
+            final RegionLookupService nodeToRegion = node -> regionCache.computeIfAbsent(node,
+                    regionLookupService::getRegionForNode);
+
+            final Contribution c = new Contribution();
+            c.minTimestamp = report.getTimestamp();
+            c.maxTimestamp = report.getTimestamp();
+
+            // serverCapacity
+            mergeValues(c.serverCapacity, report.getNodeComputeCapacity());
+
+            // serverLoad
+            mergeComputeLoadDemand(nodeToRegion, report.getComputeLoad(), c.serverLoad);
+
+            // serverDemand
+            mergeComputeLoadDemand(nodeToRegion, report.getComputeDemand(), c.serverDemand);
+
+            // average processing time
+            report.getAverageProcessingTime().forEach((service, avg) -> {
+                c.serverAverageProcessingTimeSum.merge(service, avg, Double::sum);
+                c.serverAverageProcessingTimeCount.merge(service, 1, Integer::sum);
+            });
+
+            // use node network capacity as the summaries don't care about the
+            // containers
+            convertInterfaceToRegion(thisRegion, nodeToRegion, report.getNetworkCapacity(), c.networkCapacity,
+                    c.linkDelayAvgSum, c.linkDelayAvgCount, c.linkDelayMin);
+
+            final Set<NodeIdentifier> containersOnReportNode = getContainersRunningOnReportNode(report);
+
+            // network load
+            mergeNetworkLoadDemand(report.getNodeName(), containersOnReportNode, nodeToRegion,
+                    report.getNetworkLoad(), c.networkLoad);
+
+            // network demand
+            mergeNetworkLoadDemand(report.getNodeName(), containersOnReportNode, nodeToRegion,
+                    report.getNetworkDemand(), c.networkDemand);
+
+            c.maximumServiceContainers = report.getMaximumServiceContainers();
+            c.allocatedServiceContainers = report.getAllocatedServiceContainers();
+
+            return c;
+        }
+
+        /**
+         * Add the values from {@code other} into this object.
+         */
+        void merge(final Contribution other) {
+            minTimestamp = Math.min(minTimestamp, other.minTimestamp);
+            maxTimestamp = Math.max(maxTimestamp, other.maxTimestamp);
+
+            mergeValues(serverCapacity, other.serverCapacity);
+            other.serverLoad.forEach((service, serviceData) -> mergeNested(
+                    serverLoad.computeIfAbsent(service, k -> new HashMap<>()), serviceData));
+            other.serverDemand.forEach((service, serviceData) -> mergeNested(
+                    serverDemand.computeIfAbsent(service, k -> new HashMap<>()), serviceData));
+
+            mergeValues(serverAverageProcessingTimeSum, other.serverAverageProcessingTimeSum);
+            other.serverAverageProcessingTimeCount
+                    .forEach((service, count) -> serverAverageProcessingTimeCount.merge(service, count, Integer::sum));
+
+            mergeNested(networkCapacity, other.networkCapacity);
+            mergeValues(linkDelayAvgSum, other.linkDelayAvgSum);
+            other.linkDelayAvgCount.forEach((region, count) -> linkDelayAvgCount.merge(region, count, Integer::sum));
+            other.linkDelayMin.forEach((region, value) -> linkDelayMin.merge(region, value, Double::min));
+
+            mergeFlows(networkLoad, other.networkLoad);
+            mergeFlows(networkDemand, other.networkDemand);
+
+            maximumServiceContainers += other.maximumServiceContainers;
+            allocatedServiceContainers += other.allocatedServiceContainers;
+        }
+
+        ResourceSummary toSummary(final RegionIdentifier thisRegion, final EstimationWindow window) {
+            // add in link delay attribute
+            final LinkDelayAlgorithm linkDelayAlgorithm = AgentConfiguration.getInstance().getLinkDelayAlgorithm();
+            networkCapacity.forEach((region, regionData) -> {
+                if (linkDelayAvgCount.containsKey(region)) {
+                    final double linkDelay;
+                    switch (linkDelayAlgorithm) {
+                    case AVERAGE:
+                        linkDelay = linkDelayAvgSum.getOrDefault(region, 0D)
+                                / linkDelayAvgCount.getOrDefault(region, 0);
+                        break;
+                    case MINIMUM:
+                        linkDelay = linkDelayMin.getOrDefault(region, 0D);
+                        break;
+                    default:
+                        throw new RuntimeException("Unknown link delay algorithm " + linkDelayAlgorithm);
+                    }
+
+                    regionData.put(LinkAttribute.DELAY, linkDelay);
+                }
+            });
+
+            // compute after processing time
+            final ImmutableMap.Builder<ServiceIdentifier<?>, Double> serverAverageProcessingTime = ImmutableMap
+                    .builder();
+            serverAverageProcessingTimeCount.forEach((service, count) -> {
+                final double sum = serverAverageProcessingTimeSum.getOrDefault(service, 0D);
+                if (sum > 0 && count > 0) {
+                    final double average = sum / count;
+                    serverAverageProcessingTime.put(service, average);
+                }
+            });
+
+            return new ResourceSummary(thisRegion, minTimestamp, maxTimestamp, window, //
+                    ImmutableMap.copyOf(serverCapacity), ImmutableUtils.makeImmutableMap3(serverLoad),
+                    ImmutableUtils.makeImmutableMap3(serverDemand), serverAverageProcessingTime.build(), //
+                    ImmutableUtils.makeImmutableMap2(networkCapacity), ImmutableUtils.makeImmutableMap4(networkLoad),
+                    ImmutableUtils.makeImmutableMap4(networkDemand), //
+                    maximumServiceContainers, allocatedServiceContainers);
+        }
+    }
+
+    private static <K> void mergeValues(final Map<K, Double> dest, final Map<K, Double> source) {
+        source.forEach((k, value) -> dest.merge(k, value, Double::sum));
+    }
+
+    private static <K1, K2> void mergeNested(final Map<K1, Map<K2, Double>> dest,
+            final Map<K1, ? extends Map<K2, Double>> source) {
+        source.forEach((k, values) -> mergeValues(dest.computeIfAbsent(k, x -> new HashMap<>()), values));
+    }
+
+    private static void mergeFlows(
+            final Map<RegionIdentifier, Map<RegionNetworkFlow, Map<ServiceIdentifier<?>, Map<LinkAttribute, Double>>>> dest,
+            final Map<RegionIdentifier, Map<RegionNetworkFlow, Map<ServiceIdentifier<?>, Map<LinkAttribute, Double>>>> source) {
+        source.forEach((neighborRegion, neighborData) -> {
+            final Map<RegionNetworkFlow, Map<ServiceIdentifier<?>, Map<LinkAttribute, Double>>> destNeighborData = dest
+                    .computeIfAbsent(neighborRegion, k -> new HashMap<>());
+            neighborData.forEach((flow, flowData) -> mergeNested(
+                    destNeighborData.computeIfAbsent(flow, k -> new HashMap<>()), flowData));
+        });
+    }
+
+    private static void mergeComputeLoadDemand(final RegionLookupService nodeToRegion,
+            final ImmutableMap<ServiceIdentifier<?>, ImmutableMap<NodeIdentifier, ImmutableMap<NodeAttribute, Double>>> source,
+            final Map<ServiceIdentifier<?>, Map<RegionIdentifier, Map<NodeAttribute, Double>>> dest) {
+        source.forEach((service, serviceData) -> {
+            final Map<RegionIdentifier, Map<NodeAttribute, Double>> mergedServiceData = dest.computeIfAbsent(service,
+                    k -> new HashMap<>());
+            serviceData.forEach((sourceNode, nodeData) -> {
+                final RegionIdentifier sourceRegion = nodeToRegion.getRegionForNode(sourceNode);
+
+                final Map<NodeAttribute, Double> mergedNodeData = mergedServiceData.computeIfAbsent(sourceRegion,
+                        k -> new HashMap<>());
+                mergeValues(mergedNodeData, nodeData);
+            });
+        });
+    }
+
+    private static Set<NodeIdentifier> getContainersRunningOnReportNode(final ResourceReport report) {
+        return report.getContainerReports().entrySet().stream() //
+                .map(Map.Entry::getValue) //
+                .map(ContainerResourceReport::getContainerName) //
+                .collect(Collectors.toSet());
+    }
+
+    private static void mergeNetworkLoadDemand(final NodeIdentifier reportNode,
+            final Set<NodeIdentifier> containersOnReportNode,
+            final RegionLookupService nodeToRegion,
+            final ImmutableMap<InterfaceIdentifier, ImmutableMap<NodeNetworkFlow, ImmutableMap<ServiceIdentifier<?>, ImmutableMap<LinkAttribute, Double>>>> source,
+            final Map<RegionIdentifier, Map<RegionNetworkFlow, Map<ServiceIdentifier<?>, Map<LinkAttribute, Double>>>> dest) {
+
+        source.forEach((neighborInterface, neighborData) -> {
+
+            final Set<RegionIdentifier> regions = neighborInterface.getNeighbors().stream()
+                    .map(nodeToRegion::getRegionForNode).collect(Collectors.toSet());
+
+            regions.forEach(neighborRegion -> {
+                if (null != neighborRegion) {
+                    final Map<RegionNetworkFlow, Map<ServiceIdentifier<?>, Map<LinkAttribute, Double>>> destNeighborData = dest
+                            .computeIfAbsent(neighborRegion, k -> new HashMap<>());
+
+                    neighborData.forEach((nodeFlow, sourceData) -> {
+                        final NodeIdentifier nodeSource = nodeFlow.getSource();
+                        final NodeIdentifier nodeDest = nodeFlow.getDestination();
+                        final RegionIdentifier regionSource = nodeToRegion.getRegionForNode(nodeSource);
+                        final RegionIdentifier regionDest = nodeToRegion.getRegionForNode(nodeDest);
+                        final NodeIdentifier serverNode = nodeFlow.getServer();
+
+                        final RegionIdentifier serverRegion;
+                        if (serverNode.equals(NodeIdentifier.UNKNOWN)) {
+                            serverRegion = RegionIdentifier.UNKNOWN;
+                        } else {
+                            serverRegion = nodeToRegion.getRegionForNode(serverNode);
+                        }
+
+                        final RegionNetworkFlow regionFlow = new RegionNetworkFlow(regionSource, regionDest,
+                                serverRegion);
+                        final Map<ServiceIdentifier<?>, Map<LinkAttribute, Double>> destSourceData = destNeighborData
+                                .computeIfAbsent(regionFlow, k -> new HashMap<>());
+
+                        final boolean includeBandwidth;
+                        if (regionSource.equals(regionDest)) {
+                            // only include bandwidth if the node generating the
+                            // report is running the container that is the
+                            // server
+                            includeBandwidth = containersOnReportNode.contains(serverNode)
+                                    || reportNode.equals(serverNode);
+                        } else {
+                            includeBandwidth = true;
+                        }
+
+                        sourceData.forEach((service, serviceData) -> {
+                            final Map<LinkAttribute, Double> destServiceData = destSourceData.computeIfAbsent(service,
+                                    k -> new HashMap<>());
+
+                            serviceData.forEach((attr, value) -> {
+                                if (includeBandwidth || (!LinkAttribute.DATARATE_TX.equals(attr)
+                                        && !LinkAttribute.DATARATE_RX.equals(attr))) {
+                                    destServiceData.merge(attr, value, Double::sum);
+                                }
+                            }); // foreach attribute
+
+                        }); // foreach service
+                    }); // foreach source
+                } else {
+                    LOGGER.warn("Unable to find region for neighbor a node in {}, found {}",
+                            neighborInterface.getNeighbors(), regions);
+                }
+            });
+
+        }); // foreach neighbor
+    }
+
+    /**
+     * Convert the map of InterfaceIdentifiers to RegionIdentifiers.
+     */
+    private static <T> void convertInterfaceToRegion(final RegionIdentifier thisRegion,
+            final RegionLookupService nodeToRegion,
+            final ImmutableMap<InterfaceIdentifier, ImmutableMap<T, Double>> source,
+            final Map<RegionIdentifier, Map<T, Double>> dest,
+            final Map<RegionIdentifier, Double> linkDelayAvgSum,
+            final Map<RegionIdentifier, Integer> linkDelayAvgCount,
+            final Map<RegionIdentifier, Double> linkDelayMin) {
+
+        source.forEach((ifce, v) -> {
+            final Set<RegionIdentifier> regions = ifce.getNeighbors().stream().map(nodeToRegion::getRegionForNode)
+                    .collect(Collectors.toSet());
+
+            regions.forEach(region -> {
+                if (null != region) {
+                    final Map<T, Double> values = dest.computeIfAbsent(region, k -> new HashMap<>());
+                    v.forEach((attr, value) -> {
+
+                        if (LinkAttribute.DELAY.equals(attr)) {
+                            if (!thisRegion.equals(region)) {
+                                // consider link delay only when it's
+                                // with another region
+                                linkDelayAvgCount.merge(region, 1, Integer::sum);
+                                linkDelayAvgSum.merge(region, value, Double::sum);
+                                linkDelayMin.merge(region, value, Double::min);
+                            }
+                        } else {
+                            values.merge(attr, value, Double::sum);
+                        }
+                    });
+                } else {
+                    LOGGER.warn("Unable to find region for a node in {} found: {}", ifce.getNeighbors(), regions);
+                }
+            });
+
+        });
+    }
+
+}
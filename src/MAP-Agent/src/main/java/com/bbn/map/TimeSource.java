@@ -0,0 +1,77 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map;
+
+import java.time.LocalDateTime;
+
+/**
+ * Where the agent algorithms get the current time from and how they wait. The
+ * periodic services hand this to the algorithms that they run so that the
+ * algorithms follow the simulated time when the service is scheduled on a
+ * discrete event clock.
+ * 
+ * @see AbstractPeriodicService#getTimeSource()
+ */
+public interface TimeSource {
+
+    /**
+     * @return the current date and time
+     */
+    LocalDateTime now();
+
+    /**
+     * Wait for the specified amount of time to pass.
+     * 
+     * @param millis
+     *            the number of milliseconds to wait
+     * @throws InterruptedException
+     *             if the wait is interrupted
+     */
+    void sleep(long millis) throws InterruptedException;
+
+    /**
+     * Time from {@link LocalDateTime#now()} and waiting with
+     * {@link Thread#sleep(long)}.
+     */
+    TimeSource WALL_CLOCK = new TimeSource() {
+        @Override
+        public LocalDateTime now() {
+            return LocalDateTime.now();
+        }
+
+        @Override
+        public void sleep(final long millis) throws InterruptedException {
+            Thread.sleep(millis);
+        }
+    };
+
+}
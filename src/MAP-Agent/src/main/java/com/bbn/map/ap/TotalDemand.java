@@ -32,8 +32,13 @@ BBN_LICENSE_END*/
 package com.bbn.map.ap;
 
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.LogManager;
@@ -46,13 +51,21 @@ import com.bbn.protelis.networkresourcemanagement.RegionIdentifier;
 import com.bbn.protelis.networkresourcemanagement.RegionNetworkFlow;
 import com.bbn.protelis.networkresourcemanagement.ResourceSummary;
 import com.bbn.protelis.networkresourcemanagement.ServiceIdentifier;
-import com.bbn.protelis.utils.ImmutableUtils;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.collect.ImmutableMap;
 
 /**
  * Server demand for a service attributed to clients across the network.
  * 
+ * The demand is stored as a matrix of doubles indexed by region and
+ * attribute rather than as nested maps. This object is summed by AP for every
+ * neighbor in every round, with the matrix representation a sum allocates a
+ * constant number of objects instead of a map entry for every region and
+ * attribute. When the inputs to a sum have the same regions and attributes,
+ * which is the normal case once the demand has spread across the network, the
+ * region and attribute arrays are shared with the result. The map view
+ * returned by {@link #getServerDemand()} is only built when it is asked for.
+ * 
  * @author jschewe
  *
  */
@@ -60,9 +73,34 @@ public final class TotalDemand implements Serializable {
 
     private static final Logger LOGGER = LogManager.getLogger();
 
-    private static final long serialVersionUID = 1L;
+    private static final long serialVersionUID = 2L;
+
+    private static final RegionIdentifier[] NO_REGIONS = new RegionIdentifier[0];
+    private static final NodeAttribute[] NO_ATTRIBUTES = new NodeAttribute[0];
+
+    /**
+     * Row index in {@link #values}.
+     */
+    private final RegionIdentifier[] regions;
+
+    /**
+     * Column index in {@link #values}.
+     */
+    private final NodeAttribute[] attributes;
 
-    private final ImmutableMap<RegionIdentifier, ImmutableMap<NodeAttribute, Double>> serverDemandWithClientAllocation;
+    /**
+     * regions x attributes in row-major order.
+     */
+    private final double[] values;
+
+    /**
+     * Which entries of {@link #values} have a value, null if all entries have
+     * a value. Keeps the map view the same as the map that was used to create
+     * the object.
+     */
+    private final boolean[] present;
+
+    private transient volatile ImmutableMap<RegionIdentifier, ImmutableMap<NodeAttribute, Double>> serverDemandWithClientAllocation = null;
 
     private static final double NON_TRIVIAL_NEGATIVE_DEMAND_VALUE_THRESHOLD = -1E-15;
 
@@ -74,7 +112,24 @@ public final class TotalDemand implements Serializable {
      * @return server demand with allocation
      */
     public ImmutableMap<RegionIdentifier, ImmutableMap<NodeAttribute, Double>> getServerDemand() {
-        return serverDemandWithClientAllocation;
+        ImmutableMap<RegionIdentifier, ImmutableMap<NodeAttribute, Double>> result = serverDemandWithClientAllocation;
+        if (null == result) {
+            final ImmutableMap.Builder<RegionIdentifier, ImmutableMap<NodeAttribute, Double>> builder = ImmutableMap
+                    .builder();
+            for (int r = 0; r < regions.length; ++r) {
+                final ImmutableMap.Builder<NodeAttribute, Double> regionData = ImmutableMap.builder();
+                for (int a = 0; a < attributes.length; ++a) {
+                    final int index = r * attributes.length + a;
+                    if (null == present || present[index]) {
+                        regionData.put(attributes[a], values[index]);
+                    }
+                }
+                builder.put(regions[r], regionData.build());
+            }
+            result = builder.build();
+            serverDemandWithClientAllocation = result;
+        }
+        return result;
     }
 
     /**
@@ -86,7 +141,17 @@ public final class TotalDemand implements Serializable {
      * Create null object.
      */
     private TotalDemand() {
-        serverDemandWithClientAllocation = ImmutableMap.of();
+        this(NO_REGIONS, NO_ATTRIBUTES, new double[0], null);
+    }
+
+    private TotalDemand(final RegionIdentifier[] regions,
+            final NodeAttribute[] attributes,
+            final double[] values,
+            final boolean[] present) {
+        this.regions = regions;
+        this.attributes = attributes;
+        this.values = values;
+        this.present = present;
     }
 
     /**
@@ -96,6 +161,27 @@ public final class TotalDemand implements Serializable {
      */
     public TotalDemand(
             @JsonProperty("serverDemand") final ImmutableMap<RegionIdentifier, ImmutableMap<NodeAttribute, Double>> serverDemandWithClientAllocation) {
+        this.regions = serverDemandWithClientAllocation.keySet().toArray(NO_REGIONS);
+
+        final Map<NodeAttribute, Integer> attributeIndex = new LinkedHashMap<>();
+        serverDemandWithClientAllocation.forEach((region, regionData) -> {
+            regionData.keySet().forEach(attr -> attributeIndex.putIfAbsent(attr, attributeIndex.size()));
+        });
+        this.attributes = attributeIndex.keySet().toArray(NO_ATTRIBUTES);
+
+        this.values = new double[regions.length * attributes.length];
+        final boolean[] valuePresent = new boolean[values.length];
+        int presentCount = 0;
+        for (int r = 0; r < regions.length; ++r) {
+            for (final Map.Entry<NodeAttribute, Double> entry : serverDemandWithClientAllocation.get(regions[r])
+                    .entrySet()) {
+                final int index = r * attributes.length + attributeIndex.get(entry.getKey());
+                values[index] = entry.getValue();
+                valuePresent[index] = true;
+                ++presentCount;
+            }
+        }
+        this.present = presentCount == values.length ? null : valuePresent;
         this.serverDemandWithClientAllocation = serverDemandWithClientAllocation;
     }
 
@@ -124,7 +210,8 @@ public final class TotalDemand implements Serializable {
      *            First object
      * @param two
      *            Second object
-     * @return see {@link #TotalDemand(TotalDemand, TotalDemand)}
+     * @return the sum of the two objects, if one of the objects is null the
+     *         other object is returned
      */
     public static TotalDemand sumTotalDemand(final TotalDemand one, final TotalDemand two) {
         if (null == one && null == two) {
@@ -134,26 +221,117 @@ public final class TotalDemand implements Serializable {
         } else if (null == two) {
             return one;
         } else {
-            final Map<RegionIdentifier, Map<NodeAttribute, Double>> sum = new HashMap<>();
+            return sum(Arrays.asList(one, two));
+        } // non-null objects to sum
+    }
 
-            one.getServerDemand().forEach((region, regionData) -> {
-                final Map<NodeAttribute, Double> mergedData = new HashMap<>(regionData);
-                sum.put(region, mergedData);
-            });
+    /**
+     * Sum any number of objects in a single pass. This is cheaper than
+     * repeated calls to {@link #sumTotalDemand(TotalDemand, TotalDemand)} as
+     * only one result matrix is allocated.
+     * 
+     * @param demands
+     *            the objects to sum, null elements are ignored
+     * @return the sum, {@link #nullTotalDemand()} if there are no non-null
+     *         objects
+     */
+    public static TotalDemand sumAllTotalDemand(final Collection<TotalDemand> demands) {
+        final List<TotalDemand> nonNull = demands.stream().filter(Objects::nonNull).collect(Collectors.toList());
+        if (nonNull.isEmpty()) {
+            return nullTotalDemand();
+        } else if (nonNull.size() == 1) {
+            return nonNull.get(0);
+        } else {
+            return sum(nonNull);
+        }
+    }
 
-            two.getServerDemand().forEach((region, regionData) -> {
-                final Map<NodeAttribute, Double> mergedData = sum.computeIfAbsent(region, k -> new HashMap<>());
-                regionData.forEach((attr, value) -> {
-                    mergedData.merge(attr, value, Double::sum);
-                });
-            });
+    private static TotalDemand sum(final List<TotalDemand> demands) {
+        final TotalDemand first = demands.get(0);
+
+        boolean sameIndex = true;
+        for (final TotalDemand demand : demands) {
+            if (!first.hasSameIndex(demand)) {
+                sameIndex = false;
+                break;
+            }
+        }
+
+        if (sameIndex) {
+            // fast path, element-wise sum
+            final double[] values = first.values.clone();
+            boolean[] present = null == first.present ? null : first.present.clone();
+            for (int i = 1; i < demands.size(); ++i) {
+                final TotalDemand demand = demands.get(i);
+                for (int index = 0; index < values.length; ++index) {
+                    values[index] += demand.values[index];
+                }
+                present = unionPresent(present, demand.present);
+            }
+            return new TotalDemand(first.regions, first.attributes, values, present);
+        } else {
+            final Map<RegionIdentifier, Integer> regionIndex = new LinkedHashMap<>();
+            final Map<NodeAttribute, Integer> attributeIndex = new LinkedHashMap<>();
+            for (final TotalDemand demand : demands) {
+                for (final RegionIdentifier region : demand.regions) {
+                    regionIndex.putIfAbsent(region, regionIndex.size());
+                }
+                for (final NodeAttribute attr : demand.attributes) {
+                    attributeIndex.putIfAbsent(attr, attributeIndex.size());
+                }
+            }
+
+            final RegionIdentifier[] regions = regionIndex.keySet().toArray(NO_REGIONS);
+            final NodeAttribute[] attributes = attributeIndex.keySet().toArray(NO_ATTRIBUTES);
+            final double[] values = new double[regions.length * attributes.length];
+            final boolean[] present = new boolean[values.length];
+            for (final TotalDemand demand : demands) {
+                final int[] attributeColumn = new int[demand.attributes.length];
+                for (int a = 0; a < demand.attributes.length; ++a) {
+                    attributeColumn[a] = attributeIndex.get(demand.attributes[a]);
+                }
+
+                for (int r = 0; r < demand.regions.length; ++r) {
+                    final int row = regionIndex.get(demand.regions[r]);
+                    for (int a = 0; a < demand.attributes.length; ++a) {
+                        final int sourceIndex = r * demand.attributes.length + a;
+                        if (null == demand.present || demand.present[sourceIndex]) {
+                            final int destIndex = row * attributes.length + attributeColumn[a];
+                            values[destIndex] += demand.values[sourceIndex];
+                            present[destIndex] = true;
+                        }
+                    }
+                }
+            }
 
-            final ImmutableMap<RegionIdentifier, ImmutableMap<NodeAttribute, Double>> immutableSum = ImmutableUtils
-                    .makeImmutableMap2(sum);
+            return new TotalDemand(regions, attributes, values, allPresent(present) ? null : present);
+        }
+    }
 
-            final TotalDemand merged = new TotalDemand(immutableSum);
-            return merged;
-        } // non-null objects to sum
+    private boolean hasSameIndex(final TotalDemand other) {
+        return (regions == other.regions || Arrays.equals(regions, other.regions))
+                && (attributes == other.attributes || Arrays.equals(attributes, other.attributes));
+    }
+
+    private static boolean[] unionPresent(final boolean[] one, final boolean[] two) {
+        if (null == one || null == two) {
+            // null means that all values are present
+            return null;
+        } else {
+            for (int i = 0; i < one.length; ++i) {
+                one[i] |= two[i];
+            }
+            return allPresent(one) ? null : one;
+        }
+    }
+
+    private static boolean allPresent(final boolean[] present) {
+        for (final boolean p : present) {
+            if (!p) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -52,6 +52,7 @@ import org.slf4j.LoggerFactory;
 import com.bbn.map.Controller;
 import com.bbn.map.MapOracle;
 import com.bbn.map.ap.ImmutableDcopSharedInformation;
+import com.bbn.map.simulator.SimulationConfiguration;
 import com.bbn.map.ta2.RegionalTopology;
 import com.bbn.map.ta2.TA2Interface;
 import com.bbn.protelis.networkresourcemanagement.HelloMessage;
@@ -74,7 +75,7 @@ public class DcopDirectCommunicator {
     private final MapOracle oracle;
     private final NodeLookupService nodeLookup;
     private final Controller controller;
-    private static final Random RANDOM = new Random();
+    private final Random random;
     private final Object lock = new Object();
 
     /** neighbor -> connection */
@@ -97,6 +98,8 @@ public class DcopDirectCommunicator {
             final @Nonnull TA2Interface ta2,
             final @Nonnull MapOracle oracle) {
         this.controller = controller;
+        this.random = SimulationConfiguration.getInstance()
+                .getRandom(DcopDirectCommunicator.class.getName() + "." + controller.getName());
         this.nodeLookup = nodeLookup;
         this.ta2 = ta2;
         this.oracle = oracle;
@@ -284,7 +287,7 @@ public class DcopDirectCommunicator {
 
                             // write uid for neighbor
                             logger.trace("Writing node identifier to new connection");
-                            NodeNetworkManager.writeHello(output, RANDOM.nextInt(), controller.getNodeIdentifier());
+                            NodeNetworkManager.writeHello(output, random.nextInt(), controller.getNodeIdentifier());
 
                             // reads data from connectToNeighbor()
                             logger.trace("Reading node identifier and nonce from neighbor {}", s.getInetAddress());
@@ -356,7 +359,7 @@ public class DcopDirectCommunicator {
             // Try to link
             final Socket s = new Socket(addr.getAddress(), addr.getPort());
 
-            final int nonce = RANDOM.nextInt();
+            final int nonce = random.nextInt();
 
             final DataOutputStream output = new DataOutputStream(s.getOutputStream());
             final DataInputStream input = new DataInputStream(s.getInputStream());
@@ -10,13 +10,19 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Random;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import javax.annotation.Nonnull;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.bbn.map.AgentConfiguration;
+import com.bbn.map.RandomSource;
+import com.bbn.map.TimeSource;
 import com.bbn.map.ap.TotalDemand;
 import com.bbn.map.appmgr.util.AppMgrUtils;
 import com.bbn.map.common.ApplicationManagerApi;
@@ -84,6 +90,10 @@ public abstract class AbstractDcopAlgorithm {
     
     private double regionCapacity;
 
+    private TimeSource timeSource = TimeSource.WALL_CLOCK;
+
+    private RandomSource randomSource = RandomSource.UNSEEDED;
+
     /**
      * @param regionID .
      * @param dcopInfoProvider .
@@ -101,6 +111,38 @@ public abstract class AbstractDcopAlgorithm {
      * @return Dcop lan
      */
     protected abstract RegionPlan run();
+
+    /**
+     * Value for {@link #getIterationWindow()} used by the algorithms whose
+     * messages are only read for the current DCOP run.
+     */
+    protected static final int CURRENT_RUN_ITERATION_WINDOW = 1;
+
+    /**
+     * Declare how many past iterations of this region's messages the neighbors
+     * may still need to read. For the asynchronous algorithms this is the
+     * number of DCOP runs. Messages outside of this window are removed from
+     * the {@link DcopSharedInformation} so that the amount of information
+     * shared stays constant.
+     * 
+     * @return the number of iterations to keep, at least 1
+     * @see DcopSharedInformation#setIterationWindow(int)
+     */
+    protected abstract int getIterationWindow();
+
+    /**
+     * Read the information that this region last shared and apply
+     * {@link #getIterationWindow()} to it.
+     * 
+     * @return the shared information for this region, null if there is none
+     */
+    protected DcopSharedInformation readInbox() {
+        final DcopSharedInformation inbox = getDcopInfoProvider().getAllDcopSharedInformation().get(regionID);
+        if (null != inbox) {
+            inbox.setIterationWindow(getIterationWindow());
+        }
+        return inbox;
+    }
     
     
     /**
@@ -120,7 +162,7 @@ public abstract class AbstractDcopAlgorithm {
         int noMessageToRead = getNeighborSet().size();
 
         final Duration timeout = AgentConfiguration.getInstance().getDcopSynchronousMessageTimeout();
-        final LocalDateTime stopTime = LocalDateTime.now().plus(timeout); 
+        final LocalDateTime stopTime = getTimeSource().now().plus(timeout); 
         do {
             receivedMsgMap.clear();
 
@@ -140,7 +182,7 @@ public abstract class AbstractDcopAlgorithm {
                     }
                 }
             }
-            if (LocalDateTime.now().isAfter(stopTime)) {
+            if (getTimeSource().now().isAfter(stopTime)) {
                 LOGGER.warn("Region {} times out when waiting for message after {} seconds", getRegionID(),
                         timeout.getSeconds());
                 break;
@@ -148,7 +190,7 @@ public abstract class AbstractDcopAlgorithm {
             
             // only wait if the region hasn't received all messages
             if (receivedMsgMap.size() < noMessageToRead) {
-                Thread.sleep(apRoundDuration.toMillis());
+                getTimeSource().sleep(apRoundDuration.toMillis());
             }
         } 
         while (receivedMsgMap.size() < noMessageToRead);
@@ -708,6 +750,39 @@ public abstract class AbstractDcopAlgorithm {
         return regionID;
     }
 
+    /**
+     * @return the random number generator for this algorithm in this region
+     * @see RandomSource#getRandom(String)
+     */
+    protected Random getRandom() {
+        return randomSource.getRandom(getClass().getName() + "." + regionID.getName());
+    }
+
+    /**
+     * @return where the current time comes from, defaults to
+     *         {@link TimeSource#WALL_CLOCK}
+     */
+    protected TimeSource getTimeSource() {
+        return timeSource;
+    }
+
+    /**
+     * @param timeSource
+     *            see {@link #getTimeSource()}
+     */
+    public void setTimeSource(@Nonnull final TimeSource timeSource) {
+        this.timeSource = Objects.requireNonNull(timeSource);
+    }
+
+    /**
+     * @param randomSource
+     *            where {@link #getRandom()} comes from, defaults to
+     *            {@link RandomSource#UNSEEDED}
+     */
+    public void setRandomSource(@Nonnull final RandomSource randomSource) {
+        this.randomSource = Objects.requireNonNull(randomSource);
+    }
+
 
     /**
      * @param regionID the regionID to set
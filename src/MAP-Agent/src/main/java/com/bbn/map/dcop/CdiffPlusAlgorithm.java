@@ -17,6 +17,7 @@ import org.slf4j.LoggerFactory;
 import com.bbn.map.AbstractService.Status;
 import com.bbn.map.AgentConfiguration;
 import com.bbn.map.AgentConfiguration.DcopAlgorithm;
+import com.bbn.map.RandomSource;
 import com.bbn.map.ap.ApLogger;
 import com.bbn.map.common.ApplicationManagerApi;
 import com.bbn.protelis.networkresourcemanagement.RegionIdentifier;
@@ -47,6 +48,17 @@ import com.google.common.hash.Hashing;
 
     private final DcopInfoProvider dcopInfoProvider;
 
+    private RandomSource randomSource = RandomSource.UNSEEDED;
+
+    /**
+     * 
+     * @return the random source of the service as of the last call to
+     *         {@link #computePlan(DCOPService)}
+     */
+    /* package */ RandomSource getRandomSource() {
+        return randomSource;
+    }
+
     /**
      * 
      * @return the environment used by the VM
@@ -88,6 +100,7 @@ import com.google.common.hash.Hashing;
     public RegionPlan computePlan(final DCOPService service) {
         // snapshot the summary once per plan computations
         resourceSummary = dcopInfoProvider.getDcopResourceSummary();
+        randomSource = service.getRandomSource();
 
         // run as many rounds as possible before running out of duration, then
         // return
@@ -98,7 +111,7 @@ import com.google.common.hash.Hashing;
             LOGGER.debug("Cycle {}", i);
             vm.runCycle();
             try {
-                Thread.sleep(apRoundDuration.toMillis());
+                service.getTimeSource().sleep(apRoundDuration.toMillis());
             } catch (final InterruptedException e) {
                 if (LOGGER.isDebugEnabled()) {
                     LOGGER.debug("Got interrupted, likely time to shutdown, top of while loop will confirm.");
@@ -106,7 +106,7 @@ public class CdiffPlusExecutionContext extends AbstractExecutionContext<CdiffPlu
 
     @Override
     public double nextRandomDouble() {
-        return Math.random();
+        return algorithm.getRandomSource().getRandom(getClass().getName() + "." + region.getName()).nextDouble();
     }
 
     /**
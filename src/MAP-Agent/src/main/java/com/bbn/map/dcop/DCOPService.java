@@ -19,6 +19,8 @@ import com.bbn.map.dcop.modular_acdiff.ModularACdiffAlgorithm;
 import com.bbn.map.dcop.modular_rcdiff.ModularRCdiffAlgorithm;
 import com.bbn.map.dcop.rcdiff.RCdiffAlgorithm;
 import com.bbn.map.dcop.rdiff.RdiffAlgorithm;
+import com.bbn.map.metrics.MetricHistogram;
+import com.bbn.map.metrics.MetricsRegistry;
 import com.bbn.map.ta2.RegionalTopology;
 import com.bbn.protelis.networkresourcemanagement.RegionIdentifier;
 import com.bbn.protelis.networkresourcemanagement.RegionPlan;
@@ -44,9 +46,18 @@ public class DCOPService extends AbstractPeriodicService {
 
     // Common variables
     private static final Logger LOGGER = LoggerFactory.getLogger(DCOPService.class);
+
+    private static final MetricHistogram ROUND_DURATION = MetricsRegistry.getInstance().histogram("dcop.round");
     private final RegionIdentifier regionID;
     private final DcopAlgorithm algorithm;
     private final CdiffPlusAlgorithm cdiffPlusAlgorithm;
+    private final boolean warmStart;
+
+    /**
+     * The algorithm object kept between rounds when
+     * {@link AgentConfiguration#getDcopWarmStart()} is true.
+     */
+    private FinalRCDiffAlgorithm warmFinalRCDiffAlgorithm = null;
 
     /**
      * Number of rounds of AP to wait between checking for new messages.
@@ -75,6 +86,11 @@ public class DCOPService extends AbstractPeriodicService {
         super("DCOP-" + nodeName, AgentConfiguration.getInstance().getDcopRoundDuration());
         this.regionID = region;
         this.algorithm = AgentConfiguration.getInstance().getDcopAlgorithm();
+        this.warmStart = AgentConfiguration.getInstance().getDcopWarmStart();
+        if (warmStart && !DcopAlgorithm.FINAL_RCDIFF.equals(algorithm)) {
+            LOGGER.warn("DCOP warm start is only supported by {}, {} will start each round from scratch",
+                    DcopAlgorithm.FINAL_RCDIFF, algorithm);
+        }
 
         this.dcopInfoProvider = Objects.requireNonNull(dcopInfoProvider);
         this.applicationManager = Objects.requireNonNull(applicationManager, "application manager");
@@ -96,6 +112,7 @@ public class DCOPService extends AbstractPeriodicService {
     @SuppressFBWarnings(value = "RCN_REDUNDANT_NULLCHECK_OF_NONNULL_VALUE", justification = "Cannot guarantee that DCOP will compute a non-null plan. Appears to be a bug in FindBugs")
     @Override
     protected void execute() {
+        final long start = ROUND_DURATION.start();
         try {
             final RegionPlan plan = computePlan();
             if (null == plan) {
@@ -106,6 +123,8 @@ public class DCOPService extends AbstractPeriodicService {
             }
         } catch (final Throwable t) {
             LOGGER.error("Got error computing DCOP plan. Skipping this round and will try again next round", t);
+        } finally {
+            ROUND_DURATION.stop(start);
         }
     }
 
@@ -124,30 +143,47 @@ public class DCOPService extends AbstractPeriodicService {
         switch (this.algorithm) {
         case DISTRIBUTED_ROUTING_DIFFUSION:
             final AbstractDcopAlgorithm rdiff = new RdiffAlgorithm(regionID, dcopInfoProvider, applicationManager, summary, topology);
-            return rdiff.run();
+            return runAlgorithm(rdiff);
         case DISTRIBUTED_CONSTRAINT_DIFFUSION:
             final CdiffAlgorithm cdiff = new CdiffAlgorithm(regionID, dcopInfoProvider, applicationManager);
-            return cdiff.run();
+            return runAlgorithm(cdiff);
         case ASYNCHRONOUS_CDIFF:
             final ACdiffAlgorithm acdiff = new ACdiffAlgorithm(regionID, dcopInfoProvider, applicationManager);
-            return acdiff.run();
+            return runAlgorithm(acdiff);
         case RC_DIFF:
             final RCdiffAlgorithm rcdiff = new RCdiffAlgorithm(regionID, dcopInfoProvider, applicationManager);
-            return rcdiff.run();
+            return runAlgorithm(rcdiff);
         case MODULAR_RCDIFF:
             final ModularRCdiffAlgorithm modularRcdiff = new ModularRCdiffAlgorithm(regionID, dcopInfoProvider,
                     applicationManager);
-            return modularRcdiff.run();
+            return runAlgorithm(modularRcdiff);
         case MODULAR_ACDIFF:
             ModularACdiffAlgorithm modularAcdiff = new ModularACdiffAlgorithm(regionID, dcopInfoProvider,
                     applicationManager);
-            return modularAcdiff.run();
-        case FINAL_RCDIFF:    
-            FinalRCDiffAlgorithm finalRCDiffAlgorithm = new FinalRCDiffAlgorithm(regionID, dcopInfoProvider, applicationManager, summary, topology);    
-            return finalRCDiffAlgorithm.run();
+            return runAlgorithm(modularAcdiff);
+        case FINAL_RCDIFF:
+            final boolean warm;
+            final FinalRCDiffAlgorithm finalRCDiffAlgorithm;
+            if (warmStart && null != warmFinalRCDiffAlgorithm) {
+                warm = true;
+                finalRCDiffAlgorithm = warmFinalRCDiffAlgorithm;
+                finalRCDiffAlgorithm.prepareWarmStart(summary, topology);
+            } else {
+                warm = false;
+                finalRCDiffAlgorithm = new FinalRCDiffAlgorithm(regionID, dcopInfoProvider, applicationManager,
+                        summary, topology);
+            }
+
+            final RegionPlan finalRCDiffPlan = runAlgorithm(finalRCDiffAlgorithm);
+            recordIterations(warm, finalRCDiffAlgorithm);
+
+            if (warmStart) {
+                warmFinalRCDiffAlgorithm = finalRCDiffAlgorithm;
+            }
+            return finalRCDiffPlan;
         case DEFAULT_PLAN:
             DefaultAlgorithm defaultAlg = new DefaultAlgorithm(regionID, dcopInfoProvider, applicationManager);
-            return defaultAlg.run();
+            return runAlgorithm(defaultAlg);
         case CDIFF_PLUS:
             LOGGER.info("Running DCOP CDIFF + with period {} seconds", this.getPeriod().getSeconds());
             return cdiffPlusAlgorithm.computePlan(this);
@@ -157,4 +193,80 @@ public class DCOPService extends AbstractPeriodicService {
 
     }
 
+    /**
+     * Run the algorithm with the time and random sources of this service.
+     */
+    private RegionPlan runAlgorithm(final AbstractDcopAlgorithm dcopAlgorithm) {
+        dcopAlgorithm.setTimeSource(getTimeSource());
+        dcopAlgorithm.setRandomSource(getRandomSource());
+        return dcopAlgorithm.run();
+    }
+
+    private final Object iterationLock = new Object();
+    private int coldIterationsToConverge = -1;
+    private int lastIterationsToConverge = -1;
+    private int lastIterationsSaved = 0;
+    private long totalIterationsSaved = 0;
+
+    /**
+     * Keep track of how many iterations the algorithm needed to converge. The
+     * most recent cold start is the baseline for the number of iterations
+     * saved by a warm start.
+     */
+    private void recordIterations(final boolean warm, final FinalRCDiffAlgorithm alg) {
+        if (alg.getLoopCount() <= 0) {
+            // the algorithm returned before running, nothing to measure
+            return;
+        }
+
+        final int iterations = alg.getIterationsToConverge();
+        synchronized (iterationLock) {
+            lastIterationsToConverge = iterations;
+            if (!warm || coldIterationsToConverge < 0) {
+                coldIterationsToConverge = iterations;
+                lastIterationsSaved = 0;
+            } else {
+                lastIterationsSaved = Math.max(0, coldIterationsToConverge - iterations);
+                totalIterationsSaved += lastIterationsSaved;
+            }
+
+            LOGGER.info("DCOP {} start converged after {} of {} iterations, cold start baseline {}, saved {}",
+                    warm ? "warm" : "cold", iterations, alg.getLoopCount(), coldIterationsToConverge,
+                    lastIterationsSaved);
+        }
+    }
+
+    /**
+     * 
+     * @return the number of iterations that the last round needed to
+     *         converge, -1 if not known
+     */
+    public int getLastIterationsToConverge() {
+        synchronized (iterationLock) {
+            return lastIterationsToConverge;
+        }
+    }
+
+    /**
+     * 
+     * @return the number of iterations saved by the last round compared to
+     *         the most recent cold start, 0 when not using
+     *         {@link AgentConfiguration#getDcopWarmStart()}
+     */
+    public int getLastIterationsSaved() {
+        synchronized (iterationLock) {
+            return lastIterationsSaved;
+        }
+    }
+
+    /**
+     * 
+     * @return the sum of {@link #getLastIterationsSaved()} over all rounds
+     */
+    public long getTotalIterationsSaved() {
+        synchronized (iterationLock) {
+            return totalIterationsSaved;
+        }
+    }
+
 }
@@ -5,6 +5,8 @@ import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.OptionalInt;
+import java.util.Set;
 
 import org.protelis.vm.CodePath;
 
@@ -14,6 +16,13 @@ import com.bbn.map.Controller;
 /**
  * Information shared between DCOP instances in other regions.
  * 
+ * Messages are kept for a window of iterations, see
+ * {@link #setIterationWindow(int)}. When a message for a newer iteration is
+ * added, messages older than the window are removed so that the size of the
+ * object stays constant as the iterations progress. The data center tree
+ * message stored at {@link AbstractDcopAlgorithm#TREE_ITERATION} is never
+ * removed.
+ * 
  * Class is final because
  * {@link Controller#setLocalDcopSharedInformation(DcopSharedInformation)} uses
  * the copy constructor in this class and this will break subclasses.
@@ -37,6 +46,13 @@ public final class DcopSharedInformation implements Serializable {
      */
     private final Map<Integer, LocalDateTime> constructionTimeMap = new HashMap<>();
 
+    /**
+     * Value for {@link #getIterationWindow()} that keeps all iterations.
+     */
+    public static final int UNBOUNDED_ITERATION_WINDOW = Integer.MAX_VALUE;
+
+    private int iterationWindow = UNBOUNDED_ITERATION_WINDOW;
+
     /**
      * Default constructor.
      */
@@ -51,14 +67,25 @@ public final class DcopSharedInformation implements Serializable {
      */
     public DcopSharedInformation(DcopSharedInformation o) {
         if (null != o) {
+            iterationWindow = o.iterationWindow;
+
+            // only copy the entries inside the window
+            final long oldestIteration = oldestIterationToKeep(o.getIterationMessageMap().keySet());
             for (Map.Entry<Integer, DcopReceiverMessage> entry : o.getIterationMessageMap().entrySet()) {
-                DcopReceiverMessage msg = entry.getValue();
-                this.putMessageAtIteration(entry.getKey(),
-                        new DcopReceiverMessage(msg, AgentConfiguration.getInstance().getDcopAlgorithm()));
+                if (isInsideWindow(entry.getKey(), oldestIteration)) {
+                    DcopReceiverMessage msg = entry.getValue();
+                    iterationMessageMap.put(entry.getKey(),
+                            new DcopReceiverMessage(msg, AgentConfiguration.getInstance().getDcopAlgorithm()));
+                }
             }
-            
+
             // Copy construction time map when copying the object
-            constructionTimeMap.putAll(o.getConstructionTimeMap());
+            final long oldestRun = oldestIterationToKeep(o.getConstructionTimeMap().keySet());
+            o.getConstructionTimeMap().forEach((run, time) -> {
+                if (isInsideWindow(run, oldestRun)) {
+                    constructionTimeMap.put(run, time);
+                }
+            });
 
             asynchronousMessage = new DcopReceiverMessage(o.getAsynchronousMessage(),
                     AgentConfiguration.getInstance().getDcopAlgorithm());
@@ -113,6 +140,7 @@ public final class DcopSharedInformation implements Serializable {
      */
     public void setMessageAtIteration(int iteration, DcopReceiverMessage msgPerIteration) {
         iterationMessageMap.put(iteration, msgPerIteration);
+        evict(iterationMessageMap.keySet());
     }
 
     /**
@@ -123,6 +151,67 @@ public final class DcopSharedInformation implements Serializable {
      */
     public void putMessageAtIteration(int iteration, DcopReceiverMessage msgPerIteration) {
         iterationMessageMap.put(iteration, msgPerIteration);
+        evict(iterationMessageMap.keySet());
+    }
+
+    /**
+     * How many iterations of messages to keep. This is the number of past
+     * iterations, including the newest, that neighbors may still need to read.
+     * The same window is applied to the DCOP runs in
+     * {@link #getConstructionTimeMap()}.
+     * 
+     * @return the number of iterations to keep
+     */
+    public int getIterationWindow() {
+        return iterationWindow;
+    }
+
+    /**
+     * Set the window and remove any messages that are now outside of it.
+     * 
+     * @param v
+     *            see {@link #getIterationWindow()}, must be at least 1
+     * @throws IllegalArgumentException
+     *             if the value is less than 1
+     */
+    public void setIterationWindow(final int v) {
+        if (v < 1) {
+            throw new IllegalArgumentException("Iteration window must be at least 1: " + v);
+        }
+        iterationWindow = v;
+        evict(iterationMessageMap.keySet());
+        evict(constructionTimeMap.keySet());
+    }
+
+    /**
+     * @param keys
+     *            the iterations currently stored
+     * @return the oldest iteration inside the window, {@link Long#MIN_VALUE}
+     *         if everything should be kept
+     */
+    private long oldestIterationToKeep(final Set<Integer> keys) {
+        if (UNBOUNDED_ITERATION_WINDOW == iterationWindow) {
+            return Long.MIN_VALUE;
+        }
+
+        final OptionalInt newest = keys.stream().mapToInt(Integer::intValue)
+                .filter(i -> i != AbstractDcopAlgorithm.TREE_ITERATION).max();
+        if (newest.isPresent()) {
+            return (long) newest.getAsInt() - iterationWindow + 1;
+        } else {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private static boolean isInsideWindow(final int iteration, final long oldestIteration) {
+        return AbstractDcopAlgorithm.TREE_ITERATION == iteration || iteration >= oldestIteration;
+    }
+
+    private void evict(final Set<Integer> keys) {
+        final long oldestIteration = oldestIterationToKeep(keys);
+        if (Long.MIN_VALUE != oldestIteration) {
+            keys.removeIf(i -> !isInsideWindow(i, oldestIteration));
+        }
     }
 
     /**
@@ -236,4 +325,18 @@ public final class DcopSharedInformation implements Serializable {
     public Map<Integer, LocalDateTime> getConstructionTimeMap() {
         return constructionTimeMap;
     }
+
+    /**
+     * Record the construction time for a DCOP run and remove runs that are
+     * outside of {@link #getIterationWindow()}.
+     * 
+     * @param dcopRun
+     *            the DCOP run
+     * @param time
+     *            the time the information for the run was constructed
+     */
+    public void putConstructionTime(final int dcopRun, final LocalDateTime time) {
+        constructionTimeMap.put(dcopRun, time);
+        evict(constructionTimeMap.keySet());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,232 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.dcop;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bbn.map.ap.ImmutableDcopSharedInformation;
+import com.bbn.map.ap.TotalDemand;
+import com.bbn.map.ta2.RegionalTopology;
+import com.bbn.protelis.networkresourcemanagement.RegionIdentifier;
+import com.bbn.protelis.networkresourcemanagement.RegionPlan;
+import com.bbn.protelis.networkresourcemanagement.ResourceSummary;
+import com.bbn.protelis.networkresourcemanagement.ServiceIdentifier;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingOutputStream;
+
+/**
+ * In-memory {@link DcopInfoProvider} used by the DCOP replay benchmark. All
+ * providers in a replay share a single map of {@link DcopSharedInformation}
+ * so that a region sees the messages of every other region immediately, the
+ * same as when {@link com.bbn.map.AgentConfiguration#getDcopShareDirect()} is
+ * enabled in the controller.
+ *
+ * The shared information is stored the same way that the controller stores
+ * it, including the deep copy and the check for duplicate information, so
+ * that the algorithms see the same copying cost that they do in the real
+ * system.
+ */
+/* package */ final class ReplayDcopInfoProvider implements DcopInfoProvider {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplayDcopInfoProvider.class);
+
+    private final RegionIdentifier region;
+    private final Map<RegionIdentifier, ImmutableDcopSharedInformation> allSharedInformation;
+    private final RegionalTopology topology;
+
+    private ResourceSummary summary;
+    private ImmutableMap<ServiceIdentifier<?>, TotalDemand> totalDemand = ImmutableMap.of();
+    private RegionPlan plan;
+
+    private final Object lock = new Object();
+    private int shareCount = 0;
+    private int distinctShareCount = 0;
+    private long messageBytes = 0;
+
+    /**
+     * @param region
+     *            the region that this provider is for
+     * @param allSharedInformation
+     *            the shared information for all regions, this map must be
+     *            thread safe as it is accessed by all regions in the replay
+     * @param topology
+     *            the topology of the regions
+     * @param initialPlan
+     *            the plan to return from {@link #getDcopPlan()} until a plan
+     *            is published
+     */
+    /* package */ ReplayDcopInfoProvider(@Nonnull final RegionIdentifier region,
+            @Nonnull final Map<RegionIdentifier, ImmutableDcopSharedInformation> allSharedInformation,
+            @Nonnull final RegionalTopology topology,
+            @Nonnull final RegionPlan initialPlan) {
+        this.region = Objects.requireNonNull(region);
+        this.allSharedInformation = Objects.requireNonNull(allSharedInformation);
+        this.topology = Objects.requireNonNull(topology);
+        this.plan = Objects.requireNonNull(initialPlan);
+    }
+
+    /**
+     * Set the inputs for the next DCOP round and reset the per round
+     * statistics.
+     *
+     * @param summary
+     *            the summary for this region
+     * @param totalDemand
+     *            the total demand across all regions
+     */
+    /* package */ void startRound(@Nonnull final ResourceSummary summary,
+            @Nonnull final ImmutableMap<ServiceIdentifier<?>, TotalDemand> totalDemand) {
+        synchronized (lock) {
+            this.summary = summary;
+            this.totalDemand = totalDemand;
+            shareCount = 0;
+            distinctShareCount = 0;
+            messageBytes = 0;
+        }
+    }
+
+    /**
+     * @return number of calls to
+     *         {@link #setLocalDcopSharedInformation(DcopSharedInformation)}
+     *         since the start of the round
+     */
+    /* package */ int getShareCount() {
+        synchronized (lock) {
+            return shareCount;
+        }
+    }
+
+    /**
+     * @return number of shares since the start of the round that were not
+     *         duplicates of the previous share, this is the number of
+     *         iterations that the region needed before its messages stopped
+     *         changing
+     */
+    /* package */ int getDistinctShareCount() {
+        synchronized (lock) {
+            return distinctShareCount;
+        }
+    }
+
+    /**
+     * @return serialized size of all distinct shares since the start of the
+     *         round
+     */
+    /* package */ long getMessageBytes() {
+        synchronized (lock) {
+            return messageBytes;
+        }
+    }
+
+    @Override
+    @Nonnull
+    public ImmutableMap<RegionIdentifier, DcopSharedInformation> getAllDcopSharedInformation() {
+        final ImmutableMap.Builder<RegionIdentifier, DcopSharedInformation> builder = ImmutableMap.builder();
+        allSharedInformation.forEach((r, shared) -> {
+            builder.put(r, shared.getMessage());
+        });
+        return builder.build();
+    }
+
+    @Override
+    public void setLocalDcopSharedInformation(@Nonnull final DcopSharedInformation v) {
+        synchronized (lock) {
+            ++shareCount;
+
+            final ImmutableDcopSharedInformation prev = allSharedInformation.get(region);
+            if (null != prev && prev.equivalentTo(v)) {
+                return;
+            }
+
+            final ImmutableDcopSharedInformation shared = new ImmutableDcopSharedInformation(v);
+            ++distinctShareCount;
+            messageBytes += serializedSize(shared);
+            allSharedInformation.put(region, shared);
+        }
+    }
+
+    private static long serializedSize(final ImmutableDcopSharedInformation shared) {
+        final CountingOutputStream counter = new CountingOutputStream(ByteStreams.nullOutputStream());
+        try (ObjectOutputStream stream = new ObjectOutputStream(counter)) {
+            stream.writeObject(shared);
+        } catch (final IOException e) {
+            LOGGER.warn("Unable to compute the serialized size of the DCOP shared information", e);
+        }
+        return counter.getCount();
+    }
+
+    @Override
+    @Nonnull
+    public ResourceSummary getDcopResourceSummary() {
+        synchronized (lock) {
+            return summary;
+        }
+    }
+
+    @Override
+    @Nonnull
+    public RegionPlan getDcopPlan() {
+        synchronized (lock) {
+            return plan;
+        }
+    }
+
+    @Override
+    public void publishDcopPlan(@Nonnull final RegionPlan plan) {
+        synchronized (lock) {
+            this.plan = plan;
+        }
+    }
+
+    @Override
+    public TotalDemand getTotalDemandForService(@Nonnull final ServiceIdentifier<?> service) {
+        synchronized (lock) {
+            return totalDemand.getOrDefault(service, TotalDemand.nullTotalDemand());
+        }
+    }
+
+    @Override
+    @Nonnull
+    public RegionalTopology getRegionTopology() {
+        return topology;
+    }
+
+}
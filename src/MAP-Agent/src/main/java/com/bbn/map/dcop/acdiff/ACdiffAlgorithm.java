@@ -6,7 +6,6 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Random;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -138,8 +137,6 @@ public class ACdiffAlgorithm extends AbstractDcopAlgorithm {
         super(regionID, dcopInfoProvider, applicationManager);
     }
 
-    private static final Random RANDOM = new Random();
-
     /**
      * @return DCOP plan
      */
@@ -169,14 +166,14 @@ public class ACdiffAlgorithm extends AbstractDcopAlgorithm {
 
         processInitialDemandLoadMap(demandMap);
 
-        final LocalDateTime stopTime = LocalDateTime.now().plus(AgentConfiguration.getInstance().getDcopAcdiffTimeOut());
+        final LocalDateTime stopTime = getTimeSource().now().plus(AgentConfiguration.getInstance().getDcopAcdiffTimeOut());
 
         while (READING_MESSAGES) {
 
             boolean toPrint = false;
 
             if (AgentConfiguration.getInstance().getDcopAcdiffSimulateMessageDrops()) {
-                if (compareDouble(RANDOM.nextDouble(),
+                if (compareDouble(getRandom().nextDouble(),
                         1 - AgentConfiguration.getInstance().getDcopAcdiffSimulateMessageDropRate()) < 0) {
                     sendAllMessages();
                 }
@@ -191,7 +188,7 @@ public class ACdiffAlgorithm extends AbstractDcopAlgorithm {
             if (receivedMessageMap.equals(storedMessages)) {
                 // Sleep for AP round duration to avoid continuously checking for messages
                 try {
-                    Thread.sleep(AgentConfiguration.getInstance().getApRoundDuration().toMillis() * DCOPService.AP_ROUNDS_TO_SLEEP_BETWEEN_MESSAGE_CHECKS);
+                    getTimeSource().sleep(AgentConfiguration.getInstance().getApRoundDuration().toMillis() * DCOPService.AP_ROUNDS_TO_SLEEP_BETWEEN_MESSAGE_CHECKS);
                 } catch (InterruptedException e) {
                     e.printStackTrace();
                 }
@@ -237,7 +234,7 @@ public class ACdiffAlgorithm extends AbstractDcopAlgorithm {
                 LOGGER.info("DCOP Run {} Region {} end the current cycle", currentDcopRun, getRegionID());
             }
 
-            if (LocalDateTime.now().isAfter(stopTime)) {
+            if (getTimeSource().now().isAfter(stopTime)) {
                 break;
             }
         }
@@ -1329,7 +1326,7 @@ public class ACdiffAlgorithm extends AbstractDcopAlgorithm {
      *  @return 0 (or more if more than second DCOP run)
      */
     private void initialize() {
-        inbox = getDcopInfoProvider().getAllDcopSharedInformation().get(getRegionID());
+        inbox = readInbox();
 
         currentDcopRun = inbox.getAsynchronousMessage().getIteration() + 1;
 
@@ -1371,6 +1368,11 @@ public class ACdiffAlgorithm extends AbstractDcopAlgorithm {
         return compareDouble(getAvailableCapacity(), 0) > 0;
     }
 
+    @Override
+    protected int getIterationWindow() {
+        return CURRENT_RUN_ITERATION_WINDOW;
+    }
+
     /**
      * regionCapacity - sumValues(keepLoadMap).
      * @return available capacity if positive
@@ -38,6 +38,12 @@ import com.google.common.collect.ImmutableMap;
 public class CdiffAlgorithm extends AbstractDcopAlgorithm {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CdiffAlgorithm.class);
+
+    /**
+     * Neighbors read the messages from the current and the previous
+     * iteration.
+     */
+    private static final int ITERATION_WINDOW = 2;
     
     /**
      * @author khoihd
@@ -856,8 +862,6 @@ public class CdiffAlgorithm extends AbstractDcopAlgorithm {
      * @param iteration
      */
     private void sendAllMessages(int iteration) {
-        inbox.removeMessageAtIteration(iteration - 2);
-        
         // Send all messages in the messageMap
         for (Entry<RegionIdentifier, CdiffDcopMessage> entry : messageMap.entrySet()) {
             RegionIdentifier receiver = entry.getKey();
@@ -921,7 +925,7 @@ public class CdiffAlgorithm extends AbstractDcopAlgorithm {
      *  @return 0 (or more if more than second DCOP run)
      */
     private void initialize() {        
-        inbox = getDcopInfoProvider().getAllDcopSharedInformation().get(getRegionID());
+        inbox = readInbox();
                 
         if (inbox != null) {
             if (inbox.getIterationMessageMap().containsKey(TREE_ITERATION)) {
@@ -969,6 +973,11 @@ public class CdiffAlgorithm extends AbstractDcopAlgorithm {
         return compareDouble(getAvailableCapacity(), 0) > 0;
     }
     
+    @Override
+    protected int getIterationWindow() {
+        return ITERATION_WINDOW;
+    }
+
     /**
      * regionCapacity - sumValues(keepLoadMap).
      * @return available capacity if positive
@@ -29,7 +29,7 @@ import com.google.common.collect.ImmutableMap;
 public class DefaultAlgorithm extends AbstractDcopAlgorithm {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultAlgorithm.class);
-    
+
     private int currentDcopRun;
     
     private ResourceSummary summary;
@@ -170,7 +170,7 @@ public class DefaultAlgorithm extends AbstractDcopAlgorithm {
      *  @return 0 (or more if more than second DCOP run)
      */
     private void initialize() {        
-        inbox = getDcopInfoProvider().getAllDcopSharedInformation().get(getRegionID());
+        inbox = readInbox();
                 
         currentDcopRun = inbox.getAsynchronousMessage().getIteration();
         
@@ -185,6 +185,11 @@ public class DefaultAlgorithm extends AbstractDcopAlgorithm {
         LOGGER.info("DCOP Run {} Region {} has Region Capacity {}", currentDcopRun, getRegionID(), getRegionCapacity());
     }
 
+    @Override
+    protected int getIterationWindow() {
+        return CURRENT_RUN_ITERATION_WINDOW;
+    }
+
     @Override
     protected double getAvailableCapacity() {
         return 0;
@@ -13,7 +13,6 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Random;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.SortedSet;
@@ -58,9 +57,9 @@ public class FinalRCDiffAlgorithm extends AbstractDcopAlgorithm {
 
     private int currentDcopRun;
 
-    private final ResourceSummary summary;
+    private ResourceSummary summary;
 
-    private final RegionalTopology topology;
+    private RegionalTopology topology;
 
     private DcopSharedInformation inbox;
 
@@ -124,6 +123,17 @@ public class FinalRCDiffAlgorithm extends AbstractDcopAlgorithm {
 
     private static final int DEFAULT_T = 3;
 
+    /**
+     * Number of passes through the main loop in the last run.
+     */
+    private int loopCount = 0;
+
+    /**
+     * The pass through the main loop in the last run where the plans or delta
+     * last changed.
+     */
+    private int lastChangeLoop = 0;
+
     /**
      * @param regionID
      *            .
@@ -154,8 +164,6 @@ public class FinalRCDiffAlgorithm extends AbstractDcopAlgorithm {
         this.t = networkDiameter == 0 ? DEFAULT_T : 2 * networkDiameter;
     }
 
-    private static final Random RANDOM = new Random();
-
     /**
      * @return DCOP plan
      */
@@ -218,7 +226,15 @@ public class FinalRCDiffAlgorithm extends AbstractDcopAlgorithm {
         // final Duration rcdiffDuration =
         // Duration.ofSeconds(RC_DIFF_DURATION_SECONDS);
 
-        final LocalDateTime stopTime = LocalDateTime.now().plus(rcdiffDuration);
+        final LocalDateTime stopTime = getTimeSource().now().plus(rcdiffDuration);
+
+        // track when the state stops changing, on a warm start this begins
+        // with the state from the previous run
+        loopCount = 0;
+        lastChangeLoop = 0;
+        Set<FinalRCDiffPlan> prevOutputs = new HashSet<>(outputs);
+        Set<FinalRCDiffPlan> prevInputs = new HashSet<>(inputs);
+        Map<ServiceIdentifier<?>, Double> prevDelta = new HashMap<>(delta);
 
         while (READING_MESSAGES) {
             // Keep updating neighbor set to check if any neighbor is
@@ -294,8 +310,16 @@ public class FinalRCDiffAlgorithm extends AbstractDcopAlgorithm {
 
             runClearblock(outputs, inputs, parentRequest, descendingExcessLoadMap, sortedNeighbors, parent, root);
 
+            ++loopCount;
+            if (!outputs.equals(prevOutputs) || !inputs.equals(prevInputs) || !delta.equals(prevDelta)) {
+                lastChangeLoop = loopCount;
+                prevOutputs = new HashSet<>(outputs);
+                prevInputs = new HashSet<>(inputs);
+                prevDelta = new HashMap<>(delta);
+            }
+
             if (AgentConfiguration.getInstance().getDcopAcdiffSimulateMessageDrops()) {
-                if (compareDouble(RANDOM.nextDouble(),
+                if (compareDouble(getRandom().nextDouble(),
                         1 - AgentConfiguration.getInstance().getDcopAcdiffSimulateMessageDropRate()) < 0) {
                     sendMessages();
                 }
@@ -307,13 +331,13 @@ public class FinalRCDiffAlgorithm extends AbstractDcopAlgorithm {
                     getClientKeepLoadMap());
             LOGGER.info("DCOP Run {} Region {} end the current cycle", currentDcopRun, getRegionID());
 
-            if (LocalDateTime.now().isAfter(stopTime)) {
+            if (getTimeSource().now().isAfter(stopTime)) {
                 break;
             }
 
             // Sleep to increase interval between two loops
             try {
-                Thread.sleep(SLEEP_TIME);
+                getTimeSource().sleep(SLEEP_TIME);
             } catch (InterruptedException e) {
                 e.printStackTrace();
             }
@@ -323,6 +347,8 @@ public class FinalRCDiffAlgorithm extends AbstractDcopAlgorithm {
 
         LOGGER.info("AFTER DCOP FOR LOOP, Dcop run {} Region {} has flowLoadMap {}", currentDcopRun, getRegionID(),
                 getFlowLoadMap());
+        LOGGER.info("AFTER DCOP FOR LOOP, Dcop run {} Region {} converged after {} of {} loops", currentDcopRun,
+                getRegionID(), lastChangeLoop, loopCount);
         LOGGER.info("AFTER DCOP FOR LOOP, Dcop run {} Region {} has getClientLoadMap {}", currentDcopRun, getRegionID(),
                 getClientKeepLoadMap());
 
@@ -330,6 +356,69 @@ public class FinalRCDiffAlgorithm extends AbstractDcopAlgorithm {
         return computeRegionDcopPlan(summary, currentDcopRun, true);
     }
 
+    /**
+     * Prepare this object to be run again with new inputs while keeping the
+     * parent, root, plans and delta from the previous run. These seed the
+     * next run so that it converges faster when the demand changes only
+     * slightly. Plans that are no longer valid are removed by the clear block
+     * in the same way as during a run. Everything else is reset to the state
+     * of a new object, the data center tree is read from the shared
+     * information as on a cold start.
+     * 
+     * @param newSummary
+     *            the summary for the next run
+     * @param newTopology
+     *            the topology for the next run
+     * @see com.bbn.map.AgentConfiguration#getDcopWarmStart()
+     */
+    public void prepareWarmStart(ResourceSummary newSummary, RegionalTopology newTopology) {
+        this.summary = newSummary;
+        this.topology = newTopology;
+
+        // per run message state
+        messageMapToSend.clear();
+        receivedMessageMap.clear();
+        prevSharedInfo.clear();
+        sortedNeighbors.clear();
+        getFlowLoadMap().clear();
+        getClientKeepLoadMap().clear();
+        getAllServiceSet().clear();
+
+        // per run request and proposal state, the tree and the services of
+        // this region are read again from the new inputs
+        parentRequest = FinalRCDiffRequest.emptyRequest();
+        childrenProposal.clear();
+        roundCount = 0;
+        pathToClient = FinalRCDiffTree.emptyTree();
+
+        // give the existing plans a full timer period to be confirmed by the
+        // neighbors
+        inputTimer.clear();
+        outputTimer.clear();
+
+        LOGGER.info("DCOP Run {} Region {} warm start with parent {} root {} delta {} inputs {} outputs {}",
+                currentDcopRun, getRegionID(), parent, root, delta, inputs, outputs);
+    }
+
+    /**
+     * 
+     * @return the number of passes through the main loop in the last call to
+     *         {@link #run()}, 0 if the loop was not executed
+     */
+    public int getLoopCount() {
+        return loopCount;
+    }
+
+    /**
+     * 
+     * @return the pass through the main loop in the last call to
+     *         {@link #run()} after which the plans and delta did not change.
+     *         This is the number of iterations needed to converge.
+     */
+    public int getIterationsToConverge() {
+        return lastChangeLoop;
+    }
+
     private SortedMap<ServiceIdentifier<?>, Double> computeTempExcess(SortedMap<ServiceIdentifier<?>, Double> demandMap,
             SortedMap<ServiceIdentifier<?>, Double> deltaMap,
             double regionCap) {
@@ -945,18 +1034,18 @@ public class FinalRCDiffAlgorithm extends AbstractDcopAlgorithm {
                 // with current time
                 // And ignore
                 if (!outputTimer.containsKey(selfInput)) {
-                    outputTimer.put(selfInput, LocalDateTime.now());
+                    outputTimer.put(selfInput, getTimeSource().now());
                     continue;
                 }
                 // Check the duration
                 else {
                     LocalDateTime stopTime = outputTimer.get(selfInput).plus(timerThreshold);
 
-                    if (LocalDateTime.now().isAfter(stopTime)) {
+                    if (getTimeSource().now().isAfter(stopTime)) {
                         LOGGER.info(
                                 "DCOP Run {} Region {} removes input tuple because it was null from {} with threshold {} and now {}",
                                 currentDcopRun, getRegionID(), outputTimer.get(selfInput), timerThreshold,
-                                LocalDateTime.now());
+                                getTimeSource().now());
                         remove = true;
                         outputTimer.remove(selfInput);
                     }
@@ -1070,16 +1159,16 @@ public class FinalRCDiffAlgorithm extends AbstractDcopAlgorithm {
                 // with current time
                 // And ignore
                 if (!inputTimer.containsKey(selfOutput)) {
-                    inputTimer.put(selfOutput, LocalDateTime.now());
+                    inputTimer.put(selfOutput, getTimeSource().now());
                     continue;
                 } else {
                     LocalDateTime stopTime = inputTimer.get(selfOutput).plus(timerThreshold);
 
-                    if (LocalDateTime.now().isAfter(stopTime)) {
+                    if (getTimeSource().now().isAfter(stopTime)) {
                         LOGGER.info(
                                 "DCOP Run {} Region {} removes output tuple because it was null from {} with threshold {} and now {}",
                                 currentDcopRun, getRegionID(), outputTimer.get(selfOutput), timerThreshold,
-                                LocalDateTime.now());
+                                getTimeSource().now());
                         inputTimer.remove(selfOutput);
                         remove = true;
                     }
@@ -1633,7 +1722,7 @@ public class FinalRCDiffAlgorithm extends AbstractDcopAlgorithm {
                 if (sortedNeighbors.contains(infoSender) && prevSharedInfo.containsKey(infoSender)
                         && !infoContent.equals(prevSharedInfo.get(infoSender))) {
                     LocalDateTime constructionTime = infoContent.getConstructionTimeMap().get(dcopRun);
-                    long delay = ChronoUnit.MILLIS.between(constructionTime, LocalDateTime.now());
+                    long delay = ChronoUnit.MILLIS.between(constructionTime, getTimeSource().now());
                     LOGGER.info("DCOP Run {} Region {} reads messages from Region {} constructed {} ms ago at {}",
                             dcopRun, getRegionID(), infoEntry.getKey(), delay, constructionTime);
                 }
@@ -1666,8 +1755,11 @@ public class FinalRCDiffAlgorithm extends AbstractDcopAlgorithm {
                                     // Get time stamp of each single message
                                     // content
                                     LocalDateTime sendTime = FinalRCDiffMessageContent.getTimeStamp(msgTimeStampEntry);
+                                    if (null == sendTime) {
+                                        continue;
+                                    }
 
-                                    long miliseconds = ChronoUnit.MILLIS.between(sendTime, LocalDateTime.now());
+                                    long miliseconds = ChronoUnit.MILLIS.between(sendTime, getTimeSource().now());
 
                                     LOGGER.info(
                                             "DCOP Run {} Region {} waits for message from Region {} took {} ms constructed at {}: {}",
@@ -1694,8 +1786,9 @@ public class FinalRCDiffAlgorithm extends AbstractDcopAlgorithm {
             FinalRCDiffMessageType messageType,
             FinalRCDiffMessageContent messageContent) {
         // Create a deep copy in order to set the time stamp to
-        // LocalDateTime.now()
-        FinalRCDiffMessageContent msgWithTimeStamp = FinalRCDiffMessageContent.deepCopy(messageContent);
+        // getTimeSource().now()
+        FinalRCDiffMessageContent msgWithTimeStamp = FinalRCDiffMessageContent.withTimeStamp(messageContent,
+                getTimeSource().now());
         LOGGER.info("DCOP Run {} Region {} sends message to Region {} type {}: {}", currentDcopRun, getRegionID(),
                 receiver, messageType, msgWithTimeStamp);
         FinalRCDiffDcopMessage messageToSend = messageMapToSend.getOrDefault(receiver,
@@ -1719,7 +1812,7 @@ public class FinalRCDiffAlgorithm extends AbstractDcopAlgorithm {
 
             // Deep copy each FinalRCDiffMessageContent in the message
             FinalRCDiffDcopMessage deepCopyWithTimestampUpdated = FinalRCDiffDcopMessage
-                    .deepCopyWithUpdateTimestamp(modularRcdiffMessage);
+                    .deepCopyWithUpdateTimestamp(modularRcdiffMessage, getTimeSource().now());
             receiverMsgMap.setMessageToTheReceiver(receiver, deepCopyWithTimestampUpdated);
 
             // modularRcdiffMsgPerIteration.setMessageToTheReceiver(receiver,
@@ -1735,7 +1828,7 @@ public class FinalRCDiffAlgorithm extends AbstractDcopAlgorithm {
         }
         inbox.setAsynchronousMessage(receiverMsgMap);
 
-        inbox.getConstructionTimeMap().put(currentDcopRun, LocalDateTime.now());
+        inbox.putConstructionTime(currentDcopRun, getTimeSource().now());
         getDcopInfoProvider().setLocalDcopSharedInformation(inbox);
     }
 
@@ -1794,7 +1887,7 @@ public class FinalRCDiffAlgorithm extends AbstractDcopAlgorithm {
 
         LOGGER.info("DCOP Run {} Region {} write new Inbox {}", currentDcopRun, getRegionID(), inbox);
 
-        inbox.getConstructionTimeMap().put(currentDcopRun, LocalDateTime.now());
+        inbox.putConstructionTime(currentDcopRun, getTimeSource().now());
         getDcopInfoProvider().setLocalDcopSharedInformation(inbox);
     }
 
@@ -1805,7 +1898,7 @@ public class FinalRCDiffAlgorithm extends AbstractDcopAlgorithm {
      *         run
      */
     private void initialize() {
-        inbox = getDcopInfoProvider().getAllDcopSharedInformation().get(getRegionID());
+        inbox = readInbox();
 
         currentDcopRun = inbox.getAsynchronousMessage().getIteration() + 1;
 
@@ -1890,6 +1983,11 @@ public class FinalRCDiffAlgorithm extends AbstractDcopAlgorithm {
         return summary.getNetworkCapacity().get(neighbor).getOrDefault(LinkAttribute.DATARATE_RX, 0D);
     }
 
+    @Override
+    protected int getIterationWindow() {
+        return CURRENT_RUN_ITERATION_WINDOW;
+    }
+
     @Override
     protected double getAvailableCapacity() {
         return 0;
@@ -1,6 +1,7 @@
 package com.bbn.map.dcop.final_rcdiff;
 
 import java.io.Serializable;
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -72,14 +73,15 @@ public final class FinalRCDiffDcopMessage implements GeneralDcopMessage, Seriali
     
     /**
      * @param  object is the object to be copied
-     * @return a deep copy with time stamp is set to current of the FinalRCDiffDcopMessage object
+     * @param timeStamp the time that the message is sent
+     * @return a deep copy with time stamp is set to timeStamp of the FinalRCDiffDcopMessage object
      */
-    public static FinalRCDiffDcopMessage deepCopyWithUpdateTimestamp(FinalRCDiffDcopMessage object) {
+    public static FinalRCDiffDcopMessage deepCopyWithUpdateTimestamp(FinalRCDiffDcopMessage object, LocalDateTime timeStamp) {
         Map<FinalRCDiffMessageType, Set<FinalRCDiffMessageContent>> copiedMsgMap = new HashMap<>();
         
         for (Entry<FinalRCDiffMessageType, Set<FinalRCDiffMessageContent>> orgEntry : object.getMessageMap().entrySet()) {
             for (FinalRCDiffMessageContent orgMsgContent : orgEntry.getValue()) {
-                copiedMsgMap.computeIfAbsent(orgEntry.getKey(), k -> new HashSet<>()).add(FinalRCDiffMessageContent.deepCopy(orgMsgContent));
+                copiedMsgMap.computeIfAbsent(orgEntry.getKey(), k -> new HashSet<>()).add(FinalRCDiffMessageContent.withTimeStamp(orgMsgContent, timeStamp));
             }
         }
         
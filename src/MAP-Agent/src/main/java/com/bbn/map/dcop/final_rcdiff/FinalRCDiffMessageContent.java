@@ -48,7 +48,39 @@ public interface FinalRCDiffMessageContent {
     
     /**
      * @param object .
-     * @return the time stamp of the object
+     * @param timeStamp the time that the copy is sent
+     * @return a deep copy of the object with the time stamp replaced
+     */
+    static FinalRCDiffMessageContent withTimeStamp(FinalRCDiffMessageContent object, LocalDateTime timeStamp) {
+        if (object instanceof FinalRCDiffServerToClient) {
+            FinalRCDiffServerToClient casted = (FinalRCDiffServerToClient) object;
+            return FinalRCDiffServerToClient.withTimeStamp(casted, timeStamp);
+        }
+        else if (object instanceof FinalRCDiffRequest) {
+            FinalRCDiffRequest casted = (FinalRCDiffRequest) object;
+            return FinalRCDiffRequest.withTimeStamp(casted, timeStamp);
+        }
+        else if (object instanceof FinalRCDiffProposal) {
+            FinalRCDiffProposal casted = (FinalRCDiffProposal) object;
+            return FinalRCDiffProposal.withTimeStamp(casted, timeStamp);
+        }
+        else if (object instanceof FinalRCDiffPlan) {
+            FinalRCDiffPlan casted = (FinalRCDiffPlan) object;
+            return FinalRCDiffPlan.withTimeStamp(casted, timeStamp);
+        }
+        else if (object instanceof FinalRCDiffTree) {
+            FinalRCDiffTree casted = (FinalRCDiffTree) object;
+            return FinalRCDiffTree.withTimeStamp(casted, timeStamp);
+        }
+        
+        LOGGER.info("WARNING: Cannot find class of instance {} in FinalRCDiffMessageContent when running withTimeStamp", object);
+        
+        return object;
+    }
+    
+    /**
+     * @param object .
+     * @return the time that the object was sent, null if it hasn't been sent
      */
     static LocalDateTime getTimeStamp(FinalRCDiffMessageContent object) {
         if (object instanceof FinalRCDiffServerToClient) {
@@ -74,6 +106,6 @@ public interface FinalRCDiffMessageContent {
         
         LOGGER.info("WARNING: Cannot find class of instance {} in FinalRCDiffMessageContent when running getTimeStamp", object);
         
-        return LocalDateTime.now();
+        return null;
     }
 }
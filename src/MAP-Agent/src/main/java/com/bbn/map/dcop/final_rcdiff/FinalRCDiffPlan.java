@@ -66,7 +66,7 @@ public final class FinalRCDiffPlan implements FinalRCDiffMessageContent, Seriali
      * @return a new FinalRCDiffPlan object 
      */
     public static FinalRCDiffPlan of(RegionIdentifier root, double load, RegionIdentifier sink, RegionIdentifier sender, RegionIdentifier receiver, ServiceIdentifier<?> service, PlanType type) {
-        return new FinalRCDiffPlan(root, load, sink, sender, receiver, service, type);
+        return new FinalRCDiffPlan(root, load, sink, sender, receiver, service, type, null);
     }
     
     /**
@@ -74,7 +74,7 @@ public final class FinalRCDiffPlan implements FinalRCDiffMessageContent, Seriali
      * @return a deep copy of the provided object
      */
     public static FinalRCDiffPlan deepCopy(FinalRCDiffPlan object) {
-        return new FinalRCDiffPlan(object.getRoot(), object.getLoad(), object.getSink(), object.getSender(), object.getReceiver(), object.getService(), object.getType());
+        return new FinalRCDiffPlan(object.getRoot(), object.getLoad(), object.getSink(), object.getSender(), object.getReceiver(), object.getService(), object.getType(), object.getTimeStamp());
     }
     
     /**
@@ -83,10 +83,19 @@ public final class FinalRCDiffPlan implements FinalRCDiffMessageContent, Seriali
      * @return a deep copy of the provided object except for the object's type. The type of the returned copy is the provided type
      */
     public static FinalRCDiffPlan deepCopy(FinalRCDiffPlan object, PlanType type) {
-        return new FinalRCDiffPlan(object.getRoot(), object.getLoad(), object.getSink(), object.getSender(), object.getReceiver(), object.getService(), type);
+        return new FinalRCDiffPlan(object.getRoot(), object.getLoad(), object.getSink(), object.getSender(), object.getReceiver(), object.getService(), type, object.getTimeStamp());
     }
     
-    private FinalRCDiffPlan(RegionIdentifier root, double load, RegionIdentifier sink, RegionIdentifier sender, RegionIdentifier receiver, ServiceIdentifier<?> service, PlanType type) {
+    /**
+     * @param object .
+     * @param timeStamp the time that the copy is sent
+     * @return a deep copy of the object with the time stamp replaced
+     */
+    public static FinalRCDiffPlan withTimeStamp(FinalRCDiffPlan object, LocalDateTime timeStamp) {
+        return new FinalRCDiffPlan(object.getRoot(), object.getLoad(), object.getSink(), object.getSender(), object.getReceiver(), object.getService(), object.getType(), timeStamp);
+    }
+    
+    private FinalRCDiffPlan(RegionIdentifier root, double load, RegionIdentifier sink, RegionIdentifier sender, RegionIdentifier receiver, ServiceIdentifier<?> service, PlanType type, LocalDateTime timeStamp) {
         this.root = root;
         this.load = load;
         this.sink = sink;
@@ -94,7 +103,7 @@ public final class FinalRCDiffPlan implements FinalRCDiffMessageContent, Seriali
         this.receiver = receiver;
         this.service = service;
         this.type = type;
-        this.timeStamp = LocalDateTime.now();
+        this.timeStamp = timeStamp;
         this.objectCounter = counter++;
         // don't include anything that does a fuzzy comparison in equals
         this.hashCode = Objects.hash(root, sink, sender, receiver, service, type);
@@ -187,7 +196,7 @@ public final class FinalRCDiffPlan implements FinalRCDiffMessageContent, Seriali
     }
 
     /**
-     * @return timeStamp
+     * @return the time that the message was sent, null if it hasn't been sent
      */
     public LocalDateTime getTimeStamp() {
         return timeStamp;
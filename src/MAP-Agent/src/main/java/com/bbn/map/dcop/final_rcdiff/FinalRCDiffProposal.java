@@ -46,7 +46,7 @@ public final class FinalRCDiffProposal implements FinalRCDiffMessageContent, Ser
      * @return a new FinalRCDiffProposal object
      */
     public static FinalRCDiffProposal of(RegionIdentifier sender, RegionIdentifier root, RegionIdentifier sink, FinalRCDiffTuple tuple, double proposalCapacity) {
-        return new FinalRCDiffProposal(sender, root, sink, tuple, proposalCapacity);
+        return new FinalRCDiffProposal(sender, root, sink, tuple, proposalCapacity, null);
     }
     
     /**
@@ -54,7 +54,7 @@ public final class FinalRCDiffProposal implements FinalRCDiffMessageContent, Ser
      * @return a deep copy of the object
      */
     public static FinalRCDiffProposal deepCopy(FinalRCDiffProposal object) {
-        return new FinalRCDiffProposal(object.getSender(), object.getRoot(), object.getSink(), object.getTuple(), object.getProposalCapacity());
+        return new FinalRCDiffProposal(object.getSender(), object.getRoot(), object.getSink(), object.getTuple(), object.getProposalCapacity(), object.getTimeStamp());
     }
     
     /**
@@ -63,7 +63,7 @@ public final class FinalRCDiffProposal implements FinalRCDiffMessageContent, Ser
      * @return a deep copy of the object which has sender replaced by region
      */
     public static FinalRCDiffProposal replaceSender(FinalRCDiffProposal object, RegionIdentifier region) {
-        return new FinalRCDiffProposal(region, object.getRoot(), object.getSink(), object.getTuple(), object.getProposalCapacity());
+        return new FinalRCDiffProposal(region, object.getRoot(), object.getSink(), object.getTuple(), object.getProposalCapacity(), null);
     }
     
     /**
@@ -72,7 +72,7 @@ public final class FinalRCDiffProposal implements FinalRCDiffMessageContent, Ser
      * @return a deep copy of the object which has proposalCapacity replaced by load
      */
     public static FinalRCDiffProposal replaceLoad(FinalRCDiffProposal object, double load) {
-        return new FinalRCDiffProposal(object.getSender(), object.getRoot(), object.getSink(), object.getTuple(), load);
+        return new FinalRCDiffProposal(object.getSender(), object.getRoot(), object.getSink(), object.getTuple(), load, null);
     }
     
     /**
@@ -81,23 +81,32 @@ public final class FinalRCDiffProposal implements FinalRCDiffMessageContent, Ser
      * @return a deep copy of the object which has proposalCapacity replaced by load
      */
     public static FinalRCDiffProposal replaceTuple(FinalRCDiffProposal object, FinalRCDiffTuple tuple) {
-        return new FinalRCDiffProposal(object.getSender(), object.getRoot(), object.getSink(), tuple, object.getProposalCapacity());
+        return new FinalRCDiffProposal(object.getSender(), object.getRoot(), object.getSink(), tuple, object.getProposalCapacity(), null);
     }
     
     /**
      * @return an empty message
      */
     public static FinalRCDiffMessageContent emptyProposal() {
-        return new FinalRCDiffProposal(null, null, null, null, -Double.MAX_VALUE);
+        return new FinalRCDiffProposal(null, null, null, null, -Double.MAX_VALUE, null);
     }
     
-    private FinalRCDiffProposal(RegionIdentifier sender, RegionIdentifier root, RegionIdentifier sink, FinalRCDiffTuple tuple, double proposalCapacity) {
+    /**
+     * @param object .
+     * @param timeStamp the time that the copy is sent
+     * @return a deep copy of the object with the time stamp replaced
+     */
+    public static FinalRCDiffProposal withTimeStamp(FinalRCDiffProposal object, LocalDateTime timeStamp) {
+        return new FinalRCDiffProposal(object.getSender(), object.getRoot(), object.getSink(), object.getTuple(), object.getProposalCapacity(), timeStamp);
+    }
+    
+    private FinalRCDiffProposal(RegionIdentifier sender, RegionIdentifier root, RegionIdentifier sink, FinalRCDiffTuple tuple, double proposalCapacity, LocalDateTime timeStamp) {
         this.sender = sender;
         this.root = root;
         this.sink = sink;
         this.tuple = tuple;
         this.proposalCapacity = proposalCapacity;
-        this.timeStamp = LocalDateTime.now();
+        this.timeStamp = timeStamp;
         
         this.objectCounter = counter++;
         // don't include anything that does a fuzzy match in equals
@@ -180,7 +189,7 @@ public final class FinalRCDiffProposal implements FinalRCDiffMessageContent, Ser
     }
 
     /**
-     * @return timeStamp
+     * @return the time that the message was sent, null if it hasn't been sent
      */
     public LocalDateTime getTimeStamp() {
         return timeStamp;
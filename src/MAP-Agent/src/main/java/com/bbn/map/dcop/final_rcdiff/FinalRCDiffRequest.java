@@ -38,7 +38,7 @@ public final class FinalRCDiffRequest implements FinalRCDiffMessageContent, Seri
      * @return a FinalRCDiffRequest object with root=null, loadMap=empty map, hop = Integer.MAX_VALUE
      */
     public static FinalRCDiffRequest emptyRequest() {
-        return new FinalRCDiffRequest(null, new HashMap<>(), Integer.MAX_VALUE);
+        return new FinalRCDiffRequest(null, new HashMap<>(), Integer.MAX_VALUE, null);
     }
     
     /**
@@ -49,7 +49,7 @@ public final class FinalRCDiffRequest implements FinalRCDiffMessageContent, Seri
      * @return a new FinalRCDiffRequest object
      */
     public static FinalRCDiffRequest of(RegionIdentifier root, Map<ServiceIdentifier<?>, Double> loadMap, int hop) {
-        return new FinalRCDiffRequest(root, loadMap, hop);
+        return new FinalRCDiffRequest(root, loadMap, hop, null);
     }
     
     /**
@@ -58,14 +58,23 @@ public final class FinalRCDiffRequest implements FinalRCDiffMessageContent, Seri
      * @return a deep copy from the object
      */
     public static FinalRCDiffRequest deepCopy(FinalRCDiffRequest object) {
-        return new FinalRCDiffRequest(object.getRoot(), object.getLoadMap(), object.getHop());
+        return new FinalRCDiffRequest(object.getRoot(), object.getLoadMap(), object.getHop(), object.getTimeStamp());
     }
     
-    private FinalRCDiffRequest(RegionIdentifier root, Map<ServiceIdentifier<?>, Double> loadMap, int hop) {
+    /**
+     * @param object .
+     * @param timeStamp the time that the copy is sent
+     * @return a deep copy of the object with the time stamp replaced
+     */
+    public static FinalRCDiffRequest withTimeStamp(FinalRCDiffRequest object, LocalDateTime timeStamp) {
+        return new FinalRCDiffRequest(object.getRoot(), object.getLoadMap(), object.getHop(), timeStamp);
+    }
+    
+    private FinalRCDiffRequest(RegionIdentifier root, Map<ServiceIdentifier<?>, Double> loadMap, int hop, LocalDateTime timeStamp) {
         this.root = root;
         this.loadMap.putAll(loadMap);
         this.hop = hop;
-        this.timeStamp = LocalDateTime.now();
+        this.timeStamp = timeStamp;
         this.objectCounter = counter++;
     }
     
@@ -149,7 +158,7 @@ public final class FinalRCDiffRequest implements FinalRCDiffMessageContent, Seri
     }
 
     /**
-     * @return timeStamp
+     * @return the time that the message was sent, null if it hasn't been sent
      */
     public LocalDateTime getTimeStamp() {
         return timeStamp;
@@ -42,7 +42,7 @@ public final class FinalRCDiffServerToClient implements FinalRCDiffMessageConten
      * @return a new FinalRCDiffServerToClient object
      */
     public static FinalRCDiffServerToClient of(RegionIdentifier server, RegionIdentifier client, ServiceIdentifier<?> service, double load) {
-        return new FinalRCDiffServerToClient(server, client, service, load);
+        return new FinalRCDiffServerToClient(server, client, service, load, null);
     }
     
     /**
@@ -50,15 +50,24 @@ public final class FinalRCDiffServerToClient implements FinalRCDiffMessageConten
      * @return a deep copy of the object
      */
     public static FinalRCDiffServerToClient deepCopy(FinalRCDiffServerToClient object) {
-        return new FinalRCDiffServerToClient(object.getServer(), object.getClient(), object.getService(), object.getLoad());
+        return new FinalRCDiffServerToClient(object.getServer(), object.getClient(), object.getService(), object.getLoad(), object.getTimeStamp());
     }
     
-    private FinalRCDiffServerToClient(RegionIdentifier server, RegionIdentifier client, ServiceIdentifier<?> service, double load) {
+    /**
+     * @param object .
+     * @param timeStamp the time that the copy is sent
+     * @return a deep copy of the object with the time stamp replaced
+     */
+    public static FinalRCDiffServerToClient withTimeStamp(FinalRCDiffServerToClient object, LocalDateTime timeStamp) {
+        return new FinalRCDiffServerToClient(object.getServer(), object.getClient(), object.getService(), object.getLoad(), timeStamp);
+    }
+    
+    private FinalRCDiffServerToClient(RegionIdentifier server, RegionIdentifier client, ServiceIdentifier<?> service, double load, LocalDateTime timeStamp) {
         this.server = server;
         this.client = client;
         this.service = service;
         this.load = load;
-        this.timeStamp = LocalDateTime.now();
+        this.timeStamp = timeStamp;
         this.objectCounter = counter++;
         // don't include anything that does a fuzzy match in equals
         this.hashCode = Objects.hash(server, client, service);
@@ -93,7 +102,7 @@ public final class FinalRCDiffServerToClient implements FinalRCDiffMessageConten
     }
     
     /**
-     * @return timeStamp
+     * @return the time that the message was sent, null if it hasn't been sent
      */
     public LocalDateTime getTimeStamp() {
         return timeStamp;
@@ -40,14 +40,14 @@ public final class FinalRCDiffTree implements FinalRCDiffMessageContent, Seriali
      * @return a FinalRCDiffTree object
      */
     public static FinalRCDiffTree of(Map<ServerClientService, RegionIdentifier> pathToClient, Set<ServiceIdentifier<?>> selfRegionServices) {
-        return new FinalRCDiffTree(pathToClient, selfRegionServices);
+        return new FinalRCDiffTree(pathToClient, selfRegionServices, null);
     }
     
     /**
      * @return an empty tree
      */
     public static FinalRCDiffTree emptyTree() {
-        return new FinalRCDiffTree(new HashMap<>(), new HashSet<>());
+        return new FinalRCDiffTree(new HashMap<>(), new HashSet<>(), null);
     }
     
     /**
@@ -55,7 +55,7 @@ public final class FinalRCDiffTree implements FinalRCDiffMessageContent, Seriali
      * @return a deep copy
      */
     public static FinalRCDiffTree deepCopy(FinalRCDiffTree object) {
-        return new FinalRCDiffTree(object.getPathToClient(), object.getSelfRegionServices());
+        return new FinalRCDiffTree(object.getPathToClient(), object.getSelfRegionServices(), object.getTimeStamp());
     }
     
     
@@ -85,10 +85,19 @@ public final class FinalRCDiffTree implements FinalRCDiffMessageContent, Seriali
                 + ", objectCounter=" + objectCounter + ", timeStamp=" + timeStamp + "]";
     }
 
-    private FinalRCDiffTree(Map<ServerClientService, RegionIdentifier> pathToClient, Set<ServiceIdentifier<?>> selfRegionServices) {
+    /**
+     * @param object .
+     * @param timeStamp the time that the copy is sent
+     * @return a deep copy of the object with the time stamp replaced
+     */
+    public static FinalRCDiffTree withTimeStamp(FinalRCDiffTree object, LocalDateTime timeStamp) {
+        return new FinalRCDiffTree(object.getPathToClient(), object.getSelfRegionServices(), timeStamp);
+    }
+    
+    private FinalRCDiffTree(Map<ServerClientService, RegionIdentifier> pathToClient, Set<ServiceIdentifier<?>> selfRegionServices, LocalDateTime timeStamp) {
         this.pathToClient.putAll(pathToClient);
         this.selfRegionServices.addAll(selfRegionServices);
-        this.timeStamp = LocalDateTime.now();
+        this.timeStamp = timeStamp;
         this.objectCounter = counter++;
     }
     
@@ -147,7 +156,7 @@ public final class FinalRCDiffTree implements FinalRCDiffMessageContent, Seriali
     }
 
     /**
-     * @return timeStamp
+     * @return the time that the message was sent, null if it hasn't been sent
      */
     public LocalDateTime getTimeStamp() {
         return timeStamp;
@@ -6,7 +6,6 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Random;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -40,7 +39,7 @@ import com.google.common.collect.ImmutableMap;
 public class ModularACdiffAlgorithm extends AbstractDcopAlgorithm {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ModularACdiffAlgorithm.class);
-    
+
     /**
      * Type of flow for incoming or going load.
      * Used in computing DCOP plans 
@@ -172,8 +171,6 @@ public class ModularACdiffAlgorithm extends AbstractDcopAlgorithm {
         super(regionID, dcopInfoProvider, applicationManager);
     }
 
-    private static final Random RANDOM = new Random();
-    
     /**
      * @return DCOP plan
      */
@@ -205,11 +202,11 @@ public class ModularACdiffAlgorithm extends AbstractDcopAlgorithm {
         
         executeGblock(demandMap, getAvailableCapacity());
                 
-        final LocalDateTime stopTime = LocalDateTime.now().plus(AgentConfiguration.getInstance().getDcopAcdiffTimeOut());
+        final LocalDateTime stopTime = getTimeSource().now().plus(AgentConfiguration.getInstance().getDcopAcdiffTimeOut());
                 
         while (READING_MESSAGES) {            
             if (AgentConfiguration.getInstance().getDcopAcdiffSimulateMessageDrops()) {
-                if (compareDouble(RANDOM.nextDouble(),
+                if (compareDouble(getRandom().nextDouble(),
                         1 - AgentConfiguration.getInstance().getDcopAcdiffSimulateMessageDropRate()) < 0) {
                     sendAllMessages();
                 }
@@ -224,7 +221,7 @@ public class ModularACdiffAlgorithm extends AbstractDcopAlgorithm {
             if (receivedMessageMap.equals(storedMessages)) {
                 // Sleep for AP round duration to avoid continuously checking for messages
                 try {
-                    Thread.sleep(AgentConfiguration.getInstance().getApRoundDuration().toMillis() * DCOPService.AP_ROUNDS_TO_SLEEP_BETWEEN_MESSAGE_CHECKS);
+                    getTimeSource().sleep(AgentConfiguration.getInstance().getApRoundDuration().toMillis() * DCOPService.AP_ROUNDS_TO_SLEEP_BETWEEN_MESSAGE_CHECKS);
                 } catch (InterruptedException e) {
                     e.printStackTrace();
                 }
@@ -271,7 +268,7 @@ public class ModularACdiffAlgorithm extends AbstractDcopAlgorithm {
             LOGGER.info("Dcop Run {} Region {} has getClientLoadMap {}", currentDcopRun, getRegionID(), getClientKeepLoadMap());
 //            LOGGER.info("DCOP Run {} Region {} end the current cycle", currentDcopRun, getRegionID());
 
-            if (LocalDateTime.now().isAfter(stopTime)) {
+            if (getTimeSource().now().isAfter(stopTime)) {
                 break;
             }
         }              
@@ -1447,7 +1444,7 @@ public class ModularACdiffAlgorithm extends AbstractDcopAlgorithm {
      *  @return 0 (or more if more than second DCOP run)
      */
     private void initialize() {        
-        inbox = getDcopInfoProvider().getAllDcopSharedInformation().get(getRegionID());
+        inbox = readInbox();
                 
         currentDcopRun = inbox.getAsynchronousMessage().getIteration() + 1;
         
@@ -1510,6 +1507,11 @@ public class ModularACdiffAlgorithm extends AbstractDcopAlgorithm {
         return compareDouble(getAvailableCapacity(), 0) > 0;
     }
     
+    @Override
+    protected int getIterationWindow() {
+        return CURRENT_RUN_ITERATION_WINDOW;
+    }
+
     /**
      * regionCapacity - sumValues(keepLoadMap).
      * @return available capacity if positive
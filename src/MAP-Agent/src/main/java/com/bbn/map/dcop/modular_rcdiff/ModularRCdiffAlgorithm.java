@@ -6,7 +6,6 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Random;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -43,7 +42,7 @@ import com.google.common.collect.ImmutableMap;
 public class ModularRCdiffAlgorithm extends AbstractDcopAlgorithm {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ModularRCdiffAlgorithm.class);
-    
+
     /**
      * @author khoihd
      *
@@ -165,8 +164,6 @@ public class ModularRCdiffAlgorithm extends AbstractDcopAlgorithm {
         super(regionID, dcopInfoProvider, applicationManager);
     }
 
-    private static final Random RANDOM = new Random();
-    
     /**
      * @return DCOP plan
      */
@@ -229,11 +226,11 @@ public class ModularRCdiffAlgorithm extends AbstractDcopAlgorithm {
             addMessage(entry.getKey(), ModularRCdiffMessageType.SERVER_TO_CLIENT, currentAugmentedRoot, 0, new HashMap<>(), entry.getValue());    
         }
         
-        final LocalDateTime stopTime = LocalDateTime.now().plus(AgentConfiguration.getInstance().getDcopAcdiffTimeOut());
+        final LocalDateTime stopTime = getTimeSource().now().plus(AgentConfiguration.getInstance().getDcopAcdiffTimeOut());
                 
         while (READING_MESSAGES) {
             if (AgentConfiguration.getInstance().getDcopAcdiffSimulateMessageDrops()) {
-                if (compareDouble(RANDOM.nextDouble(),
+                if (compareDouble(getRandom().nextDouble(),
                         1 - AgentConfiguration.getInstance().getDcopAcdiffSimulateMessageDropRate()) < 0) {
                     sendAllMessages();
                 }
@@ -248,7 +245,7 @@ public class ModularRCdiffAlgorithm extends AbstractDcopAlgorithm {
             if (receivedMessageMap.equals(storedMessages)) {
                 // Sleep for AP round duration to avoid continuously checking for messages
                 try {
-                    Thread.sleep(AgentConfiguration.getInstance().getApRoundDuration().toMillis());
+                    getTimeSource().sleep(AgentConfiguration.getInstance().getApRoundDuration().toMillis());
                 } catch (InterruptedException e) {
                     e.printStackTrace();
                 }
@@ -300,7 +297,7 @@ public class ModularRCdiffAlgorithm extends AbstractDcopAlgorithm {
             LOGGER.info("Dcop Run {} Region {} has getClientLoadMap {}", currentDcopRun, getRegionID(), getClientKeepLoadMap());
             LOGGER.info("DCOP Run {} Region {} end the current cycle", currentDcopRun, getRegionID());
 
-            if (LocalDateTime.now().isAfter(stopTime)) {
+            if (getTimeSource().now().isAfter(stopTime)) {
                 break;
             }
         }              
@@ -1918,7 +1915,7 @@ public class ModularRCdiffAlgorithm extends AbstractDcopAlgorithm {
      *  @return the run count or the first iteration count of the current DCOP run 
      */
     private void initialize() {        
-        inbox = getDcopInfoProvider().getAllDcopSharedInformation().get(getRegionID());
+        inbox = readInbox();
                 
         currentDcopRun = inbox.getAsynchronousMessage().getIteration() + 1;
         
@@ -1960,6 +1957,11 @@ public class ModularRCdiffAlgorithm extends AbstractDcopAlgorithm {
         return compareDouble(getAvailableCapacity(), 0) > 0;
     }
     
+    @Override
+    protected int getIterationWindow() {
+        return CURRENT_RUN_ITERATION_WINDOW;
+    }
+
     /**
      * regionCapacity - sumValues(keepLoadMap).
      * @return available capacity if positive
@@ -6,7 +6,6 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Random;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -44,7 +43,7 @@ import com.google.common.collect.ImmutableMap;
 public class RCdiffAlgorithm extends AbstractDcopAlgorithm {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(RCdiffAlgorithm.class);
-    
+
     /**
      * @author khoihd
      *
@@ -163,8 +162,6 @@ public class RCdiffAlgorithm extends AbstractDcopAlgorithm {
         super(regionID, dcopInfoProvider, applicationManager);
     }
 
-    private static final Random RANDOM = new Random();
-    
     /**
      * @return DCOP plan
      */
@@ -226,11 +223,11 @@ public class RCdiffAlgorithm extends AbstractDcopAlgorithm {
             addMessage(entry.getKey(), RCdiffMessageType.SERVER_TO_CLIENT, currentAugmentedRoot, 0, new HashMap<>(), entry.getValue());    
         }
         
-        final LocalDateTime stopTime = LocalDateTime.now().plus(AgentConfiguration.getInstance().getDcopAcdiffTimeOut());
+        final LocalDateTime stopTime = getTimeSource().now().plus(AgentConfiguration.getInstance().getDcopAcdiffTimeOut());
                 
         while (READING_MESSAGES) {
             if (AgentConfiguration.getInstance().getDcopAcdiffSimulateMessageDrops()) {
-                if (compareDouble(RANDOM.nextDouble(),
+                if (compareDouble(getRandom().nextDouble(),
                         1 - AgentConfiguration.getInstance().getDcopAcdiffSimulateMessageDropRate()) < 0) {
                     sendAllMessages();
                 }
@@ -245,7 +242,7 @@ public class RCdiffAlgorithm extends AbstractDcopAlgorithm {
             if (receivedMessageMap.equals(storedMessages)) {
                 // Sleep for AP round duration to avoid continuously checking for messages
                 try {
-                    Thread.sleep(AgentConfiguration.getInstance().getApRoundDuration().toMillis() * DCOPService.AP_ROUNDS_TO_SLEEP_BETWEEN_MESSAGE_CHECKS);
+                    getTimeSource().sleep(AgentConfiguration.getInstance().getApRoundDuration().toMillis() * DCOPService.AP_ROUNDS_TO_SLEEP_BETWEEN_MESSAGE_CHECKS);
                 } catch (InterruptedException e) {
                     e.printStackTrace();
                 }
@@ -285,7 +282,7 @@ public class RCdiffAlgorithm extends AbstractDcopAlgorithm {
             LOGGER.info("Dcop Run {} Region {} has getClientLoadMap {}", currentDcopRun, getRegionID(), getClientKeepLoadMap());
 //            LOGGER.info("DCOP Run {} Region {} end the current cycle", currentDcopRun, getRegionID());
 
-            if (LocalDateTime.now().isAfter(stopTime)) {
+            if (getTimeSource().now().isAfter(stopTime)) {
                 break;
             }
         }              
@@ -1412,7 +1409,7 @@ public class RCdiffAlgorithm extends AbstractDcopAlgorithm {
      *  @return the run count or the first iteration count of the current DCOP run 
      */
     private void initialize() {        
-        inbox = getDcopInfoProvider().getAllDcopSharedInformation().get(getRegionID());
+        inbox = readInbox();
                 
         currentDcopRun = inbox.getAsynchronousMessage().getIteration() + 1;
         
@@ -1454,6 +1451,11 @@ public class RCdiffAlgorithm extends AbstractDcopAlgorithm {
         return compareDouble(getAvailableCapacity(), 0) > 0;
     }
     
+    @Override
+    protected int getIterationWindow() {
+        return CURRENT_RUN_ITERATION_WINDOW;
+    }
+
     /**
      * regionCapacity - sumValues(keepLoadMap).
      * @return available capacity if positive
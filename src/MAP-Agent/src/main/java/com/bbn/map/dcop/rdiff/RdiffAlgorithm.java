@@ -41,6 +41,12 @@ import com.google.common.collect.ImmutableMap;
 public class RdiffAlgorithm extends AbstractDcopAlgorithm {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(RdiffAlgorithm.class);
+
+    /**
+     * Neighbors read the messages from the current and the previous
+     * iteration.
+     */
+    private static final int ITERATION_WINDOW = 2;
                             
     // Send <ServerClientService -> Double> between regions
     private final Map<RegionIdentifier, Set<ServerClientServiceLoad>> excessLoadMapBackToParent = new HashMap<>();
@@ -89,7 +95,7 @@ public class RdiffAlgorithm extends AbstractDcopAlgorithm {
      *  @return 0 (or more if more than second DCOP run)
      */
     private void initialize() {        
-        this.inbox = getDcopInfoProvider().getAllDcopSharedInformation().get(getRegionID());
+        this.inbox = readInbox();
 
         LOGGER.info("Region {} has inbox {}", getRegionID(), inbox);
         
@@ -308,8 +314,6 @@ public class RdiffAlgorithm extends AbstractDcopAlgorithm {
      * @param iteration
      */
     private void sendAllMessages(int iteration) {
-        inbox.removeMessageAtIteration(iteration - 2);
-        
         // forward load message to children
         for (Entry<RegionIdentifier, Set<ServerClientServiceLoad>> entry : loadMapToChildren.entrySet()) {
             RegionIdentifier children = entry.getKey();
@@ -908,6 +912,11 @@ public class RdiffAlgorithm extends AbstractDcopAlgorithm {
         getDcopInfoProvider().setLocalDcopSharedInformation(inbox);
     }
 
+    @Override
+    protected int getIterationWindow() {
+        return ITERATION_WINDOW;
+    }
+
     @Override
     protected double getAvailableCapacity() {
         double totalLoad = 0D;
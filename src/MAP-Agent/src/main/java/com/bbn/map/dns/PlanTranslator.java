@@ -47,6 +47,7 @@ import org.slf4j.LoggerFactory;
 
 import com.bbn.map.AgentConfiguration;
 import com.bbn.map.AgentConfiguration.DnsResolutionType;
+import com.bbn.map.simulator.SimulationConfiguration;
 import com.bbn.protelis.networkresourcemanagement.LoadBalancerPlan;
 import com.bbn.protelis.networkresourcemanagement.NodeIdentifier;
 import com.bbn.protelis.networkresourcemanagement.RegionIdentifier;
@@ -194,7 +195,8 @@ public abstract class PlanTranslator {
         } else {
             if (AgentConfiguration.getInstance().getRandomizeDnsRecords()) {
                 // mix name and delegate records
-                Collections.shuffle(records);
+                Collections.shuffle(records, SimulationConfiguration.getInstance()
+                        .getRandom(PlanTranslator.class.getName() + "." + localRegion.getName()));
             }
             return ImmutableList.copyOf(records);
         }
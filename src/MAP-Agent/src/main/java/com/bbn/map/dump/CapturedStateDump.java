@@ -0,0 +1,103 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.dump;
+
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import com.bbn.map.utils.JsonUtils;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Holds the values of a dump in memory so that the state can be captured at
+ * the time of the dump and written later by another thread. JSON values are
+ * converted to trees when they are written to this object, so later changes
+ * to the objects do not change the dump.
+ * 
+ * @see PeriodicDumper
+ */
+public final class CapturedStateDump implements StateDump {
+
+    private static final class Entry {
+        private final String name;
+        private final JsonNode json;
+        private final String text;
+
+        private Entry(final String name, final JsonNode json, final String text) {
+            this.name = name;
+            this.json = json;
+            this.text = text;
+        }
+    }
+
+    private final ObjectMapper mapper = JsonUtils.getStandardMapObjectMapper();
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    @Override
+    public void write(@Nonnull final String name, final Object value) throws IOException {
+        try {
+            entries.add(new Entry(name, mapper.valueToTree(value), null));
+        } catch (final IllegalArgumentException e) {
+            throw new IOException("Unable to convert " + name + " to JSON", e);
+        }
+    }
+
+    @Override
+    public void writeText(@Nonnull final String name, @Nonnull final String value) {
+        entries.add(new Entry(name, null, value));
+    }
+
+    /**
+     * Write the captured values in the order that they were captured.
+     * 
+     * @param dump
+     *            where to write the values
+     * @throws IOException
+     *             if there is an error writing one of the values
+     */
+    public void writeTo(@Nonnull final StateDump dump) throws IOException {
+        for (final Entry entry : entries) {
+            if (null != entry.text) {
+                dump.writeText(entry.name, entry.text);
+            } else {
+                dump.write(entry.name, entry.json);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,81 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.dump;
+
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.annotation.Nonnull;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Write each value to its own file in a directory. This is the layout that
+ * the dumps have always used, one directory per node and time.
+ */
+public final class DirectoryStateDump implements StateDump {
+
+    private final Path directory;
+    private final ObjectWriter mapper;
+
+    /**
+     * 
+     * @param directory
+     *            the directory to write to, must exist
+     * @param mapper
+     *            used to write the JSON values
+     */
+    public DirectoryStateDump(@Nonnull final Path directory, @Nonnull final ObjectWriter mapper) {
+        this.directory = directory;
+        this.mapper = mapper;
+    }
+
+    @Override
+    public void write(@Nonnull final String name, final Object value) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(directory.resolve(name), Charset.defaultCharset())) {
+            mapper.writeValue(writer, value);
+        }
+    }
+
+    @Override
+    public void writeText(@Nonnull final String name, @Nonnull final String value) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(directory.resolve(name), StandardCharsets.UTF_8)) {
+            writer.write(value);
+        }
+    }
+
+}
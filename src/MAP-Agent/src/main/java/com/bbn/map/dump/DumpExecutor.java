@@ -0,0 +1,135 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.dump;
+
+
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+
+/**
+ * The threads that write the periodic dumps of all nodes and the simulation.
+ * The number of writers is bounded so that when many nodes dump at the same
+ * time the writes queue up here instead of competing with the simulation
+ * threads for the processors. The writer threads are daemon threads that run
+ * at minimum priority and exit when idle.
+ * 
+ * @see PeriodicDumper
+ */
+public final class DumpExecutor {
+
+    /**
+     * The default value for {@link #getMaxConcurrentWriters()}.
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_WRITERS = Math.max(1,
+            Runtime.getRuntime().availableProcessors() / 4);
+
+    private static final long IDLE_TIMEOUT_SECONDS = 60;
+
+    private static final DumpExecutor INSTANCE = new DumpExecutor();
+
+    /**
+     * 
+     * @return the singleton instance
+     */
+    public static DumpExecutor getInstance() {
+        return INSTANCE;
+    }
+
+    private final ThreadPoolExecutor executor;
+
+    private DumpExecutor() {
+        final AtomicInteger threadCount = new AtomicInteger(0);
+        final ThreadFactory factory = r -> {
+            final Thread thread = new Thread(r, String.format("Dump writer %d", threadCount.incrementAndGet()));
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        };
+        executor = new ThreadPoolExecutor(DEFAULT_MAX_CONCURRENT_WRITERS, DEFAULT_MAX_CONCURRENT_WRITERS,
+                IDLE_TIMEOUT_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), factory);
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 
+     * @return the maximum number of dumps that are written at the same time
+     */
+    public int getMaxConcurrentWriters() {
+        synchronized (executor) {
+            return executor.getMaximumPoolSize();
+        }
+    }
+
+    /**
+     * Writes that are already running are not interrupted when the value is
+     * lowered.
+     * 
+     * @param v
+     *            see {@link #getMaxConcurrentWriters()}
+     * @throws IllegalArgumentException
+     *             if the value is less than 1
+     */
+    public void setMaxConcurrentWriters(final int v) {
+        if (v < 1) {
+            throw new IllegalArgumentException("The maximum number of concurrent dump writers must be at least 1");
+        }
+
+        synchronized (executor) {
+            // the core size can never be larger than the maximum size
+            if (v < executor.getCorePoolSize()) {
+                executor.setCorePoolSize(v);
+                executor.setMaximumPoolSize(v);
+            } else {
+                executor.setMaximumPoolSize(v);
+                executor.setCorePoolSize(v);
+            }
+        }
+    }
+
+    /**
+     * 
+     * @param write
+     *            the dump to write
+     * @return used to wait for the write to finish
+     */
+    @Nonnull
+    public Future<?> submit(@Nonnull final Runnable write) {
+        return executor.submit(write);
+    }
+
+}
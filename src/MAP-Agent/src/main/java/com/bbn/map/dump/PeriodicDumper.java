@@ -0,0 +1,239 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.dump;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnull;
+
+import org.apache.logging.log4j.CloseableThreadContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bbn.map.metrics.MetricHistogram;
+import com.bbn.map.metrics.MetricsRegistry;
+import com.bbn.map.simulator.DiscreteEventClock;
+import com.bbn.protelis.utils.VirtualClock;
+
+/**
+ * Schedules the periodic dumps of one node or the simulation. While dumping
+ * is disabled the thread running {@link #run()} blocks until
+ * {@link #stateChanged()} or {@link #stop()} is called, so the owner must call
+ * {@link #stateChanged()} whenever a value that the enabled check reads
+ * changes. Notifications must not be sent while holding a lock that the
+ * enabled check acquires. While dumping is enabled the thread waits on the
+ * clock for the dump interval between dumps.
+ * 
+ * Each dump is captured on the dumper thread at the time of the dump, with a
+ * {@link DiscreteEventClock} the dumper is an actor while dumping is enabled
+ * so that time does not advance during the capture. Writing the captured
+ * state is done by {@link DumpExecutor}. At most one write per
+ * {@link PeriodicDumper} is outstanding, if the previous write has not
+ * finished when the next dump has been captured the dumper waits for it. No
+ * dumps are skipped.
+ */
+public final class PeriodicDumper implements Runnable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PeriodicDumper.class);
+
+    private static final MetricHistogram CAPTURE_DURATION = MetricsRegistry.getInstance().histogram("dump.capture");
+    private static final MetricHistogram WRITER_WAIT = MetricsRegistry.getInstance().histogram("dump.writer.wait");
+
+    private final String name;
+    private final VirtualClock clock;
+    private final Supplier<Duration> interval;
+    private final BooleanSupplier enabled;
+    private final LongFunction<Runnable> capture;
+
+    private final Object lock = new Object();
+    private boolean stopped = false;
+
+    /**
+     * Only accessed by the thread executing {@link #run()}.
+     */
+    private Future<?> pending = null;
+
+    /**
+     * 
+     * @param name
+     *            the name of the node or simulation, used for logging
+     * @param clock
+     *            the clock used to time the dumps
+     * @param interval
+     *            the time between dumps, read after each dump
+     * @param enabled
+     *            true when dumps should be written
+     * @param capture
+     *            capture the state to dump, the argument is the time on the
+     *            clock. This is called on the dumper thread and returns the
+     *            task that writes the captured state, which is executed by
+     *            {@link DumpExecutor}, or null if there is nothing to write.
+     */
+    public PeriodicDumper(@Nonnull final String name,
+            @Nonnull final VirtualClock clock,
+            @Nonnull final Supplier<Duration> interval,
+            @Nonnull final BooleanSupplier enabled,
+            @Nonnull final LongFunction<Runnable> capture) {
+        this.name = name;
+        this.clock = clock;
+        this.interval = interval;
+        this.enabled = enabled;
+        this.capture = capture;
+    }
+
+    /**
+     * Wake up the dumper to check if dumping is enabled.
+     */
+    public void stateChanged() {
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Stop dumping. The dump that is being written, if any, is finished
+     * before {@link #run()} returns.
+     */
+    public void stop() {
+        synchronized (lock) {
+            stopped = true;
+            lock.notifyAll();
+        }
+    }
+
+    private boolean isRunning() {
+        synchronized (lock) {
+            return !stopped && !clock.isShutdown() && !Thread.currentThread().isInterrupted();
+        }
+    }
+
+    /**
+     * Dump until {@link #stop()} is called or the clock is shutdown.
+     */
+    @Override
+    public void run() {
+        clock.waitForClockStart();
+
+        while (awaitEnabled()) {
+            // hold the clock while capturing, must not be an actor while
+            // waiting for dumping to be enabled
+            DiscreteEventClock.registerActor(clock);
+            try {
+                while (isRunning() && enabled.getAsBoolean()) {
+                    dump(clock.getCurrentTime());
+
+                    final long intervalMs = interval.get().toMillis();
+                    if (LOGGER.isTraceEnabled()) {
+                        LOGGER.trace("{}: waiting for {} ms", name, intervalMs);
+                    }
+                    clock.waitForDuration(intervalMs);
+                }
+            } finally {
+                DiscreteEventClock.unregisterActor(clock);
+            }
+        }
+
+        awaitPending();
+
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("Dumper for {} exiting", name);
+        }
+    }
+
+    private void dump(final long time) {
+        final Runnable write;
+        final long captureStart = CAPTURE_DURATION.start();
+        try {
+            write = capture.apply(time);
+        } catch (final RuntimeException e) {
+            LOGGER.error("{}: unexpected error capturing the dump at {}", name, time, e);
+            return;
+        } finally {
+            CAPTURE_DURATION.stop(captureStart);
+        }
+
+        if (null != write) {
+            final long waitStart = WRITER_WAIT.start();
+            awaitPending();
+            WRITER_WAIT.stop(waitStart);
+
+            pending = DumpExecutor.getInstance().submit(() -> write(time, write));
+        }
+    }
+
+    /**
+     * @return true if a dump should be written, false if the dumper should
+     *         exit
+     */
+    private boolean awaitEnabled() {
+        synchronized (lock) {
+            while (!stopped && !clock.isShutdown() && !enabled.getAsBoolean()) {
+                try {
+                    lock.wait();
+                } catch (final InterruptedException e) {
+                    LOGGER.debug("{}: interrupted waiting for dumping to be enabled, exiting", name, e);
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return !stopped && !clock.isShutdown();
+        }
+    }
+
+    private void write(final long time, final Runnable write) {
+        try (CloseableThreadContext.Instance ctc = CloseableThreadContext.push(name)) {
+            write.run();
+        } catch (final RuntimeException e) {
+            LOGGER.error("{}: unexpected error writing the dump at {}", name, time, e);
+        }
+    }
+
+    private void awaitPending() {
+        if (null != pending) {
+            try {
+                pending.get();
+            } catch (final InterruptedException e) {
+                LOGGER.debug("{}: interrupted waiting for the previous dump to be written", name, e);
+                Thread.currentThread().interrupt();
+            } catch (final ExecutionException e) {
+                LOGGER.error("{}: error writing the previous dump", name, e);
+            }
+            pending = null;
+        }
+    }
+
+}
@@ -0,0 +1,137 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.dump;
+
+
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+
+import com.bbn.protelis.networkresourcemanagement.ResourceReport.EstimationWindow;
+
+/**
+ * Destination for one periodic dump of the state of a node or the
+ * simulation. Each value is stored under a name, which is the file name used
+ * in the directory layout.
+ * 
+ * @see DirectoryStateDump
+ * @see StateStore
+ */
+public interface StateDump {
+
+    /**
+     * Name of the node state.
+     */
+    String NODE_STATE = "state.json";
+
+    /**
+     * Name of the available services text.
+     */
+    String AVAILABLE_SERVICES = "availableServices.txt";
+
+    /**
+     * Name of the RLG or DCOP plan.
+     */
+    String REGION_PLAN = "regionPlan.json";
+
+    /**
+     * Name of the total demand.
+     */
+    String TOTAL_DEMAND = "totalDemand.json";
+
+    /**
+     * Name of the load balancer plan.
+     */
+    String LOAD_BALANCER_PLAN = "loadBalancerPlan.json";
+
+    /**
+     * Name of the DNS records.
+     */
+    String DNS_RECORDS = "dns-records.json";
+
+    /**
+     * Name of the region service state.
+     */
+    String REGION_SERVICE_STATE = "regionServiceState.json";
+
+    /**
+     * Write a value as JSON.
+     * 
+     * @param name
+     *            the name of the value
+     * @param value
+     *            the value to write, may be null
+     * @throws IOException
+     *             if there is an error writing the value
+     */
+    void write(@Nonnull String name, Object value) throws IOException;
+
+    /**
+     * Write a value as text.
+     * 
+     * @param name
+     *            the name of the value
+     * @param value
+     *            the text to write
+     * @throws IOException
+     *             if there is an error writing the value
+     */
+    void writeText(@Nonnull String name, @Nonnull String value) throws IOException;
+
+    /**
+     * @param window
+     *            the estimation window
+     * @return name of the resource report for the window
+     */
+    static String resourceReport(@Nonnull final EstimationWindow window) {
+        return String.format("resourceReport-%s.json", window);
+    }
+
+    /**
+     * @param window
+     *            the estimation window
+     * @return name of the resource summary for the window
+     */
+    static String resourceSummary(@Nonnull final EstimationWindow window) {
+        return String.format("resourceSummary-%s.json", window);
+    }
+
+    /**
+     * @param window
+     *            the estimation window
+     * @return name of the region resource reports for the window
+     */
+    static String regionResourceReports(@Nonnull final EstimationWindow window) {
+        return String.format("regionResourceReports-%s.json", window);
+    }
+
+}
@@ -0,0 +1,259 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.dump;
+
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+
+import javax.annotation.Nonnull;
+
+import com.bbn.map.utils.JsonUtils;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Append-only store for the periodic dumps of a run. Instead of a directory
+ * with a file per value for every node at every dump interval, each dump is
+ * one compressed chunk appended to a single file.
+ * 
+ * The store is a directory with 3 files:
+ * <ul>
+ * <li>{@link #DICTIONARY_FILENAME} - node names and value names, one per
+ * line. The line number is the identifier used in the other files.</li>
+ * <li>{@link #CHUNKS_FILENAME} - for each chunk the node identifier (int),
+ * the time (long), the compressed length (int) and the deflate compressed
+ * entries. Each entry is the name identifier (int), {@link #JSON} or
+ * {@link #TEXT} (byte), the length (int) and the bytes of the value.</li>
+ * <li>{@link #INDEX_FILENAME} - for each chunk the node identifier (int), the
+ * time (long) and the offset of the chunk (long).</li>
+ * </ul>
+ * 
+ * JSON values are written compactly, {@link StateStoreExporter} writes them
+ * in the legacy directory layout. Chunks are built by the dumping thread, only
+ * appending them is done while holding the lock of the store. Use
+ * {@link StateStoreReader} to read the store.
+ */
+public final class StateStore implements Closeable {
+
+    /**
+     * File containing the dictionary.
+     */
+    public static final String DICTIONARY_FILENAME = "dictionary.txt";
+
+    /**
+     * File containing the chunks.
+     */
+    public static final String CHUNKS_FILENAME = "chunks.bin";
+
+    /**
+     * File containing the index of the chunks.
+     */
+    public static final String INDEX_FILENAME = "index.bin";
+
+    /**
+     * Entry kind for values written with {@link StateDump#write(String, Object)}.
+     */
+    public static final byte JSON = 0;
+
+    /**
+     * Entry kind for values written with
+     * {@link StateDump#writeText(String, String)}.
+     */
+    public static final byte TEXT = 1;
+
+    /**
+     * Node identifier, time and compressed length.
+     */
+    /* package */ static final int CHUNK_HEADER_BYTES = Integer.BYTES + Long.BYTES + Integer.BYTES;
+
+    private final Object lock = new Object();
+
+    /**
+     * identifier -> position in the dictionary, guarded by {@link #lock}.
+     */
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private final BufferedWriter dictionaryWriter;
+    private final DataOutputStream chunksStream;
+    private final DataOutputStream indexStream;
+    private long chunksPosition = 0;
+    private boolean closed = false;
+
+    private final ObjectWriter mapper = JsonUtils.getStandardMapObjectMapper().writer();
+
+    /**
+     * Create a new store. Existing files in the directory are replaced.
+     * 
+     * @param directory
+     *            where to write the store, created if needed
+     * @throws IOException
+     *             if there is an error creating the files
+     */
+    public StateStore(@Nonnull final Path directory) throws IOException {
+        Files.createDirectories(directory);
+        dictionaryWriter = Files.newBufferedWriter(directory.resolve(DICTIONARY_FILENAME), StandardCharsets.UTF_8);
+        chunksStream = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(directory.resolve(CHUNKS_FILENAME))));
+        indexStream = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(directory.resolve(INDEX_FILENAME))));
+    }
+
+    /**
+     * Start a dump. Nothing is written to the store until
+     * {@link Chunk#commit()} is called.
+     * 
+     * @param node
+     *            the name of the node, "simulation" for the state of the
+     *            simulation
+     * @param time
+     *            the time of the dump
+     * @return the chunk to write the values to
+     */
+    @Nonnull
+    public Chunk startChunk(@Nonnull final String node, final long time) {
+        return new Chunk(node, time);
+    }
+
+    private int encode(final String identifier) throws IOException {
+        synchronized (lock) {
+            final Integer existing = dictionary.get(identifier);
+            if (null != existing) {
+                return existing;
+            }
+
+            final int id = dictionary.size();
+            dictionaryWriter.write(identifier);
+            dictionaryWriter.newLine();
+            // flush before any chunk can reference the identifier
+            dictionaryWriter.flush();
+            dictionary.put(identifier, id);
+            return id;
+        }
+    }
+
+    private void append(final int nodeId, final long time, final byte[] compressed) throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                throw new IOException("The state store is closed");
+            }
+
+            final long offset = chunksPosition;
+            chunksStream.writeInt(nodeId);
+            chunksStream.writeLong(time);
+            chunksStream.writeInt(compressed.length);
+            chunksStream.write(compressed);
+            chunksStream.flush();
+            chunksPosition = offset + CHUNK_HEADER_BYTES + compressed.length;
+
+            // the index is written after the chunk so that every index entry
+            // points to a complete chunk
+            indexStream.writeInt(nodeId);
+            indexStream.writeLong(time);
+            indexStream.writeLong(offset);
+            indexStream.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (!closed) {
+                closed = true;
+                try {
+                    chunksStream.close();
+                } finally {
+                    try {
+                        indexStream.close();
+                    } finally {
+                        dictionaryWriter.close();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The values of one dump. Not thread safe, each dump creates its own
+     * chunk.
+     */
+    public final class Chunk implements StateDump {
+        private final String node;
+        private final long time;
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private final DeflaterOutputStream deflater = new DeflaterOutputStream(buffer);
+        private final DataOutputStream output = new DataOutputStream(deflater);
+
+        private Chunk(final String node, final long time) {
+            this.node = node;
+            this.time = time;
+        }
+
+        @Override
+        public void write(@Nonnull final String name, final Object value) throws IOException {
+            writeEntry(name, JSON, mapper.writeValueAsBytes(value));
+        }
+
+        @Override
+        public void writeText(@Nonnull final String name, @Nonnull final String value) throws IOException {
+            writeEntry(name, TEXT, value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private void writeEntry(final String name, final byte kind, final byte[] data) throws IOException {
+            output.writeInt(encode(name));
+            output.writeByte(kind);
+            output.writeInt(data.length);
+            output.write(data);
+        }
+
+        /**
+         * Append the chunk to the store.
+         * 
+         * @throws IOException
+         *             if there is an error writing the chunk or the store is
+         *             closed
+         */
+        public void commit() throws IOException {
+            output.close();
+            append(encode(node), time, buffer.toByteArray());
+        }
+    }
+
+}
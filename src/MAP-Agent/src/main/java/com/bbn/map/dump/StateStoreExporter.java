@@ -0,0 +1,174 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.dump;
+
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bbn.map.Controller;
+import com.bbn.map.simulator.Simulation;
+import com.bbn.map.utils.JsonUtils;
+import com.bbn.map.utils.LogExceptionHandler;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Write the contents of a {@link StateStore} in the directory layout that is
+ * used when the store is not enabled, so that the existing analysis scripts
+ * can be used. Each dump is written to
+ * <code>output/node/time/name</code> with the time formatted with
+ * {@link Simulation#TIME_DIR_FORMAT}.
+ */
+public final class StateStoreExporter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StateStoreExporter.class);
+
+    private static final String STORE_OPT = "store";
+    private static final String OUTPUT_OPT = "output";
+    private static final String NODE_OPT = "node";
+    private static final String HELP_OPT = "help";
+
+    private StateStoreExporter() {
+    }
+
+    /**
+     * Export the store.
+     * 
+     * @param reader
+     *            the store to export
+     * @param node
+     *            the node to export, null to export all nodes
+     * @param outputDirectory
+     *            the base output directory
+     * @throws IOException
+     *             if there is an error reading the store or writing the files
+     */
+    public static void export(@Nonnull final StateStoreReader reader,
+            final String node,
+            @Nonnull final Path outputDirectory) throws IOException {
+        final ObjectMapper jsonMapper = JsonUtils.getStandardMapObjectMapper();
+        final ObjectWriter mapper = Controller.createDumpWriter();
+
+        for (final String storeNode : reader.getNodes()) {
+            if (null != node && !node.equals(storeNode)) {
+                continue;
+            }
+
+            for (final long time : reader.getTimes(storeNode)) {
+                final Path timeDir = outputDirectory.resolve(storeNode)
+                        .resolve(String.format(Simulation.TIME_DIR_FORMAT, time));
+                Files.createDirectories(timeDir);
+
+                for (final Map.Entry<String, StateStoreReader.Value> entry : reader.readChunk(storeNode, time)
+                        .entrySet()) {
+                    final Path path = timeDir.resolve(entry.getKey());
+                    final StateStoreReader.Value value = entry.getValue();
+                    if (value.isText()) {
+                        try (OutputStream output = Files.newOutputStream(path)) {
+                            output.write(value.getData());
+                        }
+                    } else {
+                        // the store has compact JSON
+                        final JsonNode tree = jsonMapper.readTree(value.getData());
+                        try (BufferedWriter writer = Files.newBufferedWriter(path, Charset.defaultCharset())) {
+                            mapper.writeValue(writer, tree);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param args
+     *            see the help output
+     */
+    public static void main(final String[] args) {
+        LogExceptionHandler.registerExceptionHandler();
+
+        final Options options = new Options();
+        options.addRequiredOption("s", STORE_OPT, true, "The state store directory (required)");
+        options.addRequiredOption("o", OUTPUT_OPT, true, "The directory to write the dumps to (required)");
+        options.addOption("n", NODE_OPT, true, "Only export this node, default is all nodes");
+        options.addOption("h", HELP_OPT, false, "Show the help");
+
+        final CommandLineParser parser = new DefaultParser();
+        try {
+            final CommandLine cmd = parser.parse(options, args);
+
+            if (cmd.hasOption(HELP_OPT)) {
+                printUsage(options);
+                System.exit(0);
+            }
+
+            final Path storePath = Paths.get(cmd.getOptionValue(STORE_OPT));
+            final Path outputPath = Paths.get(cmd.getOptionValue(OUTPUT_OPT));
+            try (StateStoreReader reader = new StateStoreReader(storePath)) {
+                export(reader, cmd.getOptionValue(NODE_OPT), outputPath);
+            }
+            LOGGER.info("Exported {} to {}", storePath, outputPath);
+
+            System.exit(0);
+        } catch (final ParseException e) {
+            LOGGER.error("An error occurred parsing the command line: " + e.getMessage());
+            printUsage(options);
+            System.exit(1);
+        } catch (final IOException e) {
+            LOGGER.error("Error exporting the state store", e);
+            System.exit(1);
+        }
+    }
+
+    private static void printUsage(final Options options) {
+        new HelpFormatter().printHelp(StateStoreExporter.class.getSimpleName(), options);
+    }
+
+}
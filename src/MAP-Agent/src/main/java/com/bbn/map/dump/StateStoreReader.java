@@ -0,0 +1,279 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.dump;
+
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.InflaterInputStream;
+
+import javax.annotation.Nonnull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bbn.map.utils.JsonUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Random access to the dumps in a {@link StateStore} by node and time. The
+ * dictionary and the index are read when the reader is created, each chunk
+ * is read from the file when it is requested. Chunks at the end of the store
+ * that were not completely written are ignored.
+ */
+public final class StateStoreReader implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StateStoreReader.class);
+
+    private static final int INDEX_ENTRY_BYTES = Integer.BYTES + Long.BYTES + Long.BYTES;
+
+    private final List<String> dictionary;
+
+    /**
+     * node -> time -> offset of the chunk.
+     */
+    private final Map<String, NavigableMap<Long, Long>> index = new HashMap<>();
+
+    private final FileChannel chunks;
+
+    private final ObjectMapper mapper = JsonUtils.getStandardMapObjectMapper();
+
+    /**
+     * 
+     * @param directory
+     *            the directory passed to {@link StateStore#StateStore(Path)}
+     * @throws IOException
+     *             if there is an error reading the dictionary or the index
+     */
+    public StateStoreReader(@Nonnull final Path directory) throws IOException {
+        dictionary = Files.readAllLines(directory.resolve(StateStore.DICTIONARY_FILENAME), StandardCharsets.UTF_8);
+        chunks = FileChannel.open(directory.resolve(StateStore.CHUNKS_FILENAME), StandardOpenOption.READ);
+
+        final Path indexPath = directory.resolve(StateStore.INDEX_FILENAME);
+        final long numEntries = Files.size(indexPath) / INDEX_ENTRY_BYTES;
+        final long chunksSize = chunks.size();
+        try (DataInputStream input = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(indexPath)))) {
+            for (long i = 0; i < numEntries; ++i) {
+                final int nodeId = input.readInt();
+                final long time = input.readLong();
+                final long offset = input.readLong();
+                if (offset + StateStore.CHUNK_HEADER_BYTES > chunksSize) {
+                    LOGGER.warn("Ignoring incomplete chunk at offset {} in {}", offset, directory);
+                    continue;
+                }
+
+                index.computeIfAbsent(lookup(nodeId), k -> new TreeMap<>()).put(time, offset);
+            }
+        }
+    }
+
+    private String lookup(final int id) throws IOException {
+        if (id < 0 || id >= dictionary.size()) {
+            throw new IOException("Identifier " + id + " is not in the dictionary");
+        }
+        return dictionary.get(id);
+    }
+
+    /**
+     * @return the nodes that have at least one chunk
+     */
+    @Nonnull
+    public Set<String> getNodes() {
+        return Collections.unmodifiableSet(new TreeSet<>(index.keySet()));
+    }
+
+    /**
+     * @param node
+     *            the node
+     * @return the times of the chunks for the node, empty if the node is not
+     *         known
+     */
+    @Nonnull
+    public NavigableSet<Long> getTimes(@Nonnull final String node) {
+        final NavigableMap<Long, Long> times = index.get(node);
+        if (null == times) {
+            return Collections.emptyNavigableSet();
+        } else {
+            return Collections.unmodifiableNavigableSet(times.navigableKeySet());
+        }
+    }
+
+    /**
+     * Read all values of a dump.
+     * 
+     * @param node
+     *            the node
+     * @param time
+     *            the time of the dump
+     * @return name -> value in the order that the values were written, empty
+     *         if there is no dump for the node at the time
+     * @throws IOException
+     *             if there is an error reading the chunk
+     */
+    @Nonnull
+    public Map<String, Value> readChunk(@Nonnull final String node, final long time) throws IOException {
+        final NavigableMap<Long, Long> times = index.get(node);
+        final Long offset = null == times ? null : times.get(time);
+        if (null == offset) {
+            return Collections.emptyMap();
+        }
+
+        final ByteBuffer header = ByteBuffer.allocate(StateStore.CHUNK_HEADER_BYTES);
+        readFully(header, offset);
+        header.flip();
+        final String chunkNode = lookup(header.getInt());
+        final long chunkTime = header.getLong();
+        final int length = header.getInt();
+        if (!node.equals(chunkNode) || time != chunkTime) {
+            throw new IOException(String.format("Chunk at offset %d is for %s at %d, expected %s at %d", offset,
+                    chunkNode, chunkTime, node, time));
+        }
+
+        final ByteBuffer compressed = ByteBuffer.allocate(length);
+        readFully(compressed, offset + StateStore.CHUNK_HEADER_BYTES);
+
+        final Map<String, Value> values = new LinkedHashMap<>();
+        try (DataInputStream input = new DataInputStream(
+                new InflaterInputStream(new ByteArrayInputStream(compressed.array())))) {
+            while (true) {
+                final int nameId;
+                try {
+                    nameId = input.readInt();
+                } catch (final EOFException e) {
+                    break;
+                }
+                final byte kind = input.readByte();
+                final byte[] data = new byte[input.readInt()];
+                input.readFully(data);
+                values.put(lookup(nameId), new Value(kind, data));
+            }
+        }
+        return values;
+    }
+
+    private void readFully(final ByteBuffer buffer, final long position) throws IOException {
+        long pos = position;
+        while (buffer.hasRemaining()) {
+            final int read = chunks.read(buffer, pos);
+            if (read < 0) {
+                throw new EOFException("Chunk at " + position + " is incomplete");
+            }
+            pos += read;
+        }
+    }
+
+    /**
+     * Read one JSON value of a dump.
+     * 
+     * @param <T>
+     *            the type of the value
+     * @param node
+     *            the node
+     * @param time
+     *            the time of the dump
+     * @param name
+     *            the name of the value, see {@link StateDump}
+     * @param type
+     *            the type of the value
+     * @return the value, null if the dump or the value does not exist
+     * @throws IOException
+     *             if there is an error reading the value
+     */
+    public <T> T read(@Nonnull final String node, final long time, @Nonnull final String name,
+            @Nonnull final Class<T> type) throws IOException {
+        final Value value = readChunk(node, time).get(name);
+        if (null == value) {
+            return null;
+        } else {
+            return mapper.readValue(value.getData(), type);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        chunks.close();
+    }
+
+    /**
+     * A value read from the store.
+     */
+    public static final class Value {
+        private final byte kind;
+        private final byte[] data;
+
+        private Value(final byte kind, final byte[] data) {
+            this.kind = kind;
+            this.data = data;
+        }
+
+        /**
+         * @return true if the value was written with
+         *         {@link StateDump#writeText(String, String)}
+         */
+        public boolean isText() {
+            return StateStore.TEXT == kind;
+        }
+
+        /**
+         * @return the compact JSON or UTF-8 text
+         */
+        @Nonnull
+        @SuppressFBWarnings(value = "EI_EXPOSE_REP", justification = "Values are large and only read")
+        public byte[] getData() {
+            return data;
+        }
+    }
+
+}
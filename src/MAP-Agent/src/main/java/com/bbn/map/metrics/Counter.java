@@ -0,0 +1,75 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.metrics;
+
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A count of events since the last snapshot. Obtained from
+ * {@link MetricsRegistry#counter(String)}.
+ */
+public final class Counter {
+
+    private final MetricsRegistry registry;
+    private final LongAdder value = new LongAdder();
+
+    /* package */ Counter(final MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Add one to the counter if the registry is enabled.
+     */
+    public void increment() {
+        if (registry.isEnabled()) {
+            value.increment();
+        }
+    }
+
+    /**
+     * Add to the counter if the registry is enabled.
+     * 
+     * @param amount
+     *            the amount to add
+     */
+    public void add(final long amount) {
+        if (registry.isEnabled()) {
+            value.add(amount);
+        }
+    }
+
+    /* package */ long sumThenReset() {
+        return value.sumThenReset();
+    }
+
+}
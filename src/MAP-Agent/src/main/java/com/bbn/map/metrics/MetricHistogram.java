@@ -0,0 +1,113 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.metrics;
+
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * A distribution of values since the last snapshot, backed by an HDR
+ * histogram so that recording does not allocate or lock. Used for durations
+ * in nanoseconds through {@link #start()} and {@link #stop(long)} and for
+ * other non-negative values through {@link #record(long)}. Obtained from
+ * {@link MetricsRegistry#histogram(String)}.
+ */
+public final class MetricHistogram {
+
+    /**
+     * Returned from {@link #start()} when the registry is disabled.
+     */
+    private static final long NOT_STARTED = Long.MIN_VALUE;
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final MetricsRegistry registry;
+    private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+
+    /**
+     * Guarded by this, reused between snapshots.
+     */
+    private Histogram interval = null;
+
+    /* package */ MetricHistogram(final MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Start timing an operation.
+     * 
+     * @return the value to pass to {@link #stop(long)}
+     */
+    public long start() {
+        return registry.isEnabled() ? System.nanoTime() : NOT_STARTED;
+    }
+
+    /**
+     * Record the nanoseconds since {@link #start()}. Nothing is recorded if
+     * the registry was disabled when the timing started.
+     * 
+     * @param start
+     *            the value returned from {@link #start()}
+     */
+    public void stop(final long start) {
+        if (NOT_STARTED != start) {
+            recorder.recordValue(Math.max(0, System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * Record a value if the registry is enabled.
+     * 
+     * @param value
+     *            the value, negative values are recorded as 0
+     */
+    public void record(final long value) {
+        if (registry.isEnabled()) {
+            recorder.recordValue(Math.max(0, value));
+        }
+    }
+
+    /**
+     * @return the summary of the values recorded since the last call, null if
+     *         there are no values
+     */
+    /* package */ synchronized MetricsSnapshot.HistogramSummary summarizeThenReset() {
+        interval = recorder.getIntervalHistogram(interval);
+        if (interval.getTotalCount() == 0) {
+            return null;
+        } else {
+            return new MetricsSnapshot.HistogramSummary(interval);
+        }
+    }
+
+}
@@ -0,0 +1,183 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.metrics;
+
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-process counters, gauges and histograms for finding hot spots in the
+ * simulator and the agent. Instruments are looked up by name once, usually
+ * into a static field, and then updated on the hot path. While the registry
+ * is disabled, which is the default, updating an instrument is a single
+ * volatile read and timing does not read the clock.
+ * 
+ * {@link #snapshot(long)} collects the values since the previous snapshot,
+ * see {@link com.bbn.map.simulator.SimulationRunner} for writing the snapshots
+ * to the output directory periodically.
+ */
+public final class MetricsRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MetricsRegistry.class);
+
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+    /**
+     * 
+     * @return the singleton instance
+     */
+    public static MetricsRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    private MetricsRegistry() {
+    }
+
+    private volatile boolean enabled = false;
+
+    /**
+     * 
+     * @return true if the instruments are recording, defaults to false
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Values recorded before the registry is enabled are lost.
+     * 
+     * @param v
+     *            see {@link #isEnabled()}
+     */
+    public void setEnabled(final boolean v) {
+        enabled = v;
+    }
+
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, MetricHistogram> histograms = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Supplier<? extends Number>> gauges = new ConcurrentHashMap<>();
+
+    /**
+     * 
+     * @param name
+     *            the name of the counter
+     * @return the counter with the name, created if needed
+     */
+    @Nonnull
+    public Counter counter(@Nonnull final String name) {
+        return counters.computeIfAbsent(name, k -> new Counter(this));
+    }
+
+    /**
+     * 
+     * @param name
+     *            the name of the histogram
+     * @return the histogram with the name, created if needed
+     */
+    @Nonnull
+    public MetricHistogram histogram(@Nonnull final String name) {
+        return histograms.computeIfAbsent(name, k -> new MetricHistogram(this));
+    }
+
+    /**
+     * Register a gauge. The supplier is only called when a snapshot is taken
+     * and replaces any gauge previously registered with the same name.
+     * 
+     * @param name
+     *            the name of the gauge
+     * @param value
+     *            supplies the current value, may be called from any thread
+     */
+    public void gauge(@Nonnull final String name, @Nonnull final Supplier<? extends Number> value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * 
+     * @param name
+     *            the name of the gauge to remove
+     */
+    public void removeGauge(@Nonnull final String name) {
+        gauges.remove(name);
+    }
+
+    /**
+     * Collect the current values. Counters and histograms are reset so that
+     * the next snapshot only contains values recorded after this one.
+     * Counters and histograms with no values are left out to keep the
+     * snapshots compact.
+     * 
+     * @param time
+     *            the time to record in the snapshot, usually the simulation
+     *            time
+     * @return the snapshot
+     */
+    @Nonnull
+    public MetricsSnapshot snapshot(final long time) {
+        final Map<String, Long> counterValues = new TreeMap<>();
+        counters.forEach((name, counter) -> {
+            final long value = counter.sumThenReset();
+            if (value != 0) {
+                counterValues.put(name, value);
+            }
+        });
+
+        final Map<String, Number> gaugeValues = new TreeMap<>();
+        gauges.forEach((name, gauge) -> {
+            try {
+                gaugeValues.put(name, gauge.get());
+            } catch (final RuntimeException e) {
+                LOGGER.warn("Error reading gauge {}, skipping", name, e);
+            }
+        });
+
+        final Map<String, MetricsSnapshot.HistogramSummary> histogramValues = new TreeMap<>();
+        histograms.forEach((name, histogram) -> {
+            final MetricsSnapshot.HistogramSummary summary = histogram.summarizeThenReset();
+            if (null != summary) {
+                histogramValues.put(name, summary);
+            }
+        });
+
+        return new MetricsSnapshot(time, System.currentTimeMillis(), counterValues, gaugeValues, histogramValues);
+    }
+
+}
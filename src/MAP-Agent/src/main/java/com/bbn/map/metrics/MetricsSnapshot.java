@@ -0,0 +1,188 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.metrics;
+
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * The values from {@link MetricsRegistry#snapshot(long)}. Written as one line
+ * of JSON per snapshot.
+ */
+public final class MetricsSnapshot {
+
+    private final long time;
+    private final long wallTime;
+    private final Map<String, Long> counters;
+    private final Map<String, Number> gauges;
+    private final Map<String, HistogramSummary> histograms;
+
+    /* package */ MetricsSnapshot(final long time,
+            final long wallTime,
+            final Map<String, Long> counters,
+            final Map<String, Number> gauges,
+            final Map<String, HistogramSummary> histograms) {
+        this.time = time;
+        this.wallTime = wallTime;
+        this.counters = Collections.unmodifiableMap(counters);
+        this.gauges = Collections.unmodifiableMap(gauges);
+        this.histograms = Collections.unmodifiableMap(histograms);
+    }
+
+    /**
+     * @return the time passed to {@link MetricsRegistry#snapshot(long)}
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * @return the wall clock time that the snapshot was taken
+     */
+    public long getWallTime() {
+        return wallTime;
+    }
+
+    /**
+     * @return counter name to count since the previous snapshot, counters
+     *         that did not change are not included
+     */
+    public Map<String, Long> getCounters() {
+        return counters;
+    }
+
+    /**
+     * @return gauge name to current value
+     */
+    public Map<String, Number> getGauges() {
+        return gauges;
+    }
+
+    /**
+     * @return histogram name to the values since the previous snapshot,
+     *         histograms without values are not included
+     */
+    public Map<String, HistogramSummary> getHistograms() {
+        return histograms;
+    }
+
+    /**
+     * Summary of the values recorded in a {@link MetricHistogram} between two
+     * snapshots.
+     */
+    public static final class HistogramSummary {
+        private static final double P50 = 50;
+        private static final double P90 = 90;
+        private static final double P99 = 99;
+        private static final double P999 = 99.9;
+
+        private final long count;
+        private final long min;
+        private final double mean;
+        private final long p50;
+        private final long p90;
+        private final long p99;
+        private final long p999;
+        private final long max;
+
+        /* package */ HistogramSummary(final Histogram histogram) {
+            count = histogram.getTotalCount();
+            min = histogram.getMinValue();
+            mean = histogram.getMean();
+            p50 = histogram.getValueAtPercentile(P50);
+            p90 = histogram.getValueAtPercentile(P90);
+            p99 = histogram.getValueAtPercentile(P99);
+            p999 = histogram.getValueAtPercentile(P999);
+            max = histogram.getMaxValue();
+        }
+
+        /**
+         * @return the number of values
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return the smallest value
+         */
+        public long getMin() {
+            return min;
+        }
+
+        /**
+         * @return the mean value
+         */
+        public double getMean() {
+            return mean;
+        }
+
+        /**
+         * @return the median
+         */
+        public long getP50() {
+            return p50;
+        }
+
+        /**
+         * @return the 90th percentile
+         */
+        public long getP90() {
+            return p90;
+        }
+
+        /**
+         * @return the 99th percentile
+         */
+        public long getP99() {
+            return p99;
+        }
+
+        /**
+         * @return the 99.9th percentile
+         */
+        public long getP999() {
+            return p999;
+        }
+
+        /**
+         * @return the largest value
+         */
+        public long getMax() {
+            return max;
+        }
+    }
+
+}
@@ -35,6 +35,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 
 import org.slf4j.Logger;
@@ -60,13 +61,24 @@ public abstract class AbstractRandomAllocationOrderTargetSPM extends AbstractAll
     
     
     
+    private final Random random;
+    
     /**
      * @param nodeAttribute
      *          the {@link NodeAttribute} to use for allocation targets and load and allocated container comparison
+     * @param random
+     *          used to order the services, each region should have its own
+     *          so that the orders don't depend on each other
      */
-    public AbstractRandomAllocationOrderTargetSPM(NodeAttribute nodeAttribute)
+    public AbstractRandomAllocationOrderTargetSPM(NodeAttribute nodeAttribute, Random random)
     {
         super(nodeAttribute);
+        this.random = random;
+    }
+
+    private Random getRandom()
+    {
+        return random;
     }
 
     
@@ -82,7 +94,7 @@ public abstract class AbstractRandomAllocationOrderTargetSPM extends AbstractAll
     {
         List<ServiceIdentifier<?>> prioritizedServices = new LinkedList<>();
         prioritizedServices.addAll(getServices());
-        Collections.shuffle(prioritizedServices);
+        Collections.shuffle(prioritizedServices, getRandom());
         
         LOGGER.debug("getPriorityServiceAllocationList: {}", getServicesStatusString(prioritizedServices));
         
@@ -94,7 +106,7 @@ public abstract class AbstractRandomAllocationOrderTargetSPM extends AbstractAll
     {
         List<ServiceIdentifier<?>> prioritizedServices = new LinkedList<>();
         prioritizedServices.addAll(getServices());
-        Collections.shuffle(prioritizedServices);
+        Collections.shuffle(prioritizedServices, getRandom());
         
         LOGGER.debug("getPriorityServiceDeallocationList: {}", getServicesStatusString(prioritizedServices));
         
@@ -1,11 +1,19 @@
 package com.bbn.map.rlg;
 
-import java.util.List;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Objects;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.DoubleFunction;
+import java.util.function.ToDoubleFunction;
 
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -16,6 +24,16 @@ import com.bbn.protelis.networkresourcemanagement.ServiceIdentifier;
 
 /**
  * A bin packing implementation of RLG.
+ * 
+ * The bins are indexed so that the placement operations do not need to scan
+ * every bin. The remaining capacity of the bins is kept in a
+ * {@link RemainingCapacityTree} for first fit and least overflowing queries.
+ * For best fit the bins are grouped by capacity and overload parameter, each
+ * group is sorted by load. The services are indexed by name. Each operation is
+ * logarithmic in the number of bins, times the number of distinct server
+ * capacities for best fit. The {@link Server} objects must only be modified
+ * through this class once they have been added, otherwise the index will be
+ * out of date.
  */
 public class BinPacking {
 
@@ -23,6 +41,38 @@ public class BinPacking {
 
     private final List<Server> bins;
     private int numberOfBins;
+
+    private final Map<NodeIdentifier, Server> serversByName = new HashMap<>();
+    private final Map<Server, IndexEntry> entries = new IdentityHashMap<>();
+    /**
+     * (capacity, alpha) -> bins sorted by load ascending and then position
+     * descending.
+     */
+    private final Map<Pair<Double, Double>, TreeSet<IndexEntry>> capacityClasses = new HashMap<>();
+    private final RemainingCapacityTree remainingCapacityTree = new RemainingCapacityTree();
+    private final Map<ServiceIdentifier<?>, List<Service>> servicesByName = new HashMap<>();
+    private double totalCapacity = 0;
+    private double addedServiceLoad = 0;
+    private int serversWithCapacityLeft = 0;
+
+    private static final Comparator<IndexEntry> LOAD_ORDER = Comparator.<IndexEntry> comparingDouble(e -> e.load)
+            .thenComparing(Comparator.<IndexEntry> comparingInt(e -> e.position).reversed());
+
+    /**
+     * The position of a bin and the load that it is sorted by. The load is
+     * only changed while the entry is not in the sorted sets.
+     */
+    private static final class IndexEntry {
+        private final Server server;
+        private final int position;
+        private double load;
+
+        IndexEntry(final Server server, final int position, final double load) {
+            this.server = server;
+            this.position = position;
+            this.load = load;
+        }
+    }
     // private static int numberOfServices1 = 0;
     // private static int numberOfServices2 = 0;
     // private static int numberOfServices3 = 0;
@@ -36,7 +86,7 @@ public class BinPacking {
      * to the bin packing algorithms (e.g. first fit, best fit, worst fit etc.)
      */
     public BinPacking() {
-        bins = new LinkedList<Server>();
+        bins = new ArrayList<Server>();
         numberOfBins = 0;
         // numberOfServices1 = 0;
         // numberOfServices2 = 0;
@@ -49,7 +99,7 @@ public class BinPacking {
      *            a collection of {@link Server} objects to be load balanced.
      */
     public BinPacking(Collection<Server> nodes) {
-        bins = new LinkedList<Server>();
+        bins = new ArrayList<Server>();
         for (Server node : nodes) {
             addServer(node);
             numberOfBins++;
@@ -64,8 +114,86 @@ public class BinPacking {
      *            the {@link Server} to be added
      */
     public void addServer(Server server) {
+        if (entries.containsKey(server)) {
+            LOGGER.warn("Server {} has already been added, ignoring", server.getName());
+            return;
+        }
+
+        final IndexEntry entry = new IndexEntry(server, bins.size(), server.getLoad());
         bins.add(server);
         numberOfBins++;
+
+        entries.put(server, entry);
+        serversByName.putIfAbsent(server.getName(), server);
+        totalCapacity += server.getCapacity();
+        for (final Service service : server.getServices()) {
+            servicesByName.computeIfAbsent(service.getName(), k -> new ArrayList<>()).add(service);
+            if (service.isAdded()) {
+                addedServiceLoad += service.getLoad();
+            }
+        }
+        index(entry);
+    }
+
+    private static Pair<Double, Double> capacityClass(final Server server) {
+        return ImmutablePair.of(server.getCapacity(), server.alpha());
+    }
+
+    private static boolean hasCapacityLeft(final Server server) {
+        return Math.round(server.getLoad()) < server.getCapacity();
+    }
+
+    /**
+     * Add the entry to the indices using the current load of the server.
+     */
+    private void index(final IndexEntry entry) {
+        final Server server = entry.server;
+        entry.load = server.getLoad();
+        capacityClasses.computeIfAbsent(capacityClass(server), k -> new TreeSet<>(LOAD_ORDER)).add(entry);
+        remainingCapacityTree.set(entry.position, server.getCapacity() - server.getLoad());
+        if (hasCapacityLeft(server)) {
+            ++serversWithCapacityLeft;
+        }
+    }
+
+    /**
+     * Remove the entry from the indices that depend on the load of the server.
+     * Must be called before the load of the server changes.
+     */
+    private void unindex(final IndexEntry entry) {
+        capacityClasses.get(capacityClass(entry.server)).remove(entry);
+        if (hasCapacityLeft(entry.server)) {
+            --serversWithCapacityLeft;
+        }
+    }
+
+    private void addServiceToServer(final Server server, final ServiceIdentifier<?> serviceName,
+            final double serviceLoad) {
+        final IndexEntry entry = entries.get(server);
+        unindex(entry);
+        server.addNewService(serviceName, serviceLoad);
+        index(entry);
+
+        final List<Service> services = server.getServices();
+        servicesByName.computeIfAbsent(serviceName, k -> new ArrayList<>()).add(services.get(services.size() - 1));
+    }
+
+    private void removeServiceFromServer(final Server server, final Service service) {
+        final IndexEntry entry = entries.get(server);
+        unindex(entry);
+        server.removeService(service);
+        index(entry);
+
+        final List<Service> services = servicesByName.get(service.getName());
+        if (null != services) {
+            services.remove(service);
+            if (services.isEmpty()) {
+                servicesByName.remove(service.getName());
+            }
+        }
+        if (service.isAdded()) {
+            addedServiceLoad -= service.getLoad();
+        }
     }
 
     /**
@@ -74,27 +202,7 @@ public class BinPacking {
      *            the {@link Server} to check
      */
     public boolean hasServer(Server server) {
-        for (Server oldServer : bins) {
-            // // Variant 1: String equality testing
-            // String oldName = Objects.toString(oldServer.getName());
-            // String newName = Objects.toString(server.getName());
-            // double oldCap = oldServer.getCapacity();
-            // double newCap = server.getCapacity();
-            // // System.out.print("Comparing " + oldServer.getName() + " and " + server.getName());
-            // // System.out.println(" " + (oldName.equals(newName)) + " " + (oldCap == newCap));
-            // if (oldName.equals(newName) && oldCap == newCap) {
-            //     return true;
-            // }
-
-            // Variant 2; NodeIdentifier equality testing
-            if (oldServer.getName().equals(server.getName())) {
-                return true;
-            }
-        }
-        // if (bins.contains(server))
-        //     return true;
-        // otherwise
-        return false;
+        return serversByName.containsKey(server.getName());
     }
 
     /**
@@ -126,25 +234,14 @@ public class BinPacking {
      * @return the total capacity of the region (all the servers).
      */
     public double totalCapacity() {
-        double capacity = 0;
-        for (Server server : bins) {
-            capacity += server.getCapacity();
-        }
-        return capacity;
+        return totalCapacity;
     }
 
     /**
      * @return the remaining capacity of the region (all the servers).
      */
     public double remainingCapacity() {
-        double remaining = totalCapacity();
-        for (Server server : bins) {
-            for (Service service : server.getServices()) {
-                if (service.isAdded())
-                    remaining -= service.getLoad();
-            }
-        }
-        return remaining;
+        return totalCapacity - addedServiceLoad;
     }
 
     // assumes all containers started have serviceLoad 1
@@ -160,23 +257,8 @@ public class BinPacking {
         // check if service has only one container in entire region
         //  if yes, do not remove
         //  if not, remove 1 container per call
-
-        int count = 0;
-        for (Server server : bins) {
-            // String name = Objects.toString(server.getName());
-
-            // if (name.equals(Objects.toString(serverName))) {
-            for (Service service : server.getServices()) {
-                // String appName = Objects.toString(service.getName());
-
-                // if (appName.equals(Objects.toString(serviceName))) {
-                //     count++;
-                // }
-                if (service.getName().equals(serviceName))
-                    count++;
-            }
-            // }
-        }
+        final List<Service> services = servicesByName.get(serviceName);
+        final int count = null == services ? 0 : services.size();
 
         if (count <= 1) {
             System.out.println("Service has only 1 container in region. Aborting remove.");
@@ -184,21 +266,13 @@ public class BinPacking {
         }
 
         // if count > 1, remove a container
-        for (Server server : bins) {
-            // String name = Objects.toString(server.getName());
-
-            // if (name.equals(Objects.toString(serverName))) {
-            if (server.getName().equals(serverName)) {
-                for (Service service : server.getServices()) {
-                    // String appName = Objects.toString(service.getName());
-
-                    // if (appName.equals(Objects.toString(serviceName))) {
-                    if (service.getName().equals(serviceName)) {
-                        // remove service from server
-                        server.removeService(service);
-                        // removedServices++;
-                        return;
-                    }
+        final Server server = serversByName.get(serverName);
+        if (null != server) {
+            for (Service service : server.getServices()) {
+                if (service.getName().equals(serviceName)) {
+                    // remove service from server
+                    removeServiceFromServer(server, service);
+                    return;
                 }
             }
         }
@@ -213,12 +287,9 @@ public class BinPacking {
      *            load of the service to be added
      */
     public void addFirstFit(ServiceIdentifier<?> serviceName, double serviceLoad) {
-        for (Server server : bins) {
-            if (serviceLoad <= server.getCapacity() - server.getLoad()) {
-                server.addNewService(serviceName, serviceLoad);
-                // numberOfServices1++;
-                break;
-            }
+        final int position = remainingCapacityTree.firstAtLeast(serviceLoad);
+        if (position >= 0) {
+            addServiceToServer(bins.get(position), serviceName, serviceLoad);
         }
     }
 
@@ -231,13 +302,10 @@ public class BinPacking {
      *            load of the service to be checked
      */
     public boolean containsService(ServiceIdentifier<?> serviceName, double serviceLoad) {
-        String newName = Objects.toString(serviceName);
-        for (Server server : bins) {
-            for (Service oldService : server.getServices()) {
-                String oldName = Objects.toString(oldService.getName());
-                double oldLoad = oldService.getLoad();
-
-                if (oldName.equals(newName) && oldLoad == serviceLoad)
+        final List<Service> services = servicesByName.get(serviceName);
+        if (null != services) {
+            for (Service oldService : services) {
+                if (oldService.getLoad() == serviceLoad)
                     return true;
             }
         }
@@ -253,6 +321,55 @@ public class BinPacking {
      *            load of the service to be added
      */
     public void addBestFit(ServiceIdentifier<?> serviceName, double serviceLoad) {
+        addFit(serviceName, serviceLoad, this::findBestFit);
+    }
+
+    /**
+     * Add a {@link Service} to the system on the server that fits it with the
+     * lowest cost. The cost of a server is its load fraction plus the path
+     * cost, the same score that is used to choose an NCP for
+     * {@link com.bbn.map.AgentConfiguration.RlgStubChooseNcp#LOWEST_PATH_COST}.
+     * If no server fits the service, it is spread the same way as
+     * {@link #addBestFit(ServiceIdentifier, double)}.
+     * 
+     * @param serviceName
+     *            name of the service to be added
+     * @param serviceLoad
+     *            load of the service to be added
+     * @param pathCost
+     *            the network path cost of running the service on a server
+     */
+    public void addLowestCostFit(ServiceIdentifier<?> serviceName,
+            double serviceLoad,
+            ToDoubleFunction<NodeIdentifier> pathCost) {
+        addFit(serviceName, serviceLoad, load -> findLowestCostFit(load, pathCost));
+    }
+
+    /**
+     * Add a {@link Service} to the system on the first server that fits it
+     * after the service on the hash ring. A service is placed on the same
+     * servers from round to round as long as they have room. If no server
+     * fits the service, it is spread the same way as
+     * {@link #addBestFit(ServiceIdentifier, double)}.
+     * 
+     * @param serviceName
+     *            name of the service to be added
+     * @param serviceLoad
+     *            load of the service to be added
+     * @param ring
+     *            the ring of servers, servers on the ring that are not in the
+     *            system are skipped
+     */
+    public void addConsistentHashFit(ServiceIdentifier<?> serviceName, double serviceLoad, HashRing ring) {
+        addFit(serviceName, serviceLoad, load -> findConsistentHashFit(serviceName, load, ring));
+    }
+
+    /**
+     * @param findFit
+     *            returns the server that can completely accomodate the load,
+     *            null if there is none
+     */
+    private void addFit(ServiceIdentifier<?> serviceName, double serviceLoad, DoubleFunction<Server> findFit) {
         // if (containsService(serviceName, serviceLoad)) {
         //     System.out.println("Duplicate service being added. Cancelling addition.");
         //     return;
@@ -272,7 +389,7 @@ public class BinPacking {
         boolean added = false;
 
         while (!added) {
-            Server server = findBestFit(serviceLoad);
+            Server server = findFit.apply(serviceLoad);
 
             // LOGGER.info("Counter: " + counter);
             // LOGGER.info("serviceLoad: " + serviceLoad);
@@ -286,10 +403,10 @@ public class BinPacking {
 
                 // alternate: round up everytime
                 if (server.getLoad() + Math.round(serviceLoad) <= server.getCapacity()) {
-                    server.addNewService(serviceName, (double) Math.round(serviceLoad));
+                    addServiceToServer(server, serviceName, (double) Math.round(serviceLoad));
                     // numberOfServices5++;
                 } else {
-                    server.addNewService(serviceName, Math.floor(serviceLoad));
+                    addServiceToServer(server, serviceName, Math.floor(serviceLoad));
                     // numberOfServices6++;
                 }
 
@@ -297,13 +414,7 @@ public class BinPacking {
 
             } else {
                 // if there is space in the region
-                boolean noCapacityLeft = true;
-                for (Server checkServer : bins) {
-                    if (Math.round(checkServer.getLoad()) < checkServer.getCapacity()) {
-                        noCapacityLeft = false;
-                    }
-                }
-                if (noCapacityLeft) {
+                if (serversWithCapacityLeft <= 0) {
                     // LOGGER.info("No capacity in the region to start service.");
                     throw new RuntimeException(
                         "There is not enough capacity in the region to start a new service.");
@@ -325,13 +436,13 @@ public class BinPacking {
 
                 // alternate: round up everytime
                 if (server.getLoad() + Math.round(oldLoad) <= server.getCapacity()) {
-                    server.addNewService(serviceName, (double) Math.round(oldLoad));
+                    addServiceToServer(server, serviceName, (double) Math.round(oldLoad));
                     // numberOfServices3++;
                     // LOGGER.info("services3debug:" + server.getName() + "," + oldLoad + 
                     //                 "," + server.getCapacity());
                     // this.print();
                 } else {
-                    server.addNewService(serviceName, Math.floor(oldLoad));
+                    addServiceToServer(server, serviceName, Math.floor(oldLoad));
                     // numberOfServices4++;
                 }
 
@@ -348,16 +459,75 @@ public class BinPacking {
      *            load of the service to be added
      */
     public Server findBestFit(double serviceLoad) {
-        Server toReturn = null;
+        IndexEntry toReturn = null;
         double fracRemaining = 1.0;
 
-        for (Server server : bins) {
-            if (server.getLoad() + serviceLoad <= server.alpha() * server.getCapacity()) {
+        for (TreeSet<IndexEntry> capacityClass : capacityClasses.values()) {
+            // within a class the fullest server that still fits packs the
+            // service most tightly
+            final IndexEntry candidate = findFullestFit(capacityClass, serviceLoad);
+            if (null != candidate) {
+                final Server server = candidate.server;
                 double leftover = (server.getCapacity() - server.getLoad() - serviceLoad) / server.getCapacity();
 
                 // if this server packs the service more tightly than toReturn,
-                //  replace toReturn with this server
-                if (leftover < fracRemaining) {
+                // replace toReturn with this server, ties go to the server
+                // added first
+                if (leftover < fracRemaining || (null != toReturn && leftover == fracRemaining
+                        && candidate.position < toReturn.position)) {
+                    fracRemaining = leftover;
+                    toReturn = candidate;
+                }
+            }
+        }
+
+        return null == toReturn ? null : toReturn.server;
+    }
+
+    /**
+     * @return the first {@link Server} after the {@link Service} on the ring
+     *         that can completely accomodate it. If there is no such server,
+     *         return null.
+     * @param serviceName
+     *            name of the service, this is the key on the ring
+     * @param serviceLoad
+     *            load of the service to be added
+     * @param ring
+     *            the ring of servers
+     */
+    public Server findConsistentHashFit(ServiceIdentifier<?> serviceName, double serviceLoad, HashRing ring) {
+        final Server candidate = ring.find(serviceName, s -> {
+            final Server server = serversByName.get(s.getName());
+            return null != server && server.getLoad() + serviceLoad <= server.alpha() * server.getCapacity();
+        });
+        return null == candidate ? null : serversByName.get(candidate.getName());
+    }
+
+    /**
+     * @return the {@link Server} that can completely accomodate the
+     *         {@link Service} with the lowest load fraction plus path cost,
+     *         ties go to the best fit and then the server added first. If there
+     *         is no server that can completely accomodate the {@link Service},
+     *         return null. This looks at every server.
+     * @param serviceLoad
+     *            load of the service to be added
+     * @param pathCost
+     *            the network path cost of running the service on a server
+     */
+    public Server findLowestCostFit(double serviceLoad, ToDoubleFunction<NodeIdentifier> pathCost) {
+        Server toReturn = null;
+        double lowestCost = Double.POSITIVE_INFINITY;
+        double fracRemaining = 1.0;
+
+        for (final Server server : bins) {
+            if (server.getLoad() + serviceLoad <= server.alpha() * server.getCapacity()) {
+                final double cost = server.getLoad() / server.getCapacity()
+                        + pathCost.applyAsDouble(server.getName());
+                final double leftover = (server.getCapacity() - server.getLoad() - serviceLoad)
+                        / server.getCapacity();
+
+                if (null == toReturn || cost < lowestCost || (cost == lowestCost && leftover < fracRemaining)) {
+                    lowestCost = cost;
                     fracRemaining = leftover;
                     toReturn = server;
                 }
@@ -367,6 +537,37 @@ public class BinPacking {
         return toReturn;
     }
 
+    /**
+     * @return the server with the largest load in the class that can hold the
+     *         service, ties go to the server added first. Null if no server
+     *         fits.
+     */
+    private static IndexEntry findFullestFit(final TreeSet<IndexEntry> capacityClass, final double serviceLoad) {
+        if (capacityClass.isEmpty()) {
+            return null;
+        }
+
+        final Server any = capacityClass.first().server;
+        final double threshold = any.alpha() * any.getCapacity() - serviceLoad;
+        if (Double.isNaN(threshold)) {
+            return null;
+        }
+
+        // the probe sorts after all entries with the same load, step up by
+        // one ulp to allow for rounding in the threshold, the exact check is
+        // done below
+        final IndexEntry probe = new IndexEntry(any, -1, Math.nextUp(threshold));
+        final Iterator<IndexEntry> iter = capacityClass.headSet(probe, true).descendingIterator();
+        while (iter.hasNext()) {
+            final IndexEntry entry = iter.next();
+            final Server server = entry.server;
+            if (server.getLoad() + serviceLoad <= server.alpha() * server.getCapacity()) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
     /**
      * @return the {@link Server} that would be overflowed the least while
      *         adding the given load.
@@ -374,15 +575,11 @@ public class BinPacking {
      *            load of the service to be added
      */
     public Server findLeastOverflowing(double serviceLoad) {
+        // the least overflow is on the server with the most remaining capacity
         Server toReturn = null;
-        double leastOverflow = Double.POSITIVE_INFINITY;
-
-        for (Server server : bins) {
-            double overflow = server.getLoad() + serviceLoad - server.getCapacity();
-            if (overflow < leastOverflow) {
-                leastOverflow = overflow;
-                toReturn = server;
-            }
+        final int position = remainingCapacityTree.firstMaximum();
+        if (position >= 0 && remainingCapacityTree.get(position) > Double.NEGATIVE_INFINITY) {
+            toReturn = bins.get(position);
         }
 
         if (toReturn == null) {
@@ -466,6 +663,7 @@ public class BinPacking {
 
                 if (!service.isAdded()) {
                     service.addToRlg();
+                    addedServiceLoad += service.getLoad();
                     newServicePlan.addService(serverName, serviceName, 1);
                     // numberOfServices2++;
                 }
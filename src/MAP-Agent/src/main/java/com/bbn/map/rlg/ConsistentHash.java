@@ -7,18 +7,24 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
-import java.util.Objects;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import com.bbn.protelis.networkresourcemanagement.NodeIdentifier;
 import com.bbn.protelis.networkresourcemanagement.ServiceIdentifier;
 
 /**
  * A consistent hashing implementation of RLG.
+ * 
+ * @see HashRing for a faster implementation with virtual nodes
  */
 public class ConsistentHash {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConsistentHash.class);
+
     private final MessageDigest md;
     private final int numberOfReplicas;
     private final TreeMap<String, Server> circle =
@@ -218,7 +224,7 @@ public class ConsistentHash {
 
                 // find most overloaded server
                 if (server.isOverloaded()) {
-                    System.out.println("Server " + server.getName() + " is overloaded!");
+                    LOGGER.debug("Server {} is overloaded", server.getName());
 
                     overload = true;
                     if (server.overload() > maxLoad) {
@@ -231,20 +237,17 @@ public class ConsistentHash {
                 // no server overloaded
                 break;
             }
-            System.out.println("Max key:" + maxKey);
             toBalance = getFromKey(maxKey);
-            System.out.println("Most overloaded server:");
-            System.out.println(toBalance.toString());
+            LOGGER.debug("Most overloaded server with key {}: {}", maxKey, toBalance);
 
             // find heaviest service, spread it evenly
             Service service = toBalance.heaviestService();
             if (service == null) {
-                System.out.println("No load to be balanced.");
+                LOGGER.debug("No load to be balanced.");
                 return;
             }
 
-            System.out.println("Heaviest service:");
-            System.out.println(service.toString());
+            LOGGER.debug("Heaviest service: {}", service);
             ServiceIdentifier<?> serviceName = service.getName();
             double serviceLoad = service.getLoad();
             int oldDivFactor = service.getDivideFactor();
@@ -284,7 +287,7 @@ public class ConsistentHash {
 
                 counter++;
                 if (counter > numberNodes) {
-                    System.out.println("ERROR: Circle completed, running in loop.");
+                    LOGGER.error("Circle completed, running in loop.");
                 }
             }
 
@@ -314,7 +317,9 @@ public class ConsistentHash {
                 iterateServer = nextEntry.getValue();
             }
 
-            print();
+            if (LOGGER.isTraceEnabled()) {
+                circle.forEach((key, server) -> LOGGER.trace("Key: {}, value: {}.", key, server));
+            }
             // System.out.println("Load balance iteration finished");
 
         }
@@ -337,7 +342,7 @@ public class ConsistentHash {
      * Perform the unspreading step of the algorithm.
      */
     public void unspread() {
-        System.out.println("Unspreading.");
+        LOGGER.debug("Unspreading.");
     }
 
     /**
@@ -357,7 +362,7 @@ public class ConsistentHash {
                 if (toReturn.containsKey(serviceName)) {
                     Map<NodeIdentifier, Double> set = toReturn.get(serviceName);
                     set.put(serverName, service.getFracLoad(server));
-                    System.out.println("New set: " + Objects.toString(set));
+                    LOGGER.trace("New set: {}", set);
                     toReturn.replace(serviceName, set);
                 }
                 // otherwise, create a new map entry
@@ -0,0 +1,224 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.rlg;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+
+import com.bbn.map.utils.MapUtils;
+import com.bbn.protelis.networkresourcemanagement.NodeAttribute;
+import com.bbn.protelis.networkresourcemanagement.NodeIdentifier;
+import com.bbn.protelis.networkresourcemanagement.ResourceReport;
+import com.bbn.protelis.networkresourcemanagement.ServiceIdentifier;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Track the trend of the {@link MapUtils#COMPUTE_ATTRIBUTE} demand for each
+ * service in a region. The demand is the estimate in
+ * {@link ResourceReport#getComputeDemand()}, which is already smoothed by the
+ * configured demand estimation algorithm. The trend is the least squares slope
+ * of the total demand over the report timestamps of the last few updates, and
+ * is used to forecast the demand a short time into the future.
+ */
+/* package */ final class DemandTrendPredictor {
+
+    private static final class Sample {
+        private final long timestamp;
+        private final Map<ServiceIdentifier<?>, Double> demand;
+
+        Sample(final long timestamp, final Map<ServiceIdentifier<?>, Double> demand) {
+            this.timestamp = timestamp;
+            this.demand = demand;
+        }
+    }
+
+    private final int window;
+
+    /**
+     * The newest sample is last.
+     */
+    private final Deque<Sample> samples = new ArrayDeque<>();
+
+    /**
+     * Service -> change in demand per millisecond.
+     */
+    private final Map<ServiceIdentifier<?>, Double> slope = new HashMap<>();
+
+    /**
+     * @param window
+     *            the number of updates to fit the trend over, at least 2
+     * @throws IllegalArgumentException
+     *             if window is less than 2
+     */
+    /* package */ DemandTrendPredictor(final int window) {
+        if (window < 2) {
+            throw new IllegalArgumentException("The window must be at least 2 updates: " + window);
+        }
+        this.window = window;
+    }
+
+    /**
+     * Update the demand and trend. If the newest timestamp in the reports is
+     * not newer than the timestamp from the previous call, the demand from the
+     * previous call is replaced.
+     *
+     * @param reports
+     *            the most recent report for each node in the region
+     */
+    /* package */ void update(@Nonnull final Collection<ResourceReport> reports) {
+        long timestamp = Long.MIN_VALUE;
+        final Map<ServiceIdentifier<?>, Double> newDemand = new HashMap<>();
+        for (final ResourceReport report : reports) {
+            timestamp = Math.max(timestamp, report.getTimestamp());
+
+            for (final Map.Entry<ServiceIdentifier<?>, ImmutableMap<NodeIdentifier, ImmutableMap<NodeAttribute, Double>>> entry : report
+                    .getComputeDemand().entrySet()) {
+                double serviceDemand = 0;
+                for (final ImmutableMap<NodeAttribute, Double> clientDemand : entry.getValue().values()) {
+                    serviceDemand += clientDemand.getOrDefault(MapUtils.COMPUTE_ATTRIBUTE, 0D);
+                }
+                newDemand.merge(entry.getKey(), serviceDemand, Double::sum);
+            }
+        }
+
+        if (!samples.isEmpty() && timestamp <= samples.getLast().timestamp) {
+            timestamp = samples.removeLast().timestamp;
+        }
+        samples.addLast(new Sample(timestamp, newDemand));
+        while (samples.size() > window) {
+            samples.removeFirst();
+        }
+
+        computeSlope();
+    }
+
+    private void computeSlope() {
+        slope.clear();
+        if (samples.size() < 2) {
+            return;
+        }
+
+        final Set<ServiceIdentifier<?>> services = new HashSet<>();
+        samples.forEach(sample -> services.addAll(sample.demand.keySet()));
+
+        // fit relative to the first timestamp to keep the sums small
+        final long origin = samples.getFirst().timestamp;
+        double meanTime = 0;
+        for (final Sample sample : samples) {
+            meanTime += sample.timestamp - origin;
+        }
+        meanTime /= samples.size();
+
+        double timeVariance = 0;
+        for (final Sample sample : samples) {
+            final double dt = sample.timestamp - origin - meanTime;
+            timeVariance += dt * dt;
+        }
+
+        for (final ServiceIdentifier<?> service : services) {
+            double meanDemand = 0;
+            for (final Sample sample : samples) {
+                meanDemand += sample.demand.getOrDefault(service, 0D);
+            }
+            meanDemand /= samples.size();
+
+            double covariance = 0;
+            for (final Sample sample : samples) {
+                covariance += (sample.timestamp - origin - meanTime)
+                        * (sample.demand.getOrDefault(service, 0D) - meanDemand);
+            }
+            slope.put(service, covariance / timeVariance);
+        }
+    }
+
+    /**
+     * @param service
+     *            the service
+     * @return the total demand for the service from the last update
+     */
+    /* package */ double getDemand(@Nonnull final ServiceIdentifier<?> service) {
+        return samples.isEmpty() ? 0 : samples.getLast().demand.getOrDefault(service, 0D);
+    }
+
+    /**
+     * @param service
+     *            the service
+     * @return the change in demand per millisecond over the window, 0 if
+     *         unknown
+     */
+    /* package */ double getSlope(@Nonnull final ServiceIdentifier<?> service) {
+        return slope.getOrDefault(service, 0D);
+    }
+
+    /**
+     * @param service
+     *            the service
+     * @param horizon
+     *            how far into the future to forecast
+     * @return the forecast demand, never negative
+     */
+    /* package */ double forecast(@Nonnull final ServiceIdentifier<?> service, @Nonnull final Duration horizon) {
+        return Math.max(0, getDemand(service) + getSlope(service) * horizon.toMillis());
+    }
+
+    /**
+     * @param service
+     *            the service
+     * @param capacity
+     *            the demand to check against
+     * @return how long until the demand is forecast to reach the capacity,
+     *         {@link Duration#ZERO} if it already has, null if the demand is
+     *         not increasing
+     */
+    /* package */ Duration timeUntilDemandReaches(@Nonnull final ServiceIdentifier<?> service,
+            final double capacity) {
+        final double current = getDemand(service);
+        if (current >= capacity) {
+            return Duration.ZERO;
+        }
+
+        final double rate = getSlope(service);
+        if (rate <= 0) {
+            return null;
+        }
+        return Duration.ofMillis((long) Math.ceil((capacity - current) / rate));
+    }
+
+}
@@ -0,0 +1,383 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.rlg;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import javax.annotation.Nonnull;
+
+import com.bbn.protelis.networkresourcemanagement.NodeIdentifier;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * Consistent hash ring for RLG. Each {@link Server} is placed on the ring at a
+ * number of virtual nodes, which spreads the keys much more evenly than a
+ * single position per server. Positions are 64-bit Murmur3 hashes stored in a
+ * sorted array, lookups are a binary search. Adding or removing a server
+ * rebuilds the arrays, this is expected to be much less frequent than
+ * lookups.
+ *
+ * RLG uses this to choose NCPs when
+ * {@link com.bbn.map.AgentConfiguration#getRlgStubChooseNcp()} is
+ * {@link com.bbn.map.AgentConfiguration.RlgStubChooseNcp#CONSISTENT_HASH}.
+ * It replaces {@link ConsistentHash}, which uses MD5 hex strings as keys in a
+ * {@link java.util.TreeMap} and has a single position per server.
+ */
+public final class HashRing {
+
+    /**
+     * Default value for the number of virtual nodes per server.
+     */
+    public static final int DEFAULT_VIRTUAL_NODES = 64;
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final int virtualNodes;
+
+    /**
+     * name -> server in the order that they were added.
+     */
+    private final Map<NodeIdentifier, Server> servers = new LinkedHashMap<>();
+
+    /**
+     * Sorted positions on the ring.
+     */
+    private long[] positions = new long[0];
+
+    /**
+     * Server at each position in {@link #positions}.
+     */
+    private Server[] owners = new Server[0];
+
+    /**
+     * @param virtualNodes
+     *            the number of positions on the ring for each server
+     * @param nodes
+     *            the servers to start with
+     * @throws IllegalArgumentException
+     *             if {@code virtualNodes} is less than 1
+     */
+    public HashRing(final int virtualNodes, @Nonnull final Collection<Server> nodes) {
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("The number of virtual nodes must be at least 1: " + virtualNodes);
+        }
+        this.virtualNodes = virtualNodes;
+        nodes.forEach(node -> servers.putIfAbsent(node.getName(), node));
+        rebuild();
+    }
+
+    /**
+     * Create a ring with {@link #DEFAULT_VIRTUAL_NODES}.
+     *
+     * @param nodes
+     *            the servers to start with
+     */
+    public HashRing(@Nonnull final Collection<Server> nodes) {
+        this(DEFAULT_VIRTUAL_NODES, nodes);
+    }
+
+    /**
+     * @param input
+     *            the string to hash
+     * @return the position of the string on the ring
+     */
+    public static long hash(@Nonnull final String input) {
+        return HASH_FUNCTION.hashString(input, StandardCharsets.UTF_8).asLong();
+    }
+
+    /**
+     * @return the number of positions on the ring for each server
+     */
+    public int getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    /**
+     * @return the number of servers on the ring
+     */
+    public int size() {
+        return servers.size();
+    }
+
+    /**
+     * @return the servers on the ring in the order that they were added
+     */
+    public Collection<Server> getServers() {
+        return Collections.unmodifiableCollection(servers.values());
+    }
+
+    /**
+     * Add a server to the ring. If a server with the same name is already on
+     * the ring, the ring is not changed.
+     *
+     * @param node
+     *            the server to add
+     */
+    public void add(@Nonnull final Server node) {
+        if (null == servers.putIfAbsent(node.getName(), node)) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Add servers to the ring with a single rebuild. Servers whose names are
+     * already on the ring are skipped.
+     *
+     * @param nodes
+     *            the servers to add
+     */
+    public void addAll(@Nonnull final Collection<Server> nodes) {
+        boolean changed = false;
+        for (final Server node : nodes) {
+            changed |= null == servers.putIfAbsent(node.getName(), node);
+        }
+        if (changed) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Remove a server from the ring. The keys that mapped to other servers
+     * are not moved.
+     *
+     * @param node
+     *            the server to remove
+     */
+    public void remove(@Nonnull final Server node) {
+        if (null != servers.remove(node.getName())) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Remove the servers whose names are not in the collection with a single
+     * rebuild of the ring.
+     *
+     * @param names
+     *            the names of the servers to keep
+     * @return true if any servers were removed
+     */
+    public boolean retainAll(@Nonnull final Collection<NodeIdentifier> names) {
+        if (servers.keySet().retainAll(names)) {
+            rebuild();
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * @param name
+     *            the name of a server
+     * @return true if a server with the name is on the ring
+     */
+    public boolean contains(@Nonnull final NodeIdentifier name) {
+        return servers.containsKey(name);
+    }
+
+    private void rebuild() {
+        final int count = servers.size() * virtualNodes;
+        final long[] newPositions = new long[count];
+        final Server[] newOwners = new Server[count];
+
+        // sort by position and then by the order the servers were added so
+        // that collisions are resolved the same way every time
+        final Integer[] order = new Integer[count];
+        int index = 0;
+        for (final Server server : servers.values()) {
+            final String name = server.getName().getName();
+            for (int i = 0; i < virtualNodes; ++i) {
+                newPositions[index] = hash(name + "#" + i);
+                newOwners[index] = server;
+                order[index] = index;
+                ++index;
+            }
+        }
+        Arrays.sort(order, (a, b) -> {
+            final int cmp = Long.compare(newPositions[a], newPositions[b]);
+            return 0 != cmp ? cmp : Integer.compare(a, b);
+        });
+
+        positions = new long[count];
+        owners = new Server[count];
+        for (int i = 0; i < count; ++i) {
+            positions[i] = newPositions[order[i]];
+            owners[i] = newOwners[order[i]];
+        }
+    }
+
+    /**
+     * @return the index of the first position at or after the hash, wrapping
+     *         around the ring
+     */
+    private int findIndex(final long hash) {
+        int index = Arrays.binarySearch(positions, hash);
+        if (index < 0) {
+            index = -index - 1;
+        } else {
+            // move to the first of any equal positions
+            while (index > 0 && positions[index - 1] == hash) {
+                --index;
+            }
+        }
+        return index == positions.length ? 0 : index;
+    }
+
+    /**
+     * @param key
+     *            the key object, {@link Object#toString()} is hashed
+     * @return the server responsible for the key, null if the ring is empty
+     */
+    public Server get(@Nonnull final Object key) {
+        if (0 == positions.length) {
+            return null;
+        }
+        return owners[findIndex(hash(key.toString()))];
+    }
+
+    /**
+     * Find the distinct servers following the key on the ring. The first
+     * server is the same as {@link #get(Object)}. This is used to find the
+     * servers to spread a service to.
+     *
+     * @param key
+     *            the key object, {@link Object#toString()} is hashed
+     * @param count
+     *            the maximum number of servers to return
+     * @return up to {@code count} servers in ring order
+     */
+    public List<Server> getServersForKey(@Nonnull final Object key, final int count) {
+        final int limit = Math.min(count, servers.size());
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        final List<Server> result = new ArrayList<>(limit);
+        final int start = findIndex(hash(key.toString()));
+        for (int i = 0; i < positions.length && result.size() < limit; ++i) {
+            final Server server = owners[(start + i) % positions.length];
+            if (!containsSame(result, server)) {
+                result.add(server);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Walk the ring from the key and return the first server that is
+     * accepted. The walk stops as soon as a server is accepted, so in the
+     * common case this is the binary search plus a few steps. Each server is
+     * tested at most once.
+     *
+     * @param key
+     *            the key object, {@link Object#toString()} is hashed
+     * @param accept
+     *            decides if a server can be used for the key
+     * @return the first accepted server in ring order, null if the ring is
+     *         empty or no server is accepted
+     */
+    public Server find(@Nonnull final Object key, @Nonnull final Predicate<Server> accept) {
+        if (0 == positions.length) {
+            return null;
+        }
+
+        final int start = findIndex(hash(key.toString()));
+        Set<Server> rejected = null;
+        for (int i = 0; i < positions.length; ++i) {
+            final Server server = owners[(start + i) % positions.length];
+            if (null != rejected && rejected.contains(server)) {
+                continue;
+            }
+            if (accept.test(server)) {
+                return server;
+            }
+
+            if (null == rejected) {
+                rejected = Collections.newSetFromMap(new IdentityHashMap<>());
+            }
+            rejected.add(server);
+            if (rejected.size() == servers.size()) {
+                break;
+            }
+        }
+        return null;
+    }
+
+    private static boolean containsSame(final List<Server> list, final Server server) {
+        for (final Server s : list) {
+            if (s == server) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Count the number of keys that map to each server. Used to measure how
+     * evenly the keys are spread.
+     *
+     * @param keys
+     *            the keys to look up
+     * @return server name -> number of keys, every server on the ring is
+     *         included
+     */
+    public Map<NodeIdentifier, Integer> countKeys(@Nonnull final Iterable<?> keys) {
+        final Map<NodeIdentifier, Integer> counts = new LinkedHashMap<>();
+        servers.keySet().forEach(name -> counts.put(name, 0));
+        for (final Object key : keys) {
+            final Server server = get(Objects.requireNonNull(key));
+            counts.merge(server.getName(), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    @Override
+    public String toString() {
+        final List<String> names = new LinkedList<>();
+        servers.keySet().forEach(name -> names.add(name.getName()));
+        return "HashRing [virtualNodes=" + virtualNodes + ", servers=" + names + "]";
+    }
+
+}
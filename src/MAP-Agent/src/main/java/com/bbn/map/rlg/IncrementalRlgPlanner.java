@@ -0,0 +1,404 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.rlg;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bbn.map.utils.MapUtils;
+import com.bbn.protelis.networkresourcemanagement.ContainerResourceReport;
+import com.bbn.protelis.networkresourcemanagement.NodeAttribute;
+import com.bbn.protelis.networkresourcemanagement.NodeIdentifier;
+import com.bbn.protelis.networkresourcemanagement.ResourceReport;
+import com.bbn.protelis.networkresourcemanagement.ServiceIdentifier;
+import com.bbn.protelis.networkresourcemanagement.ServiceStatus;
+
+/**
+ * Computes the per-service inputs that {@link RLGService} needs from the
+ * {@link ResourceReport}s of a round, reusing the work done for the previous
+ * round.
+ * 
+ * The container maps of each report are computed once and cached by node name
+ * and report timestamp. When a report changes, its old containers are removed
+ * from the maps and the new ones are added. The load totals, the bin packing
+ * inputs and the container ordering are taken from the {@link RegionLoadTable}
+ * of the round, so they are the same as when everything is computed from
+ * scratch.
+ * 
+ * The planner also finds the services whose decision inputs are the same as
+ * in the previous round: the bin packing load and container count, the load
+ * percentage and the load of each running container.
+ * {@link RLGService} reuses the decisions from the previous round for these
+ * services, see {@link PlanInputs#getChangedServices()}. The inputs are
+ * compared by value because every report gets a new timestamp each round even
+ * when nothing in it changed.
+ * 
+ * Rounds that contain more than one report for a node or the same container in
+ * the reports of 2 nodes are not handled incrementally,
+ * {@link #update(Set, RegionLoadTable, RlgUtils.LoadPercentages)} returns null and clears the cached
+ * state so that the next round starts from scratch.
+ */
+/* package */ final class IncrementalRlgPlanner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IncrementalRlgPlanner.class);
+
+    /**
+     * node -> contribution of the report for the node in the last round.
+     */
+    private Map<NodeIdentifier, ReportContribution> cache = new HashMap<>();
+
+    private final Map<NodeIdentifier, NodeIdentifier> containerToNodeMap = new HashMap<>();
+    private final Map<NodeIdentifier, ServiceStatus> containerServiceStatus = new HashMap<>();
+
+    private Map<ServiceIdentifier<?>, Double> prevServiceLoads = Collections.emptyMap();
+    private Map<ServiceIdentifier<?>, Integer> prevServiceContainers = Collections.emptyMap();
+    private Map<ServiceIdentifier<?>, Map<NodeAttribute, Double>> prevLoadPercentages = Collections.emptyMap();
+    private Map<ServiceIdentifier<?>, Map<NodeIdentifier, Map<NodeAttribute, Double>>> prevRunningLoads = Collections
+            .emptyMap();
+
+    private int lastReusedCount = 0;
+    private Set<ServiceIdentifier<?>> lastChangedServices = Collections.emptySet();
+
+    /**
+     * Clear all cached state. The next call to
+     * {@link #update(Set, RegionLoadTable, RlgUtils.LoadPercentages)} will
+     * compute everything from scratch and report all services as changed.
+     */
+    public void reset() {
+        cache = new HashMap<>();
+        containerToNodeMap.clear();
+        containerServiceStatus.clear();
+        prevServiceLoads = Collections.emptyMap();
+        prevServiceContainers = Collections.emptyMap();
+        prevLoadPercentages = Collections.emptyMap();
+        prevRunningLoads = Collections.emptyMap();
+        lastReusedCount = 0;
+        lastChangedServices = Collections.emptySet();
+    }
+
+    /**
+     * Compute the inputs for a round.
+     * 
+     * @param resourceReports
+     *            the reports for the round
+     * @param loadTable
+     *            the table built from the most recent report of each node in
+     *            resourceReports
+     * @param loadPercentages
+     *            the load percentages computed from loadTable
+     * @return the inputs or null if the reports cannot be handled
+     *         incrementally, in this case the caller needs to compute the
+     *         inputs from scratch
+     */
+    public PlanInputs update(@Nonnull final Set<ResourceReport> resourceReports,
+            @Nonnull final RegionLoadTable loadTable,
+            @Nonnull final RlgUtils.LoadPercentages loadPercentages) {
+        final Map<NodeIdentifier, ReportContribution> newCache = new HashMap<>();
+        final List<ReportContribution> added = new ArrayList<>();
+        int reused = 0;
+        for (final ResourceReport report : resourceReports) {
+            final NodeIdentifier node = report.getNodeName();
+            if (newCache.containsKey(node)) {
+                LOGGER.debug("Multiple reports for {}, cannot plan incrementally", node);
+                reset();
+                return null;
+            }
+
+            final ReportContribution cached = cache.get(node);
+            final ReportContribution contribution;
+            if (null != cached && cached.timestamp == report.getTimestamp()) {
+                contribution = cached;
+                ++reused;
+            } else {
+                contribution = new ReportContribution(report);
+                added.add(contribution);
+            }
+            newCache.put(node, contribution);
+        }
+
+        // remove the contributions of reports that changed or are gone
+        cache.forEach((node, contribution) -> {
+            if (newCache.get(node) != contribution) {
+                removeContribution(contribution);
+            }
+        });
+        cache = newCache;
+
+        for (final ReportContribution contribution : added) {
+            if (!addContribution(contribution)) {
+                reset();
+                return null;
+            }
+        }
+
+        final Map<ServiceIdentifier<?>, Double> serviceLoads = loadTable.getBinPackingServiceLoads();
+        final Map<ServiceIdentifier<?>, Integer> serviceContainers = loadTable.getBinPackingServiceCounts();
+        final Map<ServiceIdentifier<?>, Map<NodeAttribute, Double>> loadPercentagesByService = loadPercentages
+                .allocatedLoadPercentagePerService;
+        final Map<ServiceIdentifier<?>, Map<NodeIdentifier, Map<NodeAttribute, Double>>> runningLoads = loadTable
+                .getRunningContainerLoadByService();
+
+        final Set<ServiceIdentifier<?>> changedServices = new HashSet<>();
+        addChanged(changedServices, prevServiceLoads, serviceLoads);
+        addChanged(changedServices, prevServiceContainers, serviceContainers);
+        addChanged(changedServices, prevLoadPercentages, loadPercentagesByService);
+        addChanged(changedServices, prevRunningLoads, runningLoads);
+
+        prevServiceLoads = serviceLoads;
+        prevServiceContainers = serviceContainers;
+        prevLoadPercentages = loadPercentagesByService;
+        prevRunningLoads = runningLoads;
+
+        lastReusedCount = reused;
+        lastChangedServices = changedServices;
+        LOGGER.debug("Reused {} of {} reports, changed services: {}", reused, newCache.size(), changedServices);
+
+        // the maps from the table are new each round and are not copied, a
+        // copy can have a different iteration order
+        return new PlanInputs(loadTable.getBinPackingServices(), serviceLoads, serviceContainers,
+                Collections.unmodifiableMap(containerToNodeMap),
+                Collections.unmodifiableMap(containerServiceStatus), runningLoads,
+                loadTable.getContainersByAscendingLoad(MapUtils.COMPUTE_ATTRIBUTE),
+                Collections.unmodifiableSet(changedServices));
+    }
+
+    /**
+     * Add the services that are in only one of the maps or have different
+     * values.
+     */
+    private static <T> void addChanged(final Set<ServiceIdentifier<?>> changedServices,
+            final Map<ServiceIdentifier<?>, T> previous,
+            final Map<ServiceIdentifier<?>, T> current) {
+        current.forEach((service, value) -> {
+            if (!Objects.equals(value, previous.get(service))) {
+                changedServices.add(service);
+            }
+        });
+        previous.keySet().forEach(service -> {
+            if (!current.containsKey(service)) {
+                changedServices.add(service);
+            }
+        });
+    }
+
+    private void removeContribution(final ReportContribution contribution) {
+        for (final ContainerContribution container : contribution.containers) {
+            containerToNodeMap.remove(container.id);
+            containerServiceStatus.remove(container.id);
+        }
+    }
+
+    /**
+     * @return false if a container is already known from the report of another
+     *         node
+     */
+    private boolean addContribution(final ReportContribution contribution) {
+        for (final ContainerContribution container : contribution.containers) {
+            if (null != containerToNodeMap.put(container.id, contribution.node)) {
+                LOGGER.debug("Container {} is reported by multiple nodes, cannot plan incrementally", container.id);
+                return false;
+            }
+            containerServiceStatus.put(container.id, container.status);
+        }
+        return true;
+    }
+
+    /**
+     * Package visibility for testing.
+     * 
+     * @return the number of reports whose contribution was reused by the last
+     *         call to {@link #update(Set, RegionLoadTable, RlgUtils.LoadPercentages)}
+     */
+    /* package */ int getLastReusedCount() {
+        return lastReusedCount;
+    }
+
+    /**
+     * Package visibility for testing.
+     * 
+     * @return the services whose decision inputs changed in the last call to
+     *         {@link #update(Set, RegionLoadTable, RlgUtils.LoadPercentages)}
+     */
+    /* package */ Set<ServiceIdentifier<?>> getLastChangedServices() {
+        return Collections.unmodifiableSet(lastChangedServices);
+    }
+
+    /**
+     * The containers of a {@link ResourceReport}. Never modified after
+     * construction.
+     */
+    private static final class ReportContribution {
+        private final NodeIdentifier node;
+        private final long timestamp;
+        private final List<ContainerContribution> containers = new ArrayList<>();
+
+        ReportContribution(final ResourceReport report) {
+            node = report.getNodeName();
+            timestamp = report.getTimestamp();
+            report.getContainerReports()
+                    .forEach((id, creport) -> containers.add(new ContainerContribution(id, creport)));
+        }
+    }
+
+    private static final class ContainerContribution {
+        private final NodeIdentifier id;
+        private final ServiceIdentifier<?> service;
+        private final ServiceStatus status;
+
+        ContainerContribution(final NodeIdentifier id, final ContainerResourceReport creport) {
+            this.id = id;
+            this.service = creport.getService();
+            this.status = creport.getServiceStatus();
+        }
+    }
+
+    /**
+     * The inputs to one round of {@link RLGService}. Computed either from
+     * scratch or by {@link IncrementalRlgPlanner#update(Set, RegionLoadTable, RlgUtils.LoadPercentages)}.
+     */
+    /* package */ static final class PlanInputs {
+        private final List<Service> services;
+        private final Map<ServiceIdentifier<?>, Double> serviceLoads;
+        private final Map<ServiceIdentifier<?>, Integer> serviceContainers;
+        private final Map<NodeIdentifier, NodeIdentifier> containerToNodeMap;
+        private final Map<NodeIdentifier, ServiceStatus> containerServiceStatus;
+        private final Map<ServiceIdentifier<?>, Map<NodeIdentifier, Map<NodeAttribute, Double>>> totalContainerLoadByService;
+        private final Map<ServiceIdentifier<?>, List<NodeIdentifier>> containersByAscendingLoad;
+        private final Set<ServiceIdentifier<?>> changedServices;
+
+        // CHECKSTYLE:OFF value class
+        /* package */ PlanInputs(final List<Service> services,
+                final Map<ServiceIdentifier<?>, Double> serviceLoads,
+                final Map<ServiceIdentifier<?>, Integer> serviceContainers,
+                final Map<NodeIdentifier, NodeIdentifier> containerToNodeMap,
+                final Map<NodeIdentifier, ServiceStatus> containerServiceStatus,
+                final Map<ServiceIdentifier<?>, Map<NodeIdentifier, Map<NodeAttribute, Double>>> totalContainerLoadByService,
+                final Map<ServiceIdentifier<?>, List<NodeIdentifier>> containersByAscendingLoad,
+                final Set<ServiceIdentifier<?>> changedServices) {
+            // CHECKSTYLE:ON
+            this.services = services;
+            this.serviceLoads = serviceLoads;
+            this.serviceContainers = serviceContainers;
+            this.containerToNodeMap = containerToNodeMap;
+            this.containerServiceStatus = containerServiceStatus;
+            this.totalContainerLoadByService = totalContainerLoadByService;
+            this.containersByAscendingLoad = containersByAscendingLoad;
+            this.changedServices = changedServices;
+        }
+
+        /**
+         * @return one entry for each service in the configured load input of
+         *         each report, in report order
+         */
+        public List<Service> getServices() {
+            return services;
+        }
+
+        /**
+         * @return service -> compute load summed over all reports in report
+         *         order
+         */
+        public Map<ServiceIdentifier<?>, Double> getServiceLoads() {
+            return serviceLoads;
+        }
+
+        /**
+         * @return service -> number of reports with load for the service
+         */
+        public Map<ServiceIdentifier<?>, Integer> getServiceContainers() {
+            return serviceContainers;
+        }
+
+        /**
+         * @return container -> node that it is running on, read-only
+         */
+        public Map<NodeIdentifier, NodeIdentifier> getContainerToNodeMap() {
+            return containerToNodeMap;
+        }
+
+        /**
+         * @return container -> status, read-only
+         */
+        public Map<NodeIdentifier, ServiceStatus> getContainerServiceStatus() {
+            return containerServiceStatus;
+        }
+
+        /**
+         * @return service -> running container -> attribute -> load, read-only
+         */
+        public Map<ServiceIdentifier<?>, Map<NodeIdentifier, Map<NodeAttribute, Double>>> getTotalContainerLoadByService() {
+            return totalContainerLoadByService;
+        }
+
+        /**
+         * @return service -> running containers sorted by
+         *         {@link RlgUtils#sortContainersByAscendingLoad(Map, NodeAttribute)}
+         *         on {@link MapUtils#COMPUTE_ATTRIBUTE}, the lists may be
+         *         modified by the caller
+         */
+        public Map<ServiceIdentifier<?>, List<NodeIdentifier>> getContainersByAscendingLoad() {
+            return containersByAscendingLoad;
+        }
+
+        /**
+         * @return the services whose decision inputs changed since the
+         *         previous round, read-only. Null when the inputs were computed
+         *         from scratch, then all services are considered changed.
+         */
+        public Set<ServiceIdentifier<?>> getChangedServices() {
+            return changedServices;
+        }
+
+        /**
+         * @param service
+         *            the service to check
+         * @return true if the decisions for the service from the previous
+         *         round can be reused
+         */
+        public boolean isUnchanged(final ServiceIdentifier<?> service) {
+            return null != changedServices && !changedServices.contains(service);
+        }
+    }
+
+}
@@ -0,0 +1,200 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.rlg;
+
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+
+import javax.annotation.Nonnull;
+
+import com.bbn.map.rlg.RlgUtils.LoadPercentages;
+import com.bbn.map.utils.MapUtils;
+import com.bbn.protelis.networkresourcemanagement.NodeAttribute;
+import com.bbn.protelis.networkresourcemanagement.NodeIdentifier;
+import com.bbn.protelis.networkresourcemanagement.ResourceReport;
+import com.bbn.protelis.networkresourcemanagement.ServiceIdentifier;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Score NCPs for a new container based on the load of the NCP and the network
+ * path from where the demand for the service enters the region to the NCP.
+ * Lower scores are better. The score is
+ * 
+ * <pre>
+ * load + HOP_WEIGHT * hops + LINK_WEIGHT * bottleneck
+ * </pre>
+ * 
+ * where load is the allocated {@link NodeAttribute#TASK_CONTAINERS} load
+ * percentage of the NCP, hops is the hop count divided by the number of nodes
+ * in the region and bottleneck is the utilization of the most utilized link on
+ * the path. Both path terms are averaged over the nodes that the demand comes
+ * from, weighted by the {@link MapUtils#COMPUTE_ATTRIBUTE} demand from each
+ * node.
+ * 
+ * Used when {@link com.bbn.map.AgentConfiguration#getRlgStubChooseNcp()} is
+ * {@link com.bbn.map.AgentConfiguration.RlgStubChooseNcp#LOWEST_PATH_COST}.
+ */
+/* package */ final class PathCostPlacementScorer {
+
+    /**
+     * Weight of the normalized hop count. Less than 1 so that a lightly loaded
+     * NCP a few hops away is preferred over a saturated NCP next to the
+     * clients.
+     */
+    /* package */ static final double HOP_WEIGHT = 0.5;
+
+    /**
+     * Weight of the bottleneck link utilization. A saturated link costs as much
+     * as a saturated NCP.
+     */
+    /* package */ static final double LINK_WEIGHT = 1;
+
+    /**
+     * Cost used for each path term when there is no path from the demand to
+     * the NCP.
+     */
+    private static final double UNREACHABLE_COST = 1;
+
+    private final RegionalPathTable pathTable = new RegionalPathTable();
+
+    /**
+     * Service -> node the demand comes from -> demand.
+     */
+    private final Map<ServiceIdentifier<?>, Map<NodeIdentifier, Double>> serviceDemand = new HashMap<>();
+
+    /**
+     * Update the path table and the demand for each service.
+     * 
+     * @param reports
+     *            the most recent report for each node in the region
+     */
+    /* package */ void update(@Nonnull final Collection<ResourceReport> reports) {
+        pathTable.update(reports);
+
+        serviceDemand.clear();
+        for (final ResourceReport report : reports) {
+            report.getComputeDemand().forEach((service, sourceDemand) -> {
+                final Map<NodeIdentifier, Double> demand = serviceDemand.computeIfAbsent(service,
+                        k -> new HashMap<>());
+                sourceDemand.forEach((source, attrs) -> {
+                    final double value = attrs.getOrDefault(MapUtils.COMPUTE_ATTRIBUTE, 0D);
+                    if (value > 0) {
+                        demand.merge(source, value, Double::sum);
+                    }
+                });
+            });
+        }
+    }
+
+    /**
+     * @return the path table used for scoring
+     */
+    /* package */ RegionalPathTable getPathTable() {
+        return pathTable;
+    }
+
+    /**
+     * Compute the path part of the score.
+     * 
+     * @param service
+     *            the service that will run in the container
+     * @param node
+     *            the NCP to score
+     * @return the weighted path cost, 0 if there is no demand for the service
+     */
+    /* package */ double computePathCost(@Nonnull final ServiceIdentifier<?> service,
+            @Nonnull final NodeIdentifier node) {
+        final Map<NodeIdentifier, Double> demand = serviceDemand.getOrDefault(service, Collections.emptyMap());
+        final double hopNormalization = Math.max(1, pathTable.getNumNodes());
+
+        double totalDemand = 0;
+        double cost = 0;
+        for (final Map.Entry<NodeIdentifier, Double> entry : demand.entrySet()) {
+            final NodeIdentifier source = entry.getKey();
+            final double weight = entry.getValue();
+
+            final int hops = pathTable.getHopCount(source, node);
+            final double sourceCost;
+            if (hops < 0) {
+                sourceCost = (HOP_WEIGHT + LINK_WEIGHT) * UNREACHABLE_COST;
+            } else {
+                sourceCost = HOP_WEIGHT * hops / hopNormalization
+                        + LINK_WEIGHT * pathTable.getBottleneckUtilization(source, node);
+            }
+
+            cost += weight * sourceCost;
+            totalDemand += weight;
+        }
+
+        return totalDemand > 0 ? cost / totalDemand : 0;
+    }
+
+    /**
+     * Choose the NCP with the lowest score. Ties are broken by the most
+     * available containers and then by the order of the map.
+     * 
+     * @param service
+     *            the service that will run in the container
+     * @param nodesWithAvailableCapacity
+     *            the candidate NCPs and the number of containers available on
+     *            each
+     * @param loadPercentages
+     *            the current load of the NCPs
+     * @return the NCP to use, null if there are no candidates
+     */
+    /* package */ NodeIdentifier chooseNode(@Nonnull final ServiceIdentifier<?> service,
+            @Nonnull final SortedMap<NodeIdentifier, Integer> nodesWithAvailableCapacity,
+            @Nonnull final LoadPercentages loadPercentages) {
+        NodeIdentifier best = null;
+        double bestScore = Double.POSITIVE_INFINITY;
+        int bestAvailable = 0;
+        for (final Map.Entry<NodeIdentifier, Integer> entry : nodesWithAvailableCapacity.entrySet()) {
+            final NodeIdentifier node = entry.getKey();
+            final double load = loadPercentages.allocatedLoadPercentagePerNode
+                    .getOrDefault(node, ImmutableMap.of()).getOrDefault(NodeAttribute.TASK_CONTAINERS, 0D);
+            final double score = load + computePathCost(service, node);
+            final int available = entry.getValue();
+
+            if (null == best || score < bestScore || (score == bestScore && available > bestAvailable)) {
+                best = node;
+                bestScore = score;
+                bestAvailable = available;
+            }
+        }
+        return best;
+    }
+
+}
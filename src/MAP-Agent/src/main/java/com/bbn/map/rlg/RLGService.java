@@ -37,6 +37,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -45,9 +46,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Random;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -66,6 +69,9 @@ import com.bbn.map.appmgr.util.AppMgrUtils;
 import com.bbn.map.common.ApplicationManagerApi;
 import com.bbn.map.common.value.ApplicationCoordinates;
 import com.bbn.map.common.value.ApplicationSpecification;
+import com.bbn.map.metrics.MetricHistogram;
+import com.bbn.map.metrics.MetricsRegistry;
+import com.bbn.map.rlg.IncrementalRlgPlanner.PlanInputs;
 import com.bbn.map.rlg.RlgUtils.LoadPercentages;
 import com.bbn.map.utils.MapUtils;
 import com.bbn.protelis.networkresourcemanagement.ContainerResourceReport;
@@ -92,6 +98,8 @@ public class RLGService extends AbstractPeriodicService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(RLGService.class);
 
+    private static final MetricHistogram ROUND_DURATION = MetricsRegistry.getInstance().histogram("rlg.round");
+
     /**
      * 10 second delay between stopping traffic and shutting down a container
      */
@@ -138,6 +146,12 @@ public class RLGService extends AbstractPeriodicService {
      */
     private Map<ServiceIdentifier<?>, Map<NodeIdentifier, LocalDateTime>> scheduledContainerShutdowns = new HashMap<>();
 
+    /**
+     * Where the current time comes from, null to use
+     * {@link #getTimeSource()}.
+     */
+    private final Supplier<LocalDateTime> timeSource;
+
     /**
      * Construct an RLG service.
      * 
@@ -156,27 +170,116 @@ public class RLGService extends AbstractPeriodicService {
             @Nonnull final RegionIdentifier region,
             @Nonnull final RlgInfoProvider rlgInfoProvider,
             @Nonnull final ApplicationManagerApi applicationManager) {
+        this(nodeName, region, rlgInfoProvider, applicationManager,
+                createServicePriorityManager(AgentConfiguration.getInstance().getRlgPriorityPolicy()));
+    }
+
+    /**
+     * Construct an RLG service with a specific service priority manager rather
+     * than the one specified by
+     * {@link AgentConfiguration#getRlgPriorityPolicy()}. Used by
+     * the RLG replay benchmark to compare the managers.
+     * 
+     * @param region
+     *            the region this service is for
+     * @param applicationManager
+     *            source of information about applications, including
+     *            specifications and profiles
+     * @param nodeName
+     *            the name of the node that this service is running on (for
+     *            logging)
+     * @param rlgInfoProvider
+     *            how to access information
+     * @param servicePriorityManager
+     *            decides the order that services are allocated and
+     *            deallocated in
+     */
+    /* package */ RLGService(@Nonnull final String nodeName,
+            @Nonnull final RegionIdentifier region,
+            @Nonnull final RlgInfoProvider rlgInfoProvider,
+            @Nonnull final ApplicationManagerApi applicationManager,
+            @Nonnull final ServicePriorityManager servicePriorityManager) {
+        this(nodeName, region, rlgInfoProvider, applicationManager, servicePriorityManager, null);
+    }
+
+    /**
+     * Construct an RLG service with a specific service priority manager and
+     * source of the current time. Used by the RLG replay benchmark to run
+     * RLG at the times that the inputs were recorded rather than the wall
+     * clock time of the replay.
+     * 
+     * @param region
+     *            the region this service is for
+     * @param applicationManager
+     *            source of information about applications, including
+     *            specifications and profiles
+     * @param nodeName
+     *            the name of the node that this service is running on (for
+     *            logging)
+     * @param rlgInfoProvider
+     *            how to access information
+     * @param servicePriorityManager
+     *            decides the order that services are allocated and
+     *            deallocated in
+     * @param timeSource
+     *            the current time, used to schedule container shutdowns, null
+     *            to use {@link #getTimeSource()}
+     */
+    /* package */ RLGService(@Nonnull final String nodeName,
+            @Nonnull final RegionIdentifier region,
+            @Nonnull final RlgInfoProvider rlgInfoProvider,
+            @Nonnull final ApplicationManagerApi applicationManager,
+            @Nonnull final ServicePriorityManager servicePriorityManager,
+            final Supplier<LocalDateTime> timeSource) {
         super("RLG-" + nodeName, AgentConfiguration.getInstance().getRlgRoundDuration());
+        this.timeSource = timeSource;
         this.region = region;
         this.applicationManager = applicationManager;
         this.rlgInfoProvider = rlgInfoProvider;
         this.rlgBins = new BinPacking();
         this.prevLoads = new HashMap<>();
         this.prevContainers = new HashMap<>();
+        this.incrementalPlanner = AgentConfiguration.getInstance().getRlgIncrementalPlanning()
+                ? new IncrementalRlgPlanner()
+                : null;
+        this.demandTrendPredictor = AgentConfiguration.getInstance().getRlgPredictiveAllocation()
+                ? new DemandTrendPredictor(AgentConfiguration.getInstance().getRlgPredictiveAllocationWindow())
+                : null;
+        this.pathCostScorer = AgentConfiguration.RlgStubChooseNcp.LOWEST_PATH_COST == AgentConfiguration
+                .getInstance().getRlgStubChooseNcp() ? new PathCostPlacementScorer() : null;
+        this.hashRing = AgentConfiguration.RlgStubChooseNcp.CONSISTENT_HASH == AgentConfiguration.getInstance()
+                .getRlgStubChooseNcp()
+                ? new HashRing(AgentConfiguration.getInstance().getRlgHashRingVirtualNodes(), Collections.emptyList())
+                : null;
+        this.servicePriorityManager = servicePriorityManager;
 
         LOGGER.info("Using RLG load input setting: {}", AgentConfiguration.getInstance().getRlgAlgorithmLoadInput());
+    }
+
+    private LocalDateTime getCurrentTime() {
+        if (null == timeSource) {
+            return getTimeSource().now();
+        } else {
+            return timeSource.get();
+        }
+    }
+
+    /**
+     * Used when choosing a random node, per region so that the choices don't
+     * depend on how many random numbers the other regions have used.
+     */
+    private Random getRandom() {
+        return getRandomSource().getRandom(StubFunctions.class.getName() + "." + region.getName());
+    }
 
-        final RlgPriorityPolicy rlgPriorityPolicy = AgentConfiguration.getInstance().getRlgPriorityPolicy();
+    private static ServicePriorityManager createServicePriorityManager(final RlgPriorityPolicy rlgPriorityPolicy) {
         switch (rlgPriorityPolicy) {
         case FIXED_TARGET:
-            servicePriorityManager = new FixedTargetServicePriorityManager(MapUtils.COMPUTE_ATTRIBUTE);
-            break;
+            return new FixedTargetServicePriorityManager(MapUtils.COMPUTE_ATTRIBUTE);
         case GREEDY_GROUP:
-            servicePriorityManager = new GreedyGroupServicePriorityManager(MapUtils.COMPUTE_ATTRIBUTE);
-            break;
+            return new GreedyGroupServicePriorityManager(MapUtils.COMPUTE_ATTRIBUTE);
         case NO_PRIORITY:
-            servicePriorityManager = new NullServicePriorityManager();
-            break;
+            return new NullServicePriorityManager();
         default:
             throw new IllegalArgumentException("Unknown RLG priority policy: " + rlgPriorityPolicy);
         }
@@ -197,9 +300,85 @@ public class RLGService extends AbstractPeriodicService {
     private Map<ServiceIdentifier<?>, Double> prevLoads;
     private Map<ServiceIdentifier<?>, Integer> prevContainers;
 
+    /**
+     * Null if the inputs are computed from scratch each round.
+     */
+    private final IncrementalRlgPlanner incrementalPlanner;
+
+    /**
+     * Containers to add for each service from the last round of
+     * {@link #realComputePlan()}, only for services whose load and container
+     * count were the same as in the round before it. These are reused for
+     * services that {@link PlanInputs#isUnchanged(ServiceIdentifier)}.
+     */
+    private Map<ServiceIdentifier<?>, Integer> steadyContainersToAdd = Collections.emptyMap();
+
+    /**
+     * The load categories for each service from the last round of
+     * {@link #realComputePlan()}.
+     */
+    private Map<ServiceIdentifier<?>, Set<LoadCategory>> prevLoadCategories = Collections.emptyMap();
+
+    /**
+     * Services that were underloaded in the last round of
+     * {@link #realComputePlan()}, but had no containers that could be
+     * scheduled for shutdown.
+     */
+    private Set<ServiceIdentifier<?>> prevNoShutdownCandidates = Collections.emptySet();
+
+    private int lastReusedDecisions = 0;
+
+    /**
+     * @return the number of per-service decisions that were reused from the
+     *         previous round in the last round of {@link #realComputePlan()}
+     */
+    /* package */ int getLastReusedDecisions() {
+        return lastReusedDecisions;
+    }
+
+    /**
+     * How the load of a service compares to the RLG thresholds.
+     */
+    private enum LoadCategory {
+        /**
+         * At or above {@link AgentConfiguration#getRlgLoadThreshold()} and
+         * replicable.
+         */
+        OVERLOADED,
+        /**
+         * At or above
+         * {@link AgentConfiguration#getRlgUnderloadEndedThreshold()}.
+         */
+        UNDERLOAD_ENDED,
+        /**
+         * Below {@link AgentConfiguration#getRlgUnderloadThreshold()}.
+         */
+        UNDERLOADED
+    }
+
+    /**
+     * Null unless {@link AgentConfiguration#getRlgPredictiveAllocation()} is
+     * true.
+     */
+    private final DemandTrendPredictor demandTrendPredictor;
+
+    /**
+     * Null unless {@link AgentConfiguration#getRlgStubChooseNcp()} is
+     * {@link AgentConfiguration.RlgStubChooseNcp#LOWEST_PATH_COST}.
+     */
+    private final PathCostPlacementScorer pathCostScorer;
+
+    /**
+     * The NCPs that reported in the last round.
+     * Null unless {@link AgentConfiguration#getRlgStubChooseNcp()} is
+     * {@link AgentConfiguration.RlgStubChooseNcp#CONSISTENT_HASH}.
+     */
+    private final HashRing hashRing;
+
     @SuppressFBWarnings(value = "RCN_REDUNDANT_NULLCHECK_OF_NONNULL_VALUE", justification = "Cannot guarantee that RLG will compute a non-null plan. Appears to be a bug in FindBugs")
     @Override
     protected void execute() {
+        final long start = ROUND_DURATION.start();
         try {
             final LoadBalancerPlan newPlan = computePlan();
             if (null == newPlan) {
@@ -211,10 +390,19 @@ public class RLGService extends AbstractPeriodicService {
             }
         } catch (final Throwable t) {
             LOGGER.error("Got error computing RLG plan. Skipping this round and will try again next round", t);
+        } finally {
+            ROUND_DURATION.stop(start);
         }
     }
 
-    private LoadBalancerPlan computePlan() {
+    /**
+     * Compute a plan using the current information from the
+     * {@link RlgInfoProvider} without publishing it. Used directly by
+     * the RLG replay benchmark to time the planning.
+     * 
+     * @return the new plan, may be null
+     */
+    /* package */ LoadBalancerPlan computePlan() {
         final AgentConfiguration.RlgAlgorithm rlgAlgorithm = AgentConfiguration.getInstance().getRlgAlgorithm();
         LOGGER.info("Using {} RLG algorithm", rlgAlgorithm);
 
@@ -279,6 +467,34 @@ public class RLGService extends AbstractPeriodicService {
         return reports;
     }
 
+    private void updateHashRing(final Collection<ResourceReport> reports) {
+        if (null != hashRing) {
+            updateHashRing(hashRing, reports);
+        }
+    }
+
+    /**
+     * Make the NCPs on the ring match the NCPs that reported this round. NCPs
+     * without a report have failed or left the region and are removed so
+     * that they are no longer chosen, new NCPs are added.
+     * 
+     * @param ring
+     *            the ring to update
+     * @param reports
+     *            the most recent report for each NCP in the region
+     */
+    /* package */ static void updateHashRing(@Nonnull final HashRing ring,
+            @Nonnull final Collection<ResourceReport> reports) {
+        final Set<NodeIdentifier> reporting = reports.stream().map(ResourceReport::getNodeName)
+                .collect(Collectors.toSet());
+        if (ring.retainAll(reporting)) {
+            LOGGER.debug("Removed NCPs without a report from the hash ring, now {}", ring);
+        }
+        ring.addAll(reports.stream().filter(report -> !ring.contains(report.getNodeName()))
+                .map(report -> new Server(report.getNodeName(), report.getMaximumServiceContainers()))
+                .collect(Collectors.toList()));
+    }
+
     /**
      * Compute a new plan.
      * 
@@ -287,7 +503,7 @@ public class RLGService extends AbstractPeriodicService {
     private LoadBalancerPlan stubComputePlan() {
         LOGGER.debug("---- stubComputePlan ----");
 
-        final LocalDateTime currentTime = LocalDateTime.now();
+        final LocalDateTime currentTime = getCurrentTime();
 
         // Acquire information from the RlgInfoProvider
         final ImmutableSet<ResourceReport> resourceReports = rlgInfoProvider.getRlgResourceReports();
@@ -299,6 +515,10 @@ public class RLGService extends AbstractPeriodicService {
         LOGGER.trace("ApplicationManager: {}", applicationManager);
 
         final Map<NodeIdentifier, ResourceReport> reports = filterResourceReports(resourceReports);
+        if (null != pathCostScorer) {
+            pathCostScorer.update(reports.values());
+        }
+        updateHashRing(reports.values());
 
         final Map<NodeIdentifier, NodeIdentifier> containerToNodeMap = createContainerToNodeMap(resourceReports);
         final Map<NodeIdentifier, ServiceStatus> containerServiceStatus = resourceReports.stream()
@@ -314,9 +534,12 @@ public class RLGService extends AbstractPeriodicService {
                 reports, newServicePlan);
         LOGGER.trace("Nodes with available capacity: {}", nodesWithAvailableCapacity);
 
-        final RlgUtils.LoadPercentages loadPercentages = RlgUtils.computeServiceLoadPercentages(reports);
+        final RegionLoadTable loadTable = new RegionLoadTable(reports);
+
+        final RlgUtils.LoadPercentages loadPercentages = loadTable.computeLoadPercentages();
 
-        final Map<ServiceIdentifier<?>, Integer> containersPerService = computeContainersPerService(reports);
+        final Map<ServiceIdentifier<?>, Integer> containersPerService = loadTable.getContainersPerService();
+        LOGGER.debug("containers per service: {}", containersPerService);
 
         // initialize the servicePriorityManager for this iteration according to
         // the DCOP plan services and serviceReports
@@ -387,7 +610,7 @@ public class RLGService extends AbstractPeriodicService {
         LOGGER.debug("RLG plan before handling overloads: {}", newServicePlan);
 
         StubFunctions.allocateContainersForOverloadedServices(servicePriorityManager, resourceReports, newServicePlan,
-                nodesWithAvailableCapacity, overloadedServices, loadPercentages);
+                nodesWithAvailableCapacity, overloadedServices, loadPercentages, pathCostScorer, hashRing, getRandom());
 
         // Beginning of container down scaling part of RLG stub
         LOGGER.debug("---- start container shutdown iteration ----");
@@ -398,14 +621,10 @@ public class RLGService extends AbstractPeriodicService {
         final Set<ServiceIdentifier<?>> downscaleableServices = getDownscaleableServices(containersPerService);
         LOGGER.debug("Found downscaleable services: {} ", downscaleableServices);
 
-        Map<ServiceIdentifier<?>, Map<NodeIdentifier, Map<NodeAttribute, Double>>> totalContainerLoadByService = getTotalContainerLoadByService(
-                resourceReports, MapUtils.COMPUTE_ATTRIBUTE);
+        final Map<ServiceIdentifier<?>, List<NodeIdentifier>> smallestLoadServiceContainers = loadTable
+                .getContainersByAscendingLoad(MapUtils.COMPUTE_ATTRIBUTE);
 
-        final Map<ServiceIdentifier<?>, List<NodeIdentifier>> smallestLoadServiceContainers = sortServiceContainersByAscendingLoadLoad(
-                totalContainerLoadByService, MapUtils.COMPUTE_ATTRIBUTE);
-
-        LOGGER.trace("totalContainerLoadByService: {}, smallestLoadServiceContainers: {}", totalContainerLoadByService,
-                smallestLoadServiceContainers);
+        LOGGER.trace("smallestLoadServiceContainers: {}", smallestLoadServiceContainers);
 
         // cancel any shutdowns for services that are underload ended
         underloadedEndedServices.forEach((serviceId) -> {
@@ -468,14 +687,9 @@ public class RLGService extends AbstractPeriodicService {
                 .collect(Collectors.toList());
 
         for (ServiceIdentifier<?> serviceId : deallocationServices) {
-            double totalServiceLoad = 0.0;
+            final double totalServiceLoad = loadTable.getRunningServiceLoad(serviceId, MapUtils.COMPUTE_ATTRIBUTE);
             Map<NodeIdentifier, Double> containerCapacities = new HashMap<>();
 
-            for (Map<NodeAttribute, Double> load : totalContainerLoadByService
-                    .getOrDefault(serviceId, Collections.emptyMap()).values()) {
-                totalServiceLoad += load.getOrDefault(MapUtils.COMPUTE_ATTRIBUTE, 0.0);
-            }
-
             reports.forEach((node, report) -> {
                 report.getContainerReports().forEach((container, creport) -> {
                     containerCapacities.put(container, creport.getComputeCapacity().get(MapUtils.COMPUTE_ATTRIBUTE));
@@ -853,7 +1067,7 @@ public class RLGService extends AbstractPeriodicService {
             final Map<NodeIdentifier, ResourceReport> reports) {
         // allocate a node
         final NodeIdentifier newNode = StubFunctions.chooseNode(service, newServicePlan, nodesWithAvailableCapacity,
-                loadPercentages);
+                loadPercentages, pathCostScorer, hashRing, getRandom());
 
         if (null == newNode) {
             LOGGER.error("There is no capacity to allocate a container for the service {}", service);
@@ -1049,20 +1263,6 @@ public class RLGService extends AbstractPeriodicService {
         return downscaleableServices;
     }
 
-    private static Map<ServiceIdentifier<?>, Integer> computeContainersPerService(
-            final Map<NodeIdentifier, ResourceReport> reports) {
-        final Map<ServiceIdentifier<?>, Integer> serviceInstances = new HashMap<>();
-
-        reports.forEach((node, report) -> {
-            report.getContainerReports().forEach((containerId, containerReport) -> {
-                serviceInstances.merge(containerReport.getService(), 1, Integer::sum);
-            });
-        });
-        LOGGER.debug("containers per service: {}", serviceInstances);
-
-        return serviceInstances;
-    }
-
     private Map<NodeIdentifier, NodeIdentifier> createContainerToNodeMap(ImmutableSet<ResourceReport> resourceReports) {
         Map<NodeIdentifier, NodeIdentifier> containerToNodeMap = new HashMap<>();
 
@@ -1079,75 +1279,6 @@ public class RLGService extends AbstractPeriodicService {
         return containerToNodeMap;
     }
 
-    private Map<ServiceIdentifier<?>, Map<NodeIdentifier, Map<NodeAttribute, Double>>> getTotalContainerLoadByService(
-            final ImmutableSet<ResourceReport> resourceReports,
-            final NodeAttribute loadAttribute) {
-        // determine the total amount of load on each container
-        final Map<ServiceIdentifier<?>, Map<NodeIdentifier, Map<NodeAttribute, Double>>> totalContainerLoadByService = new HashMap<>();
-
-        for (final ResourceReport resourceReport : resourceReports) {
-
-            resourceReport.getContainerReports().forEach((containerId, containerReport) -> {
-                final ServiceIdentifier<?> serviceId = containerReport.getService();
-
-                if (serviceId != null) {
-                    if (ServiceStatus.RUNNING.equals(containerReport.getServiceStatus())) {
-                        final Map<NodeIdentifier, Map<NodeAttribute, Double>> totalLoadByContainer = totalContainerLoadByService
-                                .computeIfAbsent(containerReport.getService(), (service) -> new HashMap<>());
-
-                        final Map<NodeAttribute, Double> totalLoad = totalLoadByContainer.computeIfAbsent(containerId,
-                                (container) -> new HashMap<>());
-
-                        RlgUtils.getConfiguredLoadInput(containerReport).forEach((clientNodeId, loadFromNode) -> {
-                            loadFromNode.forEach((attr, value) -> {
-                                totalLoad.merge(attr, value, Double::sum);
-                            });
-                        });
-                    } else {
-                        LOGGER.debug(
-                                "findServiceContainerWithSmallestLoad: Container '{}' was not considered for smallest load because it has service state '{}'.",
-                                containerId, containerReport.getServiceStatus());
-                    }
-                } else {
-                    LOGGER.debug("findServiceContainerWithSmallestLoad: Container '{}' has report with null service.",
-                            containerId);
-                }
-
-            });
-        }
-
-        LOGGER.debug("totalContainerLoadByService: {}", totalContainerLoadByService);
-
-        return totalContainerLoadByService;
-    }
-
-    private Map<ServiceIdentifier<?>, List<NodeIdentifier>> sortServiceContainersByAscendingLoadLoad(
-            Map<ServiceIdentifier<?>, Map<NodeIdentifier, Map<NodeAttribute, Double>>> totalContainerLoadByService,
-            NodeAttribute loadAttribute) {
-
-        final Map<ServiceIdentifier<?>, List<NodeIdentifier>> ascendingLoadContainersByService = new HashMap<>();
-
-        // create a list of containers ascending by load for each service
-        totalContainerLoadByService.forEach((service, totalContainerLoads) -> {
-            List<NodeIdentifier> ascendingLoadContainers = new LinkedList<>(totalContainerLoads.keySet());
-
-            // sort containers in ascending order by load for loadAttribute
-            Collections.sort(ascendingLoadContainers, new Comparator<NodeIdentifier>() {
-                @Override
-                public int compare(NodeIdentifier a, NodeIdentifier b) {
-                    return (int) Math.signum(totalContainerLoads.get(a).getOrDefault(loadAttribute, 0.0)
-                            - totalContainerLoads.get(b).getOrDefault(loadAttribute, 0.0));
-                }
-            });
-
-            ascendingLoadContainersByService.put(service, ascendingLoadContainers);
-        });
-
-        LOGGER.debug("ascendingLoadContainers: {}", ascendingLoadContainersByService);
-
-        return ascendingLoadContainersByService;
-    }
-
     /**
      * Take the DCOP plan and filter out overflow to regions that don't already
      * have the specified service running. Also filter out this region.
@@ -1320,13 +1451,150 @@ public class RLGService extends AbstractPeriodicService {
         return availableNodeCapacity;
     }
 
+    /**
+     * Compute the inputs for {@link #realComputePlan()}, incrementally if
+     * {@link AgentConfiguration#getRlgIncrementalPlanning()} is true.
+     */
+    private PlanInputs computePlanInputs(final ImmutableSet<ResourceReport> resourceReports,
+            final RegionLoadTable loadTable,
+            final RlgUtils.LoadPercentages loadPercentages) {
+        if (null != incrementalPlanner) {
+            final PlanInputs inputs = incrementalPlanner.update(resourceReports, loadTable, loadPercentages);
+            if (null != inputs) {
+                return inputs;
+            } else {
+                LOGGER.debug("Unable to compute the RLG inputs incrementally, computing from scratch");
+            }
+        }
+        return computeFullPlanInputs(resourceReports, loadTable);
+    }
+
+    private PlanInputs computeFullPlanInputs(final ImmutableSet<ResourceReport> resourceReports,
+            final RegionLoadTable loadTable) {
+        final List<Service> serviceCollection = loadTable.getBinPackingServices();
+        final Map<ServiceIdentifier<?>, Double> serviceLoads = loadTable.getBinPackingServiceLoads();
+        final Map<ServiceIdentifier<?>, Integer> serviceContainers = loadTable.getBinPackingServiceCounts();
+        LOGGER.trace("Service loads: {}", serviceLoads);
+
+        final Map<NodeIdentifier, NodeIdentifier> containerToNodeMap = createContainerToNodeMap(resourceReports);
+        final Map<NodeIdentifier, ServiceStatus> containerServiceStatus = resourceReports.stream()
+                .map(ResourceReport::getContainerReports)//
+                .map(Map::entrySet).flatMap(Set::stream) //
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().getServiceStatus()));
+
+        final Map<ServiceIdentifier<?>, Map<NodeIdentifier, Map<NodeAttribute, Double>>> totalContainerLoadByService = loadTable
+                .getRunningContainerLoadByService();
+        LOGGER.debug("totalContainerLoadByService: {}", totalContainerLoadByService);
+
+        final Map<ServiceIdentifier<?>, List<NodeIdentifier>> smallestLoadServiceContainers = loadTable
+                .getContainersByAscendingLoad(MapUtils.COMPUTE_ATTRIBUTE);
+        LOGGER.debug("ascendingLoadContainers: {}", smallestLoadServiceContainers);
+
+        return new PlanInputs(serviceCollection, serviceLoads, serviceContainers, containerToNodeMap,
+                containerServiceStatus, totalContainerLoadByService, smallestLoadServiceContainers, null);
+    }
+
+    /**
+     * Start containers for services whose demand is forecast to cross
+     * {@link #PACKING_LOADPRED_UPPER_THRESHOLD} within
+     * {@link AgentConfiguration#getRlgPredictiveAllocationHorizon()}. Does
+     * nothing unless {@link AgentConfiguration#getRlgPredictiveAllocation()}
+     * is true.
+     * 
+     * @param reports
+     *            the most recent report for each node
+     * @param serviceContainers
+     *            service -> number of containers
+     * @param serviceContToAdd
+     *            service -> number of containers to add, modified to include
+     *            the containers needed for the forecast demand
+     * @return the services that containers are being started for ahead of
+     *         demand
+     */
+    private Set<ServiceIdentifier<?>> addPredictedContainers(final Collection<ResourceReport> reports,
+            final Map<ServiceIdentifier<?>, Integer> serviceContainers,
+            final Map<ServiceIdentifier<?>, Integer> serviceContToAdd) {
+        if (null == demandTrendPredictor) {
+            return Collections.emptySet();
+        }
+
+        demandTrendPredictor.update(reports);
+
+        final Duration horizon = AgentConfiguration.getInstance().getRlgPredictiveAllocationHorizon();
+        final Set<ServiceIdentifier<?>> prewarmServices = new HashSet<>();
+        serviceContainers.forEach((service, containers) -> {
+            final Duration crossing = demandTrendPredictor.timeUntilDemandReaches(service,
+                    containers * PACKING_LOADPRED_UPPER_THRESHOLD);
+            if (null != crossing && crossing.compareTo(horizon) <= 0) {
+                final double forecast = demandTrendPredictor.forecast(service, horizon);
+                final int required = (int) Math.ceil(forecast / PACKING_LOADPRED_UPPER_THRESHOLD);
+                final int delta = required - containers;
+                if (delta > 0) {
+                    LOGGER.debug(
+                            "Service {} demand {} is forecast to reach the threshold for {} containers in {}, forecast demand in {} is {}, starting {} containers",
+                            service, demandTrendPredictor.getDemand(service), containers, crossing, horizon,
+                            forecast, delta);
+                    serviceContToAdd.merge(service, delta, Integer::max);
+                    prewarmServices.add(service);
+                }
+            }
+        });
+        return prewarmServices;
+    }
+
+    private Set<LoadCategory> categorizeLoad(final ServiceIdentifier<?> service,
+            final Map<NodeAttribute, Double> loadPercentage) {
+        final double serviceOverloadThreshold = AgentConfiguration.getInstance().getRlgLoadThreshold();
+        final double serviceUnderloadEndedThreshold = AgentConfiguration.getInstance().getRlgUnderloadEndedThreshold();
+        final double serviceUnderloadThreshold = AgentConfiguration.getInstance().getRlgUnderloadThreshold();
+
+        final Set<LoadCategory> categories = EnumSet.noneOf(LoadCategory.class);
+        final double containerLoad = loadPercentage.getOrDefault(MapUtils.COMPUTE_ATTRIBUTE, 0D);
+
+        if (containerLoad >= serviceOverloadThreshold) {
+            final ApplicationSpecification spec = AppMgrUtils.getApplicationSpecification(applicationManager,
+                    service);
+
+            if (spec.isReplicable()) {
+                categories.add(LoadCategory.OVERLOADED);
+            } else {
+                LOGGER.debug("Overloaded service {} is not replicable", service);
+            }
+        }
+
+        if (containerLoad >= serviceUnderloadEndedThreshold) {
+            LOGGER.trace("Service {} is underload ended and has load {} which is greater than or equal to {}",
+                    service, containerLoad, serviceUnderloadEndedThreshold);
+            categories.add(LoadCategory.UNDERLOAD_ENDED);
+        } else if (containerLoad < serviceUnderloadThreshold) {
+            LOGGER.trace("Service {} is underloaded and has load {} which less than {}", service, containerLoad,
+                    serviceUnderloadThreshold);
+            categories.add(LoadCategory.UNDERLOADED);
+        }
+        return categories;
+    }
+
+    /**
+     * Add a container for the service to {@link #rlgBins}. Uses the lowest
+     * path cost fit when {@link #pathCostScorer} is set, the first fit on
+     * {@link #hashRing} when it is set, otherwise best fit.
+     */
+    private void addToBins(final ServiceIdentifier<?> service, final double load) {
+        if (null != pathCostScorer) {
+            rlgBins.addLowestCostFit(service, load, node -> pathCostScorer.computePathCost(service, node));
+        } else if (null != hashRing) {
+            rlgBins.addConsistentHashFit(service, load, hashRing);
+        } else {
+            rlgBins.addBestFit(service, load);
+        }
+    }
+
     private LoadBalancerPlan realComputePlan() {
         final RegionPlan dcopPlan = rlgInfoProvider.getDcopPlan();
         final ImmutableSet<ResourceReport> resourceReports = rlgInfoProvider.getRlgResourceReports();
         final LoadBalancerPlan prevPlan = rlgInfoProvider.getRlgPlan();
 
-        // LOGGER.trace("Resource reports: {}", resourceReports);
-        LOGGER.info("Resource reports: {}", resourceReports);
+        LOGGER.trace("Resource reports: {}", resourceReports);
         LOGGER.trace("DCOP plan: {}", dcopPlan);
         LOGGER.trace("ApplicationManager: {}", applicationManager);
 
@@ -1348,10 +1616,17 @@ public class RLGService extends AbstractPeriodicService {
         });
 
         LOGGER.trace("Filtered reports: {}", reports);
+        if (null != pathCostScorer) {
+            pathCostScorer.update(reports.values());
+        }
+        updateHashRing(reports.values());
+
+        final RegionLoadTable loadTable = new RegionLoadTable(reports);
 
-        final Map<ServiceIdentifier<?>, Integer> containersPerService = computeContainersPerService(reports);
+        final Map<ServiceIdentifier<?>, Integer> containersPerService = loadTable.getContainersPerService();
+        LOGGER.debug("containers per service: {}", containersPerService);
 
-        final RlgUtils.LoadPercentages loadPercentages = RlgUtils.computeServiceLoadPercentages(reports);
+        final RlgUtils.LoadPercentages loadPercentages = loadTable.computeLoadPercentages();
 
         final SortedMap<NodeIdentifier, Integer> nodesWithAvailableCapacity = findNodesWithAvailableContainerCapacity(
                 reports, newServicePlan);
@@ -1371,77 +1646,19 @@ public class RLGService extends AbstractPeriodicService {
         LOGGER.trace("Service plan after creating instances for DCOP: {}", newServicePlan);
 
         // packing code here
-        LOGGER.info("RLG load balance test");
-        // MessageDigest md = null;
-        // try {
-        // md = MessageDigest.getInstance("MD5");
-        // } catch (Exception e) {
-        // e.printStackTrace();
-        // }
+        final PlanInputs inputs = computePlanInputs(resourceReports, loadTable, loadPercentages);
+        int reusedDecisions = 0;
 
         final ArrayList<Server> serverCollection = new ArrayList<Server>();
-        final ArrayList<Service> serviceCollection = new ArrayList<Service>();
-
-        final Map<ServiceIdentifier<?>, Double> serviceLoads = new HashMap<>();
-        final Map<ServiceIdentifier<?>, Integer> serviceContainers = new HashMap<>();
-        final Map<ServiceIdentifier<?>, Integer> serviceContToAdd = new HashMap<>();
-
-        // final ArrayList<Service> overloadedServices = new
-        // ArrayList<Service>();
-
         resourceReports.forEach(report -> {
-            final NodeIdentifier serverName = report.getNodeName();
-            final int serverCapacity = report.getMaximumServiceContainers();
-
-            Server server = new Server(serverName, serverCapacity);
-            serverCollection.add(server);
-
-            // this is to get list of all services
-            LOGGER.trace("Compute demand for {} is {}", report.getNodeName(), report.getComputeDemand());
-            for (Map.Entry<ServiceIdentifier<?>, ImmutableMap<NodeIdentifier, ImmutableMap<NodeAttribute, Double>>> entry : RlgUtils
-                    .getConfiguredLoadInput(report).entrySet()) {
-                LOGGER.info("Service name actual: " + Objects.toString(entry.getKey()));
-                ServiceIdentifier<?> serviceName = entry.getKey();
-
-                Double serviceLoad = 0.0;
-
-                LOGGER.info("entry value: " + Objects.toString(entry.getValue()));
-                for (Map.Entry<NodeIdentifier, ImmutableMap<NodeAttribute, Double>> entry2 : entry.getValue()
-                        .entrySet()) {
-                    serviceLoad += entry2.getValue().getOrDefault(MapUtils.COMPUTE_ATTRIBUTE, 0D);
-                    // for (Map.Entry<NodeAttribute, Double> entry3 :
-                    // entry2.getValue().entrySet()) {
-                    // serviceLoad = entry3.getValue();
-                    // }
-                }
-
-                LOGGER.info("Service load actual: " + serviceLoad);
-
-                Service dummyService = new Service(serviceName, serviceLoad, 1);
-                serviceCollection.add(dummyService);
-
-                if (!serviceLoads.containsKey(serviceName)) {
-                    serviceLoads.put(serviceName, serviceLoad);
-                    serviceContainers.put(serviceName, 1);
-                } else {
-                    double prevLoad = serviceLoads.get(serviceName);
-                    int prevContainers = serviceContainers.get(serviceName);
-                    serviceLoads.replace(serviceName, prevLoad + serviceLoad);
-                    serviceContainers.replace(serviceName, prevContainers + 1);
-                }
-
-                // final double overloadThreshold =
-                // AgentConfiguration.getInstance().getRlgLoadThreshold();
-                // if (serviceLoad > overloadThreshold) {
-                // Service dummyService2 = new Service(serviceName,
-                // serviceLoad*0.99, 1);
-                // overloadedServices.add(dummyService2);
-                // }
-
-                LOGGER.info("Server load: " + Objects.toString(report.getComputeLoad()));
-                LOGGER.info("Server demand: " + Objects.toString(report.getComputeDemand()));
-            }
+            serverCollection.add(new Server(report.getNodeName(), report.getMaximumServiceContainers()));
         });
+        final List<Service> serviceCollection = inputs.getServices();
+
+        final Map<ServiceIdentifier<?>, Double> serviceLoads = inputs.getServiceLoads();
+        final Map<ServiceIdentifier<?>, Integer> serviceContainers = inputs.getServiceContainers();
+        final Map<ServiceIdentifier<?>, Integer> serviceContToAdd = new HashMap<>();
+        final Map<ServiceIdentifier<?>, Integer> newSteadyContainersToAdd = new HashMap<>();
 
         for (Map.Entry<ServiceIdentifier<?>, Double> entry : serviceLoads.entrySet()) {
             final ServiceIdentifier<?> serviceName = entry.getKey();
@@ -1459,13 +1676,24 @@ public class RLGService extends AbstractPeriodicService {
                 prevAvg = prevLoad / prevCont;
             }
 
-            double predictedLoad = curLoad + 0.5 * (curLoad - prevLoad);
-            double predictedAvg = predictedLoad / (curContainers + prevCont);
+            final Integer steadyDelta = inputs.isUnchanged(serviceName) ? steadyContainersToAdd.get(serviceName)
+                    : null;
+            final int delta;
+            if (null != steadyDelta) {
+                delta = steadyDelta;
+                ++reusedDecisions;
+            } else {
+                double predictedLoad = curLoad + 0.5 * (curLoad - prevLoad);
+                double predictedAvg = predictedLoad / (curContainers + prevCont);
 
-            double predicted = avgLoad * curContainers + 0.5 * (avgLoad - prevAvg);
+                double predicted = avgLoad * curContainers + 0.5 * (avgLoad - prevAvg);
 
-            double required = predictedLoad / PACKING_LOADPRED_UPPER_THRESHOLD;
-            int delta = (int) Math.ceil(required - curContainers);
+                double required = predictedLoad / PACKING_LOADPRED_UPPER_THRESHOLD;
+                delta = (int) Math.ceil(required - curContainers);
+            }
+            if (prevLoads.containsKey(serviceName) && prevLoad == curLoad && prevCont == curContainers) {
+                newSteadyContainersToAdd.put(serviceName, delta);
+            }
 
             if (delta > 0) {
                 serviceContToAdd.put(serviceName, delta);
@@ -1492,6 +1720,11 @@ public class RLGService extends AbstractPeriodicService {
 
         prevLoads = serviceLoads;
         prevContainers = serviceContainers;
+        steadyContainersToAdd = newSteadyContainersToAdd;
+
+        // services that containers are being started for ahead of demand
+        final Set<ServiceIdentifier<?>> prewarmServices = addPredictedContainers(reports.values(), serviceContainers,
+                serviceContToAdd);
 
         LOGGER.debug("New heuristic debug, serviceLoads: {}", serviceLoads);
         LOGGER.debug("New heuristic debug, serviceContainers: {}", serviceContainers);
@@ -1525,8 +1758,8 @@ public class RLGService extends AbstractPeriodicService {
         for (Service service : serviceCollection) {
             // if service is not already present, then add it using best fit
             if (!oldServices.contains(service.getName())) {
-                LOGGER.info("RLG adding new service:" + service.toString());
-                rlgBins.addBestFit(service.getName(), service.getLoad());
+                LOGGER.debug("RLG adding new service: {}", service);
+                addToBins(service.getName(), service.getLoad());
                 // LOGGER.debug("RLG: New service added.");
             }
             // else {
@@ -1546,40 +1779,43 @@ public class RLGService extends AbstractPeriodicService {
         // STUB implementation for this currently
 
         // find services that are overloaded, underloaded, and underload ended
-        final double serviceOverloadThreshold = AgentConfiguration.getInstance().getRlgLoadThreshold();
-        final double serviceUnderloadEndedThreshold = AgentConfiguration.getInstance().getRlgUnderloadEndedThreshold();
         final double serviceUnderloadThreshold = AgentConfiguration.getInstance().getRlgUnderloadThreshold();
 
         final List<ServiceIdentifier<?>> overloadedServices = new LinkedList<>();
         final List<ServiceIdentifier<?>> underloadedServices = new LinkedList<>();
         final List<ServiceIdentifier<?>> underloadedEndedServices = new LinkedList<>();
+        final Map<ServiceIdentifier<?>, Set<LoadCategory>> loadCategories = new HashMap<>();
 
         for (final Map.Entry<ServiceIdentifier<?>, Map<NodeAttribute, Double>> entry : loadPercentages.allocatedLoadPercentagePerService
                 .entrySet()) {
             final ServiceIdentifier<?> service = entry.getKey();
-            final double containerLoad = entry.getValue().getOrDefault(MapUtils.COMPUTE_ATTRIBUTE, 0D);
-
-            if (containerLoad >= serviceOverloadThreshold) {
-                final ApplicationSpecification spec = AppMgrUtils.getApplicationSpecification(applicationManager,
-                        service);
 
-                if (spec.isReplicable()) {
-                    overloadedServices.add(service);
-                } else {
-                    LOGGER.debug("Overloaded service {} is not replicable", service);
-                }
+            Set<LoadCategory> categories = inputs.isUnchanged(service) ? prevLoadCategories.get(service) : null;
+            if (null != categories) {
+                ++reusedDecisions;
+            } else {
+                categories = categorizeLoad(service, entry.getValue());
             }
+            loadCategories.put(service, categories);
 
-            if (containerLoad >= serviceUnderloadEndedThreshold) {
-                LOGGER.trace("Service {} is underload ended and has load {} which is greater than or equal to {}",
-                        entry.getKey(), containerLoad, serviceUnderloadEndedThreshold);
-                underloadedEndedServices.add(entry.getKey());
-            } else if (containerLoad < serviceUnderloadThreshold) {
-                LOGGER.trace("Service {} is underloaded and has load {} which less than {}", entry.getKey(),
-                        containerLoad, serviceUnderloadThreshold);
-                underloadedServices.add(entry.getKey());
+            if (categories.contains(LoadCategory.OVERLOADED)) {
+                overloadedServices.add(service);
+            }
+            if (categories.contains(LoadCategory.UNDERLOAD_ENDED)) {
+                underloadedEndedServices.add(service);
+            } else if (categories.contains(LoadCategory.UNDERLOADED)) {
+                underloadedServices.add(service);
             }
         }
+        prevLoadCategories = loadCategories;
+
+        // don't shutdown containers that will be needed soon
+        underloadedServices.removeAll(prewarmServices);
+        prewarmServices.forEach(service -> {
+            if (!underloadedEndedServices.contains(service)) {
+                underloadedEndedServices.add(service);
+            }
+        });
 
         LOGGER.info("Services above threshold: {}", overloadedServices);
         // LOGGER.info("Plan before handling overloads: {}", newServicePlan);
@@ -1605,11 +1841,12 @@ public class RLGService extends AbstractPeriodicService {
 
         // -- Start heuristic 3 --
         final double remaining = rlgBins.remainingCapacity();
-        final int numOverloaded = overloadedServices.size();
+        final int numOverloaded = overloadedServices.size()
+                + (int) prewarmServices.stream().filter(s -> !overloadedServices.contains(s)).count();
         serviceContToAdd.forEach((serviceName, value) -> {
             int containersToStart = (int) Math.ceil(Math.min(remaining / numOverloaded, value));
             for (int i = 0; i < containersToStart; i++) {
-                rlgBins.addBestFit(serviceName, 1);
+                addToBins(serviceName, 1);
             }
         });
         // -- End heuristic 3
@@ -1622,23 +1859,20 @@ public class RLGService extends AbstractPeriodicService {
         LOGGER.debug(" *** newServicePlan: {}", newServicePlan);
 
         // initial computations
-        final LocalDateTime currentTime = LocalDateTime.now();
+        final LocalDateTime currentTime = getCurrentTime();
         final Set<ServiceIdentifier<?>> downscaleableServices = getDownscaleableServices(containersPerService);
 
         if (!downscaleableServices.isEmpty())
             LOGGER.debug("Found downscaleable services: {} ", downscaleableServices);
 
-        final Map<NodeIdentifier, NodeIdentifier> containerToNodeMap = createContainerToNodeMap(resourceReports);
-        final Map<NodeIdentifier, ServiceStatus> containerServiceStatus = resourceReports.stream()
-                .map(ResourceReport::getContainerReports)//
-                .map(Map::entrySet).flatMap(Set::stream) //
-                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().getServiceStatus()));
+        final Map<NodeIdentifier, NodeIdentifier> containerToNodeMap = inputs.getContainerToNodeMap();
+        final Map<NodeIdentifier, ServiceStatus> containerServiceStatus = inputs.getContainerServiceStatus();
 
-        Map<ServiceIdentifier<?>, Map<NodeIdentifier, Map<NodeAttribute, Double>>> totalContainerLoadByService = getTotalContainerLoadByService(
-                resourceReports, MapUtils.COMPUTE_ATTRIBUTE);
+        final Map<ServiceIdentifier<?>, Map<NodeIdentifier, Map<NodeAttribute, Double>>> totalContainerLoadByService = inputs
+                .getTotalContainerLoadByService();
 
-        final Map<ServiceIdentifier<?>, List<NodeIdentifier>> smallestLoadServiceContainers = sortServiceContainersByAscendingLoadLoad(
-                totalContainerLoadByService, MapUtils.COMPUTE_ATTRIBUTE);
+        final Map<ServiceIdentifier<?>, List<NodeIdentifier>> smallestLoadServiceContainers = inputs
+                .getContainersByAscendingLoad();
 
         // cancel any shutdowns for services that are underload ended
         underloadedEndedServices.forEach((serviceId) -> {
@@ -1672,18 +1906,29 @@ public class RLGService extends AbstractPeriodicService {
             }
         });
 
+        final Set<ServiceIdentifier<?>> noShutdownCandidates = new HashSet<>();
         for (ServiceIdentifier<?> serviceId : downscaleableServices) {
 
-            double totalServiceLoad = 0.0;
-
-            for (Map<NodeAttribute, Double> load : totalContainerLoadByService
-                    .getOrDefault(serviceId, Collections.emptyMap()).values()) {
-                totalServiceLoad += load.getOrDefault(MapUtils.COMPUTE_ATTRIBUTE, 0.0);
-            }
-
             // check if a container shutdown should be scheduled
             if (!scheduledContainerShutdowns.containsKey(serviceId)) {
-                if (underloadedServices.contains(serviceId)) {
+                if (underloadedServices.contains(serviceId) && inputs.isUnchanged(serviceId)
+                        && prevNoShutdownCandidates.contains(serviceId)) {
+                    // same inputs as the last round, which found nothing to
+                    // shut down
+                    ++reusedDecisions;
+                    noShutdownCandidates.add(serviceId);
+                } else if (underloadedServices.contains(serviceId)) {
+
+                    // sum in the sorted order so that the result does not
+                    // depend on the iteration order of the load map
+                    double totalServiceLoad = 0.0;
+                    final Map<NodeIdentifier, Map<NodeAttribute, Double>> serviceContainerLoads = //
+                            totalContainerLoadByService.getOrDefault(serviceId, Collections.emptyMap());
+                    for (final NodeIdentifier container : smallestLoadServiceContainers.getOrDefault(serviceId,
+                            Collections.emptyList())) {
+                        totalServiceLoad += serviceContainerLoads.get(container)
+                                .getOrDefault(MapUtils.COMPUTE_ATTRIBUTE, 0.0);
+                    }
 
                     LOGGER.debug("Load per allocated capacity for service '{}' is below {}.", serviceId,
                             serviceUnderloadThreshold);
@@ -1738,6 +1983,9 @@ public class RLGService extends AbstractPeriodicService {
                         for (NodeIdentifier container : containerIds) {
                             serviceStopContainers.put(container, shutdownTime);
                         }
+                        if (containerIds.isEmpty()) {
+                            noShutdownCandidates.add(serviceId);
+                        }
 
                         // int plannedNumberOfShutdowns =
                         // Math.min(serviceStopContainers.size() +
@@ -1757,6 +2005,7 @@ public class RLGService extends AbstractPeriodicService {
                                 containerIds, serviceId, shutdownTime, currentTime);
                     } else {
                         LOGGER.debug("No container with smallest load found for service '{}'.", serviceId);
+                        noShutdownCandidates.add(serviceId);
                     }
                 }
             }
@@ -1804,6 +2053,10 @@ public class RLGService extends AbstractPeriodicService {
         // });
         // });
 
+        prevNoShutdownCandidates = noShutdownCandidates;
+        lastReusedDecisions = reusedDecisions;
+        LOGGER.debug("Reused {} decisions from the previous round", reusedDecisions);
+
         LOGGER.debug("scheduledContainerShutdowns: {}", scheduledContainerShutdowns);
 
         // shutdown any containers that were scheduled to be shutdown by now
@@ -1870,7 +2123,7 @@ public class RLGService extends AbstractPeriodicService {
 
         rlgBins.constructRLGPlan(newServicePlan);
 
-        LOGGER.info("New service plan:" + newServicePlan);
+        LOGGER.debug("New service plan: {}", newServicePlan);
 
         // create the final plan
         final ImmutableMap<ServiceIdentifier<?>, ImmutableMap<RegionIdentifier, Double>> overflowPlan = computeOverflowPlan(
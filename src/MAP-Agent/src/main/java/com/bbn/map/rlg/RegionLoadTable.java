@@ -0,0 +1,469 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.rlg;
+
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bbn.map.rlg.RlgUtils.LoadPercentages;
+import com.bbn.map.utils.MapUtils;
+import com.bbn.protelis.networkresourcemanagement.ContainerResourceReport;
+import com.bbn.protelis.networkresourcemanagement.NodeAttribute;
+import com.bbn.protelis.networkresourcemanagement.NodeIdentifier;
+import com.bbn.protelis.networkresourcemanagement.ResourceReport;
+import com.bbn.protelis.networkresourcemanagement.ServiceIdentifier;
+import com.bbn.protelis.networkresourcemanagement.ServiceStatus;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Columnar view of the containers in a region, built once per RLG round from
+ * the most recent report of each node in a single walk over the reports. Each
+ * container is a row with its service, node and state. The allocated capacity
+ * and the configured load input
+ * ({@link RlgUtils#getConfiguredLoadInput(ContainerResourceReport)}) are
+ * stored as one column of doubles per attribute. Services, nodes and
+ * attributes are numbered in the order that they are first seen. The node
+ * level load input that bin packing uses is stored as a column of loads in
+ * report order. The load percentages, container counts, per-service totals,
+ * bin packing inputs and container ordering that RLG needs each round are
+ * computed from the columns rather than by walking the nested maps in the
+ * reports again.
+ * 
+ * The results have the same content as the map based computations they
+ * replace, such as {@link RlgUtils#computeServiceLoadPercentages(Map)}.
+ */
+/* package */ final class RegionLoadTable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RegionLoadTable.class);
+
+    private final List<ServiceIdentifier<?>> services = new ArrayList<>();
+    private final Map<ServiceIdentifier<?>, Integer> serviceIndex = new HashMap<>();
+    private final List<NodeIdentifier> nodes = new ArrayList<>();
+    private final List<NodeAttribute> attributes = new ArrayList<>();
+    private final Map<NodeAttribute, Integer> attributeIndex = new HashMap<>();
+
+    /**
+     * Maximum number of containers, the length of each column.
+     */
+    private final int maxContainers;
+    /**
+     * Number of containers with a service, in report order.
+     */
+    private final int numContainers;
+    private final NodeIdentifier[] containers;
+    /**
+     * Index into {@link #services} for each container.
+     */
+    private final int[] containerService;
+    /**
+     * Index into {@link #nodes} for each container.
+     */
+    private final int[] containerNode;
+    /**
+     * True if the container is {@link ServiceStatus#RUNNING}.
+     */
+    private final boolean[] containerRunning;
+
+    /**
+     * attribute -> containers, allocated container capacity.
+     */
+    private final List<double[]> capacity = new ArrayList<>();
+    /**
+     * attribute -> containers, true if the container reported capacity for
+     * the attribute.
+     */
+    private final List<boolean[]> capacityPresent = new ArrayList<>();
+    /**
+     * attribute -> containers, load from all sources.
+     */
+    private final List<double[]> load = new ArrayList<>();
+    /**
+     * attribute -> containers, true if the container reported load for the
+     * attribute.
+     */
+    private final List<boolean[]> loadPresent = new ArrayList<>();
+
+    /**
+     * services x attributes, load on the {@link ServiceStatus#RUNNING}
+     * containers.
+     */
+    private final double[] runningServiceLoad;
+
+    /**
+     * Service of each entry in the node level load input
+     * ({@link RlgUtils#getConfiguredLoadInput(ResourceReport)}), in report
+     * order.
+     */
+    private final ServiceIdentifier<?>[] nodeLoadServices;
+    /**
+     * {@link MapUtils#COMPUTE_ATTRIBUTE} load of each entry in
+     * {@link #nodeLoadServices}.
+     */
+    private final double[] nodeLoads;
+
+    /**
+     * @param reports
+     *            the most recent report for each node in the region
+     */
+    /* package */ RegionLoadTable(@Nonnull final Map<NodeIdentifier, ResourceReport> reports) {
+        int containerReports = 0;
+        int numNodeLoads = 0;
+        for (final ResourceReport report : reports.values()) {
+            containerReports += report.getContainerReports().size();
+            numNodeLoads += RlgUtils.getConfiguredLoadInput(report).size();
+        }
+
+        maxContainers = containerReports;
+        containers = new NodeIdentifier[maxContainers];
+        containerService = new int[maxContainers];
+        containerNode = new int[maxContainers];
+        containerRunning = new boolean[maxContainers];
+        nodeLoadServices = new ServiceIdentifier<?>[numNodeLoads];
+        nodeLoads = new double[numNodeLoads];
+
+        int nodeLoadIndex = 0;
+        int count = 0;
+        for (final Map.Entry<NodeIdentifier, ResourceReport> entry : reports.entrySet()) {
+            final int n = nodes.size();
+            nodes.add(entry.getKey());
+
+            for (final Map.Entry<ServiceIdentifier<?>, ImmutableMap<NodeIdentifier, ImmutableMap<NodeAttribute, Double>>> lentry : RlgUtils
+                    .getConfiguredLoadInput(entry.getValue()).entrySet()) {
+                double sum = 0;
+                for (final ImmutableMap<NodeAttribute, Double> sourceLoad : lentry.getValue().values()) {
+                    sum += sourceLoad.getOrDefault(MapUtils.COMPUTE_ATTRIBUTE, 0D);
+                }
+                nodeLoadServices[nodeLoadIndex] = lentry.getKey();
+                nodeLoads[nodeLoadIndex] = sum;
+                ++nodeLoadIndex;
+            }
+
+            for (final Map.Entry<NodeIdentifier, ContainerResourceReport> centry : entry.getValue()
+                    .getContainerReports().entrySet()) {
+                final ContainerResourceReport creport = centry.getValue();
+                final ServiceIdentifier<?> service = creport.getService();
+                if (null == service) {
+                    LOGGER.debug("Container '{}' has report with null service.", centry.getKey());
+                    continue;
+                }
+
+                final int c = count++;
+                containers[c] = centry.getKey();
+                containerService[c] = serviceIndex.computeIfAbsent(service, k -> {
+                    services.add(k);
+                    return services.size() - 1;
+                });
+                containerNode[c] = n;
+                containerRunning[c] = ServiceStatus.RUNNING.equals(creport.getServiceStatus());
+
+                creport.getComputeCapacity().forEach((attr, value) -> {
+                    final int a = attributeColumn(attr);
+                    capacity.get(a)[c] += value;
+                    capacityPresent.get(a)[c] = true;
+                });
+
+                RlgUtils.getConfiguredLoadInput(creport).values().forEach(sourceLoad -> {
+                    sourceLoad.forEach((attr, value) -> {
+                        final int a = attributeColumn(attr);
+                        load.get(a)[c] += value;
+                        loadPresent.get(a)[c] = true;
+                    });
+                });
+            }
+        }
+
+        numContainers = count;
+
+        final int numAttributes = attributes.size();
+        runningServiceLoad = new double[services.size() * numAttributes];
+        for (int a = 0; a < numAttributes; ++a) {
+            final double[] attrLoad = load.get(a);
+            for (int c = 0; c < numContainers; ++c) {
+                if (containerRunning[c]) {
+                    runningServiceLoad[containerService[c] * numAttributes + a] += attrLoad[c];
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the column for the attribute, adding the columns if this is the
+     *         first time the attribute is seen
+     */
+    private int attributeColumn(final NodeAttribute attr) {
+        final Integer existing = attributeIndex.get(attr);
+        if (null != existing) {
+            return existing;
+        }
+
+        final int a = attributes.size();
+        attributes.add(attr);
+        attributeIndex.put(attr, a);
+        capacity.add(new double[maxContainers]);
+        capacityPresent.add(new boolean[maxContainers]);
+        load.add(new double[maxContainers]);
+        loadPresent.add(new boolean[maxContainers]);
+        return a;
+    }
+
+    /**
+     * @return the services that have at least one container in the region
+     */
+    /* package */ List<ServiceIdentifier<?>> getServices() {
+        return Collections.unmodifiableList(services);
+    }
+
+    /**
+     * Same result as {@link RlgUtils#computeServiceLoadPercentages(Map)}.
+     * Every node is in
+     * {@link LoadPercentages#allocatedLoadPercentagePerNode}, nodes without
+     * containers have an empty map.
+     * 
+     * @return the load percentages per service and per node
+     */
+    /* package */ LoadPercentages computeLoadPercentages() {
+        final int numAttributes = attributes.size();
+
+        final double[] serviceCapacity = new double[services.size() * numAttributes];
+        final boolean[] servicePresent = new boolean[serviceCapacity.length];
+        final double[] serviceLoad = new double[serviceCapacity.length];
+        final double[] nodeCapacity = new double[nodes.size() * numAttributes];
+        final boolean[] nodePresent = new boolean[nodeCapacity.length];
+        final double[] nodeLoad = new double[nodeCapacity.length];
+
+        for (int a = 0; a < numAttributes; ++a) {
+            final double[] attrCapacity = capacity.get(a);
+            final boolean[] attrPresent = capacityPresent.get(a);
+            final double[] attrLoad = load.get(a);
+            for (int c = 0; c < numContainers; ++c) {
+                final int sIndex = containerService[c] * numAttributes + a;
+                final int nIndex = containerNode[c] * numAttributes + a;
+                serviceCapacity[sIndex] += attrCapacity[c];
+                servicePresent[sIndex] |= attrPresent[c];
+                serviceLoad[sIndex] += attrLoad[c];
+                nodeCapacity[nIndex] += attrCapacity[c];
+                nodePresent[nIndex] |= attrPresent[c];
+                nodeLoad[nIndex] += attrLoad[c];
+            }
+        }
+
+        final LoadPercentages retval = new LoadPercentages();
+        for (int s = 0; s < services.size(); ++s) {
+            retval.allocatedLoadPercentagePerService.put(services.get(s),
+                    toPercentages(s, serviceCapacity, servicePresent, serviceLoad));
+        }
+        for (int n = 0; n < nodes.size(); ++n) {
+            retval.allocatedLoadPercentagePerNode.put(nodes.get(n),
+                    toPercentages(n, nodeCapacity, nodePresent, nodeLoad));
+        }
+        return retval;
+    }
+
+    private Map<NodeAttribute, Double> toPercentages(final int row,
+            final double[] rowCapacity,
+            final boolean[] rowPresent,
+            final double[] rowLoad) {
+        final int numAttributes = attributes.size();
+        final Map<NodeAttribute, Double> percentages = new HashMap<>();
+        for (int a = 0; a < numAttributes; ++a) {
+            final int index = row * numAttributes + a;
+            if (rowPresent[index]) {
+                percentages.put(attributes.get(a), rowLoad[index] / rowCapacity[index]);
+            }
+        }
+        return percentages;
+    }
+
+    /**
+     * @return service -> number of containers in any state
+     */
+    /* package */ Map<ServiceIdentifier<?>, Integer> getContainersPerService() {
+        final int[] counts = new int[services.size()];
+        for (int c = 0; c < numContainers; ++c) {
+            ++counts[containerService[c]];
+        }
+
+        final Map<ServiceIdentifier<?>, Integer> result = new HashMap<>();
+        for (int s = 0; s < counts.length; ++s) {
+            result.put(services.get(s), counts[s]);
+        }
+        return result;
+    }
+
+    /**
+     * The bin packing input, one {@link Service} for each service in the node
+     * level load input of each report with the
+     * {@link MapUtils#COMPUTE_ATTRIBUTE} load from all sources.
+     * 
+     * @return the services in report order
+     */
+    /* package */ List<Service> getBinPackingServices() {
+        final List<Service> result = new ArrayList<>(nodeLoadServices.length);
+        for (int i = 0; i < nodeLoadServices.length; ++i) {
+            result.add(new Service(nodeLoadServices[i], nodeLoads[i], 1));
+        }
+        return result;
+    }
+
+    /**
+     * @return service -> sum of the loads in {@link #getBinPackingServices()}
+     */
+    /* package */ Map<ServiceIdentifier<?>, Double> getBinPackingServiceLoads() {
+        final Map<ServiceIdentifier<?>, Double> result = new HashMap<>();
+        for (int i = 0; i < nodeLoadServices.length; ++i) {
+            result.merge(nodeLoadServices[i], nodeLoads[i], Double::sum);
+        }
+        return result;
+    }
+
+    /**
+     * @return service -> number of entries in {@link #getBinPackingServices()}
+     */
+    /* package */ Map<ServiceIdentifier<?>, Integer> getBinPackingServiceCounts() {
+        final Map<ServiceIdentifier<?>, Integer> result = new HashMap<>();
+        for (final ServiceIdentifier<?> service : nodeLoadServices) {
+            result.merge(service, 1, Integer::sum);
+        }
+        return result;
+    }
+
+    /**
+     * @param service
+     *            the service
+     * @param attribute
+     *            the attribute
+     * @return the total load on the {@link ServiceStatus#RUNNING} containers
+     *         for the service
+     */
+    /* package */ double getRunningServiceLoad(@Nonnull final ServiceIdentifier<?> service,
+            @Nonnull final NodeAttribute attribute) {
+        final Integer s = serviceIndex.get(service);
+        final Integer a = attributeIndex.get(attribute);
+        if (null == s || null == a) {
+            return 0;
+        }
+        return runningServiceLoad[s * attributes.size() + a];
+    }
+
+    /**
+     * @return service -> container -> attribute -> load for the
+     *         {@link ServiceStatus#RUNNING} containers
+     */
+    /* package */ Map<ServiceIdentifier<?>, Map<NodeIdentifier, Map<NodeAttribute, Double>>> getRunningContainerLoadByService() {
+        final int numAttributes = attributes.size();
+        final Map<ServiceIdentifier<?>, Map<NodeIdentifier, Map<NodeAttribute, Double>>> result = new HashMap<>();
+        for (int c = 0; c < numContainers; ++c) {
+            if (!containerRunning[c]) {
+                continue;
+            }
+
+            final Map<NodeAttribute, Double> containerLoad = new HashMap<>();
+            for (int a = 0; a < numAttributes; ++a) {
+                if (loadPresent.get(a)[c]) {
+                    containerLoad.put(attributes.get(a), load.get(a)[c]);
+                }
+            }
+            result.computeIfAbsent(services.get(containerService[c]), k -> new HashMap<>()).put(containers[c],
+                    containerLoad);
+        }
+        return result;
+    }
+
+    /**
+     * Same order as
+     * {@link RlgUtils#sortContainersByAscendingLoad(Map, NodeAttribute)}.
+     * 
+     * @param loadAttribute
+     *            the attribute to sort by
+     * @return service -> {@link ServiceStatus#RUNNING} containers by ascending
+     *         load, each list may be modified by the caller
+     */
+    /* package */ Map<ServiceIdentifier<?>, List<NodeIdentifier>> getContainersByAscendingLoad(
+            @Nonnull final NodeAttribute loadAttribute) {
+        final Integer attrIndex = attributeIndex.get(loadAttribute);
+        final double[] sortLoad = null == attrIndex ? new double[maxContainers] : load.get(attrIndex);
+
+        // group the running containers by service, keeping report order
+        final int[] serviceStart = new int[services.size() + 1];
+        for (int c = 0; c < numContainers; ++c) {
+            if (containerRunning[c]) {
+                ++serviceStart[containerService[c] + 1];
+            }
+        }
+        for (int s = 0; s < services.size(); ++s) {
+            serviceStart[s + 1] += serviceStart[s];
+        }
+        final Integer[] order = new Integer[serviceStart[services.size()]];
+        final int[] next = Arrays.copyOf(serviceStart, services.size());
+        for (int c = 0; c < numContainers; ++c) {
+            if (containerRunning[c]) {
+                order[next[containerService[c]]++] = c;
+            }
+        }
+
+        final Map<ServiceIdentifier<?>, List<NodeIdentifier>> result = new HashMap<>();
+        for (int s = 0; s < services.size(); ++s) {
+            if (serviceStart[s] == serviceStart[s + 1]) {
+                continue;
+            }
+
+            Arrays.sort(order, serviceStart[s], serviceStart[s + 1], (a, b) -> {
+                final int cmp = (int) Math.signum(sortLoad[a] - sortLoad[b]);
+                if (0 != cmp) {
+                    return cmp;
+                } else {
+                    return containers[a].getName().compareTo(containers[b].getName());
+                }
+            });
+
+            final List<NodeIdentifier> sorted = new LinkedList<>();
+            for (int i = serviceStart[s]; i < serviceStart[s + 1]; ++i) {
+                sorted.add(containers[order[i]]);
+            }
+            result.put(services.get(s), sorted);
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,216 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.rlg;
+
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.Nonnull;
+
+import com.bbn.map.ta2.OverlayLink;
+import com.bbn.protelis.networkresourcemanagement.InterfaceIdentifier;
+import com.bbn.protelis.networkresourcemanagement.LinkAttribute;
+import com.bbn.protelis.networkresourcemanagement.NodeIdentifier;
+import com.bbn.protelis.networkresourcemanagement.NodeNetworkFlow;
+import com.bbn.protelis.networkresourcemanagement.ResourceReport;
+import com.bbn.protelis.networkresourcemanagement.ServiceIdentifier;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Shortest paths between the nodes of a region and the utilization of the
+ * links on those paths. The graph is built from the reporting nodes and the
+ * neighbors of their network interfaces, so client pools attached to an NCP
+ * are included. The shortest paths, by hop count, are only recomputed when
+ * the adjacency changes. The link utilization is updated from
+ * {@link ResourceReport#getNetworkLoad()} and
+ * {@link ResourceReport#getNetworkCapacity()} on every call to
+ * {@link #update(Collection)}.
+ */
+/* package */ final class RegionalPathTable {
+
+    /**
+     * Node -> neighbors. The neighbors are sorted so that the search picks the
+     * same shortest path each time when there are several.
+     */
+    private Map<NodeIdentifier, Set<NodeIdentifier>> adjacency = Collections.emptyMap();
+
+    /**
+     * Source -> destination -> links on the shortest path from source to
+     * destination. A node has an empty path to itself.
+     */
+    private final Map<NodeIdentifier, Map<NodeIdentifier, List<OverlayLink>>> paths = new HashMap<>();
+
+    /**
+     * Link -> highest ratio of load to capacity in either direction as seen by
+     * either end of the link.
+     */
+    private final Map<OverlayLink, Double> linkUtilization = new HashMap<>();
+
+    /**
+     * Update the table from the current resource reports.
+     *
+     * @param reports
+     *            the most recent report for each node in the region
+     */
+    /* package */ void update(@Nonnull final Collection<ResourceReport> reports) {
+        final Map<NodeIdentifier, Set<NodeIdentifier>> newAdjacency = new HashMap<>();
+        for (final ResourceReport report : reports) {
+            final NodeIdentifier node = report.getNodeName();
+            newAdjacency.computeIfAbsent(node, k -> new TreeSet<>());
+            for (final InterfaceIdentifier ifce : report.getNetworkCapacity().keySet()) {
+                for (final NodeIdentifier neighbor : ifce.getNeighbors()) {
+                    if (!neighbor.equals(node)) {
+                        newAdjacency.computeIfAbsent(node, k -> new TreeSet<>()).add(neighbor);
+                        newAdjacency.computeIfAbsent(neighbor, k -> new TreeSet<>()).add(node);
+                    }
+                }
+            }
+        }
+
+        if (!newAdjacency.equals(adjacency)) {
+            adjacency = newAdjacency;
+            computePaths();
+        }
+
+        linkUtilization.clear();
+        for (final ResourceReport report : reports) {
+            final NodeIdentifier node = report.getNodeName();
+            report.getNetworkCapacity().forEach((ifce, capacity) -> {
+                final double utilization = computeUtilization(capacity,
+                        report.getNetworkLoad().getOrDefault(ifce, ImmutableMap.of()));
+                for (final NodeIdentifier neighbor : ifce.getNeighbors()) {
+                    if (!neighbor.equals(node)) {
+                        linkUtilization.merge(new OverlayLink(node, neighbor), utilization, Double::max);
+                    }
+                }
+            });
+        }
+    }
+
+    private static double computeUtilization(@Nonnull final ImmutableMap<LinkAttribute, Double> capacity,
+            @Nonnull final ImmutableMap<NodeNetworkFlow, ImmutableMap<ServiceIdentifier<?>, ImmutableMap<LinkAttribute, Double>>> load) {
+        double utilization = 0;
+        for (final LinkAttribute attr : new LinkAttribute[] { LinkAttribute.DATARATE_TX,
+                LinkAttribute.DATARATE_RX }) {
+            final double attrCapacity = capacity.getOrDefault(attr, 0D);
+            if (attrCapacity > 0) {
+                double attrLoad = 0;
+                for (final ImmutableMap<ServiceIdentifier<?>, ImmutableMap<LinkAttribute, Double>> flowLoad : load
+                        .values()) {
+                    for (final ImmutableMap<LinkAttribute, Double> serviceLoad : flowLoad.values()) {
+                        attrLoad += serviceLoad.getOrDefault(attr, 0D);
+                    }
+                }
+                utilization = Math.max(utilization, attrLoad / attrCapacity);
+            }
+        }
+        return utilization;
+    }
+
+    /**
+     * Breadth first search from every node. Regions are small enough that this
+     * is cheaper than keeping an all pairs structure up to date.
+     */
+    private void computePaths() {
+        paths.clear();
+        for (final NodeIdentifier source : adjacency.keySet()) {
+            final Map<NodeIdentifier, List<OverlayLink>> sourcePaths = new HashMap<>();
+            sourcePaths.put(source, Collections.emptyList());
+
+            final Deque<NodeIdentifier> queue = new ArrayDeque<>();
+            queue.add(source);
+            while (!queue.isEmpty()) {
+                final NodeIdentifier current = queue.remove();
+                final List<OverlayLink> currentPath = sourcePaths.get(current);
+                for (final NodeIdentifier neighbor : adjacency.getOrDefault(current, Collections.emptySet())) {
+                    if (!sourcePaths.containsKey(neighbor)) {
+                        final List<OverlayLink> path = new LinkedList<>(currentPath);
+                        path.add(new OverlayLink(current, neighbor));
+                        sourcePaths.put(neighbor, Collections.unmodifiableList(path));
+                        queue.add(neighbor);
+                    }
+                }
+            }
+            paths.put(source, sourcePaths);
+        }
+    }
+
+    /**
+     * @return the number of nodes in the region graph, including client pools
+     */
+    /* package */ int getNumNodes() {
+        return adjacency.size();
+    }
+
+    /**
+     * @param source
+     *            where the traffic enters
+     * @param destination
+     *            where the traffic is served
+     * @return the number of hops on the shortest path, -1 if there is no path
+     */
+    /* package */ int getHopCount(@Nonnull final NodeIdentifier source, @Nonnull final NodeIdentifier destination) {
+        final List<OverlayLink> path = paths.getOrDefault(source, Collections.emptyMap()).get(destination);
+        return null == path ? -1 : path.size();
+    }
+
+    /**
+     * @param source
+     *            where the traffic enters
+     * @param destination
+     *            where the traffic is served
+     * @return the highest utilization of any link on the shortest path, 0 for
+     *         an empty path and -1 if there is no path
+     */
+    /* package */ double getBottleneckUtilization(@Nonnull final NodeIdentifier source,
+            @Nonnull final NodeIdentifier destination) {
+        final List<OverlayLink> path = paths.getOrDefault(source, Collections.emptyMap()).get(destination);
+        if (null == path) {
+            return -1;
+        }
+        double max = 0;
+        for (final OverlayLink link : path) {
+            max = Math.max(max, linkUtilization.getOrDefault(link, 0D));
+        }
+        return max;
+    }
+
+}
@@ -0,0 +1,149 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.rlg;
+
+import java.util.Arrays;
+
+/**
+ * Segment tree over the bins of {@link BinPacking} in the order that they were
+ * added. Each leaf holds the remaining capacity of a bin and each internal node
+ * holds the maximum of its children. This allows the first bin with enough
+ * remaining capacity and the bin with the most remaining capacity to be found
+ * in logarithmic time.
+ */
+/* package */ final class RemainingCapacityTree {
+
+    private static final int INITIAL_LEAVES = 16;
+
+    private int leaves = INITIAL_LEAVES;
+    private int size = 0;
+    private double[] tree = newTree(INITIAL_LEAVES);
+
+    private static double[] newTree(final int leaves) {
+        final double[] tree = new double[2 * leaves];
+        Arrays.fill(tree, Double.NEGATIVE_INFINITY);
+        return tree;
+    }
+
+    /**
+     * @return the number of positions in the tree
+     */
+    /* package */ int size() {
+        return size;
+    }
+
+    /**
+     * Set the remaining capacity for a position. If the position is equal to
+     * {@link #size()} the tree grows by one position.
+     *
+     * @param position
+     *            the position of the bin
+     * @param remaining
+     *            the remaining capacity of the bin, NaN is treated as negative
+     *            infinity
+     * @throws IndexOutOfBoundsException
+     *             if the position is negative or greater than {@link #size()}
+     */
+    /* package */ void set(final int position, final double remaining) {
+        if (position < 0 || position > size) {
+            throw new IndexOutOfBoundsException("Position " + position + " size " + size);
+        }
+        if (position == size) {
+            if (size == leaves) {
+                grow();
+            }
+            ++size;
+        }
+
+        int node = leaves + position;
+        tree[node] = Double.isNaN(remaining) ? Double.NEGATIVE_INFINITY : remaining;
+        node /= 2;
+        while (node >= 1) {
+            tree[node] = Math.max(tree[2 * node], tree[2 * node + 1]);
+            node /= 2;
+        }
+    }
+
+    private void grow() {
+        final int newLeaves = leaves * 2;
+        final double[] newTree = newTree(newLeaves);
+        System.arraycopy(tree, leaves, newTree, newLeaves, leaves);
+        for (int node = newLeaves - 1; node >= 1; --node) {
+            newTree[node] = Math.max(newTree[2 * node], newTree[2 * node + 1]);
+        }
+        leaves = newLeaves;
+        tree = newTree;
+    }
+
+    /**
+     * @param value
+     *            the capacity needed
+     * @return the lowest position with remaining capacity of at least
+     *         {@code value}, -1 if there is no such position
+     */
+    /* package */ int firstAtLeast(final double value) {
+        if (size == 0 || !(tree[1] >= value)) {
+            return -1;
+        }
+
+        int node = 1;
+        while (node < leaves) {
+            if (tree[2 * node] >= value) {
+                node = 2 * node;
+            } else {
+                node = 2 * node + 1;
+            }
+        }
+        return node - leaves;
+    }
+
+    /**
+     * @return the lowest position with the largest remaining capacity, -1 if
+     *         the tree is empty
+     */
+    /* package */ int firstMaximum() {
+        if (size == 0) {
+            return -1;
+        }
+        return firstAtLeast(tree[1]);
+    }
+
+    /**
+     * @param position
+     *            the position to get
+     * @return the remaining capacity stored at the position
+     */
+    /* package */ double get(final int position) {
+        return tree[leaves + position];
+    }
+
+}
@@ -32,7 +32,10 @@ BBN_LICENSE_END*/
 package com.bbn.map.rlg;
 
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -249,6 +252,43 @@ import com.google.common.collect.ImmutableMap;
 
         return retval;
     }
+
+    /**
+     * Order containers by ascending load and then by name so that containers
+     * with the same load are always in the same order. RLG uses
+     * {@link RegionLoadTable#getContainersByAscendingLoad(NodeAttribute)},
+     * this is the reference implementation that it is checked against.
+     * 
+     * The ordering by name applies whether or not
+     * {@link AgentConfiguration#getRlgIncrementalPlanning()} is set. Before it
+     * was added containers with the same load were in the iteration order of
+     * the load map, so which of them is scheduled for shutdown first may
+     * differ from older runs.
+     * 
+     * @param containerLoads
+     *            container -> attribute -> load
+     * @param loadAttribute
+     *            the attribute to sort by
+     * @return the containers sorted by ascending load
+     */
+    /* package */ static List<NodeIdentifier> sortContainersByAscendingLoad(
+            @Nonnull final Map<NodeIdentifier, Map<NodeAttribute, Double>> containerLoads,
+            @Nonnull final NodeAttribute loadAttribute) {
+        final List<NodeIdentifier> ascendingLoadContainers = new LinkedList<>(containerLoads.keySet());
+        Collections.sort(ascendingLoadContainers, new Comparator<NodeIdentifier>() {
+            @Override
+            public int compare(final NodeIdentifier a, final NodeIdentifier b) {
+                final int cmp = (int) Math.signum(containerLoads.get(a).getOrDefault(loadAttribute, 0.0)
+                        - containerLoads.get(b).getOrDefault(loadAttribute, 0.0));
+                if (0 != cmp) {
+                    return cmp;
+                } else {
+                    return a.getName().compareTo(b.getName());
+                }
+            }
+        });
+        return ascendingLoadContainers;
+    }
     
     
     /**
@@ -2,6 +2,9 @@ package com.bbn.map.rlg;
 
 import java.util.ArrayList;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import com.bbn.map.AgentConfiguration;
 import com.bbn.protelis.networkresourcemanagement.NodeIdentifier;
 import com.bbn.protelis.networkresourcemanagement.ServiceIdentifier;
@@ -10,6 +13,8 @@ import com.bbn.protelis.networkresourcemanagement.ServiceIdentifier;
  * An instance of a server used for the RLG implementation.
  */
 public class Server {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Server.class);
+
     private final NodeIdentifier nodeName;
     private final double totalCapacity;
     // private final int totalCapacity;
@@ -164,7 +169,7 @@ public class Server {
         service.setServerTotal(service.getServerTotal() + this.totalCapacity);
         usedCapacity += service.getFracLoad(this);
 
-        System.out.println("Previously created service added to server: " + nodeName);
+        LOGGER.trace("Previously created service added to server: {}", nodeName);
     }
 
     /**
@@ -177,10 +182,10 @@ public class Server {
         if (servicesHosted.contains(service)) {
             servicesHosted.remove(service);
             usedCapacity -= service.getLoad()/service.getDivideFactor();
-            System.out.println("Server.java: Successfully removed service.");
+            LOGGER.trace("Successfully removed service {} from server {}", service.getName(), nodeName);
         }
         else {
-            System.out.println("Server.java: Service not found on server while requesting removal.");
+            LOGGER.warn("Service {} not found on server {} while requesting removal", service.getName(), nodeName);
         }
     }
 
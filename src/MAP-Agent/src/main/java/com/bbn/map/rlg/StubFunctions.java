@@ -95,20 +95,21 @@ import com.google.common.collect.ImmutableSet;
         return node;
     }
 
-    private static final Random RANDOM = new Random();
-
     /**
      * 
      * @param nodesWithAvailableCapacity
      *            nodes to choose from
+     * @param random
+     *            the source of randomness for the region
      * @return a random node
      */
-    public static NodeIdentifier chooseRandomNode(final SortedMap<NodeIdentifier, Integer> nodesWithAvailableCapacity) {
+    public static NodeIdentifier chooseRandomNode(final SortedMap<NodeIdentifier, Integer> nodesWithAvailableCapacity,
+            @Nonnull final Random random) {
         if (nodesWithAvailableCapacity.isEmpty()) {
             return null;
         }
 
-        final int index = RANDOM.nextInt(nodesWithAvailableCapacity.size());
+        final int index = random.nextInt(nodesWithAvailableCapacity.size());
         return nodesWithAvailableCapacity.entrySet().stream().skip(index).findFirst().get().getKey();
     }
 
@@ -121,13 +122,16 @@ import com.google.common.collect.ImmutableSet;
      *            used to determine which nodes are running the service
      * @param service
      *            the service to find a node for
+     * @param random
+     *            used when falling back to a random node
      * @return the node, falls back to random if no node is available that is
      *         running the service
      */
     public static NodeIdentifier chooseNodeRunningService(
             @Nonnull final SortedMap<NodeIdentifier, Integer> nodesWithAvailableCapacity,
             @Nonnull final ServiceIdentifier<?> service,
-            @Nonnull final LoadBalancerPlanBuilder newServicePlan) {
+            @Nonnull final LoadBalancerPlanBuilder newServicePlan,
+            @Nonnull final Random random) {
         final Set<NodeIdentifier> serviceNodes = getNodesRunningService(service, newServicePlan);
 
         final Optional<NodeIdentifier> node = nodesWithAvailableCapacity.entrySet().stream().map(Map.Entry::getKey)
@@ -135,7 +139,7 @@ import com.google.common.collect.ImmutableSet;
         if (node.isPresent()) {
             return node.get();
         } else {
-            return chooseRandomNode(nodesWithAvailableCapacity);
+            return chooseRandomNode(nodesWithAvailableCapacity, random);
         }
     }
 
@@ -163,13 +167,16 @@ import com.google.common.collect.ImmutableSet;
      *            used to determine which nodes are running the service
      * @param service
      *            the service to find a node for
+     * @param random
+     *            used when falling back to a random node
      * @return the node, falls back to random if no node is available that is
      *         running the service
      */
     public static NodeIdentifier chooseNodeNotRunningService(
             @Nonnull final SortedMap<NodeIdentifier, Integer> nodesWithAvailableCapacity,
             @Nonnull final ServiceIdentifier<?> service,
-            @Nonnull final LoadBalancerPlanBuilder newServicePlan) {
+            @Nonnull final LoadBalancerPlanBuilder newServicePlan,
+            @Nonnull final Random random) {
 
         final Set<NodeIdentifier> serviceNodes = getNodesRunningService(service, newServicePlan);
 
@@ -178,7 +185,7 @@ import com.google.common.collect.ImmutableSet;
         if (node.isPresent()) {
             return node.get();
         } else {
-            return chooseRandomNode(nodesWithAvailableCapacity);
+            return chooseRandomNode(nodesWithAvailableCapacity, random);
         }
     }
 
@@ -208,12 +215,34 @@ import com.google.common.collect.ImmutableSet;
         return node;
     }
 
+    /**
+     * @return the first node with available capacity that follows the service
+     *         on the ring, if none of the nodes on the ring have capacity the
+     *         node with the lowest load is chosen
+     */
+    private static NodeIdentifier chooseNodeOnHashRing(@Nonnull final ServiceIdentifier<?> service,
+            @Nonnull final SortedMap<NodeIdentifier, Integer> nodesWithAvailableCapacity,
+            @Nonnull final LoadPercentages loadPercentages,
+            @Nonnull final HashRing hashRing) {
+        final Server server = hashRing.find(service, s -> nodesWithAvailableCapacity.containsKey(s.getName()));
+        if (null != server) {
+            return server.getName();
+        }
+
+        LOGGER.debug("None of the nodes on the hash ring have capacity for {}, choosing the node with the lowest load",
+                service);
+        return chooseNodeWithLowestOverallLoad(nodesWithAvailableCapacity, loadPercentages);
+    }
+
     public static void allocateContainersForOverloadedServices(@Nonnull ServicePriorityManager servicePriorityManager,
             @Nonnull final ImmutableSet<ResourceReport> resourceReports,
             @Nonnull final LoadBalancerPlanBuilder newServicePlan,
             @Nonnull final SortedMap<NodeIdentifier, Integer> nodesWithAvailableCapacity,
             @Nonnull final List<ServiceIdentifier<?>> overloadedServices,
-            @Nonnull final LoadPercentages loadPercentages) {
+            @Nonnull final LoadPercentages loadPercentages,
+            final PathCostPlacementScorer pathCostScorer,
+            final HashRing hashRing,
+            @Nonnull final Random random) {
 
         final Map<ServiceIdentifier<?>, Integer> runningContainers = new HashMap<>();
 
@@ -266,7 +295,7 @@ import com.google.common.collect.ImmutableSet;
 
                         if (!nodesWithAvailableCapacity.isEmpty()) {
                             final NodeIdentifier newNode = chooseNode(service, newServicePlan,
-                                    nodesWithAvailableCapacity, loadPercentages);
+                                    nodesWithAvailableCapacity, loadPercentages, pathCostScorer, hashRing, random);
 
                             LOGGER.debug("allocateContainers: newNode = {}, nodesWithAvailableCapacity = {}", newNode,
                                     nodesWithAvailableCapacity);
@@ -368,13 +397,26 @@ import com.google.common.collect.ImmutableSet;
      *            information about what nodes have capacity
      * @param loadPercentages
      *            the load information
+     * @param pathCostScorer
+     *            used for
+     *            {@link AgentConfiguration.RlgStubChooseNcp#LOWEST_PATH_COST},
+     *            if null the node with the lowest load percentage is chosen
+     * @param hashRing
+     *            used for
+     *            {@link AgentConfiguration.RlgStubChooseNcp#CONSISTENT_HASH},
+     *            if null the node with the lowest load percentage is chosen
+     * @param random
+     *            the source of randomness for the region
      * @return the node to use or null if there are no nodes with available
      *         capacity
      */
     public static NodeIdentifier chooseNode(@Nonnull final ServiceIdentifier<?> service,
             @Nonnull final LoadBalancerPlanBuilder newServicePlan,
             @Nonnull final SortedMap<NodeIdentifier, Integer> nodesWithAvailableCapacity,
-            @Nonnull final LoadPercentages loadPercentages) {
+            @Nonnull final LoadPercentages loadPercentages,
+            final PathCostPlacementScorer pathCostScorer,
+            final HashRing hashRing,
+            @Nonnull final Random random) {
 
         if (nodesWithAvailableCapacity.isEmpty()) {
             LOGGER.error("Asking to choose a node for service {} and there are no nodes with available capacity",
@@ -389,13 +431,29 @@ import com.google.common.collect.ImmutableSet;
         case MOST_AVAILABLE_CONTAINERS:
             return StubFunctions.chooseNodeWithGreatestContainerCapacity(nodesWithAvailableCapacity);
         case RANDOM:
-            return StubFunctions.chooseRandomNode(nodesWithAvailableCapacity);
+            return StubFunctions.chooseRandomNode(nodesWithAvailableCapacity, random);
         case CURRENTLY_NOT_RUNNING_SERIVCE:
-            return StubFunctions.chooseNodeNotRunningService(nodesWithAvailableCapacity, service, newServicePlan);
+            return StubFunctions.chooseNodeNotRunningService(nodesWithAvailableCapacity, service, newServicePlan,
+                    random);
         case CURRENTLY_RUNNING_SERVICE:
-            return StubFunctions.chooseNodeRunningService(nodesWithAvailableCapacity, service, newServicePlan);
+            return StubFunctions.chooseNodeRunningService(nodesWithAvailableCapacity, service, newServicePlan,
+                    random);
         case LOWEST_LOAD_PERCENTAGE:
             return chooseNodeWithLowestOverallLoad(nodesWithAvailableCapacity, loadPercentages);
+        case LOWEST_PATH_COST:
+            if (null == pathCostScorer) {
+                LOGGER.warn("No path cost information available, choosing the node with the lowest load");
+                return chooseNodeWithLowestOverallLoad(nodesWithAvailableCapacity, loadPercentages);
+            } else {
+                return pathCostScorer.chooseNode(service, nodesWithAvailableCapacity, loadPercentages);
+            }
+        case CONSISTENT_HASH:
+            if (null == hashRing) {
+                LOGGER.warn("No hash ring available, choosing the node with the lowest load");
+                return chooseNodeWithLowestOverallLoad(nodesWithAvailableCapacity, loadPercentages);
+            } else {
+                return chooseNodeOnHashRing(service, nodesWithAvailableCapacity, loadPercentages, hashRing);
+            }
         default:
             throw new IllegalArgumentException("Unknown stub NCP choose algorithm: " + chooseAlgorithm);
         }
@@ -0,0 +1,110 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.scenario;
+
+
+import java.util.Random;
+
+import javax.annotation.Nonnull;
+
+/**
+ * How the number of clients making requests changes over time in a generated
+ * scenario.
+ */
+public enum DemandProfile {
+    /**
+     * The same number of clients for the whole run.
+     */
+    CONSTANT {
+        @Override
+        public double getMultiplier(final long time,
+                final double phase,
+                @Nonnull final ScenarioParameters parameters,
+                @Nonnull final Random random) {
+            return 1;
+        }
+    },
+    /**
+     * A sine wave with a period of
+     * {@link ScenarioParameters#getDiurnalPeriod()}. The phase is shifted per
+     * region so that the regions peak at different times.
+     */
+    DIURNAL {
+        @Override
+        public double getMultiplier(final long time,
+                final double phase,
+                @Nonnull final ScenarioParameters parameters,
+                @Nonnull final Random random) {
+            final double period = parameters.getDiurnalPeriod().toMillis();
+            return DIURNAL_MEAN + DIURNAL_AMPLITUDE * Math.sin(2 * Math.PI * (time / period + phase));
+        }
+    },
+    /**
+     * Steady demand with random bursts of
+     * {@link ScenarioParameters#getBurstMultiplier()} times as many clients
+     * that occur with a probability of
+     * {@link ScenarioParameters#getBurstProbability()}.
+     */
+    BURSTY {
+        @Override
+        public double getMultiplier(final long time,
+                final double phase,
+                @Nonnull final ScenarioParameters parameters,
+                @Nonnull final Random random) {
+            if (random.nextDouble() < parameters.getBurstProbability()) {
+                return parameters.getBurstMultiplier();
+            } else {
+                return 1;
+            }
+        }
+    };
+
+    private static final double DIURNAL_MEAN = 0.55;
+    private static final double DIURNAL_AMPLITUDE = 0.45;
+
+    /**
+     * @param time
+     *            the start time of the request
+     * @param phase
+     *            offset of the client as a fraction of a period
+     * @param parameters
+     *            the scenario parameters
+     * @param random
+     *            the random number generator for the scenario
+     * @return the value to multiply
+     *         {@link ScenarioParameters#getClientsPerRequest()} by
+     */
+    public abstract double getMultiplier(long time,
+            double phase,
+            @Nonnull ScenarioParameters parameters,
+            @Nonnull Random random);
+}
@@ -0,0 +1,586 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.scenario;
+
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import javax.annotation.Nonnull;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bbn.map.common.value.ApplicationCoordinates;
+import com.bbn.map.simulator.BackgroundNetworkLoad;
+import com.bbn.map.simulator.ClientLoad;
+import com.bbn.map.simulator.HardwareConfiguration;
+import com.bbn.map.simulator.Simulation;
+import com.bbn.map.utils.JsonUtils;
+import com.bbn.map.utils.LogExceptionHandler;
+import com.bbn.protelis.networkresourcemanagement.LinkAttribute;
+import com.bbn.protelis.networkresourcemanagement.NodeAttribute;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Generate a scenario and matching demand for performance testing. The output
+ * directory gets a {@link #SCENARIO_DIRECTORY} that can be passed to
+ * {@link com.bbn.map.simulator.SimulationRunner} as the scenario and a
+ * {@link #DEMAND_DIRECTORY} that can be passed as the demand. The same
+ * {@link ScenarioParameters} always produce the same files.
+ * 
+ * Each region has a ring of NCPs, the first NCP in the region runs DCOP, RLG
+ * and DNS. The first NCPs of the regions are connected in a ring with
+ * additional random links between regions. Each service starts on a random
+ * NCP and may depend on services created before it.
+ */
+public final class ScenarioGenerator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScenarioGenerator.class);
+
+    /**
+     * Directory in the output that contains the scenario.
+     */
+    public static final String SCENARIO_DIRECTORY = "scenario";
+
+    /**
+     * Directory in the output that contains the demand.
+     */
+    public static final String DEMAND_DIRECTORY = "demand";
+
+    /**
+     * Name of the hardware configuration used by all NCPs.
+     */
+    public static final String HARDWARE_NAME = "ncp";
+
+    /**
+     * Group of the generated services.
+     */
+    public static final String SERVICE_GROUP = "generated";
+
+    private static final String SERVICE_VERSION = "1";
+    private static final String TOPOLOGY_FILENAME = "topology.ns";
+    private static final String NODE_OS = "XEN46-64-STD";
+
+    private static final double SERVICE_DATARATE_CAPACITY = 100;
+    private static final double DEPENDENCY_MULTIPLIER = 0.5;
+
+    private final ScenarioParameters parameters;
+    private final Random random;
+    private final ObjectMapper mapper = JsonUtils.getStandardMapObjectMapper();
+
+    private final List<String> regions = new ArrayList<>();
+    /**
+     * NCPs by region index, the first NCP in each region is the leader.
+     */
+    private final List<List<String>> ncps = new ArrayList<>();
+    /**
+     * client -> region index.
+     */
+    private final Map<String, Integer> clients = new LinkedHashMap<>();
+    private final List<Link> links = new ArrayList<>();
+    private final List<ApplicationCoordinates> services = new ArrayList<>();
+
+    private ScenarioGenerator(@Nonnull final ScenarioParameters parameters) {
+        this.parameters = parameters;
+        this.random = new Random(parameters.getSeed());
+    }
+
+    /**
+     * Generate a scenario. Existing files in the output directory with the
+     * same names are replaced.
+     * 
+     * @param parameters
+     *            describes the scenario to create
+     * @param outputDirectory
+     *            where to write {@link #SCENARIO_DIRECTORY} and
+     *            {@link #DEMAND_DIRECTORY}
+     * @throws IOException
+     *             if there is an error writing the files
+     */
+    public static void generate(@Nonnull final ScenarioParameters parameters, @Nonnull final Path outputDirectory)
+            throws IOException {
+        final ScenarioGenerator generator = new ScenarioGenerator(parameters);
+
+        final Path scenarioDirectory = outputDirectory.resolve(SCENARIO_DIRECTORY);
+        final Path demandDirectory = outputDirectory.resolve(DEMAND_DIRECTORY);
+        Files.createDirectories(scenarioDirectory);
+        Files.createDirectories(demandDirectory);
+
+        generator.createTopology();
+        generator.writeTopology(scenarioDirectory);
+        generator.writeNodeConfigurations(scenarioDirectory);
+        generator.writeHardwareConfigurations(scenarioDirectory);
+        generator.writeServices(scenarioDirectory);
+        final long numRequests = generator.writeClientDemand(demandDirectory);
+        generator.writeBackgroundTraffic(demandDirectory);
+
+        LOGGER.info("Generated {} regions, {} NCPs, {} clients, {} links, {} services and {} client requests in {}",
+                generator.regions.size(), generator.ncps.stream().mapToInt(List::size).sum(),
+                generator.clients.size(), generator.links.size(), generator.services.size(), numRequests,
+                outputDirectory);
+    }
+
+    /**
+     * @param index
+     *            the index of the service, between 0 and
+     *            {@link ScenarioParameters#getNumServices()}
+     * @return the identifier of the generated service
+     */
+    @Nonnull
+    public static ApplicationCoordinates getService(final int index) {
+        return new ApplicationCoordinates(SERVICE_GROUP, "service" + index, SERVICE_VERSION);
+    }
+
+    private void createTopology() {
+        for (int r = 0; r < parameters.getNumRegions(); ++r) {
+            regions.add("R" + r);
+
+            final List<String> regionNcps = new ArrayList<>();
+            for (int i = 0; i < parameters.getNcpsPerRegion(); ++i) {
+                regionNcps.add(String.format("r%dncp%d", r, i));
+            }
+            ncps.add(regionNcps);
+
+            // ring of NCPs inside the region
+            for (int i = 1; i < regionNcps.size(); ++i) {
+                addLink(regionNcps.get(i - 1), regionNcps.get(i), parameters.getIntraRegionBandwidth());
+            }
+            if (regionNcps.size() > 2) {
+                addLink(regionNcps.get(regionNcps.size() - 1), regionNcps.get(0),
+                        parameters.getIntraRegionBandwidth());
+            }
+        }
+
+        // ring of region leaders
+        final int numRegions = regions.size();
+        for (int r = 1; r < numRegions; ++r) {
+            addLink(ncps.get(r - 1).get(0), ncps.get(r).get(0), parameters.getInterRegionBandwidth());
+        }
+        if (numRegions > 2) {
+            addLink(ncps.get(numRegions - 1).get(0), ncps.get(0).get(0), parameters.getInterRegionBandwidth());
+        }
+
+        // additional links between regions that are not next to each other
+        for (int a = 0; a < numRegions; ++a) {
+            for (int b = a + 2; b < numRegions; ++b) {
+                if ((0 == a && numRegions - 1 == b)
+                        || random.nextDouble() >= parameters.getInterRegionLinkProbability()) {
+                    continue;
+                }
+                addLink(pick(ncps.get(a)), pick(ncps.get(b)), parameters.getInterRegionBandwidth());
+            }
+        }
+
+        for (int c = 0; c < parameters.getNumClients(); ++c) {
+            final int region = c % numRegions;
+            final String client = String.format("r%dclient%d", region, c / numRegions);
+            clients.put(client, region);
+            addLink(client, pick(ncps.get(region)), parameters.getClientBandwidth());
+        }
+    }
+
+    private void addLink(final String left, final String right, final double bandwidth) {
+        links.add(new Link("link" + links.size(), left, right, bandwidth));
+    }
+
+    private <T> T pick(final List<T> list) {
+        return list.get(random.nextInt(list.size()));
+    }
+
+    private void writeTopology(final Path scenarioDirectory) throws IOException {
+        try (PrintWriter writer = new PrintWriter(
+                Files.newBufferedWriter(scenarioDirectory.resolve(TOPOLOGY_FILENAME), StandardCharsets.UTF_8))) {
+            writer.println("# Generated by " + ScenarioGenerator.class.getSimpleName() + " with seed "
+                    + parameters.getSeed());
+            writer.println();
+            writer.println("set ns [new Simulator]");
+            writer.println("source tb_compat.tcl");
+
+            writer.println();
+            writer.println("# Clients");
+            for (final String client : clients.keySet()) {
+                writer.println(String.format("set %s [$ns node]", client));
+                writer.println(String.format("tb-set-node-os $%s %s", client, NODE_OS));
+            }
+
+            writer.println();
+            writer.println("# NCPs");
+            for (final List<String> regionNcps : ncps) {
+                for (final String ncp : regionNcps) {
+                    writer.println(String.format("set %s [$ns node]", ncp));
+                    writer.println(String.format("tb-set-node-os $%s %s", ncp, NODE_OS));
+                    writer.println(String.format("tb-set-hardware $%s %s", ncp, HARDWARE_NAME));
+                }
+            }
+
+            writer.println();
+            writer.println("# Links");
+            for (final Link link : links) {
+                writer.println(String.format(Locale.US, "set %s [$ns duplex-link $%s $%s %.1fkb 0.0ms DropTail]",
+                        link.name, link.left, link.right, link.bandwidth));
+            }
+
+            writer.println();
+            writer.println("$ns rtproto Static");
+            writer.println("$ns run");
+        }
+    }
+
+    private void writeNodeConfigurations(final Path scenarioDirectory) throws IOException {
+        for (int r = 0; r < regions.size(); ++r) {
+            final List<String> regionNcps = ncps.get(r);
+            for (int i = 0; i < regionNcps.size(); ++i) {
+                final Map<String, Object> config = new LinkedHashMap<>();
+                config.put("region", regions.get(r));
+                if (0 == i) {
+                    config.put("dns", true);
+                    config.put("DCOP", true);
+                    config.put("RLG", true);
+                }
+                writeJson(scenarioDirectory.resolve(regionNcps.get(i) + ".json"), config);
+            }
+        }
+
+        for (final Map.Entry<String, Integer> entry : clients.entrySet()) {
+            final Map<String, Object> config = new LinkedHashMap<>();
+            config.put("region", regions.get(entry.getValue()));
+            config.put("client", true);
+            writeJson(scenarioDirectory.resolve(entry.getKey() + ".json"), config);
+        }
+    }
+
+    private void writeHardwareConfigurations(final Path scenarioDirectory) throws IOException {
+        final Map<String, Object> capacity = new LinkedHashMap<>();
+        capacity.put(NodeAttribute.CPU.getName(), parameters.getNcpContainers());
+        capacity.put(NodeAttribute.TASK_CONTAINERS.getName(), parameters.getNcpContainers());
+
+        final Map<String, Object> config = new LinkedHashMap<>();
+        config.put("name", HARDWARE_NAME);
+        config.put("capacity", capacity);
+
+        writeJson(scenarioDirectory.resolve(HardwareConfiguration.HARDWARE_CONFIG_FILENAME),
+                ImmutableList.of(config));
+    }
+
+    private void writeServices(final Path scenarioDirectory) throws IOException {
+        final List<Map<String, Object>> configurations = new ArrayList<>();
+        final List<Map<String, Object>> dependencies = new ArrayList<>();
+
+        for (int s = 0; s < parameters.getNumServices(); ++s) {
+            final ApplicationCoordinates service = getService(s);
+            services.add(service);
+
+            final int region = random.nextInt(regions.size());
+            final String defaultNode = pick(ncps.get(region));
+
+            final Map<String, Object> config = new LinkedHashMap<>();
+            config.put("service", service);
+            config.put("hostname", service.getArtifact());
+            config.put("defaultNodes", ImmutableMap.of(defaultNode, 1));
+            config.put("defaultNodeRegion", regions.get(region));
+            config.put("computeCapacity", ImmutableMap.of(NodeAttribute.TASK_CONTAINERS.getName(), 1));
+            config.put("networkCapacity", ImmutableMap.of(LinkAttribute.DATARATE_TX.getName(),
+                    SERVICE_DATARATE_CAPACITY, LinkAttribute.DATARATE_RX.getName(), SERVICE_DATARATE_CAPACITY));
+            configurations.add(config);
+
+            // only depend on earlier services so that there are no cycles
+            for (int d = 0; d < s; ++d) {
+                if (random.nextDouble() < parameters.getDependencyProbability()) {
+                    dependencies.add(createDependency(service, services.get(d)));
+                }
+            }
+        }
+
+        writeJson(scenarioDirectory.resolve(Simulation.SERVICE_CONFIGURATIONS_FILENAME), configurations);
+        writeJson(scenarioDirectory.resolve(Simulation.SERVICE_DEPENDENCIES_FILENAME), dependencies);
+    }
+
+    /**
+     * The dependent request starts when the server processing of the original
+     * request finishes, with the same durations and half of the load.
+     */
+    private static Map<String, Object> createDependency(final ApplicationCoordinates application,
+            final ApplicationCoordinates dependentApplication) {
+        final Map<String, Object> dependency = new LinkedHashMap<>();
+        dependency.put("application", application);
+        dependency.put("dependentApplication", dependentApplication);
+        dependency.put("nodeAttributeMultipliers",
+                ImmutableMap.of(NodeAttribute.TASK_CONTAINERS.getName(), DEPENDENCY_MULTIPLIER));
+        dependency.put("linkAttributeMultipliers", ImmutableMap.of(LinkAttribute.DATARATE_TX.getName(),
+                DEPENDENCY_MULTIPLIER, LinkAttribute.DATARATE_RX.getName(), DEPENDENCY_MULTIPLIER));
+        dependency.put("startStartMultiplier", 1);
+        dependency.put("startServerDurationMultiplier", 1);
+        dependency.put("startNetworkDurationMultiplier", 0);
+        dependency.put("startConstant", 0);
+        dependency.put("networkDurationServerMultiplier", 0);
+        dependency.put("networkDurationNetworkMultiplier", 1);
+        dependency.put("networkDurationConstant", 0);
+        dependency.put("serverDurationServerMultiplier", 1);
+        dependency.put("serverDurationNetworkMultiplier", 0);
+        dependency.put("serverDurationConstant", 0);
+        return dependency;
+    }
+
+    /**
+     * Demand files are written one request at a time so that large demand
+     * does not need to fit in memory.
+     * 
+     * @return the number of requests written
+     */
+    private long writeClientDemand(final Path demandDirectory) throws IOException {
+        final long duration = parameters.getDemandDuration().toMillis();
+        final long interval = parameters.getRequestInterval().toMillis();
+        final long requestDuration = parameters.getRequestDuration().toMillis();
+        final ImmutableMap<NodeAttribute, Double> nodeLoad = ImmutableMap.of(NodeAttribute.TASK_CONTAINERS,
+                parameters.getRequestLoad());
+        final ImmutableMap<LinkAttribute, Double> networkLoad = ImmutableMap.of(LinkAttribute.DATARATE_TX,
+                parameters.getRequestDatarate(), LinkAttribute.DATARATE_RX, parameters.getRequestDatarate());
+
+        long numRequests = 0;
+        for (final Map.Entry<String, Integer> entry : clients.entrySet()) {
+            // spread the regions across the period of the profile
+            final double phase = (double) entry.getValue() / regions.size();
+            // keep the clients from all sending requests at the same time
+            final long offset = (long) (random.nextDouble() * interval);
+
+            try (Writer writer = Files.newBufferedWriter(demandDirectory.resolve(entry.getKey() + ".json"),
+                    StandardCharsets.UTF_8); SequenceWriter sequence = mapper.writer().writeValuesAsArray(writer)) {
+                for (long start = offset; start < duration; start += interval) {
+                    final double multiplier = parameters.getProfile().getMultiplier(start, phase, parameters, random);
+                    final int numClients = (int) Math.round(parameters.getClientsPerRequest() * multiplier);
+                    final ApplicationCoordinates service = pick(services);
+                    if (numClients > 0) {
+                        sequence.write(new ClientLoad(start, requestDuration, requestDuration, numClients, service,
+                                nodeLoad, networkLoad, ImmutableList.of()));
+                        ++numRequests;
+                    }
+                }
+            }
+        }
+        return numRequests;
+    }
+
+    private void writeBackgroundTraffic(final Path demandDirectory) throws IOException {
+        final List<String> allNcps = new ArrayList<>();
+        ncps.forEach(allNcps::addAll);
+
+        final long duration = parameters.getDemandDuration().toMillis();
+        final ImmutableMap<LinkAttribute, Double> networkLoad = ImmutableMap.of(LinkAttribute.DATARATE_TX,
+                parameters.getBackgroundDatarate(), LinkAttribute.DATARATE_RX, parameters.getBackgroundDatarate());
+
+        final List<BackgroundNetworkLoad> flows = new ArrayList<>();
+        if (allNcps.size() > 1) {
+            for (int i = 0; i < parameters.getNumBackgroundFlows(); ++i) {
+                final String client = pick(allNcps);
+                String server = pick(allNcps);
+                while (server.equals(client)) {
+                    server = pick(allNcps);
+                }
+
+                final long start = (long) (random.nextDouble() * duration);
+                final long flowDuration = 1 + (long) (random.nextDouble() * (duration - start));
+                flows.add(new BackgroundNetworkLoad(client, server, start, flowDuration, networkLoad));
+            }
+        }
+        flows.sort(Comparator.comparingLong(BackgroundNetworkLoad::getStartTime));
+
+        writeJson(demandDirectory.resolve(Simulation.BACKGROUND_TRAFFIC_FILENAME), flows);
+    }
+
+    private void writeJson(final Path path, final Object value) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            mapper.writerWithDefaultPrettyPrinter().writeValue(writer, value);
+        }
+    }
+
+    private static final class Link {
+        private final String name;
+        private final String left;
+        private final String right;
+        private final double bandwidth;
+
+        /* package */ Link(final String name, final String left, final String right, final double bandwidth) {
+            this.name = name;
+            this.left = left;
+            this.right = right;
+            this.bandwidth = bandwidth;
+        }
+    }
+
+    private static final String OUTPUT_OPT = "output";
+    private static final String SEED_OPT = "seed";
+    private static final String REGIONS_OPT = "regions";
+    private static final String NCPS_OPT = "ncpsPerRegion";
+    private static final String CLIENTS_OPT = "clients";
+    private static final String SERVICES_OPT = "services";
+    private static final String DEPENDENCY_PROBABILITY_OPT = "dependencyProbability";
+    private static final String INTRA_REGION_BANDWIDTH_OPT = "intraRegionBandwidth";
+    private static final String INTER_REGION_BANDWIDTH_OPT = "interRegionBandwidth";
+    private static final String DURATION_OPT = "duration";
+    private static final String PROFILE_OPT = "profile";
+    private static final String BACKGROUND_FLOWS_OPT = "backgroundFlows";
+    private static final String HELP_OPT = "help";
+
+    /**
+     * @param args
+     *            see the help output
+     */
+    public static void main(final String[] args) {
+        LogExceptionHandler.registerExceptionHandler();
+
+        final ScenarioParameters parameters = new ScenarioParameters();
+
+        final Options options = new Options();
+        options.addRequiredOption("o", OUTPUT_OPT, true, "Directory to write the scenario and demand to");
+        options.addOption(null, SEED_OPT, true, "Seed for the random choices (default: " + parameters.getSeed() + ")");
+        options.addOption(null, REGIONS_OPT, true,
+                "Number of regions (default: " + parameters.getNumRegions() + ")");
+        options.addOption(null, NCPS_OPT, true,
+                "Number of NCPs in each region (default: " + parameters.getNcpsPerRegion() + ")");
+        options.addOption(null, CLIENTS_OPT, true,
+                "Number of client pools (default: " + parameters.getNumClients() + ")");
+        options.addOption(null, SERVICES_OPT, true,
+                "Number of services (default: " + parameters.getNumServices() + ")");
+        options.addOption(null, DEPENDENCY_PROBABILITY_OPT, true,
+                "Probability that a service depends on each earlier service (default: "
+                        + parameters.getDependencyProbability() + ")");
+        options.addOption(null, INTRA_REGION_BANDWIDTH_OPT, true,
+                "Bandwidth of links inside a region in kbps (default: " + parameters.getIntraRegionBandwidth()
+                        + ")");
+        options.addOption(null, INTER_REGION_BANDWIDTH_OPT, true,
+                "Bandwidth of links between regions in kbps (default: " + parameters.getInterRegionBandwidth()
+                        + ")");
+        options.addOption(null, DURATION_OPT, true,
+                "Seconds of demand to generate (default: " + parameters.getDemandDuration().getSeconds() + ")");
+        options.addOption(null, PROFILE_OPT, true, "Demand profile, one of "
+                + Arrays.toString(DemandProfile.values()) + " (default: " + parameters.getProfile() + ")");
+        options.addOption(null, BACKGROUND_FLOWS_OPT, true,
+                "Number of background traffic flows (default: " + parameters.getNumBackgroundFlows() + ")");
+        options.addOption("h", HELP_OPT, false, "Show the help");
+
+        final CommandLineParser parser = new DefaultParser();
+        try {
+            final CommandLine cmd = parser.parse(options, args);
+
+            if (cmd.hasOption(HELP_OPT)) {
+                printUsage(options);
+                System.exit(0);
+            }
+
+            if (cmd.hasOption(SEED_OPT)) {
+                parameters.setSeed(Long.parseLong(cmd.getOptionValue(SEED_OPT)));
+            }
+            if (cmd.hasOption(REGIONS_OPT)) {
+                parameters.setNumRegions(Integer.parseInt(cmd.getOptionValue(REGIONS_OPT)));
+            }
+            if (cmd.hasOption(NCPS_OPT)) {
+                parameters.setNcpsPerRegion(Integer.parseInt(cmd.getOptionValue(NCPS_OPT)));
+            }
+            if (cmd.hasOption(CLIENTS_OPT)) {
+                parameters.setNumClients(Integer.parseInt(cmd.getOptionValue(CLIENTS_OPT)));
+            }
+            if (cmd.hasOption(SERVICES_OPT)) {
+                parameters.setNumServices(Integer.parseInt(cmd.getOptionValue(SERVICES_OPT)));
+            }
+            if (cmd.hasOption(DEPENDENCY_PROBABILITY_OPT)) {
+                parameters.setDependencyProbability(
+                        Double.parseDouble(cmd.getOptionValue(DEPENDENCY_PROBABILITY_OPT)));
+            }
+            if (cmd.hasOption(INTRA_REGION_BANDWIDTH_OPT)) {
+                parameters.setIntraRegionBandwidth(
+                        Double.parseDouble(cmd.getOptionValue(INTRA_REGION_BANDWIDTH_OPT)));
+            }
+            if (cmd.hasOption(INTER_REGION_BANDWIDTH_OPT)) {
+                parameters.setInterRegionBandwidth(
+                        Double.parseDouble(cmd.getOptionValue(INTER_REGION_BANDWIDTH_OPT)));
+            }
+            if (cmd.hasOption(DURATION_OPT)) {
+                parameters.setDemandDuration(Duration.ofSeconds(Long.parseLong(cmd.getOptionValue(DURATION_OPT))));
+            }
+            if (cmd.hasOption(PROFILE_OPT)) {
+                parameters.setProfile(DemandProfile.valueOf(cmd.getOptionValue(PROFILE_OPT).toUpperCase(Locale.US)));
+            }
+            if (cmd.hasOption(BACKGROUND_FLOWS_OPT)) {
+                parameters.setNumBackgroundFlows(Integer.parseInt(cmd.getOptionValue(BACKGROUND_FLOWS_OPT)));
+            }
+
+            generate(parameters, Paths.get(cmd.getOptionValue(OUTPUT_OPT)));
+
+            System.exit(0);
+        } catch (final ParseException e) {
+            LOGGER.error("An error occurred parsing the command line: " + e.getMessage());
+            printUsage(options);
+            System.exit(1);
+        } catch (final NumberFormatException e) {
+            LOGGER.error("Unable to parse a number on the command line: " + e.getMessage());
+            printUsage(options);
+            System.exit(1);
+        } catch (final IllegalArgumentException e) {
+            LOGGER.error("Invalid value on the command line: " + e.getMessage());
+            printUsage(options);
+            System.exit(1);
+        } catch (final IOException e) {
+            LOGGER.error("Error writing the scenario: " + e.getMessage(), e);
+            System.exit(1);
+        }
+    }
+
+    private static void printUsage(final Options options) {
+        new HelpFormatter().printHelp(ScenarioGenerator.class.getSimpleName(), options);
+    }
+
+}
@@ -0,0 +1,610 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.scenario;
+
+import java.time.Duration;
+
+import javax.annotation.Nonnull;
+
+/**
+ * The parameters for {@link ScenarioGenerator}. The defaults produce a small
+ * scenario that runs quickly.
+ */
+public final class ScenarioParameters {
+
+    private long seed = 0;
+
+    /**
+     * @return the seed for the random number generator, the same parameters and
+     *         seed produce the same scenario, defaults to 0
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * 
+     * @param v
+     *            see {@link #getSeed()}
+     */
+    public void setSeed(final long v) {
+        seed = v;
+    }
+
+    private int numRegions = 4;
+
+    /**
+     * @return the number of regions, defaults to 4
+     */
+    public int getNumRegions() {
+        return numRegions;
+    }
+
+    /**
+     * 
+     * @param v
+     *            see {@link #getNumRegions()}
+     * @throws IllegalArgumentException
+     *             if the value is not valid
+     */
+    public void setNumRegions(final int v) {
+        if (v < 1) {
+            throw new IllegalArgumentException("The number of regions must be at least 1");
+        }
+
+        numRegions = v;
+    }
+
+    private int ncpsPerRegion = 5;
+
+    /**
+     * @return the number of NCPs in each region, the first NCP in each region
+     *         runs DCOP, RLG and DNS, defaults to 5
+     */
+    public int getNcpsPerRegion() {
+        return ncpsPerRegion;
+    }
+
+    /**
+     * 
+     * @param v
+     *            see {@link #getNcpsPerRegion()}
+     * @throws IllegalArgumentException
+     *             if the value is not valid
+     */
+    public void setNcpsPerRegion(final int v) {
+        if (v < 1) {
+            throw new IllegalArgumentException("The number of NCPs per region must be at least 1");
+        }
+
+        ncpsPerRegion = v;
+    }
+
+    private int numClients = 8;
+
+    /**
+     * @return the number of client pools, they are spread evenly across the
+     *         regions, defaults to 8
+     */
+    public int getNumClients() {
+        return numClients;
+    }
+
+    /**
+     * 
+     * @param v
+     *            see {@link #getNumClients()}
+     * @throws IllegalArgumentException
+     *             if the value is not valid
+     */
+    public void setNumClients(final int v) {
+        if (v < 0) {
+            throw new IllegalArgumentException("The number of clients cannot be negative");
+        }
+
+        numClients = v;
+    }
+
+    private int numServices = 4;
+
+    /**
+     * @return the number of services, defaults to 4
+     */
+    public int getNumServices() {
+        return numServices;
+    }
+
+    /**
+     * 
+     * @param v
+     *            see {@link #getNumServices()}
+     * @throws IllegalArgumentException
+     *             if the value is not valid
+     */
+    public void setNumServices(final int v) {
+        if (v < 1) {
+            throw new IllegalArgumentException("The number of services must be at least 1");
+        }
+
+        numServices = v;
+    }
+
+    private double dependencyProbability = 0.3;
+
+    /**
+     * @return the probability that a service depends on each service created
+     *         before it, this keeps the dependency graph acyclic, defaults to
+     *         0.3
+     */
+    public double getDependencyProbability() {
+        return dependencyProbability;
+    }
+
+    /**
+     * 
+     * @param v
+     *            see {@link #getDependencyProbability()}
+     * @throws IllegalArgumentException
+     *             if the value is not valid
+     */
+    public void setDependencyProbability(final double v) {
+        if (v < 0 || 1 < v) {
+            throw new IllegalArgumentException("The dependency probability must be between 0 and 1");
+        }
+
+        dependencyProbability = v;
+    }
+
+    private int ncpContainers = 10;
+
+    /**
+     * @return the number of containers that each NCP can run, defaults to 10
+     */
+    public int getNcpContainers() {
+        return ncpContainers;
+    }
+
+    /**
+     * 
+     * @param v
+     *            see {@link #getNcpContainers()}
+     * @throws IllegalArgumentException
+     *             if the value is not valid
+     */
+    public void setNcpContainers(final int v) {
+        if (v < 1) {
+            throw new IllegalArgumentException("The number of containers must be at least 1");
+        }
+
+        ncpContainers = v;
+    }
+
+    private double intraRegionBandwidth = 100000;
+
+    /**
+     * @return the bandwidth of the links between NCPs in the same region in
+     *         kbps, defaults to 100000
+     */
+    public double getIntraRegionBandwidth() {
+        return intraRegionBandwidth;
+    }
+
+    /**
+     * 
+     * @param v
+     *            see {@link #getIntraRegionBandwidth()}
+     * @throws IllegalArgumentException
+     *             if the value is not valid
+     */
+    public void setIntraRegionBandwidth(final double v) {
+        if (v <= 0) {
+            throw new IllegalArgumentException("Bandwidth must be positive");
+        }
+
+        intraRegionBandwidth = v;
+    }
+
+    private double interRegionBandwidth = 10000;
+
+    /**
+     * @return the bandwidth of the links between regions in kbps, defaults to
+     *         10000
+     */
+    public double getInterRegionBandwidth() {
+        return interRegionBandwidth;
+    }
+
+    /**
+     * 
+     * @param v
+     *            see {@link #getInterRegionBandwidth()}
+     * @throws IllegalArgumentException
+     *             if the value is not valid
+     */
+    public void setInterRegionBandwidth(final double v) {
+        if (v <= 0) {
+            throw new IllegalArgumentException("Bandwidth must be positive");
+        }
+
+        interRegionBandwidth = v;
+    }
+
+    private double clientBandwidth = 100000;
+
+    /**
+     * @return the bandwidth of the links between clients and NCPs in kbps,
+     *         defaults to 100000
+     */
+    public double getClientBandwidth() {
+        return clientBandwidth;
+    }
+
+    /**
+     * 
+     * @param v
+     *            see {@link #getClientBandwidth()}
+     * @throws IllegalArgumentException
+     *             if the value is not valid
+     */
+    public void setClientBandwidth(final double v) {
+        if (v <= 0) {
+            throw new IllegalArgumentException("Bandwidth must be positive");
+        }
+
+        clientBandwidth = v;
+    }
+
+    private double interRegionLinkProbability = 0.1;
+
+    /**
+     * @return the regions are connected in a ring, this is the probability of
+     *         an additional link between each other pair of regions, defaults
+     *         to 0.1
+     */
+    public double getInterRegionLinkProbability() {
+        return interRegionLinkProbability;
+    }
+
+    /**
+     * 
+     * @param v
+     *            see {@link #getInterRegionLinkProbability()}
+     * @throws IllegalArgumentException
+     *             if the value is not valid
+     */
+    public void setInterRegionLinkProbability(final double v) {
+        if (v < 0 || 1 < v) {
+            throw new IllegalArgumentException("The inter-region link probability must be between 0 and 1");
+        }
+
+        interRegionLinkProbability = v;
+    }
+
+    private Duration demandDuration = Duration.ofMinutes(10);
+
+    /**
+     * @return how long the generated demand lasts, defaults to 10 minutes
+     */
+    @Nonnull
+    public Duration getDemandDuration() {
+        return demandDuration;
+    }
+
+    /**
+     * 
+     * @param v
+     *            see {@link #getDemandDuration()}
+     * @throws IllegalArgumentException
+     *             if the value is not valid
+     */
+    public void setDemandDuration(@Nonnull final Duration v) {
+        if (v.isNegative() || v.isZero()) {
+            throw new IllegalArgumentException("The demand duration must be positive");
+        }
+
+        demandDuration = v;
+    }
+
+    private Duration requestInterval = Duration.ofSeconds(10);
+
+    /**
+     * @return the time between requests from each client, defaults to 10
+     *         seconds
+     */
+    @Nonnull
+    public Duration getRequestInterval() {
+        return requestInterval;
+    }
+
+    /**
+     * 
+     * @param v
+     *            see {@link #getRequestInterval()}
+     * @throws IllegalArgumentException
+     *             if the value is not valid
+     */
+    public void setRequestInterval(@Nonnull final Duration v) {
+        if (v.isNegative() || v.isZero()) {
+            throw new IllegalArgumentException("The request interval must be positive");
+        }
+
+        requestInterval = v;
+    }
+
+    private Duration requestDuration = Duration.ofSeconds(30);
+
+    /**
+     * @return the server and network duration of each request, defaults to 30
+     *         seconds
+     */
+    @Nonnull
+    public Duration getRequestDuration() {
+        return requestDuration;
+    }
+
+    /**
+     * 
+     * @param v
+     *            see {@link #getRequestDuration()}
+     * @throws IllegalArgumentException
+     *             if the value is not valid
+     */
+    public void setRequestDuration(@Nonnull final Duration v) {
+        if (v.isNegative() || v.isZero()) {
+            throw new IllegalArgumentException("The request duration must be positive");
+        }
+
+        requestDuration = v;
+    }
+
+    private int clientsPerRequest = 2;
+
+    /**
+     * @return the number of clients in each request before applying the demand
+     *         profile, defaults to 2
+     */
+    public int getClientsPerRequest() {
+        return clientsPerRequest;
+    }
+
+    /**
+     * 
+     * @param v
+     *            see {@link #getClientsPerRequest()}
+     * @throws IllegalArgumentException
+     *             if the value is not valid
+     */
+    public void setClientsPerRequest(final int v) {
+        if (v < 1) {
+            throw new IllegalArgumentException("The number of clients per request must be at least 1");
+        }
+
+        clientsPerRequest = v;
+    }
+
+    private double requestLoad = 0.2;
+
+    /**
+     * @return the TASK_CONTAINERS load of each client in a request, defaults to
+     *         0.2
+     */
+    public double getRequestLoad() {
+        return requestLoad;
+    }
+
+    /**
+     * 
+     * @param v
+     *            see {@link #getRequestLoad()}
+     * @throws IllegalArgumentException
+     *             if the value is not valid
+     */
+    public void setRequestLoad(final double v) {
+        if (v < 0) {
+            throw new IllegalArgumentException("The request load cannot be negative");
+        }
+
+        requestLoad = v;
+    }
+
+    private double requestDatarate = 5;
+
+    /**
+     * @return the DATARATE_TX and DATARATE_RX load of each client in a request,
+     *         defaults to 5
+     */
+    public double getRequestDatarate() {
+        return requestDatarate;
+    }
+
+    /**
+     * 
+     * @param v
+     *            see {@link #getRequestDatarate()}
+     * @throws IllegalArgumentException
+     *             if the value is not valid
+     */
+    public void setRequestDatarate(final double v) {
+        if (v < 0) {
+            throw new IllegalArgumentException("The request datarate cannot be negative");
+        }
+
+        requestDatarate = v;
+    }
+
+    private DemandProfile profile = DemandProfile.DIURNAL;
+
+    /**
+     * @return how the number of clients in each request changes over time,
+     *         defaults to {@link DemandProfile#DIURNAL}
+     */
+    @Nonnull
+    public DemandProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * 
+     * @param v
+     *            see {@link #getProfile()}
+     */
+    public void setProfile(@Nonnull final DemandProfile v) {
+        profile = v;
+    }
+
+    private Duration diurnalPeriod = Duration.ofMinutes(10);
+
+    /**
+     * @return the period of {@link DemandProfile#DIURNAL}, defaults to 10
+     *         minutes
+     */
+    @Nonnull
+    public Duration getDiurnalPeriod() {
+        return diurnalPeriod;
+    }
+
+    /**
+     * 
+     * @param v
+     *            see {@link #getDiurnalPeriod()}
+     * @throws IllegalArgumentException
+     *             if the value is not valid
+     */
+    public void setDiurnalPeriod(@Nonnull final Duration v) {
+        if (v.isNegative() || v.isZero()) {
+            throw new IllegalArgumentException("The diurnal period must be positive");
+        }
+
+        diurnalPeriod = v;
+    }
+
+    private double burstProbability = 0.05;
+
+    /**
+     * @return the probability that a request is a burst for {@link
+     *         DemandProfile#BURSTY}, defaults to 0.05
+     */
+    public double getBurstProbability() {
+        return burstProbability;
+    }
+
+    /**
+     * 
+     * @param v
+     *            see {@link #getBurstProbability()}
+     * @throws IllegalArgumentException
+     *             if the value is not valid
+     */
+    public void setBurstProbability(final double v) {
+        if (v < 0 || 1 < v) {
+            throw new IllegalArgumentException("The burst probability must be between 0 and 1");
+        }
+
+        burstProbability = v;
+    }
+
+    private double burstMultiplier = 4;
+
+    /**
+     * @return how many times more clients are in a burst for {@link
+     *         DemandProfile#BURSTY}, defaults to 4
+     */
+    public double getBurstMultiplier() {
+        return burstMultiplier;
+    }
+
+    /**
+     * 
+     * @param v
+     *            see {@link #getBurstMultiplier()}
+     * @throws IllegalArgumentException
+     *             if the value is not valid
+     */
+    public void setBurstMultiplier(final double v) {
+        if (v < 1) {
+            throw new IllegalArgumentException("The burst multiplier must be at least 1");
+        }
+
+        burstMultiplier = v;
+    }
+
+    private int numBackgroundFlows = 4;
+
+    /**
+     * @return the number of background traffic flows between NCPs, defaults to
+     *         4
+     */
+    public int getNumBackgroundFlows() {
+        return numBackgroundFlows;
+    }
+
+    /**
+     * 
+     * @param v
+     *            see {@link #getNumBackgroundFlows()}
+     * @throws IllegalArgumentException
+     *             if the value is not valid
+     */
+    public void setNumBackgroundFlows(final int v) {
+        if (v < 0) {
+            throw new IllegalArgumentException("The number of background flows cannot be negative");
+        }
+
+        numBackgroundFlows = v;
+    }
+
+    private double backgroundDatarate = 10;
+
+    /**
+     * @return the DATARATE_TX and DATARATE_RX of each background flow, defaults
+     *         to 10
+     */
+    public double getBackgroundDatarate() {
+        return backgroundDatarate;
+    }
+
+    /**
+     * 
+     * @param v
+     *            see {@link #getBackgroundDatarate()}
+     * @throws IllegalArgumentException
+     *             if the value is not valid
+     */
+    public void setBackgroundDatarate(final double v) {
+        if (v < 0) {
+            throw new IllegalArgumentException("The background datarate cannot be negative");
+        }
+
+        backgroundDatarate = v;
+    }
+
+}
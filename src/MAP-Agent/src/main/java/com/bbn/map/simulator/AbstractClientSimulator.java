@@ -444,13 +444,38 @@ import com.google.common.collect.ImmutableMap;
         this.interrupt();
     }
 
+    private Runnable simulatorTask = null;
+
     /**
-     * Start the simulator.
+     * Start the simulator. With a {@link DiscreteEventClock} the simulator is
+     * an actor from the time that this method is called so that time cannot
+     * advance before the thread has started.
      */
     public void startSimulator() {
+        simulatorTask = DiscreteEventClock.wrapActor(getSimulation().getClock(), this::simulate);
         start();
     }
 
+    /**
+     * Runs {@link #simulate()}, use {@link #startSimulator()} to start the
+     * thread.
+     */
+    @Override
+    public final void run() {
+        if (null == simulatorTask) {
+            simulate();
+        } else {
+            simulatorTask.run();
+        }
+    }
+
+    /**
+     * Run the simulator. The thread will execute until either
+     * {@link #shutdownSimulator()} is called or all requests have been
+     * dispatched and their durations completed.
+     */
+    protected abstract void simulate();
+
     /**
      * @throws IllegalArgumentException
      *             if a network node with the specified id cannot be found
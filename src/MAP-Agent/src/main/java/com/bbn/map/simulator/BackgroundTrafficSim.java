@@ -31,6 +31,7 @@ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 BBN_LICENSE_END*/
 package com.bbn.map.simulator;
 
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -65,17 +66,51 @@ public class BackgroundTrafficSim extends AbstractClientSimulator {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(BackgroundTrafficSim.class);
 
-    private final BaseClientState state;
+    private BaseClientState state;
 
+    /**
+     * Null when the requests are streamed from {@link #backgroundTrafficFile}.
+     */
     private final ImmutableList<BackgroundNetworkLoad> requests;
 
+    private final Path backgroundTrafficFile;
+
     /**
+     * When the requests are streamed this reads the whole file, use
+     * {@link #openRequests()} to avoid holding all of the requests in memory.
      * 
      * @return the demand that will be put on the network.
+     * @see SimulationConfiguration#getDemandWindow()
      */
     @JsonIgnore
     public ImmutableList<BackgroundNetworkLoad> getRequests() {
-        return requests;
+        if (null != requests) {
+            return requests;
+        } else {
+            return BackgroundNetworkLoad.parseBackgroundTraffic(backgroundTrafficFile);
+        }
+    }
+
+    /**
+     * If there is an error reading the requests, the error is logged and the
+     * requests are ignored.
+     * 
+     * @return the demand that will be put on the network sorted by start
+     *         time, the caller is responsible for closing the stream
+     * @see SimulationConfiguration#getDemandWindow()
+     */
+    @Nonnull
+    public DemandStream<BackgroundNetworkLoad> openRequests() {
+        if (null != requests) {
+            return DemandStream.of(requests);
+        }
+
+        try {
+            return DemandStream.open(backgroundTrafficFile, BackgroundNetworkLoad.class);
+        } catch (final IOException e) {
+            LOGGER.error("Error reading background traffic from " + backgroundTrafficFile + ", ignoring file", e);
+            return DemandStream.of(ImmutableList.of());
+        }
     }
 
     /**
@@ -89,12 +124,15 @@ public class BackgroundTrafficSim extends AbstractClientSimulator {
     public BackgroundTrafficSim(@Nonnull final Simulation simulation, final Path backgroundTrafficFile) {
         super(simulation);
 
+        this.backgroundTrafficFile = backgroundTrafficFile;
         if (null == backgroundTrafficFile) {
             this.requests = ImmutableList.of();
         } else {
             if (!Files.exists(backgroundTrafficFile)) {
                 LOGGER.debug("Cannot find {}, skipping", backgroundTrafficFile);
                 this.requests = ImmutableList.of();
+            } else if (SimulationConfiguration.getInstance().getDemandWindow() > 0) {
+                this.requests = null;
             } else {
                 this.requests = BackgroundNetworkLoad.parseBackgroundTraffic(backgroundTrafficFile);
             }
@@ -119,13 +157,16 @@ public class BackgroundTrafficSim extends AbstractClientSimulator {
      * dispatched and their durations completed.
      */
     @Override
-    public void run() {
+    protected void simulate() {
         setRunnning();
 
         if (LOGGER.isInfoEnabled()) {
             LOGGER.info("Starting background traffic thread");
         }
         final VirtualClock clock = getSimulation().getClock();
+        // the simulator is started before the clock when resuming from a
+        // checkpoint
+        clock.waitForClockStart();
 
         final ThreadLocalObjectWriter mapper = new ThreadLocalObjectWriter();
 
@@ -134,11 +175,20 @@ public class BackgroundTrafficSim extends AbstractClientSimulator {
         long numRequests = 0;
         long totalRequestStartDelay = 0;
 
-        for (final BackgroundNetworkLoad request : this.requests) {
+        final DemandStream<BackgroundNetworkLoad> requests = openRequests();
+        while (requests.hasNext()) {
             if (!isRunning()) {
                 break;
             }
 
+            final BackgroundNetworkLoad request = requests.next();
+            if (request.getStartTime() < resumeTime) {
+                // the load of the request is part of the checkpoint
+                latestEndOfRequest = Math.max(latestEndOfRequest,
+                        request.getStartTime() + request.getNetworkDuration());
+                continue;
+            }
+
             if (LOGGER.isTraceEnabled()) {
                 LOGGER.trace("Waiting for request start time: " + request.getStartTime());
             }
@@ -184,6 +234,8 @@ public class BackgroundTrafficSim extends AbstractClientSimulator {
 
         } // while running and demand left
 
+        requests.close();
+
         LOGGER.info("Waiting until {} when the latest request will finish", latestEndOfRequest);
         clock.waitUntilTime(latestEndOfRequest);
 
@@ -195,6 +247,23 @@ public class BackgroundTrafficSim extends AbstractClientSimulator {
         }
     }
 
+    private long resumeTime = 0;
+
+    /**
+     * Resume the simulator from a {@link SimulationCheckpoint}. Requests that
+     * started before the checkpoint are skipped, their load is restored with
+     * the checkpoint. Must be called before the simulator is started.
+     * 
+     * @param time
+     *            the time of the checkpoint
+     * @param checkpointState
+     *            the state of the simulator at the checkpoint
+     */
+    /* package */ void resumeAt(final long time, @Nonnull final BaseClientState checkpointState) {
+        resumeTime = time;
+        state = checkpointState;
+    }
+
     /**
      * <code>destNode</code> and <code>destinationIdentifier</code> will be
      * different when <code>destContainer</code> is specified.
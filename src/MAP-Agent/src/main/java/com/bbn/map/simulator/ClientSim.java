@@ -31,26 +31,33 @@ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 BBN_LICENSE_END*/
 package com.bbn.map.simulator;
 
+import java.io.IOException;
 import java.net.UnknownHostException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.LongAccumulator;
+import java.util.stream.Collectors;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import org.apache.logging.log4j.CloseableThreadContext;
 import org.slf4j.Logger;
@@ -62,6 +69,8 @@ import com.bbn.map.common.value.ApplicationCoordinates;
 import com.bbn.map.common.value.ApplicationSpecification;
 import com.bbn.map.common.value.Dependency;
 import com.bbn.map.common.value.DependencyDemandFunction;
+import com.bbn.map.metrics.Counter;
+import com.bbn.map.metrics.MetricsRegistry;
 import com.bbn.protelis.networkresourcemanagement.LinkAttribute;
 import com.bbn.protelis.networkresourcemanagement.NetworkClient;
 import com.bbn.protelis.networkresourcemanagement.NetworkLink;
@@ -87,17 +96,74 @@ import com.google.common.util.concurrent.ThreadFactoryBuilder;
 public class ClientSim extends AbstractClientSimulator {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ClientSim.class);
+
+    private static final Counter REQUESTS_DOWN_NODE = MetricsRegistry.getInstance()
+            .counter("client.request.downNode");
+    private static final Map<RequestResult, Counter> NETWORK_RESULTS = createResultCounters("client.request.network");
+    private static final Map<RequestResult, Counter> SERVER_RESULTS = createResultCounters("client.request.server");
+
+    private static Map<RequestResult, Counter> createResultCounters(final String prefix) {
+        final Map<RequestResult, Counter> counters = new EnumMap<>(RequestResult.class);
+        for (final RequestResult result : RequestResult.values()) {
+            counters.put(result, MetricsRegistry.getInstance().counter(prefix + "." + result.name()));
+        }
+        return counters;
+    }
     private final NetworkClient client;
 
+    /**
+     * Null when the demand is streamed from {@link #clientDemandPath}.
+     */
     private final ImmutableList<ClientLoad> clientRequests;
 
     /**
+     * Null if there is no demand file.
+     */
+    private final Path clientDemandPath;
+
+    /**
+     * Number of requests to read ahead of the simulated time.
+     */
+    private final int demandWindow;
+
+    /**
+     * When the demand is streamed this reads the whole demand file, use
+     * {@link #openClientDemand()} to avoid holding all of the demand in
+     * memory.
      * 
      * @return the demand that this client will put on the network.
+     * @see SimulationConfiguration#getDemandWindow()
      */
     @JsonIgnore
     public ImmutableList<ClientLoad> getClientRequests() {
-        return clientRequests;
+        if (null != clientRequests) {
+            return clientRequests;
+        } else {
+            return ClientLoad.parseClientDemand(clientDemandPath);
+        }
+    }
+
+    /**
+     * If there is an error reading the demand, the error is logged and the
+     * demand is ignored.
+     * 
+     * @return the demand that this client will put on the network sorted by
+     *         start time, the caller is responsible for closing the stream
+     * @see SimulationConfiguration#getDemandWindow()
+     */
+    @Nonnull
+    public DemandStream<ClientLoad> openClientDemand() {
+        if (null != clientRequests) {
+            return DemandStream.of(clientRequests);
+        }
+
+        try {
+            return DemandStream.open(clientDemandPath, ClientLoad.class);
+        } catch (final IOException e) {
+            LOGGER.error("Error reading client demand from " + clientDemandPath + ", ignoring client demand file",
+                    e);
+            return DemandStream.of(ImmutableList.of());
+        }
     }
 
     /**
@@ -115,16 +181,25 @@ public class ClientSim extends AbstractClientSimulator {
 
         this.client = client;
 
+        final int window = SimulationConfiguration.getInstance().getDemandWindow();
         if (null == demandPath) {
+            this.clientDemandPath = null;
             this.clientRequests = ImmutableList.of();
+            this.demandWindow = Integer.MAX_VALUE;
         } else {
             final String demandFilename = String.format("%s.json", client.getNodeIdentifier().getName());
-            final Path clientDemandPath = demandPath.resolve(demandFilename);
+            this.clientDemandPath = demandPath.resolve(demandFilename);
 
             if (!Files.exists(clientDemandPath)) {
                 LOGGER.warn("Cannot find {}", clientDemandPath);
             }
-            this.clientRequests = ClientLoad.parseClientDemand(clientDemandPath);
+            if (window > 0) {
+                this.clientRequests = null;
+                this.demandWindow = window;
+            } else {
+                this.clientRequests = ClientLoad.parseClientDemand(clientDemandPath);
+                this.demandWindow = Integer.MAX_VALUE;
+            }
         }
 
         state = new ClientState(this);
@@ -132,13 +207,28 @@ public class ClientSim extends AbstractClientSimulator {
 
     private static final long IDLE_THREAD_TIMEOUT_MINUTES = 5;
 
+    private static final int INITIAL_QUEUE_CAPACITY = 11;
+
+    /**
+     * Requests waiting to be executed. Dependent requests are added by the
+     * threads executing requests.
+     */
+    private final PriorityBlockingQueue<QueueEntry> runQueue = new PriorityBlockingQueue<>(INITIAL_QUEUE_CAPACITY,
+            QueueComparator.INSTANCE);
+
+    /**
+     * Simulated time to wait for outstanding requests when using a
+     * {@link DiscreteEventClock}.
+     */
+    private static final long DISCRETE_EVENT_POLL_INTERVAL_MS = 1;
+
     /**
      * Run the simulator. The thread will execute until either
      * {@link #shutdownSimulator()} is called or all client requests have been
      * dispatched and their durations completed.
      */
     @Override
-    public void run() {
+    protected void simulate() {
         setRunnning();
 
         final ThreadFactory threadPoolFactory = new ThreadFactoryBuilder().setNameFormat("clientSim" + "-%d").build();
@@ -149,27 +239,38 @@ public class ClientSim extends AbstractClientSimulator {
             LOGGER.info("Starting client sim thread");
         }
         final VirtualClock clock = getSimulation().getClock();
+        final boolean discreteEvent = DiscreteEventClock.isDiscreteEvent(clock);
+        // the simulator is started before the clock when resuming from a
+        // checkpoint
+        clock.waitForClockStart();
 
-        final PriorityQueue<QueueEntry> runQueue = new PriorityQueue<>(QueueComparator.INSTANCE);
+        resumedDependentRequests
+                .forEach(r -> runQueue.add(new QueueEntry(r.getClient(), r.getRequest(), true)));
+
+        final DemandStream<ClientLoad> demand = openClientDemand();
 
         // create the initial queue of requests
-        this.clientRequests.forEach(req -> {
-            final QueueEntry entry = new QueueEntry(this.client.getNodeIdentifier(), req);
-            runQueue.add(entry);
-        });
+        fillRunQueue(demand);
 
         final ApplicationManagerApi applicationManager = AppMgrUtils.getApplicationManager();
 
         final ThreadLocalObjectWriter mapper = new ThreadLocalObjectWriter();
 
-        final LongAccumulator latestEndOfRequest = new LongAccumulator(Long::max, 0);
+        final LongAccumulator latestEndOfRequest = new LongAccumulator(Long::max, resumedLatestEndOfRequest);
 
         long numRequests = 0;
         long totalRequestStartDelay = 0;
 
         List<Future<?>> requestFutures = new LinkedList<>();
 
-        while (isRunning() && !(runQueue.isEmpty() && requestFutures.isEmpty())) {
+        // in the order that they started waiting so that a serial clock
+        // releases them in the same order as without the checkpoint
+        for (final SimulationCheckpoint.PendingRetry retry : resumedRetries) {
+            requestFutures.add(threadPool.submit(DiscreteEventClock.wrapActor(clock,
+                    () -> resumeRetry(mapper, applicationManager, retry, latestEndOfRequest))));
+        }
+
+        while (isRunning() && !(runQueue.isEmpty() && requestFutures.isEmpty() && !demand.hasNext())) {
             // prune finished futures
             final Iterator<Future<?>> futureIter = requestFutures.iterator();
             while (futureIter.hasNext()) {
@@ -179,9 +280,27 @@ public class ClientSim extends AbstractClientSimulator {
                 }
             }
 
+            fillRunQueue(demand);
+
             if (runQueue.isEmpty()) {
                 // this happens if there are request futures and no more items
                 // in the queue
+                if (discreteEvent) {
+                    // let time advance for requests that are waiting to retry
+                    clock.waitForDuration(DISCRETE_EVENT_POLL_INTERVAL_MS);
+                }
+                continue;
+            }
+
+            final QueueEntry head = runQueue.peek();
+            if (null != head && head.getClientLoad().getStartTime() > clock.getCurrentTime()) {
+                if (LOGGER.isTraceEnabled()) {
+                    LOGGER.trace("Waiting for request start time: " + head.getClientLoad().getStartTime());
+                }
+
+                // the request stays in the queue while waiting so that it is
+                // part of a checkpoint taken in the mean time
+                clock.waitUntilTime(head.getClientLoad().getStartTime());
                 continue;
             }
 
@@ -194,12 +313,6 @@ public class ClientSim extends AbstractClientSimulator {
 
             final NodeIdentifier clientId = entry.getClient();
             final ClientLoad req = entry.getClientLoad();
-
-            if (LOGGER.isTraceEnabled()) {
-                LOGGER.trace("Waiting for request start time: " + req.getStartTime());
-            }
-
-            clock.waitUntilTime(req.getStartTime());
             LOGGER.info("Applying client request: {} from {}", req, clientId);
 
             final long requestStartDelay = clock.getCurrentTime() - req.getStartTime();
@@ -222,12 +335,12 @@ public class ClientSim extends AbstractClientSimulator {
             final long startOfProcessing = System.currentTimeMillis();
             for (int clientIndex = 0; clientIndex < req.getNumClients(); ++clientIndex) {
                 final int idx = clientIndex;
-                final Future<?> future = threadPool.submit(() -> {
+                final Future<?> future = threadPool.submit(DiscreteEventClock.wrapActor(clock, () -> {
                     final long now = clock.getCurrentTime();
 
-                    simulateClientRequest(runQueue, mapper, service, appSpec, clientId, req, localClient, clientRegion,
+                    simulateClientRequest(mapper, service, appSpec, clientId, req, localClient, clientRegion,
                             now, latestEndOfRequest, idx);
-                });
+                }));
                 requestFutures.add(future);
             } // foreach client request
 
@@ -235,6 +348,8 @@ public class ClientSim extends AbstractClientSimulator {
             LOGGER.info("Took {} ms to process request", (endOfProcess - startOfProcessing));
         } // while running and demand left
 
+        demand.close();
+
         // wait for all futures to finish to ensure that latestEndOfRequest is
         // accurate
         requestFutures.forEach(Errors.rethrow().wrap(f -> {
@@ -252,8 +367,33 @@ public class ClientSim extends AbstractClientSimulator {
         }
     }
 
-    private void simulateClientRequest(final PriorityQueue<QueueEntry> runQueue,
-            final ThreadLocalObjectWriter mapper,
+    /**
+     * Move requests from the demand to the run queue. Requests are read until
+     * the queue holds {@link #demandWindow} entries and the next request
+     * starts after the first entry in the queue, so that the queue always
+     * contains the next request to execute.
+     */
+    private void fillRunQueue(final DemandStream<ClientLoad> demand) {
+        while (demand.hasNext()) {
+            final QueueEntry head = runQueue.peek();
+            if (runQueue.size() >= demandWindow && null != head
+                    && demand.peek().getStartTime() > head.getClientLoad().getStartTime()) {
+                break;
+            }
+
+            final ClientLoad req = demand.next();
+            if (req.getStartTime() >= resumeTime) {
+                final QueueEntry entry = new QueueEntry(this.client.getNodeIdentifier(), req, false);
+                runQueue.add(entry);
+            } else {
+                // the load of the request is part of the checkpoint
+                resumedLatestEndOfRequest = Math.max(resumedLatestEndOfRequest,
+                        req.getStartTime() + Math.max(req.getServerDuration(), req.getNetworkDuration()));
+            }
+        }
+    }
+
+    private void simulateClientRequest(final ThreadLocalObjectWriter mapper,
             final ApplicationCoordinates service,
             final ApplicationSpecification appSpec,
             final NodeIdentifier clientId,
@@ -285,6 +425,7 @@ public class ClientSim extends AbstractClientSimulator {
                 if (!destNode.isExecuting()) {
                     LOGGER.warn("Server {} is not running, cannot send request", destNode);
                     getSimulationState().incrementRequestsFailedForDownNode();
+                    REQUESTS_DOWN_NODE.increment();
 
                     dumpClientRequestRecord(new ClientRequestRecord(destNode.getNodeIdentifier(), destinationIdentifier,
                             now, req, 0, null, null, RequestResult.FAIL, true), mapper);
@@ -294,27 +435,8 @@ public class ClientSim extends AbstractClientSimulator {
                     return;
                 }
 
-                final boolean requestResult = executeRequest(clientId, destinationIdentifier, localClient, destNode,
-                        mapper, destContainer, clientRegion, now, req, latestEndOfRequest);
-                if (requestResult) {
-                    // Create dependent load for each successful
-                    // client
-                    // request. One might be able to combine
-                    // multiple
-                    // requests from common destContainer if this
-                    // creates too many requests.
-                    for (final Dependency dependency : appSpec.getDependencies()) {
-                        final ClientLoad dependentRequest = createDependentRequest(req, dependency);
-
-                        LOGGER.info("Created dependent demand {}", dependentRequest);
-                        final QueueEntry dependentEntry = new QueueEntry(destinationIdentifier, dependentRequest);
-                        runQueue.add(dependentEntry);
-                    }
-                } else {
-                    destNodeResMgr.addFailedRequest(clientId, destinationIdentifier, now + req.getServerDuration(),
-                            req.getNodeLoad(), now + req.getNetworkDuration(), req.getNetworkLoadAsAttribute());
-                }
-
+                sendRequest(mapper, appSpec, clientId, req, localClient, clientRegion, now, latestEndOfRequest,
+                        clientIndex, destContainer, null);
             } catch (final UnknownHostException uhe) {
                 LOGGER.warn("Error finding container for service: {}. Client request failed.", service, uhe);
 
@@ -322,6 +444,7 @@ public class ClientSim extends AbstractClientSimulator {
                         new ClientRequestRecord(null, null, now, req, 0, null, null, RequestResult.FAIL, true), mapper);
 
                 getSimulationState().incrementRequestsFailedForDownNode();
+                REQUESTS_DOWN_NODE.increment();
                 getSimulationState().incrementRequestsAttempted();
             }
 
@@ -336,6 +459,82 @@ public class ClientSim extends AbstractClientSimulator {
 
     }
 
+    /**
+     * Continue a request that was waiting to retry when the checkpoint that
+     * the simulator resumed from was taken.
+     */
+    private void resumeRetry(final ThreadLocalObjectWriter mapper,
+            final ApplicationManagerApi applicationManager,
+            final SimulationCheckpoint.PendingRetry retry,
+            final LongAccumulator latestEndOfRequest) {
+        final ClientLoad req = retry.getRequest();
+        try (CloseableThreadContext.Instance ctc = CloseableThreadContext.push(String.format("%d - %d of %d",
+                req.getStartTime(), retry.getClientIndex() + 1, req.getNumClients()))) {
+            final ApplicationSpecification appSpec = applicationManager.getApplicationSpecification(req.getService());
+            if (null == appSpec) {
+                throw new RuntimeException(
+                        "Unable to find application specification configuration for " + req.getService());
+            }
+
+            final ContainerSim destContainer = getSimulation().getContainerById(retry.getContainer());
+            if (null == destContainer) {
+                LOGGER.error("Cannot find container {} to retry {}, dropping the request", retry.getContainer(), req);
+                return;
+            }
+
+            final NetworkNode localClient = lookupNode(retry.getClient());
+            sendRequest(mapper, appSpec, retry.getClient(), req, localClient, localClient.getRegionIdentifier(),
+                    retry.getRequestTime(), latestEndOfRequest, retry.getClientIndex(), destContainer, retry);
+        }
+    }
+
+    /**
+     * Execute a request and queue the requests for its dependencies if it
+     * succeeds.
+     * 
+     * @param resumedRetry
+     *            see {@link #executeRequest(NodeIdentifier, NodeIdentifier,
+     *            NetworkNode, NetworkNode, ThreadLocalObjectWriter,
+     *            ContainerSim, RegionIdentifier, long, ClientLoad,
+     *            LongAccumulator, int, SimulationCheckpoint.PendingRetry)}
+     */
+    private void sendRequest(final ThreadLocalObjectWriter mapper,
+            final ApplicationSpecification appSpec,
+            final NodeIdentifier clientId,
+            final ClientLoad req,
+            final NetworkNode localClient,
+            final RegionIdentifier clientRegion,
+            final long now,
+            final LongAccumulator latestEndOfRequest,
+            final int clientIndex,
+            final ContainerSim destContainer,
+            @Nullable final SimulationCheckpoint.PendingRetry resumedRetry) {
+        final NodeIdentifier destinationIdentifier = destContainer.getIdentifier();
+        final NetworkServer destNode = destContainer.getParentNode();
+
+        final boolean requestResult = executeRequest(clientId, destinationIdentifier, localClient, destNode, mapper,
+                destContainer, clientRegion, now, req, latestEndOfRequest, clientIndex, resumedRetry);
+        if (requestResult) {
+            // Create dependent load for each successful
+            // client
+            // request. One might be able to combine
+            // multiple
+            // requests from common destContainer if this
+            // creates too many requests.
+            for (final Dependency dependency : appSpec.getDependencies()) {
+                final ClientLoad dependentRequest = createDependentRequest(req, dependency);
+
+                LOGGER.info("Created dependent demand {}", dependentRequest);
+                final QueueEntry dependentEntry = new QueueEntry(destinationIdentifier, dependentRequest, true);
+                runQueue.add(dependentEntry);
+            }
+        } else {
+            destNode.getResourceManager().addFailedRequest(clientId, destinationIdentifier,
+                    now + req.getServerDuration(), req.getNodeLoad(), now + req.getNetworkDuration(),
+                    req.getNetworkLoadAsAttribute());
+        }
+    }
+
     /**
      * @param req
      *            the original request
@@ -400,6 +599,12 @@ public class ClientSim extends AbstractClientSimulator {
      *            the request
      * @param latestEndOfRequest
      *            the current end of the last request
+     * @param clientIndex
+     *            which of the clients of the request this is
+     * @param resumedRetry
+     *            the retry to continue with when resuming from a
+     *            {@link SimulationCheckpoint}, null to start with the first
+     *            attempt
      * @return if the request succeeded
      */
     private boolean executeRequest(final NodeIdentifier clientId,
@@ -411,7 +616,9 @@ public class ClientSim extends AbstractClientSimulator {
             final RegionIdentifier clientRegion,
             final long now,
             final ClientLoad req,
-            final LongAccumulator latestEndOfRequest) {
+            final LongAccumulator latestEndOfRequest,
+            final int clientIndex,
+            @Nullable final SimulationCheckpoint.PendingRetry resumedRetry) {
 
         final NodeNetworkFlow flow = createNetworkFlow(clientId, destinationIdentifier);
 
@@ -419,19 +626,35 @@ public class ClientSim extends AbstractClientSimulator {
         final ImmutableMap<LinkAttribute, Double> networkLoadAsAttributeFlipped = req
                 .getNetworkLoadAsAttributeFlipped();
         final ApplicationCoordinates service = req.getService();
-        long networkDuration = req.getNetworkDuration();
-        long serverDuration = req.getServerDuration();
-        final long start = System.currentTimeMillis();
-        long reduceDuration = 0;
+        final long start;
+        long reduceDuration;
+        final int firstAttempt;
+        if (null == resumedRetry) {
+            start = getSimulation().getClock().getCurrentTime();
+            reduceDuration = 0;
+            firstAttempt = 0;
+        } else {
+            start = resumedRetry.getFirstAttemptTime();
+            reduceDuration = resumedRetry.getReduceDuration();
+            firstAttempt = resumedRetry.getAttempt();
+        }
+        long networkDuration = req.getNetworkDuration() - reduceDuration;
+        long serverDuration = req.getServerDuration() - reduceDuration;
 
         NetworkDemandApplicationResult networkResult = null;
         RequestResult serverResult = null;
-        for (int attempt = 0; attempt < MAX_ATTEMPTS; ++attempt) {
-            getSimulationState().incrementRequestsAttempted();
+        for (int attempt = firstAttempt; attempt < MAX_ATTEMPTS; ++attempt) {
+            if (null != resumedRetry && attempt == firstAttempt) {
+                // the attempt was counted and its delay chosen before the
+                // checkpoint
+                getSimulation().getClock().waitUntilTime(resumedRetry.getRetryTime());
+            } else {
+                getSimulationState().incrementRequestsAttempted();
+            }
 
-            if (attempt > 0) {
+            if (attempt > firstAttempt) {
                 // delay before a retry
-                final long diff = System.currentTimeMillis() - start;
+                final long diff = getSimulation().getClock().getCurrentTime() - start;
                 final long delayStart = getRetryDelay(req);
                 reduceDuration = reduceDuration + delayStart + diff;
                 networkDuration = req.getNetworkDuration() - reduceDuration;
@@ -449,10 +672,18 @@ public class ClientSim extends AbstractClientSimulator {
                     break;
                 }
 
+                final long retryId = nextRetryId.getAndIncrement();
+                waitingRetries.put(retryId,
+                        new SimulationCheckpoint.PendingRetry(clientId, destinationIdentifier, req, clientIndex, now,
+                                start, attempt, reduceDuration,
+                                getSimulation().getClock().getCurrentTime() + delayStart));
                 try {
-                    Thread.sleep(delayStart);
+                    // on the simulation clock when running as an actor
+                    DiscreteEventClock.sleep(delayStart);
                 } catch (final InterruptedException sleepEx) {
                     LOGGER.warn("Delayed start interrupted", sleepEx);
+                } finally {
+                    waitingRetries.remove(retryId);
                 }
             }
 
@@ -461,6 +692,7 @@ public class ClientSim extends AbstractClientSimulator {
                 if (networkPath.isEmpty()) {
                     LOGGER.warn("No path to {} from {}", destNode, localClient);
                     getSimulationState().incrementRequestsFailedForDownNode();
+                    REQUESTS_DOWN_NODE.increment();
 
                     dumpClientRequestRecord(new ClientRequestRecord(destNode.getNodeIdentifier(), destinationIdentifier,
                             now, req, 0, null, null, RequestResult.FAIL, true), mapper);
@@ -519,6 +751,10 @@ public class ClientSim extends AbstractClientSimulator {
                 linkLoads.size(), linkLoads, networkResult.result, serverResult, false), mapper);
 
         LOGGER.info("network result: {} server result: {}", networkResult.result, serverResult);
+        NETWORK_RESULTS.get(networkResult.result).increment();
+        if (!RequestResult.FAIL.equals(networkResult.result) && null != serverResult) {
+            SERVER_RESULTS.get(serverResult).increment();
+        }
         if (RequestResult.FAIL.equals(networkResult.result)) {
             getSimulationState().incrementRequestsFailedForNetworkLoad();
             LOGGER.info("Request for {} to {} failed for network load", req.getService().getArtifact(),
@@ -600,9 +836,12 @@ public class ClientSim extends AbstractClientSimulator {
      *
      */
     private static final class QueueEntry {
-        private QueueEntry(@Nonnull final NodeIdentifier client, @Nonnull final ClientLoad clientLoad) {
+        private QueueEntry(@Nonnull final NodeIdentifier client,
+                @Nonnull final ClientLoad clientLoad,
+                final boolean dependent) {
             this.client = client;
             this.clientLoad = clientLoad;
+            this.dependent = dependent;
         }
 
         private final NodeIdentifier client;
@@ -618,6 +857,16 @@ public class ClientSim extends AbstractClientSimulator {
         public ClientLoad getClientLoad() {
             return clientLoad;
         }
+
+        private final boolean dependent;
+
+        /**
+         * @return true if the request was created for a dependent service and
+         *         not read from the client demand
+         */
+        public boolean isDependent() {
+            return dependent;
+        }
     }
 
     private ClientState state;
@@ -627,17 +876,85 @@ public class ClientSim extends AbstractClientSimulator {
         return state;
     }
 
+    private long resumeTime = 0;
+
+    private long resumedLatestEndOfRequest = 0;
+
+    private ImmutableList<SimulationCheckpoint.PendingRequest> resumedDependentRequests = ImmutableList.of();
+
+    private ImmutableList<SimulationCheckpoint.PendingRetry> resumedRetries = ImmutableList.of();
+
+    private final AtomicLong nextRetryId = new AtomicLong();
+
+    /**
+     * Requests that are waiting to retry by the order that they started
+     * waiting.
+     */
+    private final Map<Long, SimulationCheckpoint.PendingRetry> waitingRetries = new ConcurrentSkipListMap<>();
+
+    /**
+     * Resume the client simulator from a {@link SimulationCheckpoint}.
+     * Requests that started before the checkpoint are skipped, their load on
+     * the network and containers is restored with the checkpoint. Must be
+     * called before the simulator is started.
+     * 
+     * @param time
+     *            the time of the checkpoint
+     * @param checkpointState
+     *            the state of the simulator at the checkpoint
+     * @param dependentRequests
+     *            the return value of {@link #getPendingDependentRequests()}
+     *            at the checkpoint
+     * @param retries
+     *            the return value of {@link #getPendingRetries()} at the
+     *            checkpoint
+     */
+    /* package */ void resumeAt(final long time,
+            @Nonnull final ClientState checkpointState,
+            @Nonnull final ImmutableList<SimulationCheckpoint.PendingRequest> dependentRequests,
+            @Nonnull final ImmutableList<SimulationCheckpoint.PendingRetry> retries) {
+        resumeTime = time;
+        state = checkpointState;
+        resumedDependentRequests = dependentRequests;
+        resumedRetries = retries;
+    }
+
+    /**
+     * Requests from the client demand are not included as they are read again
+     * when resuming.
+     * 
+     * @return the requests for dependent services that have not started yet
+     */
+    @Nonnull
+    /* package */ ImmutableList<SimulationCheckpoint.PendingRequest> getPendingDependentRequests() {
+        return ImmutableList.copyOf(runQueue.stream().filter(QueueEntry::isDependent)
+                .sorted(QueueComparator.INSTANCE)
+                .map(e -> new SimulationCheckpoint.PendingRequest(e.getClient(), e.getClientLoad()))
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * @return the requests that are waiting to retry in the order that they
+     *         started waiting
+     */
+    @Nonnull
+    /* package */ ImmutableList<SimulationCheckpoint.PendingRetry> getPendingRetries() {
+        return ImmutableList.copyOf(waitingRetries.values());
+    }
+
     private static final double MIN_DELAY_PERCENT = 1 / 60.0;
     private static final double MAX_DELAY_PERCENT = 3 / 60.0;
 
-    private static long getRetryDelay(final ClientLoad req) {
+    private long getRetryDelay(final ClientLoad req) {
         final long maxDuration = Math.max(req.getServerDuration(), req.getNetworkDuration());
         final long minDelay = (long) Math.floor(MIN_DELAY_PERCENT * maxDuration);
         final long maxDelay = (long) Math.ceil(MAX_DELAY_PERCENT * maxDuration);
         return getRetryDelay(minDelay, maxDelay);
     }
 
-    private static long getRetryDelay(long minDelay, long maxDelay) {
-        return Math.abs(ThreadLocalRandom.current().nextLong() / 2) % (maxDelay - minDelay) + minDelay;
+    private long getRetryDelay(long minDelay, long maxDelay) {
+        final Random random = SimulationConfiguration.getInstance()
+                .getRandom(ClientSim.class.getName() + "." + client.getNodeIdentifier().getName());
+        return Math.abs(random.nextLong() / 2) % (maxDelay - minDelay) + minDelay;
     }
 }
@@ -62,4 +62,12 @@ import com.google.common.collect.ImmutableMap;
      */
     ImmutableMap<NodeIdentifier, ImmutableMap<NodeAttribute, Double>> computeComputeDemand();
 
+    /**
+     * @return timestamp -&gt; load for the values that the current demand is
+     *         computed from. Passing these values in time order to
+     *         {@link #updateDemandValues(long, ImmutableMap)} of a new object
+     *         gives the same demand.
+     */
+    ImmutableMap<Long, ImmutableMap<NodeIdentifier, ImmutableMap<NodeAttribute, Double>>> getSamples();
+
 }
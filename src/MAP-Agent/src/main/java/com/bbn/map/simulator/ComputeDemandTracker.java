@@ -34,6 +34,7 @@ package com.bbn.map.simulator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.TreeMap;
 
 import javax.annotation.Nonnull;
 
@@ -44,6 +45,7 @@ import com.bbn.map.AgentConfiguration;
 import com.bbn.protelis.networkresourcemanagement.NodeAttribute;
 import com.bbn.protelis.networkresourcemanagement.NodeIdentifier;
 import com.bbn.protelis.networkresourcemanagement.ResourceReport;
+import com.bbn.protelis.utils.ImmutableUtils;
 import com.google.common.collect.ImmutableMap;
 
 /**
@@ -193,6 +195,37 @@ public class ComputeDemandTracker {
         }
     }
 
+    /**
+     * 
+     * @return the state of the tracker for a {@link SimulationCheckpoint}
+     */
+    @Nonnull
+    /* package */ SimulationCheckpoint.ComputeDemand createCheckpoint() {
+        final ImmutableMap<Long, ImmutableMap<NodeAttribute, Double>> failed;
+        synchronized (failedRequests) {
+            failed = ImmutableUtils.makeImmutableMap2(failedRequests);
+        }
+        synchronized (helperLock) {
+            return new SimulationCheckpoint.ComputeDemand(helperShort.getSamples(), helperLong.getSamples(), failed);
+        }
+    }
+
+    /**
+     * Restore the state of a new tracker.
+     * 
+     * @param checkpoint
+     *            the return value of {@link #createCheckpoint()}
+     */
+    /* package */ void restoreCheckpoint(@Nonnull final SimulationCheckpoint.ComputeDemand checkpoint) {
+        synchronized (failedRequests) {
+            checkpoint.getFailedRequests().forEach((endTime, load) -> failedRequests.put(endTime, new HashMap<>(load)));
+        }
+        synchronized (helperLock) {
+            new TreeMap<>(checkpoint.getShortSamples()).forEach(helperShort::updateDemandValues);
+            new TreeMap<>(checkpoint.getLongSamples()).forEach(helperLong::updateDemandValues);
+        }
+    }
+
     /* package */ static <K1, K2> ImmutableMap<K1, ImmutableMap<K2, Double>> historyMapAverage(
             final Map<K1, Map<K2, Double>> sums,
             final Map<K1, Map<K2, Integer>> counts) {
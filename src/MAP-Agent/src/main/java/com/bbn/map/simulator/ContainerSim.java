@@ -36,6 +36,7 @@ import java.nio.charset.Charset;
 import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import javax.annotation.Nonnull;
 
@@ -48,6 +49,8 @@ import org.slf4j.LoggerFactory;
 
 import com.bbn.map.Controller;
 import com.bbn.map.common.value.ApplicationCoordinates;
+import com.bbn.map.metrics.MetricHistogram;
+import com.bbn.map.metrics.MetricsRegistry;
 import com.bbn.protelis.networkresourcemanagement.BasicResourceManager;
 import com.bbn.protelis.networkresourcemanagement.ContainerResourceReport;
 import com.bbn.protelis.networkresourcemanagement.InterfaceIdentifier;
@@ -62,6 +65,7 @@ import com.bbn.protelis.networkresourcemanagement.ServiceIdentifier;
 import com.bbn.protelis.networkresourcemanagement.ServiceStatus;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 
 /**
@@ -73,6 +77,11 @@ import com.google.common.collect.ImmutableMap;
  */
 public class ContainerSim {
 
+    /**
+     * Time waiting for {@link #lock} when adding and removing client load.
+     */
+    private static final MetricHistogram LOCK_WAIT = MetricsRegistry.getInstance().histogram("node.lock.wait");
+
     private final Logger logger;
 
     private final Object lock = new Object();
@@ -248,7 +257,9 @@ public class ContainerSim {
             @Nonnull final ClientLoad req) {
         long timeReceived = parent.getClock().getCurrentTime();
 
+        final long lockStart = LOCK_WAIT.start();
         synchronized (lock) {
+            LOCK_WAIT.stop(lockStart);
             final ServiceIdentifier<?> service = req.getService();
             if (!getService().equals(service)) {
                 if (logger.isDebugEnabled()) {
@@ -414,7 +425,9 @@ public class ContainerSim {
             @Nonnull final ApplicationCoordinates service,
             final long duration,
             @Nonnull final NodeIdentifier client) {
+        final long lockStart = LOCK_WAIT.start();
         synchronized (lock) {
+            LOCK_WAIT.stop(lockStart);
             // "source" is the container since the client load request is from
             // the perspective of the server
             final NodeNetworkFlow flow = new NodeNetworkFlow(getIdentifier(), client, getIdentifier());
@@ -437,7 +450,9 @@ public class ContainerSim {
      * @see #addLinkLoad(long, BaseNetworkLoad, NodeIdentifier)
      */
     public void removeLinkLoad(final LinkLoadEntry entry) {
+        final long lockStart = LOCK_WAIT.start();
         synchronized (lock) {
+            LOCK_WAIT.stop(lockStart);
             networkLoadTracker.removeLinkLoad(entry);
         }
     }
@@ -513,6 +528,47 @@ public class ContainerSim {
         } // end lock
     }
 
+    /**
+     * 
+     * @return the state of the container for a {@link SimulationCheckpoint}
+     */
+    @Nonnull
+    /* package */ SimulationCheckpoint.ContainerCheckpoint createCheckpoint() {
+        synchronized (lock) {
+            final ImmutableList<SimulationCheckpoint.NodeLoad> nodeLoad = ImmutableList
+                    .copyOf(loadTracker.getEntries().stream()
+                            .map(e -> new SimulationCheckpoint.NodeLoad(e.getClient(), e.getStartTime(),
+                                    e.getDuration(), e.getRequest()))
+                            .collect(Collectors.toList()));
+
+            return new SimulationCheckpoint.ContainerCheckpoint(parent.getNode().getNodeIdentifier().getName(),
+                    getIdentifier().getName(), getService(), nodeLoad, networkLoadTracker.createCheckpoint(),
+                    ImmutableMap.copyOf(numRequestsPerRegion), requestsCompleted,
+                    timeForStandardContainerToProcessRequests, computeDemandTracker.createCheckpoint());
+        }
+    }
+
+    /**
+     * Restore the state of the container. The load is added without checking
+     * the capacity as it was accepted when the checkpoint was created.
+     * 
+     * @param checkpoint
+     *            the return value of {@link #createCheckpoint()}
+     */
+    /* package */ void restoreCheckpoint(@Nonnull final SimulationCheckpoint.ContainerCheckpoint checkpoint) {
+        synchronized (lock) {
+            checkpoint.getNodeLoad().forEach(l -> loadTracker
+                    .addLoad(new NodeLoadEntry(l.getStartTime(), l.getClient(), l.getRequest(), l.getDuration())));
+            networkLoadTracker.restoreCheckpoint(checkpoint.getLinkLoad());
+
+            numRequestsPerRegion.putAll(checkpoint.getRequestsPerRegion());
+            requestsCompleted = checkpoint.getRequestsCompleted();
+            timeForStandardContainerToProcessRequests = checkpoint.getProcessingTime();
+
+            computeDemandTracker.restoreCheckpoint(checkpoint.getComputeDemand());
+        }
+    }
+
     /**
      * Add to the failed client request information.
      * 
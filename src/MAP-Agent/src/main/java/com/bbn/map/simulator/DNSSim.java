@@ -39,6 +39,7 @@ import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.Objects;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.ThreadSafe;
@@ -54,12 +55,15 @@ import com.bbn.map.dns.DNSUpdateService;
 import com.bbn.map.dns.DelegateRecord;
 import com.bbn.map.dns.DnsRecord;
 import com.bbn.map.dns.NameRecord;
+import com.bbn.map.metrics.MetricHistogram;
+import com.bbn.map.metrics.MetricsRegistry;
 import com.bbn.map.utils.WeightedRoundRobin;
 import com.bbn.protelis.networkresourcemanagement.NodeIdentifier;
 import com.bbn.protelis.networkresourcemanagement.RegionIdentifier;
 import com.bbn.protelis.networkresourcemanagement.ServiceIdentifier;
 import com.bbn.protelis.utils.VirtualClock;
 import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableList;
 
 /**
  * Simulated DNS.
@@ -120,6 +124,21 @@ public abstract class DNSSim implements DNSUpdateService {
         return region;
     }
 
+    private static final MetricHistogram DELEGATION_DEPTH = MetricsRegistry.getInstance()
+            .histogram("dns.delegation.depth");
+
+    /**
+     * Called by the implementations of
+     * {@link #resolveService(String, ServiceIdentifier)} once per resolution.
+     * 
+     * @param depth
+     *            the number of delegations that were followed, 0 if this DNS
+     *            had the record
+     */
+    protected static void recordDelegationDepth(final int depth) {
+        DELEGATION_DEPTH.record(depth);
+    }
+
     /**
      * Simulate a DNS that has no parent to delegate to.
      * 
@@ -193,6 +212,61 @@ public abstract class DNSSim implements DNSUpdateService {
      */
     public abstract void foreachRecord(@Nonnull BiConsumer<DnsRecord, Double> visitor);
 
+    /**
+     * Visit each list of records, the lock is already held.
+     * 
+     * @param visitor
+     *            executed for each list of records
+     */
+    protected abstract void foreachRecordList(@Nonnull Consumer<DnsRecordList> visitor);
+
+    /**
+     * Find the list of records that a record is stored in, the lock is
+     * already held.
+     * 
+     * @param record
+     *            the record to find
+     * @return the list that {@link #internalAddRecord(DnsRecord, double)}
+     *         stores the record in, null if there is no such list
+     */
+    protected abstract DnsRecordList findRecordList(@Nonnull DnsRecord record);
+
+    /**
+     * @return the position of the round robin for each list of records
+     * @see #restoreRoundRobinCursors(ImmutableList)
+     */
+    /* package */ final ImmutableList<WeightedRoundRobin.Cursor<DnsRecord>> getRoundRobinCursors() {
+        final ImmutableList.Builder<WeightedRoundRobin.Cursor<DnsRecord>> cursors = ImmutableList.builder();
+        synchronized (lock) {
+            foreachRecordList(list -> cursors.add(list.getCursor()));
+        }
+        return cursors.build();
+    }
+
+    /**
+     * Continue the round robin of each list of records from
+     * {@link #getRoundRobinCursors()}. The records must already be in this
+     * DNS.
+     * 
+     * @param cursors
+     *            the positions to continue from
+     */
+    /* package */ final void restoreRoundRobinCursors(
+            @Nonnull final ImmutableList<WeightedRoundRobin.Cursor<DnsRecord>> cursors) {
+        synchronized (lock) {
+            cursors.forEach(cursor -> {
+                if (!cursor.getRecords().isEmpty()) {
+                    final DnsRecordList list = findRecordList(cursor.getRecords().get(0).getRecord());
+                    if (null != list) {
+                        list.restoreCursor(cursor);
+                    } else {
+                        logger.warn("No records for the round robin cursor {}", cursor.getRecords());
+                    }
+                }
+            });
+        }
+    }
+
     /**
      * 
      * @return the current list of records as a string.
@@ -300,6 +374,14 @@ public abstract class DNSSim implements DNSUpdateService {
      * on the weight.
      */
     protected static final class DnsRecordList extends WeightedRoundRobin<DnsRecord> {
+        /**
+         * @param region
+         *            the region of the DNS server that the list belongs to,
+         *            used to pick the random number generator
+         */
+        public DnsRecordList(@Nonnull final RegionIdentifier region) {
+            super(WeightedRoundRobin.class.getName() + "." + region.getName());
+        }
     }
 
     @Override
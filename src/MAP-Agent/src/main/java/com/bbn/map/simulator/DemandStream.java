@@ -0,0 +1,402 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.simulator;
+
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import javax.annotation.Nonnull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bbn.map.utils.JsonUtils;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.PeekingIterator;
+
+/**
+ * Reads demand one entry at a time in order of start time. This allows long,
+ * high rate demand files to be simulated without holding all of the demand in
+ * memory.
+ * 
+ * A demand file that is already sorted by start time is read directly.
+ * Otherwise the file is sorted with an external merge sort into a file in the
+ * temporary directory that is deleted when the stream is closed. Nothing is
+ * written next to the demand file, as scenario and demand directories may be
+ * read-only or shared between runs.
+ * 
+ * If there is an error reading the demand while iterating, the error is logged
+ * and the rest of the demand is ignored, the same as
+ * {@link ClientLoad#parseClientDemand(Path)} does for the whole file.
+ * 
+ * @param <T>
+ *            the type of demand
+ */
+public final class DemandStream<T extends BaseNetworkLoad> implements PeekingIterator<T>, AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DemandStream.class);
+
+    /**
+     * The number of entries that are sorted in memory at a time when sorting a
+     * demand file.
+     */
+    public static final int SORT_CHUNK_SIZE = 100_000;
+
+    private static final Comparator<BaseNetworkLoad> START_TIME_ORDER = Comparator
+            .comparingLong(BaseNetworkLoad::getStartTime);
+
+    /**
+     * Used when the demand is in memory, otherwise null.
+     */
+    private final Iterator<T> entries;
+
+    /**
+     * Used when the demand is read from a file, otherwise null.
+     */
+    private final Path path;
+    /**
+     * True if {@link #path} is a sorted copy that is deleted on close.
+     */
+    private final boolean deleteOnClose;
+    private final Reader reader;
+    private final JsonParser parser;
+    private final ObjectReader objectReader;
+
+    private T nextEntry;
+    private IOException error = null;
+
+    private DemandStream(@Nonnull final Iterator<T> entries) {
+        this.entries = entries;
+        this.path = null;
+        this.deleteOnClose = false;
+        this.reader = null;
+        this.parser = null;
+        this.objectReader = null;
+        this.nextEntry = advance();
+    }
+
+    private DemandStream(@Nonnull final Path path, @Nonnull final Class<T> type) throws IOException {
+        this(path, type, false);
+    }
+
+    private DemandStream(@Nonnull final Path path, @Nonnull final Class<T> type, final boolean deleteOnClose)
+            throws IOException {
+        this.entries = null;
+        this.path = path;
+        this.deleteOnClose = deleteOnClose;
+
+        final ObjectMapper mapper = JsonUtils.getStandardMapObjectMapper();
+        this.objectReader = mapper.readerFor(type);
+        this.reader = Files.newBufferedReader(path, StandardCharsets.UTF_8);
+        try {
+            this.parser = mapper.getFactory().createParser(reader);
+            if (JsonToken.START_ARRAY != parser.nextToken()) {
+                throw new IOException(path + " does not contain a JSON array of demand");
+            }
+        } catch (final IOException e) {
+            reader.close();
+            throw e;
+        }
+        this.nextEntry = advance();
+        if (null != error) {
+            close();
+            throw error;
+        }
+    }
+
+    /**
+     * @param demand
+     *            demand that is already in memory, must be sorted by start
+     *            time
+     * @param <T>
+     *            the type of demand
+     * @return a stream over the demand
+     */
+    @Nonnull
+    public static <T extends BaseNetworkLoad> DemandStream<T> of(@Nonnull final List<T> demand) {
+        return new DemandStream<>(demand.iterator());
+    }
+
+    /**
+     * Open a demand file. If the file is not sorted by start time, a sorted
+     * copy is written to the temporary directory first, which can take a
+     * while for a large file.
+     * 
+     * @param path
+     *            the file containing a JSON array of demand
+     * @param type
+     *            the type of demand in the file
+     * @param <T>
+     *            the type of demand
+     * @return a stream of the demand sorted by start time, empty if the file
+     *         does not exist
+     * @throws IOException
+     *             if there is an error reading the file or writing the sorted
+     *             copy
+     */
+    @Nonnull
+    public static <T extends BaseNetworkLoad> DemandStream<T> open(@Nonnull final Path path,
+            @Nonnull final Class<T> type) throws IOException {
+        return open(path, type, SORT_CHUNK_SIZE);
+    }
+
+    /**
+     * Used by the tests to sort in smaller chunks.
+     * 
+     * @see #open(Path, Class)
+     */
+    @Nonnull
+    /* package */ static <T extends BaseNetworkLoad> DemandStream<T> open(@Nonnull final Path path,
+            @Nonnull final Class<T> type,
+            final int chunkSize) throws IOException {
+        if (!Files.exists(path)) {
+            return of(ImmutableList.of());
+        }
+
+        if (isSorted(path, type)) {
+            return new DemandStream<>(path, type);
+        }
+
+        final Path sorted = Files.createTempFile("demand", ".sorted.json");
+        try {
+            LOGGER.info("{} is not sorted by start time, writing a sorted copy to {}", path, sorted);
+            sort(path, sorted, type, chunkSize);
+            return new DemandStream<>(sorted, type, true);
+        } catch (final IOException | RuntimeException e) {
+            Files.deleteIfExists(sorted);
+            throw e;
+        }
+    }
+
+    private static <T extends BaseNetworkLoad> boolean isSorted(final Path path, final Class<T> type)
+            throws IOException {
+        try (DemandStream<T> stream = new DemandStream<>(path, type)) {
+            long previous = Long.MIN_VALUE;
+            while (stream.hasNext()) {
+                final long start = stream.next().getStartTime();
+                if (start < previous) {
+                    return false;
+                }
+                previous = start;
+            }
+            stream.checkError();
+            return true;
+        }
+    }
+
+    /**
+     * Sort the demand in chunks of {@code chunkSize} entries and then merge the
+     * chunks. Entries with the same start time stay in the order that they
+     * appear in the file.
+     */
+    private static <T extends BaseNetworkLoad> void sort(final Path path,
+            final Path sorted,
+            final Class<T> type,
+            final int chunkSize) throws IOException {
+        final ObjectMapper mapper = JsonUtils.getStandardMapObjectMapper();
+        final List<Path> chunks = new ArrayList<>();
+        try {
+            try (DemandStream<T> stream = new DemandStream<>(path, type)) {
+                final List<T> chunk = new ArrayList<>(chunkSize);
+                while (stream.hasNext()) {
+                    chunk.add(stream.next());
+                    if (chunk.size() >= chunkSize) {
+                        chunks.add(writeChunk(mapper, chunk));
+                        chunk.clear();
+                    }
+                }
+                stream.checkError();
+                if (!chunk.isEmpty()) {
+                    chunks.add(writeChunk(mapper, chunk));
+                }
+            }
+
+            try (Writer writer = Files.newBufferedWriter(sorted, StandardCharsets.UTF_8);
+                    JsonGenerator generator = mapper.getFactory().createGenerator(writer)) {
+                generator.writeStartArray();
+                merge(chunks, type, generator);
+                generator.writeEndArray();
+            }
+        } finally {
+            for (final Path chunk : chunks) {
+                Files.deleteIfExists(chunk);
+            }
+        }
+    }
+
+    private static <T extends BaseNetworkLoad> Path writeChunk(final ObjectMapper mapper, final List<T> chunk)
+            throws IOException {
+        chunk.sort(START_TIME_ORDER);
+
+        final Path file = Files.createTempFile("demand", ".json");
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            mapper.writeValue(writer, chunk);
+        }
+        return file;
+    }
+
+    private static <T extends BaseNetworkLoad> void merge(final List<Path> chunks,
+            final Class<T> type,
+            final JsonGenerator generator) throws IOException {
+        final List<DemandStream<T>> streams = new ArrayList<>(chunks.size());
+        try {
+            // ties go to the earlier chunk to keep the sort stable
+            final PriorityQueue<Integer> heads = new PriorityQueue<>(Math.max(1, chunks.size()),
+                    Comparator.<Integer> comparingLong(i -> streams.get(i).peek().getStartTime())
+                            .thenComparing(Comparator.naturalOrder()));
+            for (final Path chunk : chunks) {
+                final DemandStream<T> stream = new DemandStream<>(chunk, type);
+                streams.add(stream);
+                if (stream.hasNext()) {
+                    heads.add(streams.size() - 1);
+                }
+            }
+
+            while (!heads.isEmpty()) {
+                final int index = heads.poll();
+                final DemandStream<T> stream = streams.get(index);
+                generator.writeObject(stream.next());
+                if (stream.hasNext()) {
+                    heads.add(index);
+                } else {
+                    stream.checkError();
+                }
+            }
+        } finally {
+            for (final DemandStream<T> stream : streams) {
+                stream.close();
+            }
+        }
+    }
+
+    private T advance() {
+        if (null != entries) {
+            return entries.hasNext() ? entries.next() : null;
+        }
+
+        try {
+            if (JsonToken.START_OBJECT == parser.nextToken()) {
+                return objectReader.readValue(parser);
+            } else {
+                // end of the array
+                return null;
+            }
+        } catch (final IOException e) {
+            LOGGER.error("Error reading demand from " + path + ", ignoring the rest of the file", e);
+            error = e;
+            return null;
+        }
+    }
+
+    /**
+     * @throws IOException
+     *             the error that ended the stream early, if any
+     */
+    private void checkError() throws IOException {
+        if (null != error) {
+            throw error;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return null != nextEntry;
+    }
+
+    @Override
+    public T peek() {
+        if (null == nextEntry) {
+            throw new NoSuchElementException();
+        }
+        return nextEntry;
+    }
+
+    @Override
+    public T next() {
+        final T entry = peek();
+        nextEntry = advance();
+        return entry;
+    }
+
+    /**
+     * Demand cannot be removed.
+     * 
+     * @throws UnsupportedOperationException
+     *             always
+     */
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Demand cannot be removed");
+    }
+
+    /**
+     * Close the demand file and delete the sorted copy, if any. Errors closing
+     * or deleting the file are logged.
+     */
+    @Override
+    public void close() {
+        nextEntry = null;
+        if (null != parser) {
+            try {
+                parser.close();
+                reader.close();
+            } catch (final IOException e) {
+                LOGGER.warn("Error closing demand file " + path, e);
+            }
+
+            if (deleteOnClose) {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (final IOException e) {
+                    LOGGER.warn("Error deleting sorted demand file " + path, e);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,617 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.simulator;
+
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bbn.protelis.utils.VirtualClock;
+
+/**
+ * A {@link VirtualClock} that runs a simulation as a discrete event
+ * simulation. Every wait on the clock is an event in a single queue ordered by
+ * time. Time does not follow the wall clock, instead it jumps to the time of
+ * the next event as soon as all actors are idle.
+ * 
+ * An actor is a thread that performs timed actions, registered with
+ * {@link #addActor()} or by running a task wrapped with
+ * {@link #actor(Runnable)}. An actor is idle while it is waiting on this
+ * clock. A wait ends early if the thread is interrupted, the interrupt flag is
+ * set again so that the caller can see it. Threads that wait on the clock
+ * without being registered as an actor
+ * are woken at the right time, but do not hold back the clock. Threads that
+ * are registered as actors must do all of their waiting on the clock,
+ * otherwise time stops until they return. {@link #sleep(long)} and
+ * {@link #now()} allow code that does not have access to the clock to wait
+ * and read the time on the clock of the current actor.
+ * 
+ * All events at the same time are released together and the released actors
+ * run concurrently. The times that events happen at only depend on the
+ * events, not on how long it took to compute them.
+ * 
+ * In serial mode only one actor runs at a time. Events are released one at a
+ * time in the order of their time and the order that they were created in,
+ * the next event is released once the actor that was woken up waits on the
+ * clock again or exits. An actor registered with {@link #addActor()} waits
+ * for its turn before it continues and a task wrapped with
+ * {@link #actor(Runnable)} is queued when it is wrapped. This makes the order
+ * that the actors run in repeatable from one run to the next. Serial mode is
+ * always used when {@link SimulationConfiguration#isDeterministic()} is true.
+ */
+public class DiscreteEventClock implements VirtualClock {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DiscreteEventClock.class);
+
+    /**
+     * How often, in wall clock milliseconds, waiting threads check for actors
+     * that exited without unregistering.
+     */
+    private static final long ACTOR_CHECK_INTERVAL_MS = 100;
+
+    /**
+     * The clock that the current thread is an actor of.
+     */
+    private static final ThreadLocal<DiscreteEventClock> ACTOR_CLOCK = new ThreadLocal<>();
+
+    private static final class Event {
+        private final long time;
+        private final long sequence;
+        /**
+         * Null for a task from {@link DiscreteEventClock#actor(Runnable)} that
+         * has not started yet.
+         */
+        private Thread thread;
+        private final boolean actor;
+        private boolean released = false;
+
+        private Event(final long time, final long sequence, final Thread thread, final boolean actor) {
+            this.time = time;
+            this.sequence = sequence;
+            this.thread = thread;
+            this.actor = actor;
+        }
+    }
+
+    private static final Comparator<Event> EVENT_ORDER = Comparator.<Event> comparingLong(e -> e.time)
+            .thenComparingLong(e -> e.sequence);
+
+    private final Object lock = new Object();
+
+    private final PriorityQueue<Event> events = new PriorityQueue<>(EVENT_ORDER);
+
+    private final Set<Thread> actors = new HashSet<>();
+
+    private final Set<Thread> waitingActors = new HashSet<>();
+
+    /**
+     * Tasks created by {@link #actor(Runnable)} that have not started yet.
+     */
+    private int pendingActors = 0;
+
+    private long currentTime = 0;
+
+    private long sequence = 0;
+
+    private long eventCount = 0;
+
+    private boolean started = false;
+
+    private boolean stopped = false;
+
+    private boolean shutdown = false;
+
+    /**
+     * The date and time that simulation time 0 corresponds to, see
+     * {@link #now()}.
+     */
+    private final LocalDateTime startDateTime = computeStartDateTime();
+
+    /**
+     * The earliest start date and time when the random number generators are
+     * seeded.
+     */
+    private static final LocalDateTime SEEDED_START_DATE_TIME = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    /**
+     * The start date and time of seeded runs is within this many seconds of
+     * {@link #SEEDED_START_DATE_TIME}.
+     */
+    private static final long SEEDED_START_RANGE_SECONDS = ChronoUnit.YEARS.getDuration().getSeconds();
+
+    /**
+     * When {@link SimulationConfiguration#getRandomSeed()} is set the start
+     * time is derived from the seed so that runs with the same seed see the
+     * same dates, otherwise it is the current time.
+     */
+    private static LocalDateTime computeStartDateTime() {
+        final Long seed = SimulationConfiguration.getInstance().getRandomSeed();
+        if (null == seed) {
+            return LocalDateTime.now();
+        } else {
+            return SEEDED_START_DATE_TIME.plusSeconds(Math.floorMod(seed, SEEDED_START_RANGE_SECONDS));
+        }
+    }
+
+    private final boolean serial;
+
+    /**
+     * The event of the actor that is currently running in serial mode, null if
+     * no actor is running.
+     */
+    private Event turn = null;
+
+    /**
+     * Create a clock that runs the actors released at the same time
+     * concurrently, unless the simulation is deterministic.
+     * 
+     * @see #DiscreteEventClock(boolean)
+     */
+    public DiscreteEventClock() {
+        this(false);
+    }
+
+    /**
+     * When {@link SimulationConfiguration#isDeterministic()} is true the clock
+     * is always serial, otherwise the order that actors released at the same
+     * time run in would depend on the thread scheduler.
+     * 
+     * @param serial
+     *            see {@link #isSerial()}
+     */
+    public DiscreteEventClock(final boolean serial) {
+        this.serial = serial || SimulationConfiguration.getInstance().isDeterministic();
+    }
+
+    /**
+     * @return the date and time of {@link #getCurrentTime()}
+     */
+    public LocalDateTime getCurrentDateTime() {
+        return startDateTime.plus(getCurrentTime(), ChronoUnit.MILLIS);
+    }
+
+    /**
+     * @return true if only one actor runs at a time
+     */
+    public boolean isSerial() {
+        return serial;
+    }
+
+    @Override
+    public long getCurrentTime() {
+        synchronized (lock) {
+            return currentTime;
+        }
+    }
+
+    /**
+     * @return the number of events that have been released
+     */
+    public long getEventCount() {
+        synchronized (lock) {
+            return eventCount;
+        }
+    }
+
+    @Override
+    public void waitForDuration(final long duration) {
+        if (duration <= 0) {
+            return;
+        }
+        synchronized (lock) {
+            waitUntilTime(currentTime + duration);
+        }
+    }
+
+    @Override
+    public void waitUntilTime(final long time) {
+        final Thread thread = Thread.currentThread();
+        synchronized (lock) {
+            if (shutdown || stopped || (started && time <= currentTime)) {
+                return;
+            }
+
+            final boolean actor = actors.contains(thread);
+            final Event event = new Event(time, sequence++, thread, actor);
+            events.add(event);
+            if (actor) {
+                waitingActors.add(thread);
+            }
+            endTurn(thread);
+            awaitRelease(event);
+        }
+    }
+
+    /**
+     * Wait for an event that has been queued to be released. Must be called
+     * holding {@link #lock}.
+     */
+    private void awaitRelease(final Event event) {
+        advanceIfIdle();
+
+        while (!event.released && !shutdown && !stopped) {
+            try {
+                lock.wait(ACTOR_CHECK_INTERVAL_MS);
+            } catch (final InterruptedException e) {
+                LOGGER.debug("Interrupted waiting for time {}, stopping the wait", event.time, e);
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (!event.released) {
+                advanceIfIdle();
+            }
+        }
+
+        if (!event.released) {
+            events.remove(event);
+            waitingActors.remove(event.thread);
+        }
+    }
+
+    /**
+     * If the thread holds the turn in serial mode, give it up. Must be called
+     * holding {@link #lock}.
+     */
+    private void endTurn(final Thread thread) {
+        if (null != turn && turn.thread == thread) {
+            turn = null;
+        }
+    }
+
+    /**
+     * Release the next events if all actors are waiting. Must be called
+     * holding {@link #lock}.
+     */
+    private void advanceIfIdle() {
+        if (!started || shutdown || events.isEmpty()) {
+            return;
+        }
+
+        // actors that exited without unregistering are no longer running
+        actors.removeIf(t -> !t.isAlive());
+        waitingActors.removeIf(t -> !t.isAlive());
+
+        if (serial) {
+            advanceSerial();
+            return;
+        }
+
+        if (pendingActors > 0 || waitingActors.size() < actors.size()) {
+            return;
+        }
+
+        currentTime = Math.max(currentTime, events.peek().time);
+        while (!events.isEmpty() && events.peek().time <= currentTime) {
+            final Event event = events.poll();
+            event.released = true;
+            waitingActors.remove(event.thread);
+            ++eventCount;
+        }
+        lock.notifyAll();
+    }
+
+    /**
+     * Release the next event in serial mode. Events of threads that are not
+     * actors are released without taking the turn. Must be called holding
+     * {@link #lock}.
+     */
+    private void advanceSerial() {
+        if (null != turn) {
+            if (null == turn.thread || turn.thread.isAlive()) {
+                // the actor with the turn is still running or hasn't started
+                return;
+            }
+            turn = null;
+        }
+
+        if (waitingActors.size() < actors.size()) {
+            return;
+        }
+
+        while (!events.isEmpty()) {
+            final Event event = events.poll();
+            currentTime = Math.max(currentTime, event.time);
+            event.released = true;
+            ++eventCount;
+            if (event.actor) {
+                waitingActors.remove(event.thread);
+                turn = event;
+                break;
+            }
+        }
+        lock.notifyAll();
+    }
+
+    /**
+     * Set the time that the clock starts at. This is used to resume a
+     * simulation from a {@link SimulationCheckpoint}.
+     * 
+     * @param time
+     *            the start time
+     * @throws IllegalStateException
+     *             if the clock has already been started
+     */
+    public void setStartTime(final long time) {
+        synchronized (lock) {
+            if (started || stopped || shutdown) {
+                throw new IllegalStateException("The start time can only be set before the clock is started");
+            }
+            currentTime = time;
+        }
+    }
+
+    @Override
+    public void startClock() {
+        synchronized (lock) {
+            started = true;
+            stopped = false;
+            lock.notifyAll();
+            advanceIfIdle();
+        }
+    }
+
+    @Override
+    public void stopClock() {
+        synchronized (lock) {
+            started = false;
+            stopped = true;
+            lock.notifyAll();
+        }
+    }
+
+    @Override
+    public boolean isStarted() {
+        synchronized (lock) {
+            return started;
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        synchronized (lock) {
+            started = false;
+            shutdown = true;
+            events.clear();
+            waitingActors.clear();
+            turn = null;
+            lock.notifyAll();
+        }
+    }
+
+    @Override
+    public boolean isShutdown() {
+        synchronized (lock) {
+            return shutdown;
+        }
+    }
+
+    @Override
+    public void waitForClockStart() {
+        synchronized (lock) {
+            while (!started && !shutdown) {
+                try {
+                    lock.wait();
+                } catch (final InterruptedException e) {
+                    LOGGER.debug("Interrupted waiting for the clock to start, stopping the wait", e);
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Register the current thread as an actor. Time will not advance while
+     * the thread is running and not waiting on this clock. In serial mode this
+     * waits until it is the thread's turn to run.
+     */
+    public void addActor() {
+        final Thread thread = Thread.currentThread();
+        synchronized (lock) {
+            if (!actors.add(thread)) {
+                return;
+            }
+            ACTOR_CLOCK.set(this);
+
+            if (serial && !shutdown && !stopped) {
+                final Event event = new Event(currentTime, sequence++, thread, true);
+                events.add(event);
+                waitingActors.add(thread);
+                awaitRelease(event);
+            }
+        }
+    }
+
+    /**
+     * Unregister the current thread as an actor.
+     */
+    public void removeActor() {
+        final Thread thread = Thread.currentThread();
+        synchronized (lock) {
+            actors.remove(thread);
+            waitingActors.remove(thread);
+            endTurn(thread);
+            ACTOR_CLOCK.remove();
+            advanceIfIdle();
+        }
+    }
+
+    /**
+     * Wrap a task so that it runs as an actor. Time will not advance from the
+     * time that this method is called until the task has finished or waits on
+     * the clock. The returned task must be run, otherwise time will stop. In
+     * serial mode the task is queued to run at the current time and waits for
+     * its turn when it is started.
+     * 
+     * @param task
+     *            the task to run
+     * @return a task to pass to an executor
+     */
+    public Runnable actor(@Nonnull final Runnable task) {
+        final Event startEvent;
+        synchronized (lock) {
+            if (serial && !shutdown && !stopped) {
+                startEvent = new Event(currentTime, sequence++, null, true);
+                events.add(startEvent);
+            } else {
+                startEvent = null;
+                ++pendingActors;
+            }
+        }
+
+        return () -> {
+            final Thread thread = Thread.currentThread();
+            final boolean alreadyActor;
+            synchronized (lock) {
+                alreadyActor = actors.contains(thread);
+                actors.add(thread);
+                ACTOR_CLOCK.set(this);
+
+                if (null == startEvent) {
+                    --pendingActors;
+                } else {
+                    startEvent.thread = thread;
+                    if (alreadyActor) {
+                        // run inline by an actor that is already running
+                        events.remove(startEvent);
+                    } else if (!startEvent.released) {
+                        waitingActors.add(thread);
+                        awaitRelease(startEvent);
+                    }
+                }
+            }
+
+            try {
+                task.run();
+            } finally {
+                if (!alreadyActor) {
+                    removeActor();
+                }
+            }
+        };
+    }
+
+    /**
+     * @param clock
+     *            the clock to check
+     * @return true if the clock is a {@link DiscreteEventClock}
+     */
+    public static boolean isDiscreteEvent(final VirtualClock clock) {
+        return clock instanceof DiscreteEventClock;
+    }
+
+    /**
+     * Register the current thread as an actor if the clock is a
+     * {@link DiscreteEventClock}, otherwise do nothing.
+     * 
+     * @param clock
+     *            the clock
+     * @see #addActor()
+     */
+    public static void registerActor(final VirtualClock clock) {
+        if (clock instanceof DiscreteEventClock) {
+            ((DiscreteEventClock) clock).addActor();
+        }
+    }
+
+    /**
+     * Unregister the current thread as an actor if the clock is a
+     * {@link DiscreteEventClock}, otherwise do nothing.
+     * 
+     * @param clock
+     *            the clock
+     * @see #removeActor()
+     */
+    public static void unregisterActor(final VirtualClock clock) {
+        if (clock instanceof DiscreteEventClock) {
+            ((DiscreteEventClock) clock).removeActor();
+        }
+    }
+
+    /**
+     * @param clock
+     *            the clock
+     * @param task
+     *            the task to run
+     * @return the task wrapped by {@link #actor(Runnable)} if the clock is a
+     *         {@link DiscreteEventClock}, otherwise the task
+     */
+    public static Runnable wrapActor(final VirtualClock clock, @Nonnull final Runnable task) {
+        if (clock instanceof DiscreteEventClock) {
+            return ((DiscreteEventClock) clock).actor(task);
+        } else {
+            return task;
+        }
+    }
+
+    /**
+     * Sleep on the clock of the current actor. If the current thread is not an
+     * actor, this is {@link Thread#sleep(long)}.
+     * 
+     * @param millis
+     *            the number of milliseconds to sleep
+     * @throws InterruptedException
+     *             if the wall clock sleep is interrupted
+     */
+    public static void sleep(final long millis) throws InterruptedException {
+        final DiscreteEventClock clock = ACTOR_CLOCK.get();
+        if (null == clock) {
+            Thread.sleep(millis);
+        } else {
+            clock.waitForDuration(millis);
+        }
+    }
+
+    /**
+     * @return the date and time on the clock of the current actor, if the
+     *         current thread is not an actor this is
+     *         {@link LocalDateTime#now()}
+     */
+    public static LocalDateTime now() {
+        final DiscreteEventClock clock = ACTOR_CLOCK.get();
+        if (null == clock) {
+            return LocalDateTime.now();
+        } else {
+            return clock.getCurrentDateTime();
+        }
+    }
+
+}
@@ -34,6 +34,7 @@ package com.bbn.map.simulator;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 import javax.annotation.Nonnull;
@@ -140,9 +141,9 @@ public class DnsSimNoRecurse extends DNSSim {
 
         final DnsRecordList state;
         if (record instanceof DelegateRecord) {
-            state = delegateEntries.computeIfAbsent(service, v -> new DnsRecordList());
+            state = delegateEntries.computeIfAbsent(service, v -> new DnsRecordList(getRegion()));
         } else if (record instanceof NameRecord) {
-            state = nameEntries.computeIfAbsent(service, v -> new DnsRecordList());
+            state = nameEntries.computeIfAbsent(service, v -> new DnsRecordList(getRegion()));
         } else {
             throw new RuntimeException("Unknown type of DNS record: " + record.getClass());
         }
@@ -150,6 +151,21 @@ public class DnsSimNoRecurse extends DNSSim {
         state.addRecord(record, weight);
     }
 
+    @Override
+    protected void foreachRecordList(@Nonnull final Consumer<DnsRecordList> visitor) {
+        nameEntries.values().forEach(visitor);
+        delegateEntries.values().forEach(visitor);
+    }
+
+    @Override
+    protected DnsRecordList findRecordList(@Nonnull final DnsRecord record) {
+        if (record instanceof DelegateRecord) {
+            return delegateEntries.get(record.getService());
+        } else {
+            return nameEntries.get(record.getService());
+        }
+    }
+
     @Override
     @SuppressFBWarnings(value = "UC_USELESS_OBJECT", justification = "Copying map to avoid long synchronization section")
     public void foreachRecord(@Nonnull final BiConsumer<DnsRecord, Double> visitor) {
@@ -196,8 +212,10 @@ public class DnsSimNoRecurse extends DNSSim {
         }
 
         if (record instanceof NameRecord) {
+            recordDelegationDepth(0);
             retRecord = (NameRecord) record;
         } else if (record instanceof DelegateRecord) {
+            recordDelegationDepth(1);
             final DelegateRecord delegateRecord = (DelegateRecord) record;
             final DnsSimNoRecurse delegateDns = (DnsSimNoRecurse) getSimulation()
                     .getRegionalDNS(delegateRecord.getDelegateRegion());
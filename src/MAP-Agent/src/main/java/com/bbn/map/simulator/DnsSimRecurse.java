@@ -35,6 +35,7 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 import javax.annotation.Nonnull;
 
@@ -138,6 +139,8 @@ public class DnsSimRecurse extends DNSSim {
             }
         }
 
+        recordDelegationDepth(serversChecked.size() - 1);
+
         if (null == retRecord) {
             // cannot resolve the name
             return null;
@@ -174,6 +177,16 @@ public class DnsSimRecurse extends DNSSim {
         }
     }
 
+    @Override
+    protected void foreachRecordList(@Nonnull final Consumer<DnsRecordList> visitor) {
+        entries.values().forEach(visitor);
+    }
+
+    @Override
+    protected DnsRecordList findRecordList(@Nonnull final DnsRecord record) {
+        return entries.get(record.getService());
+    }
+
     @Override
     @SuppressFBWarnings(value = "UC_USELESS_OBJECT", justification = "Copying map to avoid long synchronization section")
     public void foreachRecord(@Nonnull final BiConsumer<DnsRecord, Double> visitor) {
@@ -191,7 +204,7 @@ public class DnsSimRecurse extends DNSSim {
     @Override
     protected void internalAddRecord(@Nonnull final DnsRecord record, final double weight) {
         final ServiceIdentifier<?> service = record.getService();
-        final DnsRecordList state = entries.computeIfAbsent(service, v -> new DnsRecordList());
+        final DnsRecordList state = entries.computeIfAbsent(service, v -> new DnsRecordList(getRegion()));
         state.addRecord(record, weight);
     }
 
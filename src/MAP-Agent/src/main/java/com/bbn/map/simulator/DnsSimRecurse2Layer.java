@@ -35,6 +35,7 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 import javax.annotation.Nonnull;
 
@@ -137,6 +138,8 @@ public class DnsSimRecurse2Layer extends DNSSim {
             }
         }
 
+        recordDelegationDepth(serversChecked.size() - 1);
+
         if (null == retRecord) {
             // cannot resolve the name
             return null;
@@ -211,6 +214,21 @@ public class DnsSimRecurse2Layer extends DNSSim {
         }
     }
 
+    @Override
+    protected void foreachRecordList(@Nonnull final Consumer<DnsRecordList> visitor) {
+        regionEntries.values().forEach(visitor);
+        containerEntries.values().forEach(visitor);
+    }
+
+    @Override
+    protected DnsRecordList findRecordList(@Nonnull final DnsRecord record) {
+        if (record instanceof DelegateRecord) {
+            return regionEntries.get(record.getService());
+        } else {
+            return containerEntries.get(record.getService());
+        }
+    }
+
     @Override
     @SuppressFBWarnings(value = "UC_USELESS_OBJECT", justification = "Copying map to avoid long synchronization section")
     public void foreachRecord(@Nonnull final BiConsumer<DnsRecord, Double> visitor) {
@@ -240,7 +258,7 @@ public class DnsSimRecurse2Layer extends DNSSim {
         } else {
             entries = containerEntries;
         }
-        final DnsRecordList state = entries.computeIfAbsent(service, v -> new DnsRecordList());
+        final DnsRecordList state = entries.computeIfAbsent(service, v -> new DnsRecordList(getRegion()));
         state.addRecord(record, weight);
     }
 
@@ -52,6 +52,8 @@ import com.google.common.collect.ImmutableMap;
 
     private final double alpha;
 
+    private long lastTimestamp = 0;
+
     private final Map<NodeIdentifier, Map<NodeAttribute, Double>> demand = new HashMap<>();
 
     /**
@@ -66,6 +68,7 @@ import com.google.common.collect.ImmutableMap;
     @Override
     public void updateDemandValues(final long timestamp,
             @Nonnull final ImmutableMap<NodeIdentifier, ImmutableMap<NodeAttribute, Double>> computeLoad) {
+        lastTimestamp = timestamp;
 
         computeLoad.forEach((sourceNode, nodeData) -> {
             final Map<NodeAttribute, Double> sourceNodeDemand = demand.computeIfAbsent(sourceNode,
@@ -121,4 +124,17 @@ import com.google.common.collect.ImmutableMap;
         return reportDemand;
     }
 
+    /**
+     * The exponential decay only depends on the current demand, which is the
+     * demand that results from updating an empty object with it.
+     */
+    @Override
+    public ImmutableMap<Long, ImmutableMap<NodeIdentifier, ImmutableMap<NodeAttribute, Double>>> getSamples() {
+        if (demand.isEmpty()) {
+            return ImmutableMap.of();
+        } else {
+            return ImmutableMap.of(lastTimestamp, computeComputeDemand());
+        }
+    }
+
 }
@@ -54,6 +54,8 @@ import com.google.common.collect.ImmutableMap;
 
     private final double alpha;
 
+    private long lastTimestamp = 0;
+
     private final Map<InterfaceIdentifier, Map<NodeNetworkFlow, Map<ServiceIdentifier<?>, Map<LinkAttribute, Double>>>> demand = new HashMap<>();
 
     /**
@@ -68,6 +70,7 @@ import com.google.common.collect.ImmutableMap;
     @Override
     public void updateDemandValues(final long timestamp,
             @Nonnull final ImmutableMap<InterfaceIdentifier, ImmutableMap<NodeNetworkFlow, ImmutableMap<ServiceIdentifier<?>, ImmutableMap<LinkAttribute, Double>>>> networkLoad) {
+        lastTimestamp = timestamp;
 
         networkLoad.forEach((ifce, ifceData) -> {
             final Map<NodeNetworkFlow, Map<ServiceIdentifier<?>, Map<LinkAttribute, Double>>> ifceDemand = demand
@@ -145,4 +148,17 @@ import com.google.common.collect.ImmutableMap;
         return reportDemand;
     }
 
+    /**
+     * The exponential decay only depends on the current demand, which is the
+     * demand that results from updating an empty object with it.
+     */
+    @Override
+    public ImmutableMap<Long, ImmutableMap<InterfaceIdentifier, ImmutableMap<NodeNetworkFlow, ImmutableMap<ServiceIdentifier<?>, ImmutableMap<LinkAttribute, Double>>>>> getSamples() {
+        if (demand.isEmpty()) {
+            return ImmutableMap.of();
+        } else {
+            return ImmutableMap.of(lastTimestamp, computeNetworkDemand());
+        }
+    }
+
 }
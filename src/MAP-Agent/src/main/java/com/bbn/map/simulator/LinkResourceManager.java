@@ -33,6 +33,7 @@ package com.bbn.map.simulator;
 
 import java.util.Map;
 import java.util.Objects;
+import java.util.stream.Collectors;
 
 import javax.annotation.Nonnull;
 
@@ -41,12 +42,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.bbn.map.common.value.ApplicationCoordinates;
+import com.bbn.map.metrics.MetricHistogram;
+import com.bbn.map.metrics.MetricsRegistry;
 import com.bbn.protelis.networkresourcemanagement.LinkAttribute;
 import com.bbn.protelis.networkresourcemanagement.NetworkLink;
 import com.bbn.protelis.networkresourcemanagement.NodeIdentifier;
 import com.bbn.protelis.networkresourcemanagement.NodeNetworkFlow;
 import com.bbn.protelis.networkresourcemanagement.ServiceIdentifier;
 import com.bbn.protelis.utils.VirtualClock;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 
 /**
@@ -64,6 +68,11 @@ import com.google.common.collect.ImmutableMap;
 
     private static final Logger LOGGER = LoggerFactory.getLogger(LinkResourceManager.class);
 
+    /**
+     * Time waiting for {@link #lock} when adding and removing client load.
+     */
+    private static final MetricHistogram LOCK_WAIT = MetricsRegistry.getInstance().histogram("link.lock.wait");
+
     private final Object lock = new Object();
 
     private final int hashCode;
@@ -238,7 +247,9 @@ import com.google.common.collect.ImmutableMap;
             final long duration,
             @Nonnull final NodeNetworkFlow clientReqFlow,
             @Nonnull final NodeIdentifier transmittingNode) {
+        final long lockStart = LOCK_WAIT.start();
         synchronized (lock) {
+            LOCK_WAIT.stop(lockStart);
 
             final boolean flipDatarateDirection;
             if (getTransmitter().equals(transmittingNode)) {
@@ -300,7 +311,9 @@ import com.google.common.collect.ImmutableMap;
      * @see #addLinkLoad(BaseNetworkLoad)
      */
     public void removeLinkLoad(final LinkLoadEntry entry) {
+        final long lockStart = LOCK_WAIT.start();
         synchronized (lock) {
+            LOCK_WAIT.stop(lockStart);
             loadTracker.removeLoad(entry);
         }
     }
@@ -336,6 +349,35 @@ import com.google.common.collect.ImmutableMap;
         }
     }
 
+    /**
+     * 
+     * @return the load on the link for a {@link SimulationCheckpoint}
+     */
+    @Nonnull
+    /* package */ ImmutableList<SimulationCheckpoint.LinkLoad> createCheckpoint() {
+        synchronized (lock) {
+            return ImmutableList.copyOf(loadTracker.getEntries().stream()
+                    .map(e -> new SimulationCheckpoint.LinkLoad(e.getFlow().getSource(), e.getFlow().getDestination(),
+                            e.getFlow().getServer(), e.getStartTime(), e.getDuration(), e.getService(),
+                            e.getNetworkLoad()))
+                    .collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * Add the load from a checkpoint. The capacity of the link is not checked
+     * as the load was accepted when the checkpoint was created.
+     * 
+     * @param load
+     *            the return value of {@link #createCheckpoint()}
+     */
+    /* package */ void restoreCheckpoint(@Nonnull final ImmutableList<SimulationCheckpoint.LinkLoad> load) {
+        synchronized (lock) {
+            load.forEach(l -> loadTracker.addLoad(new LinkLoadEntry(this, l.getFlow(), l.getStartTime(),
+                    l.getDuration(), l.getService(), l.getNetworkLoad())));
+        }
+    }
+
     private RequestResult determineClientRequestStatus() {
         final Map<LinkAttribute, Double> aggregateLinkLoad = loadTracker.getCurrentTotalLoad();
 
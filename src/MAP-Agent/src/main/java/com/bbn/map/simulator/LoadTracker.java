@@ -34,10 +34,15 @@ package com.bbn.map.simulator;
 import java.util.Comparator;
 import java.util.PriorityQueue;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nonnull;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.ImmutableList;
+
 /**
  * Base class for tracking load.
  * 
@@ -128,6 +133,16 @@ import org.slf4j.LoggerFactory;
      */
     protected abstract void postRemoveLoad(T entry);
 
+    /**
+     * 
+     * @return the entries that are currently tracked ordered by start time
+     */
+    @Nonnull
+    public final ImmutableList<T> getEntries() {
+        return ImmutableList.copyOf(loadQueue.stream().sorted(Comparator.comparingLong(LoadEntry::getStartTime))
+                .collect(Collectors.toList()));
+    }
+
     private static final class LoadEntryEndTime implements Comparator<LoadEntry> {
         public static final LoadEntryEndTime INSTANCE = new LoadEntryEndTime();
 
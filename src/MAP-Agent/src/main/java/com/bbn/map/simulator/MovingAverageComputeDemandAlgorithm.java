@@ -43,6 +43,7 @@ import org.slf4j.LoggerFactory;
 import com.bbn.protelis.networkresourcemanagement.NodeAttribute;
 import com.bbn.protelis.networkresourcemanagement.NodeIdentifier;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
 
 /**
  * Track compute demand for a particular estimation window using a moving
@@ -134,4 +135,9 @@ import com.google.common.collect.ImmutableMap;
         return reportDemand;
     }
 
+    @Override
+    public ImmutableMap<Long, ImmutableMap<NodeIdentifier, ImmutableMap<NodeAttribute, Double>>> getSamples() {
+        return ImmutableSortedMap.copyOf(computeLoadHistory);
+    }
+
 }
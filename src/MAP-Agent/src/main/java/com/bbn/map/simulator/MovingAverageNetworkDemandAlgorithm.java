@@ -45,6 +45,7 @@ import com.bbn.protelis.networkresourcemanagement.LinkAttribute;
 import com.bbn.protelis.networkresourcemanagement.NodeNetworkFlow;
 import com.bbn.protelis.networkresourcemanagement.ServiceIdentifier;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
 
 /**
  * Track network demand for a particular estimation window using a moving
@@ -149,4 +150,9 @@ import com.google.common.collect.ImmutableMap;
         return reportDemand;
     }
 
+    @Override
+    public ImmutableMap<Long, ImmutableMap<InterfaceIdentifier, ImmutableMap<NodeNetworkFlow, ImmutableMap<ServiceIdentifier<?>, ImmutableMap<LinkAttribute, Double>>>>> getSamples() {
+        return ImmutableSortedMap.copyOf(networkLoadHistory);
+    }
+
 }
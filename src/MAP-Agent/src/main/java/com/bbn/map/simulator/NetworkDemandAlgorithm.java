@@ -64,4 +64,12 @@ import com.google.common.collect.ImmutableMap;
      */
     ImmutableMap<InterfaceIdentifier, ImmutableMap<NodeNetworkFlow, ImmutableMap<ServiceIdentifier<?>, ImmutableMap<LinkAttribute, Double>>>> computeNetworkDemand();
 
+    /**
+     * @return timestamp -&gt; load for the values that the current demand is
+     *         computed from. Passing these values in time order to
+     *         {@link #updateDemandValues(long, ImmutableMap)} of a new object
+     *         gives the same demand.
+     */
+    ImmutableMap<Long, ImmutableMap<InterfaceIdentifier, ImmutableMap<NodeNetworkFlow, ImmutableMap<ServiceIdentifier<?>, ImmutableMap<LinkAttribute, Double>>>>> getSamples();
+
 }
@@ -34,6 +34,7 @@ package com.bbn.map.simulator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.TreeMap;
 
 import javax.annotation.Nonnull;
 
@@ -205,6 +206,51 @@ public class NetworkDemandTracker {
         }
     }
 
+    /**
+     * 
+     * @return the state of the tracker for a {@link SimulationCheckpoint}
+     */
+    @Nonnull
+    /* package */ SimulationCheckpoint.NetworkDemand createCheckpoint() {
+        final ImmutableMap.Builder<Long, ImmutableMap<InterfaceIdentifier, ImmutableMap<NodeNetworkFlow, ImmutableMap<ServiceIdentifier<?>, ImmutableMap<LinkAttribute, Double>>>>> failed = ImmutableMap
+                .builder();
+        synchronized (failedRequests) {
+            failedRequests.forEach((endTime, load) -> failed.put(endTime, ImmutableUtils.makeImmutableMap4(load)));
+        }
+        synchronized (helperLock) {
+            return new SimulationCheckpoint.NetworkDemand(helperShort.getSamples(), helperLong.getSamples(),
+                    failed.build());
+        }
+    }
+
+    /**
+     * Restore the state of a new tracker.
+     * 
+     * @param checkpoint
+     *            the return value of {@link #createCheckpoint()}
+     */
+    /* package */ void restoreCheckpoint(@Nonnull final SimulationCheckpoint.NetworkDemand checkpoint) {
+        synchronized (failedRequests) {
+            checkpoint.getFailedRequests().forEach((endTime, load) -> {
+                final Map<InterfaceIdentifier, Map<NodeNetworkFlow, Map<ServiceIdentifier<?>, Map<LinkAttribute, Double>>>> networkLoad = new HashMap<>();
+                load.forEach((ifce, ifceData) -> {
+                    final Map<NodeNetworkFlow, Map<ServiceIdentifier<?>, Map<LinkAttribute, Double>>> flowLoad = new HashMap<>();
+                    ifceData.forEach((flow, flowData) -> {
+                        final Map<ServiceIdentifier<?>, Map<LinkAttribute, Double>> serviceLoad = new HashMap<>();
+                        flowData.forEach((service, serviceData) -> serviceLoad.put(service, new HashMap<>(serviceData)));
+                        flowLoad.put(flow, serviceLoad);
+                    });
+                    networkLoad.put(ifce, flowLoad);
+                });
+                failedRequests.put(endTime, networkLoad);
+            });
+        }
+        synchronized (helperLock) {
+            new TreeMap<>(checkpoint.getShortSamples()).forEach(helperShort::updateDemandValues);
+            new TreeMap<>(checkpoint.getLongSamples()).forEach(helperLong::updateDemandValues);
+        }
+    }
+
     /* package */ static <K1, K2, K3, K4> ImmutableMap<K1, ImmutableMap<K2, ImmutableMap<K3, ImmutableMap<K4, Double>>>> historyMapAverage(
             final Map<K1, Map<K2, Map<K3, Map<K4, Double>>>> sums,
             final Map<K1, Map<K2, Map<K3, Map<K4, Integer>>>> counts) {
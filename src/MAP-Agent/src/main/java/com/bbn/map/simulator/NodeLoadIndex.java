@@ -0,0 +1,257 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.simulator;
+
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+import javax.annotation.Nonnull;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import com.bbn.protelis.networkresourcemanagement.ContainerResourceReport;
+import com.bbn.protelis.networkresourcemanagement.NodeAttribute;
+import com.bbn.protelis.networkresourcemanagement.NodeIdentifier;
+import com.bbn.protelis.networkresourcemanagement.ResourceReport;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Index of the load on the nodes and containers that are candidates for a
+ * {@link NodeFailure}. Each group of candidates is kept in a single ordered
+ * set for the node attribute of the failure. The index is updated whenever a
+ * node computes a new resource report, so choosing the most loaded candidate
+ * is a lookup of the first entry of the set rather than computing the load of
+ * every candidate when the failure happens.
+ * 
+ * The load is the load of {@link ResourceReport.EstimationWindow#SHORT}
+ * divided by the allocated capacity. Ties are broken by name so that the
+ * choice doesn't depend on the order of the candidates. A load of NaN, for
+ * instance when nothing is allocated, is only chosen when no candidate has a
+ * number.
+ */
+/* package */ final class NodeLoadIndex {
+
+    /**
+     * Highest load first, NaN last, then by name.
+     */
+    private static final Comparator<Entry> ORDER = (a, b) -> {
+        if (Double.isNaN(a.load) != Double.isNaN(b.load)) {
+            return Double.isNaN(a.load) ? 1 : -1;
+        }
+        final int cmp = Double.compare(b.load, a.load);
+        if (0 != cmp) {
+            return cmp;
+        }
+        return a.node.getName().compareTo(b.node.getName());
+    };
+
+    private static final class Entry {
+        private final NodeIdentifier node;
+        private final double load;
+
+        /* package */ Entry(final NodeIdentifier node, final double load) {
+            this.node = node;
+            this.load = load;
+        }
+    }
+
+    /**
+     * The candidates of one failure for one attribute.
+     */
+    private static final class Group {
+        private final NodeAttribute attribute;
+        private final TreeSet<Entry> ordered = new TreeSet<>(ORDER);
+        private final Map<NodeIdentifier, Entry> entries = new HashMap<>();
+
+        /* package */ Group(final NodeAttribute attribute) {
+            this.attribute = attribute;
+        }
+
+        /* package */ void update(final NodeIdentifier node, final double load) {
+            remove(node);
+            final Entry entry = new Entry(node, load);
+            ordered.add(entry);
+            entries.put(node, entry);
+        }
+
+        /* package */ void remove(final NodeIdentifier node) {
+            final Entry previous = entries.remove(node);
+            if (null != previous) {
+                ordered.remove(previous);
+            }
+        }
+
+        /* package */ NodeIdentifier first(final Predicate<NodeIdentifier> running) {
+            // entries for nodes that are not running are removed when the
+            // node stops, so this normally only looks at the first entry
+            for (final Entry entry : ordered) {
+                if (running.test(entry.node)) {
+                    return entry.node;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final Object lock = new Object();
+
+    /**
+     * (attribute, candidates) -> group.
+     */
+    private final Map<Pair<NodeAttribute, ImmutableSet<NodeIdentifier>>, Group> groups = new HashMap<>();
+
+    /**
+     * node -> groups that the node is a candidate in.
+     */
+    private final Map<NodeIdentifier, List<Group>> memberships = new HashMap<>();
+
+    /**
+     * Start tracking a set of candidates. Adding the same candidates and
+     * attribute a second time has no effect.
+     * 
+     * @param attribute
+     *            the attribute to compare the candidates by
+     * @param candidates
+     *            the nodes and containers to choose from
+     */
+    /* package */ void addCandidates(@Nonnull final NodeAttribute attribute,
+            @Nonnull final Collection<NodeIdentifier> candidates) {
+        synchronized (lock) {
+            groups.computeIfAbsent(Pair.of(attribute, ImmutableSet.copyOf(candidates)), k -> {
+                final Group group = new Group(attribute);
+                candidates.forEach(node -> memberships.computeIfAbsent(node, n -> new LinkedList<>()).add(group));
+                return group;
+            });
+        }
+    }
+
+    /**
+     * @return true if there are no candidates to track
+     */
+    /* package */ boolean isEmpty() {
+        synchronized (lock) {
+            return memberships.isEmpty();
+        }
+    }
+
+    /**
+     * Update the load of a node and its containers from a new report. Nodes
+     * that are not candidates are ignored.
+     * 
+     * @param report
+     *            the short resource report for the node
+     */
+    /* package */ void update(@Nonnull final ResourceReport report) {
+        synchronized (lock) {
+            final List<Group> nodeGroups = memberships.get(report.getNodeName());
+            if (null != nodeGroups) {
+                nodeGroups.forEach(
+                        group -> group.update(report.getNodeName(), computeLoadPercentage(group.attribute, report)));
+            }
+
+            report.getContainerReports().forEach((id, containerReport) -> {
+                final List<Group> containerGroups = memberships.get(id);
+                if (null != containerGroups) {
+                    containerGroups.forEach(
+                            group -> group.update(id, computeLoadPercentage(group.attribute, containerReport)));
+                }
+            });
+        }
+    }
+
+    /**
+     * Remove a node or container that has stopped.
+     * 
+     * @param node
+     *            the node or container
+     */
+    /* package */ void remove(@Nonnull final NodeIdentifier node) {
+        synchronized (lock) {
+            final List<Group> nodeGroups = memberships.get(node);
+            if (null != nodeGroups) {
+                nodeGroups.forEach(group -> group.remove(node));
+            }
+        }
+    }
+
+    /**
+     * Find the most loaded candidate. The candidates must have been passed to
+     * {@link #addCandidates(NodeAttribute, Collection)}.
+     * 
+     * @param attribute
+     *            the attribute to compare the candidates by
+     * @param candidates
+     *            the nodes and containers to choose from
+     * @param running
+     *            used to skip candidates that are no longer running
+     * @return the most loaded candidate that has reported load, null if none
+     *         of the candidates has reported load
+     */
+    /* package */ NodeIdentifier chooseMostLoaded(@Nonnull final NodeAttribute attribute,
+            @Nonnull final Collection<NodeIdentifier> candidates,
+            @Nonnull final Predicate<NodeIdentifier> running) {
+        synchronized (lock) {
+            final Group group = groups.get(Pair.of(attribute, ImmutableSet.copyOf(candidates)));
+            if (null == group) {
+                return null;
+            } else {
+                return group.first(running);
+            }
+        }
+    }
+
+    private static double computeLoadPercentage(final NodeAttribute attr, final ResourceReport report) {
+        final double load = report.getComputeLoad().values().stream().flatMap(m -> m.values().stream())
+                .mapToDouble(m -> m.getOrDefault(attr, 0D)).sum();
+
+        final double allocatedCapacity = report.getContainerReports().values().stream()
+                .mapToDouble(creport -> creport.getComputeCapacity().getOrDefault(attr, 0D)).sum();
+
+        return load / allocatedCapacity;
+    }
+
+    private static double computeLoadPercentage(final NodeAttribute attr, final ContainerResourceReport report) {
+        final ImmutableMap<NodeIdentifier, ImmutableMap<NodeAttribute, Double>> demand = report.getComputeDemand();
+        final double load = demand.values().stream().mapToDouble(m -> m.getOrDefault(attr, 0D)).sum();
+        final double allocatedCapacity = report.getComputeCapacity().getOrDefault(attr, 0D);
+        return load / allocatedCapacity;
+    }
+
+}
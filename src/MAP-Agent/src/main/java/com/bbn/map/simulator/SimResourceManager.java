@@ -45,6 +45,8 @@ import org.slf4j.LoggerFactory;
 
 import com.bbn.map.AgentConfiguration;
 import com.bbn.map.Controller;
+import com.bbn.map.metrics.MetricHistogram;
+import com.bbn.map.metrics.MetricsRegistry;
 import com.bbn.protelis.networkresourcemanagement.BasicResourceManager;
 import com.bbn.protelis.networkresourcemanagement.ContainerParameters;
 import com.bbn.protelis.networkresourcemanagement.ContainerResourceReport;
@@ -96,6 +98,12 @@ public class SimResourceManager implements ResourceManager<Controller> {
         return simulation;
     }
 
+    /**
+     * Time to compute the resource reports for a node.
+     */
+    private static final MetricHistogram REPORT_UPDATE = MetricsRegistry.getInstance()
+            .histogram("resource.report.update");
+
     private final Object lock = new Object();
     private ResourceReport shortResourceReport;
     private ResourceReport longResourceReport;
@@ -224,7 +232,9 @@ public class SimResourceManager implements ResourceManager<Controller> {
      * the latest ResourceReports.
      */
     /* package */ void updateResourceReports() {
+        final long start = REPORT_UPDATE.start();
         try (CloseableThreadContext.Instance ctc = CloseableThreadContext.push(node.getNodeIdentifier().getName())) {
+            final ResourceReport newShortReport;
             synchronized (lock) {
                 final long now = getClock().getCurrentTime();
 
@@ -320,12 +330,24 @@ public class SimResourceManager implements ResourceManager<Controller> {
                 if (logger.isTraceEnabled()) {
                     logger.trace("Short report computed load: {}", shortResourceReport.getComputeLoad());
                 }
+                newShortReport = shortResourceReport;
             } // end lock
-        } // logging thread context
+
+            // outside of the lock as the load index has its own lock
+            simulation.updateNodeLoad(newShortReport);
+        } finally {
+            REPORT_UPDATE.stop(start);
+        }
     }
 
     private ScheduledThreadPoolExecutor resourceReportTimer = null;
 
+    /**
+     * Used instead of {@link #resourceReportTimer} when the clock is a
+     * {@link DiscreteEventClock}.
+     */
+    private Thread resourceReportThread = null;
+
     /**
      * Start generation of {@link ResourceReport} objects.
      * 
@@ -334,12 +356,41 @@ public class SimResourceManager implements ResourceManager<Controller> {
      */
     public void startSimulation() {
         synchronized (lock) {
-            if (null != resourceReportTimer) {
+            if (null != resourceReportTimer || null != resourceReportThread) {
                 throw new IllegalStateException("Cannot start the simulation when it is already running");
             }
-            resourceReportTimer = new ScheduledThreadPoolExecutor(1);
-            resourceReportTimer.scheduleAtFixedRate(() -> updateResourceReports(), 0, pollingInterval,
-                    TimeUnit.MILLISECONDS);
+            if (DiscreteEventClock.isDiscreteEvent(getClock())) {
+                final DiscreteEventClock clock = (DiscreteEventClock) getClock();
+                // register the actor before the thread starts so that time
+                // cannot pass the first report while the thread is starting
+                resourceReportThread = new Thread(clock.actor(() -> resourceReportWorker(clock)),
+                        String.format("%s resource reports", node.getName()));
+                resourceReportThread.setDaemon(true);
+                resourceReportThread.start();
+            } else {
+                resourceReportTimer = new ScheduledThreadPoolExecutor(1);
+                resourceReportTimer.scheduleAtFixedRate(() -> updateResourceReports(), 0, pollingInterval,
+                        TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private boolean isResourceReportThread() {
+        synchronized (lock) {
+            return Thread.currentThread() == resourceReportThread;
+        }
+    }
+
+    /**
+     * Generate the reports at a fixed rate. Run as an actor of the clock.
+     */
+    private void resourceReportWorker(final DiscreteEventClock clock) {
+        long nextReport = clock.getCurrentTime();
+        while (isResourceReportThread()) {
+            updateResourceReports();
+
+            nextReport += pollingInterval;
+            clock.waitUntilTime(nextReport);
         }
     }
 
@@ -349,11 +400,18 @@ public class SimResourceManager implements ResourceManager<Controller> {
      */
     public void stopSimulation() {
         synchronized (lock) {
-            logger.debug("Stopping resource manager {} timer null? {}", node.getName(), null == resourceReportTimer);
-            if (null != resourceReportTimer) {
+            logger.debug("Stopping resource manager {} timer null? {} thread null? {}", node.getName(),
+                    null == resourceReportTimer, null == resourceReportThread);
+            if (null != resourceReportTimer || null != resourceReportThread) {
 
-                resourceReportTimer.shutdown();
-                resourceReportTimer = null;
+                if (null != resourceReportTimer) {
+                    resourceReportTimer.shutdown();
+                    resourceReportTimer = null;
+                }
+                if (null != resourceReportThread) {
+                    resourceReportThread.interrupt();
+                    resourceReportThread = null;
+                }
 
                 runningContainers.forEach((id, sim) -> {
                     simulation.unregisterContainer(id);
@@ -401,19 +459,94 @@ public class SimResourceManager implements ResourceManager<Controller> {
                         getContainerIds().size(), runningContainers);
                 return null;
             } else {
-                final ImmutableMap<LinkAttribute, Double> genericNetworkCapacity = parameters.getNetworkCapacity();
-
-                final ContainerSim container = new ContainerSim(this, service, nextAvailable,
-                        parameters.getComputeCapacity(), genericNetworkCapacity);
-                runningContainers.put(nextAvailable, container);
-
-                simulation.registerContainer(nextAvailable, container);
-                logger.trace("Started service {} on container {}", service, nextAvailable);
+                startContainer(service, parameters, nextAvailable);
                 return nextAvailable;
             }
         }
     }
 
+    /**
+     * Start a service in a specific container. This is used to restore a
+     * {@link SimulationCheckpoint} so that the container names match the
+     * names in the DNS records and plans.
+     * 
+     * @param service
+     *            the service to start
+     * @param parameters
+     *            the container parameters
+     * @param containerId
+     *            the container to start the service in
+     * @return true if the service was started, false if the container is not
+     *         on this node or is already running
+     */
+    /* package */ boolean startServiceInContainer(@Nonnull final ServiceIdentifier<?> service,
+            @Nonnull final ContainerParameters parameters,
+            @Nonnull final NodeIdentifier containerId) {
+        synchronized (lock) {
+            if (!getContainerIds().contains(containerId) || runningContainers.containsKey(containerId)) {
+                logger.warn("Container {} is not available on node {} to start {}. Running: {}", containerId,
+                        node.getName(), service, runningContainers);
+                return false;
+            } else {
+                startContainer(service, parameters, containerId);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Must be called with the lock held.
+     */
+    private void startContainer(final ServiceIdentifier<?> service,
+            final ContainerParameters parameters,
+            final NodeIdentifier containerId) {
+        final ImmutableMap<LinkAttribute, Double> genericNetworkCapacity = parameters.getNetworkCapacity();
+
+        final ContainerSim container = new ContainerSim(this, service, containerId, parameters.getComputeCapacity(),
+                genericNetworkCapacity);
+        runningContainers.put(containerId, container);
+
+        simulation.registerContainer(containerId, container);
+        logger.trace("Started service {} on container {}", service, containerId);
+    }
+
+    /**
+     * 
+     * @return container -> service for the containers that are running
+     */
+    @Nonnull
+    /* package */ Map<NodeIdentifier, ServiceIdentifier<?>> getRunningContainerServices() {
+        final Map<NodeIdentifier, ServiceIdentifier<?>> result = new HashMap<>();
+        synchronized (lock) {
+            runningContainers.forEach((id, container) -> {
+                final ServiceIdentifier<?> service = container.getService();
+                if (null != service) {
+                    result.put(id, service);
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * 
+     * @return the network demand state of the node for a
+     *         {@link SimulationCheckpoint}
+     */
+    @Nonnull
+    /* package */ SimulationCheckpoint.NetworkDemand createNetworkDemandCheckpoint() {
+        return networkDemandTracker.createCheckpoint();
+    }
+
+    /**
+     * 
+     * @param checkpoint
+     *            the return value of {@link #createNetworkDemandCheckpoint()}
+     */
+    /* package */ void restoreNetworkDemandCheckpoint(@Nonnull final SimulationCheckpoint.NetworkDemand checkpoint) {
+        networkDemandTracker.restoreCheckpoint(checkpoint);
+    }
+
     @Override
     public boolean stopService(@Nonnull final NodeIdentifier containerName) {
         logger.trace("Called stop service with {}", containerName);
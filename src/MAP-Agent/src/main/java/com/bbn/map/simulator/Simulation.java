@@ -31,31 +31,36 @@ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 BBN_LICENSE_END*/
 package com.bbn.map.simulator;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
 import java.net.UnknownHostException;
-import java.nio.charset.Charset;
-import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
-import java.util.stream.DoubleStream;
 import java.util.stream.Stream;
 
 import javax.annotation.Nonnull;
 
 import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -75,14 +80,19 @@ import com.bbn.map.dns.DelegateRecord;
 import com.bbn.map.dns.DnsRecord;
 import com.bbn.map.dns.NameRecord;
 import com.bbn.map.dns.PlanTranslator;
+import com.bbn.map.dump.DirectoryStateDump;
+import com.bbn.map.dump.StateDump;
+import com.bbn.map.metrics.MetricHistogram;
+import com.bbn.map.metrics.MetricsRegistry;
 import com.bbn.map.ta2.OverlayTopology;
 import com.bbn.map.ta2.RegionalLink;
 import com.bbn.map.ta2.RegionalTopology;
 import com.bbn.map.ta2.TA2Interface;
 import com.bbn.map.utils.MapUtils;
+import com.bbn.map.utils.WeightedRoundRobin;
 import com.bbn.protelis.networkresourcemanagement.ContainerParameters;
-import com.bbn.protelis.networkresourcemanagement.ContainerResourceReport;
 import com.bbn.protelis.networkresourcemanagement.DnsNameIdentifier;
+import com.bbn.protelis.networkresourcemanagement.LoadBalancerPlan;
 import com.bbn.protelis.networkresourcemanagement.NetworkClient;
 import com.bbn.protelis.networkresourcemanagement.NetworkLink;
 import com.bbn.protelis.networkresourcemanagement.NetworkNode;
@@ -92,6 +102,7 @@ import com.bbn.protelis.networkresourcemanagement.NodeIdentifier;
 import com.bbn.protelis.networkresourcemanagement.NodeLookupService;
 import com.bbn.protelis.networkresourcemanagement.RegionIdentifier;
 import com.bbn.protelis.networkresourcemanagement.RegionLookupService;
+import com.bbn.protelis.networkresourcemanagement.RegionPlan;
 import com.bbn.protelis.networkresourcemanagement.ResourceManager;
 import com.bbn.protelis.networkresourcemanagement.ResourceReport;
 import com.bbn.protelis.networkresourcemanagement.ResourceReport.EstimationWindow;
@@ -118,6 +129,8 @@ public class Simulation implements NetworkServices, AutoCloseable, RegionLookupS
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Simulation.class);
 
+    private static final MetricHistogram DNS_RESOLVE = MetricsRegistry.getInstance().histogram("dns.resolve");
+
     private static final int MAX_NUM_CHARACTERS_IN_TIMESTAMP = String.valueOf(Integer.MAX_VALUE).length();
     /**
      * Format for time directories.
@@ -165,18 +178,26 @@ public class Simulation implements NetworkServices, AutoCloseable, RegionLookupS
 
     private final DijkstraShortestPath<NetworkNode, NetworkLink> pathFinder;
     private final ImmutableMap<String, HardwareConfiguration> hardwareConfigs;
+    private final Function<ServiceIdentifier<?>, ContainerParameters> serviceContainerParameterLookup;
     private final SimResourceManagerFactory managerFactory;
 
     private final boolean allowDnsChanges;
     private final boolean enableDcop;
     private final boolean enableRlg;
 
-    private final Map<Controller, SimResourceManager> resourceManagers = new HashMap<>();
+    // written by the threads creating the controllers
+    private final Map<Controller, SimResourceManager> resourceManagers = new ConcurrentHashMap<>();
 
     private final List<NodeFailure> nodeFailures;
 
     private Thread nodeFailureThread = null;
 
+    /**
+     * Load of the candidates for node failures, kept up to date as the nodes
+     * compute resource reports.
+     */
+    private final NodeLoadIndex nodeLoadIndex = new NodeLoadIndex();
+
     /**
      * Used to populate the map for {@link #getResourceManager(NetworkServer)}.
      * 
@@ -287,107 +308,126 @@ public class Simulation implements NetworkServices, AutoCloseable, RegionLookupS
             throws IOException {
         this.managerFactory = new SimResourceManagerFactory(this, pollingInterval);
         this.clock = clock;
+        this.serviceContainerParameterLookup = serviceContainerParmeterLookup;
         this.allowDnsChanges = allowDnsChanges;
         this.enableDcop = enableDcop;
         this.enableRlg = enableRlg;
-        this.hardwareConfigs = HardwareConfiguration
-                .parseHardwareConfigurations(scenarioDirectory.resolve(HardwareConfiguration.HARDWARE_CONFIG_FILENAME));
+        try (StartupPipeline startup = new StartupPipeline("Simulation startup",
+                SimulationConfiguration.getInstance().getStartupParallelism())) {
+            this.hardwareConfigs = HardwareConfiguration.parseHardwareConfigurations(
+                    scenarioDirectory.resolve(HardwareConfiguration.HARDWARE_CONFIG_FILENAME));
+            startup.endPhase("hardware configurations");
+
+            graph = parseScenario(name, scenarioDirectory, managerFactory, demandPath, startup);
+            validateTopology();
+
+            checkDnsUpdateHandlers();
+            startup.endPhase("validate topology");
+
+            final Path serviceConfigurationPath = scenarioDirectory.resolve(SERVICE_CONFIGURATIONS_FILENAME);
+            final Path applicationDependenciesPath = scenarioDirectory.resolve(SERVICE_DEPENDENCIES_FILENAME);
+            final ImmutableMap<ApplicationCoordinates, ServiceConfiguration> serviceConfigurations = AppMgrUtils
+                    .loadApplicationManager(serviceConfigurationPath, applicationDependenciesPath);
+
+            final ApplicationManagerApi appManager = AppMgrUtils.getApplicationManager();
+
+            final DnsResolutionType dnsResolutionType = AgentConfiguration.getInstance().getDnsResolutionType();
+            planTranslator = PlanTranslator.constructPlanTranslator(dnsResolutionType, ttl);
+            startup.endPhase("service configurations");
+
+            final Path nodeFailuresPath = scenarioDirectory.resolve(NODE_FAILURES_FILENAME);
+            nodeFailures = NodeFailure.loadNodeFailures(nodeFailuresPath);
+            if (!verifyNodeFailures()) {
+                throw new IllegalArgumentException(
+                        "There were errors with the node failures. See previous log messages for the details.");
+            }
+            nodeFailures.stream()
+                    .filter(failure -> failure.nodes.size() > 1
+                            && NodeFailure.NodeChooseAlgorithm.MOST_LOADED.equals(failure.chooseAlgorithm))
+                    .forEach(failure -> nodeLoadIndex.addCandidates(failure.nodeMetric, toIdentifiers(failure)));
+            startup.endPhase("node failures");
+
+            if (!verifyClientRequests(appManager, startup)) {
+                throw new IllegalArgumentException(
+                        "There were errors with the client requests. See previous log messages for the details.");
+            }
+            startup.endPhase("verify client demand");
 
-        graph = parseScenario(name, scenarioDirectory, managerFactory, demandPath);
-        validateTopology();
+            final Path backgroundTrafficPath;
+            if (null != demandPath) {
+                backgroundTrafficPath = demandPath.resolve(BACKGROUND_TRAFFIC_FILENAME);
+            } else {
+                backgroundTrafficPath = null;
+            }
+            backgroundTrafficSim = new BackgroundTrafficSim(this, backgroundTrafficPath);
+            if (!verifyBackgroundTraffic()) {
+                throw new IllegalArgumentException(
+                        "There were errors with the background traffic requests. See previous log messages for the details.");
+            }
+            startup.endPhase("background traffic");
 
-        checkDnsUpdateHandlers();
+            // start initial services
+            final Map<ApplicationCoordinates, Set<RegionIdentifier>> serviceDefaultRegions = new HashMap<>();
+            serviceConfigurations.forEach((service, config) -> {
+                LOGGER.debug("Processing service: {} config: {}", service, config);
 
-        final Path serviceConfigurationPath = scenarioDirectory.resolve(SERVICE_CONFIGURATIONS_FILENAME);
-        final Path applicationDependenciesPath = scenarioDirectory.resolve(SERVICE_DEPENDENCIES_FILENAME);
-        final ImmutableMap<ApplicationCoordinates, ServiceConfiguration> serviceConfigurations = AppMgrUtils
-                .loadApplicationManager(serviceConfigurationPath, applicationDependenciesPath);
+                final ApplicationSpecification appSpec = appManager.getApplicationSpecification(service);
 
-        final ApplicationManagerApi appManager = AppMgrUtils.getApplicationManager();
+                final ImmutableMap<NodeIdentifier, Integer> defaultNodes = config.getDefaultNodes();
+                final RegionIdentifier serviceDefaultRegion = appSpec.getServiceDefaultRegion();
 
-        final DnsResolutionType dnsResolutionType = AgentConfiguration.getInstance().getDnsResolutionType();
-        planTranslator = PlanTranslator.constructPlanTranslator(dnsResolutionType, ttl);
+                boolean foundNodeInDefaultRegion = false;
+                for (final Map.Entry<NodeIdentifier, Integer> entry : defaultNodes.entrySet()) {
+                    final NodeIdentifier nodeId = entry.getKey();
+                    final int initialInstances = entry.getValue();
 
-        final Path nodeFailuresPath = scenarioDirectory.resolve(NODE_FAILURES_FILENAME);
-        nodeFailures = NodeFailure.loadNodeFailures(nodeFailuresPath);
-        if (!verifyNodeFailures()) {
-            throw new IllegalArgumentException(
-                    "There were errors with the node failures. See previous log messages for the details.");
-        }
+                    LOGGER.debug("Default node: {} instances: {}", nodeId, initialInstances);
 
-        if (!verifyClientRequests(appManager)) {
-            throw new IllegalArgumentException(
-                    "There were errors with the client requests. See previous log messages for the details.");
-        }
+                    final Controller controller = getControllerById(nodeId);
+                    Objects.requireNonNull(controller, "Cannot find controller for node: " + nodeId
+                            + " that is listed as a default node for service " + service);
 
-        final Path backgroundTrafficPath;
-        if (null != demandPath) {
-            backgroundTrafficPath = demandPath.resolve(BACKGROUND_TRAFFIC_FILENAME);
-        } else {
-            backgroundTrafficPath = null;
-        }
-        backgroundTrafficSim = new BackgroundTrafficSim(this, backgroundTrafficPath);
-        if (!verifyBackgroundTraffic()) {
-            throw new IllegalArgumentException(
-                    "There were errors with the background traffic requests. See previous log messages for the details.");
-        }
+                    if (serviceDefaultRegion.equals(controller.getRegionIdentifier())) {
+                        foundNodeInDefaultRegion = true;
+                    }
 
-        // start initial services
-        final Map<ApplicationCoordinates, Set<RegionIdentifier>> serviceDefaultRegions = new HashMap<>();
-        serviceConfigurations.forEach((service, config) -> {
-            LOGGER.debug("Processing service: {} config: {}", service, config);
+                    final DNSSim regionalDns = getRegionalDNS(serviceDefaultRegion);
 
-            final ApplicationSpecification appSpec = appManager.getApplicationSpecification(service);
+                    final ResourceManager<?> mgr = controller.getResourceManager();
+                    for (int i = 0; i < initialInstances; ++i) {
+                        final ContainerParameters parameters = serviceContainerParmeterLookup.apply(service);
+                        final NodeIdentifier id = mgr.startService(service, parameters);
+                        Objects.requireNonNull(id, "Unable to start initial service " + service + " instance number "
+                                + (i + 1) + " on " + nodeId);
 
-            final ImmutableMap<NodeIdentifier, Integer> defaultNodes = config.getDefaultNodes();
-            final RegionIdentifier serviceDefaultRegion = appSpec.getServiceDefaultRegion();
+                        LOGGER.info("Started initial service {} on {}", service, id);
 
-            boolean foundNodeInDefaultRegion = false;
-            for (final Map.Entry<NodeIdentifier, Integer> entry : defaultNodes.entrySet()) {
-                final NodeIdentifier nodeId = entry.getKey();
-                final int initialInstances = entry.getValue();
+                        // add entry for the container into the regional DNS
+                        final DnsRecord record = new NameRecord(null, ttl, service, id);
+                        regionalDns.addRecord(record, 1D);
+                    }
 
-                LOGGER.debug("Default node: {} instances: {}", nodeId, initialInstances);
-
-                final Controller controller = getControllerById(nodeId);
-                Objects.requireNonNull(controller, "Cannot find controller for node: " + nodeId
-                        + " that is listed as a default node for service " + service);
-
-                if (serviceDefaultRegion.equals(controller.getRegionIdentifier())) {
-                    foundNodeInDefaultRegion = true;
+                    final Set<RegionIdentifier> regions = serviceDefaultRegions.computeIfAbsent(service,
+                            k -> new HashSet<>());
+                    regions.add(serviceDefaultRegion);
                 }
 
-                final DNSSim regionalDns = getRegionalDNS(serviceDefaultRegion);
-
-                final ResourceManager<?> mgr = controller.getResourceManager();
-                for (int i = 0; i < initialInstances; ++i) {
-                    final ContainerParameters parameters = serviceContainerParmeterLookup.apply(service);
-                    final NodeIdentifier id = mgr.startService(service, parameters);
-                    Objects.requireNonNull(id, "Unable to start initial service " + service + " instance number "
-                            + (i + 1) + " on " + nodeId);
-
-                    LOGGER.info("Started initial service {} on {}", service, id);
-
-                    // add entry for the container into the regional DNS
-                    final DnsRecord record = new NameRecord(null, ttl, service, id);
-                    regionalDns.addRecord(record, 1D);
+                if (!foundNodeInDefaultRegion) {
+                    throw new RuntimeException(
+                            "No default nodes defined for service " + service + " in region " + serviceDefaultRegion);
                 }
+            });
 
-                final Set<RegionIdentifier> regions = serviceDefaultRegions.computeIfAbsent(service,
-                        k -> new HashSet<>());
-                regions.add(serviceDefaultRegion);
-            }
+            startup.endPhase("initial services");
 
-            if (!foundNodeInDefaultRegion) {
-                throw new RuntimeException(
-                        "No default nodes defined for service " + service + " in region " + serviceDefaultRegion);
-            }
-        });
+            pathFinder = new DijkstraShortestPath<>(graph);
 
-        pathFinder = new DijkstraShortestPath<>(graph);
+            if (!enableRlg) {
+                setupServiceDelegation(serviceConfigurations, appManager, ttl);
+            }
+            startup.endPhase("service delegation");
 
-        if (!enableRlg) {
-            setupServiceDelegation(serviceConfigurations, appManager, ttl);
+            startup.logTimes(LOGGER);
         }
     }
 
@@ -447,7 +487,8 @@ public class Simulation implements NetworkServices, AutoCloseable, RegionLookupS
     private Graph<NetworkNode, NetworkLink> parseScenario(@Nonnull final String scenarioName,
             @Nonnull final Path baseDirectory,
             @Nonnull final SimResourceManagerFactory managerFactory,
-            final Path demandPath) throws IOException {
+            final Path demandPath,
+            @Nonnull final StartupPipeline startup) throws IOException {
 
         final NodeLookupService nodeLookupService = new LocalNodeLookupService(BASE_AP_COM_PORT);
         final NodeLookupService dcopLookup = new LocalNodeLookupService(BASE_DCOP_COM_PORT);
@@ -458,36 +499,60 @@ public class Simulation implements NetworkServices, AutoCloseable, RegionLookupS
                 DnsNameIdentifier::new);
 
         final Topology topology = NS2Parser.parse(scenarioName, baseDirectory);
-        final Graph<NetworkNode, NetworkLink> graph = MapUtils.parseTopology(topology, factory);
+        startup.endPhase("parse topology");
 
-        processGraph(topology.getName(), graph, demandPath);
+        // creating the controllers is the most expensive part of the startup
+        final Graph<NetworkNode, NetworkLink> graph;
+        if (null == startup.getExecutor()) {
+            graph = MapUtils.parseTopology(topology, factory);
+        } else {
+            graph = MapUtils.parseTopology(topology, factory, startup.getExecutor());
+        }
+        startup.endPhase("create nodes");
+
+        processGraph(topology.getName(), graph, demandPath, startup);
 
         return graph;
     }
 
-    private void processGraph(final String name, final Graph<NetworkNode, NetworkLink> graph, final Path demandPath) {
+    private void processGraph(final String name,
+            final Graph<NetworkNode, NetworkLink> graph,
+            final Path demandPath,
+            final StartupPipeline startup) {
+        final List<NetworkClient> clients = new ArrayList<>();
+        final Set<RegionIdentifier> regions = new LinkedHashSet<>();
         graph.getVertices().stream().forEach(node -> {
             if (node instanceof NetworkClient) {
                 final NetworkClient client = (NetworkClient) node;
                 clientCache.put(client.getNodeIdentifier(), client);
-
-                final ClientSim sim = new ClientSim(this, client, demandPath);
-                clientSimulators.add(sim);
-
-                ensureRegionalDNSExists(client.getRegionIdentifier());
+                clients.add(client);
+                regions.add(client.getRegionIdentifier());
             } else if (node instanceof Controller) {
                 final Controller controller = (Controller) node;
                 controllerCache.put(controller.getNodeIdentifier(), controller);
-                ensureRegionalDNSExists(controller.getRegionIdentifier());
+                regions.add(controller.getRegionIdentifier());
             } else {
                 throw new RuntimeException("Unexpected NetworkDevice type: " + node);
             }
         });
 
+        // the client simulators read their demand when they are created
+        clientSimulators.addAll(startup.map(clients, client -> new ClientSim(this, client, demandPath)));
+        startup.endPhase("client simulators");
+
+        regions.removeAll(regionalDNS.keySet());
+        final List<RegionIdentifier> newRegions = new ArrayList<>(regions);
+        final List<DNSSim> dnsServers = startup.map(newRegions, this::createDnsSim);
+        for (int i = 0; i < newRegions.size(); ++i) {
+            regionalDNS.put(newRegions.get(i), dnsServers.get(i));
+        }
+        startup.endPhase("regional DNS");
+
         graph.getEdges().stream().forEach(link -> {
             final LinkResourceManager lmgr = new LinkResourceManager(link);
             addLinkResMgr(lmgr);
         });
+        startup.endPhase("link resource managers");
     }
 
     // MapOracle
@@ -599,6 +664,23 @@ public class Simulation implements NetworkServices, AutoCloseable, RegionLookupS
         }
     }
 
+    /**
+     * Package visibility for testing.
+     * 
+     * @return the number of times that nodes have been removed from the
+     *         network graph
+     */
+    /* package */ int getNetworkModificationCount() {
+        synchronized (graph) {
+            return networkModificationCount;
+        }
+    }
+
+    /**
+     * Guarded by {@link #graph}.
+     */
+    private int networkModificationCount = 0;
+
     private final Map<RegionIdentifier, DNSSim> regionalDNS = new HashMap<>();
 
     /**
@@ -672,7 +754,9 @@ public class Simulation implements NetworkServices, AutoCloseable, RegionLookupS
             @Nonnull final ServiceIdentifier<?> service) throws UnknownHostException {
         final DNSSim dns = getRegionalDNS(clientRegion);
 
+        final long resolveStart = DNS_RESOLVE.start();
         final NodeIdentifier containerName = dns.resolveService(clientId.getName(), service);
+        DNS_RESOLVE.stop(resolveStart);
         LOGGER.trace("Container for service {} is {}", service, containerName);
         if (null == containerName) {
             LOGGER.error("Unable to find '{}' in dns: {} records {}", service, dns, dns.recordsToString());
@@ -748,10 +832,15 @@ public class Simulation implements NetworkServices, AutoCloseable, RegionLookupS
                     controllerCache.entrySet().stream().findFirst().get().getValue().setGlobalLeader(true);
                 }
 
-                controllerCache.forEach((k, controller) -> {
-                    controller.startExecuting();
-                    getResourceManager(controller).startSimulation();
-                });
+                try (StartupPipeline startup = new StartupPipeline("Simulation start",
+                        SimulationConfiguration.getInstance().getStartupParallelism())) {
+                    startup.forEach(controllerCache.values(), controller -> {
+                        controller.startExecuting();
+                        getResourceManager(controller).startSimulation();
+                    });
+                    startup.endPhase("start nodes");
+                    startup.logTimes(LOGGER);
+                }
             }
 
             nodeFailureThread = new Thread(() -> simulateFailures(), "Simulate node failures");
@@ -856,27 +945,208 @@ public class Simulation implements NetworkServices, AutoCloseable, RegionLookupS
      *             if there is an error writing one of the files
      */
     public void dumpCurrentState(@Nonnull final Path outputDir, @Nonnull final ObjectWriter mapper) throws IOException {
+        dumpCurrentState(new DirectoryStateDump(outputDir, mapper));
+    }
+
+    /**
+     * Write the current state of the simulation.
+     * 
+     * @param dump
+     *            where to write the state
+     * @throws IOException
+     *             if there is an error writing one of the values
+     */
+    public void dumpCurrentState(@Nonnull final StateDump dump) throws IOException {
 
         // DNS state
         for (final Map.Entry<RegionIdentifier, DNSSim> entry : regionalDNS.entrySet()) {
             final RegionIdentifier region = entry.getKey();
             final DNSSim dns = entry.getValue();
 
-            final Path dnsFilename = outputDir.resolve(String.format("dns-%s.json", region.getName()));
-            try (BufferedWriter writer = Files.newBufferedWriter(dnsFilename, Charset.defaultCharset())) {
-                final DnsState state = new DnsState(dns);
-                mapper.writeValue(writer, state);
-            }
+            dump.write(String.format("dns-%s.json", region.getName()), new DnsState(dns));
         }
 
         // client state
         for (final ClientSim client : getClientSimulators()) {
-            final Path dnsFilename = outputDir.resolve(String.format("client-%s.json", client.getSimName()));
-            try (BufferedWriter writer = Files.newBufferedWriter(dnsFilename, Charset.defaultCharset())) {
-                mapper.writeValue(writer, client.getSimulationState());
+            dump.write(String.format("client-%s.json", client.getSimName()), client.getSimulationState());
+        }
+
+    }
+
+    /**
+     * Capture the state of the simulation so that a new simulation of the
+     * same scenario can resume from this point.
+     * 
+     * @return the checkpoint
+     * @see #restoreCheckpoint(SimulationCheckpoint)
+     */
+    @Nonnull
+    public SimulationCheckpoint createCheckpoint() {
+        final long time = getClock().getCurrentTime();
+
+        final ImmutableList.Builder<SimulationCheckpoint.ContainerCheckpoint> containersBuilder = ImmutableList
+                .builder();
+        final ImmutableMap.Builder<String, LoadBalancerPlan> rlgPlans = ImmutableMap.builder();
+        final ImmutableMap.Builder<String, RegionPlan> dcopPlans = ImmutableMap.builder();
+        final ImmutableMap.Builder<String, SimulationCheckpoint.NetworkDemand> networkDemand = ImmutableMap
+                .builder();
+        for (final Controller controller : getAllControllers()) {
+            final String nodeName = controller.getNodeIdentifier().getName();
+            final SimResourceManager mgr = getResourceManager(controller);
+            mgr.getRunningContainerServices().keySet().forEach(id -> {
+                final ContainerSim container = getContainerById(id);
+                if (null != container) {
+                    containersBuilder.add(container.createCheckpoint());
+                }
+            });
+            networkDemand.put(nodeName, mgr.createNetworkDemandCheckpoint());
+
+            if (controller.isRunRLG()) {
+                rlgPlans.put(nodeName, controller.getRlgPlan());
+            }
+            if (controller.isRunDCOP()) {
+                dcopPlans.put(nodeName, controller.getDcopPlan());
+            }
+        }
+
+        final ImmutableList.Builder<SimulationCheckpoint.LinkCheckpoint> links = ImmutableList.builder();
+        linkResourceManagers.forEach((receiver, transmitters) -> transmitters.forEach((transmitter,
+                lmgr) -> links.add(new SimulationCheckpoint.LinkCheckpoint(receiver.getName(), transmitter.getName(),
+                        lmgr.createCheckpoint()))));
+
+        final ImmutableMap.Builder<String, ImmutableList<SimulationCheckpoint.DnsEntry>> dnsBuilder = ImmutableMap
+                .builder();
+        final ImmutableMap.Builder<String, ImmutableList<WeightedRoundRobin.Cursor<DnsRecord>>> dnsCursors = ImmutableMap
+                .builder();
+        regionalDNS.forEach((region, dns) -> {
+            final ImmutableList.Builder<SimulationCheckpoint.DnsEntry> entries = ImmutableList.builder();
+            dns.foreachRecord((record, weight) -> entries.add(new SimulationCheckpoint.DnsEntry(record, weight)));
+            dnsBuilder.put(region.getName(), entries.build());
+            dnsCursors.put(region.getName(), dns.getRoundRobinCursors());
+        });
+
+        final ImmutableMap.Builder<String, ClientState> clients = ImmutableMap.builder();
+        final ImmutableMap.Builder<String, ImmutableList<SimulationCheckpoint.PendingRequest>> pendingRequests = ImmutableMap
+                .builder();
+        final ImmutableMap.Builder<String, ImmutableList<SimulationCheckpoint.PendingRetry>> pendingRetries = ImmutableMap
+                .builder();
+        getClientSimulators().forEach(client -> {
+            clients.put(client.getSimName(), client.getSimulationState());
+            pendingRequests.put(client.getSimName(), client.getPendingDependentRequests());
+            pendingRetries.put(client.getSimName(), client.getPendingRetries());
+        });
+
+        return new SimulationCheckpoint(time, containersBuilder.build(), links.build(), networkDemand.build(),
+                dnsBuilder.build(), dnsCursors.build(), rlgPlans.build(), dcopPlans.build(), clients.build(),
+                pendingRequests.build(), pendingRetries.build(), backgroundTrafficSim.getSimulationState(),
+                SimulationConfiguration.getInstance().getRandomStates());
+    }
+
+    /**
+     * Apply a checkpoint from {@link #createCheckpoint()} to this simulation.
+     * This must be called before the simulation is started and the clock
+     * must be started at {@link SimulationCheckpoint#getTime()}. The initial
+     * containers of the scenario are replaced by the containers in the
+     * checkpoint together with their load. The client simulators must be
+     * started before the simulation so that they are waiting when the clock
+     * starts, see {@link #startClients()}.
+     * 
+     * @param checkpoint
+     *            the checkpoint to resume from
+     * @throws IllegalArgumentException
+     *             if the checkpoint refers to nodes or containers that are not
+     *             in this simulation
+     */
+    public void restoreCheckpoint(@Nonnull final SimulationCheckpoint checkpoint) {
+        if (getClock().getCurrentTime() != checkpoint.getTime()) {
+            LOGGER.warn("Restoring a checkpoint from time {} with the clock at {}", checkpoint.getTime(),
+                    getClock().getCurrentTime());
+        }
+
+        for (final Controller controller : getAllControllers()) {
+            final SimResourceManager mgr = getResourceManager(controller);
+            mgr.getRunningContainerServices().keySet().forEach(mgr::stopService);
+        }
+
+        for (final SimulationCheckpoint.ContainerCheckpoint container : checkpoint.getContainers()) {
+            final Controller controller = getControllerById(new DnsNameIdentifier(container.getNode()));
+            if (null == controller) {
+                throw new IllegalArgumentException("Unknown node in checkpoint: " + container.getNode());
+            }
+            final ServiceIdentifier<?> service = container.getService();
+            final NodeIdentifier containerId = new DnsNameIdentifier(container.getContainer());
+            if (!getResourceManager(controller).startServiceInContainer(service,
+                    serviceContainerParameterLookup.apply(service), containerId)) {
+                throw new IllegalArgumentException("Unable to start " + service + " in container "
+                        + container.getContainer() + " on " + container.getNode());
+            }
+            getContainerById(containerId).restoreCheckpoint(container);
+        }
+
+        for (final SimulationCheckpoint.LinkCheckpoint link : checkpoint.getLinks()) {
+            final LinkResourceManager lmgr = getLinkResourceManager(new DnsNameIdentifier(link.getReceiver()),
+                    new DnsNameIdentifier(link.getTransmitter()));
+            if (null == lmgr) {
+                throw new IllegalArgumentException(
+                        "Unknown link in checkpoint: " + link.getReceiver() + " <-> " + link.getTransmitter());
+            }
+            lmgr.restoreCheckpoint(link.getLoad());
+        }
+
+        checkpoint.getNetworkDemand().forEach((nodeName, demand) -> {
+            final Controller controller = getControllerById(new DnsNameIdentifier(nodeName));
+            if (null == controller) {
+                throw new IllegalArgumentException("Unknown node in checkpoint: " + nodeName);
+            }
+            getResourceManager(controller).restoreNetworkDemandCheckpoint(demand);
+        });
+
+        checkpoint.getDns().forEach((regionName, entries) -> {
+            final DNSSim dns = regionalDNS.entrySet().stream().filter(e -> regionName.equals(e.getKey().getName()))
+                    .map(Map.Entry::getValue).findFirst().orElse(null);
+            if (null == dns) {
+                throw new IllegalArgumentException("Unknown region in checkpoint: " + regionName);
+            }
+            final List<Pair<DnsRecord, Double>> records = entries.stream()
+                    .map(e -> Pair.of(e.getRecord(), e.getWeight())).collect(Collectors.toList());
+            dns.replaceAllRecords(ImmutableList.copyOf(records));
+            dns.restoreRoundRobinCursors(checkpoint.getDnsCursors().getOrDefault(regionName, ImmutableList.of()));
+        });
+
+        checkpoint.getRlgPlans().forEach((nodeName, plan) -> {
+            final Controller controller = getControllerById(new DnsNameIdentifier(nodeName));
+            if (null != controller) {
+                controller.publishRlgPlan(plan);
+            } else {
+                LOGGER.warn("Skipping RLG plan for unknown node {}", nodeName);
+            }
+        });
+        checkpoint.getDcopPlans().forEach((nodeName, plan) -> {
+            final Controller controller = getControllerById(new DnsNameIdentifier(nodeName));
+            if (null != controller) {
+                controller.publishDcopPlan(plan);
+            } else {
+                LOGGER.warn("Skipping DCOP plan for unknown node {}", nodeName);
+            }
+        });
+
+        for (final ClientSim client : getClientSimulators()) {
+            final ClientState state = checkpoint.getClients().get(client.getSimName());
+            if (null != state) {
+                client.resumeAt(checkpoint.getTime(), state,
+                        checkpoint.getPendingRequests().getOrDefault(client.getSimName(), ImmutableList.of()),
+                        checkpoint.getPendingRetries().getOrDefault(client.getSimName(), ImmutableList.of()));
+            } else {
+                LOGGER.warn("No state for client {} in checkpoint", client.getSimName());
             }
         }
 
+        backgroundTrafficSim.resumeAt(checkpoint.getTime(), checkpoint.getBackgroundTraffic());
+
+        SimulationConfiguration.getInstance().restoreRandomStates(checkpoint.getRandomStates());
+
+        LOGGER.info("Restored checkpoint from time {} with {} containers", checkpoint.getTime(),
+                checkpoint.getContainers().size());
     }
 
     /**
@@ -1213,6 +1483,7 @@ public class Simulation implements NetworkServices, AutoCloseable, RegionLookupS
             final ContainerSim containerSim = containers.remove(containerId);
             stoppedContainerToRegion.put(containerId, containerSim.getParentNode().getRegionIdentifier());
         }
+        nodeLoadIndex.remove(containerId);
     }
 
     /**
@@ -1278,76 +1549,134 @@ public class Simulation implements NetworkServices, AutoCloseable, RegionLookupS
      *            the node to shutdown
      */
     /* package */ void shutdownNode(@Nonnull final Controller controller) {
-        LOGGER.info("Stopping node {}", controller.getNodeIdentifier());
-        getResourceManager(controller).stopSimulation();
-        controller.stopExecuting();
+        shutdownNodes(Collections.singletonList(controller));
+    }
+
+    /**
+     * Simulate failure of a group of nodes. The network graph is modified once
+     * for all of the nodes.
+     * 
+     * @param controllers
+     *            the nodes to shutdown
+     */
+    private void shutdownNodes(@Nonnull final Collection<Controller> controllers) {
+        for (final Controller controller : controllers) {
+            LOGGER.info("Stopping node {}", controller.getNodeIdentifier());
+            nodeLoadIndex.remove(controller.getNodeIdentifier());
+            getResourceManager(controller).stopSimulation();
+            controller.stopExecuting();
+        }
         synchronized (graph) {
-            graph.removeVertex(controller);
+            controllers.forEach(graph::removeVertex);
+            ++networkModificationCount;
         }
         synchronized (controllerCache) {
-            controllerCache.remove(controller.getNodeIdentifier());
+            controllers.forEach(controller -> controllerCache.remove(controller.getNodeIdentifier()));
+        }
+        controllers.forEach(controller -> LOGGER.info("Finished stopping node {}", controller.getNodeIdentifier()));
+    }
+
+    /**
+     * Called by the resource managers when a new resource report is computed
+     * to keep the load of the node failure candidates up to date.
+     * 
+     * @param shortReport
+     *            the new short report
+     */
+    /* package */ void updateNodeLoad(@Nonnull final ResourceReport shortReport) {
+        if (!nodeLoadIndex.isEmpty()) {
+            nodeLoadIndex.update(shortReport);
         }
-        LOGGER.info("Finished stopping node {}", controller.getNodeIdentifier());
     }
 
     private void simulateFailures() {
-        for (final NodeFailure failure : nodeFailures) {
-            LOGGER.trace("Waiting for failure time {}", failure.time);
-            getClock().waitUntilTime(failure.time);
+        DiscreteEventClock.registerActor(getClock());
+        try {
+            simulateFailuresAsActor();
+        } finally {
+            DiscreteEventClock.unregisterActor(getClock());
+        }
+    }
+
+    private void simulateFailuresAsActor() {
+        // failures at the same time are executed as a single burst
+        final SortedMap<Long, List<NodeFailure>> bursts = new TreeMap<>();
+        nodeFailures.forEach(failure -> bursts.computeIfAbsent(failure.time, k -> new LinkedList<>()).add(failure));
+
+        for (final Map.Entry<Long, List<NodeFailure>> burst : bursts.entrySet()) {
+            LOGGER.trace("Waiting for failure time {}", burst.getKey());
+            getClock().waitUntilTime(burst.getKey());
 
             if (!running.get()) {
                 LOGGER.debug("Exiting failure thread due to simulation shutdown");
                 return;
             }
 
-            if (failure.nodes.isEmpty()) {
-                LOGGER.warn("Found node failure at " + failure.time + " with no nodes, skipping");
-                continue;
-            }
+            final Map<NodeIdentifier, Controller> toStop = new LinkedHashMap<>();
+            for (final NodeFailure failure : burst.getValue()) {
+                if (failure.nodes.isEmpty()) {
+                    LOGGER.warn("Found node failure at " + failure.time + " with no nodes, skipping");
+                    continue;
+                }
 
-            final NodeIdentifier nodeId = chooseNodeToFail(failure);
-            if (null == nodeId) {
-                LOGGER.error("Unable to find a node to fail out of {}", failure.nodes);
-            } else {
-                final Controller controller = getControllerById(nodeId);
-                if (null != controller) {
-                    shutdownNode(controller);
+                final NodeIdentifier nodeId = chooseNodeToFail(failure, toStop.keySet());
+                if (null == nodeId) {
+                    LOGGER.error("Unable to find a node to fail out of {}", failure.nodes);
                 } else {
-                    LOGGER.error("Unable to find {} as a running node or a running container", nodeId);
+                    final Controller controller = getControllerById(nodeId);
+                    if (null != controller) {
+                        toStop.put(nodeId, controller);
+                        // later failures in the burst choose from the
+                        // remaining nodes
+                        nodeLoadIndex.remove(nodeId);
+                    } else {
+                        LOGGER.error("Unable to find {} as a running node or a running container", nodeId);
+                    }
                 }
+            }
 
-                if (!running.get()) {
-                    LOGGER.debug("Exiting failure thread due to simulation shutdown");
-                    return;
-                }
+            if (!toStop.isEmpty()) {
+                shutdownNodes(toStop.values());
+            }
+
+            if (!running.get()) {
+                LOGGER.debug("Exiting failure thread due to simulation shutdown");
+                return;
             }
         }
     }
 
-    private NodeIdentifier chooseNodeToFail(final NodeFailure failure) {
+    private static Collection<NodeIdentifier> toIdentifiers(final NodeFailure failure) {
+        return failure.nodes.stream().map(DnsNameIdentifier::new).collect(Collectors.toList());
+    }
+
+    /**
+     * @param failure
+     *            the failure to choose a node for
+     * @param stopping
+     *            nodes that are stopping as part of the same burst
+     * @return the node to fail, null if none of the nodes can be failed
+     */
+    private NodeIdentifier chooseNodeToFail(final NodeFailure failure, final Set<NodeIdentifier> stopping) {
         if (null == failure.nodes || failure.nodes.isEmpty()) {
             LOGGER.error("Node failure object has null or empty nodes list");
             return null;
         } else if (failure.nodes.size() == 1) {
             return new DnsNameIdentifier(failure.nodes.stream().findFirst().get());
         } else {
-            final Collection<NodeIdentifier> ids = failure.nodes.stream().map(DnsNameIdentifier::new)
+            final Predicate<NodeIdentifier> running = id -> !stopping.contains(id)
+                    && (null != getControllerById(id) || null != getContainerById(id));
+            final List<NodeIdentifier> options = toIdentifiers(failure).stream().filter(running)
                     .collect(Collectors.toList());
-            final Collection<Controller> controllerOptions = ids.stream().map(id -> controllerCache.get(id))
-                    .filter(Objects::nonNull).collect(Collectors.toList());
-            final Collection<ContainerSim> containerOptions = ids.stream().map(id -> containers.get(id))
-                    .filter(Objects::nonNull).collect(Collectors.toList());
-            if (controllerOptions.isEmpty() && containerOptions.isEmpty()) {
+            if (options.isEmpty()) {
                 LOGGER.error("Cannot find any running nodes or containers in {} to fail", failure.nodes);
                 return null;
-            } else if (controllerOptions.isEmpty() && 1 == containerOptions.size()) {
-                return containerOptions.stream().findFirst().get().getIdentifier();
-            } else if (1 == controllerOptions.size() && containerOptions.isEmpty()) {
-                return controllerOptions.stream().findFirst().get().getNodeIdentifier();
+            } else if (1 == options.size()) {
+                return options.get(0);
             } else {
                 switch (failure.chooseAlgorithm) {
                 case MOST_LOADED:
-                    return chooseMostLoaded(failure.nodeMetric, controllerOptions, containerOptions);
+                    return chooseMostLoaded(failure, options, running);
                 default:
                     throw new IllegalArgumentException(
                             "Unknown node failure choose algorithm: " + failure.chooseAlgorithm);
@@ -1356,88 +1685,22 @@ public class Simulation implements NetworkServices, AutoCloseable, RegionLookupS
         }
     }
 
-    private NodeIdentifier chooseMostLoaded(final NodeAttribute nodeAttr,
-            final Collection<Controller> controllerOptions,
-            final Collection<ContainerSim> containerOptions) {
-        Objects.requireNonNull(nodeAttr,
+    private NodeIdentifier chooseMostLoaded(final NodeFailure failure,
+            final Collection<NodeIdentifier> options,
+            final Predicate<NodeIdentifier> running) {
+        Objects.requireNonNull(failure.nodeMetric,
                 "The node attribute for a node failure cannot be null when looking for the most loaded node");
 
-        double max = Double.NEGATIVE_INFINITY;
-        NodeIdentifier maxNode = null;
-        for (final Controller controller : controllerOptions) {
-            final double loadPercentage = computeLoadPercentage(nodeAttr, controller);
-            LOGGER.trace("Load percentage on node {} is {}", controller.getNodeIdentifier(), loadPercentage);
-            if (null == maxNode) {
-                max = loadPercentage;
-                maxNode = controller.getNodeIdentifier();
-            } else if (Double.isNaN(max) && !Double.isNaN(loadPercentage)) {
-                max = loadPercentage;
-                maxNode = controller.getNodeIdentifier();
-            } else if (loadPercentage > max) {
-                max = loadPercentage;
-                maxNode = controller.getNodeIdentifier();
-            }
-        }
-
-        for (final ContainerSim container : containerOptions) {
-            final double loadPercentage = computeLoadPercentage(nodeAttr, container);
-            LOGGER.trace("Load percentage on container {} is {}", container.getIdentifier(), loadPercentage);
-            if (null == maxNode) {
-                max = loadPercentage;
-                maxNode = container.getIdentifier();
-            } else if (Double.isNaN(max) && !Double.isNaN(loadPercentage)) {
-                max = loadPercentage;
-                maxNode = container.getIdentifier();
-            } else if (loadPercentage > max) {
-                max = loadPercentage;
-                maxNode = container.getIdentifier();
-            }
+        final NodeIdentifier mostLoaded = nodeLoadIndex.chooseMostLoaded(failure.nodeMetric, toIdentifiers(failure),
+                running);
+        if (null != mostLoaded) {
+            LOGGER.trace("Most loaded of {} is {}", failure.nodes, mostLoaded);
+            return mostLoaded;
+        } else {
+            // none of the options have reported load yet, the loads are all
+            // unknown so choose by name
+            return options.stream().min(Comparator.comparing(NodeIdentifier::getName)).get();
         }
-
-        return maxNode;
-    }
-
-    private double computeLoadPercentage(final NodeAttribute attr, final Controller node) {
-        // looking at load only, so estimation window doesn't matter
-        final ResourceReport report = node.getResourceReport(EstimationWindow.SHORT);
-        final ImmutableMap<ServiceIdentifier<?>, ImmutableMap<NodeIdentifier, ImmutableMap<NodeAttribute, Double>>> allLoad = report
-                .getComputeLoad();
-
-        final Stream<ImmutableMap<NodeIdentifier, ImmutableMap<NodeAttribute, Double>>> s1 = allLoad.entrySet().stream()
-                .map(Map.Entry::getValue);
-        final Stream<Map.Entry<NodeIdentifier, ImmutableMap<NodeAttribute, Double>>> s2 = s1
-                .flatMap(m -> m.entrySet().stream());
-        final Stream<ImmutableMap<NodeAttribute, Double>> s3 = s2.map(Map.Entry::getValue);
-        final DoubleStream s4 = s3.mapToDouble(m -> m.getOrDefault(attr, 0D));
-        final double load = s4.sum();
-
-        final double allocatedCapacity = computeAllocatedCapacity(attr, report);
-
-        final double loadPercentage = load / allocatedCapacity;
-        return loadPercentage;
-    }
-
-    private double computeLoadPercentage(final NodeAttribute attr, final ContainerSim container) {
-        // looking at load only, so estimation window doesn't matter
-        final ContainerResourceReport report = container.getContainerResourceReport(EstimationWindow.SHORT);
-        final ImmutableMap<NodeIdentifier, ImmutableMap<NodeAttribute, Double>> allLoad = report.getComputeDemand();
-        final Stream<ImmutableMap<NodeAttribute, Double>> s1 = allLoad.entrySet().stream().map(Map.Entry::getValue);
-        final DoubleStream s2 = s1.mapToDouble(m -> m.getOrDefault(attr, 0D));
-        final double load = s2.sum();
-        final double allocatedCapacity = computeAllocatedCapacity(attr, report);
-        final double loadPercentage = load / allocatedCapacity;
-        return loadPercentage;
-    }
-
-    private double computeAllocatedCapacity(final NodeAttribute attr, final ResourceReport report) {
-        final double capacity = report.getContainerReports().entrySet().stream().map(Map.Entry::getValue)
-                .mapToDouble(creport -> computeAllocatedCapacity(attr, creport)).sum();
-        return capacity;
-    }
-
-    private double computeAllocatedCapacity(final NodeAttribute attr, final ContainerResourceReport report) {
-        final double capacity = report.getComputeCapacity().getOrDefault(attr, 0D);
-        return capacity;
     }
 
     /**
@@ -1500,10 +1763,15 @@ public class Simulation implements NetworkServices, AutoCloseable, RegionLookupS
         return retval;
     }
 
-    private boolean verifyClientRequests(final ApplicationManagerApi appManager) {
-        for (final ClientSim sim : clientSimulators) {
-            for (final ClientLoad req : sim.getClientRequests()) {
-                final ApplicationCoordinates service = req.getService();
+    private boolean verifyClientRequests(final ApplicationManagerApi appManager, final StartupPipeline startup) {
+        return startup.map(clientSimulators, sim -> verifyClientRequests(appManager, sim)).stream()
+                .allMatch(Boolean::booleanValue);
+    }
+
+    private static boolean verifyClientRequests(final ApplicationManagerApi appManager, final ClientSim sim) {
+        try (DemandStream<ClientLoad> demand = sim.openClientDemand()) {
+            while (demand.hasNext()) {
+                final ApplicationCoordinates service = demand.next().getService();
                 final ApplicationSpecification appSpec = appManager.getApplicationSpecification(service);
                 if (null == appSpec) {
                     LOGGER.error("Unable to find application specification configuration for " + service);
@@ -1533,15 +1801,18 @@ public class Simulation implements NetworkServices, AutoCloseable, RegionLookupS
     }
 
     private boolean verifyBackgroundTraffic() {
-        for (final BackgroundNetworkLoad req : backgroundTrafficSim.getRequests()) {
-            if (!isValidNodeId(new DnsNameIdentifier(req.getClient()))) {
-                LOGGER.error("{} is not a known node in the network", req.getClient());
-                return false;
-            }
+        try (DemandStream<BackgroundNetworkLoad> requests = backgroundTrafficSim.openRequests()) {
+            while (requests.hasNext()) {
+                final BackgroundNetworkLoad req = requests.next();
+                if (!isValidNodeId(new DnsNameIdentifier(req.getClient()))) {
+                    LOGGER.error("{} is not a known node in the network", req.getClient());
+                    return false;
+                }
 
-            if (!isValidNodeId(new DnsNameIdentifier(req.getServer()))) {
-                LOGGER.error("{} is not a known node in the network", req.getServer());
-                return false;
+                if (!isValidNodeId(new DnsNameIdentifier(req.getServer()))) {
+                    LOGGER.error("{} is not a known node in the network", req.getServer());
+                    return false;
+                }
             }
         }
         return true;
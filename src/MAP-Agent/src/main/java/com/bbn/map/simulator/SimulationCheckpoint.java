@@ -0,0 +1,992 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.simulator;
+
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.annotation.Nonnull;
+
+import com.bbn.map.Controller;
+import com.bbn.map.dns.DnsRecord;
+import com.bbn.map.utils.JsonUtils;
+import com.bbn.map.utils.WeightedRoundRobin;
+import com.bbn.protelis.networkresourcemanagement.InterfaceIdentifier;
+import com.bbn.protelis.networkresourcemanagement.LinkAttribute;
+import com.bbn.protelis.networkresourcemanagement.LoadBalancerPlan;
+import com.bbn.protelis.networkresourcemanagement.NodeAttribute;
+import com.bbn.protelis.networkresourcemanagement.NodeIdentifier;
+import com.bbn.protelis.networkresourcemanagement.NodeNetworkFlow;
+import com.bbn.protelis.networkresourcemanagement.RegionIdentifier;
+import com.bbn.protelis.networkresourcemanagement.RegionPlan;
+import com.bbn.protelis.networkresourcemanagement.ServiceIdentifier;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * The state of a {@link Simulation} at a point in time that a new simulation
+ * of the same scenario can resume from. Created with
+ * {@link Simulation#createCheckpoint()} and applied with
+ * {@link Simulation#restoreCheckpoint(SimulationCheckpoint)}.
+ * 
+ * Client requests that started before the checkpoint time are not run again
+ * when the clients resume, see {@link ClientSim#resumeAt(long, ClientState,
+ * ImmutableList)}. Their load on the containers and network links is stored
+ * in the checkpoint instead, together with the samples that the demand
+ * estimates are computed from and the position of the DNS round robins.
+ * Requests that are waiting to retry are sent again at their retry time and
+ * the random number generators from
+ * {@link SimulationConfiguration#getRandom(String)} continue from their state
+ * at the checkpoint.
+ * 
+ * The checkpoint is consistent when it is taken while all actors of a serial
+ * {@link DiscreteEventClock} are waiting, then all events before the
+ * checkpoint time have happened and none at the checkpoint time.
+ */
+public final class SimulationCheckpoint {
+
+    /**
+     * 
+     * @param time
+     *            see {@link #getTime()}
+     * @param containers
+     *            see {@link #getContainers()}
+     * @param links
+     *            see {@link #getLinks()}
+     * @param networkDemand
+     *            see {@link #getNetworkDemand()}
+     * @param dns
+     *            see {@link #getDns()}
+     * @param dnsCursors
+     *            see {@link #getDnsCursors()}
+     * @param rlgPlans
+     *            see {@link #getRlgPlans()}
+     * @param dcopPlans
+     *            see {@link #getDcopPlans()}
+     * @param clients
+     *            see {@link #getClients()}
+     * @param pendingRequests
+     *            see {@link #getPendingRequests()}
+     * @param pendingRetries
+     *            see {@link #getPendingRetries()}
+     * @param backgroundTraffic
+     *            see {@link #getBackgroundTraffic()}
+     * @param randomStates
+     *            see {@link #getRandomStates()}
+     */
+    public SimulationCheckpoint(@JsonProperty("time") final long time,
+            @JsonProperty("containers") @Nonnull final ImmutableList<ContainerCheckpoint> containers,
+            @JsonProperty("links") @Nonnull final ImmutableList<LinkCheckpoint> links,
+            @JsonProperty("networkDemand") @Nonnull final ImmutableMap<String, NetworkDemand> networkDemand,
+            @JsonProperty("dns") @Nonnull final ImmutableMap<String, ImmutableList<DnsEntry>> dns,
+            @JsonProperty("dnsCursors") @Nonnull final ImmutableMap<String, ImmutableList<WeightedRoundRobin.Cursor<DnsRecord>>> dnsCursors,
+            @JsonProperty("rlgPlans") @Nonnull final ImmutableMap<String, LoadBalancerPlan> rlgPlans,
+            @JsonProperty("dcopPlans") @Nonnull final ImmutableMap<String, RegionPlan> dcopPlans,
+            @JsonProperty("clients") @Nonnull final ImmutableMap<String, ClientState> clients,
+            @JsonProperty("pendingRequests") @Nonnull final ImmutableMap<String, ImmutableList<PendingRequest>> pendingRequests,
+            @JsonProperty("pendingRetries") @Nonnull final ImmutableMap<String, ImmutableList<PendingRetry>> pendingRetries,
+            @JsonProperty("backgroundTraffic") @Nonnull final BaseClientState backgroundTraffic,
+            @JsonProperty("randomStates") @Nonnull final ImmutableMap<String, Long> randomStates) {
+        this.time = time;
+        this.containers = containers;
+        this.links = links;
+        this.networkDemand = networkDemand;
+        this.dns = dns;
+        this.dnsCursors = dnsCursors;
+        this.rlgPlans = rlgPlans;
+        this.dcopPlans = dcopPlans;
+        this.clients = clients;
+        this.pendingRequests = pendingRequests;
+        this.pendingRetries = pendingRetries;
+        this.backgroundTraffic = backgroundTraffic;
+        this.randomStates = randomStates;
+    }
+
+    private final long time;
+
+    /**
+     * @return the simulation time that the checkpoint was taken at
+     */
+    public long getTime() {
+        return time;
+    }
+
+    private final ImmutableList<ContainerCheckpoint> containers;
+
+    /**
+     * @return the containers that were running
+     */
+    @Nonnull
+    public ImmutableList<ContainerCheckpoint> getContainers() {
+        return containers;
+    }
+
+    private final ImmutableList<LinkCheckpoint> links;
+
+    /**
+     * @return the load on the network links between the nodes
+     */
+    @Nonnull
+    public ImmutableList<LinkCheckpoint> getLinks() {
+        return links;
+    }
+
+    private final ImmutableMap<String, NetworkDemand> networkDemand;
+
+    /**
+     * @return node name -> network demand estimation of the node
+     */
+    @Nonnull
+    public ImmutableMap<String, NetworkDemand> getNetworkDemand() {
+        return networkDemand;
+    }
+
+    private final ImmutableMap<String, ImmutableList<DnsEntry>> dns;
+
+    /**
+     * @return region name -> records in the regional DNS
+     */
+    @Nonnull
+    public ImmutableMap<String, ImmutableList<DnsEntry>> getDns() {
+        return dns;
+    }
+
+    private final ImmutableMap<String, ImmutableList<WeightedRoundRobin.Cursor<DnsRecord>>> dnsCursors;
+
+    /**
+     * @return region name -> position of the round robin for each list of
+     *         records in the regional DNS
+     */
+    @Nonnull
+    public ImmutableMap<String, ImmutableList<WeightedRoundRobin.Cursor<DnsRecord>>> getDnsCursors() {
+        return dnsCursors;
+    }
+
+    private final ImmutableMap<String, LoadBalancerPlan> rlgPlans;
+
+    /**
+     * @return node name -> RLG plan published by the node
+     */
+    @Nonnull
+    public ImmutableMap<String, LoadBalancerPlan> getRlgPlans() {
+        return rlgPlans;
+    }
+
+    private final ImmutableMap<String, RegionPlan> dcopPlans;
+
+    /**
+     * @return node name -> DCOP plan published by the node
+     */
+    @Nonnull
+    public ImmutableMap<String, RegionPlan> getDcopPlans() {
+        return dcopPlans;
+    }
+
+    private final ImmutableMap<String, ClientState> clients;
+
+    /**
+     * @return client simulator name -> state of the client simulator
+     */
+    @Nonnull
+    public ImmutableMap<String, ClientState> getClients() {
+        return clients;
+    }
+
+    private final ImmutableMap<String, ImmutableList<PendingRequest>> pendingRequests;
+
+    /**
+     * @return client simulator name -> requests for dependent services that
+     *         were waiting to start
+     */
+    @Nonnull
+    public ImmutableMap<String, ImmutableList<PendingRequest>> getPendingRequests() {
+        return pendingRequests;
+    }
+
+    private final ImmutableMap<String, ImmutableList<PendingRetry>> pendingRetries;
+
+    /**
+     * @return client simulator name -> requests that were waiting to retry in
+     *         the order that they started waiting
+     */
+    @Nonnull
+    public ImmutableMap<String, ImmutableList<PendingRetry>> getPendingRetries() {
+        return pendingRetries;
+    }
+
+    private final BaseClientState backgroundTraffic;
+
+    /**
+     * @return the state of the background traffic simulator
+     */
+    @Nonnull
+    public BaseClientState getBackgroundTraffic() {
+        return backgroundTraffic;
+    }
+
+    private final ImmutableMap<String, Long> randomStates;
+
+    /**
+     * @return see {@link SimulationConfiguration#getRandomStates()}
+     */
+    @Nonnull
+    public ImmutableMap<String, Long> getRandomStates() {
+        return randomStates;
+    }
+
+    /**
+     * Write the checkpoint to a file.
+     * 
+     * @param path
+     *            the file to write
+     * @throws IOException
+     *             if there is an error writing the file
+     */
+    public void write(@Nonnull final Path path) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, Charset.defaultCharset())) {
+            Controller.createDumpWriter().writeValue(writer, this);
+        }
+    }
+
+    /**
+     * Read a checkpoint written by {@link #write(Path)}.
+     * 
+     * @param path
+     *            the file to read
+     * @return the checkpoint
+     * @throws IOException
+     *             if there is an error reading the file
+     */
+    public static SimulationCheckpoint read(@Nonnull final Path path) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(path, Charset.defaultCharset())) {
+            return JsonUtils.getStandardMapObjectMapper().readValue(reader, SimulationCheckpoint.class);
+        }
+    }
+
+    /**
+     * A container that was running at the time of the checkpoint.
+     */
+    public static final class ContainerCheckpoint {
+
+        /**
+         * 
+         * @param node
+         *            see {@link #getNode()}
+         * @param container
+         *            see {@link #getContainer()}
+         * @param service
+         *            see {@link #getService()}
+         * @param nodeLoad
+         *            see {@link #getNodeLoad()}
+         * @param linkLoad
+         *            see {@link #getLinkLoad()}
+         * @param requestsPerRegion
+         *            see {@link #getRequestsPerRegion()}
+         * @param requestsCompleted
+         *            see {@link #getRequestsCompleted()}
+         * @param processingTime
+         *            see {@link #getProcessingTime()}
+         * @param computeDemand
+         *            see {@link #getComputeDemand()}
+         */
+        public ContainerCheckpoint(@JsonProperty("node") @Nonnull final String node,
+                @JsonProperty("container") @Nonnull final String container,
+                @JsonProperty("service") @Nonnull final ServiceIdentifier<?> service,
+                @JsonProperty("nodeLoad") @Nonnull final ImmutableList<NodeLoad> nodeLoad,
+                @JsonProperty("linkLoad") @Nonnull final ImmutableList<LinkLoad> linkLoad,
+                @JsonProperty("requestsPerRegion") @Nonnull final ImmutableMap<RegionIdentifier, Integer> requestsPerRegion,
+                @JsonProperty("requestsCompleted") final int requestsCompleted,
+                @JsonProperty("processingTime") final double processingTime,
+                @JsonProperty("computeDemand") @Nonnull final ComputeDemand computeDemand) {
+            this.node = node;
+            this.container = container;
+            this.service = service;
+            this.nodeLoad = nodeLoad;
+            this.linkLoad = linkLoad;
+            this.requestsPerRegion = requestsPerRegion;
+            this.requestsCompleted = requestsCompleted;
+            this.processingTime = processingTime;
+            this.computeDemand = computeDemand;
+        }
+
+        private final String node;
+
+        /**
+         * @return the name of the NCP running the container
+         */
+        @Nonnull
+        public String getNode() {
+            return node;
+        }
+
+        private final String container;
+
+        /**
+         * @return the name of the container
+         */
+        @Nonnull
+        public String getContainer() {
+            return container;
+        }
+
+        private final ServiceIdentifier<?> service;
+
+        /**
+         * @return the service running in the container
+         */
+        @Nonnull
+        public ServiceIdentifier<?> getService() {
+            return service;
+        }
+
+        private final ImmutableList<NodeLoad> nodeLoad;
+
+        /**
+         * @return the client requests that are using the container
+         */
+        @Nonnull
+        public ImmutableList<NodeLoad> getNodeLoad() {
+            return nodeLoad;
+        }
+
+        private final ImmutableList<LinkLoad> linkLoad;
+
+        /**
+         * @return the load on the link between the container and the NCP
+         */
+        @Nonnull
+        public ImmutableList<LinkLoad> getLinkLoad() {
+            return linkLoad;
+        }
+
+        private final ImmutableMap<RegionIdentifier, Integer> requestsPerRegion;
+
+        /**
+         * @return see {@link ContainerSim#getNumRequestsPerRegion()}
+         */
+        @Nonnull
+        public ImmutableMap<RegionIdentifier, Integer> getRequestsPerRegion() {
+            return requestsPerRegion;
+        }
+
+        private final int requestsCompleted;
+
+        /**
+         * @return the number of requests that the container has finished
+         */
+        public int getRequestsCompleted() {
+            return requestsCompleted;
+        }
+
+        private final double processingTime;
+
+        /**
+         * @return the time that a standard sized container would have needed
+         *         to process the finished requests
+         */
+        public double getProcessingTime() {
+            return processingTime;
+        }
+
+        private final ComputeDemand computeDemand;
+
+        /**
+         * @return the compute demand estimation of the container
+         */
+        @Nonnull
+        public ComputeDemand getComputeDemand() {
+            return computeDemand;
+        }
+    }
+
+    /**
+     * A client request that is using a container.
+     */
+    public static final class NodeLoad {
+        /**
+         * 
+         * @param client
+         *            see {@link #getClient()}
+         * @param startTime
+         *            see {@link #getStartTime()}
+         * @param duration
+         *            see {@link #getDuration()}
+         * @param request
+         *            see {@link #getRequest()}
+         */
+        public NodeLoad(@JsonProperty("client") @Nonnull final NodeIdentifier client,
+                @JsonProperty("startTime") final long startTime,
+                @JsonProperty("duration") final long duration,
+                @JsonProperty("request") @Nonnull final ClientLoad request) {
+            this.client = client;
+            this.startTime = startTime;
+            this.duration = duration;
+            this.request = request;
+        }
+
+        private final NodeIdentifier client;
+
+        /**
+         * @return the client that is causing the load
+         */
+        @Nonnull
+        public NodeIdentifier getClient() {
+            return client;
+        }
+
+        private final long startTime;
+
+        /**
+         * @return when the load started
+         */
+        public long getStartTime() {
+            return startTime;
+        }
+
+        private final long duration;
+
+        /**
+         * @return how long the load lasts
+         */
+        public long getDuration() {
+            return duration;
+        }
+
+        private final ClientLoad request;
+
+        /**
+         * @return the request that is creating the load
+         */
+        @Nonnull
+        public ClientLoad getRequest() {
+            return request;
+        }
+    }
+
+    /**
+     * The load on a network link between two nodes.
+     */
+    public static final class LinkCheckpoint {
+        /**
+         * 
+         * @param receiver
+         *            see {@link #getReceiver()}
+         * @param transmitter
+         *            see {@link #getTransmitter()}
+         * @param load
+         *            see {@link #getLoad()}
+         */
+        public LinkCheckpoint(@JsonProperty("receiver") @Nonnull final String receiver,
+                @JsonProperty("transmitter") @Nonnull final String transmitter,
+                @JsonProperty("load") @Nonnull final ImmutableList<LinkLoad> load) {
+            this.receiver = receiver;
+            this.transmitter = transmitter;
+            this.load = load;
+        }
+
+        private final String receiver;
+
+        /**
+         * @return the name of the receiving node of the link
+         */
+        @Nonnull
+        public String getReceiver() {
+            return receiver;
+        }
+
+        private final String transmitter;
+
+        /**
+         * @return the name of the transmitting node of the link
+         */
+        @Nonnull
+        public String getTransmitter() {
+            return transmitter;
+        }
+
+        private final ImmutableList<LinkLoad> load;
+
+        /**
+         * @return the load on the link
+         */
+        @Nonnull
+        public ImmutableList<LinkLoad> getLoad() {
+            return load;
+        }
+    }
+
+    /**
+     * A request that is using a network link.
+     */
+    public static final class LinkLoad {
+        /**
+         * 
+         * @param source
+         *            see {@link #getSource()}
+         * @param destination
+         *            see {@link #getDestination()}
+         * @param server
+         *            see {@link #getServer()}
+         * @param startTime
+         *            see {@link #getStartTime()}
+         * @param duration
+         *            see {@link #getDuration()}
+         * @param service
+         *            see {@link #getService()}
+         * @param networkLoad
+         *            see {@link #getNetworkLoad()}
+         */
+        public LinkLoad(@JsonProperty("source") @Nonnull final NodeIdentifier source,
+                @JsonProperty("destination") @Nonnull final NodeIdentifier destination,
+                @JsonProperty("server") @Nonnull final NodeIdentifier server,
+                @JsonProperty("startTime") final long startTime,
+                @JsonProperty("duration") final long duration,
+                @JsonProperty("service") @Nonnull final ServiceIdentifier<?> service,
+                @JsonProperty("networkLoad") @Nonnull final ImmutableMap<LinkAttribute, Double> networkLoad) {
+            this.source = source;
+            this.destination = destination;
+            this.server = server;
+            this.startTime = startTime;
+            this.duration = duration;
+            this.service = service;
+            this.networkLoad = networkLoad;
+        }
+
+        private final NodeIdentifier source;
+
+        /**
+         * @return see {@link NodeNetworkFlow#getSource()}
+         */
+        @Nonnull
+        public NodeIdentifier getSource() {
+            return source;
+        }
+
+        private final NodeIdentifier destination;
+
+        /**
+         * @return see {@link NodeNetworkFlow#getDestination()}
+         */
+        @Nonnull
+        public NodeIdentifier getDestination() {
+            return destination;
+        }
+
+        private final NodeIdentifier server;
+
+        /**
+         * @return see {@link NodeNetworkFlow#getServer()}
+         */
+        @Nonnull
+        public NodeIdentifier getServer() {
+            return server;
+        }
+
+        /**
+         * @return the flow that is creating the load
+         */
+        @JsonIgnore
+        @Nonnull
+        public NodeNetworkFlow getFlow() {
+            return new NodeNetworkFlow(source, destination, server);
+        }
+
+        private final long startTime;
+
+        /**
+         * @return when the load started
+         */
+        public long getStartTime() {
+            return startTime;
+        }
+
+        private final long duration;
+
+        /**
+         * @return how long the load lasts
+         */
+        public long getDuration() {
+            return duration;
+        }
+
+        private final ServiceIdentifier<?> service;
+
+        /**
+         * @return the service that the load is for
+         */
+        @Nonnull
+        public ServiceIdentifier<?> getService() {
+            return service;
+        }
+
+        private final ImmutableMap<LinkAttribute, Double> networkLoad;
+
+        /**
+         * @return the load that is applied to the link
+         */
+        @Nonnull
+        public ImmutableMap<LinkAttribute, Double> getNetworkLoad() {
+            return networkLoad;
+        }
+    }
+
+    /**
+     * The state of a {@link ComputeDemandTracker}.
+     */
+    public static final class ComputeDemand {
+        /**
+         * 
+         * @param shortSamples
+         *            see {@link #getShortSamples()}
+         * @param longSamples
+         *            see {@link #getLongSamples()}
+         * @param failedRequests
+         *            see {@link #getFailedRequests()}
+         */
+        public ComputeDemand(
+                @JsonProperty("shortSamples") @Nonnull final ImmutableMap<Long, ImmutableMap<NodeIdentifier, ImmutableMap<NodeAttribute, Double>>> shortSamples,
+                @JsonProperty("longSamples") @Nonnull final ImmutableMap<Long, ImmutableMap<NodeIdentifier, ImmutableMap<NodeAttribute, Double>>> longSamples,
+                @JsonProperty("failedRequests") @Nonnull final ImmutableMap<Long, ImmutableMap<NodeAttribute, Double>> failedRequests) {
+            this.shortSamples = shortSamples;
+            this.longSamples = longSamples;
+            this.failedRequests = failedRequests;
+        }
+
+        private final ImmutableMap<Long, ImmutableMap<NodeIdentifier, ImmutableMap<NodeAttribute, Double>>> shortSamples;
+
+        /**
+         * @return the samples for the short estimation window
+         * @see ComputeDemandAlgorithm#getSamples()
+         */
+        @Nonnull
+        public ImmutableMap<Long, ImmutableMap<NodeIdentifier, ImmutableMap<NodeAttribute, Double>>> getShortSamples() {
+            return shortSamples;
+        }
+
+        private final ImmutableMap<Long, ImmutableMap<NodeIdentifier, ImmutableMap<NodeAttribute, Double>>> longSamples;
+
+        /**
+         * @return the samples for the long estimation window
+         * @see ComputeDemandAlgorithm#getSamples()
+         */
+        @Nonnull
+        public ImmutableMap<Long, ImmutableMap<NodeIdentifier, ImmutableMap<NodeAttribute, Double>>> getLongSamples() {
+            return longSamples;
+        }
+
+        private final ImmutableMap<Long, ImmutableMap<NodeAttribute, Double>> failedRequests;
+
+        /**
+         * @return end time -> load of the failed requests that are added to
+         *         the demand
+         */
+        @Nonnull
+        public ImmutableMap<Long, ImmutableMap<NodeAttribute, Double>> getFailedRequests() {
+            return failedRequests;
+        }
+    }
+
+    /**
+     * The state of a {@link NetworkDemandTracker}.
+     */
+    public static final class NetworkDemand {
+        /**
+         * 
+         * @param shortSamples
+         *            see {@link #getShortSamples()}
+         * @param longSamples
+         *            see {@link #getLongSamples()}
+         * @param failedRequests
+         *            see {@link #getFailedRequests()}
+         */
+        public NetworkDemand(
+                @JsonProperty("shortSamples") @Nonnull final ImmutableMap<Long, ImmutableMap<InterfaceIdentifier, ImmutableMap<NodeNetworkFlow, ImmutableMap<ServiceIdentifier<?>, ImmutableMap<LinkAttribute, Double>>>>> shortSamples,
+                @JsonProperty("longSamples") @Nonnull final ImmutableMap<Long, ImmutableMap<InterfaceIdentifier, ImmutableMap<NodeNetworkFlow, ImmutableMap<ServiceIdentifier<?>, ImmutableMap<LinkAttribute, Double>>>>> longSamples,
+                @JsonProperty("failedRequests") @Nonnull final ImmutableMap<Long, ImmutableMap<InterfaceIdentifier, ImmutableMap<NodeNetworkFlow, ImmutableMap<ServiceIdentifier<?>, ImmutableMap<LinkAttribute, Double>>>>> failedRequests) {
+            this.shortSamples = shortSamples;
+            this.longSamples = longSamples;
+            this.failedRequests = failedRequests;
+        }
+
+        private final ImmutableMap<Long, ImmutableMap<InterfaceIdentifier, ImmutableMap<NodeNetworkFlow, ImmutableMap<ServiceIdentifier<?>, ImmutableMap<LinkAttribute, Double>>>>> shortSamples;
+
+        /**
+         * @return the samples for the short estimation window
+         * @see NetworkDemandAlgorithm#getSamples()
+         */
+        @Nonnull
+        public ImmutableMap<Long, ImmutableMap<InterfaceIdentifier, ImmutableMap<NodeNetworkFlow, ImmutableMap<ServiceIdentifier<?>, ImmutableMap<LinkAttribute, Double>>>>> getShortSamples() {
+            return shortSamples;
+        }
+
+        private final ImmutableMap<Long, ImmutableMap<InterfaceIdentifier, ImmutableMap<NodeNetworkFlow, ImmutableMap<ServiceIdentifier<?>, ImmutableMap<LinkAttribute, Double>>>>> longSamples;
+
+        /**
+         * @return the samples for the long estimation window
+         * @see NetworkDemandAlgorithm#getSamples()
+         */
+        @Nonnull
+        public ImmutableMap<Long, ImmutableMap<InterfaceIdentifier, ImmutableMap<NodeNetworkFlow, ImmutableMap<ServiceIdentifier<?>, ImmutableMap<LinkAttribute, Double>>>>> getLongSamples() {
+            return longSamples;
+        }
+
+        private final ImmutableMap<Long, ImmutableMap<InterfaceIdentifier, ImmutableMap<NodeNetworkFlow, ImmutableMap<ServiceIdentifier<?>, ImmutableMap<LinkAttribute, Double>>>>> failedRequests;
+
+        /**
+         * @return end time -> load of the failed requests that are added to
+         *         the demand
+         */
+        @Nonnull
+        public ImmutableMap<Long, ImmutableMap<InterfaceIdentifier, ImmutableMap<NodeNetworkFlow, ImmutableMap<ServiceIdentifier<?>, ImmutableMap<LinkAttribute, Double>>>>> getFailedRequests() {
+            return failedRequests;
+        }
+    }
+
+    /**
+     * A request for a dependent service that is waiting to start.
+     */
+    public static final class PendingRequest {
+        /**
+         * 
+         * @param client
+         *            see {@link #getClient()}
+         * @param request
+         *            see {@link #getRequest()}
+         */
+        public PendingRequest(@JsonProperty("client") @Nonnull final NodeIdentifier client,
+                @JsonProperty("request") @Nonnull final ClientLoad request) {
+            this.client = client;
+            this.request = request;
+        }
+
+        private final NodeIdentifier client;
+
+        /**
+         * @return the container or node that makes the request
+         */
+        @Nonnull
+        public NodeIdentifier getClient() {
+            return client;
+        }
+
+        private final ClientLoad request;
+
+        /**
+         * @return the request
+         */
+        @Nonnull
+        public ClientLoad getRequest() {
+            return request;
+        }
+    }
+
+    /**
+     * A client request that failed and is waiting to try again.
+     */
+    public static final class PendingRetry {
+        /**
+         * 
+         * @param client
+         *            see {@link #getClient()}
+         * @param container
+         *            see {@link #getContainer()}
+         * @param request
+         *            see {@link #getRequest()}
+         * @param clientIndex
+         *            see {@link #getClientIndex()}
+         * @param requestTime
+         *            see {@link #getRequestTime()}
+         * @param firstAttemptTime
+         *            see {@link #getFirstAttemptTime()}
+         * @param attempt
+         *            see {@link #getAttempt()}
+         * @param reduceDuration
+         *            see {@link #getReduceDuration()}
+         * @param retryTime
+         *            see {@link #getRetryTime()}
+         */
+        public PendingRetry(@JsonProperty("client") @Nonnull final NodeIdentifier client,
+                @JsonProperty("container") @Nonnull final NodeIdentifier container,
+                @JsonProperty("request") @Nonnull final ClientLoad request,
+                @JsonProperty("clientIndex") final int clientIndex,
+                @JsonProperty("requestTime") final long requestTime,
+                @JsonProperty("firstAttemptTime") final long firstAttemptTime,
+                @JsonProperty("attempt") final int attempt,
+                @JsonProperty("reduceDuration") final long reduceDuration,
+                @JsonProperty("retryTime") final long retryTime) {
+            this.client = client;
+            this.container = container;
+            this.request = request;
+            this.clientIndex = clientIndex;
+            this.requestTime = requestTime;
+            this.firstAttemptTime = firstAttemptTime;
+            this.attempt = attempt;
+            this.reduceDuration = reduceDuration;
+            this.retryTime = retryTime;
+        }
+
+        private final NodeIdentifier client;
+
+        /**
+         * @return the container or node that makes the request
+         */
+        @Nonnull
+        public NodeIdentifier getClient() {
+            return client;
+        }
+
+        private final NodeIdentifier container;
+
+        /**
+         * @return the container that the request is sent to
+         */
+        @Nonnull
+        public NodeIdentifier getContainer() {
+            return container;
+        }
+
+        private final ClientLoad request;
+
+        /**
+         * @return the request
+         */
+        @Nonnull
+        public ClientLoad getRequest() {
+            return request;
+        }
+
+        private final int clientIndex;
+
+        /**
+         * @return which of the {@link ClientLoad#getNumClients()} clients of
+         *         the request this is
+         */
+        public int getClientIndex() {
+            return clientIndex;
+        }
+
+        private final long requestTime;
+
+        /**
+         * @return the time that the client simulator started the request,
+         *         this is the time written to the client request records
+         */
+        public long getRequestTime() {
+            return requestTime;
+        }
+
+        private final long firstAttemptTime;
+
+        /**
+         * @return the time of the first attempt, used to compute the delay of
+         *         later retries
+         */
+        public long getFirstAttemptTime() {
+            return firstAttemptTime;
+        }
+
+        private final int attempt;
+
+        /**
+         * @return the attempt that is made at {@link #getRetryTime()}, it has
+         *         already been counted in the client state
+         */
+        public int getAttempt() {
+            return attempt;
+        }
+
+        private final long reduceDuration;
+
+        /**
+         * @return how much shorter than the request the durations of the retry
+         *         are
+         */
+        public long getReduceDuration() {
+            return reduceDuration;
+        }
+
+        private final long retryTime;
+
+        /**
+         * @return the time that the request is tried again
+         */
+        public long getRetryTime() {
+            return retryTime;
+        }
+    }
+
+    /**
+     * A DNS record and its weight.
+     */
+    public static final class DnsEntry {
+
+        /**
+         * 
+         * @param record
+         *            see {@link #getRecord()}
+         * @param weight
+         *            see {@link #getWeight()}
+         */
+        public DnsEntry(@JsonProperty("record") @Nonnull final DnsRecord record,
+                @JsonProperty("weight") final double weight) {
+            this.record = record;
+            this.weight = weight;
+        }
+
+        private final DnsRecord record;
+
+        /**
+         * @return the record
+         */
+        @Nonnull
+        public DnsRecord getRecord() {
+            return record;
+        }
+
+        private final double weight;
+
+        /**
+         * @return the weight of the record
+         */
+        public double getWeight() {
+            return weight;
+        }
+    }
+
+}
@@ -31,6 +31,16 @@ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 BBN_LICENSE_END*/
 package com.bbn.map.simulator;
 
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import javax.annotation.Nonnull;
+
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.hash.Hashing;
+
 /**
  * Global configuration information for MAP simulation.
  */
@@ -130,4 +140,234 @@ public final class SimulationConfiguration {
         slowServerThreshold = v;
     }
 
+    private Long randomSeed = null;
+
+    /**
+     * The seed that all random number generators used by the simulation and
+     * the agent are derived from. When this is set, two runs of the same
+     * scenario make the same random choices.
+     * 
+     * @return the global random seed, null if the random number generators
+     *         are not seeded, defaults to null
+     * @see #getRandom(String)
+     */
+    public Long getRandomSeed() {
+        return randomSeed;
+    }
+
+    /**
+     * Changing the seed discards the random number generators that have
+     * already been handed out by {@link #getRandom(String)}, so this should be
+     * set before the simulation is started.
+     * 
+     * @param v
+     *            see {@link #getRandomSeed()}
+     */
+    public void setRandomSeed(final Long v) {
+        synchronized (randoms) {
+            randomSeed = v;
+            randoms.clear();
+        }
+    }
+
+    private boolean deterministic = false;
+
+    /**
+     * When this is true the simulation runs with a {@link DiscreteEventClock}
+     * that lets only one actor execute at a time, in the order that the actors
+     * asked to be woken up. Every {@link DiscreteEventClock} created while
+     * this is true is serial. Combined with {@link #getRandomSeed()} this
+     * makes the simulation repeatable.
+     * 
+     * @return if the simulation is run in deterministic mode, defaults to
+     *         false
+     */
+    public boolean isDeterministic() {
+        return deterministic;
+    }
+
+    /**
+     * 
+     * @param v
+     *            see {@link #isDeterministic()}
+     */
+    public void setDeterministic(final boolean v) {
+        deterministic = v;
+    }
+
+    private int demandWindow = 0;
+
+    /**
+     * When this is greater than zero, client demand and background traffic
+     * are streamed from the demand files with {@link DemandStream} instead of
+     * being read into memory when the simulation is created. Each client then
+     * reads at most this many requests ahead of the simulated time.
+     * 
+     * @return the number of requests to read ahead of the simulated time, 0
+     *         to read all demand up front, defaults to 0
+     */
+    public int getDemandWindow() {
+        return demandWindow;
+    }
+
+    /**
+     * 
+     * @param v
+     *            see {@link #getDemandWindow()}
+     * @throws IllegalArgumentException
+     *             if the value is negative
+     */
+    public void setDemandWindow(final int v) {
+        if (v < 0) {
+            throw new IllegalArgumentException("Demand window cannot be negative");
+        }
+
+        demandWindow = v;
+    }
+
+    private int startupParallelism = 1;
+
+    /**
+     * The number of threads used to create the nodes, client simulators and
+     * regional DNS servers when a {@link Simulation} is created and to start
+     * the nodes when the simulation is started. The AP programs and the DCOP
+     * and RLG algorithms were written to be created on a single thread, so
+     * using more than one thread is opt-in.
+     * 
+     * @return the number of threads to use when starting a simulation, 1 to
+     *         start everything on the calling thread, defaults to 1
+     */
+    public int getStartupParallelism() {
+        return startupParallelism;
+    }
+
+    /**
+     * 
+     * @param v
+     *            see {@link #getStartupParallelism()}
+     * @throws IllegalArgumentException
+     *             if the value is less than 1
+     */
+    public void setStartupParallelism(final int v) {
+        if (v < 1) {
+            throw new IllegalArgumentException("Startup parallelism must be at least 1");
+        }
+
+        startupParallelism = v;
+    }
+
+    /**
+     * name -> random number generator, guarded by itself.
+     */
+    private final Map<String, CheckpointRandom> randoms = new HashMap<>();
+
+    /**
+     * Get the random number generator for a source of randomness. Each name
+     * has its own sequence so that the random choices made by one part of the
+     * system don't depend on how often another part of the system asked for a
+     * random number. The name should include the node or region when the
+     * source is per node or per region.
+     * 
+     * @param name
+     *            the name of the source of randomness
+     * @return the random number generator for the name, seeded from
+     *         {@link #getRandomSeed()} and the name if the seed is set,
+     *         otherwise an unseeded generator
+     */
+    @Nonnull
+    public Random getRandom(@Nonnull final String name) {
+        synchronized (randoms) {
+            return randoms.computeIfAbsent(name, k -> {
+                if (null == randomSeed) {
+                    return new CheckpointRandom();
+                } else {
+                    final long seed = Hashing.murmur3_128().newHasher().putLong(randomSeed)
+                            .putString(k, StandardCharsets.UTF_8).hash().asLong();
+                    return new CheckpointRandom(seed);
+                }
+            });
+        }
+    }
+
+    /**
+     * The generators keep the sequence of {@link Random}, the state includes
+     * everything except the second value cached by
+     * {@link Random#nextGaussian()}, which the simulation doesn't use.
+     * 
+     * @return name -> state of the random number generators that have been
+     *         handed out by {@link #getRandom(String)}
+     * @see #restoreRandomStates(Map)
+     */
+    @Nonnull
+    public ImmutableSortedMap<String, Long> getRandomStates() {
+        synchronized (randoms) {
+            final ImmutableSortedMap.Builder<String, Long> states = ImmutableSortedMap.naturalOrder();
+            randoms.forEach((name, random) -> states.put(name, random.getState()));
+            return states.build();
+        }
+    }
+
+    /**
+     * Continue the random number generators from the states returned by
+     * {@link #getRandomStates()}. The generators are updated in place as the
+     * callers of {@link #getRandom(String)} may hold on to them.
+     * 
+     * @param states
+     *            name -> state of the random number generator
+     */
+    public void restoreRandomStates(@Nonnull final Map<String, Long> states) {
+        synchronized (randoms) {
+            states.forEach((name, state) -> ((CheckpointRandom) getRandom(name)).setState(state));
+        }
+    }
+
+    /**
+     * {@link Random} with the same sequence whose state can be read and set.
+     */
+    private static final class CheckpointRandom extends Random {
+        private static final long serialVersionUID = 1L;
+
+        // constants of the linear congruential generator in Random
+        private static final long MULTIPLIER = 0x5DEECE66DL;
+        private static final long ADDEND = 0xBL;
+        private static final int STATE_BITS = 48;
+        private static final long MASK = (1L << STATE_BITS) - 1;
+
+        /**
+         * Set by {@link #setSeed(long)} from the constructor of Random, so
+         * there must not be an initializer.
+         */
+        private long state;
+
+        CheckpointRandom() {
+            super();
+        }
+
+        CheckpointRandom(final long seed) {
+            super(seed);
+        }
+
+        @Override
+        public synchronized void setSeed(final long seed) {
+            super.setSeed(seed);
+            state = (seed ^ MULTIPLIER) & MASK;
+        }
+
+        @Override
+        protected synchronized int next(final int bits) {
+            state = (state * MULTIPLIER + ADDEND) & MASK;
+            return (int) (state >>> (STATE_BITS - bits));
+        }
+
+        synchronized long getState() {
+            return state;
+        }
+
+        synchronized void setState(final long v) {
+            // clears the cached gaussian
+            super.setSeed(v);
+            state = v & MASK;
+        }
+    }
+
 }
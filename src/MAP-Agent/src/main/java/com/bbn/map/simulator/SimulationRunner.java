@@ -59,6 +59,15 @@ import org.slf4j.LoggerFactory;
 import com.bbn.map.AgentConfiguration;
 import com.bbn.map.Controller;
 import com.bbn.map.appmgr.util.AppMgrUtils;
+import com.bbn.map.dump.CapturedStateDump;
+import com.bbn.map.dump.DirectoryStateDump;
+import com.bbn.map.dump.DumpExecutor;
+import com.bbn.map.dump.PeriodicDumper;
+import com.bbn.map.dump.StateStore;
+import com.bbn.map.dump.StateStoreExporter;
+import com.bbn.map.metrics.MetricHistogram;
+import com.bbn.map.metrics.MetricsRegistry;
+import com.bbn.map.utils.JsonUtils;
 import com.bbn.map.utils.LogExceptionHandler;
 import com.bbn.map.utils.MapLoggingConfigurationFactory;
 import com.bbn.protelis.networkresourcemanagement.DnsNameIdentifier;
@@ -67,7 +76,7 @@ import com.bbn.protelis.utils.SimpleClock;
 import com.bbn.protelis.utils.VirtualClock;
 import com.diffplug.common.base.Errors;
 import com.fasterxml.jackson.databind.ObjectWriter;
-import com.google.common.collect.ImmutableList;
+import com.fasterxml.jackson.databind.SequenceWriter;
 
 /**
  * Execute a simulation from the command line.
@@ -104,6 +113,17 @@ public class SimulationRunner {
 
     private static final String AGENT_CONFIGURATION_OPT = "agentConfiguration";
 
+    private static final String DISCRETE_EVENT_OPT = "discreteEvent";
+    private static final String SEED_OPT = "seed";
+    private static final String DETERMINISTIC_OPT = "deterministic";
+    private static final String CHECKPOINT_AT_OPT = "checkpointAt";
+    private static final String RESTORE_OPT = "restore";
+    private static final String DEMAND_WINDOW_OPT = "demandWindow";
+    private static final String STARTUP_PARALLELISM_OPT = "startupParallelism";
+    private static final String METRICS_INTERVAL_OPT = "metricsInterval";
+    private static final String STATE_STORE_OPT = "stateStore";
+    private static final String DUMP_WRITERS_OPT = "dumpWriters";
+
     /**
      * Parse the option as a duration. First check if it's a number, if so, then
      * treat it as a number of seconds. Otherwise parse with
@@ -203,6 +223,34 @@ public class SimulationRunner {
 
         options.addOption(null, AGENT_CONFIGURATION_OPT, true, "Read the agent configuration from the specified file.");
 
+        options.addOption(null, DISCRETE_EVENT_OPT, false,
+                "Run as a discrete event simulation, simulated time advances as soon as all actors are idle instead of following the wall clock");
+        options.addOption(null, SEED_OPT, true,
+                "Seed for all random number generators in the simulation and the agents. Default is to not seed them");
+        options.addOption(null, DETERMINISTIC_OPT, false, "Run as a discrete event simulation that runs one actor at a time, "
+                + "combined with --" + SEED_OPT + " two runs of the same scenario make the same decisions");
+        options.addOption(null, CHECKPOINT_AT_OPT, true,
+                "Write a checkpoint of the simulation to the output directory at this simulation time, either a number of seconds or a string compatible with Duration.parse");
+        options.addOption(null, RESTORE_OPT, true,
+                "Resume the simulation from a checkpoint file written with --" + CHECKPOINT_AT_OPT
+                        + ", implies --" + DISCRETE_EVENT_OPT);
+        options.addOption(null, DEMAND_WINDOW_OPT, true,
+                "Stream the demand files and read at most this many requests per client ahead of the simulated time. Default is "
+                        + SimulationConfiguration.getInstance().getDemandWindow() + ", which reads all demand up front");
+        options.addOption(null, STARTUP_PARALLELISM_OPT, true,
+                "The number of threads used to create and start the simulation. Default is "
+                        + SimulationConfiguration.getInstance().getStartupParallelism());
+        options.addOption(null, METRICS_INTERVAL_OPT, true,
+                "The number of seconds between snapshots of the simulator metrics, written to " + METRICS_FILENAME
+                        + " in the output directory. Default is to not collect metrics");
+        options.addOption(null, STATE_STORE_OPT, false,
+                "Write the periodic dumps of the nodes and the simulation to a single store in the "
+                        + STATE_STORE_DIRECTORY + " directory of the output instead of a directory per dump. Use "
+                        + StateStoreExporter.class.getSimpleName() + " to convert the store to directories");
+        options.addOption(null, DUMP_WRITERS_OPT, true,
+                "The maximum number of periodic dumps of the nodes and the simulation that are written at the same time. Default is "
+                        + DumpExecutor.getInstance().getMaxConcurrentWriters());
+
         final CommandLineParser parser = new DefaultParser();
         try {
             final CommandLine cmd = parser.parse(options, args);
@@ -233,6 +281,81 @@ public class SimulationRunner {
                 }
             }
 
+            runner.setDiscreteEvent(cmd.hasOption(DISCRETE_EVENT_OPT));
+            runner.setUseStateStore(cmd.hasOption(STATE_STORE_OPT));
+
+            if (cmd.hasOption(CHECKPOINT_AT_OPT)) {
+                final Duration checkpointTime = parseDuration(options, cmd, CHECKPOINT_AT_OPT);
+                if (null == checkpointTime) {
+                    printUsage(options);
+                    System.exit(1);
+                }
+                runner.setCheckpointTime(checkpointTime);
+            }
+
+            if (cmd.hasOption(RESTORE_OPT)) {
+                runner.setRestorePath(Paths.get(cmd.getOptionValue(RESTORE_OPT)));
+            }
+            SimulationConfiguration.getInstance().setDeterministic(cmd.hasOption(DETERMINISTIC_OPT));
+
+            if (cmd.hasOption(SEED_OPT)) {
+                final String str = cmd.getOptionValue(SEED_OPT);
+                try {
+                    SimulationConfiguration.getInstance().setRandomSeed(Long.parseLong(str));
+                } catch (final NumberFormatException e) {
+                    LOGGER.error("'{}' could not be parsed as a long", str);
+                    printUsage(options);
+                    System.exit(1);
+                }
+            } else if (SimulationConfiguration.getInstance().isDeterministic()) {
+                LOGGER.warn("Running in deterministic mode without a seed, random choices will differ between runs");
+            }
+
+            if (cmd.hasOption(DEMAND_WINDOW_OPT)) {
+                final String str = cmd.getOptionValue(DEMAND_WINDOW_OPT);
+                try {
+                    SimulationConfiguration.getInstance().setDemandWindow(Integer.parseInt(str));
+                } catch (final NumberFormatException e) {
+                    LOGGER.error("'{}' could not be parsed as an integer", str);
+                    printUsage(options);
+                    System.exit(1);
+                } catch (final IllegalArgumentException e) {
+                    LOGGER.error("Illegal value '{}' for demand window", str);
+                    printUsage(options);
+                    System.exit(1);
+                }
+            }
+
+            if (cmd.hasOption(STARTUP_PARALLELISM_OPT)) {
+                final String str = cmd.getOptionValue(STARTUP_PARALLELISM_OPT);
+                try {
+                    SimulationConfiguration.getInstance().setStartupParallelism(Integer.parseInt(str));
+                } catch (final NumberFormatException e) {
+                    LOGGER.error("'{}' could not be parsed as an integer", str);
+                    printUsage(options);
+                    System.exit(1);
+                } catch (final IllegalArgumentException e) {
+                    LOGGER.error("Illegal value '{}' for startup parallelism", str);
+                    printUsage(options);
+                    System.exit(1);
+                }
+            }
+
+            if (cmd.hasOption(DUMP_WRITERS_OPT)) {
+                final String str = cmd.getOptionValue(DUMP_WRITERS_OPT);
+                try {
+                    DumpExecutor.getInstance().setMaxConcurrentWriters(Integer.parseInt(str));
+                } catch (final NumberFormatException e) {
+                    LOGGER.error("'{}' could not be parsed as an integer", str);
+                    printUsage(options);
+                    System.exit(1);
+                } catch (final IllegalArgumentException e) {
+                    LOGGER.error("Illegal value '{}' for the number of dump writers", str);
+                    printUsage(options);
+                    System.exit(1);
+                }
+            }
+
             if (cmd.hasOption(OUTPUT_OPT)) {
                 final Path outputDirectory = Paths.get(cmd.getOptionValue(OUTPUT_OPT));
                 runner.setOutputDirectory(outputDirectory);
@@ -256,6 +379,21 @@ public class SimulationRunner {
                 }
             }
 
+            if (cmd.hasOption(METRICS_INTERVAL_OPT)) {
+                final String str = cmd.getOptionValue(METRICS_INTERVAL_OPT);
+                try {
+                    runner.setMetricsInterval(Duration.ofSeconds(Long.parseLong(str)));
+                } catch (final NumberFormatException e) {
+                    LOGGER.error("'{}' could not be parsed as an integer", str);
+                    printUsage(options);
+                    System.exit(1);
+                } catch (final IllegalArgumentException e) {
+                    LOGGER.error("Illegal value '{}' for metrics interval", str);
+                    printUsage(options);
+                    System.exit(1);
+                }
+            }
+
             if (cmd.hasOption(SLOW_NETWORK_THRESHOLD_OPT)) {
                 final String str = cmd.getOptionValue(SLOW_NETWORK_THRESHOLD_OPT);
                 try {
@@ -373,6 +511,71 @@ public class SimulationRunner {
         demandPath = v;
     }
 
+    private boolean discreteEvent = false;
+
+    /**
+     * 
+     * @return true if the simulation runs with a {@link DiscreteEventClock}
+     *         rather than following the wall clock
+     */
+    public boolean isDiscreteEvent() {
+        return discreteEvent;
+    }
+
+    /**
+     * 
+     * @param v
+     *            see {@link #isDiscreteEvent()}
+     */
+    public void setDiscreteEvent(final boolean v) {
+        discreteEvent = v;
+    }
+
+    private Duration checkpointTime = null;
+
+    /**
+     * 
+     * @return the simulation time to write a checkpoint at, null to not write
+     *         a checkpoint. The checkpoint is only written if the output
+     *         directory is set.
+     * @see Simulation#createCheckpoint()
+     */
+    public Duration getCheckpointTime() {
+        return checkpointTime;
+    }
+
+    /**
+     * 
+     * @param v
+     *            see {@link #getCheckpointTime()}
+     */
+    public void setCheckpointTime(final Duration v) {
+        checkpointTime = v;
+    }
+
+    private Path restorePath = null;
+
+    /**
+     * 
+     * @return the checkpoint file to resume the simulation from, null to
+     *         start from the beginning. Resuming always uses a
+     *         {@link DiscreteEventClock} so that the clock can start at the
+     *         time of the checkpoint.
+     * @see Simulation#restoreCheckpoint(SimulationCheckpoint)
+     */
+    public Path getRestorePath() {
+        return restorePath;
+    }
+
+    /**
+     * 
+     * @param v
+     *            see {@link #getRestorePath()}
+     */
+    public void setRestorePath(final Path v) {
+        restorePath = v;
+    }
+
     private Duration runtime = null;
 
     /**
@@ -429,6 +632,72 @@ public class SimulationRunner {
         dumpInterval = v;
     }
 
+    /**
+     * Directory in the output directory for the {@link StateStore}.
+     */
+    public static final String STATE_STORE_DIRECTORY = "state-store";
+
+    /**
+     * Name used for the dumps of the simulation in the {@link StateStore}.
+     */
+    public static final String SIMULATION_STATE_NAME = "simulation";
+
+    private boolean useStateStore = false;
+
+    /**
+     * 
+     * @return if true the periodic dumps are written to a {@link StateStore}
+     *         in {@link #STATE_STORE_DIRECTORY}, otherwise to a directory per
+     *         dump, default is false
+     */
+    public boolean isUseStateStore() {
+        return useStateStore;
+    }
+
+    /**
+     * 
+     * @param v
+     *            see {@link #isUseStateStore()}
+     */
+    public void setUseStateStore(final boolean v) {
+        useStateStore = v;
+    }
+
+    private Duration metricsInterval = null;
+
+    /**
+     * 
+     * @return how long between snapshots of {@link MetricsRegistry}, null to
+     *         not collect metrics. The metrics are only collected if the
+     *         output directory is set.
+     */
+    public Duration getMetricsInterval() {
+        return metricsInterval;
+    }
+
+    /**
+     * 
+     * @param v
+     *            see {@link #getMetricsInterval()}
+     * @throws IllegalArgumentException
+     *             if the value is not positive
+     */
+    public void setMetricsInterval(final Duration v) {
+        if (null != v && (v.isNegative() || v.isZero())) {
+            throw new IllegalArgumentException("Metrics interval must be greater than 0");
+        }
+
+        metricsInterval = v;
+    }
+
+    /**
+     * Name of the file in the output directory that the metrics snapshots are
+     * written to, one JSON object per line.
+     */
+    public static final String METRICS_FILENAME = "metrics.jsonl";
+
+    private static final MetricHistogram DUMP_DURATION = MetricsRegistry.getInstance().histogram("dump.simulation");
+
     /**
      * DNS TTL in seconds.
      */
@@ -498,6 +767,26 @@ public class SimulationRunner {
         sim.startClients();
     }
 
+    /**
+     * Start the agents and the clients of a simulation that was restored from
+     * a {@link SimulationCheckpoint}. The algorithms were already running when
+     * the checkpoint was created and start right away. The clients are started
+     * before the simulation so that no client request is missed.
+     * 
+     * @param sim
+     *            the simulator
+     * @see Simulation#restoreCheckpoint(SimulationCheckpoint)
+     */
+    public static void resumeAgentsAndClients(final Simulation sim) {
+        final long now = sim.getClock().getCurrentTime();
+        sim.getAllControllers().forEach(c -> c.startAlgorithmsAt(now));
+
+        LOGGER.info("Starting clients at {}", now);
+        sim.startClients();
+
+        sim.startSimulation();
+    }
+
     /**
      * Run the simulation.
      * 
@@ -512,8 +801,23 @@ public class SimulationRunner {
             return;
         }
 
+        StateStore stateStore = null;
         try {
-            final VirtualClock clock = new SimpleClock();
+            final SimulationCheckpoint checkpoint = null == getRestorePath() ? null
+                    : SimulationCheckpoint.read(getRestorePath());
+
+            final boolean deterministic = SimulationConfiguration.getInstance().isDeterministic();
+            final VirtualClock clock;
+            if (isDiscreteEvent() || deterministic || null != checkpoint) {
+                final DiscreteEventClock discreteEventClock = new DiscreteEventClock(deterministic);
+                if (null != checkpoint) {
+                    discreteEventClock.setStartTime(checkpoint.getTime());
+                }
+                clock = discreteEventClock;
+            } else {
+                clock = new SimpleClock();
+            }
+            final long wallStart = System.currentTimeMillis();
             final Simulation sim = new Simulation(getScenarioPath().toString(), getScenarioPath(), getDemandPath(),
                     clock, AgentConfiguration.getInstance().getApRoundDuration().toMillis(), TTL,
                     AppMgrUtils::getContainerParameters);
@@ -539,22 +843,51 @@ public class SimulationRunner {
             if (null != getOutputDirectory()) {
                 sim.setBaseOutputDirectory(getOutputDirectory());
 
-                sim.getAllControllers().forEach(controller -> {
+                if (isUseStateStore()) {
+                    stateStore = new StateStore(getOutputDirectory().resolve(STATE_STORE_DIRECTORY));
+                }
+
+                for (final Controller controller : sim.getAllControllers()) {
                     controller.setBaseOutputDirectory(getOutputDirectory());
                     controller.setDumpInterval(getDumpInterval());
+                    controller.setStateStore(stateStore);
                     controller.setDumpState(true);
-                });
+                }
+            }
+
+            if (null != checkpoint) {
+                sim.restoreCheckpoint(checkpoint);
             }
 
-            final Thread dumperThread = new Thread(() -> dumperWorker(clock, sim), "Dumper");
+            final StateStore store = stateStore;
+            final Thread dumperThread = new Thread(() -> dumperWorker(clock, sim, store), "Dumper");
+            final Thread metricsThread = new Thread(() -> metricsWorker(clock), "Metrics");
 
             if (null != getOutputDirectory()) {
                 dumperThread.start();
+
+                if (null != getMetricsInterval()) {
+                    MetricsRegistry.getInstance().setEnabled(true);
+                    registerGauges(clock);
+                    metricsThread.start();
+                }
+
+                if (null != getCheckpointTime()) {
+                    // as an actor time doesn't move while the checkpoint is
+                    // written
+                    final Thread checkpointThread = new Thread(
+                            DiscreteEventClock.wrapActor(clock, () -> checkpointWorker(clock, sim)), "Checkpoint");
+                    checkpointThread.start();
+                }
             }
 
-            sim.startSimulation();
+            if (null == checkpoint) {
+                sim.startSimulation();
 
-            startAgentsAndClients(sim);
+                startAgentsAndClients(sim);
+            } else {
+                resumeAgentsAndClients(sim);
+            }
 
             if (null == getRuntime()) {
                 LOGGER.info("Waiting for all client simulators to exit");
@@ -567,15 +900,92 @@ public class SimulationRunner {
                 clock.waitForDuration(getRuntime().toMillis());
             }
 
+            if (clock instanceof DiscreteEventClock) {
+                LOGGER.info("Simulated {} ms in {} ms with {} events", clock.getCurrentTime(),
+                        System.currentTimeMillis() - wallStart, ((DiscreteEventClock) clock).getEventCount());
+            }
+
             LOGGER.info("Stopping the simulation");
             sim.stopSimulation();
+
+            // make sure the final snapshot and dump are written
+            if (metricsThread.isAlive()) {
+                metricsThread.join();
+            }
+            if (dumperThread.isAlive()) {
+                dumperThread.join();
+            }
+            // the node dumpers must finish their last dump before the state
+            // store is closed
+            for (final Controller controller : sim.getAllControllers()) {
+                controller.joinDumper();
+            }
         } catch (final IOException e) {
             LOGGER.error("Error reading one of the input files", e);
+        } catch (final InterruptedException e) {
+            LOGGER.warn("Interrupted waiting for the final metrics snapshot and dump", e);
+        } finally {
+            if (null != stateStore) {
+                try {
+                    stateStore.close();
+                } catch (final IOException e) {
+                    LOGGER.error("Error closing the state store", e);
+                }
+            }
         }
 
     }
 
-    private void dumperWorker(final VirtualClock clock, final Simulation sim) {
+    private static void registerGauges(final VirtualClock clock) {
+        final MetricsRegistry registry = MetricsRegistry.getInstance();
+        registry.gauge("jvm.heap.used", () -> Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory());
+        registry.gauge("jvm.threads", Thread::activeCount);
+        if (clock instanceof DiscreteEventClock) {
+            registry.gauge("clock.events", ((DiscreteEventClock) clock)::getEventCount);
+        }
+    }
+
+    private void metricsWorker(final VirtualClock clock) {
+        clock.waitForClockStart();
+
+        final MetricsRegistry registry = MetricsRegistry.getInstance();
+        final ObjectWriter mapper = JsonUtils.getStandardMapObjectMapper().writer();
+        final Path path = getOutputDirectory().resolve(METRICS_FILENAME);
+        try (BufferedWriter writer = Files.newBufferedWriter(path, Charset.defaultCharset())) {
+            // one more snapshot after the clock shuts down has everything
+            // since the last interval
+            do {
+                clock.waitForDuration(getMetricsInterval().toMillis());
+
+                writer.write(mapper.writeValueAsString(registry.snapshot(clock.getCurrentTime())));
+                writer.newLine();
+                writer.flush();
+            } while (!clock.isShutdown());
+        } catch (final IOException e) {
+            LOGGER.error("Unable to write metrics to {}", path, e);
+        }
+    }
+
+    private void checkpointWorker(final VirtualClock clock, final Simulation sim) {
+        clock.waitForClockStart();
+
+        try {
+            clock.waitUntilTime(getCheckpointTime().toMillis());
+            if (clock.isShutdown()) {
+                return;
+            }
+
+            final SimulationCheckpoint checkpoint = sim.createCheckpoint();
+            final Path path = getOutputDirectory()
+                    .resolve(String.format("checkpoint-%d.json", checkpoint.getTime()));
+            checkpoint.write(path);
+            LOGGER.info("Wrote checkpoint for time {} to {}", checkpoint.getTime(), path);
+        } catch (final IOException e) {
+            LOGGER.error("Unable to write the checkpoint", e);
+        }
+    }
+
+    private void dumperWorker(final VirtualClock clock, final Simulation sim, final StateStore store) {
         clock.waitForClockStart();
 
         final ObjectWriter mapper = Controller.createDumpWriter();
@@ -610,9 +1020,12 @@ public class SimulationRunner {
                     client.setBaseOutputDirectory(baseOutput);
                     final Path clientFilename = nodeOutputDirectory
                             .resolve(String.format("client-%s-requests.json", client.getSimName()));
-                    try (BufferedWriter writer = Files.newBufferedWriter(clientFilename, Charset.defaultCharset())) {
-                        final ImmutableList<ClientLoad> requests = client.getClientRequests();
-                        mapper.writeValue(writer, requests);
+                    try (BufferedWriter writer = Files.newBufferedWriter(clientFilename, Charset.defaultCharset());
+                            SequenceWriter sequence = mapper.writeValuesAsArray(writer);
+                            DemandStream<ClientLoad> requests = client.openClientDemand()) {
+                        while (requests.hasNext()) {
+                            sequence.write(requests.next());
+                        }
                     }
                 }
             } catch (final IOException e) {
@@ -622,9 +1035,61 @@ public class SimulationRunner {
             LOGGER.error("'{}' was not created and does not exist. Skipping output.", nodeOutputDirectory);
         }
 
-        while (!clock.isShutdown()) {
-            final long now = clock.getCurrentTime();
+        final PeriodicDumper dumper = new PeriodicDumper(SIMULATION_STATE_NAME, clock, this::getDumpInterval,
+                () -> true, now -> captureDump(sim, store, nodeOutputDirectory, mapper, now));
+        dumper.run();
+
+        try {
+            // write out all final client values
+            for (final ClientSim client : sim.getClientSimulators()) {
+                final Path clientFilename = nodeOutputDirectory
+                        .resolve(String.format("client-%s-final-state.json", client.getSimName()));
+                try (BufferedWriter writer = Files.newBufferedWriter(clientFilename, Charset.defaultCharset())) {
+                    mapper.writeValue(writer, client.getSimulationState());
+                }
+            }
+        } catch (final IOException e) {
+            LOGGER.error("Unable to write out final client state", e);
+        }
+
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("Dumper thread exiting");
+        }
+    }
+
+    private static Runnable captureDump(final Simulation sim,
+            final StateStore store,
+            final Path nodeOutputDirectory,
+            final ObjectWriter mapper,
+            final long now) {
+        final CapturedStateDump state = new CapturedStateDump();
+        try {
+            sim.dumpCurrentState(state);
+        } catch (final IOException e) {
+            LOGGER.error("Error capturing current state, skipping output", e);
+            return null;
+        }
+
+        return () -> writeDump(state, store, nodeOutputDirectory, mapper, now);
+    }
 
+    private static void writeDump(final CapturedStateDump state,
+            final StateStore store,
+            final Path nodeOutputDirectory,
+            final ObjectWriter mapper,
+            final long now) {
+        if (null != store) {
+            final long dumpStart = DUMP_DURATION.start();
+            try {
+                final StateStore.Chunk chunk = store.startChunk(SIMULATION_STATE_NAME, now);
+                state.writeTo(chunk);
+                chunk.commit();
+            } catch (final IOException e) {
+                LOGGER.error("Error writing current state to the state store", e);
+            } finally {
+                DUMP_DURATION.stop(dumpStart);
+            }
+        } else {
             final String timeDir = String.format(Simulation.TIME_DIR_FORMAT, now);
             final Path outputDir = nodeOutputDirectory.resolve(timeDir);
 
@@ -641,39 +1106,17 @@ public class SimulationRunner {
                     LOGGER.trace("Dumping state to {}", outputDir);
                 }
 
+                final long dumpStart = DUMP_DURATION.start();
                 try {
-                    sim.dumpCurrentState(outputDir, mapper);
+                    state.writeTo(new DirectoryStateDump(outputDir, mapper));
                 } catch (final IOException e) {
                     LOGGER.error("Error writing current state, may have partial output", e);
+                } finally {
+                    DUMP_DURATION.stop(dumpStart);
                 }
             } else {
                 LOGGER.error("'{}' was not created and does not exist. Skipping output.", outputDir);
             }
-
-            if (LOGGER.isTraceEnabled()) {
-                LOGGER.trace("Waiting for {} ms", getDumpInterval().toMillis());
-            }
-            clock.waitForDuration(getDumpInterval().toMillis());
-            if (LOGGER.isTraceEnabled()) {
-                LOGGER.trace("Done waiting");
-            }
-        }
-
-        try {
-            // write out all final client values
-            for (final ClientSim client : sim.getClientSimulators()) {
-                final Path clientFilename = nodeOutputDirectory
-                        .resolve(String.format("client-%s-final-state.json", client.getSimName()));
-                try (BufferedWriter writer = Files.newBufferedWriter(clientFilename, Charset.defaultCharset())) {
-                    mapper.writeValue(writer, client.getSimulationState());
-                }
-            }
-        } catch (final IOException e) {
-            LOGGER.error("Unable to write out final client state", e);
-        }
-
-        if (LOGGER.isTraceEnabled()) {
-            LOGGER.trace("Dumper thread exiting");
         }
     }
 
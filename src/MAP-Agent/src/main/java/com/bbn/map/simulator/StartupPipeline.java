@@ -0,0 +1,211 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.simulator;
+
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import javax.annotation.Nonnull;
+
+import org.slf4j.Logger;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Runs the steps of setting up a {@link Simulation} on a pool of threads and
+ * keeps track of how long each phase of the startup takes. With a parallelism
+ * of 1 everything runs on the calling thread.
+ */
+/* package */ final class StartupPipeline implements AutoCloseable {
+
+    private final String name;
+    private final ExecutorService executor;
+    private final Map<String, Long> phaseTimes = new LinkedHashMap<>();
+    private final long start;
+    private long phaseStart;
+
+    /**
+     * @param name
+     *            used for the thread names and when logging the times
+     * @param parallelism
+     *            the number of threads to use
+     */
+    /* package */ StartupPipeline(@Nonnull final String name, final int parallelism) {
+        this.name = name;
+        if (parallelism > 1) {
+            this.executor = Executors.newFixedThreadPool(parallelism,
+                    new ThreadFactoryBuilder().setNameFormat(name + "-%d").setDaemon(true).build());
+        } else {
+            this.executor = null;
+        }
+        this.start = System.nanoTime();
+        this.phaseStart = start;
+    }
+
+    /**
+     * @return the executor to run tasks on, null if tasks should run on the
+     *         calling thread
+     */
+    /* package */ ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Apply a function to each item in parallel.
+     * 
+     * @param items
+     *            the items to process
+     * @param function
+     *            the function to apply, must be safe to call from multiple
+     *            threads
+     * @return the results in the iteration order of {@code items}
+     * @param <T>
+     *            the item type
+     * @param <R>
+     *            the result type
+     * @throws RuntimeException
+     *             if the function throws an exception for any item, the
+     *             remaining items are still processed
+     */
+    /* package */ <T, R> List<R> map(@Nonnull final Collection<T> items, @Nonnull final Function<T, R> function) {
+        final List<R> results = new ArrayList<>(items.size());
+        if (null == executor) {
+            items.forEach(item -> results.add(function.apply(item)));
+            return results;
+        }
+
+        final List<Future<R>> futures = new ArrayList<>(items.size());
+        items.forEach(item -> futures.add(executor.submit(() -> function.apply(item))));
+        for (final Future<R> future : futures) {
+            results.add(get(future));
+        }
+        return results;
+    }
+
+    /**
+     * Execute an action for each item in parallel.
+     * 
+     * @param items
+     *            the items to process
+     * @param action
+     *            the action, must be safe to call from multiple threads
+     * @param <T>
+     *            the item type
+     * @see #map(Collection, Function)
+     */
+    /* package */ <T> void forEach(@Nonnull final Collection<T> items, @Nonnull final Consumer<T> action) {
+        map(items, item -> {
+            action.accept(item);
+            return null;
+        });
+    }
+
+    /**
+     * Wait for a task that was submitted to {@link #getExecutor()}.
+     * 
+     * @param future
+     *            the task
+     * @return the result of the task
+     * @param <R>
+     *            the result type
+     * @throws RuntimeException
+     *             if the task failed or the thread was interrupted
+     */
+    /* package */ static <R> R get(@Nonnull final Future<R> future) {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted waiting for the simulation to start", e);
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw new RuntimeException(cause);
+            }
+        }
+    }
+
+    /**
+     * Record the time since the previous phase ended as the time for
+     * {@code phase}.
+     * 
+     * @param phase
+     *            the name of the phase that just finished
+     */
+    /* package */ void endPhase(@Nonnull final String phase) {
+        final long now = System.nanoTime();
+        phaseTimes.merge(phase, now - phaseStart, Long::sum);
+        phaseStart = now;
+    }
+
+    /**
+     * Log the total time and the time for each phase.
+     * 
+     * @param logger
+     *            where to log
+     */
+    /* package */ void logTimes(@Nonnull final Logger logger) {
+        if (logger.isInfoEnabled()) {
+            final StringBuilder builder = new StringBuilder();
+            phaseTimes.forEach((phase, nanos) -> {
+                if (builder.length() > 0) {
+                    builder.append(", ");
+                }
+                builder.append(phase).append(' ').append(TimeUnit.NANOSECONDS.toMillis(nanos)).append(" ms");
+            });
+            logger.info("{} took {} ms: {}", name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), builder);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (null != executor) {
+            executor.shutdown();
+        }
+    }
+
+}
@@ -35,8 +35,12 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import javax.annotation.Nonnull;
@@ -187,12 +191,63 @@ public final class MapUtils {
      */
     public static <VERTEX_TYPE, EDGE_TYPE> Graph<VERTEX_TYPE, EDGE_TYPE> parseTopology(@Nonnull final Topology topology,
             final GraphFactory<VERTEX_TYPE, EDGE_TYPE> factory) {
+        final Map<Node, VERTEX_TYPE> vertices = new LinkedHashMap<>();
+        topology.getNodes().entrySet().stream().map(Map.Entry::getValue)
+                .forEach(node -> vertices.put(node, factory.createVertex(node)));
+
+        return createGraph(vertices, factory);
+    }
+
+    /**
+     * Parse the topology into a graph of the overlay network, creating the
+     * vertices in parallel. The edges are created on the calling thread.
+     * 
+     * @param topology
+     *            the topology to parse
+     * @param factory
+     *            used to create the vertices and links in the graph,
+     *            {@link GraphFactory#createVertex(Node)} must be safe to call
+     *            from multiple threads
+     * @param executor
+     *            used to create the vertices
+     * @return graph of the overlay network
+     * @param <VERTEX_TYPE>
+     *            type for the vertices in the graph
+     * @param <EDGE_TYPE>
+     *            type for the edges in the graph
+     * @throws RuntimeException
+     *             if creating a vertex fails or the thread is interrupted
+     */
+    public static <VERTEX_TYPE, EDGE_TYPE> Graph<VERTEX_TYPE, EDGE_TYPE> parseTopology(@Nonnull final Topology topology,
+            final GraphFactory<VERTEX_TYPE, EDGE_TYPE> factory,
+            @Nonnull final ExecutorService executor) {
+        final Map<Node, Future<VERTEX_TYPE>> futures = new LinkedHashMap<>();
+        topology.getNodes().entrySet().stream().map(Map.Entry::getValue)
+                .forEach(node -> futures.put(node, executor.submit(() -> factory.createVertex(node))));
+
+        final Map<Node, VERTEX_TYPE> vertices = new LinkedHashMap<>();
+        for (final Map.Entry<Node, Future<VERTEX_TYPE>> entry : futures.entrySet()) {
+            try {
+                vertices.put(entry.getKey(), entry.getValue().get());
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted creating the vertex for " + entry.getKey().getName(), e);
+            } catch (final ExecutionException e) {
+                throw new RuntimeException("Error creating the vertex for " + entry.getKey().getName(), e.getCause());
+            }
+        }
+
+        return createGraph(vertices, factory);
+    }
+
+    private static <VERTEX_TYPE, EDGE_TYPE> Graph<VERTEX_TYPE, EDGE_TYPE> createGraph(
+            @Nonnull final Map<Node, VERTEX_TYPE> vertices,
+            final GraphFactory<VERTEX_TYPE, EDGE_TYPE> factory) {
         final Graph<VERTEX_TYPE, EDGE_TYPE> graph = new SparseMultigraph<>();
 
         final Set<Link> links = new HashSet<>();
         final Map<String, VERTEX_TYPE> nodeNameMapping = new HashMap<>();
-        topology.getNodes().entrySet().stream().map(Map.Entry::getValue).forEach(node -> {
-            final VERTEX_TYPE netNode = factory.createVertex(node);
+        vertices.forEach((node, netNode) -> {
             graph.addVertex(netNode);
 
             links.addAll(node.getLinks());
@@ -38,6 +38,7 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
@@ -51,7 +52,10 @@ import org.slf4j.LoggerFactory;
 import com.bbn.map.AgentConfiguration;
 import com.bbn.map.AgentConfiguration.DnsResolutionType;
 import com.bbn.map.AgentConfiguration.RoundRobinAlgorithm;
+import com.bbn.map.simulator.SimulationConfiguration;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import java8.util.Objects;
@@ -78,15 +82,24 @@ public class WeightedRoundRobin<T> {
      * the weights are stored as an integer between 0 and precision. The larger
      * the number, the closer to the desired weight. However with large numbers
      * it takes a long time to get through all of the possible values.
+     * 
+     * @param randomSource
+     *            the name of the random number generator used for the random
+     *            round robin algorithms, should include the region or node that
+     *            the round robin belongs to
+     * @see SimulationConfiguration#getRandom(String)
      */
-    public WeightedRoundRobin() {
+    public WeightedRoundRobin(@Nonnull final String randomSource) {
         this.weightPrecision = AgentConfiguration.getInstance().getDnsWeightPrecision();
         this.dnsResolutionType = AgentConfiguration.getInstance().getDnsResolutionType();
         this.randomRoundRobinPreferUnused = AgentConfiguration.getInstance().getRandomRoundRobinPreferUnused();
         this.randomRoundRobinNumShuffles = AgentConfiguration.getInstance().getRandomRoundRobinNumShuffles();
         this.roundRobinAlgorithm = AgentConfiguration.getInstance().getRoundRobinAlgorithm();
+        this.random = SimulationConfiguration.getInstance().getRandom(randomSource);
     }
 
+    private final Random random;
+
     private final RoundRobinAlgorithm roundRobinAlgorithm;
 
     private final DnsResolutionType dnsResolutionType;
@@ -172,8 +185,8 @@ public class WeightedRoundRobin<T> {
     private List<T> findBestList(final List<T> preferredRecordsToReturn, final List<T> otherRecordsToReturn) {
         if (randomRoundRobinNumShuffles < 2) {
             // shuffle and set preferred
-            Collections.shuffle(preferredRecordsToReturn);
-            Collections.shuffle(otherRecordsToReturn);
+            Collections.shuffle(preferredRecordsToReturn, random);
+            Collections.shuffle(otherRecordsToReturn, random);
             final List<T> best = new LinkedList<>(preferredRecordsToReturn);
             best.addAll(otherRecordsToReturn);
             return best;
@@ -187,8 +200,8 @@ public class WeightedRoundRobin<T> {
                 final List<T> otherRecordsToReturnCopy = new LinkedList<>(otherRecordsToReturn);
 
                 // shuffle
-                Collections.shuffle(preferredRecordsToReturnCopy);
-                Collections.shuffle(otherRecordsToReturnCopy);
+                Collections.shuffle(preferredRecordsToReturnCopy, random);
+                Collections.shuffle(otherRecordsToReturnCopy, random);
 
                 // create a new list
                 final List<T> check = new LinkedList<>(preferredRecordsToReturnCopy);
@@ -376,6 +389,66 @@ public class WeightedRoundRobin<T> {
         }
     }
 
+    /**
+     * @return the position in the sequence of records, used to continue the
+     *         sequence in another round robin with the same records
+     * @see #restoreCursor(Cursor)
+     */
+    public final synchronized Cursor<T> getCursor() {
+        final ImmutableList.Builder<RecordPosition<T>> positions = ImmutableList.builder();
+        records.forEach(r -> {
+            if (r.active) {
+                positions.add(new RecordPosition<>(r.record, r.useCount, r.used));
+            }
+        });
+
+        if (RoundRobinAlgorithm.RANDOM_RECORDS.equals(roundRobinAlgorithm)) {
+            final int start = Math.min(recordUseWeightIndex, recordsToReturn.size());
+            return new Cursor<>(positions.build(), null,
+                    ImmutableList.copyOf(recordsToReturn.subList(start, recordsToReturn.size())));
+        } else {
+            // inactive records are not in the cursor, use the next active one
+            T next = null;
+            for (int i = 0; i < records.size() && null == next; ++i) {
+                final RecordData<T> data = records.get((recordUseWeightIndex + i) % records.size());
+                if (data.active) {
+                    next = data.record;
+                }
+            }
+            return new Cursor<>(positions.build(), next, ImmutableList.of());
+        }
+    }
+
+    /**
+     * Continue the sequence of records from a cursor. The records must have
+     * been added before calling this method, records in the cursor that are
+     * not known are ignored.
+     * 
+     * @param cursor
+     *            the value of {@link #getCursor()} from a round robin with the
+     *            same records
+     */
+    public final synchronized void restoreCursor(@Nonnull final Cursor<T> cursor) {
+        cursor.getRecords().forEach(position -> {
+            final Integer idx = recordIndexMap.get(position.getRecord());
+            if (null != idx) {
+                final RecordData<T> data = records.get(idx);
+                data.useCount = position.getUseCount();
+                data.used = position.isUsed();
+            }
+        });
+
+        if (RoundRobinAlgorithm.RANDOM_RECORDS.equals(roundRobinAlgorithm)) {
+            recordsToReturn.clear();
+            recordsToReturn.addAll(cursor.getRemaining());
+            recordUseWeightIndex = 0;
+            checkRecordIndex();
+        } else {
+            final Integer idx = null == cursor.getNext() ? null : recordIndexMap.get(cursor.getNext());
+            recordUseWeightIndex = null == idx ? 0 : idx;
+        }
+    }
+
     private void incrementRecordIndex() {
         ++recordUseWeightIndex;
         checkRecordIndex();
@@ -402,6 +475,116 @@ public class WeightedRoundRobin<T> {
         return this.getClass().getSimpleName() + " [" + " records: " + records + " ]";
     }
 
+    /**
+     * Position in the sequence of records of a {@link WeightedRoundRobin}.
+     * 
+     * @param <T>
+     *            the type of record
+     * @see WeightedRoundRobin#getCursor()
+     */
+    public static final class Cursor<T> {
+        /**
+         * @param records
+         *            see {@link #getRecords()}
+         * @param next
+         *            see {@link #getNext()}
+         * @param remaining
+         *            see {@link #getRemaining()}
+         */
+        public Cursor(@JsonProperty("records") @Nonnull final ImmutableList<RecordPosition<T>> records,
+                @JsonProperty("next") final T next,
+                @JsonProperty("remaining") @Nonnull final ImmutableList<T> remaining) {
+            this.records = records;
+            this.next = next;
+            this.remaining = remaining;
+        }
+
+        private final ImmutableList<RecordPosition<T>> records;
+
+        /**
+         * @return the state of each active record
+         */
+        @Nonnull
+        public ImmutableList<RecordPosition<T>> getRecords() {
+            return records;
+        }
+
+        private final T next;
+
+        /**
+         * @return the record to check first for the next lookup, null when
+         *         using {@link RoundRobinAlgorithm#RANDOM_RECORDS} or there are
+         *         no records
+         */
+        public T getNext() {
+            return next;
+        }
+
+        private final ImmutableList<T> remaining;
+
+        /**
+         * @return the records that are left to return before the list is
+         *         shuffled again when using
+         *         {@link RoundRobinAlgorithm#RANDOM_RECORDS}
+         */
+        @Nonnull
+        public ImmutableList<T> getRemaining() {
+            return remaining;
+        }
+    }
+
+    /**
+     * How many more times a record is used before the use counts are reset.
+     * 
+     * @param <T>
+     *            the type of record
+     */
+    public static final class RecordPosition<T> {
+        /**
+         * @param record
+         *            see {@link #getRecord()}
+         * @param useCount
+         *            see {@link #getUseCount()}
+         * @param used
+         *            see {@link #isUsed()}
+         */
+        public RecordPosition(@JsonProperty("record") @Nonnull final T record,
+                @JsonProperty("useCount") final int useCount,
+                @JsonProperty("used") final boolean used) {
+            this.record = record;
+            this.useCount = useCount;
+            this.used = used;
+        }
+
+        private final T record;
+
+        /**
+         * @return the record
+         */
+        @Nonnull
+        public T getRecord() {
+            return record;
+        }
+
+        private final int useCount;
+
+        /**
+         * @return how many more times the record is used
+         */
+        public int getUseCount() {
+            return useCount;
+        }
+
+        private final boolean used;
+
+        /**
+         * @return if the record has been used since the use counts were reset
+         */
+        public boolean isUsed() {
+            return used;
+        }
+    }
+
     // CHECKSTYLE:OFF data class
     private static final class RecordData<T> {
 
@@ -0,0 +1,237 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map;
+
+
+
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+
+import com.bbn.map.ContainerLifecycleExecutor.Transition;
+import com.bbn.map.metrics.MetricsRegistry;
+import com.bbn.map.metrics.MetricsSnapshot;
+import com.bbn.map.simulator.TestUtils;
+import com.bbn.protelis.networkresourcemanagement.DnsNameIdentifier;
+import com.bbn.protelis.networkresourcemanagement.NodeIdentifier;
+import com.bbn.protelis.networkresourcemanagement.ServiceIdentifier;
+import com.bbn.protelis.networkresourcemanagement.StringServiceIdentifier;
+import com.bbn.protelis.utils.SimpleClock;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Test cases for {@link ContainerLifecycleExecutor}.
+ */
+public class ContainerLifecycleExecutorTest {
+
+    /**
+     * Rules for running tests.
+     */
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD", justification = "Used by the JUnit framework")
+    @Rule
+    public RuleChain chain = TestUtils.getStandardRuleChain();
+
+    private static final ServiceIdentifier<?> SERVICE_A = new StringServiceIdentifier("serviceA");
+    private static final ServiceIdentifier<?> SERVICE_B = new StringServiceIdentifier("serviceB");
+
+    /**
+     * Leave the metrics registry disabled and empty for the next test.
+     */
+    @After
+    public void disableMetrics() {
+        MetricsRegistry.getInstance().setEnabled(false);
+        MetricsRegistry.getInstance().snapshot(0);
+    }
+
+    /**
+     * Test that a plan that stops a container running a service and starts a
+     * new container for the same service only executes the stop.
+     */
+    @Test
+    public void testStopCancelsStartOfSameService() {
+        final List<ServiceIdentifier<?>> started = Collections.synchronizedList(new LinkedList<>());
+        final List<NodeIdentifier> stopped = Collections.synchronizedList(new LinkedList<>());
+
+        final NodeIdentifier containerA = new DnsNameIdentifier("containerA");
+
+        try (ContainerLifecycleExecutor executor = new ContainerLifecycleExecutor("test", 1, 0, Duration.ZERO,
+                new SimpleClock(), service -> {
+                    started.add(service);
+                    return new DnsNameIdentifier("new-" + service);
+                }, container -> {
+                    stopped.add(container);
+                    return true;
+                })) {
+
+            final ContainerLifecycleExecutor.Batch batch = new ContainerLifecycleExecutor.Batch();
+            batch.addStart(SERVICE_A);
+            batch.addStart(SERVICE_B);
+            Assert.assertTrue(batch.addStop(containerA, SERVICE_A));
+            // nothing left to cancel for the second stop
+            Assert.assertFalse(batch.addStop(new DnsNameIdentifier("containerA2"), SERVICE_A));
+            executor.execute(batch);
+
+            Assert.assertEquals(Collections.singletonList(SERVICE_B), started);
+            Assert.assertEquals(Arrays.asList(containerA, new DnsNameIdentifier("containerA2")), stopped);
+            Assert.assertEquals(1, executor.getCoalescedCount());
+            Assert.assertEquals(1, executor.getStatistics(Transition.START).getCount());
+            Assert.assertEquals(2, executor.getStatistics(Transition.STOP).getCount());
+        }
+    }
+
+    /**
+     * Test that a start that is cancelled before the batch is executed is not
+     * executed and that everything else is.
+     */
+    @Test
+    public void testCancelStart() {
+        final List<ServiceIdentifier<?>> started = Collections.synchronizedList(new LinkedList<>());
+        final List<NodeIdentifier> stopped = Collections.synchronizedList(new LinkedList<>());
+
+        final NodeIdentifier containerB = new DnsNameIdentifier("containerB");
+
+        try (ContainerLifecycleExecutor executor = new ContainerLifecycleExecutor("test", 1, 0, Duration.ZERO,
+                new SimpleClock(), service -> {
+                    started.add(service);
+                    return new DnsNameIdentifier("new-" + service);
+                }, container -> {
+                    stopped.add(container);
+                    return true;
+                })) {
+
+            final ContainerLifecycleExecutor.Batch batch = new ContainerLifecycleExecutor.Batch();
+            batch.addStart(SERVICE_A);
+            batch.addStart(SERVICE_B);
+            Assert.assertFalse(batch.addStop(containerB, null));
+            Assert.assertTrue(batch.cancelStart(SERVICE_A));
+            Assert.assertFalse(batch.cancelStart(SERVICE_A));
+            executor.execute(batch);
+
+            Assert.assertEquals(Collections.singletonList(SERVICE_B), started);
+            Assert.assertEquals(Collections.singletonList(containerB), stopped);
+            Assert.assertEquals(1, executor.getCoalescedCount());
+            Assert.assertEquals(1, executor.getStatistics(Transition.START).getCount());
+            Assert.assertEquals(1, executor.getStatistics(Transition.STOP).getCount());
+            Assert.assertEquals(0, executor.getStatistics(Transition.STOP).getFailures());
+        }
+    }
+
+    /**
+     * Test that the number of transitions running at the same time is limited
+     * by both the parallelism and the number of transitions per batch and that
+     * failures are counted.
+     */
+    @Test
+    public void testParallelismLimit() {
+        final int parallelism = 4;
+        final int maxPerBatch = 3;
+        final int numStarts = 10;
+        final long transitionDurationMs = 20;
+
+        final AtomicInteger active = new AtomicInteger(0);
+        final AtomicInteger maxActive = new AtomicInteger(0);
+        final AtomicInteger calls = new AtomicInteger(0);
+
+        try (ContainerLifecycleExecutor executor = new ContainerLifecycleExecutor("test", parallelism, maxPerBatch,
+                Duration.ofMillis(1), new SimpleClock(), service -> {
+                    final int current = active.incrementAndGet();
+                    maxActive.accumulateAndGet(current, Math::max);
+                    try {
+                        Thread.sleep(transitionDurationMs);
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    active.decrementAndGet();
+
+                    // every other start fails
+                    return calls.incrementAndGet() % 2 == 0 ? new DnsNameIdentifier("container") : null;
+                }, container -> true)) {
+
+            final ContainerLifecycleExecutor.Batch batch = new ContainerLifecycleExecutor.Batch();
+            for (final ServiceIdentifier<?> service : Collections.nCopies(numStarts, SERVICE_A)) {
+                batch.addStart(service);
+            }
+            executor.execute(batch);
+
+            Assert.assertEquals(numStarts, calls.get());
+            Assert.assertThat(maxActive.get(), lessThanOrEqualTo(Math.min(parallelism, maxPerBatch)));
+
+            final ContainerLifecycleExecutor.TransitionStatistics stats = executor.getStatistics(Transition.START);
+            Assert.assertEquals(numStarts, stats.getCount());
+            Assert.assertEquals(numStarts / 2, stats.getFailures());
+            Assert.assertThat(Duration.ofMillis(transitionDurationMs), lessThanOrEqualTo(stats.getMaxDuration()));
+            Assert.assertEquals(Arrays.asList(Transition.START, Transition.STOP),
+                    new LinkedList<>(executor.getStatistics().keySet()));
+        }
+    }
+
+    /**
+     * Test that the transition times, failures and cancelled starts are
+     * recorded in the {@link MetricsRegistry}.
+     */
+    @Test
+    public void testMetrics() {
+        final MetricsRegistry registry = MetricsRegistry.getInstance();
+        registry.snapshot(0);
+        registry.setEnabled(true);
+
+        try (ContainerLifecycleExecutor executor = new ContainerLifecycleExecutor("test", 1, 0, Duration.ZERO,
+                new SimpleClock(), service -> null, container -> true)) {
+
+            final ContainerLifecycleExecutor.Batch batch = new ContainerLifecycleExecutor.Batch();
+            batch.addStart(SERVICE_A);
+            batch.addStart(SERVICE_B);
+            batch.addStop(new DnsNameIdentifier("containerB"), SERVICE_B);
+            executor.execute(batch);
+        }
+
+        final MetricsSnapshot snapshot = registry.snapshot(1000);
+        Assert.assertEquals(1, snapshot.getHistograms().get("container.lifecycle.START").getCount());
+        Assert.assertEquals(1, snapshot.getHistograms().get("container.lifecycle.STOP").getCount());
+        Assert.assertEquals(Long.valueOf(1), snapshot.getCounters().get("container.lifecycle.START.failures"));
+        Assert.assertFalse(snapshot.getCounters().containsKey("container.lifecycle.STOP.failures"));
+        Assert.assertEquals(Long.valueOf(1), snapshot.getCounters().get("container.lifecycle.cancelledStarts"));
+    }
+
+}
@@ -0,0 +1,166 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map;
+
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+
+import com.bbn.map.simulator.TestUtils;
+import com.bbn.protelis.networkresourcemanagement.ContainerResourceReport;
+import com.bbn.protelis.networkresourcemanagement.DnsNameIdentifier;
+import com.bbn.protelis.networkresourcemanagement.NodeAttribute;
+import com.bbn.protelis.networkresourcemanagement.NodeIdentifier;
+import com.bbn.protelis.networkresourcemanagement.RegionIdentifier;
+import com.bbn.protelis.networkresourcemanagement.ResourceReport;
+import com.bbn.protelis.networkresourcemanagement.ResourceReport.EstimationWindow;
+import com.bbn.protelis.networkresourcemanagement.ResourceSummary;
+import com.bbn.protelis.networkresourcemanagement.ServiceIdentifier;
+import com.bbn.protelis.networkresourcemanagement.ServiceStatus;
+import com.bbn.protelis.networkresourcemanagement.StringRegionIdentifier;
+import com.bbn.protelis.networkresourcemanagement.StringServiceIdentifier;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Test cases for {@link ResourceSummaryAggregator}.
+ */
+public class ResourceSummaryAggregatorTest {
+
+    /**
+     * Rules for running tests.
+     */
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD", justification = "Used by the JUnit framework")
+    @Rule
+    public RuleChain chain = TestUtils.getStandardRuleChain();
+
+    private static final RegionIdentifier REGION = new StringRegionIdentifier("A");
+    private static final ServiceIdentifier<?> SERVICE = new StringServiceIdentifier("testService");
+    private static final EstimationWindow WINDOW = EstimationWindow.SHORT;
+
+    private static ResourceReport createReport(final NodeIdentifier nodeName,
+            final long timestamp,
+            final double load) {
+        final ImmutableMap<NodeAttribute, Double> serverCapacity = ImmutableMap.of(NodeAttribute.TASK_CONTAINERS,
+                10D);
+        final ImmutableMap<NodeIdentifier, ImmutableMap<NodeAttribute, Double>> serverLoad = ImmutableMap
+                .of(nodeName, ImmutableMap.of(NodeAttribute.TASK_CONTAINERS, load));
+
+        final NodeIdentifier containerId = new DnsNameIdentifier(nodeName.getName() + "_c0");
+        final ContainerResourceReport containerReport = new ContainerResourceReport(containerId, timestamp, SERVICE,
+                ServiceStatus.RUNNING, WINDOW, serverCapacity, serverLoad, serverLoad, 0D);
+
+        return new ResourceReport(nodeName, timestamp, WINDOW, serverCapacity, ImmutableMap.of(), ImmutableMap.of(),
+                ImmutableMap.of(), ImmutableMap.of(containerId, containerReport), 1, 1);
+    }
+
+    /**
+     * Test that only the reports that changed are converted again and that
+     * the summary matches the summary computed from scratch.
+     */
+    @Test
+    public void testIncrementalMatchesFull() {
+        final NodeIdentifier node0 = new DnsNameIdentifier("node0");
+        final NodeIdentifier node1 = new DnsNameIdentifier("node1");
+        final NodeIdentifier node2 = new DnsNameIdentifier("node2");
+
+        final ResourceSummaryAggregator aggregator = new ResourceSummaryAggregator(REGION, node -> REGION);
+
+        final ImmutableSet<ResourceReport> first = ImmutableSet.of(createReport(node0, 0, 1),
+                createReport(node1, 0, 2), createReport(node2, 0, 3));
+        final ResourceSummary firstSummary = aggregator.computeSummary(first);
+        Assert.assertEquals(0, aggregator.getLastReusedCount());
+        assertSameSummary(Controller.computeResourceSummary(REGION, node -> REGION, first), firstSummary);
+        Assert.assertEquals(30D, firstSummary.getServerCapacity().get(NodeAttribute.TASK_CONTAINERS), 1E-6);
+
+        // node1 reports new load, node2 no longer reports
+        final ImmutableSet<ResourceReport> second = ImmutableSet.of(createReport(node0, 0, 1),
+                createReport(node1, 10, 5));
+        final ResourceSummary secondSummary = aggregator.computeSummary(second);
+        Assert.assertEquals(1, aggregator.getLastReusedCount());
+        assertSameSummary(Controller.computeResourceSummary(REGION, node -> REGION, second), secondSummary);
+
+        Assert.assertEquals(0, secondSummary.getMinTimestamp());
+        Assert.assertEquals(10, secondSummary.getMaxTimestamp());
+        Assert.assertEquals(20D, secondSummary.getServerCapacity().get(NodeAttribute.TASK_CONTAINERS), 1E-6);
+    }
+
+    /**
+     * Test that the summary does not depend on which contributions came from
+     * the cache. The loads are chosen so that the floating point sums depend
+     * on the order of the additions.
+     */
+    @Test
+    public void testCachedMatchesUncached() {
+        final List<NodeIdentifier> nodes = IntStream.range(0, 20)
+                .mapToObj(i -> new DnsNameIdentifier("node" + i)).collect(Collectors.toList());
+
+        final ResourceSummaryAggregator warm = new ResourceSummaryAggregator(REGION, node -> REGION);
+        final ImmutableSet<ResourceReport> first = ImmutableSet.copyOf(IntStream.range(0, nodes.size())
+                .mapToObj(i -> createReport(nodes.get(i), 0, 0.1 * (i + 1))).collect(Collectors.toList()));
+        warm.computeSummary(first);
+
+        // every other node reports a new load
+        final ImmutableSet<ResourceReport> second = ImmutableSet.copyOf(IntStream.range(0, nodes.size())
+                .mapToObj(i -> i % 2 == 0 ? createReport(nodes.get(i), 0, 0.1 * (i + 1))
+                        : createReport(nodes.get(i), 10, 0.7 * (i + 1)))
+                .collect(Collectors.toList()));
+        final ResourceSummary warmSummary = warm.computeSummary(second);
+        Assert.assertEquals(nodes.size() / 2, warm.getLastReusedCount());
+
+        final ResourceSummaryAggregator cold = new ResourceSummaryAggregator(REGION, node -> REGION);
+        final ResourceSummary coldSummary = cold.computeSummary(second);
+        Assert.assertEquals(0, cold.getLastReusedCount());
+
+        assertSameSummary(coldSummary, warmSummary);
+    }
+
+    private static void assertSameSummary(final ResourceSummary expected, final ResourceSummary actual) {
+        Assert.assertEquals(expected.getMinTimestamp(), actual.getMinTimestamp());
+        Assert.assertEquals(expected.getMaxTimestamp(), actual.getMaxTimestamp());
+        Assert.assertEquals(expected.getServerCapacity(), actual.getServerCapacity());
+        Assert.assertEquals(expected.getServerLoad(), actual.getServerLoad());
+        Assert.assertEquals(expected.getServerDemand(), actual.getServerDemand());
+        Assert.assertEquals(expected.getNetworkCapacity(), actual.getNetworkCapacity());
+        Assert.assertEquals(expected.getNetworkLoad(), actual.getNetworkLoad());
+        Assert.assertEquals(expected.getNetworkDemand(), actual.getNetworkDemand());
+    }
+
+}
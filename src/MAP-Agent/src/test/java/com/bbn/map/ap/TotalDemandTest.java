@@ -0,0 +1,134 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.ap;
+
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+
+import com.bbn.map.simulator.TestUtils;
+import com.bbn.protelis.networkresourcemanagement.NodeAttribute;
+import com.bbn.protelis.networkresourcemanagement.RegionIdentifier;
+import com.bbn.protelis.networkresourcemanagement.StringRegionIdentifier;
+import com.google.common.collect.ImmutableMap;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Test cases for {@link TotalDemand}.
+ */
+public class TotalDemandTest {
+
+    /**
+     * Rules for running tests.
+     */
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD", justification = "Used by the JUnit framework")
+    @Rule
+    public RuleChain chain = TestUtils.getStandardRuleChain();
+
+    private static final RegionIdentifier REGION_A = new StringRegionIdentifier("A");
+    private static final RegionIdentifier REGION_B = new StringRegionIdentifier("B");
+    private static final RegionIdentifier REGION_C = new StringRegionIdentifier("C");
+
+    /**
+     * Test summing objects that have the same regions and attributes.
+     */
+    @Test
+    public void testSumSameIndex() {
+        final TotalDemand one = new TotalDemand(ImmutableMap.of(//
+                REGION_A, ImmutableMap.of(NodeAttribute.TASK_CONTAINERS, 1D, NodeAttribute.CPU, 2D), //
+                REGION_B, ImmutableMap.of(NodeAttribute.TASK_CONTAINERS, 3D, NodeAttribute.CPU, 4D)));
+        final TotalDemand two = new TotalDemand(ImmutableMap.of(//
+                REGION_A, ImmutableMap.of(NodeAttribute.TASK_CONTAINERS, 10D, NodeAttribute.CPU, 20D), //
+                REGION_B, ImmutableMap.of(NodeAttribute.TASK_CONTAINERS, 30D, NodeAttribute.CPU, 40D)));
+
+        final TotalDemand sum = TotalDemand.sumTotalDemand(one, two);
+
+        final ImmutableMap<RegionIdentifier, ImmutableMap<NodeAttribute, Double>> expected = ImmutableMap.of(//
+                REGION_A, ImmutableMap.of(NodeAttribute.TASK_CONTAINERS, 11D, NodeAttribute.CPU, 22D), //
+                REGION_B, ImmutableMap.of(NodeAttribute.TASK_CONTAINERS, 33D, NodeAttribute.CPU, 44D));
+        Assert.assertEquals(expected, sum.getServerDemand());
+
+        // the inputs are not modified
+        Assert.assertEquals(1D, one.getServerDemand().get(REGION_A).get(NodeAttribute.TASK_CONTAINERS), 0);
+    }
+
+    /**
+     * Test summing objects with different regions and attributes. Attributes
+     * that are not in any of the inputs for a region must not show up in the
+     * result.
+     */
+    @Test
+    public void testSumDifferentIndex() {
+        final TotalDemand one = new TotalDemand(ImmutableMap.of(//
+                REGION_A, ImmutableMap.of(NodeAttribute.TASK_CONTAINERS, 1D)));
+        final TotalDemand two = new TotalDemand(ImmutableMap.of(//
+                REGION_A, ImmutableMap.of(NodeAttribute.TASK_CONTAINERS, 2D), //
+                REGION_B, ImmutableMap.of(NodeAttribute.CPU, 3D)));
+        final TotalDemand three = new TotalDemand(ImmutableMap.of(//
+                REGION_C, ImmutableMap.of()));
+
+        final TotalDemand sum = TotalDemand.sumAllTotalDemand(Arrays.asList(one, null, two, three));
+
+        final ImmutableMap<RegionIdentifier, ImmutableMap<NodeAttribute, Double>> expected = ImmutableMap.of(//
+                REGION_A, ImmutableMap.of(NodeAttribute.TASK_CONTAINERS, 3D), //
+                REGION_B, ImmutableMap.of(NodeAttribute.CPU, 3D), //
+                REGION_C, ImmutableMap.of());
+        Assert.assertEquals(expected, sum.getServerDemand());
+
+        // the pairwise sum gives the same result
+        Assert.assertEquals(expected, TotalDemand
+                .sumTotalDemand(TotalDemand.sumTotalDemand(one, two), three).getServerDemand());
+    }
+
+    /**
+     * Test that null values are handled.
+     */
+    @Test
+    public void testSumNull() {
+        final TotalDemand one = new TotalDemand(ImmutableMap.of(//
+                REGION_A, ImmutableMap.of(NodeAttribute.TASK_CONTAINERS, 1D)));
+
+        Assert.assertSame(one, TotalDemand.sumTotalDemand(one, null));
+        Assert.assertSame(one, TotalDemand.sumTotalDemand(null, one));
+        Assert.assertSame(TotalDemand.nullTotalDemand(), TotalDemand.sumTotalDemand(null, null));
+        Assert.assertEquals(ImmutableMap.of(), TotalDemand
+                .sumTotalDemand(TotalDemand.nullTotalDemand(), TotalDemand.nullTotalDemand()).getServerDemand());
+        Assert.assertEquals(one.getServerDemand(),
+                TotalDemand.sumTotalDemand(one, TotalDemand.nullTotalDemand()).getServerDemand());
+    }
+
+}
@@ -0,0 +1,165 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.dcop;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+
+import com.bbn.map.simulator.TestUtils;
+import com.bbn.protelis.networkresourcemanagement.RegionIdentifier;
+import com.bbn.protelis.networkresourcemanagement.StringRegionIdentifier;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Test cases for the iteration window in {@link DcopSharedInformation}.
+ */
+public class DcopSharedInformationTest {
+
+    /**
+     * Unit test rule chain.
+     */
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD", justification = "Used by the JUnit framework")
+    @Rule
+    public RuleChain chain = TestUtils.getStandardRuleChain();
+
+    private static final RegionIdentifier REGION = new StringRegionIdentifier("A");
+    private static final LocalDateTime TIME = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+    private static DcopReceiverMessage message(final int iteration) {
+        return new DcopReceiverMessage(REGION, iteration);
+    }
+
+    private static Set<Integer> keys(final Integer... iterations) {
+        return new HashSet<>(Arrays.asList(iterations));
+    }
+
+    /**
+     * Messages are kept until a message one past the window is added, the
+     * tree message is never removed.
+     */
+    @Test
+    public void testEvictAtWindowBoundary() {
+        final int window = 3;
+        final DcopSharedInformation info = new DcopSharedInformation();
+        info.setIterationWindow(window);
+        info.putMessageAtIteration(AbstractDcopAlgorithm.TREE_ITERATION, message(AbstractDcopAlgorithm.TREE_ITERATION));
+
+        for (int i = 0; i < window; ++i) {
+            info.putMessageAtIteration(i, message(i));
+        }
+        Assert.assertEquals(keys(AbstractDcopAlgorithm.TREE_ITERATION, 0, 1, 2),
+                info.getIterationMessageMap().keySet());
+
+        info.setMessageAtIteration(window, message(window));
+        Assert.assertEquals(keys(AbstractDcopAlgorithm.TREE_ITERATION, 1, 2, 3),
+                info.getIterationMessageMap().keySet());
+
+        for (int run = 0; run <= window; ++run) {
+            info.putConstructionTime(run, TIME.plusMinutes(run));
+        }
+        Assert.assertEquals(keys(1, 2, 3), info.getConstructionTimeMap().keySet());
+
+        // shrinking the window removes the messages that are now outside it
+        info.setIterationWindow(1);
+        Assert.assertEquals(keys(AbstractDcopAlgorithm.TREE_ITERATION, 3), info.getIterationMessageMap().keySet());
+        Assert.assertEquals(keys(3), info.getConstructionTimeMap().keySet());
+    }
+
+    /**
+     * The copy only contains the iterations and construction times inside
+     * the window, even when the maps of the original were modified directly.
+     */
+    @Test
+    public void testCopyKeepsWindow() {
+        final DcopSharedInformation info = new DcopSharedInformation();
+        info.setIterationWindow(2);
+        info.getIterationMessageMap().put(AbstractDcopAlgorithm.TREE_ITERATION,
+                message(AbstractDcopAlgorithm.TREE_ITERATION));
+        for (int i = 0; i < 5; ++i) {
+            info.getIterationMessageMap().put(i, message(i));
+            info.getConstructionTimeMap().put(i, TIME.plusMinutes(i));
+        }
+
+        final DcopSharedInformation copy = new DcopSharedInformation(info);
+        Assert.assertEquals(2, copy.getIterationWindow());
+        Assert.assertEquals(keys(AbstractDcopAlgorithm.TREE_ITERATION, 3, 4), copy.getIterationMessageMap().keySet());
+        Assert.assertEquals(keys(3, 4), copy.getConstructionTimeMap().keySet());
+        Assert.assertEquals(TIME.plusMinutes(3), copy.getConstructionTimeMap().get(3));
+        Assert.assertEquals(TIME.plusMinutes(4), copy.getConstructionTimeMap().get(4));
+
+        // the original is not changed by the copy
+        Assert.assertEquals(6, info.getIterationMessageMap().size());
+        Assert.assertEquals(5, info.getConstructionTimeMap().size());
+    }
+
+    /**
+     * With {@link AbstractDcopAlgorithm#CURRENT_RUN_ITERATION_WINDOW} only the
+     * newest iteration and run are kept.
+     */
+    @Test
+    public void testCurrentRunWindow() {
+        final DcopSharedInformation info = new DcopSharedInformation();
+        info.setIterationWindow(AbstractDcopAlgorithm.CURRENT_RUN_ITERATION_WINDOW);
+        info.putMessageAtIteration(AbstractDcopAlgorithm.TREE_ITERATION, message(AbstractDcopAlgorithm.TREE_ITERATION));
+
+        info.putMessageAtIteration(0, message(0));
+        Assert.assertEquals(keys(AbstractDcopAlgorithm.TREE_ITERATION, 0), info.getIterationMessageMap().keySet());
+
+        info.putMessageAtIteration(1, message(1));
+        Assert.assertEquals(keys(AbstractDcopAlgorithm.TREE_ITERATION, 1), info.getIterationMessageMap().keySet());
+
+        info.putConstructionTime(5, TIME);
+        info.putConstructionTime(6, TIME.plusMinutes(1));
+        Assert.assertEquals(keys(6), info.getConstructionTimeMap().keySet());
+
+        final DcopSharedInformation copy = new DcopSharedInformation(info);
+        Assert.assertEquals(keys(AbstractDcopAlgorithm.TREE_ITERATION, 1), copy.getIterationMessageMap().keySet());
+        Assert.assertEquals(keys(6), copy.getConstructionTimeMap().keySet());
+    }
+
+    /**
+     * A window of less than 1 is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidWindow() {
+        new DcopSharedInformation().setIterationWindow(0);
+    }
+
+}
@@ -0,0 +1,246 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.dcop;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+
+import com.bbn.map.AgentConfiguration;
+import com.bbn.map.AgentConfiguration.DcopAlgorithm;
+import com.bbn.map.ap.ImmutableDcopSharedInformation;
+import com.bbn.map.ap.TotalDemand;
+import com.bbn.map.appmgr.util.AppMgrUtils;
+import com.bbn.map.common.value.ApplicationCoordinates;
+import com.bbn.map.dcop.final_rcdiff.FinalRCDiffAlgorithm;
+import com.bbn.map.simulator.DiscreteEventClock;
+import com.bbn.map.simulator.TestUtils;
+import com.bbn.map.ta2.RegionalLink;
+import com.bbn.map.ta2.RegionalTopology;
+import com.bbn.map.utils.MapUtils;
+import com.bbn.protelis.networkresourcemanagement.LinkAttribute;
+import com.bbn.protelis.networkresourcemanagement.NodeAttribute;
+import com.bbn.protelis.networkresourcemanagement.RegionIdentifier;
+import com.bbn.protelis.networkresourcemanagement.RegionNetworkFlow;
+import com.bbn.protelis.networkresourcemanagement.RegionPlan;
+import com.bbn.protelis.networkresourcemanagement.ResourceReport;
+import com.bbn.protelis.networkresourcemanagement.ResourceSummary;
+import com.bbn.protelis.networkresourcemanagement.ServiceIdentifier;
+import com.bbn.protelis.networkresourcemanagement.StringRegionIdentifier;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import edu.uci.ics.jung.graph.Graph;
+import edu.uci.ics.jung.graph.SparseMultigraph;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Test that {@link FinalRCDiffAlgorithm#prepareWarmStart(ResourceSummary, RegionalTopology)}
+ * leaves no state behind that changes the plans compared with creating a new
+ * algorithm object each round.
+ */
+public class FinalRCDiffWarmStartTest {
+
+    /**
+     * Unit test rule chain.
+     */
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD", justification = "Used by the JUnit framework")
+    @Rule
+    public RuleChain chain = TestUtils.getStandardRuleChain();
+
+    private static final int NUM_ROUNDS = 4;
+
+    private static final double REGION_CAPACITY = 10;
+
+    private static final double DEMAND = 12;
+
+    private static final double DATARATE = 1000;
+
+    private final RegionIdentifier regionA = new StringRegionIdentifier("A");
+
+    private final RegionIdentifier regionB = new StringRegionIdentifier("B");
+
+    private final ServiceIdentifier<?> service = new ApplicationCoordinates("com.bbn", "test-service", "1");
+
+    /**
+     * Region A has more demand than it can serve and region B has spare
+     * capacity. The demand is the same every round, so the warm started
+     * algorithm must produce the same plans as a new algorithm each round.
+     */
+    @Test
+    public void testWarmStartMatchesColdStart() {
+        AgentConfiguration.getInstance().setDcopAlgorithm(DcopAlgorithm.FINAL_RCDIFF);
+
+        final ImmutableList<ImmutableMap<RegionIdentifier, Object>> cold = runRounds(false);
+        final ImmutableList<ImmutableMap<RegionIdentifier, Object>> warm = runRounds(true);
+
+        assertThat(cold.size(), is(NUM_ROUNDS));
+        assertThat(warm, is(cold));
+    }
+
+    /**
+     * @param warmStart
+     *            if true the algorithm objects are kept between rounds
+     * @return the plan of each region, per round
+     */
+    private ImmutableList<ImmutableMap<RegionIdentifier, Object>> runRounds(final boolean warmStart) {
+        final ImmutableMap<RegionIdentifier, ResourceSummary> summaries = ImmutableMap.of(//
+                regionA, createSummary(regionA, regionB, DEMAND), //
+                regionB, createSummary(regionB, regionA, 0));
+        final RegionalTopology topology = createTopology();
+        final ImmutableMap<ServiceIdentifier<?>, TotalDemand> totalDemand = computeTotalDemand(summaries.values());
+
+        final Map<RegionIdentifier, ImmutableDcopSharedInformation> allSharedInformation = new ConcurrentHashMap<>();
+        final Map<RegionIdentifier, ReplayDcopInfoProvider> providers = new HashMap<>();
+        summaries.forEach((region, summary) -> {
+            providers.put(region, new ReplayDcopInfoProvider(region, allSharedInformation, topology,
+                    new RegionPlan(region, ImmutableMap.of())));
+            allSharedInformation.put(region, new ImmutableDcopSharedInformation(new DcopSharedInformation()));
+        });
+
+        final Map<RegionIdentifier, FinalRCDiffAlgorithm> algorithms = new HashMap<>();
+        final ImmutableList.Builder<ImmutableMap<RegionIdentifier, Object>> results = ImmutableList.builder();
+
+        // the serial clock runs the regions in the same order every round and
+        // lets the algorithms sleep without waiting for the wall clock
+        final DiscreteEventClock clock = new DiscreteEventClock(true);
+        clock.startClock();
+        try {
+            for (int round = 0; round < NUM_ROUNDS; ++round) {
+                final Map<RegionIdentifier, RegionPlan> plans = new ConcurrentHashMap<>();
+                final List<Thread> threads = new LinkedList<>();
+                for (final Map.Entry<RegionIdentifier, ResourceSummary> entry : summaries.entrySet()) {
+                    final RegionIdentifier region = entry.getKey();
+                    final ResourceSummary summary = entry.getValue();
+                    final ReplayDcopInfoProvider provider = providers.get(region);
+                    provider.startRound(summary, totalDemand);
+
+                    final FinalRCDiffAlgorithm algorithm;
+                    if (warmStart && algorithms.containsKey(region)) {
+                        algorithm = algorithms.get(region);
+                        algorithm.prepareWarmStart(summary, topology);
+                    } else {
+                        algorithm = new FinalRCDiffAlgorithm(region, provider, AppMgrUtils.getApplicationManager(),
+                                summary, topology);
+                        algorithms.put(region, algorithm);
+                    }
+
+                    threads.add(new Thread(clock.actor(() -> plans.put(region, algorithm.run())),
+                            "DCOP-" + region.getName()));
+                }
+
+                threads.forEach(Thread::start);
+                for (final Thread thread : threads) {
+                    thread.join();
+                }
+
+                final ImmutableMap.Builder<RegionIdentifier, Object> roundPlans = ImmutableMap.builder();
+                plans.forEach((region, plan) -> {
+                    providers.get(region).publishDcopPlan(plan);
+                    roundPlans.put(region, plan.getPlan());
+                });
+                results.add(roundPlans.build());
+            }
+        } catch (final InterruptedException e) {
+            throw new RuntimeException("Interrupted waiting for DCOP", e);
+        } finally {
+            clock.shutdown();
+        }
+
+        return results.build();
+    }
+
+    private ResourceSummary createSummary(final RegionIdentifier region,
+            final RegionIdentifier neighbor,
+            final double demand) {
+        final ImmutableMap<NodeAttribute, Double> serverCapacity = ImmutableMap.of(MapUtils.COMPUTE_ATTRIBUTE,
+                REGION_CAPACITY);
+
+        final ImmutableMap<ServiceIdentifier<?>, //
+                ImmutableMap<RegionIdentifier, ImmutableMap<NodeAttribute, Double>>> serverDemand;
+        final ImmutableMap<RegionIdentifier, //
+                ImmutableMap<RegionNetworkFlow, //
+                        ImmutableMap<ServiceIdentifier<?>, ImmutableMap<LinkAttribute, Double>>>> networkDemand;
+        if (demand > 0) {
+            serverDemand = ImmutableMap.of(service,
+                    ImmutableMap.of(region, ImmutableMap.of(MapUtils.COMPUTE_ATTRIBUTE, demand)));
+            networkDemand = ImmutableMap.of(region,
+                    ImmutableMap.of(new RegionNetworkFlow(region, region, region),
+                            ImmutableMap.of(service, ImmutableMap.of(LinkAttribute.DATARATE_RX, 1D))));
+        } else {
+            serverDemand = ImmutableMap.of();
+            networkDemand = ImmutableMap.of();
+        }
+
+        final ImmutableMap<RegionIdentifier, ImmutableMap<LinkAttribute, Double>> networkCapacity = ImmutableMap
+                .of(neighbor, ImmutableMap.of(LinkAttribute.DATARATE_RX, DATARATE, LinkAttribute.DATARATE_TX,
+                        DATARATE));
+
+        return new ResourceSummary(region, ResourceReport.NULL_TIMESTAMP, ResourceReport.NULL_TIMESTAMP,
+                ResourceReport.EstimationWindow.LONG, serverCapacity, serverDemand, serverDemand, ImmutableMap.of(),
+                networkCapacity, networkDemand, networkDemand, 0, 0);
+    }
+
+    private RegionalTopology createTopology() {
+        final Graph<RegionIdentifier, RegionalLink> graph = new SparseMultigraph<>();
+        graph.addVertex(regionA);
+        graph.addVertex(regionB);
+        graph.addEdge(new RegionalLink(regionA, regionB), regionA, regionB);
+        return new RegionalTopology(graph);
+    }
+
+    private static ImmutableMap<ServiceIdentifier<?>, TotalDemand> computeTotalDemand(
+            final Collection<ResourceSummary> summaries) {
+        final Map<ServiceIdentifier<?>, List<TotalDemand>> demands = new HashMap<>();
+        summaries.forEach(summary -> {
+            TotalDemand.fromSummary(summary).forEach((demandService, demand) -> {
+                demands.computeIfAbsent(demandService, k -> new LinkedList<>()).add(demand);
+            });
+        });
+
+        final ImmutableMap.Builder<ServiceIdentifier<?>, TotalDemand> total = ImmutableMap.builder();
+        demands.forEach((demandService, serviceDemands) -> {
+            total.put(demandService, TotalDemand.sumAllTotalDemand(serviceDemands));
+        });
+        return total.build();
+    }
+}
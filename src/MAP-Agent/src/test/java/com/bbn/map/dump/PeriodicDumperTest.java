@@ -0,0 +1,287 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.dump;
+
+
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+
+import com.bbn.map.simulator.DiscreteEventClock;
+import com.bbn.map.simulator.TestUtils;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Tests for {@link PeriodicDumper}.
+ */
+public class PeriodicDumperTest {
+
+    /**
+     * Add test name to logging and use the application manager.
+     */
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD", justification = "Used by the JUnit framework")
+    @Rule
+    public RuleChain chain = TestUtils.getStandardRuleChain();
+
+    private static final Duration INTERVAL = Duration.ofSeconds(10);
+    private static final long JOIN_TIMEOUT_MS = Duration.ofSeconds(30).toMillis();
+    private static final long SLOW_MS = 20;
+
+    private DiscreteEventClock clock;
+
+    /**
+     * Create the clock, the test thread is an actor so that it controls when
+     * time advances.
+     */
+    @Before
+    public void setup() {
+        clock = new DiscreteEventClock();
+        clock.startClock();
+        clock.addActor();
+    }
+
+    /**
+     * Make sure that the clock is shutdown.
+     */
+    @After
+    public void tearDown() {
+        clock.removeActor();
+        clock.shutdown();
+        DumpExecutor.getInstance().setMaxConcurrentWriters(DumpExecutor.DEFAULT_MAX_CONCURRENT_WRITERS);
+    }
+
+    private static void sleep(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Test that nothing is dumped while dumping is disabled and that the
+     * dumper exits when stopped.
+     * 
+     * @throws InterruptedException
+     *             if interrupted waiting for the dumper, this is an error
+     */
+    @Test
+    public void testDisabled() throws InterruptedException {
+        final List<Long> dumps = new CopyOnWriteArrayList<>();
+        final PeriodicDumper dumper = new PeriodicDumper("test", clock, () -> INTERVAL, () -> false,
+                time -> () -> dumps.add(time));
+        final Thread thread = new Thread(dumper, "test dumper");
+        thread.start();
+
+        clock.waitForDuration(INTERVAL.multipliedBy(10).toMillis());
+
+        dumper.stop();
+        thread.join(JOIN_TIMEOUT_MS);
+
+        assertThat(thread.isAlive(), is(false));
+        assertThat(dumps, is(empty()));
+    }
+
+    /**
+     * Test that dumping starts once the dumper is told that it is enabled and
+     * that the dumper exits when the clock is shutdown.
+     * 
+     * @throws InterruptedException
+     *             if interrupted waiting for the dumper, this is an error
+     */
+    @Test
+    public void testEnabledLater() throws InterruptedException {
+        final List<Long> dumps = new CopyOnWriteArrayList<>();
+        final AtomicBoolean enabled = new AtomicBoolean(false);
+        final CountDownLatch firstDump = new CountDownLatch(1);
+        final PeriodicDumper dumper = new PeriodicDumper("test", clock, () -> INTERVAL, enabled::get, time -> {
+            firstDump.countDown();
+            return () -> dumps.add(time);
+        });
+        final Thread thread = new Thread(dumper, "test dumper");
+        thread.start();
+
+        final long enableTime = INTERVAL.multipliedBy(5).toMillis();
+        clock.waitUntilTime(enableTime);
+        enabled.set(true);
+        dumper.stateChanged();
+        firstDump.await(JOIN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+
+        final int numIntervals = 5;
+        clock.waitForDuration(INTERVAL.multipliedBy(numIntervals).toMillis() - 1);
+
+        // the dumper is waiting on the clock
+        clock.shutdown();
+        thread.join(JOIN_TIMEOUT_MS);
+
+        assertThat(thread.isAlive(), is(false));
+        final List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < numIntervals; ++i) {
+            expected.add(enableTime + i * INTERVAL.toMillis());
+        }
+        assertThat(dumps, is(expected));
+    }
+
+    /**
+     * Test that the state in each dump is the state at the time of the dump
+     * even when writing is slow. The state changes halfway between dumps and
+     * capturing takes wall clock time, time must not advance while the dump
+     * is captured.
+     * 
+     * @throws InterruptedException
+     *             if interrupted waiting for the dumper, this is an error
+     */
+    @Test
+    public void testDumpMatchesTime() throws InterruptedException {
+        final long intervalMs = INTERVAL.toMillis();
+        final AtomicLong state = new AtomicLong(-1);
+        final Map<Long, Long> dumps = new ConcurrentHashMap<>();
+        final CountDownLatch firstDump = new CountDownLatch(1);
+        final PeriodicDumper dumper = new PeriodicDumper("test", clock, () -> INTERVAL, () -> true, time -> {
+            sleep(SLOW_MS);
+            final long value = state.get();
+            firstDump.countDown();
+            return () -> {
+                sleep(SLOW_MS);
+                dumps.put(time, value);
+            };
+        });
+        final Thread thread = new Thread(dumper, "test dumper");
+        thread.start();
+
+        // first dump is at time 0
+        firstDump.await(JOIN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+
+        final int numIntervals = 10;
+        for (int i = 0; i < numIntervals; ++i) {
+            clock.waitUntilTime(i * intervalMs + intervalMs / 2);
+            state.set(clock.getCurrentTime());
+        }
+
+        clock.shutdown();
+        thread.join(JOIN_TIMEOUT_MS);
+        assertThat(thread.isAlive(), is(false));
+
+        // dumps at 0 through (numIntervals - 1) * interval, possibly one more
+        // at the end
+        assertThat(dumps.size(), greaterThan(numIntervals - 1));
+        dumps.forEach((time, value) -> {
+            final long expected = 0 == time ? -1 : time - intervalMs / 2;
+            assertThat("Dump at " + time, value, is(expected));
+        });
+    }
+
+    /**
+     * Test that no more dumps than the maximum number of writers are written
+     * at the same time and that slow writes delay the dumpers instead of
+     * causing dumps to be skipped.
+     * 
+     * @throws InterruptedException
+     *             if interrupted waiting for the dumpers, this is an error
+     */
+    @Test
+    public void testWriterBound() throws InterruptedException {
+        final int maxWriters = 2;
+        final int numDumpers = 5;
+        final int numIntervals = 10;
+        final long intervalMs = INTERVAL.toMillis();
+        DumpExecutor.getInstance().setMaxConcurrentWriters(maxWriters);
+
+        final AtomicInteger active = new AtomicInteger(0);
+        final AtomicInteger maxActive = new AtomicInteger(0);
+        final List<List<Long>> dumps = new ArrayList<>();
+        final CountDownLatch started = new CountDownLatch(numDumpers);
+        final List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < numDumpers; ++i) {
+            final List<Long> dumperDumps = new CopyOnWriteArrayList<>();
+            dumps.add(dumperDumps);
+            final PeriodicDumper dumper = new PeriodicDumper("test" + i, clock, () -> INTERVAL, () -> true,
+                    time -> {
+                        started.countDown();
+                        return () -> {
+                            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                            sleep(SLOW_MS);
+                            active.decrementAndGet();
+                            dumperDumps.add(time);
+                        };
+                    });
+            final Thread thread = new Thread(dumper, "test dumper " + i);
+            threads.add(thread);
+            thread.start();
+        }
+
+        // all dumpers dump at time 0
+        started.await(JOIN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+
+        clock.waitForDuration(numIntervals * intervalMs - 1);
+
+        clock.shutdown();
+        for (final Thread thread : threads) {
+            thread.join(JOIN_TIMEOUT_MS);
+            assertThat(thread.isAlive(), is(false));
+        }
+
+        assertThat(maxActive.get(), lessThanOrEqualTo(maxWriters));
+        assertThat(maxActive.get(), greaterThan(0));
+        for (final List<Long> dumperDumps : dumps) {
+            assertThat(dumperDumps, is(not(empty())));
+            final List<Long> expected = new ArrayList<>();
+            for (int i = 0; i < numIntervals; ++i) {
+                expected.add(i * intervalMs);
+            }
+            assertThat(dumperDumps, is(expected));
+        }
+    }
+
+}
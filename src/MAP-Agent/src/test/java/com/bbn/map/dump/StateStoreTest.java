@@ -0,0 +1,239 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.dump;
+
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+
+import com.bbn.map.Controller;
+import com.bbn.map.simulator.Simulation;
+import com.bbn.map.simulator.TestUtils;
+import com.bbn.map.utils.JsonUtils;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Tests for {@link StateStore}, {@link StateStoreReader} and
+ * {@link StateStoreExporter}.
+ */
+public class StateStoreTest {
+
+    /**
+     * Add test name to logging and use the application manager.
+     */
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD", justification = "Used by the JUnit framework")
+    @Rule
+    public RuleChain chain = TestUtils.getStandardRuleChain();
+
+    private Path directory;
+
+    /**
+     * @throws IOException
+     *             test error
+     */
+    @Before
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("state-store");
+    }
+
+    /**
+     * @throws IOException
+     *             test error
+     */
+    @After
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    private static Map<String, Integer> value(final int v) {
+        final Map<String, Integer> map = new HashMap<>();
+        map.put("value", v);
+        return map;
+    }
+
+    private void writeStore(final Path storePath) throws IOException {
+        try (StateStore store = new StateStore(storePath)) {
+            for (long time = 0; time < 3; ++time) {
+                for (final String node : new String[] { "nodeA", "nodeB" }) {
+                    final StateStore.Chunk chunk = store.startChunk(node, time * 1000);
+                    chunk.write(StateDump.NODE_STATE, value((int) time));
+                    chunk.writeText(StateDump.AVAILABLE_SERVICES, node + " " + time);
+                    chunk.commit();
+                }
+            }
+        }
+    }
+
+    /**
+     * Values can be read back by node and time.
+     * 
+     * @throws IOException
+     *             test error
+     */
+    @Test
+    public void testRandomAccess() throws IOException {
+        final Path storePath = directory.resolve("store");
+        writeStore(storePath);
+
+        try (StateStoreReader reader = new StateStoreReader(storePath)) {
+            assertThat(reader.getNodes(), contains("nodeA", "nodeB"));
+            assertThat(reader.getTimes("nodeB"), contains(0L, 1000L, 2000L));
+
+            @SuppressWarnings("unchecked")
+            final Map<String, Integer> state = reader.read("nodeB", 1000, StateDump.NODE_STATE, Map.class);
+            assertThat(state.get("value"), is(1));
+
+            final StateStoreReader.Value text = reader.readChunk("nodeA", 2000).get(StateDump.AVAILABLE_SERVICES);
+            assertThat(text.isText(), is(true));
+            assertThat(new String(text.getData(), StandardCharsets.UTF_8), is("nodeA 2"));
+
+            assertThat(reader.read("nodeA", 500, StateDump.NODE_STATE, Map.class), nullValue());
+            assertThat(reader.read("nodeC", 0, StateDump.NODE_STATE, Map.class), nullValue());
+        }
+    }
+
+    /**
+     * The exporter writes a directory per node and time.
+     * 
+     * @throws IOException
+     *             test error
+     */
+    @Test
+    public void testExport() throws IOException {
+        final Path storePath = directory.resolve("store");
+        writeStore(storePath);
+
+        final Path output = directory.resolve("output");
+        try (StateStoreReader reader = new StateStoreReader(storePath)) {
+            StateStoreExporter.export(reader, null, output);
+        }
+
+        final Path timeDir = output.resolve("nodeB").resolve(String.format(Simulation.TIME_DIR_FORMAT, 2000));
+        final Map<?, ?> state = JsonUtils.getStandardMapObjectMapper()
+                .readValue(timeDir.resolve(StateDump.NODE_STATE).toFile(), Map.class);
+        assertThat(state.get("value"), is(2));
+
+        final String text = new String(Files.readAllBytes(timeDir.resolve(StateDump.AVAILABLE_SERVICES)),
+                StandardCharsets.UTF_8);
+        assertThat(text, is("nodeB 2"));
+    }
+
+    private static Map<String, Object> complexValue(final long time) {
+        final Map<String, Object> nested = new LinkedHashMap<>();
+        nested.put("load", 0.1 * (time + 1));
+        nested.put("containers", Arrays.asList("c0", "c1"));
+        nested.put("missing", null);
+
+        final Map<String, Object> map = new LinkedHashMap<>();
+        map.put("time", time);
+        map.put("node", nested);
+        map.put("empty", Collections.emptyMap());
+        return map;
+    }
+
+    /**
+     * The exported files are identical to the files written by
+     * {@link DirectoryStateDump} for the same state.
+     * 
+     * @throws IOException
+     *             test error
+     */
+    @Test
+    public void testExportMatchesDirectoryDump() throws IOException {
+        final Path storePath = directory.resolve("store");
+        final Path legacy = directory.resolve("legacy");
+        try (StateStore store = new StateStore(storePath)) {
+            for (long time = 0; time < 2; ++time) {
+                final Path timeDir = legacy.resolve("nodeA")
+                        .resolve(String.format(Simulation.TIME_DIR_FORMAT, time * 1000));
+                Files.createDirectories(timeDir);
+                final StateDump directoryDump = new DirectoryStateDump(timeDir, Controller.createDumpWriter());
+                final StateStore.Chunk chunk = store.startChunk("nodeA", time * 1000);
+                for (final StateDump dump : new StateDump[] { directoryDump, chunk }) {
+                    dump.write(StateDump.NODE_STATE, complexValue(time));
+                    dump.writeText(StateDump.AVAILABLE_SERVICES, "nodeA " + time);
+                }
+                chunk.commit();
+            }
+        }
+
+        final Path output = directory.resolve("output");
+        try (StateStoreReader reader = new StateStoreReader(storePath)) {
+            StateStoreExporter.export(reader, null, output);
+        }
+
+        final List<Path> expectedFiles;
+        try (Stream<Path> files = Files.walk(legacy)) {
+            expectedFiles = files.filter(Files::isRegularFile).map(legacy::relativize).sorted()
+                    .collect(Collectors.toList());
+        }
+        final List<Path> actualFiles;
+        try (Stream<Path> files = Files.walk(output)) {
+            actualFiles = files.filter(Files::isRegularFile).map(output::relativize).sorted()
+                    .collect(Collectors.toList());
+        }
+        assertThat(actualFiles, is(expectedFiles));
+        assertThat(expectedFiles.size(), is(4));
+
+        for (final Path file : expectedFiles) {
+            final String expected = new String(Files.readAllBytes(legacy.resolve(file)), StandardCharsets.UTF_8);
+            final String actual = new String(Files.readAllBytes(output.resolve(file)), StandardCharsets.UTF_8);
+            assertThat(file.toString(), actual, is(expected));
+        }
+    }
+
+}
@@ -0,0 +1,128 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.metrics;
+
+
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+
+import com.bbn.map.simulator.TestUtils;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Tests for {@link MetricsRegistry}.
+ */
+public class MetricsRegistryTest {
+
+    /**
+     * Add test name to logging and use the application manager.
+     */
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD", justification = "Used by the JUnit framework")
+    @Rule
+    public RuleChain chain = TestUtils.getStandardRuleChain();
+
+    /**
+     * The registry is shared, make sure the other tests don't record.
+     */
+    @After
+    public void disable() {
+        MetricsRegistry.getInstance().setEnabled(false);
+        MetricsRegistry.getInstance().snapshot(0);
+    }
+
+    /**
+     * Nothing is recorded while the registry is disabled.
+     */
+    @Test
+    public void testDisabled() {
+        final MetricsRegistry registry = MetricsRegistry.getInstance();
+        registry.setEnabled(false);
+
+        final Counter counter = registry.counter("test.disabled.counter");
+        final MetricHistogram histogram = registry.histogram("test.disabled.histogram");
+        counter.increment();
+        histogram.record(1);
+        final long start = histogram.start();
+
+        // enabling in the middle of a timing doesn't record the timing
+        registry.setEnabled(true);
+        histogram.stop(start);
+
+        final MetricsSnapshot snapshot = registry.snapshot(0);
+        assertThat(snapshot.getCounters(), not(hasKey("test.disabled.counter")));
+        assertThat(snapshot.getHistograms(), not(hasKey("test.disabled.histogram")));
+    }
+
+    /**
+     * Each snapshot contains the values since the previous snapshot.
+     */
+    @Test
+    public void testSnapshotResets() {
+        final MetricsRegistry registry = MetricsRegistry.getInstance();
+        registry.setEnabled(true);
+
+        final Counter counter = registry.counter("test.reset.counter");
+        final MetricHistogram histogram = registry.histogram("test.reset.histogram");
+        registry.gauge("test.reset.gauge", () -> 7);
+
+        counter.increment();
+        counter.add(2);
+        histogram.record(10);
+        histogram.record(30);
+
+        final MetricsSnapshot first = registry.snapshot(1000);
+        assertThat(first.getTime(), is(1000L));
+        assertThat(first.getCounters().get("test.reset.counter"), is(3L));
+        assertThat(first.getGauges().get("test.reset.gauge"), is(7));
+
+        final MetricsSnapshot.HistogramSummary summary = first.getHistograms().get("test.reset.histogram");
+        assertThat(summary.getCount(), is(2L));
+        assertThat(summary.getMin(), is(10L));
+        assertThat(summary.getMax(), is(30L));
+
+        final MetricsSnapshot second = registry.snapshot(2000);
+        assertThat(second.getCounters(), not(hasKey("test.reset.counter")));
+        assertThat(second.getHistograms(), not(hasKey("test.reset.histogram")));
+        assertThat(second.getGauges().get("test.reset.gauge"), is(7));
+
+        registry.removeGauge("test.reset.gauge");
+    }
+
+}
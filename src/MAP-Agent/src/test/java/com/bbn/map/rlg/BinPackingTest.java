@@ -0,0 +1,242 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.rlg;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.ToDoubleFunction;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+
+import com.bbn.map.simulator.TestUtils;
+import com.bbn.protelis.networkresourcemanagement.DnsNameIdentifier;
+import com.bbn.protelis.networkresourcemanagement.LoadBalancerPlanBuilder;
+import com.bbn.protelis.networkresourcemanagement.NodeIdentifier;
+import com.bbn.protelis.networkresourcemanagement.RegionIdentifier;
+import com.bbn.protelis.networkresourcemanagement.ServiceIdentifier;
+import com.bbn.protelis.networkresourcemanagement.StringRegionIdentifier;
+import com.bbn.protelis.networkresourcemanagement.StringServiceIdentifier;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Check that the indexed queries in {@link BinPacking} choose the same servers
+ * as a scan over all servers.
+ */
+public class BinPackingTest {
+
+    /**
+     * Rules for running tests.
+     */
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD", justification = "Used by the JUnit framework")
+    @Rule
+    public RuleChain chain = TestUtils.getStandardRuleChain();
+
+    private static final int NUM_SERVERS = 40;
+    private static final int NUM_OPERATIONS = 500;
+    private static final double[] CAPACITIES = { 4, 8, 16 };
+    private static final RegionIdentifier REGION = new StringRegionIdentifier("A");
+
+    private static Server scanBestFit(final List<Server> servers, final double serviceLoad) {
+        Server toReturn = null;
+        double fracRemaining = 1.0;
+        for (final Server server : servers) {
+            if (server.getLoad() + serviceLoad <= server.alpha() * server.getCapacity()) {
+                final double leftover = (server.getCapacity() - server.getLoad() - serviceLoad)
+                        / server.getCapacity();
+                if (leftover < fracRemaining) {
+                    fracRemaining = leftover;
+                    toReturn = server;
+                }
+            }
+        }
+        return toReturn;
+    }
+
+    private static Server scanFirstFit(final List<Server> servers, final double serviceLoad) {
+        for (final Server server : servers) {
+            if (serviceLoad <= server.getCapacity() - server.getLoad()) {
+                return server;
+            }
+        }
+        return null;
+    }
+
+    private static Server scanLeastOverflowing(final List<Server> servers, final double serviceLoad) {
+        Server toReturn = null;
+        double leastOverflow = Double.POSITIVE_INFINITY;
+        for (final Server server : servers) {
+            final double overflow = server.getLoad() + serviceLoad - server.getCapacity();
+            if (overflow < leastOverflow) {
+                leastOverflow = overflow;
+                toReturn = server;
+            }
+        }
+        return toReturn;
+    }
+
+    private static double unusedCapacity(final List<Server> servers) {
+        return servers.stream().mapToDouble(server -> server.getCapacity() - server.getLoad()).sum();
+    }
+
+    private static double scanRemainingCapacity(final List<Server> servers) {
+        double remaining = 0;
+        for (final Server server : servers) {
+            remaining += server.getCapacity();
+            for (final Service service : server.getServices()) {
+                if (service.isAdded()) {
+                    remaining -= service.getLoad();
+                }
+            }
+        }
+        return remaining;
+    }
+
+    /**
+     * Randomly add and remove services and compare each query against a scan
+     * of the servers.
+     */
+    @Test
+    public void testIndexMatchesScan() {
+        final Random random = new Random(42);
+
+        final List<Server> servers = new ArrayList<>();
+        final BinPacking bins = new BinPacking();
+        for (int i = 0; i < NUM_SERVERS; ++i) {
+            final Server server = new Server(new DnsNameIdentifier("node" + i),
+                    CAPACITIES[random.nextInt(CAPACITIES.length)]);
+            servers.add(server);
+            bins.addServer(server);
+        }
+        Assert.assertEquals(NUM_SERVERS, bins.getTotalBins());
+        Assert.assertTrue(bins.hasServer(new Server(new DnsNameIdentifier("node0"), 1)));
+
+        final List<ServiceIdentifier<?>> services = new ArrayList<>();
+        for (int i = 0; i < NUM_OPERATIONS; ++i) {
+            final double serviceLoad = 1 + random.nextInt(3);
+
+            Assert.assertSame("best fit " + i, scanBestFit(servers, serviceLoad), bins.findBestFit(serviceLoad));
+            Assert.assertSame("least overflowing " + i, scanLeastOverflowing(servers, serviceLoad),
+                    bins.findLeastOverflowing(serviceLoad));
+
+            final int action = random.nextInt(4);
+            if (action == 0 && !services.isEmpty()) {
+                final ServiceIdentifier<?> service = services.get(random.nextInt(services.size()));
+                final Server server = servers.get(random.nextInt(servers.size()));
+                bins.shutdownContainer(server.getName(), service);
+            } else if (action == 1) {
+                final Server expected = scanFirstFit(servers, serviceLoad);
+                final double before = null == expected ? 0 : expected.getLoad();
+                final ServiceIdentifier<?> service = new StringServiceIdentifier("service" + i);
+                bins.addFirstFit(service, serviceLoad);
+                if (null != expected) {
+                    Assert.assertEquals(before + serviceLoad, expected.getLoad(), 1E-6);
+                    services.add(service);
+                }
+            } else if (unusedCapacity(servers) > serviceLoad * 2) {
+                final ServiceIdentifier<?> service = new StringServiceIdentifier("service" + i);
+                bins.addBestFit(service, serviceLoad);
+                services.add(service);
+            }
+
+            if (random.nextInt(10) == 0) {
+                bins.constructRLGPlan(new LoadBalancerPlanBuilder(REGION));
+            }
+            Assert.assertEquals(scanRemainingCapacity(servers), bins.remainingCapacity(), 1E-6);
+        }
+    }
+
+    /**
+     * The lowest cost fit takes the path cost into account where best fit
+     * only looks at the remaining capacity.
+     */
+    @Test
+    public void testLowestCostFit() {
+        final Server near = new Server(new DnsNameIdentifier("near"), 4);
+        final Server far = new Server(new DnsNameIdentifier("far"), 2);
+        final BinPacking bins = new BinPacking();
+        bins.addServer(near);
+        bins.addServer(far);
+
+        final ToDoubleFunction<NodeIdentifier> pathCost = node -> near.getName().equals(node) ? 0 : 1;
+
+        Assert.assertSame(far, bins.findBestFit(1));
+        Assert.assertSame(near, bins.findLowestCostFit(1, pathCost));
+
+        bins.addLowestCostFit(new StringServiceIdentifier("service0"), 1, pathCost);
+        Assert.assertEquals(1, near.getLoad(), 1E-6);
+        Assert.assertEquals(0, far.getLoad(), 1E-6);
+
+        // once near doesn't fit the service, the path cost doesn't matter
+        bins.addLowestCostFit(new StringServiceIdentifier("service1"), 1, pathCost);
+        Assert.assertEquals(2, near.getLoad(), 1E-6);
+        Assert.assertSame(far, bins.findLowestCostFit(1, pathCost));
+        Assert.assertNull(bins.findLowestCostFit(2, pathCost));
+    }
+
+    /**
+     * The consistent hash fit follows the ring and moves on to the next
+     * server once the first one is full.
+     */
+    @Test
+    public void testConsistentHashFit() {
+        final BinPacking bins = new BinPacking();
+        final List<Server> ringServers = new ArrayList<>();
+        for (int i = 0; i < 5; ++i) {
+            final NodeIdentifier name = new DnsNameIdentifier("node" + i);
+            bins.addServer(new Server(name, 4));
+            ringServers.add(new Server(name, 4));
+        }
+        final HashRing ring = new HashRing(ringServers);
+
+        final ServiceIdentifier<?> service = new StringServiceIdentifier("service0");
+        final List<Server> order = ring.getServersForKey(service, ring.size());
+
+        final Server first = bins.findConsistentHashFit(service, 1, ring);
+        Assert.assertEquals(order.get(0).getName(), first.getName());
+
+        // fill the first server, the service moves to the next one on the ring
+        while (first.getLoad() + 1 <= first.alpha() * first.getCapacity()) {
+            bins.addConsistentHashFit(service, 1, ring);
+        }
+        Assert.assertEquals(order.get(1).getName(), bins.findConsistentHashFit(service, 1, ring).getName());
+
+        // servers that are only on the ring are skipped
+        Assert.assertNull(new BinPacking().findConsistentHashFit(service, 1, ring));
+    }
+
+}
@@ -0,0 +1,207 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.rlg;
+
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+
+import com.bbn.map.simulator.TestUtils;
+import com.bbn.protelis.networkresourcemanagement.DnsNameIdentifier;
+import com.bbn.protelis.networkresourcemanagement.NodeIdentifier;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Test cases for {@link HashRing}.
+ */
+public class HashRingTest {
+
+    /**
+     * Rules for running tests.
+     */
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD", justification = "Used by the JUnit framework")
+    @Rule
+    public RuleChain chain = TestUtils.getStandardRuleChain();
+
+    private static final int NUM_SERVERS = 10;
+    private static final int NUM_KEYS = 10000;
+
+    private static List<Server> createServers() {
+        final List<Server> servers = new ArrayList<>();
+        for (int i = 0; i < NUM_SERVERS; ++i) {
+            servers.add(new Server(new DnsNameIdentifier("node" + i), 10));
+        }
+        return servers;
+    }
+
+    private static List<String> createKeys() {
+        final List<String> keys = new ArrayList<>();
+        for (int i = 0; i < NUM_KEYS; ++i) {
+            keys.add("service" + i);
+        }
+        return keys;
+    }
+
+    /**
+     * Test that virtual nodes spread the keys evenly.
+     */
+    @Test
+    public void testSkew() {
+        final HashRing ring = new HashRing(256, createServers());
+        final Map<NodeIdentifier, Integer> counts = ring.countKeys(createKeys());
+
+        Assert.assertEquals(NUM_SERVERS, counts.size());
+        final double mean = (double) NUM_KEYS / NUM_SERVERS;
+        final int max = counts.values().stream().mapToInt(Integer::intValue).max().getAsInt();
+        Assert.assertTrue("Skew is too high: " + counts, max / mean < 1.5);
+    }
+
+    /**
+     * Test that removing a server only moves the keys that were on that
+     * server.
+     */
+    @Test
+    public void testRemove() {
+        final List<Server> servers = createServers();
+        final List<String> keys = createKeys();
+        final HashRing ring = new HashRing(servers);
+
+        final Map<String, Server> before = new HashMap<>();
+        keys.forEach(key -> before.put(key, ring.get(key)));
+
+        final Server removed = servers.get(0);
+        ring.remove(removed);
+        Assert.assertEquals(NUM_SERVERS - 1, ring.size());
+
+        for (final String key : keys) {
+            final Server prev = before.get(key);
+            final Server now = ring.get(key);
+            Assert.assertNotSame(removed, now);
+            if (prev != removed) {
+                Assert.assertSame(key, prev, now);
+            }
+        }
+
+        // adding the server back restores the original mapping
+        ring.add(removed);
+        keys.forEach(key -> Assert.assertSame(key, before.get(key), ring.get(key)));
+    }
+
+    /**
+     * Test finding multiple servers for a key.
+     */
+    @Test
+    public void testServersForKey() {
+        final HashRing ring = new HashRing(createServers());
+
+        final List<Server> servers = ring.getServersForKey("service", 3);
+        Assert.assertEquals(3, servers.size());
+        Assert.assertSame(ring.get("service"), servers.get(0));
+        Assert.assertEquals(3, servers.stream().distinct().count());
+
+        Assert.assertEquals(NUM_SERVERS, ring.getServersForKey("service", NUM_SERVERS * 2).size());
+        Assert.assertNull(new HashRing(new ArrayList<>()).get("service"));
+    }
+
+    /**
+     * Test that walking the ring stops at the first accepted server and
+     * visits the servers in the same order as
+     * {@link HashRing#getServersForKey(Object, int)}.
+     */
+    @Test
+    public void testFind() {
+        final HashRing ring = new HashRing(createServers());
+
+        for (final String key : createKeys().subList(0, 100)) {
+            final List<Server> order = ring.getServersForKey(key, NUM_SERVERS);
+            Assert.assertSame(key, order.get(0), ring.find(key, server -> true));
+
+            final List<Server> tested = new ArrayList<>();
+            final Server third = ring.find(key, server -> {
+                tested.add(server);
+                return tested.size() == 3;
+            });
+            Assert.assertSame(key, order.get(2), third);
+            Assert.assertEquals(key, order.subList(0, 3), tested);
+        }
+
+        // each server is tested once when nothing is accepted
+        final List<Server> tested = new ArrayList<>();
+        Assert.assertNull(ring.find("service", server -> !tested.add(server)));
+        Assert.assertEquals(NUM_SERVERS, tested.size());
+        Assert.assertEquals(NUM_SERVERS, tested.stream().distinct().count());
+
+        Assert.assertNull(new HashRing(new ArrayList<>()).find("service", server -> true));
+    }
+
+    /**
+     * Test that {@link HashRing#retainAll(java.util.Collection)} and
+     * {@link HashRing#addAll(java.util.Collection)} give the same ring as
+     * removing and adding the servers one at a time.
+     */
+    @Test
+    public void testRetainAndAddAll() {
+        final List<Server> servers = createServers();
+        final List<String> keys = createKeys();
+        final HashRing ring = new HashRing(servers);
+        final HashRing expected = new HashRing(servers);
+
+        final List<NodeIdentifier> keep = new ArrayList<>();
+        for (int i = 0; i < servers.size(); ++i) {
+            if (i % 3 == 0) {
+                expected.remove(servers.get(i));
+            } else {
+                keep.add(servers.get(i).getName());
+            }
+        }
+        Assert.assertTrue(ring.retainAll(keep));
+        Assert.assertFalse(ring.retainAll(keep));
+        Assert.assertEquals(expected.size(), ring.size());
+        keys.forEach(key -> Assert.assertSame(key, expected.get(key), ring.get(key)));
+        Assert.assertFalse(ring.contains(servers.get(0).getName()));
+        Assert.assertTrue(ring.contains(servers.get(1).getName()));
+
+        ring.addAll(servers);
+        Assert.assertEquals(NUM_SERVERS, ring.size());
+        final HashRing all = new HashRing(servers);
+        keys.forEach(key -> Assert.assertEquals(key, all.get(key).getName(), ring.get(key).getName()));
+    }
+
+}
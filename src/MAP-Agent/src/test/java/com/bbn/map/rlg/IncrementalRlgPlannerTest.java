@@ -0,0 +1,325 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.rlg;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+
+import com.bbn.map.AgentConfiguration;
+import com.bbn.map.AgentConfiguration.RlgAlgorithm;
+import com.bbn.map.AgentConfiguration.RlgPriorityPolicy;
+import com.bbn.map.common.value.ApplicationCoordinates;
+import com.bbn.map.common.value.ApplicationSpecification;
+import com.bbn.map.rlg.IncrementalRlgPlanner.PlanInputs;
+import com.bbn.map.rlg.RlgTestUtils.RegionData;
+import com.bbn.map.simulator.TestUtils;
+import com.bbn.map.utils.MapUtils;
+import com.bbn.protelis.networkresourcemanagement.ContainerResourceReport;
+import com.bbn.protelis.networkresourcemanagement.DnsNameIdentifier;
+import com.bbn.protelis.networkresourcemanagement.LoadBalancerPlan;
+import com.bbn.protelis.networkresourcemanagement.NodeAttribute;
+import com.bbn.protelis.networkresourcemanagement.NodeIdentifier;
+import com.bbn.protelis.networkresourcemanagement.ResourceReport;
+import com.bbn.protelis.networkresourcemanagement.ResourceReport.EstimationWindow;
+import com.bbn.protelis.networkresourcemanagement.ServiceIdentifier;
+import com.bbn.protelis.networkresourcemanagement.ServiceStatus;
+import com.bbn.protelis.networkresourcemanagement.StringRegionIdentifier;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Differential tests for {@link IncrementalRlgPlanner}.
+ */
+public class IncrementalRlgPlannerTest {
+
+    /**
+     * Rules for running tests.
+     */
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD", justification = "Used by the JUnit framework")
+    @Rule
+    public RuleChain chain = TestUtils.getStandardRuleChain();
+
+    private static final long RANDOM_SEED = 42;
+    private static final int NODES = 10;
+    private static final int ROUNDS = 50;
+    private static final int MAX_CONTAINERS_PER_NODE = 4;
+    private static final double CHANGE_PROBABILITY = 0.2;
+    private static final double REMOVE_PROBABILITY = 0.05;
+    private static final double[] LOADS = { 0, 0.25, 0.5, 1 };
+    private static final ServiceStatus[] STATUSES = { ServiceStatus.RUNNING, ServiceStatus.RUNNING,
+            ServiceStatus.RUNNING, ServiceStatus.STOPPING, ServiceStatus.STOPPED };
+
+    private static final List<ApplicationCoordinates> SERVICES = new ArrayList<>();
+    static {
+        for (int i = 0; i < 3; ++i) {
+            SERVICES.add(new ApplicationCoordinates("com.bbn", "app" + i, "1.0"));
+        }
+    }
+
+    private static ResourceReport createReport(final Random random, final NodeIdentifier node, final long time) {
+        final NodeIdentifier client = new DnsNameIdentifier("client");
+        final ImmutableMap.Builder<NodeIdentifier, ContainerResourceReport> containers = ImmutableMap.builder();
+        final int numContainers = random.nextInt(MAX_CONTAINERS_PER_NODE + 1);
+        for (int i = 0; i < numContainers; ++i) {
+            final NodeIdentifier container = new DnsNameIdentifier(node.getName() + "_c" + i);
+            final ServiceIdentifier<?> service = SERVICES.get(random.nextInt(SERVICES.size()));
+            final ServiceStatus status = STATUSES[random.nextInt(STATUSES.length)];
+            final ImmutableMap<NodeIdentifier, ImmutableMap<NodeAttribute, Double>> load = ImmutableMap.of(client,
+                    ImmutableMap.of(MapUtils.COMPUTE_ATTRIBUTE, LOADS[random.nextInt(LOADS.length)]));
+
+            containers.put(container,
+                    new ContainerResourceReport(container, time, service, status, EstimationWindow.SHORT,
+                            ImmutableMap.of(MapUtils.COMPUTE_ATTRIBUTE, 1D), load, load, 0D));
+        }
+
+        return new ResourceReport(node, time, EstimationWindow.SHORT,
+                ImmutableMap.of(MapUtils.COMPUTE_ATTRIBUTE, (double) MAX_CONTAINERS_PER_NODE), ImmutableMap.of(),
+                ImmutableMap.of(), ImmutableMap.of(), containers.build(), MAX_CONTAINERS_PER_NODE, numContainers);
+    }
+
+    /**
+     * Test that the incremental inputs match the inputs computed from scratch
+     * as reports change, disappear and come back.
+     */
+    @Test
+    public void testIncrementalMatchesFull() {
+        final Random random = new Random(RANDOM_SEED);
+        final IncrementalRlgPlanner planner = new IncrementalRlgPlanner();
+
+        final Map<NodeIdentifier, ResourceReport> current = new HashMap<>();
+        int totalReused = 0;
+        for (int round = 0; round < ROUNDS; ++round) {
+            for (int n = 0; n < NODES; ++n) {
+                final NodeIdentifier node = new DnsNameIdentifier("node" + n);
+                final double r = random.nextDouble();
+                if (!current.containsKey(node) || r < CHANGE_PROBABILITY) {
+                    current.put(node, createReport(random, node, round));
+                } else if (r < CHANGE_PROBABILITY + REMOVE_PROBABILITY) {
+                    current.remove(node);
+                }
+            }
+
+            final ImmutableSet<ResourceReport> reports = ImmutableSet.copyOf(current.values());
+            final PlanInputs actual = update(planner, reports);
+            Assert.assertNotNull("Round " + round, actual);
+            assertSameInputs("Round " + round, computeExpected(reports), actual);
+
+            totalReused += planner.getLastReusedCount();
+        }
+
+        // most of the reports don't change between rounds
+        Assert.assertTrue("Reused " + totalReused, totalReused > ROUNDS * NODES / 2);
+    }
+
+    /**
+     * Test that only services with changed reports are reported as changed
+     * and that duplicate node reports are not handled incrementally.
+     */
+    @Test
+    public void testChangedServicesAndFallback() {
+        final Random random = new Random(RANDOM_SEED);
+        final IncrementalRlgPlanner planner = new IncrementalRlgPlanner();
+
+        final NodeIdentifier node0 = new DnsNameIdentifier("node0");
+        final NodeIdentifier node1 = new DnsNameIdentifier("node1");
+        final ResourceReport report0 = createReport(random, node0, 0);
+        final ResourceReport report1 = createReport(random, node1, 0);
+
+        Assert.assertNotNull(update(planner, ImmutableSet.of(report0, report1)));
+        Assert.assertEquals(0, planner.getLastReusedCount());
+
+        Assert.assertNotNull(update(planner, ImmutableSet.of(report0, report1)));
+        Assert.assertEquals(2, planner.getLastReusedCount());
+        Assert.assertEquals(Collections.emptySet(), planner.getLastChangedServices());
+
+        // a second report for node0 can't be handled incrementally
+        final ResourceReport newReport0 = createReport(random, node0, 1);
+        Assert.assertNull(update(planner, ImmutableSet.of(report0, newReport0, report1)));
+
+        // after the fallback everything is computed again
+        final ImmutableSet<ResourceReport> reports = ImmutableSet.of(newReport0, report1);
+        final PlanInputs inputs = update(planner, reports);
+        Assert.assertNotNull(inputs);
+        Assert.assertEquals(0, planner.getLastReusedCount());
+        assertSameInputs("After fallback", computeExpected(reports), inputs);
+    }
+
+    /**
+     * Run RLG bin packing with and without incremental planning on the same
+     * scenario and check that the plans are the same in every round, while the
+     * incremental RLG reuses the decisions for services that did not change.
+     */
+    @Test
+    public void testSamePlans() {
+        final int nodes = 6;
+        final int containersPerNode = 4;
+        final long roundIntervalMs = 3000;
+        final int rounds = 30;
+
+        final Set<ApplicationSpecification> specs = new HashSet<>();
+        SERVICES.forEach(service -> specs.add(new ApplicationSpecification(service)));
+        final Set<ServiceIdentifier<?>> services = new HashSet<>(SERVICES);
+
+        final RegionData initialRegionData = RlgTestUtils.createInitialRegionData(new StringRegionIdentifier("A"),
+                nodes, ImmutableMap.of(MapUtils.COMPUTE_ATTRIBUTE, (double) containersPerNode), containersPerNode);
+        final NodeIdentifier rlgNode = initialRegionData.getActiveNodes().iterator().next();
+
+        AgentConfiguration.getInstance().setRlgIncrementalPlanning(false);
+        final RlgTestWrapper full = new RlgTestWrapper(initialRegionData.getRegion(), rlgNode, specs,
+                RlgAlgorithm.BIN_PACKING, RlgPriorityPolicy.NO_PRIORITY);
+        full.initializeDcopPlan(services);
+
+        AgentConfiguration.getInstance().setRlgIncrementalPlanning(true);
+        final RlgTestWrapper incremental = new RlgTestWrapper(initialRegionData.getRegion(), rlgNode, specs,
+                RlgAlgorithm.BIN_PACKING, RlgPriorityPolicy.NO_PRIORITY);
+        incremental.initializeDcopPlan(services);
+
+        final Random random = new Random(RANDOM_SEED);
+        RegionData fullData = initialRegionData;
+        RegionData incrementalData = initialRegionData;
+        LoadBalancerPlan fullPlan = full.executeRound(fullData.getResourceReports());
+        LoadBalancerPlan incrementalPlan = incremental.executeRound(incrementalData.getResourceReports());
+        Assert.assertEquals(fullPlan, incrementalPlan);
+
+        int reusedDecisions = 0;
+        for (int round = 1; round < rounds; ++round) {
+            // change the demand for one service each round
+            final Map<ServiceIdentifier<?>, Map<NodeAttribute, Double>> demand = new HashMap<>();
+            SERVICES.forEach(service -> demand.put(service, ImmutableMap.of(MapUtils.COMPUTE_ATTRIBUTE, 1D)));
+            demand.put(SERVICES.get(random.nextInt(SERVICES.size())),
+                    ImmutableMap.of(MapUtils.COMPUTE_ATTRIBUTE, (double) random.nextInt(nodes * containersPerNode)));
+
+            fullData = RlgTestUtils.updateRegionData(roundIntervalMs * round, fullData, fullPlan, demand);
+            incrementalData = RlgTestUtils.updateRegionData(roundIntervalMs * round, incrementalData,
+                    incrementalPlan, demand);
+
+            fullPlan = full.executeRound(fullData.getResourceReports());
+            incrementalPlan = incremental.executeRound(incrementalData.getResourceReports());
+            Assert.assertEquals("Round " + round, fullPlan, incrementalPlan);
+            Assert.assertEquals("Round " + round, 0, full.getLastReusedDecisions());
+            reusedDecisions += incremental.getLastReusedDecisions();
+        }
+        Assert.assertTrue("No decisions were reused", reusedDecisions > 0);
+    }
+
+    /**
+     * Call
+     * {@link IncrementalRlgPlanner#update(Set, RegionLoadTable, RlgUtils.LoadPercentages)}
+     * with a table that has the reports in the iteration order of the set.
+     */
+    private static PlanInputs update(final IncrementalRlgPlanner planner, final Set<ResourceReport> reports) {
+        final Map<NodeIdentifier, ResourceReport> latest = new LinkedHashMap<>();
+        reports.forEach(report -> latest.put(report.getNodeName(), report));
+        final RegionLoadTable table = new RegionLoadTable(latest);
+        return planner.update(reports, table, table.computeLoadPercentages());
+    }
+
+    /**
+     * Compute the inputs by walking the maps in the reports.
+     */
+    private static PlanInputs computeExpected(final Set<ResourceReport> reports) {
+        final List<Service> services = new ArrayList<>();
+        final Map<ServiceIdentifier<?>, Double> serviceLoads = new HashMap<>();
+        final Map<ServiceIdentifier<?>, Integer> serviceContainers = new HashMap<>();
+        final Map<NodeIdentifier, NodeIdentifier> containerToNodeMap = new HashMap<>();
+        final Map<NodeIdentifier, ServiceStatus> containerServiceStatus = new HashMap<>();
+        final Map<ServiceIdentifier<?>, Map<NodeIdentifier, Map<NodeAttribute, Double>>> totalContainerLoadByService = new HashMap<>();
+
+        for (final ResourceReport report : reports) {
+            RlgUtils.getConfiguredLoadInput(report).forEach((service, serviceLoad) -> {
+                double load = 0;
+                for (final Map<NodeAttribute, Double> nodeLoad : serviceLoad.values()) {
+                    load += nodeLoad.getOrDefault(MapUtils.COMPUTE_ATTRIBUTE, 0D);
+                }
+                services.add(new Service(service, load, 1));
+                serviceLoads.merge(service, load, Double::sum);
+                serviceContainers.merge(service, 1, Integer::sum);
+            });
+
+            report.getContainerReports().forEach((container, creport) -> {
+                containerToNodeMap.put(container, report.getNodeName());
+                containerServiceStatus.put(container, creport.getServiceStatus());
+                if (ServiceStatus.RUNNING.equals(creport.getServiceStatus())) {
+                    final Map<NodeAttribute, Double> total = totalContainerLoadByService
+                            .computeIfAbsent(creport.getService(), k -> new HashMap<>())
+                            .computeIfAbsent(container, k -> new HashMap<>());
+                    RlgUtils.getConfiguredLoadInput(creport).forEach((client, clientLoad) -> {
+                        clientLoad.forEach((attr, value) -> total.merge(attr, value, Double::sum));
+                    });
+                }
+            });
+        }
+
+        final Map<ServiceIdentifier<?>, List<NodeIdentifier>> sorted = new HashMap<>();
+        totalContainerLoadByService.forEach((service, loads) -> sorted.put(service,
+                RlgUtils.sortContainersByAscendingLoad(loads, MapUtils.COMPUTE_ATTRIBUTE)));
+
+        return new PlanInputs(services, serviceLoads, serviceContainers, containerToNodeMap, containerServiceStatus,
+                totalContainerLoadByService, sorted, null);
+    }
+
+    private static void assertSameInputs(final String message, final PlanInputs expected, final PlanInputs actual) {
+        Assert.assertEquals(message, toPairs(expected.getServices()), toPairs(actual.getServices()));
+        Assert.assertEquals(message, expected.getServiceLoads(), actual.getServiceLoads());
+        Assert.assertEquals(message, expected.getServiceContainers(), actual.getServiceContainers());
+        Assert.assertEquals(message, expected.getContainerToNodeMap(), actual.getContainerToNodeMap());
+        Assert.assertEquals(message, expected.getContainerServiceStatus(), actual.getContainerServiceStatus());
+        Assert.assertEquals(message, expected.getTotalContainerLoadByService(),
+                actual.getTotalContainerLoadByService());
+        Assert.assertEquals(message, expected.getContainersByAscendingLoad(), actual.getContainersByAscendingLoad());
+
+        // the lists are modified by RLG, make sure they are copies
+        actual.getContainersByAscendingLoad().values().forEach(List::clear);
+    }
+
+    private static List<String> toPairs(final List<Service> services) {
+        return services.stream().map(s -> s.getName() + "=" + s.getLoad())
+                .collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,214 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.rlg;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+
+import com.bbn.map.rlg.RlgUtils.LoadPercentages;
+import com.bbn.map.simulator.TestUtils;
+import com.bbn.map.utils.MapUtils;
+import com.bbn.protelis.networkresourcemanagement.ContainerResourceReport;
+import com.bbn.protelis.networkresourcemanagement.DnsNameIdentifier;
+import com.bbn.protelis.networkresourcemanagement.NodeAttribute;
+import com.bbn.protelis.networkresourcemanagement.NodeIdentifier;
+import com.bbn.protelis.networkresourcemanagement.ResourceReport;
+import com.bbn.protelis.networkresourcemanagement.ServiceIdentifier;
+import com.bbn.protelis.networkresourcemanagement.StringServiceIdentifier;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Test cases for {@link RegionLoadTable}.
+ */
+public class RegionLoadTableTest {
+
+    /**
+     * Rules for running tests.
+     */
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD", justification = "Used by the JUnit framework")
+    @Rule
+    public RuleChain chain = TestUtils.getStandardRuleChain();
+
+    private static final double TOLERANCE = 1E-9;
+
+    private static final ServiceIdentifier<?> SERVICE_A = new StringServiceIdentifier("A");
+    private static final ServiceIdentifier<?> SERVICE_B = new StringServiceIdentifier("B");
+
+    private static final NodeIdentifier NODE_1 = new DnsNameIdentifier("node1");
+    private static final NodeIdentifier NODE_2 = new DnsNameIdentifier("node2");
+    private static final NodeIdentifier NODE_3 = new DnsNameIdentifier("node3");
+
+    private static final NodeIdentifier CONTAINER_1A = new DnsNameIdentifier("container1a");
+    private static final NodeIdentifier CONTAINER_1B = new DnsNameIdentifier("container1b");
+    private static final NodeIdentifier CONTAINER_2A = new DnsNameIdentifier("container2a");
+    private static final NodeIdentifier CONTAINER_2C = new DnsNameIdentifier("container2c");
+
+    /**
+     * node1 runs A and B, node2 runs two containers of A and node3 has no
+     * containers.
+     */
+    private static Map<NodeIdentifier, ResourceReport> createReports() {
+        final ContainerResourceReport c1a = RlgTestUtils.createContainerReport(0, CONTAINER_1A, SERVICE_A,
+                ImmutableMap.of(NodeAttribute.TASK_CONTAINERS, 0.5, NodeAttribute.CPU, 2D), 0);
+        final ContainerResourceReport c1b = RlgTestUtils.createContainerReport(0, CONTAINER_1B, SERVICE_B,
+                ImmutableMap.of(NodeAttribute.TASK_CONTAINERS, 0.75), 0);
+        final ContainerResourceReport c2a = RlgTestUtils.createContainerReport(0, CONTAINER_2A, SERVICE_A,
+                ImmutableMap.of(NodeAttribute.TASK_CONTAINERS, 0.25, NodeAttribute.CPU, 1D), 0);
+        final ContainerResourceReport c2c = RlgTestUtils.createContainerReport(0, CONTAINER_2C, SERVICE_A,
+                ImmutableMap.of(NodeAttribute.TASK_CONTAINERS, 0.25), 0);
+
+        final Map<NodeIdentifier, ResourceReport> reports = new HashMap<>();
+        reports.put(NODE_1, RlgTestUtils.createResourceReport(0, NODE_1, 4,
+                ImmutableMap.of(NodeAttribute.TASK_CONTAINERS, 4D), ImmutableSet.of(c1a, c1b)));
+        reports.put(NODE_2, RlgTestUtils.createResourceReport(0, NODE_2, 4,
+                ImmutableMap.of(NodeAttribute.TASK_CONTAINERS, 4D), ImmutableSet.of(c2a, c2c)));
+        reports.put(NODE_3, RlgTestUtils.createResourceReport(0, NODE_3, 4,
+                ImmutableMap.of(NodeAttribute.TASK_CONTAINERS, 4D), ImmutableSet.of()));
+        return reports;
+    }
+
+    private static <K> void assertPercentagesEqual(final Map<K, Map<NodeAttribute, Double>> expected,
+            final Map<K, Map<NodeAttribute, Double>> actual) {
+        Assert.assertEquals(expected.keySet(), actual.keySet());
+        expected.forEach((key, expectedValues) -> {
+            final Map<NodeAttribute, Double> actualValues = actual.get(key);
+            Assert.assertEquals("Attributes for " + key, expectedValues.keySet(), actualValues.keySet());
+            expectedValues.forEach((attr, value) -> Assert.assertEquals(key + " " + attr, value,
+                    actualValues.get(attr), TOLERANCE));
+        });
+    }
+
+    /**
+     * Test that the load percentages match
+     * {@link RlgUtils#computeServiceLoadPercentages(Map)}.
+     */
+    @Test
+    public void testLoadPercentages() {
+        final Map<NodeIdentifier, ResourceReport> reports = createReports();
+
+        final LoadPercentages expected = RlgUtils.computeServiceLoadPercentages(reports);
+        final LoadPercentages actual = new RegionLoadTable(reports).computeLoadPercentages();
+
+        assertPercentagesEqual(expected.allocatedLoadPercentagePerService, actual.allocatedLoadPercentagePerService);
+        assertPercentagesEqual(expected.allocatedLoadPercentagePerNode, actual.allocatedLoadPercentagePerNode);
+
+        Assert.assertEquals(1.0 / 3, actual.allocatedLoadPercentagePerService.get(SERVICE_A)
+                .get(NodeAttribute.TASK_CONTAINERS), TOLERANCE);
+        Assert.assertTrue(actual.allocatedLoadPercentagePerNode.get(NODE_3).isEmpty());
+    }
+
+    /**
+     * Test the container counts and the running container load.
+     */
+    @Test
+    public void testContainerLoad() {
+        final RegionLoadTable table = new RegionLoadTable(createReports());
+
+        final Map<ServiceIdentifier<?>, Integer> containersPerService = table.getContainersPerService();
+        Assert.assertEquals(Integer.valueOf(3), containersPerService.get(SERVICE_A));
+        Assert.assertEquals(Integer.valueOf(1), containersPerService.get(SERVICE_B));
+
+        Assert.assertEquals(1, table.getRunningServiceLoad(SERVICE_A, NodeAttribute.TASK_CONTAINERS), TOLERANCE);
+        Assert.assertEquals(3, table.getRunningServiceLoad(SERVICE_A, NodeAttribute.CPU), TOLERANCE);
+        Assert.assertEquals(0, table.getRunningServiceLoad(SERVICE_B, NodeAttribute.CPU), TOLERANCE);
+        Assert.assertEquals(0, table.getRunningServiceLoad(new StringServiceIdentifier("unknown"),
+                NodeAttribute.TASK_CONTAINERS), TOLERANCE);
+
+        final Map<ServiceIdentifier<?>, Map<NodeIdentifier, Map<NodeAttribute, Double>>> loads = table
+                .getRunningContainerLoadByService();
+        Assert.assertEquals(ImmutableSet.of(CONTAINER_1A, CONTAINER_2A, CONTAINER_2C), loads.get(SERVICE_A).keySet());
+        Assert.assertEquals(ImmutableMap.of(NodeAttribute.TASK_CONTAINERS, 0.75), loads.get(SERVICE_B).get(CONTAINER_1B));
+        // attributes that a container does not report are not added
+        Assert.assertEquals(ImmutableMap.of(NodeAttribute.TASK_CONTAINERS, 0.25), loads.get(SERVICE_A).get(CONTAINER_2C));
+    }
+
+    /**
+     * Test that containers are sorted the same way as
+     * {@link RlgUtils#sortContainersByAscendingLoad(Map, NodeAttribute)}.
+     */
+    @Test
+    public void testAscendingLoad() {
+        final RegionLoadTable table = new RegionLoadTable(createReports());
+        final Map<ServiceIdentifier<?>, Map<NodeIdentifier, Map<NodeAttribute, Double>>> loads = table
+                .getRunningContainerLoadByService();
+        final Map<ServiceIdentifier<?>, List<NodeIdentifier>> sorted = table
+                .getContainersByAscendingLoad(NodeAttribute.TASK_CONTAINERS);
+
+        // equal loads are ordered by name
+        Assert.assertEquals(Arrays.asList(CONTAINER_2A, CONTAINER_2C, CONTAINER_1A), sorted.get(SERVICE_A));
+        loads.forEach((service, containerLoads) -> Assert.assertEquals(service.toString(),
+                RlgUtils.sortContainersByAscendingLoad(containerLoads, NodeAttribute.TASK_CONTAINERS),
+                sorted.get(service)));
+
+        // callers remove containers from the lists as they are stopped
+        sorted.get(SERVICE_A).remove(0);
+        Assert.assertEquals(3, table.getContainersByAscendingLoad(NodeAttribute.TASK_CONTAINERS).get(SERVICE_A).size());
+    }
+
+    /**
+     * Test that the bin packing inputs have one entry per service in each
+     * report, in the order of the reports.
+     */
+    @Test
+    public void testBinPackingInputs() {
+        final Map<NodeIdentifier, ResourceReport> reports = createReports();
+        final RegionLoadTable table = new RegionLoadTable(reports);
+
+        final List<String> expected = new ArrayList<>();
+        reports.forEach((node, report) -> RlgUtils.getConfiguredLoadInput(report).forEach((service, load) -> {
+            final double sum = load.values().stream()
+                    .mapToDouble(sourceLoad -> sourceLoad.getOrDefault(MapUtils.COMPUTE_ATTRIBUTE, 0D)).sum();
+            expected.add(service + "=" + sum);
+        }));
+        Assert.assertEquals(expected, table.getBinPackingServices().stream().map(s -> s.getName() + "=" + s.getLoad())
+                .collect(Collectors.toList()));
+
+        Assert.assertEquals(ImmutableSet.of(SERVICE_A, SERVICE_B), table.getBinPackingServiceLoads().keySet());
+        Assert.assertEquals(1, table.getBinPackingServiceLoads().get(SERVICE_A), TOLERANCE);
+        Assert.assertEquals(0.75, table.getBinPackingServiceLoads().get(SERVICE_B), TOLERANCE);
+        Assert.assertEquals(ImmutableMap.of(SERVICE_A, 2, SERVICE_B, 1), table.getBinPackingServiceCounts());
+    }
+
+}
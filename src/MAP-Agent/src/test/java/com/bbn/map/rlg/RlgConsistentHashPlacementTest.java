@@ -0,0 +1,138 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.rlg;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+
+import com.bbn.map.AgentConfiguration;
+import com.bbn.map.AgentConfiguration.RlgStubChooseNcp;
+import com.bbn.map.simulator.TestUtils;
+import com.bbn.protelis.networkresourcemanagement.DnsNameIdentifier;
+import com.bbn.protelis.networkresourcemanagement.LoadBalancerPlanBuilder;
+import com.bbn.protelis.networkresourcemanagement.NodeAttribute;
+import com.bbn.protelis.networkresourcemanagement.NodeIdentifier;
+import com.bbn.protelis.networkresourcemanagement.ResourceReport;
+import com.bbn.protelis.networkresourcemanagement.ServiceIdentifier;
+import com.bbn.protelis.networkresourcemanagement.StringRegionIdentifier;
+import com.bbn.protelis.networkresourcemanagement.StringServiceIdentifier;
+import com.google.common.collect.ImmutableMap;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Tests for {@link RlgStubChooseNcp#CONSISTENT_HASH}.
+ */
+public class RlgConsistentHashPlacementTest {
+
+    /**
+     * Add test name to logging and use the application manager.
+     */
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD", justification = "Used by the JUnit framework")
+    @Rule
+    public RuleChain chain = TestUtils.getStandardRuleChain();
+
+    private static final int NUM_NODES = 4;
+    private static final int NUM_SERVICES = 100;
+
+    private static List<ResourceReport> createReports(final List<NodeIdentifier> nodes) {
+        final List<ResourceReport> reports = new ArrayList<>();
+        nodes.forEach(node -> reports.add(RlgTestUtils.createResourceReport(0, node, 4,
+                ImmutableMap.of(NodeAttribute.TASK_CONTAINERS, 4.0), Collections.emptySet())));
+        return reports;
+    }
+
+    /**
+     * Choose a node for each service when all nodes have capacity.
+     * 
+     * @return the nodes chosen
+     */
+    private static Set<NodeIdentifier> chooseNodes(final HashRing ring, final List<NodeIdentifier> nodes) {
+        final SortedMap<NodeIdentifier, Integer> nodesWithAvailableCapacity = new TreeMap<>();
+        nodes.forEach(node -> nodesWithAvailableCapacity.put(node, 4));
+
+        final Set<NodeIdentifier> chosen = new HashSet<>();
+        for (int i = 0; i < NUM_SERVICES; ++i) {
+            final ServiceIdentifier<?> service = new StringServiceIdentifier("service" + i);
+            final NodeIdentifier node = StubFunctions.chooseNode(service,
+                    new LoadBalancerPlanBuilder(new StringRegionIdentifier("A")), nodesWithAvailableCapacity,
+                    new RlgUtils.LoadPercentages(), null, ring, new Random(0));
+            Assert.assertEquals(ring.get(service).getName(), node);
+            chosen.add(node);
+        }
+        return chosen;
+    }
+
+    /**
+     * An NCP without a report is removed from the ring and is no longer
+     * chosen, even when it is still listed as having capacity. It is chosen
+     * again once it reports.
+     */
+    @Test
+    public void testNodeWithoutReportIsRemoved() {
+        AgentConfiguration.getInstance().setRlgStubChooseNcp(RlgStubChooseNcp.CONSISTENT_HASH);
+
+        final List<NodeIdentifier> nodes = new ArrayList<>();
+        for (int i = 0; i < NUM_NODES; ++i) {
+            nodes.add(new DnsNameIdentifier("node" + i));
+        }
+        final NodeIdentifier failed = nodes.get(2);
+        final List<NodeIdentifier> remaining = new ArrayList<>(nodes);
+        remaining.remove(failed);
+
+        final HashRing ring = new HashRing(16, Collections.emptyList());
+        RLGService.updateHashRing(ring, createReports(nodes));
+        Assert.assertEquals(NUM_NODES, ring.size());
+        Assert.assertTrue(chooseNodes(ring, nodes).contains(failed));
+
+        RLGService.updateHashRing(ring, createReports(remaining));
+        Assert.assertEquals(NUM_NODES - 1, ring.size());
+        Assert.assertFalse(ring.contains(failed));
+        Assert.assertFalse(chooseNodes(ring, nodes).contains(failed));
+
+        RLGService.updateHashRing(ring, createReports(nodes));
+        Assert.assertTrue(ring.contains(failed));
+        Assert.assertTrue(chooseNodes(ring, nodes).contains(failed));
+    }
+
+}
@@ -0,0 +1,231 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.rlg;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+
+import com.bbn.map.AgentConfiguration;
+import com.bbn.map.AgentConfiguration.RlgAlgorithm;
+import com.bbn.map.AgentConfiguration.RlgPriorityPolicy;
+import com.bbn.map.AgentConfiguration.RlgStubChooseNcp;
+import com.bbn.map.common.value.ApplicationCoordinates;
+import com.bbn.map.common.value.ApplicationSpecification;
+import com.bbn.map.simulator.TestUtils;
+import com.bbn.protelis.networkresourcemanagement.BasicResourceManager;
+import com.bbn.protelis.networkresourcemanagement.ContainerResourceReport;
+import com.bbn.protelis.networkresourcemanagement.DnsNameIdentifier;
+import com.bbn.protelis.networkresourcemanagement.InterfaceIdentifier;
+import com.bbn.protelis.networkresourcemanagement.LinkAttribute;
+import com.bbn.protelis.networkresourcemanagement.LoadBalancerPlan;
+import com.bbn.protelis.networkresourcemanagement.NodeAttribute;
+import com.bbn.protelis.networkresourcemanagement.NodeIdentifier;
+import com.bbn.protelis.networkresourcemanagement.NodeNetworkFlow;
+import com.bbn.protelis.networkresourcemanagement.ResourceReport;
+import com.bbn.protelis.networkresourcemanagement.ResourceReport.EstimationWindow;
+import com.bbn.protelis.networkresourcemanagement.ServiceIdentifier;
+import com.bbn.protelis.networkresourcemanagement.StringRegionIdentifier;
+import com.bbn.protelis.networkresourcemanagement.StringServiceIdentifier;
+import com.google.common.collect.ImmutableMap;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Tests for {@link RlgStubChooseNcp#LOWEST_PATH_COST}.
+ */
+public class RlgPathCostPlacementTest {
+
+    /**
+     * Add test name to logging and use the application manager.
+     */
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD", justification = "Used by the JUnit framework")
+    @Rule
+    public RuleChain chain = TestUtils.getStandardRuleChain();
+
+    private static final double LINK_CAPACITY = 10;
+
+    /**
+     * Create a report for a node with capacity for 4 containers and room to run
+     * maxContainers of them and one interface per neighbor. Each
+     * interface has {@link #LINK_CAPACITY} and the specified transmit load.
+     */
+    private static ResourceReport createReport(final NodeIdentifier node,
+            final int maxContainers,
+            final ServiceIdentifier<?> service,
+            final Collection<ContainerResourceReport> containers,
+            final NodeIdentifier[] neighbors,
+            final double[] linkLoads) {
+        final ImmutableMap.Builder<InterfaceIdentifier, ImmutableMap<LinkAttribute, Double>> networkCapacity = ImmutableMap
+                .builder();
+        final ImmutableMap.Builder<InterfaceIdentifier, ImmutableMap<NodeNetworkFlow, ImmutableMap<ServiceIdentifier<?>, ImmutableMap<LinkAttribute, Double>>>> networkLoad = ImmutableMap
+                .builder();
+        for (int i = 0; i < neighbors.length; ++i) {
+            final InterfaceIdentifier ifce = BasicResourceManager.createInterfaceIdentifierForNeighbor(neighbors[i]);
+            networkCapacity.put(ifce, ImmutableMap.of(LinkAttribute.DATARATE_TX, LINK_CAPACITY,
+                    LinkAttribute.DATARATE_RX, LINK_CAPACITY));
+            networkLoad.put(ifce, ImmutableMap.of(new NodeNetworkFlow(neighbors[i], node, node),
+                    ImmutableMap.of(service, ImmutableMap.of(LinkAttribute.DATARATE_TX, linkLoads[i]))));
+        }
+
+        final ImmutableMap.Builder<NodeIdentifier, ContainerResourceReport> containerReports = ImmutableMap.builder();
+        containers.forEach(c -> containerReports.put(c.getContainerName(), c));
+
+        return new ResourceReport(node, 0, EstimationWindow.SHORT, ImmutableMap.of(NodeAttribute.TASK_CONTAINERS, 4.0),
+                networkCapacity.build(), networkLoad.build(), ImmutableMap.of(), containerReports.build(),
+                maxContainers, containers.size());
+    }
+
+    /**
+     * Check the path table and the NCP choice for the chain client1 - node0 -
+     * node1 - node2 where the link between node1 and node2 is 90% utilized
+     * and all demand comes from client1. The container reports created by
+     * {@link RlgTestUtils} have their demand from client1.
+     */
+    @Test
+    public void testChooseNodeOnShortestLeastUtilizedPath() {
+        final ServiceIdentifier<?> service = new StringServiceIdentifier("service");
+        final NodeIdentifier client = new DnsNameIdentifier("client1");
+        final NodeIdentifier node0 = new DnsNameIdentifier("node0");
+        final NodeIdentifier node1 = new DnsNameIdentifier("node1");
+        final NodeIdentifier node2 = new DnsNameIdentifier("node2");
+
+        final ContainerResourceReport container = RlgTestUtils.createContainerReport(0,
+                new DnsNameIdentifier("container0"), service, ImmutableMap.of(NodeAttribute.TASK_CONTAINERS, 1.0), 0);
+
+        final ResourceReport report0 = createReport(node0, 4, service, Collections.singleton(container),
+                new NodeIdentifier[] { client, node1 }, new double[] { 1, 1 });
+        final ResourceReport report1 = createReport(node1, 4, service, Collections.emptyList(),
+                new NodeIdentifier[] { node0, node2 }, new double[] { 1, 9 });
+        final ResourceReport report2 = createReport(node2, 4, service, Collections.emptyList(),
+                new NodeIdentifier[] { node1 }, new double[] { 9 });
+
+        final PathCostPlacementScorer scorer = new PathCostPlacementScorer();
+        scorer.update(Arrays.asList(report0, report1, report2));
+
+        final RegionalPathTable pathTable = scorer.getPathTable();
+        Assert.assertEquals(4, pathTable.getNumNodes());
+        Assert.assertEquals(0, pathTable.getHopCount(node0, node0));
+        Assert.assertEquals(1, pathTable.getHopCount(client, node0));
+        Assert.assertEquals(2, pathTable.getHopCount(client, node1));
+        Assert.assertEquals(3, pathTable.getHopCount(client, node2));
+        Assert.assertEquals(-1, pathTable.getHopCount(client, new DnsNameIdentifier("unknown")));
+        Assert.assertEquals(0.1, pathTable.getBottleneckUtilization(client, node1), 1E-9);
+        Assert.assertEquals(0.9, pathTable.getBottleneckUtilization(client, node2), 1E-9);
+
+        Assert.assertEquals(PathCostPlacementScorer.HOP_WEIGHT * 2 / 4 + PathCostPlacementScorer.LINK_WEIGHT * 0.1,
+                scorer.computePathCost(service, node1), 1E-9);
+        Assert.assertEquals(PathCostPlacementScorer.HOP_WEIGHT * 3 / 4 + PathCostPlacementScorer.LINK_WEIGHT * 0.9,
+                scorer.computePathCost(service, node2), 1E-9);
+        Assert.assertEquals(0, scorer.computePathCost(new StringServiceIdentifier("other"), node2), 1E-9);
+
+        // node2 has more room, but is behind the busy link
+        final SortedMap<NodeIdentifier, Integer> nodesWithAvailableCapacity = new TreeMap<>();
+        nodesWithAvailableCapacity.put(node1, 2);
+        nodesWithAvailableCapacity.put(node2, 4);
+        final RlgUtils.LoadPercentages loadPercentages = new RlgUtils.LoadPercentages();
+        Assert.assertEquals(node1, scorer.chooseNode(service, nodesWithAvailableCapacity, loadPercentages));
+
+        // a saturated node1 outweighs the path cost
+        loadPercentages.allocatedLoadPercentagePerNode.put(node1, ImmutableMap.of(NodeAttribute.TASK_CONTAINERS, 1.0));
+        Assert.assertEquals(node2, scorer.chooseNode(service, nodesWithAvailableCapacity, loadPercentages));
+    }
+
+    /**
+     * Run one stub RLG round on the chain from
+     * {@link #testChooseNodeOnShortestLeastUtilizedPath()} where the only
+     * container is overloaded and node0 is full.
+     * 
+     * @return the number of containers for the service that the plan has on
+     *         each node
+     */
+    private static Map<NodeIdentifier, Integer> runOverloadedRound(final RlgStubChooseNcp chooseNcp) {
+        AgentConfiguration.getInstance().setRlgStubChooseNcp(chooseNcp);
+
+        final ApplicationCoordinates service = new ApplicationCoordinates("com.bbn", "app", "1.0");
+        final ApplicationSpecification spec = new ApplicationSpecification(service);
+        spec.setReplicable(true);
+
+        final NodeIdentifier client = new DnsNameIdentifier("client1");
+        final NodeIdentifier node0 = new DnsNameIdentifier("node0");
+        final NodeIdentifier node1 = new DnsNameIdentifier("node1");
+        final NodeIdentifier node2 = new DnsNameIdentifier("node2");
+
+        final ContainerResourceReport container = RlgTestUtils.createContainerReport(0,
+                new DnsNameIdentifier("container0"), service, ImmutableMap.of(NodeAttribute.TASK_CONTAINERS, 1.0), 0);
+
+        final Set<ResourceReport> reports = new HashSet<>();
+        reports.add(createReport(node0, 1, service, Collections.singleton(container),
+                new NodeIdentifier[] { client, node1 }, new double[] { 1, 1 }));
+        reports.add(createReport(node1, 2, service, Collections.emptyList(), new NodeIdentifier[] { node0, node2 },
+                new double[] { 1, 9 }));
+        reports.add(createReport(node2, 4, service, Collections.emptyList(), new NodeIdentifier[] { node1 },
+                new double[] { 9 }));
+
+        final RlgTestWrapper rlg = new RlgTestWrapper(new StringRegionIdentifier("A"), node0,
+                Collections.singleton(spec), RlgAlgorithm.STUB, RlgPriorityPolicy.GREEDY_GROUP);
+        rlg.initializeDcopPlan(Collections.singleton(service));
+        final LoadBalancerPlan plan = rlg.executeRound(reports);
+
+        return RlgTestUtils.countServiceNodeInstances(plan).getOrDefault(service, Collections.emptyMap());
+    }
+
+    /**
+     * node2 has the most available containers, but it is behind the busy
+     * link. Choosing by path cost puts the new container on node1.
+     */
+    @Test
+    public void testOverloadedServicePlacement() {
+        final NodeIdentifier node1 = new DnsNameIdentifier("node1");
+        final NodeIdentifier node2 = new DnsNameIdentifier("node2");
+
+        final Map<NodeIdentifier, Integer> mostAvailable = runOverloadedRound(
+                RlgStubChooseNcp.MOST_AVAILABLE_CONTAINERS);
+        Assert.assertEquals(0, (int) mostAvailable.getOrDefault(node1, 0));
+        Assert.assertEquals(1, (int) mostAvailable.getOrDefault(node2, 0));
+
+        final Map<NodeIdentifier, Integer> pathCost = runOverloadedRound(RlgStubChooseNcp.LOWEST_PATH_COST);
+        Assert.assertEquals(1, (int) pathCost.getOrDefault(node1, 0));
+        Assert.assertEquals(0, (int) pathCost.getOrDefault(node2, 0));
+    }
+
+}
@@ -0,0 +1,277 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.rlg;
+
+import static org.hamcrest.Matchers.lessThan;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bbn.map.AgentConfiguration;
+import com.bbn.map.AgentConfiguration.RlgAlgorithm;
+import com.bbn.map.AgentConfiguration.RlgPriorityPolicy;
+import com.bbn.map.appmgr.util.AppMgrUtils;
+import com.bbn.map.common.value.ApplicationCoordinates;
+import com.bbn.map.common.value.ApplicationSpecification;
+import com.bbn.map.simulator.ClientSim;
+import com.bbn.map.simulator.Simulation;
+import com.bbn.map.simulator.SimulationRunner;
+import com.bbn.map.simulator.TestUtils;
+import com.bbn.protelis.networkresourcemanagement.DnsNameIdentifier;
+import com.bbn.protelis.networkresourcemanagement.LoadBalancerPlan;
+import com.bbn.protelis.networkresourcemanagement.NodeAttribute;
+import com.bbn.protelis.networkresourcemanagement.NodeIdentifier;
+import com.bbn.protelis.networkresourcemanagement.ResourceReport;
+import com.bbn.protelis.networkresourcemanagement.StringRegionIdentifier;
+import com.bbn.protelis.utils.SimpleClock;
+import com.bbn.protelis.utils.VirtualClock;
+import com.google.common.collect.ImmutableMap;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Tests for {@link AgentConfiguration#getRlgPredictiveAllocation()}.
+ */
+public class RlgPredictiveAllocationTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RlgPredictiveAllocationTest.class);
+
+    /**
+     * Add test name to logging and use the application manager.
+     */
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD", justification = "Used by the JUnit framework")
+    @Rule
+    public RuleChain chain = TestUtils.getStandardRuleChain();
+
+    private static final Duration ROUND_DURATION = Duration.ofSeconds(10);
+
+    private static final NodeIdentifier NODE = new DnsNameIdentifier("node");
+
+    private static final ApplicationCoordinates SERVICE = new ApplicationCoordinates("com.bbn", "app", "1.0");
+
+    private static ResourceReport createReport(final long time, final double load) {
+        final NodeIdentifier container = new DnsNameIdentifier("container");
+        final Map<NodeAttribute, Double> containerLoad = ImmutableMap.of(NodeAttribute.TASK_CONTAINERS, load);
+        return RlgTestUtils.createResourceReport(time, NODE, 4, ImmutableMap.of(NodeAttribute.TASK_CONTAINERS, 4.0),
+                Collections.singleton(RlgTestUtils.createContainerReport(time, container, SERVICE, containerLoad, 0)));
+    }
+
+    /**
+     * Check the forecast of {@link DemandTrendPredictor} for increasing and
+     * decreasing demand.
+     */
+    @Test
+    public void testForecast() {
+        final DemandTrendPredictor predictor = new DemandTrendPredictor(2);
+
+        predictor.update(Collections.singleton(createReport(0, 1)));
+        Assert.assertEquals(0, predictor.getSlope(SERVICE), 1E-9);
+        Assert.assertNull(predictor.timeUntilDemandReaches(SERVICE, 2));
+
+        // 1 unit every 10 seconds
+        predictor.update(Collections.singleton(createReport(10_000, 2)));
+        Assert.assertEquals(2, predictor.getDemand(SERVICE), 1E-9);
+        Assert.assertEquals(8, predictor.forecast(SERVICE, Duration.ofSeconds(60)), 1E-9);
+        Assert.assertEquals(Duration.ZERO, predictor.timeUntilDemandReaches(SERVICE, 2));
+        Assert.assertEquals(Duration.ofSeconds(10), predictor.timeUntilDemandReaches(SERVICE, 3));
+
+        // a report with the same timestamp replaces the newest demand
+        predictor.update(Collections.singleton(createReport(10_000, 2)));
+        Assert.assertEquals(Duration.ofSeconds(10), predictor.timeUntilDemandReaches(SERVICE, 3));
+
+        // decreasing demand is never forecast to cross and never below 0
+        predictor.update(Collections.singleton(createReport(20_000, 1)));
+        Assert.assertNull(predictor.timeUntilDemandReaches(SERVICE, 3));
+        Assert.assertEquals(0, predictor.forecast(SERVICE, Duration.ofSeconds(60)), 1E-9);
+    }
+
+    /**
+     * The trend is fitted over the whole window, so a single noisy round
+     * doesn't reverse it.
+     */
+    @Test
+    public void testWindow() {
+        final DemandTrendPredictor predictor = new DemandTrendPredictor(4);
+
+        predictor.update(Collections.singleton(createReport(0, 1)));
+        predictor.update(Collections.singleton(createReport(10_000, 2)));
+        predictor.update(Collections.singleton(createReport(20_000, 3)));
+        Assert.assertEquals(1E-4, predictor.getSlope(SERVICE), 1E-9);
+
+        // a dip in the last round
+        predictor.update(Collections.singleton(createReport(30_000, 2.5)));
+        Assert.assertThat(0D, lessThan(predictor.getSlope(SERVICE)));
+
+        // the first round leaves the window
+        predictor.update(Collections.singleton(createReport(40_000, 5)));
+        Assert.assertEquals(0.85E-4, predictor.getSlope(SERVICE), 1E-9);
+    }
+
+    /**
+     * A window that can't have a trend is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidWindow() {
+        new DemandTrendPredictor(1);
+    }
+
+    /**
+     * Run one bin packing RLG round for each load on a single container of
+     * {@link #SERVICE} and return the number of containers that the last plan
+     * has for {@link #SERVICE} on {@link #NODE}.
+     */
+    private static int runRounds(final boolean predictiveAllocation, final double... loads) {
+        AgentConfiguration.getInstance().setRlgRoundDuration(ROUND_DURATION);
+        AgentConfiguration.getInstance().setRlgPredictiveAllocation(predictiveAllocation);
+        AgentConfiguration.getInstance().setRlgPredictiveAllocationHorizon(ROUND_DURATION.multipliedBy(3));
+
+        final ApplicationSpecification spec = new ApplicationSpecification(SERVICE);
+        spec.setReplicable(true);
+
+        final RlgTestWrapper rlg = new RlgTestWrapper(new StringRegionIdentifier("A"), NODE,
+                Collections.singleton(spec), RlgAlgorithm.BIN_PACKING, RlgPriorityPolicy.NO_PRIORITY);
+        rlg.initializeDcopPlan(Collections.singleton(SERVICE));
+
+        LoadBalancerPlan plan = null;
+        for (int round = 0; round < loads.length; ++round) {
+            final Set<ResourceReport> reports = Collections
+                    .singleton(createReport(ROUND_DURATION.toMillis() * round, loads[round]));
+            plan = rlg.executeRound(reports);
+        }
+        Assert.assertNotNull(plan);
+
+        return RlgTestUtils.countServiceNodeInstances(plan).getOrDefault(SERVICE, Collections.emptyMap())
+                .getOrDefault(NODE, 0);
+    }
+
+    /**
+     * The demand on the container rises by 0.2 per round and stays under the
+     * load threshold. The round prediction alone doesn't start a container,
+     * the demand trend extended over the 3 round horizon reaches 1.0 and needs
+     * exactly one more container.
+     */
+    @Test
+    public void testRisingLoadStartsContainer() {
+        final int withoutPrediction = runRounds(false, 0.2, 0.4);
+        final int withPrediction = runRounds(true, 0.2, 0.4);
+
+        Assert.assertEquals(withoutPrediction + 1, withPrediction);
+    }
+
+    /**
+     * Falling demand never starts containers ahead of demand.
+     */
+    @Test
+    public void testFallingLoadStartsNothing() {
+        final int withoutPrediction = runRounds(false, 0.5, 0.4);
+        final int withPrediction = runRounds(true, 0.5, 0.4);
+
+        Assert.assertEquals(withoutPrediction, withPrediction);
+    }
+
+    /**
+     * Run the rlg-changing-simple scenario, where the demand for a service
+     * increases by one client every 10 seconds, with and without predictive
+     * allocation. Starting containers ahead of the rising demand should cause
+     * fewer requests to fail or be slow due to server load.
+     *
+     * @throws URISyntaxException
+     *             if the path to the test files cannot be converted to a URI.
+     *             This should not happen.
+     * @throws IOException
+     *             If there is an error reading the test files.
+     */
+    @Test
+    public void testPrewarmingReducesServerLoadFailures() throws URISyntaxException, IOException {
+        final int withoutPrewarming = runScenario(false);
+        final int withPrewarming = runScenario(true);
+
+        LOGGER.info("Requests failed or slow for server load without pre-warming: {} with pre-warming: {}",
+                withoutPrewarming, withPrewarming);
+
+        Assert.assertThat(withPrewarming, lessThan(withoutPrewarming));
+    }
+
+    /**
+     * @return the number of requests that failed or were slow because of
+     *         server load
+     */
+    private static int runScenario(final boolean predictiveAllocation) throws URISyntaxException, IOException {
+        final long pollingInterval = Duration.ofMillis(10).toMillis();
+        final int dnsTtlSeconds = 60;
+        // the last client request starts at 270 seconds
+        final Duration simulationDuration = Duration.ofSeconds(300);
+
+        AgentConfiguration.getInstance().setRlgAlgorithm(RlgAlgorithm.BIN_PACKING);
+        AgentConfiguration.getInstance().setRlgRoundDuration(ROUND_DURATION);
+        AgentConfiguration.getInstance().setRlgEstimationWindow(ROUND_DURATION);
+        AgentConfiguration.getInstance().setRlgPredictiveAllocation(predictiveAllocation);
+        AgentConfiguration.getInstance().setRlgPredictiveAllocationHorizon(ROUND_DURATION.multipliedBy(3));
+        AgentConfiguration.getInstance().setRlgPredictiveAllocationWindow(3);
+
+        final URL baseu = Thread.currentThread().getContextClassLoader().getResource("ns2/rlg-changing-simple");
+        final Path baseDirectory = Paths.get(baseu.toURI());
+        final Path demandPath = baseDirectory.resolve("rlg_changing");
+
+        final VirtualClock clock = new SimpleClock();
+        try (Simulation sim = new Simulation("Simple", baseDirectory, demandPath, clock, pollingInterval, dnsTtlSeconds,
+                AppMgrUtils::getContainerParameters)) {
+
+            sim.startSimulation();
+            SimulationRunner.startAgentsAndClients(sim);
+
+            clock.waitForDuration(simulationDuration.toMillis());
+            sim.stopSimulation();
+
+            int count = 0;
+            for (final ClientSim client : sim.getClientSimulators()) {
+                count += client.getNumRequestsFailedForServerLoad() + client.getNumRequestsSlowForServerLoad();
+            }
+            return count;
+        }
+    }
+
+}
@@ -170,6 +170,14 @@ public class RlgTestWrapper {
         return rlgInfoProvider.getRlgPlan();
     }
 
+    /**
+     * @return the number of per-service decisions that RLG reused from the
+     *         previous round in the last call to {@link #executeRound(Set)}
+     */
+    public int getLastReusedDecisions() {
+        return rlg.getLastReusedDecisions();
+    }
+
     /**
      * @return the DCOP plan that is currently being used for RLG
      */
@@ -0,0 +1,144 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.scenario;
+
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+
+import com.bbn.map.appmgr.util.AppMgrUtils;
+import com.bbn.map.simulator.Simulation;
+import com.bbn.map.simulator.TestUtils;
+import com.bbn.protelis.utils.SimpleClock;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Tests for {@link ScenarioGenerator}.
+ */
+public class ScenarioGeneratorTest {
+
+    /**
+     * Add test name to logging and use the application manager.
+     */
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD", justification = "Used by the JUnit framework")
+    @Rule
+    public RuleChain chain = TestUtils.getStandardRuleChain();
+
+    private static ScenarioParameters createParameters() {
+        final ScenarioParameters parameters = new ScenarioParameters();
+        parameters.setSeed(42);
+        parameters.setNumRegions(3);
+        parameters.setNcpsPerRegion(3);
+        parameters.setNumClients(4);
+        parameters.setNumServices(3);
+        parameters.setProfile(DemandProfile.BURSTY);
+        return parameters;
+    }
+
+    /**
+     * Check that the same parameters produce the same files.
+     * 
+     * @throws IOException
+     *             test error
+     */
+    @Test
+    public void testDeterministic() throws IOException {
+        final Path first = Files.createTempDirectory("scenario");
+        final Path second = Files.createTempDirectory("scenario");
+        try {
+            ScenarioGenerator.generate(createParameters(), first);
+            ScenarioGenerator.generate(createParameters(), second);
+
+            final List<Path> files = listFiles(first);
+            Assert.assertEquals(files, listFiles(second));
+            for (final Path file : files) {
+                Assert.assertArrayEquals(file.toString(), Files.readAllBytes(first.resolve(file)),
+                        Files.readAllBytes(second.resolve(file)));
+            }
+        } finally {
+            delete(first);
+            delete(second);
+        }
+    }
+
+    /**
+     * Check that the generated scenario and demand can be loaded by the
+     * simulation.
+     * 
+     * @throws IOException
+     *             test error
+     */
+    @Test
+    public void testLoad() throws IOException {
+        final ScenarioParameters parameters = createParameters();
+
+        final Path dir = Files.createTempDirectory("scenario");
+        try {
+            ScenarioGenerator.generate(parameters, dir);
+
+            try (Simulation sim = new Simulation("Generated", dir.resolve(ScenarioGenerator.SCENARIO_DIRECTORY),
+                    dir.resolve(ScenarioGenerator.DEMAND_DIRECTORY), new SimpleClock(), TestUtils.POLLING_INTERVAL_MS,
+                    TestUtils.DNS_TTL, false, false, false, AppMgrUtils::getContainerParameters)) {
+                Assert.assertEquals(parameters.getNumRegions() * parameters.getNcpsPerRegion(),
+                        sim.getAllControllers().size());
+                Assert.assertEquals(parameters.getNumClients(), sim.getClientSimulators().size());
+                Assert.assertEquals(parameters.getNumRegions(), sim.getAllRegions().size());
+            }
+        } finally {
+            delete(dir);
+        }
+    }
+
+    private static List<Path> listFiles(final Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(Files::isRegularFile).map(dir::relativize).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static void delete(final Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+}
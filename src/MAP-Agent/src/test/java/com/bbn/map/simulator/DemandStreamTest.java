@@ -0,0 +1,180 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.simulator;
+
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Tests for {@link DemandStream}.
+ */
+public class DemandStreamTest {
+
+    /**
+     * Add test name to logging and use the application manager.
+     */
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD", justification = "Used by the JUnit framework")
+    @Rule
+    public RuleChain chain = TestUtils.getStandardRuleChain();
+
+    /**
+     * Check that a sorted file is read directly.
+     * 
+     * @throws IOException
+     *             test error
+     */
+    @Test
+    public void testSortedFile() throws IOException {
+        final Path dir = Files.createTempDirectory("demand");
+        try {
+            final Path file = dir.resolve("client.json");
+            writeDemand(file, new long[][] { { 0, 1 }, { 10, 2 }, { 10, 3 }, { 20, 4 } });
+
+            try (DemandStream<ClientLoad> stream = DemandStream.open(file, ClientLoad.class)) {
+                Assert.assertEquals(Arrays.asList(1, 2, 3, 4), readNumClients(stream));
+            }
+            Assert.assertEquals(Arrays.asList(file), listFiles(dir));
+        } finally {
+            delete(dir);
+        }
+    }
+
+    /**
+     * Check that an unsorted file is sorted across multiple chunks, that
+     * entries with the same start time keep their order and that nothing is
+     * written next to the demand file.
+     * 
+     * @throws IOException
+     *             test error
+     */
+    @Test
+    public void testUnsortedFile() throws IOException {
+        final int chunkSize = 2;
+
+        final Path dir = Files.createTempDirectory("demand");
+        try {
+            final Path file = dir.resolve("client.json");
+            writeDemand(file, new long[][] { { 30, 1 }, { 10, 2 }, { 20, 3 }, { 10, 4 }, { 0, 5 }, { 10, 6 },
+                    { 20, 7 } });
+
+            try (DemandStream<ClientLoad> stream = DemandStream.open(file, ClientLoad.class, chunkSize)) {
+                Assert.assertEquals(Arrays.asList(file), listFiles(dir));
+                Assert.assertEquals(Arrays.asList(5, 2, 4, 6, 3, 7, 1), readNumClients(stream));
+            }
+            Assert.assertEquals(Arrays.asList(file), listFiles(dir));
+        } finally {
+            delete(dir);
+        }
+    }
+
+    /**
+     * Check that a missing file is empty.
+     * 
+     * @throws IOException
+     *             test error
+     */
+    @Test
+    public void testMissingFile() throws IOException {
+        final Path dir = Files.createTempDirectory("demand");
+        try {
+            try (DemandStream<ClientLoad> stream = DemandStream.open(dir.resolve("missing.json"), ClientLoad.class)) {
+                Assert.assertFalse(stream.hasNext());
+            }
+        } finally {
+            delete(dir);
+        }
+    }
+
+    /**
+     * Write a demand file using the number of clients to identify each
+     * request.
+     * 
+     * @param demand
+     *            pairs of start time and number of clients
+     */
+    private static void writeDemand(final Path file, final long[][] demand) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("[");
+            for (int i = 0; i < demand.length; ++i) {
+                if (i > 0) {
+                    writer.write(",");
+                }
+                writer.write(String.format(
+                        "{ \"startTime\": %d, \"serverDuration\": 1, \"networkDuration\": 1, \"numClients\": %d }",
+                        demand[i][0], demand[i][1]));
+            }
+            writer.write("]");
+        }
+    }
+
+    private static List<Integer> readNumClients(final DemandStream<ClientLoad> stream) {
+        final List<Integer> numClients = new ArrayList<>();
+        long previous = Long.MIN_VALUE;
+        while (stream.hasNext()) {
+            final ClientLoad req = stream.next();
+            Assert.assertTrue("Demand is not sorted", req.getStartTime() >= previous);
+            previous = req.getStartTime();
+            numClients.add(req.getNumClients());
+        }
+        return numClients;
+    }
+
+    private static List<Path> listFiles(final Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static void delete(final Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+}
@@ -0,0 +1,203 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.simulator;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+
+import com.bbn.map.AgentConfiguration;
+import com.bbn.map.Controller;
+import com.bbn.map.appmgr.util.AppMgrUtils;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Tests that a simulation with {@link SimulationConfiguration#getRandomSeed()}
+ * set and {@link SimulationConfiguration#isDeterministic()} is repeatable.
+ */
+public class DeterministicSimulationTest {
+
+    /**
+     * Unit test rule chain.
+     */
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD", justification = "Used by the JUnit framework")
+    @Rule
+    public RuleChain chain = TestUtils.getStandardRuleChain();
+
+    private static final long SEED = 42;
+
+    /**
+     * Run the same scenario twice with the same seed and check that the
+     * clients see the same results and the simulation sees the same dates.
+     * The client request logs, the DNS logs and the final dump of the
+     * simulation state must be byte for byte the same. The clients are
+     * overloaded so that requests are retried with random delays and the DNS
+     * uses the random record round robin.
+     * 
+     * @throws URISyntaxException
+     *             internal test failure
+     * @throws InterruptedException
+     *             internal test failure
+     * @throws IOException
+     *             internal test failure
+     */
+    @Test
+    public void testSeededRunsMatch() throws URISyntaxException, InterruptedException, IOException {
+        AgentConfiguration.getInstance().setRoundRobinAlgorithm(AgentConfiguration.RoundRobinAlgorithm.RANDOM_RECORDS);
+        SimulationConfiguration.getInstance().setDeterministic(true);
+
+        final Path firstOutput = Files.createTempDirectory("deterministic-first");
+        final Path secondOutput = Files.createTempDirectory("deterministic-second");
+        try {
+            final SeededRun first = runSeeded(firstOutput);
+            final SeededRun second = runSeeded(secondOutput);
+
+            // make sure that some requests were retried
+            final long clientsWithFailures = first.clientCounts.values().stream()
+                    .filter(counts -> !counts.get(0).equals(counts.get(1))).count();
+            assertThat(clientsWithFailures, greaterThan(0L));
+
+            assertThat(second.startDate, is(first.startDate));
+            assertThat(second.clientCounts, is(first.clientCounts));
+
+            final List<Path> firstFiles = listFiles(firstOutput);
+            assertTrue("No client request logs were written: " + firstFiles, firstFiles.stream()
+                    .anyMatch(f -> f.getFileName().toString().startsWith("client_requests_sent-")));
+            assertThat(listFiles(secondOutput), is(firstFiles));
+
+            for (final Path file : firstFiles) {
+                assertArrayEquals("Contents of " + file + " differ", Files.readAllBytes(firstOutput.resolve(file)),
+                        Files.readAllBytes(secondOutput.resolve(file)));
+            }
+        } finally {
+            delete(firstOutput);
+            delete(secondOutput);
+        }
+    }
+
+    private static final class SeededRun {
+        private final LocalDateTime startDate;
+        private final ImmutableMap<String, ImmutableList<Object>> clientCounts;
+
+        SeededRun(final LocalDateTime startDate, final ImmutableMap<String, ImmutableList<Object>> clientCounts) {
+            this.startDate = startDate;
+            this.clientCounts = clientCounts;
+        }
+    }
+
+    private static SeededRun runSeeded(final Path outputDirectory)
+            throws URISyntaxException, InterruptedException, IOException {
+        // setting the seed discards the random number generators used by the
+        // previous run
+        SimulationConfiguration.getInstance().setRandomSeed(SEED);
+
+        final URL baseu = DeterministicSimulationTest.class.getResource("checkpoint");
+        final Path basePath = Paths.get(baseu.toURI());
+        final Path scenarioPath = basePath.resolve("scenario");
+        final Path demandPath = basePath.resolve("demand");
+
+        // deterministic mode makes the clock serial
+        final DiscreteEventClock clock = new DiscreteEventClock();
+        assertTrue(clock.isSerial());
+        try (Simulation sim = new Simulation("test", scenarioPath, demandPath, clock, TestUtils.POLLING_INTERVAL_MS,
+                TestUtils.DNS_TTL, false, false, false, AppMgrUtils::getContainerParameters)) {
+            sim.setBaseOutputDirectory(outputDirectory);
+
+            final AtomicReference<LocalDateTime> startDate = new AtomicReference<>();
+            final Thread dateThread = new Thread(clock.actor(() -> startDate.set(DiscreteEventClock.now())), "Date");
+            dateThread.start();
+
+            sim.startClients();
+            sim.startSimulation();
+
+            for (final ClientSim client : sim.getClientSimulators()) {
+                client.join();
+            }
+            dateThread.join();
+
+            final Path dumpDirectory = outputDirectory.resolve("dump");
+            Files.createDirectories(dumpDirectory);
+            sim.dumpCurrentState(dumpDirectory, Controller.createDumpWriter());
+
+            final ImmutableMap.Builder<String, ImmutableList<Object>> counts = ImmutableMap.builder();
+            for (final ClientSim client : sim.getClientSimulators()) {
+                final ClientState state = client.getSimulationState();
+                counts.put(client.getSimName(),
+                        ImmutableList.of(state.getNumRequestsAttempted(), state.getNumRequestsSucceeded(),
+                                state.getNumRequestsFailedForServerLoad(), state.getNumRequestsFailedForNetworkLoad(),
+                                state.getNumRequestsSlowForServerLoad(), state.getNumRequestsSlowForNetworkLoad(),
+                                ImmutableMap.copyOf(state.getNumRequestsServicedByRegion())));
+            }
+            return new SeededRun(startDate.get(), counts.build());
+        } finally {
+            clock.shutdown();
+        }
+    }
+
+    /**
+     * @return the regular files under the directory relative to it, sorted
+     */
+    private static List<Path> listFiles(final Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).map(directory::relativize).sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static void delete(final Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,398 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.simulator;
+
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hamcrest.number.OrderingComparison;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Test that {@link DiscreteEventClock} follows the contract of
+ * {@link com.bbn.protelis.utils.VirtualClock} as tested in
+ * {@link SimpleClockTest} and that time advances based on the actors rather
+ * than the wall clock.
+ */
+public class DiscreteEventClockTest {
+
+    /**
+     * Add test name to logging.
+     */
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD", justification = "Used by the JUnit framework")
+    @Rule
+    public RuleChain chain = TestUtils.getStandardRuleChain();
+
+    private DiscreteEventClock clock;
+
+    private ExecutorService executor;
+
+    /**
+     * Make sure that the clock is shutdown.
+     */
+    @After
+    public void tearDown() {
+        clock.shutdown();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Create an instance of {@link DiscreteEventClock}.
+     */
+    @Before
+    public void setup() {
+        clock = new DiscreteEventClock();
+        executor = Executors.newCachedThreadPool();
+    }
+
+    /**
+     * Check the state of the clock.
+     */
+    @Test
+    public void testStartState() {
+        Assert.assertFalse(clock.isStarted());
+        Assert.assertFalse(clock.isShutdown());
+
+        clock.startClock();
+        Assert.assertTrue(clock.isStarted());
+        Assert.assertFalse(clock.isShutdown());
+
+        clock.stopClock();
+        Assert.assertFalse(clock.isStarted());
+        Assert.assertFalse(clock.isShutdown());
+
+        clock.shutdown();
+        Assert.assertFalse(clock.isStarted());
+        Assert.assertTrue(clock.isShutdown());
+    }
+
+    /**
+     * Test that waiting for a long time without any actors jumps straight to
+     * the time.
+     */
+    @Test
+    public void testWaitUntilJumps() {
+        final long waitUntil = Duration.ofHours(2).toMillis();
+
+        clock.startClock();
+
+        final long wallStart = System.currentTimeMillis();
+        clock.waitUntilTime(waitUntil);
+        final long wallElapsed = System.currentTimeMillis() - wallStart;
+
+        Assert.assertEquals(waitUntil, clock.getCurrentTime());
+        Assert.assertThat(wallElapsed, OrderingComparison.lessThan(Duration.ofSeconds(5).toMillis()));
+    }
+
+    /**
+     * Test that waiting until a time before clock start works.
+     * 
+     * @throws Exception
+     *             if there is a problem waiting, this is an error
+     */
+    @Test
+    public void testWaitUntilBeforeStart() throws Exception {
+        final long waitUntil = Duration.ofSeconds(1).toMillis();
+
+        final Future<Long> future = executor.submit(() -> {
+            clock.waitUntilTime(waitUntil);
+            return clock.getCurrentTime();
+        });
+
+        // the clock is not started, so time cannot advance
+        Thread.sleep(100);
+        Assert.assertFalse(future.isDone());
+
+        clock.startClock();
+
+        final Long result = future.get(2, TimeUnit.SECONDS);
+        Assert.assertEquals(Long.valueOf(waitUntil), result);
+    }
+
+    /**
+     * Test that stop and shutdown end a long wait.
+     * 
+     * @throws Exception
+     *             if there is a problem waiting, this is an error
+     */
+    @Test
+    public void testWaitUntilStop() throws Exception {
+        final long waitUntil = Duration.ofMinutes(10).toMillis();
+
+        clock.startClock();
+        // a busy actor keeps time from advancing
+        clock.addActor();
+
+        final Future<Long> future = executor.submit(() -> {
+            clock.waitUntilTime(waitUntil);
+            return clock.getCurrentTime();
+        });
+
+        Thread.sleep(100);
+        clock.stopClock();
+
+        final Long result = future.get(1, TimeUnit.SECONDS);
+        Assert.assertThat(result, OrderingComparison.lessThan(waitUntil));
+
+        clock.removeActor();
+    }
+
+    /**
+     * Test that a busy actor holds back the clock and that other threads are
+     * released once it waits.
+     * 
+     * @throws Exception
+     *             if there is a problem waiting, this is an error
+     */
+    @Test
+    public void testBusyActorHoldsTime() throws Exception {
+        clock.startClock();
+        clock.addActor();
+
+        final Future<Long> observer = executor.submit(() -> {
+            clock.waitUntilTime(1000);
+            return clock.getCurrentTime();
+        });
+
+        Thread.sleep(200);
+        Assert.assertFalse("Time advanced while an actor was busy", observer.isDone());
+        Assert.assertEquals(0, clock.getCurrentTime());
+
+        // the actor waits past the observer, so the observer is released first
+        clock.waitUntilTime(5000);
+        Assert.assertEquals(Long.valueOf(1000), observer.get(1, TimeUnit.SECONDS));
+        Assert.assertEquals(5000, clock.getCurrentTime());
+
+        clock.removeActor();
+    }
+
+    /**
+     * Test that periodic actors see the same event times regardless of how
+     * long their work takes on the wall clock.
+     * 
+     * @throws InterruptedException
+     *             if interrupted waiting for the actors
+     * @throws ExecutionException
+     *             if one of the actors fails
+     * @throws TimeoutException
+     *             if the actors take too long
+     */
+    @Test
+    public void testPeriodicActors() throws InterruptedException, ExecutionException, TimeoutException {
+        final long period = 100;
+        final int rounds = 50;
+        final long slowActorWorkMs = 2;
+
+        final List<Long> fastTimes = Collections.synchronizedList(new ArrayList<>());
+        final List<Long> slowTimes = Collections.synchronizedList(new ArrayList<>());
+        final AtomicLong slowRounds = new AtomicLong();
+
+        final Future<?> fast = executor.submit(clock.actor(() -> {
+            for (int i = 0; i < rounds; ++i) {
+                fastTimes.add(clock.getCurrentTime());
+                clock.waitForDuration(period);
+            }
+        }));
+        final Future<?> slow = executor.submit(clock.actor(() -> {
+            for (int i = 0; i < rounds; ++i) {
+                slowTimes.add(clock.getCurrentTime());
+                try {
+                    // wall clock work does not move simulated time
+                    Thread.sleep(slowActorWorkMs);
+                } catch (final InterruptedException e) {
+                    Assert.fail("Interrupted");
+                }
+                slowRounds.incrementAndGet();
+                clock.waitForDuration(period);
+            }
+        }));
+
+        clock.startClock();
+        fast.get(10, TimeUnit.SECONDS);
+        slow.get(10, TimeUnit.SECONDS);
+
+        Assert.assertEquals(rounds, slowRounds.get());
+        Assert.assertEquals(fastTimes, slowTimes);
+        for (int i = 0; i < rounds; ++i) {
+            Assert.assertEquals(i * period, fastTimes.get(i).longValue());
+        }
+        Assert.assertEquals(rounds * period, clock.getCurrentTime());
+    }
+
+    /**
+     * Test that {@link DiscreteEventClock#sleep(long)} uses the clock of the
+     * current actor.
+     * 
+     * @throws Exception
+     *             if there is a problem waiting, this is an error
+     */
+    @Test
+    public void testSleep() throws Exception {
+        final long sleepTime = Duration.ofMinutes(30).toMillis();
+
+        clock.startClock();
+        final Future<Long> future = executor.submit(() -> {
+            clock.addActor();
+            try {
+                DiscreteEventClock.sleep(sleepTime);
+                return clock.getCurrentTime();
+            } finally {
+                clock.removeActor();
+            }
+        });
+
+        Assert.assertEquals(Long.valueOf(sleepTime), future.get(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Test that an actor that exits without unregistering does not stop time.
+     * 
+     * @throws Exception
+     *             if there is a problem waiting, this is an error
+     */
+    @Test
+    public void testDeadActor() throws Exception {
+        clock.startClock();
+
+        final Thread actor = new Thread(() -> clock.addActor(), "dead actor");
+        actor.start();
+        actor.join();
+
+        clock.waitUntilTime(1000);
+        Assert.assertEquals(1000, clock.getCurrentTime());
+    }
+
+    /**
+     * Test that in serial mode the actors run one at a time in the order that
+     * their events were created.
+     * 
+     * @throws InterruptedException
+     *             if interrupted waiting for the actors
+     * @throws ExecutionException
+     *             if one of the actors fails
+     * @throws TimeoutException
+     *             if the actors take too long
+     */
+    @Test
+    public void testSerialOrder() throws InterruptedException, ExecutionException, TimeoutException {
+        checkSerialOrder(new DiscreteEventClock(true));
+    }
+
+    /**
+     * Test that a clock created in deterministic mode is serial even when
+     * asked not to be, so that the actors released at the same time run in a
+     * repeatable order.
+     * 
+     * @throws InterruptedException
+     *             if interrupted waiting for the actors
+     * @throws ExecutionException
+     *             if one of the actors fails
+     * @throws TimeoutException
+     *             if the actors take too long
+     */
+    @Test
+    public void testDeterministicIsSerial() throws InterruptedException, ExecutionException, TimeoutException {
+        Assert.assertFalse(clock.isSerial());
+
+        SimulationConfiguration.getInstance().setDeterministic(true);
+        final DiscreteEventClock deterministicClock = new DiscreteEventClock(false);
+        Assert.assertTrue(deterministicClock.isSerial());
+        checkSerialOrder(deterministicClock);
+    }
+
+    private void checkSerialOrder(final DiscreteEventClock serialClock)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        final long period = 100;
+        final int rounds = 20;
+        final int numActors = 3;
+
+        final List<String> order = Collections.synchronizedList(new ArrayList<>());
+        final AtomicLong running = new AtomicLong();
+        final AtomicLong maxRunning = new AtomicLong();
+
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int a = 0; a < numActors; ++a) {
+                final String name = "actor" + a;
+                futures.add(executor.submit(serialClock.actor(() -> {
+                    for (int i = 0; i < rounds; ++i) {
+                        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                        order.add(name + "@" + serialClock.getCurrentTime());
+                        try {
+                            // give other threads a chance to run if they could
+                            Thread.sleep(1);
+                        } catch (final InterruptedException e) {
+                            Assert.fail("Interrupted");
+                        }
+                        running.decrementAndGet();
+                        serialClock.waitForDuration(period);
+                    }
+                })));
+            }
+
+            serialClock.startClock();
+            for (final Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            serialClock.shutdown();
+        }
+
+        Assert.assertEquals(1, maxRunning.get());
+
+        final List<String> expected = new ArrayList<>();
+        for (int i = 0; i < rounds; ++i) {
+            for (int a = 0; a < numActors; ++a) {
+                expected.add("actor" + a + "@" + i * period);
+            }
+        }
+        Assert.assertEquals(expected, order);
+    }
+
+}
@@ -31,6 +31,7 @@ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 BBN_LICENSE_END*/
 package com.bbn.map.simulator;
 
+import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 
@@ -115,4 +116,51 @@ public class NodeFailureTest {
 
         }
     }
+
+    /**
+     * Two failures at the same time choosing from the same nodes. The failures
+     * are executed as one burst and the second failure must choose from the
+     * nodes that are left, so both nodes go down with a single change to the
+     * network graph.
+     * 
+     * @throws URISyntaxException
+     *             internal test failure
+     * @throws IOException
+     *             internal test failure
+     */
+    @Test
+    public void testFailureBurst() throws URISyntaxException, IOException {
+        final NodeIdentifier nodeA2Id = new DnsNameIdentifier("nodeA2");
+        final NodeIdentifier nodeA3Id = new DnsNameIdentifier("nodeA3");
+
+        final URL baseu = NodeFailureTest.class.getResource("fail-burst");
+        final Path basePath = Paths.get(baseu.toURI());
+        final Path scenarioPath = basePath.resolve("scenario");
+        final Path demandPath = basePath.resolve("demand");
+
+        // failures are at time 41000
+        final long timeToWaitForFailure = 50000;
+        final VirtualClock clock = new SimpleClock();
+
+        try (Simulation sim = new Simulation("test", scenarioPath, demandPath, clock, TestUtils.POLLING_INTERVAL_MS,
+                TestUtils.DNS_TTL, false, false, false, AppMgrUtils::getContainerParameters)) {
+
+            final int numApRoundsToStabilize = SimUtils.computeRoundsToStabilize(sim);
+
+            sim.startSimulation();
+            SimUtils.waitForApRounds(sim, numApRoundsToStabilize);
+
+            sim.startClients();
+
+            assertThat(sim.getNetworkModificationCount(), is(0));
+
+            clock.waitUntilTime(timeToWaitForFailure);
+
+            clock.stopClock();
+
+            assertThat(sim.getControllerById(nodeA2Id), nullValue());
+            assertThat(sim.getControllerById(nodeA3Id), nullValue());
+            assertThat(sim.getNetworkModificationCount(), is(1));
+        }
+    }
 }
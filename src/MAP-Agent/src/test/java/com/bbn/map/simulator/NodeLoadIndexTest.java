@@ -0,0 +1,195 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.simulator;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+
+import com.bbn.protelis.networkresourcemanagement.ContainerResourceReport;
+import com.bbn.protelis.networkresourcemanagement.DnsNameIdentifier;
+import com.bbn.protelis.networkresourcemanagement.NodeAttribute;
+import com.bbn.protelis.networkresourcemanagement.NodeIdentifier;
+import com.bbn.protelis.networkresourcemanagement.ResourceReport;
+import com.bbn.protelis.networkresourcemanagement.ResourceReport.EstimationWindow;
+import com.bbn.protelis.networkresourcemanagement.ServiceIdentifier;
+import com.bbn.protelis.networkresourcemanagement.ServiceStatus;
+import com.bbn.protelis.networkresourcemanagement.StringServiceIdentifier;
+import com.google.common.collect.ImmutableMap;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Tests for {@link NodeLoadIndex}.
+ */
+public class NodeLoadIndexTest {
+
+    /**
+     * Unit test rule chain.
+     */
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD", justification = "Used by the JUnit framework")
+    @Rule
+    public RuleChain chain = TestUtils.getStandardRuleChain();
+
+    private static final NodeAttribute ATTRIBUTE = NodeAttribute.TASK_CONTAINERS;
+    private static final ServiceIdentifier<?> SERVICE = new StringServiceIdentifier("testService");
+
+    private final NodeIdentifier node = new DnsNameIdentifier("node");
+    private final NodeIdentifier c0 = new DnsNameIdentifier("c0");
+    private final NodeIdentifier c1 = new DnsNameIdentifier("c1");
+    private final NodeIdentifier c2 = new DnsNameIdentifier("c2");
+    private final List<NodeIdentifier> candidates = Arrays.asList(c0, c1, c2);
+
+    private static ContainerResourceReport createContainerReport(final NodeIdentifier id,
+            final double capacity,
+            final double demand) {
+        final ImmutableMap<NodeAttribute, Double> computeCapacity = ImmutableMap.of(ATTRIBUTE, capacity);
+        final ImmutableMap<NodeIdentifier, ImmutableMap<NodeAttribute, Double>> computeDemand = ImmutableMap
+                .of(new DnsNameIdentifier("client"), ImmutableMap.of(ATTRIBUTE, demand));
+        return new ContainerResourceReport(id, 0, SERVICE, ServiceStatus.RUNNING, EstimationWindow.SHORT,
+                computeCapacity, computeDemand, computeDemand, 0D);
+    }
+
+    /**
+     * @param containers
+     *            the container reports
+     * @return a report for {@link #node} containing the containers
+     */
+    private ResourceReport createReport(final ContainerResourceReport... containers) {
+        final ImmutableMap.Builder<NodeIdentifier, ContainerResourceReport> containerReports = ImmutableMap
+                .builder();
+        for (final ContainerResourceReport container : containers) {
+            containerReports.put(container.getContainerName(), container);
+        }
+        return new ResourceReport(node, 0, EstimationWindow.SHORT, ImmutableMap.of(ATTRIBUTE, 10D),
+                ImmutableMap.of(), ImmutableMap.of(), ImmutableMap.of(), containerReports.build(), containers.length,
+                containers.length);
+    }
+
+    private NodeIdentifier chooseMostLoaded(final NodeLoadIndex index) {
+        return index.chooseMostLoaded(ATTRIBUTE, candidates, id -> true);
+    }
+
+    /**
+     * The most loaded candidate is chosen and a new report replaces the
+     * previous load of a candidate.
+     */
+    @Test
+    public void testOrdering() {
+        final NodeLoadIndex index = new NodeLoadIndex();
+        index.addCandidates(ATTRIBUTE, candidates);
+
+        index.update(createReport(createContainerReport(c0, 1, 0.2), createContainerReport(c1, 1, 0.8),
+                createContainerReport(c2, 1, 0.5)));
+        assertThat(chooseMostLoaded(index), is(c1));
+
+        index.update(createReport(createContainerReport(c0, 1, 0.2), createContainerReport(c1, 1, 0.1),
+                createContainerReport(c2, 1, 0.5)));
+        assertThat(chooseMostLoaded(index), is(c2));
+    }
+
+    /**
+     * Candidates with the same load are chosen by name.
+     */
+    @Test
+    public void testTies() {
+        final NodeLoadIndex index = new NodeLoadIndex();
+        index.addCandidates(ATTRIBUTE, candidates);
+
+        index.update(createReport(createContainerReport(c2, 2, 1), createContainerReport(c1, 1, 0.5),
+                createContainerReport(c0, 1, 0.2)));
+        assertThat(chooseMostLoaded(index), is(c1));
+    }
+
+    /**
+     * A candidate without a load is only chosen when no candidate has a load.
+     */
+    @Test
+    public void testNaN() {
+        final NodeLoadIndex index = new NodeLoadIndex();
+        index.addCandidates(ATTRIBUTE, candidates);
+
+        // nothing allocated, the load is 0 / 0
+        index.update(createReport(createContainerReport(c0, 0, 0)));
+        assertThat(chooseMostLoaded(index), is(c0));
+
+        index.update(createReport(createContainerReport(c0, 0, 0), createContainerReport(c2, 1, 0)));
+        assertThat(chooseMostLoaded(index), is(c2));
+    }
+
+    /**
+     * Removed candidates and candidates that are not running are skipped.
+     */
+    @Test
+    public void testRemove() {
+        final NodeLoadIndex index = new NodeLoadIndex();
+        index.addCandidates(ATTRIBUTE, candidates);
+
+        index.update(createReport(createContainerReport(c0, 1, 0.2), createContainerReport(c1, 1, 0.8),
+                createContainerReport(c2, 1, 0.5)));
+
+        index.remove(c1);
+        assertThat(chooseMostLoaded(index), is(c2));
+
+        assertThat(index.chooseMostLoaded(ATTRIBUTE, candidates, id -> !c2.equals(id)), is(c0));
+
+        index.remove(c0);
+        index.remove(c2);
+        assertThat(chooseMostLoaded(index), nullValue());
+    }
+
+    /**
+     * Nodes that are not candidates are not tracked.
+     */
+    @Test
+    public void testUnknownCandidates() {
+        final NodeLoadIndex index = new NodeLoadIndex();
+        assertThat(index.isEmpty(), is(true));
+
+        index.update(createReport(createContainerReport(c0, 1, 0.2)));
+        assertThat(chooseMostLoaded(index), nullValue());
+
+        index.addCandidates(ATTRIBUTE, Arrays.asList(c0, c1));
+        assertThat(index.isEmpty(), is(false));
+        index.update(createReport(createContainerReport(c0, 1, 0.2)));
+        assertThat(chooseMostLoaded(index), nullValue());
+        assertThat(index.chooseMostLoaded(ATTRIBUTE, Arrays.asList(c1, c0), id -> true), is(c0));
+    }
+
+}
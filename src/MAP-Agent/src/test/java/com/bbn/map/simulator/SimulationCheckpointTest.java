@@ -0,0 +1,228 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.simulator;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+
+import com.bbn.map.appmgr.util.AppMgrUtils;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Tests for {@link SimulationCheckpoint}.
+ */
+public class SimulationCheckpointTest {
+
+    /**
+     * Unit test rule chain.
+     */
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD", justification = "Used by the JUnit framework")
+    @Rule
+    public RuleChain chain = TestUtils.getStandardRuleChain();
+
+    private static final long SEED = 42;
+
+    /**
+     * Take a checkpoint while client requests are in progress and resume a
+     * second simulation from it. The client request counts at the end of the
+     * resumed simulation must match the counts of the simulation that ran
+     * without interruption and the client request records written after the
+     * checkpoint must be the same. The demand overlaps so that some requests
+     * fail because of the load left by the requests before the checkpoint and
+     * the checkpoint is taken while failed requests are waiting to retry.
+     * 
+     * @throws URISyntaxException
+     *             internal test failure
+     * @throws IOException
+     *             internal test failure
+     * @throws InterruptedException
+     *             internal test failure
+     */
+    @Test
+    public void testResumeMatchesUninterrupted() throws URISyntaxException, IOException, InterruptedException {
+        final URL baseu = SimulationCheckpointTest.class.getResource("checkpoint");
+        final Path basePath = Paths.get(baseu.toURI());
+        final Path scenarioPath = basePath.resolve("scenario");
+        final Path demandPath = basePath.resolve("demand");
+
+        // requests start every 10 seconds and last 25 seconds, the requests
+        // at 30 seconds overload the containers and wait between 416 and 1250
+        // ms to retry
+        final long checkpointTime = 30500;
+
+        SimulationConfiguration.getInstance().setRandomSeed(SEED);
+
+        final Path checkpointFile = Files.createTempFile("checkpoint", ".json");
+        final Path expectedOutput = Files.createTempDirectory("checkpoint-expected");
+        final Path resumedOutput = Files.createTempDirectory("checkpoint-resumed");
+        try {
+            // client simulator name -> client request records written before
+            // the checkpoint
+            final Map<String, byte[]> recordsAtCheckpoint = new HashMap<>();
+            final DiscreteEventClock clock = new DiscreteEventClock(true);
+            final ImmutableMap<String, ImmutableList<Object>> expected;
+            try (Simulation sim = new Simulation("test", scenarioPath, demandPath, clock,
+                    TestUtils.POLLING_INTERVAL_MS, TestUtils.DNS_TTL, false, false, false,
+                    AppMgrUtils::getContainerParameters)) {
+                sim.setBaseOutputDirectory(expectedOutput);
+
+                final Thread checkpointThread = new Thread(clock.actor(() -> {
+                    clock.waitUntilTime(checkpointTime);
+                    try {
+                        sim.createCheckpoint().write(checkpointFile);
+                        for (final ClientSim client : sim.getClientSimulators()) {
+                            final String name = client.getSimName();
+                            recordsAtCheckpoint.put(name, readRecords(expectedOutput, name));
+                        }
+                    } catch (final IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }), "Checkpoint");
+                checkpointThread.start();
+
+                // start the clients first so that both simulations see the
+                // same requests at the same times
+                sim.startClients();
+                sim.startSimulation();
+
+                for (final ClientSim client : sim.getClientSimulators()) {
+                    client.join();
+                }
+                checkpointThread.join();
+
+                expected = getClientCounts(sim);
+            } finally {
+                clock.shutdown();
+            }
+
+            final SimulationCheckpoint checkpoint = SimulationCheckpoint.read(checkpointFile);
+            assertThat(checkpoint.getTime(), is(checkpointTime));
+            assertThat(checkpoint.getPendingRetries().values().stream().mapToInt(List::size).sum(), greaterThan(0));
+
+            final DiscreteEventClock resumedClock = new DiscreteEventClock(true);
+            resumedClock.setStartTime(checkpoint.getTime());
+            final ImmutableMap<String, ImmutableList<Object>> actual;
+            try (Simulation sim = new Simulation("test", scenarioPath, demandPath, resumedClock,
+                    TestUtils.POLLING_INTERVAL_MS, TestUtils.DNS_TTL, false, false, false,
+                    AppMgrUtils::getContainerParameters)) {
+                sim.setBaseOutputDirectory(resumedOutput);
+                sim.restoreCheckpoint(checkpoint);
+
+                sim.startClients();
+                sim.startSimulation();
+
+                for (final ClientSim client : sim.getClientSimulators()) {
+                    client.join();
+                }
+
+                actual = getClientCounts(sim);
+            } finally {
+                resumedClock.shutdown();
+            }
+
+            // the resumed simulation must have requests left to run
+            checkpoint.getClients().forEach((name, state) -> assertThat(name,
+                    (Integer) expected.get(name).get(0), greaterThan(state.getNumRequestsAttempted())));
+
+            assertThat(actual, is(expected));
+
+            for (final Map.Entry<String, byte[]> entry : recordsAtCheckpoint.entrySet()) {
+                final String name = entry.getKey();
+                final ByteArrayOutputStream resumedRecords = new ByteArrayOutputStream();
+                resumedRecords.write(entry.getValue());
+                resumedRecords.write(readRecords(resumedOutput, name));
+                assertArrayEquals("Client request records of " + name + " differ",
+                        readRecords(expectedOutput, name), resumedRecords.toByteArray());
+            }
+        } finally {
+            Files.deleteIfExists(checkpointFile);
+            delete(expectedOutput);
+            delete(resumedOutput);
+        }
+    }
+
+    /**
+     * @return the client request records written by the client simulator,
+     *         empty if there are none
+     */
+    private static byte[] readRecords(final Path outputDirectory, final String simName) throws IOException {
+        final Path file = outputDirectory.resolve(simName).resolve(String.format("client_requests_sent-%s.json",
+                simName));
+        if (Files.exists(file)) {
+            return Files.readAllBytes(file);
+        } else {
+            return new byte[0];
+        }
+    }
+
+    private static void delete(final Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    private static ImmutableMap<String, ImmutableList<Object>> getClientCounts(final Simulation sim) {
+        final ImmutableMap.Builder<String, ImmutableList<Object>> counts = ImmutableMap.builder();
+        for (final ClientSim client : sim.getClientSimulators()) {
+            final ClientState state = client.getSimulationState();
+            counts.put(client.getSimName(),
+                    ImmutableList.of(state.getNumRequestsAttempted(), state.getNumRequestsSucceeded(),
+                            state.getNumRequestsFailedForServerLoad(), state.getNumRequestsFailedForNetworkLoad(),
+                            state.getNumRequestsSlowForServerLoad(), state.getNumRequestsSlowForNetworkLoad(),
+                            ImmutableMap.copyOf(state.getNumRequestsServicedByRegion())));
+        }
+        return counts.build();
+    }
+}
@@ -0,0 +1,194 @@
+/*BBN_LICENSE_START -- DO NOT MODIFY BETWEEN LICENSE_{START,END} Lines
+Copyright (c) <2017,2018,2019,2020,2021>, <Raytheon BBN Technologies>
+To be applied to the DCOMP/MAP Public Source Code Release dated 2018-04-19, with
+the exception of the dcop implementation identified below (see notes).
+
+Dispersed Computing (DCOMP)
+Mission-oriented Adaptive Placement of Task and Data (MAP) 
+
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS
+IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+BBN_LICENSE_END*/
+package com.bbn.map.simulator;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+
+import com.bbn.map.Controller;
+import com.bbn.map.appmgr.util.AppMgrUtils;
+import com.bbn.protelis.networkresourcemanagement.RegionIdentifier;
+import com.bbn.protelis.utils.SimpleClock;
+import com.google.common.collect.ImmutableSet;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Tests for {@link StartupPipeline} and for starting a {@link Simulation} with
+ * more than one thread.
+ */
+public class StartupPipelineTest {
+
+    /**
+     * Unit test rule chain.
+     */
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD", justification = "Used by the JUnit framework")
+    @Rule
+    public RuleChain chain = TestUtils.getStandardRuleChain();
+
+    /**
+     * The default is to start everything on the calling thread.
+     */
+    @Test
+    public void testDefaultIsSerial() {
+        assertThat(SimulationConfiguration.getInstance().getStartupParallelism(), is(1));
+
+        try (StartupPipeline pipeline = new StartupPipeline("test", 1)) {
+            assertThat(pipeline.getExecutor(), nullValue());
+
+            final Thread caller = Thread.currentThread();
+            final List<Boolean> onCaller = pipeline.map(Arrays.asList(1, 2, 3),
+                    i -> Thread.currentThread() == caller);
+            assertThat(onCaller, contains(true, true, true));
+        }
+    }
+
+    /**
+     * The results are in the order of the items and the items are processed
+     * concurrently.
+     * 
+     * @throws InterruptedException
+     *             test error
+     */
+    @Test
+    public void testParallelMap() throws InterruptedException {
+        final int parallelism = 4;
+        try (StartupPipeline pipeline = new StartupPipeline("test", parallelism)) {
+            assertThat(pipeline.getExecutor(), notNullValue());
+
+            // every task waits until all of the threads are busy
+            final CountDownLatch allRunning = new CountDownLatch(parallelism);
+            final Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<>());
+            final List<Integer> items = IntStream.range(0, 20).boxed().collect(Collectors.toList());
+            final List<Integer> results = pipeline.map(items, i -> {
+                threads.add(Thread.currentThread());
+                allRunning.countDown();
+                try {
+                    allRunning.await(10, TimeUnit.SECONDS);
+                } catch (final InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return i * 2;
+            });
+
+            assertThat(results, is(items.stream().map(i -> i * 2).collect(Collectors.toList())));
+            assertThat(threads.size(), is(parallelism));
+        }
+    }
+
+    /**
+     * An exception from one item is thrown to the caller once all items have
+     * been processed.
+     */
+    @Test
+    public void testException() {
+        final AtomicInteger processed = new AtomicInteger(0);
+        try (StartupPipeline pipeline = new StartupPipeline("test", 2)) {
+            pipeline.forEach(Arrays.asList(0, 1, 2, 3), i -> {
+                processed.incrementAndGet();
+                if (1 == i) {
+                    throw new IllegalStateException("expected");
+                }
+            });
+            fail("Expected the exception from the failed item");
+        } catch (final IllegalStateException e) {
+            assertThat(e.getMessage(), is("expected"));
+        }
+        assertThat(processed.get(), greaterThan(1));
+    }
+
+    private static Map<String, RegionIdentifier> createNodes(final int parallelism)
+            throws URISyntaxException, IOException {
+        SimulationConfiguration.getInstance().setStartupParallelism(parallelism);
+
+        final URL baseu = Thread.currentThread().getContextClassLoader().getResource("ns2/multinode");
+        final Path baseDirectory = Paths.get(baseu.toURI());
+        final Path demandPath = baseDirectory.resolve("demand_scenario1");
+
+        try (Simulation sim = new Simulation("test", baseDirectory, demandPath, new SimpleClock(),
+                TestUtils.POLLING_INTERVAL_MS, TestUtils.DNS_TTL, false, false, false,
+                AppMgrUtils::getContainerParameters)) {
+            final ImmutableSet<RegionIdentifier> regions = sim.getAllRegions();
+            assertThat(regions.size(), greaterThan(1));
+            regions.forEach(region -> assertThat(sim.getRegionalDNS(region), notNullValue()));
+
+            final Map<String, RegionIdentifier> nodes = sim.getAllControllers().stream()
+                    .collect(Collectors.toMap(Controller::getName, Controller::getRegionIdentifier));
+            sim.getClientSimulators()
+                    .forEach(client -> nodes.put(client.getSimName(), client.getClientRegion()));
+            return nodes;
+        }
+    }
+
+    /**
+     * Creating a simulation with several threads gives the same nodes, clients
+     * and regions as creating it on the calling thread.
+     * 
+     * @throws URISyntaxException
+     *             test error
+     * @throws IOException
+     *             test error
+     */
+    @Test
+    public void testParallelMatchesSerial() throws URISyntaxException, IOException {
+        final Map<String, RegionIdentifier> serial = createNodes(1);
+        final Map<String, RegionIdentifier> parallel = createNodes(4);
+        assertThat(parallel, is(serial));
+    }
+
+}
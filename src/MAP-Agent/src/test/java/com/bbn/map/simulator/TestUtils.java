@@ -167,19 +167,22 @@ public final class TestUtils {
     }
 
     /**
-     * Reset {@link AgentConfiguration} before and after each test.
+     * Reset {@link AgentConfiguration} and {@link SimulationConfiguration}
+     * before and after each test.
      */
     public static class ResetAgentConfig extends TestWatcher {
         @Override
         protected void starting(final Description description) {
             AgentConfiguration.resetToDefaults();
             GlobalNetworkConfiguration.resetToDefaults();
+            SimulationConfiguration.resetToDefaults();
         }
 
         @Override
         protected void finished(final Description description) {
             AgentConfiguration.resetToDefaults();
             GlobalNetworkConfiguration.resetToDefaults();
+            SimulationConfiguration.resetToDefaults();
         }
     }
 
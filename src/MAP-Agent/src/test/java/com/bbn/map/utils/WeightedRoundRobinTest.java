@@ -32,6 +32,7 @@ BBN_LICENSE_END*/
 package com.bbn.map.utils;
 
 import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 
 import java.util.HashMap;
@@ -88,7 +89,7 @@ public class WeightedRoundRobinTest {
         final double tolerance = 2.0 / precision;
         final long numRecordsToGather = 2 * precision;
 
-        final WeightedRoundRobin<Object> wrr = new WeightedRoundRobin<Object>();
+        final WeightedRoundRobin<Object> wrr = new WeightedRoundRobin<Object>(WeightedRoundRobinTest.class.getName());
 
         final Map<Object, Double> expectedWeights = new HashMap<>();
 
@@ -129,4 +130,60 @@ public class WeightedRoundRobinTest {
         final long precision = 1000;
         weightedRoundRobinTest(precision, RoundRobinAlgorithm.RANDOM_RECORDS, true, 3);
     }
+
+    /**
+     * A round robin restored from a cursor continues the sequence of the
+     * round robin that the cursor was created from.
+     */
+    @Test
+    public void testCursor() {
+        cursorTest(RoundRobinAlgorithm.COUNTERS, false, 0);
+    }
+
+    /**
+     * Same as {@link #testCursor()} using the random record list. Once the
+     * remaining records of the cursor are used the list is shuffled again, so
+     * only the remaining records are compared.
+     */
+    @Test
+    public void testCursorRandomRecordList() {
+        cursorTest(RoundRobinAlgorithm.RANDOM_RECORDS, true, 3);
+    }
+
+    private void cursorTest(final RoundRobinAlgorithm rrAlgorithm,
+            final boolean preferUnused,
+            final int numShuffles) {
+        AgentConfiguration.getInstance().setRoundRobinAlgorithm(rrAlgorithm);
+        AgentConfiguration.getInstance().setRandomRoundRobinPreferUnused(preferUnused);
+        AgentConfiguration.getInstance().setRandomRoundRobinNumShuffles(numShuffles);
+
+        final int numRecords = 5;
+        final WeightedRoundRobin<Object> wrr = new WeightedRoundRobin<Object>(WeightedRoundRobinTest.class.getName());
+        final WeightedRoundRobin<Object> restored = new WeightedRoundRobin<Object>(
+                WeightedRoundRobinTest.class.getName());
+        for (int n = 0; n < numRecords; n++) {
+            final Object record = Integer.valueOf(n);
+            final double weight = n + 1;
+            wrr.addRecord(record, weight);
+            restored.addRecord(record, weight);
+        }
+
+        final int numUsedBeforeCursor = 7;
+        for (int n = 0; n < numUsedBeforeCursor; ++n) {
+            wrr.getNextRecord();
+        }
+
+        final WeightedRoundRobin.Cursor<Object> cursor = wrr.getCursor();
+        restored.restoreCursor(cursor);
+
+        final int numToCompare;
+        if (RoundRobinAlgorithm.RANDOM_RECORDS.equals(rrAlgorithm)) {
+            numToCompare = cursor.getRemaining().size();
+        } else {
+            numToCompare = 3 * numRecords * numRecords;
+        }
+        for (int n = 0; n < numToCompare; ++n) {
+            assertThat("record " + n, restored.getNextRecord(), is(wrr.getNextRecord()));
+        }
+    }
 }